@@ -281,6 +281,7 @@ class DRDAConnThread extends Thread {
 			{
 				initializeForSession();
 			}
+			boolean released = false;
 			try {
 				long timeStart = System.currentTimeMillis();
 
@@ -305,6 +306,13 @@ class DRDAConnThread extends Thread {
                                 // DDMReader.fill(), which will happen
                                 // only when timeSlice is set.
                             }
+							// An event-driven session with no complete request
+							// waiting gives up this thread until one arrives.
+							if (releaseSession())
+							{
+								released = true;
+								break;
+							}
 							currentTimeSlice = getTimeSlice();
 						} while ((currentTimeSlice <= 0)  || 
 							(System.currentTimeMillis() - timeStart < currentTimeSlice));
@@ -335,7 +343,7 @@ class DRDAConnThread extends Thread {
                 } catch (Throwable t) {
                     // One last attempt...
                     try {
-                        session.clientSocket.close();
+                        session.closeConnection();
                     } catch (IOException ioe) {
                         // Ignore, we're in deeper trouble already.
                     } 
@@ -345,6 +353,8 @@ class DRDAConnThread extends Thread {
                     throw error;
                 }
             }
+			if (released)
+				session = null;
 		}
 		if (SanityManager.DEBUG)
 			trace("Ending connection thread");
@@ -659,6 +669,36 @@ class DRDAConnThread extends Thread {
         /* All sessions MUST start as EBCDIC */
         reader.setEbcdicCcsid();
         writer.setEbcdicCcsid();
+
+		// An event-driven session moves between threads once it has
+		// accessed its database, so restore what this thread learned
+		// about the client when the session was set up elsewhere.
+		if (session.isEventDriven() && appRequester != null)
+		{
+			sqlamLevel = appRequester.getManagerLevel(CodePoint.SQLAM);
+			setClientCapabilities();
+			if (appRequester.supportsUtf8Ccsid())
+				switchToUtf8();
+		}
+	}
+
+	/**
+	 * Release an event-driven session from this thread if it has no
+	 * complete request waiting. Sessions are only released once they have
+	 * accessed their database, and not while this thread holds state for
+	 * them that is not kept in the session: a deferred reset, a pending
+	 * statement timeout or an XA transaction.
+	 *
+	 * @return true if the session was released
+	 */
+	private boolean releaseSession()
+	{
+		if (session == null || !session.isEventDriven() ||
+				session.state != Session.CHKSEC ||
+				session.appRequester == null || session.boundToThread ||
+				deferredReset || pendingStatementTimeout >= 0)
+			return false;
+		return session.releaseIfIdle();
 	}
 	/**      
 	 * In initial state for a session, 
@@ -1085,6 +1125,9 @@ class DRDAConnThread extends Thread {
 					}
 					break;
 				case CodePoint.SYNCCTL:
+					// XA state is kept by this thread's protocol handler,
+					// so an event-driven session stays on this thread.
+					session.boundToThread = true;
 					if (xaProto == null)
 						xaProto = new DRDAXAProtocol(this);
 					xaProto.parseSYNCCTL();
@@ -1260,6 +1303,22 @@ class DRDAConnThread extends Thread {
 		return sessionOK;
 	}
 
+	/**
+	 * Set the protocol options that depend on the client version
+	 */
+	private void setClientCapabilities() {
+        // All versions of DNC,the only client supported, handle
+        // warnings on CNTQRY
+        sendWarningsOnCNTQRY = true;
+		// The client can not request DIAGLVL because when run with
+		// an older server it will cause an exception. Older version
+		// of the server do not recognize requests for DIAGLVL.
+		if ((appRequester.getClientType() == appRequester.DNC_CLIENT) &&
+				appRequester.greaterThanOrEqualTo(10, 2, 0)) {
+			diagnosticLevel = CodePoint.DIAGLVL1;
+		}
+	}
+
 	/**
 	 * Switch the DDMWriter and DDMReader to UTF8 IF supported
 	 */
@@ -3433,16 +3492,7 @@ class DRDAConnThread extends Thread {
                     if (appRequester.getClientType() != appRequester.DNC_CLIENT) {
                         invalidClient(appRequester.prdid);
                     }
-                    // All versions of DNC,the only client supported, handle
-                    // warnings on CNTQRY
-                    sendWarningsOnCNTQRY = true;
-					// The client can not request DIAGLVL because when run with
-					// an older server it will cause an exception. Older version
-					// of the server do not recognize requests for DIAGLVL.
-					if ((appRequester.getClientType() == appRequester.DNC_CLIENT) &&
-							appRequester.greaterThanOrEqualTo(10, 2, 0)) {
-						diagnosticLevel = CodePoint.DIAGLVL1;
-					}
+                    setClientCapabilities();
 
 					removeFromRequired(CodePoint.PRDID);
 					break;
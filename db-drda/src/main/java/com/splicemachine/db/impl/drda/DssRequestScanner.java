@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.db.impl.drda;
+
+/**
+ * Tracks DSS framing on the raw byte stream of a client connection so that
+ * the event-driven network front end can tell when a complete request chain
+ * has arrived, without buffering or interpreting the DDM data itself.
+ * <p>
+ * A request is complete when a DSS that is not chained to a following DSS
+ * (and is not continued by further length segments) has been fully received.
+ * If the stream does not look like DSS data the scanner falls back to treating
+ * every byte as complete, leaving it to <code>DDMReader</code> to report the
+ * protocol error.
+ */
+final class DssRequestScanner
+{
+	// scanner states
+	private static final int LENGTH_HI = 0;		// expecting first byte of a segment length
+	private static final int LENGTH_LO = 1;		// expecting second byte of a segment length
+	private static final int DSS_ID = 2;		// expecting the 'D0' byte
+	private static final int FORMAT = 3;		// expecting the DSS format byte
+	private static final int BODY = 4;			// skipping the rest of the segment
+	private static final int PASS_THROUGH = 5;	// not DSS data - everything is complete
+
+	private int state = LENGTH_HI;
+	private boolean continuation;	// current segment is a continuation segment
+	private boolean continued;		// current segment is followed by a continuation
+	private boolean chained;		// current DSS is chained to another DSS
+	private int segmentLength;
+	private int remaining;
+
+	/**
+	 * Scan the next chunk of bytes received from the client.
+	 *
+	 * @param bytes		bytes received
+	 * @param offset	offset of the first byte to scan
+	 * @param length	number of bytes to scan
+	 *
+	 * @return the number of bytes, counted from <code>offset</code>, up to and
+	 *		including the end of the last request completed in this chunk, or 0
+	 *		if no request was completed
+	 */
+	int scan(byte[] bytes, int offset, int length)
+	{
+		int complete = 0;
+		int i = offset;
+		int end = offset + length;
+		while (i < end)
+		{
+			switch (state)
+			{
+				case PASS_THROUGH:
+					return length;
+				case LENGTH_HI:
+					segmentLength = (bytes[i++] & 0xff) << 8;
+					state = LENGTH_LO;
+					break;
+				case LENGTH_LO:
+					segmentLength += bytes[i++] & 0xff;
+					continued = (segmentLength & DssConstants.CONTINUATION_BIT) ==
+						DssConstants.CONTINUATION_BIT;
+					if (continued)
+						segmentLength = DssConstants.MAX_DSS_LENGTH;
+					if (continuation)
+					{
+						if (segmentLength <= 2)
+						{
+							state = PASS_THROUGH;
+							break;
+						}
+						remaining = segmentLength - 2;
+						state = BODY;
+					}
+					else if (segmentLength < 6)
+						state = PASS_THROUGH;
+					else
+						state = DSS_ID;
+					break;
+				case DSS_ID:
+					if ((bytes[i++] & 0xff) != DssConstants.DSS_ID)
+					{
+						state = PASS_THROUGH;
+						break;
+					}
+					state = FORMAT;
+					break;
+				case FORMAT:
+					chained = (bytes[i++] & DssConstants.DSSCHAIN) ==
+						DssConstants.DSSCHAIN;
+					remaining = segmentLength - 4;
+					state = BODY;
+					break;
+				case BODY:
+					int skip = Math.min(remaining, end - i);
+					i += skip;
+					remaining -= skip;
+					if (remaining == 0)
+					{
+						state = LENGTH_HI;
+						continuation = continued;
+						if (!continued && !chained)
+							complete = i - offset;
+					}
+					break;
+			}
+		}
+		return (state == PASS_THROUGH) ? length : complete;
+	}
+}
@@ -35,6 +35,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import javax.net.SocketFactory;
@@ -277,6 +278,11 @@ public final class NetworkServerControlImpl {
 										// and changing timeSlice
 
 	private boolean keepAlive = true;   // keepAlive value for client socket 
+	// default bound on connection threads when running event driven
+	private static final int MIN_NIO_THREADS = 16;
+	private static final int NIO_THREADS_PER_PROCESSOR = 4;
+	private boolean nio;				// accept clients on non-blocking channels
+	private Object scheduleSync = new Object(); // serializes scheduling of sessions
 	private int minPoolSize;			//minimum pool size for pooled connections
 	private int maxPoolSize;			//maximum pool size for pooled connections
 	private Object poolSync = new Object();	// object to use for syning reading
@@ -303,6 +309,7 @@ public final class NetworkServerControlImpl {
 	private boolean shutdown;
 	private int connNum;		// number of connections since server started
 	private ServerSocket serverSocket;
+	private NioClientAcceptor nioAcceptor;	// listener when running event driven
 	private NetworkServerControlImpl serverInstance;
 	private LocalizedResource langUtil;
 	public String clientLocale;
@@ -695,6 +702,26 @@ public final class NetworkServerControlImpl {
 			return sss2;
 		}
 	}
+
+	/**
+	 * Create the listener for the event-driven network front end
+	 *
+	 * @exception IOException if the listen address cannot be bound
+	 */
+	private NioClientAcceptor createNioAcceptor()
+		throws IOException
+	{
+		if (hostAddress == null)
+			hostAddress = InetAddress.getByName(hostArg);
+		// Make a list of valid
+		// InetAddresses for NetworkServerControl
+		// admin commands.
+		buildLocalAddressList(hostAddress);
+
+		NioClientAcceptor acceptor = new NioClientAcceptor(this);
+		acceptor.bind(new InetSocketAddress(hostAddress, portNumber));
+		return acceptor;
+	}
 	
 
 	/**
@@ -720,14 +747,24 @@ public final class NetworkServerControlImpl {
 		}
 		// Open a server socket listener	  
 		try{
-			serverSocket = 
-				(ServerSocket) 
-				AccessController.doPrivileged(new PrivilegedExceptionAction() {
-						public Object run() throws IOException
-						{
-							return createServerSocket();
-						}
-					});
+			if (isNio())
+				nioAcceptor =
+					(NioClientAcceptor)
+					AccessController.doPrivileged(new PrivilegedExceptionAction() {
+							public Object run() throws IOException
+							{
+								return createNioAcceptor();
+							}
+						});
+			else
+				serverSocket = 
+					(ServerSocket) 
+					AccessController.doPrivileged(new PrivilegedExceptionAction() {
+							public Object run() throws IOException
+							{
+								return createServerSocket();
+							}
+						});
 		} catch (PrivilegedActionException e) {
 			Exception e1 = e.getException();
 
@@ -792,8 +829,9 @@ public final class NetworkServerControlImpl {
                             "type=NetworkServer");
 
 		// We accept clients on a separate thread so we don't run into a problem
-		// blocking on the accept when trying to process a shutdown
-		final ClientThread clientThread =	 
+		// blocking on the accept when trying to process a shutdown. The
+		// event-driven listener accepts clients on its own I/O threads.
+		final ClientThread clientThread = (nioAcceptor != null) ? null :
 			(ClientThread) AccessController.doPrivileged(
 								new PrivilegedExceptionAction() {
 									public Object run() throws Exception
@@ -803,7 +841,8 @@ public final class NetworkServerControlImpl {
 									}
 								}
 							);
-		clientThread.start();
+		if (clientThread != null)
+			clientThread.start();
 
 		try {
 			// wait until we are told to shutdown or someone sends an InterruptedException
@@ -828,7 +867,8 @@ public final class NetworkServerControlImpl {
 	                                mc.interrupt();
 
 	                            //interrupt client thread
-	                            clientThread.interrupt();
+	                            if (clientThread != null)
+	                                clientThread.interrupt();
 
 	                            return null;
 	                       }
@@ -875,7 +915,10 @@ public final class NetworkServerControlImpl {
 		   	
 		    // close the listener socket
 		    try{
-		       serverSocket.close();
+		       if (nioAcceptor != null)
+		           nioAcceptor.close();
+		       else
+		           serverSocket.close();
 		    }catch(IOException e){
 				consolePropertyMessage("DRDA_ListenerClose.S", true);
 		    } catch (Exception exception) {
@@ -1674,7 +1717,7 @@ public final class NetworkServerControlImpl {
 			if (command !=  COMMAND_TESTCONNECTION)
 			{
 				try {
-					checkAddressIsLocal(session.clientSocket.getInetAddress());
+					checkAddressIsLocal(session.getRemoteAddress());
 				}catch (Exception e)
 				{
 					notLocalMessage = e.getMessage();
@@ -2629,7 +2672,7 @@ public final class NetworkServerControlImpl {
 				return;
 			}
 		}
-		consolePropertyMessage("DRDA_NeedLocalHost.S", new String[] {inetAddr.getHostName(),serverSocket.getInetAddress().getHostName()});
+		consolePropertyMessage("DRDA_NeedLocalHost.S", new String[] {inetAddr.getHostName(),hostAddress.getHostName()});
 
 	}
 
@@ -3083,6 +3126,12 @@ public final class NetworkServerControlImpl {
 		if (propval != null && 
 			StringUtil.SQLEqualsIgnoreCase(propval,"false"))
 			keepAlive = false;
+
+		propval = PropertyUtil.getSystemProperty( 
+			Property.DRDA_PROP_NIO);
+		if (propval != null && 
+			StringUtil.SQLEqualsIgnoreCase(propval,"true"))
+			nio = true;
 		
 		propval = PropertyUtil.getSystemProperty( 
 			Property.DRDA_PROP_HOSTNAME);
@@ -3702,6 +3751,15 @@ public final class NetworkServerControlImpl {
 		return keepAlive;
 	}
 
+	/**
+	 * Check whether clients are accepted by the event-driven network front
+	 * end. SSL connections always use the blocking socket listener.
+	 */
+	private boolean isNio()
+	{
+		return nio && getSSLMode() == SSL_OFF;
+	}
+
 	/**
 	 * Get the current value of minimum number of threads to create at start
 	 *
@@ -3970,6 +4028,64 @@ public final class NetworkServerControlImpl {
 
 		sessionTable.put(new Integer(connectionNumber), session);
 
+		startSession(session);
+	}
+
+	/**
+	 * Add a session for a connection accepted by the event-driven network
+	 * front end. The session is put into the session table, but is only
+	 * put on the run queue by <code>scheduleSession()</code> once a complete
+	 * request has arrived.
+	 *
+	 * @param handler the channel handler of the connection
+	 * @return the new session
+	 */
+	Session addNioSession(NioSessionHandler handler) throws Exception {
+
+		int connectionNumber;
+		synchronized (scheduleSync) {
+			connectionNumber = ++connNum;
+		}
+
+		if (getLogConnections()) {
+			consolePropertyMessage("DRDA_ConnNumber.I",
+								   Integer.toString(connectionNumber));
+		}
+
+		Session session = new Session(this, connectionNumber, handler,
+									  getTraceDirectory(), getTraceAll());
+
+		sessionTable.put(new Integer(connectionNumber), session);
+		return session;
+	}
+
+	/**
+	 * Schedule an event-driven session that has a complete request waiting
+	 * and is not currently served by any thread. Unlike the socket listener,
+	 * the channel I/O threads call this concurrently, so scheduling is
+	 * serialized here.
+	 *
+	 * @param session the session to serve
+	 */
+	void scheduleSession(Session session) {
+		synchronized (scheduleSync) {
+			startSession(session);
+		}
+	}
+
+	/**
+	 * Hand a session to a <code>DRDAConnThread</code>. Start a new thread
+	 * if there are more sessions waiting than there are free threads, and
+	 * the maximum number of threads is not exceeded; otherwise put the
+	 * session on the run queue. When running event driven, the threads form
+	 * a bounded pool even if no maximum number of threads is configured;
+	 * threads serving sessions that are bound to them are not counted, so
+	 * that such sessions cannot starve the pool.
+	 *
+	 * @param session the session to serve
+	 */
+	private void startSession(Session session) {
+
 		// Check whether there are enough free threads to service all the
 		// threads in the run queue in addition to the newly added session.
 		boolean enoughThreads;
@@ -3992,7 +4108,14 @@ public final class NetworkServerControlImpl {
 			synchronized (threadsSync) {
 				// only start a new thread if we have no maximum number of
 				// threads or the maximum number of threads is not exceeded
-				if ((maxThreads == 0) || (threadList.size() < maxThreads)) {
+				int limit = maxThreads;
+				int threads = threadList.size();
+				if ((limit == 0) && session.isEventDriven()) {
+					limit = Math.max(MIN_NIO_THREADS,
+						NIO_THREADS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors());
+					threads -= getBoundThreadCount();
+				}
+				if ((limit == 0) || (threads < limit)) {
 					thread = new DRDAConnThread(session, this, getTimeSlice(),
 												getLogConnections());
 					threadList.add(thread);
@@ -4007,6 +4130,24 @@ public final class NetworkServerControlImpl {
 		}
 	}
 
+	/**
+	 * Count the threads serving event-driven sessions which are bound to
+	 * them and will not return to the pool between requests.
+	 *
+	 * @return the number of bound threads
+	 */
+	private int getBoundThreadCount() {
+		int bound = 0;
+		synchronized (threadList) {
+			for (int i = 0; i < threadList.size(); i++) {
+				Session s = ((DRDAConnThread) threadList.get(i)).getSession();
+				if (s != null && s.isBoundToThread())
+					bound++;
+			}
+		}
+		return bound;
+	}
+
 	/**
 	 * Remove a thread from the thread list. Should be called when a
 	 * <code>DRDAConnThread</code> has been closed.
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.sparkproject.jboss.netty.bootstrap.ServerBootstrap;
+import org.sparkproject.jboss.netty.channel.Channel;
+import org.sparkproject.jboss.netty.channel.ChannelException;
+import org.sparkproject.jboss.netty.channel.ChannelFactory;
+import org.sparkproject.jboss.netty.channel.ChannelPipeline;
+import org.sparkproject.jboss.netty.channel.ChannelPipelineFactory;
+import org.sparkproject.jboss.netty.channel.Channels;
+import org.sparkproject.jboss.netty.channel.group.ChannelGroup;
+import org.sparkproject.jboss.netty.channel.group.DefaultChannelGroup;
+import org.sparkproject.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+
+/**
+ * Event-driven replacement for <code>ClientThread</code>. Accepts client
+ * connections on non-blocking channels and attaches a
+ * <code>NioSessionHandler</code> to each of them; request processing is
+ * still done by the server's pool of <code>DRDAConnThread</code>s.
+ */
+final class NioClientAcceptor
+{
+	private final NetworkServerControlImpl server;
+	private final ChannelGroup channels = new DefaultChannelGroup("drda");
+	private ChannelFactory factory;
+	private Channel serverChannel;
+
+	NioClientAcceptor(NetworkServerControlImpl server)
+	{
+		this.server = server;
+	}
+
+	/**
+	 * Start listening for connections
+	 *
+	 * @param address	address to listen on
+	 *
+	 * @exception IOException if the address cannot be bound
+	 */
+	void bind(InetSocketAddress address) throws IOException
+	{
+		ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable r)
+				{
+					Thread t = new Thread(r);
+					NetworkServerControlImpl.setUniqueThreadName(t, "NetworkServerNioThread");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		factory = new NioServerSocketChannelFactory(executor, executor);
+		ServerBootstrap bootstrap = new ServerBootstrap(factory);
+		bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+				public ChannelPipeline getPipeline()
+				{
+					return Channels.pipeline(new NioSessionHandler(server, channels));
+				}
+			});
+		bootstrap.setOption("reuseAddress", true);
+		bootstrap.setOption("child.keepAlive", server.getKeepAlive());
+		try {
+			serverChannel = bootstrap.bind(address);
+		} catch (ChannelException ce) {
+			factory.releaseExternalResources();
+			throw new IOException(ce.getMessage(), ce.getCause());
+		}
+		channels.add(serverChannel);
+	}
+
+	/**
+	 * Stop listening, close all client connections and release the I/O
+	 * threads
+	 */
+	void close()
+	{
+		channels.close().awaitUninterruptibly();
+		factory.releaseExternalResources();
+	}
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+
+import org.sparkproject.jboss.netty.buffer.ChannelBuffer;
+import org.sparkproject.jboss.netty.buffer.ChannelBuffers;
+import org.sparkproject.jboss.netty.channel.Channel;
+import org.sparkproject.jboss.netty.channel.ChannelFuture;
+import org.sparkproject.jboss.netty.channel.ChannelHandlerContext;
+import org.sparkproject.jboss.netty.channel.ChannelStateEvent;
+import org.sparkproject.jboss.netty.channel.ExceptionEvent;
+import org.sparkproject.jboss.netty.channel.MessageEvent;
+import org.sparkproject.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.sparkproject.jboss.netty.channel.group.ChannelGroup;
+
+/**
+ * Per-connection handler for the event-driven network front end.
+ * <p>
+ * Bytes received from the client are appended to the session's input
+ * stream as they arrive, but only become readable once a complete request
+ * chain has been received, or once more of a single request chain has been
+ * received than is buffered, in which case the rest of it is streamed. The session is put on the server's run queue
+ * when a complete request is waiting and it is not already being served,
+ * so an idle connection does not hold a <code>DRDAConnThread</code>.
+ * Replies written to the session's output stream go straight to the
+ * channel.
+ */
+class NioSessionHandler extends SimpleChannelUpstreamHandler
+{
+	// stop reading from a client that has this much unprocessed data buffered
+	private static final int MAX_BUFFERED_BYTES = 1 << 20;
+
+	private final NetworkServerControlImpl server;
+	private final ChannelGroup channels;
+	private final DssRequestScanner scanner = new DssRequestScanner();
+	private final ChannelInputStream input = new ChannelInputStream();
+	private final ChannelOutputStream output = new ChannelOutputStream();
+
+	private volatile Channel channel;
+	private Session session;
+	private boolean scheduled;		// session is queued or being served
+	private boolean closed;			// session has been closed by the server
+	private boolean commandSession;	// NetworkServerControl command session
+	private boolean streaming;		// request chain is passed through as it arrives
+	private int prefixLength;		// bytes seen while checking for a command
+	private final byte[] prefix = new byte[4];
+
+	NioSessionHandler(NetworkServerControlImpl server, ChannelGroup channels)
+	{
+		this.server = server;
+		this.channels = channels;
+	}
+
+	/**
+	 * Get the session input stream
+	 */
+	InputStream getInputStream()
+	{
+		return input;
+	}
+
+	/**
+	 * Get the session output stream
+	 */
+	OutputStream getOutputStream()
+	{
+		return output;
+	}
+
+	/**
+	 * Get the address of the client
+	 */
+	InetAddress getRemoteAddress()
+	{
+		return ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+	}
+
+	/**
+	 * Release the session from the thread serving it if no complete request
+	 * is waiting. Once released, the session is put back on the run queue
+	 * by the next complete request.
+	 *
+	 * @return true if the session was released
+	 */
+	synchronized boolean releaseIfIdle()
+	{
+		if (commandSession || input.readable() > 0)
+			return false;
+		scheduled = false;
+		return true;
+	}
+
+	/**
+	 * Close the connection to the client
+	 */
+	void close()
+	{
+		synchronized (this)
+		{
+			closed = true;
+		}
+		input.close();
+		Channel c = channel;
+		if (c != null)
+			c.close();
+	}
+
+	/**
+	 * Create the session for this connection
+	 */
+	Session addSession() throws Exception
+	{
+		return server.addNioSession(this);
+	}
+
+	/**
+	 * Put the session on the server's run queue
+	 */
+	void schedule(Session session)
+	{
+		server.scheduleSession(session);
+	}
+
+	public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e)
+		throws Exception
+	{
+		channel = e.getChannel();
+		channels.add(channel);
+		try {
+			session = addSession();
+		} catch (Exception ex) {
+			server.consoleExceptionPrintTrace(ex);
+			close();
+		}
+	}
+
+	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
+	{
+		ChannelBuffer buffer = (ChannelBuffer) e.getMessage();
+		byte[] bytes = new byte[buffer.readableBytes()];
+		buffer.readBytes(bytes);
+
+		boolean schedule = false;
+		synchronized (this)
+		{
+			int complete;
+			if (prefixLength < prefix.length)
+			{
+				int n = Math.min(prefix.length - prefixLength, bytes.length);
+				System.arraycopy(bytes, 0, prefix, prefixLength, n);
+				prefixLength += n;
+				if (prefixLength == prefix.length)
+				{
+					try {
+						commandSession = NetworkServerControlImpl.isCmd(new String(
+							prefix, NetworkServerControlImpl.DEFAULT_ENCODING));
+					} catch (IOException ioe) {
+						commandSession = false;
+					}
+				}
+			}
+			// Command sessions use their own framing and are served to
+			// completion by a single thread, so pass their bytes through.
+			if (commandSession)
+				complete = bytes.length;
+			else
+			{
+				complete = scanner.scan(bytes, 0, bytes.length);
+				if (streaming)
+				{
+					if (complete > 0)
+						streaming = false;
+					else
+						complete = bytes.length;
+				}
+			}
+			input.append(bytes, complete);
+			if (input.buffered() > MAX_BUFFERED_BYTES)
+			{
+				if (input.readable() > 0)
+				{
+					// wait for the session to catch up
+					channel.setReadable(false);
+				}
+				else
+				{
+					// A request chain larger than the buffer cannot be
+					// held back until it is complete. Stream it to the
+					// session instead, which then blocks on reads like a
+					// socket session until the rest of the chain arrives.
+					streaming = true;
+					input.makeReadable();
+				}
+			}
+			if (!scheduled && !closed && session != null && input.readable() > 0)
+			{
+				scheduled = true;
+				schedule = true;
+			}
+		}
+		if (schedule)
+			schedule(session);
+	}
+
+	public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e)
+	{
+		input.close();
+		boolean schedule = false;
+		synchronized (this)
+		{
+			// Wake the session up so that a thread notices the disconnect
+			// and cleans up its databases.
+			if (!scheduled && !closed && session != null)
+			{
+				scheduled = true;
+				schedule = true;
+			}
+		}
+		if (schedule)
+			schedule(session);
+	}
+
+	public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
+	{
+		e.getChannel().close();
+	}
+
+	/**
+	 * Input stream over the bytes received from the client. Only bytes
+	 * belonging to complete requests are readable; reads block until such
+	 * bytes are available or the connection is closed.
+	 */
+	private final class ChannelInputStream extends InputStream
+	{
+		private final ArrayDeque<byte[]> chunks = new ArrayDeque<byte[]>();
+		private int headOffset;		// bytes already read from the first chunk
+		private int buffered;		// bytes received and not yet read
+		private int readable;		// bytes of complete requests not yet read
+		private boolean eof;
+
+		synchronized void append(byte[] bytes, int complete)
+		{
+			if (bytes.length > 0)
+			{
+				chunks.add(bytes);
+				if (complete > 0)
+					readable = buffered + complete;
+				buffered += bytes.length;
+			}
+			if (readable > 0)
+				notifyAll();
+		}
+
+		synchronized void makeReadable()
+		{
+			readable = buffered;
+			if (readable > 0)
+				notifyAll();
+		}
+
+		synchronized int readable()
+		{
+			return readable;
+		}
+
+		synchronized int buffered()
+		{
+			return buffered;
+		}
+
+		public synchronized int available()
+		{
+			return readable;
+		}
+
+		public synchronized void close()
+		{
+			eof = true;
+			notifyAll();
+		}
+
+		public int read() throws IOException
+		{
+			byte[] b = new byte[1];
+			int n = read(b, 0, 1);
+			return (n == -1) ? -1 : (b[0] & 0xff);
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+				return 0;
+			int total = 0;
+			boolean resume;
+			synchronized (this)
+			{
+				while (readable == 0 && !eof)
+				{
+					try {
+						wait();
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						throw new java.io.InterruptedIOException();
+					}
+				}
+				if (readable == 0)
+					return -1;
+				while (total < len && readable > 0)
+				{
+					byte[] head = chunks.peek();
+					int n = Math.min(Math.min(len - total, readable),
+									 head.length - headOffset);
+					System.arraycopy(head, headOffset, b, off + total, n);
+					total += n;
+					readable -= n;
+					buffered -= n;
+					headOffset += n;
+					if (headOffset == head.length)
+					{
+						chunks.poll();
+						headOffset = 0;
+					}
+				}
+				// keep reading if the rest of the buffer is an incomplete
+				// request, which only becomes readable with more data
+				resume = buffered <= MAX_BUFFERED_BYTES / 2 || readable == 0;
+			}
+			Channel c = channel;
+			if (resume && c != null && !c.isReadable())
+				c.setReadable(true);
+			return total;
+		}
+	}
+
+	/**
+	 * Output stream writing replies to the channel. Writers wait for the
+	 * channel to drain when its outbound buffer is full.
+	 */
+	private final class ChannelOutputStream extends OutputStream
+	{
+		public void write(int b) throws IOException
+		{
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			Channel c = channel;
+			if (c == null || !c.isConnected())
+				throw new IOException("Connection closed");
+			ChannelFuture future = c.write(ChannelBuffers.copiedBuffer(b, off, len));
+			if (!c.isWritable())
+			{
+				future.awaitUninterruptibly();
+				if (!future.isSuccess())
+					throw new IOException(String.valueOf(future.getCause()));
+			}
+		}
+
+		public void close()
+		{
+			Channel c = channel;
+			if (c != null)
+				c.close();
+		}
+	}
+}
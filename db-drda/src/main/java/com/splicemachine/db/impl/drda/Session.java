@@ -28,6 +28,7 @@ package com.splicemachine.db.impl.drda;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.Socket;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -58,6 +59,8 @@ class Session
 
 	// session information
 	protected Socket clientSocket;		// session socket
+	protected NioSessionHandler nioHandler;	// channel handler if the session is event driven
+	protected boolean boundToThread;	// event-driven session must stay on its thread
 	protected int connNum;				// connection number
 	protected InputStream sessionInput;	// session input stream
 	protected OutputStream sessionOutput;	// session output stream
@@ -102,6 +105,30 @@ class Session
 		initialize(traceDirectory);
 	}
 
+	/**
+	 * Session constructor for a connection accepted by the event-driven
+	 * network front end
+	 * 
+	 * @param connNum		connection number
+	 * @param nioHandler	channel handler for this session
+	 * @param traceDirectory	location for trace files
+	 * @param traceOn		whether to start tracing this connection
+	 *
+	 * @exception throws IOException
+	 */
+	Session (NetworkServerControlImpl nsctrl, int connNum, NioSessionHandler nioHandler,
+			String traceDirectory, boolean traceOn) throws Exception
+	{
+        this.nsctrl = nsctrl;
+		this.connNum = connNum;
+		this.nioHandler = nioHandler;
+		this.traceOn = traceOn;
+		if (traceOn)
+			dssTrace = new DssTrace(); 
+		dbtable = new Hashtable();
+		initialize(traceDirectory);
+	}
+
 	/**
 	 * Close session - close connection sockets and set state to closed
 	 * 
@@ -112,7 +139,7 @@ class Session
 		try {
 			sessionInput.close();
 			sessionOutput.close();
-			clientSocket.close();
+			closeConnection();
 			setTraceOff();
 			if (dbtable != null)
 				for (Enumeration e = dbtable.elements() ; e.hasMoreElements() ;) 
@@ -128,6 +155,66 @@ class Session
 		}
 	}
 
+	/**
+	 * Close the connection to the client
+	 */
+	protected void closeConnection() throws IOException
+	{
+		if (nioHandler != null)
+			nioHandler.close();
+		else
+			clientSocket.close();
+	}
+
+	/**
+	 * Get the address of the client
+	 *
+	 * @return client address
+	 */
+	protected InetAddress getRemoteAddress()
+	{
+		if (nioHandler != null)
+			return nioHandler.getRemoteAddress();
+		return clientSocket.getInetAddress();
+	}
+
+	/**
+	 * Check whether the session is served by the event-driven network
+	 * front end, in which case it can be released from its thread between
+	 * requests.
+	 *
+	 * @return true if the session is event driven
+	 */
+	protected boolean isEventDriven()
+	{
+		return nioHandler != null;
+	}
+
+	/**
+	 * Check whether an event-driven session keeps its thread between
+	 * requests, because it has not accessed its database yet or its thread
+	 * holds state for it, such as an XA transaction. Such sessions do not
+	 * count against the bounded thread pool of the event-driven front end.
+	 *
+	 * @return true if the session cannot be released from its thread
+	 */
+	protected boolean isBoundToThread()
+	{
+		return nioHandler != null &&
+			(boundToThread || state != CHKSEC || appRequester == null);
+	}
+
+	/**
+	 * Release an event-driven session from the thread serving it if it has
+	 * no complete request waiting.
+	 *
+	 * @return true if the session was released
+	 */
+	protected boolean releaseIfIdle()
+	{
+		return nioHandler != null && nioHandler.releaseIfIdle();
+	}
+
 	/**
 	 * initialize a server trace for the DRDA protocol
 	 * 
@@ -277,8 +364,16 @@ class Session
 	private void initialize(String traceDirectory)
 		throws Exception
 	{
-		sessionInput = clientSocket.getInputStream();
-		sessionOutput = clientSocket.getOutputStream();
+		if (nioHandler != null)
+		{
+			sessionInput = nioHandler.getInputStream();
+			sessionOutput = nioHandler.getOutputStream();
+		}
+		else
+		{
+			sessionInput = clientSocket.getInputStream();
+			sessionOutput = clientSocket.getOutputStream();
+		}
 		if (traceOn)
 			initTrace(traceDirectory,false);
 		state = INIT;
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+public class DssRequestScannerTest{
+
+    @Test
+    public void singleRequestIsComplete() throws Exception{
+        byte[] request=dss(20,false);
+        Assert.assertEquals(request.length,new DssRequestScanner().scan(request,0,request.length));
+    }
+
+    @Test
+    public void chainedRequestIsCompleteAfterLastDss() throws Exception{
+        byte[] first=dss(10,true);
+        byte[] second=dss(12,false);
+        DssRequestScanner scanner=new DssRequestScanner();
+        Assert.assertEquals(0,scanner.scan(first,0,first.length));
+        Assert.assertEquals(second.length,scanner.scan(second,0,second.length));
+    }
+
+    @Test
+    public void completePointIsEndOfLastCompletedRequest() throws Exception{
+        byte[] bytes=concat(dss(10,false),dss(12,true),dss(8,false),dss(16,true));
+        int expected=10+12+8;
+        Assert.assertEquals(expected,new DssRequestScanner().scan(bytes,0,bytes.length));
+    }
+
+    @Test
+    public void continuedRequestIsCompleteAfterLastContinuation() throws Exception{
+        byte[] first=new byte[DssConstants.MAX_DSS_LENGTH];
+        first[0]=(byte)0xff;
+        first[1]=(byte)0xff;
+        first[2]=(byte)DssConstants.DSS_ID;
+        first[3]=0x01;
+        byte[] middle=continuation(DssConstants.MAX_DSS_LENGTH,true);
+        byte[] last=continuation(100,false);
+        DssRequestScanner scanner=new DssRequestScanner();
+        Assert.assertEquals(0,scanner.scan(first,0,first.length));
+        Assert.assertEquals(0,scanner.scan(middle,0,middle.length));
+        Assert.assertEquals(last.length,scanner.scan(last,0,last.length));
+    }
+
+    @Test
+    public void requestSplitAcrossChunks() throws Exception{
+        byte[] bytes=concat(dss(10,true),dss(30,false));
+        DssRequestScanner scanner=new DssRequestScanner();
+        // split inside the length, the header and the body
+        int[] splits={1,3,5,11,14,25,bytes.length};
+        int offset=0;
+        for(int split : splits){
+            int complete=scanner.scan(bytes,offset,split-offset);
+            if(split==bytes.length)
+                Assert.assertEquals(split-offset,complete);
+            else
+                Assert.assertEquals("split at "+split,0,complete);
+            offset=split;
+        }
+    }
+
+    @Test
+    public void scanHonoursOffset() throws Exception{
+        byte[] request=dss(20,false);
+        byte[] bytes=concat(new byte[7],request);
+        Assert.assertEquals(request.length,new DssRequestScanner().scan(bytes,7,request.length));
+    }
+
+    @Test
+    public void malformedDssIdPassesEverythingThrough() throws Exception{
+        byte[] bytes=dss(20,false);
+        bytes[2]=0x11;
+        DssRequestScanner scanner=new DssRequestScanner();
+        Assert.assertEquals(bytes.length,scanner.scan(bytes,0,bytes.length));
+        byte[] more=new byte[5];
+        Assert.assertEquals(more.length,scanner.scan(more,0,more.length));
+    }
+
+    @Test
+    public void malformedLengthPassesEverythingThrough() throws Exception{
+        byte[] bytes={0x00,0x03,(byte)DssConstants.DSS_ID,0x01};
+        Assert.assertEquals(bytes.length,new DssRequestScanner().scan(bytes,0,bytes.length));
+    }
+
+    @Test
+    public void commandPrefixIsNotDss() throws Exception{
+        byte[] bytes="CMD:\u0000\u0001".getBytes("UTF-8");
+        Assert.assertEquals(bytes.length,new DssRequestScanner().scan(bytes,0,bytes.length));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[] dss(int length,boolean chained){
+        byte[] bytes=new byte[length];
+        bytes[0]=(byte)(length>>>8);
+        bytes[1]=(byte)length;
+        bytes[2]=(byte)DssConstants.DSS_ID;
+        bytes[3]=(byte)(chained?DssConstants.DSSCHAIN|0x01:0x01);
+        return bytes;
+    }
+
+    private static byte[] continuation(int length,boolean continued){
+        byte[] bytes=new byte[length];
+        int header=continued?DssConstants.CONTINUATION_BIT|length:length;
+        bytes[0]=(byte)(header>>>8);
+        bytes[1]=(byte)header;
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts){
+        ByteArrayOutputStream out=new ByteArrayOutputStream();
+        for(byte[] part : parts){
+            out.write(part,0,part.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.sparkproject.jboss.netty.buffer.ChannelBuffers;
+import org.sparkproject.jboss.netty.channel.Channel;
+import org.sparkproject.jboss.netty.channel.ChannelState;
+import org.sparkproject.jboss.netty.channel.UpstreamChannelStateEvent;
+import org.sparkproject.jboss.netty.channel.UpstreamMessageEvent;
+import org.sparkproject.jboss.netty.channel.group.ChannelGroup;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NioSessionHandlerTest{
+    private static final int SEGMENT=32000;
+
+    private TestChannel channel;
+    private RecordingHandler handler;
+    private InputStream input;
+
+    @Before
+    public void setUp() throws Exception{
+        channel=new TestChannel();
+        handler=new RecordingHandler();
+        handler.channelConnected(null,new UpstreamChannelStateEvent(channel.proxy,ChannelState.CONNECTED,channel.address));
+        input=handler.getInputStream();
+    }
+
+    @Test
+    public void incompleteRequestIsNotReadable() throws Exception{
+        byte[] request=concat(dss(10,true),dss(20,false));
+        receive(request,0,15);
+        Assert.assertEquals(0,input.available());
+        Assert.assertEquals(0,handler.scheduled.get());
+
+        receive(request,15,request.length);
+        Assert.assertEquals(request.length,input.available());
+        Assert.assertEquals(1,handler.scheduled.get());
+        Assert.assertArrayEquals(request,read(request.length));
+        Assert.assertEquals(0,input.available());
+    }
+
+    @Test
+    public void onlyCompleteRequestsAreReadable() throws Exception{
+        byte[] complete=dss(20,false);
+        byte[] partial=dss(30,true);
+        receive(concat(complete,partial));
+        Assert.assertEquals(complete.length,input.available());
+        Assert.assertArrayEquals(complete,read(complete.length));
+        Assert.assertEquals(0,input.available());
+
+        //the session is still scheduled, so completing the request doesn't schedule it again
+        byte[] last=dss(10,false);
+        receive(last);
+        Assert.assertEquals(partial.length+last.length,input.available());
+        Assert.assertEquals(1,handler.scheduled.get());
+    }
+
+    @Test
+    public void oversizedRequestIsStreamed() throws Exception{
+        int streamed=0;
+        while(input.available()==0){
+            receive(dss(SEGMENT,true));
+            streamed+=SEGMENT;
+            Assert.assertTrue("Request was never streamed",streamed<=4*SEGMENT+(1<<20));
+        }
+        Assert.assertEquals(streamed,input.available());
+        Assert.assertEquals(1,handler.scheduled.get());
+        Assert.assertTrue("Reading must not stop while the chain is streamed",channel.readable);
+
+        //the rest of the chain is passed through as it arrives, up to and including its end
+        byte[] more=dss(SEGMENT,true);
+        receive(more);
+        Assert.assertEquals(streamed+more.length,input.available());
+        read(input.available());
+        byte[] last=concat(dss(10,false),dss(20,true));
+        receive(last);
+        Assert.assertEquals("Streaming should stop at the end of the chain",10,input.available());
+    }
+
+    @Test
+    public void readingResumesOnceBufferDrains() throws Exception{
+        byte[] request=dss(SEGMENT,false);
+        int received=0;
+        while(channel.readable){
+            receive(request);
+            received+=request.length;
+            Assert.assertTrue("Reading was never suspended",received<=4*SEGMENT+(1<<20));
+        }
+        Assert.assertEquals(received,input.available());
+
+        //stay suspended until at most half the limit is left buffered
+        read(request.length);
+        Assert.assertFalse(channel.readable);
+        read(input.available()-(1<<19)+request.length);
+        Assert.assertTrue(channel.readable);
+    }
+
+    @Test
+    public void idleSessionIsReleasedAndRescheduled() throws Exception{
+        byte[] request=dss(20,false);
+        receive(request);
+        Assert.assertEquals(1,handler.scheduled.get());
+        Assert.assertFalse("Released a session with a request waiting",handler.releaseIfIdle());
+
+        read(request.length);
+        Assert.assertTrue(handler.releaseIfIdle());
+        receive(request);
+        Assert.assertEquals(2,handler.scheduled.get());
+    }
+
+    @Test
+    public void requestArrivingBeforeReleaseKeepsSessionScheduled() throws Exception{
+        final byte[] request=dss(20,false);
+        receive(request);
+        read(request.length);
+
+        //the I/O thread delivers the next request after the session read the last one, but before it gives up
+        handler.beforeRelease=new Runnable(){
+            @Override
+            public void run(){
+                Thread ioThread=new Thread(new Runnable(){
+                    @Override
+                    public void run(){
+                        receive(request);
+                    }
+                });
+                ioThread.start();
+                try{
+                    ioThread.join();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        Assert.assertFalse("Released a session while a request was arriving",handler.releaseIfIdle());
+        Assert.assertEquals("The session was still scheduled, so it must not be scheduled again",1,handler.scheduled.get());
+        Assert.assertEquals(request.length,input.available());
+
+        handler.beforeRelease=null;
+        read(request.length);
+        Assert.assertTrue(handler.releaseIfIdle());
+        receive(request);
+        Assert.assertEquals(2,handler.scheduled.get());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void receive(byte[] bytes){
+        receive(bytes,0,bytes.length);
+    }
+
+    private void receive(byte[] bytes,int from,int to){
+        byte[] chunk=new byte[to-from];
+        System.arraycopy(bytes,from,chunk,0,chunk.length);
+        handler.messageReceived(null,new UpstreamMessageEvent(channel.proxy,ChannelBuffers.wrappedBuffer(chunk),channel.address));
+    }
+
+    private byte[] read(int length) throws Exception{
+        byte[] bytes=new byte[length];
+        int read=0;
+        while(read<length){
+            read+=input.read(bytes,read,length-read);
+        }
+        return bytes;
+    }
+
+    private static byte[] dss(int length,boolean chained){
+        byte[] bytes=new byte[length];
+        bytes[0]=(byte)(length>>>8);
+        bytes[1]=(byte)length;
+        bytes[2]=(byte)DssConstants.DSS_ID;
+        bytes[3]=(byte)(chained?DssConstants.DSSCHAIN|0x01:0x01);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts){
+        int length=0;
+        for(byte[] part : parts){
+            length+=part.length;
+        }
+        byte[] bytes=new byte[length];
+        int offset=0;
+        for(byte[] part : parts){
+            System.arraycopy(part,0,bytes,offset,part.length);
+            offset+=part.length;
+        }
+        return bytes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type,final InvocationHandler delegate){
+        return (T)Proxy.newProxyInstance(type.getClassLoader(),new Class[]{type},new InvocationHandler(){
+            @Override
+            public Object invoke(Object proxy,Method method,Object[] args) throws Throwable{
+                Object result=delegate==null?null:delegate.invoke(proxy,method,args);
+                if(result!=null || !method.getReturnType().isPrimitive())
+                    return result;
+                if(method.getReturnType()==boolean.class)
+                    return method.getName().equals("add");
+                if(method.getReturnType()==void.class)
+                    return null;
+                return 0;
+            }
+        });
+    }
+
+    /*
+     * Records scheduling instead of handing the session to a server
+     */
+    private static class RecordingHandler extends NioSessionHandler{
+        final AtomicInteger scheduled=new AtomicInteger();
+        volatile Runnable beforeRelease;
+
+        RecordingHandler(){
+            super(null,proxy(ChannelGroup.class,null));
+        }
+
+        @Override
+        Session addSession() throws Exception{
+            return new Session(null,1,this,null,false);
+        }
+
+        @Override
+        void schedule(Session session){
+            scheduled.incrementAndGet();
+        }
+
+        @Override
+        boolean releaseIfIdle(){
+            Runnable hook=beforeRelease;
+            if(hook!=null)
+                hook.run();
+            return super.releaseIfIdle();
+        }
+    }
+
+    /*
+     * The parts of a channel the handler uses: interest in reads, and its address
+     */
+    private static class TestChannel implements InvocationHandler{
+        final InetSocketAddress address=new InetSocketAddress("localhost",1527);
+        final Channel proxy=proxy(Channel.class,this);
+        volatile boolean readable=true;
+
+        @Override
+        public Object invoke(Object proxy,Method method,Object[] args) throws Throwable{
+            switch(method.getName()){
+                case "isReadable":
+                    return readable;
+                case "setReadable":
+                    readable=(Boolean)args[0];
+                    return null;
+                case "isConnected":
+                case "isOpen":
+                case "isWritable":
+                    return true;
+                case "getRemoteAddress":
+                    return address;
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -622,4 +622,22 @@ public interface CompilerContext extends Context
 
     public DataSetProcessorType getDataSetProcessorType();
 
+    /**
+     * Set the factor by which a selectivity estimated from a parameter's default
+     * value may differ from the estimate for an unknown value before the plan is
+     * considered sensitive to the parameter values. Zero, the default, disables
+     * the check.
+     */
+    public void setParameterSensitivityThreshold(double threshold);
+
+    public double getParameterSensitivityThreshold();
+
+    /**
+     * Record that the plan being compiled depends on the values given as
+     * parameter defaults.
+     */
+    public void markParameterSensitive();
+
+    public boolean isParameterSensitive();
+
 }
@@ -1254,6 +1254,11 @@ public interface LanguageConnectionContext extends Context {
      */
     public void enterRestoreMode();
 
+    /**
+     * @return true if {@link #enterRestoreMode()} has been called on this connection.
+     */
+    public boolean isInRestoreMode();
+
     /**
      * Set a trigger execution context (TEC) stack on this LCC.<br/>
      * Used to serialize TECs across serialization boundaries.
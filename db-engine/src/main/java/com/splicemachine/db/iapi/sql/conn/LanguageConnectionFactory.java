@@ -49,6 +49,7 @@ import com.splicemachine.db.iapi.services.cache.CacheManager;
 import com.splicemachine.db.iapi.sql.LanguageFactory;
 import com.splicemachine.db.iapi.store.access.TransactionController;
 import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
+import com.splicemachine.db.impl.sql.AutoParameterizer;
 
 
 /**
@@ -164,4 +165,10 @@ public interface LanguageConnectionFactory {
 
 
     public Parser newParser(CompilerContext cc);
+
+	/**
+		Get the AutoParameterizer that normalizes plain statements
+		before they are looked up in the statement cache.
+	 */
+	AutoParameterizer getAutoParameterizer();
 }
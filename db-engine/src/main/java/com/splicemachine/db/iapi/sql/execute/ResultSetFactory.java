@@ -112,6 +112,9 @@ public interface ResultSetFactory {
 			be inserted into the target table.
 		@param generationClauses	The code to compute column generation clauses if any
 		@param checkGM	The code to enforce the check constraints, if any
+		@param bulkImportDirectory the directory in which to stage storage files
+			when the rows are bulk loaded, or null to write them through the write pipeline
+		@param skipSampling whether to skip sampling the rows for split points when bulk loading
 		@return the insert operation as a result set.
 		@exception StandardException thrown when unable to perform the insert
 	 */
@@ -121,6 +124,8 @@ public interface ResultSetFactory {
 								 String insertMode,
 								 String statusDirectory,
 								 int failBadRecordCount,
+								 String bulkImportDirectory,
+								 boolean skipSampling,
                                  double optimizerEstimatedRowCount,
                                  double optimizerEstimatedCost,
                                  String tableVersion,
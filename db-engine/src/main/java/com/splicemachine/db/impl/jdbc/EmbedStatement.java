@@ -609,12 +609,16 @@ public class EmbedStatement extends ConnectionChild implements EngineStatement {
             try {
                 Activation activation;
                 try {
-                    PreparedStatement preparedStatement = lcc.prepareInternalStatement
-                            (lcc.getDefaultSchema(), sql, resultSetConcurrency ==
-                                    java.sql.ResultSet.CONCUR_READ_ONLY, false);
-                    activation =
-                            preparedStatement.getActivation(lcc, resultSetType ==
-                                    java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+                    boolean forReadOnly = resultSetConcurrency == java.sql.ResultSet.CONCUR_READ_ONLY;
+                    boolean scrollable = resultSetType == java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE;
+                    // share a plan with statements that differ only in their literals, if enabled
+                    activation = lcc.getLanguageConnectionFactory().getAutoParameterizer()
+                            .getActivation(lcc, sql, forReadOnly, scrollable);
+                    if (activation == null) {
+                        PreparedStatement preparedStatement = lcc.prepareInternalStatement
+                                (lcc.getDefaultSchema(), sql, forReadOnly, false);
+                        activation = preparedStatement.getActivation(lcc, scrollable);
+                    }
                     checkRequiresCallableStatement(activation);
                     InterruptStatus.restoreIntrFlagIfSeen(lcc);
                 } catch (Throwable t) {
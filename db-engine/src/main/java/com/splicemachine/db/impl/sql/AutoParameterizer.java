@@ -0,0 +1,252 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.ExceptionSeverity;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.sql.PreparedStatement;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.NumberDataValue;
+import com.splicemachine.db.iapi.types.StringDataValue;
+import com.splicemachine.db.iapi.types.TypeId;
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.cache.Cache;
+import org.sparkproject.guava.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepares statements submitted as plain text in their auto-parameterized form
+ * (see {@link StatementNormalizer}), so that statements differing only in their
+ * predicate literals share a single entry in the statement cache.
+ * <p>
+ * The first compilation of a shape is given the literals as parameter defaults,
+ * so the optimizer still estimates selectivity from the actual values. While
+ * doing so it compares each such estimate with the one it would have made for an
+ * unknown value; if any differs by more than the selectivity threshold, the plan
+ * depends on the literals and the shape is marked literal sensitive. Sensitive
+ * shapes are evicted from the statement cache and from then on their statements
+ * are prepared exactly as written.
+ * <p>
+ * A literal is only bound to a parameter when it converts to the parameter's type
+ * without loss; otherwise that execution also falls back to the original text,
+ * which keeps the semantics (and the errors) of the literal form.
+ */
+public class AutoParameterizer{
+    private static final Logger LOG=Logger.getLogger(AutoParameterizer.class);
+
+    private final boolean enabled;
+    private final double selectivityThreshold;
+    private final Cache<String,Shape> shapes=CacheBuilder.newBuilder().maximumSize(1024).build();
+
+    public AutoParameterizer(boolean enabled,double selectivityThreshold){
+        this.enabled=enabled;
+        this.selectivityThreshold=selectivityThreshold;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * Prepare the auto-parameterized form of {@code sql} and return an activation
+     * with the extracted literals bound to its parameters.
+     *
+     * @return the activation, or {@code null} if the statement should be prepared
+     * as written
+     */
+    public Activation getActivation(LanguageConnectionContext lcc,
+                                    String sql,
+                                    boolean forReadOnly,
+                                    boolean scrollable) throws StandardException{
+        if(!enabled || lcc.isInRestoreMode())
+            return null;
+        StatementNormalizer.NormalizedStatement normalized=StatementNormalizer.normalize(sql);
+        if(normalized==null)
+            return null;
+        Shape shape=getShape(normalized.getShape());
+        if(shape.isLiteralSensitive()){
+            shape.bypasses.incrementAndGet();
+            return null;
+        }
+
+        GenericStatement statement=new GenericStatement(lcc.getDefaultSchema(),normalized.getShape(),forReadOnly);
+        statement.setAutoParameters(shape,normalized.getLiterals());
+        int depth=lcc.getStatementDepth();
+        PreparedStatement ps;
+        try{
+            ps=statement.prepare(lcc);
+        }catch(StandardException se){
+            if(se.getSeverity()>=ExceptionSeverity.TRANSACTION_SEVERITY)
+                throw se;
+            /*
+             * Let the literal form be prepared instead: it either reports the same
+             * error, or compiles where the shape cannot. Unwind the failed
+             * compilation the same way a retried prepare does.
+             */
+            while(lcc.getStatementDepth()>depth){
+                lcc.popStatementContext(lcc.getStatementContext(),null);
+            }
+            if(LOG.isDebugEnabled())
+                LOG.debug("Unable to compile statement shape "+normalized.getShape()+": "+se.getMessage());
+            shape.bypasses.incrementAndGet();
+            return null;
+        }
+
+        Activation activation=ps.getActivation(lcc,scrollable);
+        if(!bind(activation,normalized.getLiterals())){
+            activation.close();
+            shape.fallbacks.incrementAndGet();
+            return null;
+        }
+        shape.executions.incrementAndGet();
+        return activation;
+    }
+
+    /**
+     * @return a snapshot of the statistics of the shapes seen so far
+     */
+    public List<Shape> getShapes(){
+        return new ArrayList<>(shapes.asMap().values());
+    }
+
+    /**
+     * Convert a literal to the type of the parameter that replaced it.
+     *
+     * @return the converted value, or {@code null} if the literal is not of a
+     * compatible type family or does not survive the conversion unchanged
+     */
+    public static DataValueDescriptor coerceLiteral(DataValueDescriptor literal,DataTypeDescriptor type){
+        if(literal==null || type==null)
+            return null;
+        TypeId target=type.getTypeId();
+        if(literal instanceof NumberDataValue && !target.isNumericTypeId())
+            return null;
+        if(literal instanceof StringDataValue && !(target.isStringTypeId() || target.isDateTimeTimeStampTypeId()))
+            return null;
+        try{
+            DataValueDescriptor value=type.normalize(literal,type.getNull());
+            return value.compare(literal)==0?value:null;
+        }catch(StandardException se){
+            return null;
+        }
+    }
+
+    /**
+     * Bind the literals to the parameters of the activation, unless any of them
+     * cannot be converted to its parameter's type without loss.
+     *
+     * @return whether the literals were bound; if not, no parameter was set
+     */
+    static boolean bind(Activation activation,DataValueDescriptor[] literals) throws StandardException{
+        ParameterValueSet pvs=activation.getParameterValueSet();
+        DataTypeDescriptor[] types=activation.getPreparedStatement().getParameterTypes();
+        if(pvs.getParameterCount()!=literals.length || types==null || types.length!=literals.length)
+            return false;
+        DataValueDescriptor[] values=new DataValueDescriptor[literals.length];
+        for(int i=0;i<literals.length;i++){
+            values[i]=coerceLiteral(literals[i],types[i]);
+            if(values[i]==null)
+                return false;
+        }
+        for(int i=0;i<values.length;i++){
+            pvs.getParameterForSet(i).setValue(values[i]);
+        }
+        return true;
+    }
+
+    Shape getShape(final String text) throws StandardException{
+        try{
+            return shapes.get(text,new Callable<Shape>(){
+                @Override
+                public Shape call() throws Exception{
+                    return new Shape(text,selectivityThreshold);
+                }
+            });
+        }catch(ExecutionException e){
+            throw StandardException.plainWrapException(e.getCause());
+        }
+    }
+
+    /**
+     * Plan cache statistics for one normalized statement shape.
+     */
+    public static final class Shape{
+        private final String text;
+        private final double selectivityThreshold;
+        private final AtomicLong compilations=new AtomicLong();
+        private final AtomicLong hits=new AtomicLong();
+        private final AtomicLong executions=new AtomicLong();
+        private final AtomicLong fallbacks=new AtomicLong();
+        private final AtomicLong bypasses=new AtomicLong();
+        private volatile boolean literalSensitive;
+
+        Shape(String text,double selectivityThreshold){
+            this.text=text;
+            this.selectivityThreshold=selectivityThreshold;
+        }
+
+        void recordHit(){
+            hits.incrementAndGet();
+        }
+
+        void recordCompilation(){
+            compilations.incrementAndGet();
+        }
+
+        void markLiteralSensitive(){
+            literalSensitive=true;
+        }
+
+        double getSelectivityThreshold(){
+            return selectivityThreshold;
+        }
+
+        public String getText(){ return text; }
+
+        /** @return the number of times the shape was compiled */
+        public long getCompilations(){ return compilations.get(); }
+
+        /** @return the number of prepares served by an already compiled plan */
+        public long getHits(){ return hits.get(); }
+
+        /** @return the number of executions that ran the shared plan */
+        public long getExecutions(){ return executions.get(); }
+
+        /** @return the number of executions whose literals could not be bound to the plan's parameters */
+        public long getFallbacks(){ return fallbacks.get(); }
+
+        /** @return the number of statements prepared as written because the shape is literal sensitive */
+        public long getBypasses(){ return bypasses.get(); }
+
+        public boolean isLiteralSensitive(){ return literalSensitive; }
+
+        public double getHitRate(){
+            long h=hits.get();
+            long total=h+compilations.get();
+            return total==0?0d:((double)h)/total;
+        }
+    }
+}
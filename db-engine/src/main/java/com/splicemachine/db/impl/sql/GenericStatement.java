@@ -39,6 +39,7 @@ import com.splicemachine.db.iapi.sql.conn.StatementContext;
 import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
 import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
 import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.util.ByteArray;
 import com.splicemachine.db.iapi.util.InterruptStatus;
 import com.splicemachine.db.impl.ast.JsonTreeBuilderVisitor;
@@ -64,6 +65,11 @@ public class GenericStatement implements Statement{
     private int prepareIsolationLevel;
     private GenericStorablePreparedStatement preparedStmt;
 
+    // set when the text is an auto-parameterized statement shape, see AutoParameterizer
+    private AutoParameterizer.Shape shape;
+    private DataValueDescriptor[] literals;
+    private boolean literalSensitive;
+
     /**
      * Constructor for a Statement given the text of the statement in a String
      *
@@ -97,7 +103,7 @@ public class GenericStatement implements Statement{
         while(true){
             boolean recompile=false;
             try{
-                return prepMinion(lcc,true,null,null,forMetaData);
+                return prepMinion(lcc,true,literals,null,forMetaData);
             }catch(StandardException se){
                 // There is a chance that we didn't see the invalidation
                 // request from a DDL operation in another thread because
@@ -189,6 +195,20 @@ public class GenericStatement implements Statement{
         return prepMinion(lcc,false,paramDefaults,spsSchema,internalSQL);
     }
 
+    /**
+     * Mark this statement as the auto-parameterized form of a statement whose
+     * literals were replaced by parameters. The literals are used as parameter
+     * defaults while optimizing, and the compilation checks whether the plan is
+     * sensitive to their values.
+     *
+     * @param shape the statistics of the statement shape
+     * @param literals the replaced literals, in parameter order
+     */
+    void setAutoParameters(AutoParameterizer.Shape shape,DataValueDescriptor[] literals){
+        this.shape=shape;
+        this.literals=literals;
+    }
+
     @Override
     public String getSource(){ return statementText; }
 
@@ -336,6 +356,8 @@ public class GenericStatement implements Statement{
 
                 // did it get updated while we waited for the lock on it?
                 if(preparedStmt.upToDate()){
+                    if(shape!=null)
+                        shape.recordHit();
                     return preparedStmt;
                 }
 
@@ -407,6 +429,15 @@ public class GenericStatement implements Statement{
         if(statementContext!=null)
             lcc.popStatementContext(statementContext,null);
 
+        if(shape!=null){
+            shape.recordCompilation();
+            if(literalSensitive){
+                // the plan is only good for these literals; keep it out of other statements' way
+                shape.markLiteralSensitive();
+                ((GenericLanguageConnectionContext)lcc).removeStatement(this);
+            }
+        }
+
         return preparedStmt;
     }
 
@@ -433,6 +464,9 @@ public class GenericStatement implements Statement{
                 printStatementLine(lcc,istream,statement);
             }
 
+            if(shape!=null)
+                cc.setParameterSensitivityThreshold(shape.getSelectivityThreshold());
+
             StatementNode qt=parse(lcc,paramDefaults,timestamps,cc);
 
             /*
@@ -455,6 +489,7 @@ public class GenericStatement implements Statement{
              * we mark it valid.
              */
             Timestamp endTimestamp=generate(lcc,timestamps,cc,qt);
+            literalSensitive=cc.isParameterSensitive();
 
             saveTree(qt, CompilationPhase.AFTER_GENERATE);
 
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Rewrites the text of a plain SQL statement so that the literals it compares
+ * columns against become dynamic parameters. Statements which differ only in
+ * those literals then normalize to the same text (the statement's "shape") and
+ * can share one compiled plan.
+ * <p>
+ * Only literals whose replacement cannot change what the statement means are
+ * touched: the right hand side of a comparison or both bounds of a BETWEEN,
+ * when the other operand is not itself a literal and the literal is not part of
+ * a larger expression. Select lists, IN lists, LIKE patterns, UPDATE ... SET
+ * assignments, FETCH/OFFSET counts and anything inside comments (so optimizer
+ * hints) are left as written. Statements that already contain parameters, or
+ * that are not queries or DML, are not normalized at all.
+ */
+public final class StatementNormalizer{
+
+    private static final Set<String> NORMALIZABLE_STATEMENTS=new HashSet<>(Arrays.asList(
+            "SELECT","INSERT","UPDATE","DELETE","WITH"));
+
+    private static final Set<String> COMPARISON_OPERATORS=new HashSet<>(Arrays.asList(
+            "=","<>","!=","<",">","<=",">="));
+
+    /*
+     * Tokens that may follow a replaced literal. Anything else (an arithmetic
+     * operator, ||, a comma, COLLATE...) means the literal is part of a larger
+     * expression whose type could change with a parameter in its place.
+     */
+    private static final Set<String> TERMINATORS=new HashSet<>(Arrays.asList(
+            ")",";","AND","OR","THEN","WHEN","ELSE","END","WHERE","ORDER","GROUP","HAVING",
+            "UNION","EXCEPT","INTERSECT","FETCH","OFFSET","FOR","WITH","JOIN","INNER","LEFT",
+            "RIGHT","FULL","CROSS","NATURAL"));
+
+    private StatementNormalizer(){ }
+
+    /**
+     * The normalized text of a statement together with the literals taken out
+     * of it, in parameter order.
+     */
+    public static final class NormalizedStatement{
+        private final String shape;
+        private final DataValueDescriptor[] literals;
+
+        NormalizedStatement(String shape,DataValueDescriptor[] literals){
+            this.shape=shape;
+            this.literals=literals;
+        }
+
+        public String getShape(){ return shape; }
+
+        public DataValueDescriptor[] getLiterals(){ return literals; }
+    }
+
+    /**
+     * @param sql the statement text as submitted
+     * @return the normalized statement, or {@code null} if the statement is not
+     * eligible or has no literal that can be replaced
+     */
+    public static NormalizedStatement normalize(String sql){
+        List<Token> tokens=tokenize(sql);
+        if(tokens==null || tokens.isEmpty())
+            return null;
+        Token first=tokens.get(0);
+        if(first.type!=TokenType.WORD || !NORMALIZABLE_STATEMENTS.contains(first.text))
+            return null;
+        for(Token t:tokens){
+            if(t.type==TokenType.PARAMETER)
+                return null;
+        }
+
+        boolean update="UPDATE".equals(first.text);
+        boolean inSetClause=false;
+        int depth=0;
+        List<Replacement> replacements=new ArrayList<>();
+        for(int i=0;i<tokens.size();i++){
+            Token t=tokens.get(i);
+            if(t.is("("))
+                depth++;
+            else if(t.is(")"))
+                depth--;
+            else if(update && depth==0 && t.is("SET"))
+                inSetClause=true;
+            else if(inSetClause && depth==0 && t.is("WHERE"))
+                inSetClause=false;
+
+            if(inSetClause || !t.isLiteral())
+                continue;
+
+            Replacement low=literalAt(tokens,i);
+            if(low==null)
+                continue;
+            Token operator=token(tokens,low.firstToken-1);
+            if(operator==null)
+                continue;
+            if(operator.isComparison()){
+                if(!isOperand(token(tokens,low.firstToken-2)) || !isTerminator(token(tokens,i+1)))
+                    continue;
+                replacements.add(low);
+            }else if(operator.is("BETWEEN") && token(tokens,i+1)!=null && token(tokens,i+1).is("AND")){
+                int operandIdx=low.firstToken-2;
+                Token operand=token(tokens,operandIdx);
+                if(operand!=null && operand.is("NOT"))
+                    operand=token(tokens,operandIdx-1);
+                int highIdx=i+2;
+                Token high=token(tokens,highIdx);
+                if(high!=null && (high.is("-") || high.is("+")))
+                    highIdx++;
+                Replacement upper=highIdx<tokens.size() && tokens.get(highIdx).isLiteral()?literalAt(tokens,highIdx):null;
+                if(upper==null || upper.firstToken!=i+2 || !isOperand(operand) || !isTerminator(token(tokens,highIdx+1)))
+                    continue;
+                replacements.add(low);
+                replacements.add(upper);
+                i=highIdx;
+            }
+        }
+        if(replacements.isEmpty())
+            return null;
+
+        StringBuilder shape=new StringBuilder(sql.length());
+        DataValueDescriptor[] literals=new DataValueDescriptor[replacements.size()];
+        int copied=0;
+        for(int i=0;i<literals.length;i++){
+            Replacement r=replacements.get(i);
+            shape.append(sql,copied,tokens.get(r.firstToken).start).append('?');
+            copied=tokens.get(r.lastToken).end;
+            literals[i]=r.value;
+        }
+        shape.append(sql,copied,sql.length());
+        return new NormalizedStatement(shape.toString(),literals);
+    }
+
+    /*
+     * Build the replacement for the literal at idx, including a sign directly
+     * in front of a numeric literal. Returns null if the literal cannot be
+     * represented as a parameter value.
+     */
+    private static Replacement literalAt(List<Token> tokens,int idx){
+        Token literal=tokens.get(idx);
+        int firstToken=idx;
+        boolean negate=false;
+        if(literal.type==TokenType.NUMBER){
+            Token sign=token(tokens,idx-1);
+            if(sign!=null && (sign.is("-") || sign.is("+"))){
+                Token beforeSign=token(tokens,idx-2);
+                if(beforeSign!=null && (beforeSign.isComparison() || beforeSign.is("BETWEEN") || beforeSign.is("AND"))){
+                    negate=sign.is("-");
+                    firstToken=idx-1;
+                }
+            }
+        }
+        try{
+            DataValueDescriptor value=literal.type==TokenType.STRING
+                    ?new SQLChar(literal.text)
+                    :numericLiteral(negate?"-"+literal.text:literal.text);
+            return new Replacement(firstToken,idx,value);
+        }catch(StandardException|NumberFormatException e){
+            return null;
+        }
+    }
+
+    /*
+     * Types numeric literals the way the parser does: integers as INTEGER,
+     * BIGINT or DECIMAL by magnitude, decimals as DECIMAL and anything with an
+     * exponent as DOUBLE.
+     */
+    private static DataValueDescriptor numericLiteral(String text) throws StandardException{
+        if(text.indexOf('e')>=0 || text.indexOf('E')>=0)
+            return new SQLDouble(Double.parseDouble(text));
+        if(text.indexOf('.')>=0)
+            return new SQLDecimal(new BigDecimal(text));
+        try{
+            long value=Long.parseLong(text);
+            if(value>=Integer.MIN_VALUE && value<=Integer.MAX_VALUE)
+                return new SQLInteger((int)value);
+            return new SQLLongint(value);
+        }catch(NumberFormatException nfe){
+            return new SQLDecimal(new BigDecimal(text));
+        }
+    }
+
+    private static boolean isOperand(Token t){
+        return t!=null && !t.isLiteral() && !t.isComparison() && !t.is("(") && !t.is(",");
+    }
+
+    private static boolean isTerminator(Token t){
+        return t==null || ((t.type==TokenType.WORD || t.type==TokenType.OTHER) && TERMINATORS.contains(t.text));
+    }
+
+    private static Token token(List<Token> tokens,int idx){
+        return idx>=0 && idx<tokens.size()?tokens.get(idx):null;
+    }
+
+    /*
+     * Split the statement into significant tokens, dropping whitespace and
+     * comments. Returns null for text we cannot tokenize confidently (an
+     * unterminated string or comment, a malformed number); the parser will
+     * report those on the original text.
+     */
+    private static List<Token> tokenize(String sql){
+        List<Token> tokens=new ArrayList<>();
+        int n=sql.length();
+        int i=0;
+        while(i<n){
+            char c=sql.charAt(i);
+            int start=i;
+            if(Character.isWhitespace(c)){
+                i++;
+            }else if(c=='-' && i+1<n && sql.charAt(i+1)=='-'){
+                int eol=sql.indexOf('\n',i);
+                i=eol<0?n:eol+1;
+            }else if(c=='/' && i+1<n && sql.charAt(i+1)=='*'){
+                int close=sql.indexOf("*/",i+2);
+                if(close<0)
+                    return null;
+                i=close+2;
+            }else if(c=='\'' || c=='"'){
+                StringBuilder value=new StringBuilder();
+                i++;
+                for(;;){
+                    if(i>=n)
+                        return null;
+                    char ch=sql.charAt(i++);
+                    if(ch==c){
+                        if(i<n && sql.charAt(i)==c){
+                            value.append(c);
+                            i++;
+                        }else
+                            break;
+                    }else
+                        value.append(ch);
+                }
+                if(c=='"')
+                    tokens.add(new Token(TokenType.IDENTIFIER,start,i,value.toString()));
+                else if(!tokens.isEmpty() && tokens.get(tokens.size()-1).end==start
+                        && tokens.get(tokens.size()-1).type==TokenType.WORD){
+                    // X'..' and similar prefixed literals are not plain character strings
+                    tokens.add(new Token(TokenType.OTHER,start,i,value.toString()));
+                }else
+                    tokens.add(new Token(TokenType.STRING,start,i,value.toString()));
+            }else if(isDigit(c) || (c=='.' && i+1<n && isDigit(sql.charAt(i+1)))){
+                i=skipDigits(sql,i);
+                if(i<n && sql.charAt(i)=='.')
+                    i=skipDigits(sql,i+1);
+                if(i<n && (sql.charAt(i)=='e' || sql.charAt(i)=='E')){
+                    int exp=i+1;
+                    if(exp<n && (sql.charAt(exp)=='+' || sql.charAt(exp)=='-'))
+                        exp++;
+                    if(exp>=n || !isDigit(sql.charAt(exp)))
+                        return null;
+                    i=skipDigits(sql,exp);
+                }
+                if(i<n && isIdentifierPart(sql.charAt(i)))
+                    return null;
+                tokens.add(new Token(TokenType.NUMBER,start,i,sql.substring(start,i)));
+            }else if(Character.isLetter(c) || c=='_'){
+                while(i<n && isIdentifierPart(sql.charAt(i)))
+                    i++;
+                tokens.add(new Token(TokenType.WORD,start,i,sql.substring(start,i).toUpperCase(Locale.ENGLISH)));
+            }else if(c=='?'){
+                i++;
+                tokens.add(new Token(TokenType.PARAMETER,start,i,"?"));
+            }else{
+                String op=i+1<n?sql.substring(i,i+2):null;
+                if(op!=null && (op.equals("<=") || op.equals(">=") || op.equals("<>") || op.equals("!=") || op.equals("||")))
+                    i+=2;
+                else
+                    i++;
+                tokens.add(new Token(TokenType.OTHER,start,i,sql.substring(start,i)));
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipDigits(String sql,int i){
+        while(i<sql.length() && isDigit(sql.charAt(i)))
+            i++;
+        return i;
+    }
+
+    private static boolean isDigit(char c){
+        return c>='0' && c<='9';
+    }
+
+    private static boolean isIdentifierPart(char c){
+        return Character.isLetterOrDigit(c) || c=='_';
+    }
+
+    private enum TokenType{ WORD, IDENTIFIER, NUMBER, STRING, PARAMETER, OTHER }
+
+    private static final class Token{
+        private final TokenType type;
+        private final int start;
+        private final int end;
+        private final String text;
+
+        Token(TokenType type,int start,int end,String text){
+            this.type=type;
+            this.start=start;
+            this.end=end;
+            this.text=text;
+        }
+
+        boolean isLiteral(){
+            return type==TokenType.NUMBER || type==TokenType.STRING;
+        }
+
+        boolean isComparison(){
+            return type==TokenType.OTHER && COMPARISON_OPERATORS.contains(text);
+        }
+
+        boolean is(String text){
+            return (type==TokenType.WORD || type==TokenType.OTHER) && this.text.equals(text);
+        }
+    }
+
+    private static final class Replacement{
+        private final int firstToken;
+        private final int lastToken;
+        private final DataValueDescriptor value;
+
+        Replacement(int firstToken,int lastToken,DataValueDescriptor value){
+            this.firstToken=firstToken;
+            this.lastToken=lastToken;
+            this.value=value;
+        }
+    }
+}
@@ -134,6 +134,8 @@ public class CompilerContextImpl extends ContextImpl
 		defaultSchemaStack = null;
         referencedSequences = null;
         dataSetProcessorType = DataSetProcessorType.DEFAULT_CONTROL;
+        parameterSensitivityThreshold = 0d;
+        parameterSensitive = false;
 	}
 
 	//
@@ -1062,4 +1064,27 @@ public class CompilerContextImpl extends ContextImpl
     public DataSetProcessorType getDataSetProcessorType() {
         return dataSetProcessorType;
     }
+
+    private double parameterSensitivityThreshold;
+    private boolean parameterSensitive;
+
+    @Override
+    public void setParameterSensitivityThreshold(double threshold) {
+        parameterSensitivityThreshold = threshold;
+    }
+
+    @Override
+    public double getParameterSensitivityThreshold() {
+        return parameterSensitivityThreshold;
+    }
+
+    @Override
+    public void markParameterSensitive() {
+        parameterSensitive = true;
+    }
+
+    @Override
+    public boolean isParameterSensitive() {
+        return parameterSensitive;
+    }
 } // end of class CompilerContextImpl
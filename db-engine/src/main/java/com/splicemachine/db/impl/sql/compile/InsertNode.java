@@ -84,6 +84,8 @@ public final class InsertNode extends DMLModStatementNode {
     public static final String INSERT_MODE = "insertMode";
     public static final String STATUS_DIRECTORY = "statusDirectory";
     public static final String BAD_RECORDS_ALLOWED = "badRecordsAllowed";
+    public static final String BULK_IMPORT_DIRECTORY = "bulkImportDirectory";
+    public static final String SKIP_SAMPLING = "skipSampling";
     public static final String INSERT = "INSERT";
 
 
@@ -98,6 +100,8 @@ public final class InsertNode extends DMLModStatementNode {
     private     boolean           hasJDBClimitClause; // true if using JDBC limit/offset escape syntax
     private     String              statusDirectory;
     private     int              badRecordsAllowed = 0;
+    private     String              bulkImportDirectory;
+    private     boolean             skipSampling;
 
 
 	protected   RowLocation[] 		autoincRowLocation;
@@ -706,6 +710,8 @@ public final class InsertNode extends DMLModStatementNode {
 		String insertModeString = targetProperties.getProperty(INSERT_MODE);
         String statusDirectoryString = targetProperties.getProperty(STATUS_DIRECTORY);
         String failBadRecordCountString = targetProperties.getProperty(BAD_RECORDS_ALLOWED);
+        String bulkImportDirectoryString = targetProperties.getProperty(BULK_IMPORT_DIRECTORY);
+        String skipSamplingString = targetProperties.getProperty(SKIP_SAMPLING);
 
 		if (insertMode != null) {
             String upperValue = StringUtil.SQLToUpperCase(insertModeString);
@@ -726,6 +732,14 @@ public final class InsertNode extends DMLModStatementNode {
             statusDirectory = statusDirectoryString;
         }
 
+        if (bulkImportDirectoryString != null) {
+            // validated for writing when the storage files are staged
+            bulkImportDirectory = bulkImportDirectoryString;
+        }
+
+        if (skipSamplingString != null)
+            skipSampling = Boolean.parseBoolean(StringUtil.SQLToUpperCase(skipSamplingString));
+
 
     }
 
@@ -945,12 +959,17 @@ public final class InsertNode extends DMLModStatementNode {
             else
                 mb.push(statusDirectory);
             mb.push(badRecordsAllowed);
+            if (bulkImportDirectory==null)
+                mb.pushNull("java.lang.String");
+            else
+                mb.push(bulkImportDirectory);
+            mb.push(skipSampling);
             mb.push((double) this.resultSet.getFinalCostEstimate().getEstimatedRowCount());
             mb.push(this.resultSet.getFinalCostEstimate().getEstimatedCost());
             mb.push(targetTableDescriptor.getVersion());
             mb.push(this.printExplainInformationForActivation());
 
-			mb.callMethod(VMOpcode.INVOKEINTERFACE, (String) null, "getInsertResultSet", ClassName.ResultSet, 10);
+			mb.callMethod(VMOpcode.INVOKEINTERFACE, (String) null, "getInsertResultSet", ClassName.ResultSet, 12);
 		}
 		else
 		{
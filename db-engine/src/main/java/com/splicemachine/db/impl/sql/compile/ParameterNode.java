@@ -41,6 +41,7 @@ import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.JSQLType;
 import com.splicemachine.db.iapi.types.TypeId;
+import com.splicemachine.db.impl.sql.AutoParameterizer;
 
 /**
  * This node type represents a ? parameter.
@@ -485,12 +486,19 @@ public class ParameterNode extends ValueNode
 	/**
 	 * Get the default value for the parameter.  Parameters
 	 * may get default values for optimization purposes.
+	 * Once the parameter is bound the value is converted to
+	 * the parameter's type; a default that cannot be converted
+	 * without loss is ignored.
 	 *
 	 * @return the value, may be null
 	 */
 	DataValueDescriptor getDefaultValue()
 	{
-		return defaultValue;
+		DataTypeDescriptor type = getTypeServices();
+		if (defaultValue == null || type == null ||
+				type.getTypeName().equals(defaultValue.getTypeName()))
+			return defaultValue;
+		return AutoParameterizer.coerceLiteral(defaultValue, type);
 	}
 
 	/**
@@ -26,6 +26,7 @@
 package com.splicemachine.db.impl.sql.compile;
 
 import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.compile.CompilerContext;
 import com.splicemachine.db.iapi.sql.compile.CostEstimate;
 import com.splicemachine.db.iapi.sql.compile.Optimizable;
 import com.splicemachine.db.iapi.store.access.StoreCostController;
@@ -169,8 +170,11 @@ public class ScanCostFunction{
      * @throws StandardException
      */
     private void performQualifierSelectivity (Predicate p, QualifierPhase phase) throws StandardException {
-        if(p.compareWithKnownConstant(baseTable, true) && p.getRelop().getColumnOperand(baseTable) != null) // Range Qualifier
-                addRangeQualifier(p,phase);
+        if(p.compareWithKnownConstant(baseTable, true) && p.getRelop().getColumnOperand(baseTable) != null) { // Range Qualifier
+            if (!p.compareWithKnownConstant(baseTable, false)) // value taken from a parameter default
+                checkParameterSensitivity(p, phase, ((QueryTreeNode) baseTable).getCompilerContext());
+            addRangeQualifier(p, phase);
+        }
         else // Predicate Cannot Be Transformed to Range, use Predicate Selectivity Defaults
             addSelectivity(new PredicateSelectivity(p,baseTable,phase));
     }
@@ -382,6 +386,54 @@ public class ScanCostFunction{
         return selectivity;
     }
 
+    /**
+     *
+     * Compare the selectivity estimated from a parameter's default value with the estimate for an
+     * unknown value, and mark the plan as parameter sensitive when they differ by more than the
+     * compiler context's threshold.
+     *
+     * @param p
+     * @param phase
+     * @param cc
+     * @throws StandardException
+     */
+    void checkParameterSensitivity(Predicate p,QualifierPhase phase,CompilerContext cc) throws StandardException{
+        double threshold = cc.getParameterSensitivityThreshold();
+        if (threshold <= 0d || cc.isParameterSensitive())
+            return;
+        DataValueDescriptor value=p.getCompareValue(baseTable);
+        RelationalOperator relop=p.getRelop();
+        int colNum = relop.getColumnOperand(baseTable).getColumnNumber();
+        SelectivityHolder peeked;
+        switch(relop.getOperator()){
+            case RelationalOperator.EQUALS_RELOP:
+                peeked = new RangeSelectivity(scc,value,value,true,true,colNum,phase);
+                break;
+            case RelationalOperator.NOT_EQUALS_RELOP:
+                peeked = new NotEqualsSelectivity(scc,colNum,phase,value);
+                break;
+            case RelationalOperator.GREATER_EQUALS_RELOP:
+                peeked = new RangeSelectivity(scc,value,null,true,true,colNum,phase);
+                break;
+            case RelationalOperator.GREATER_THAN_RELOP:
+                peeked = new RangeSelectivity(scc,value,null,false,true,colNum,phase);
+                break;
+            case RelationalOperator.LESS_EQUALS_RELOP:
+                peeked = new RangeSelectivity(scc,null,value,true,true,colNum,phase);
+                break;
+            case RelationalOperator.LESS_THAN_RELOP:
+                peeked = new RangeSelectivity(scc,null,value,true,false,colNum,phase);
+                break;
+            default:
+                return;
+        }
+        double withValue = peeked.getSelectivity();
+        double withoutValue = p.selectivity(baseTable);
+        if (withValue <= 0d || withoutValue <= 0d
+                || Math.max(withValue / withoutValue, withoutValue / withValue) > threshold)
+            cc.markParameterSensitive();
+    }
+
     /**
      *
      * Method to combine range qualifiers a>12 and a< 15 -> range qualifier (12<a<15)
@@ -391,7 +443,6 @@ public class ScanCostFunction{
      * @return
      * @throws StandardException
      */
-
     private boolean addRangeQualifier(Predicate p,QualifierPhase phase) throws StandardException{
         DataValueDescriptor value=p.getCompareValue(baseTable);
         RelationalOperator relop=p.getRelop();
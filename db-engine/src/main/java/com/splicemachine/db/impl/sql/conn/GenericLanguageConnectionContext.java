@@ -3412,6 +3412,11 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         this.restoreMode=true;
     }
 
+    @Override
+    public boolean isInRestoreMode(){
+        return restoreMode;
+    }
+
     ;
 
     @Override
@@ -32,6 +32,7 @@ import com.splicemachine.db.iapi.sql.conn.LanguageConnectionFactory;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.compile.CompilerContext;
 import com.splicemachine.db.iapi.sql.LanguageFactory;
+import com.splicemachine.db.impl.sql.AutoParameterizer;
 import com.splicemachine.db.impl.sql.GenericStatement;
 import com.splicemachine.db.iapi.services.uuid.UUIDFactory;
 import com.splicemachine.db.iapi.services.compiler.JavaFactory;
@@ -96,6 +97,8 @@ public class GenericLanguageConnectionFactory
 	*/
 	private int cacheSize = Property.STATEMENT_CACHE_SIZE_DEFAULT;
 
+	private AutoParameterizer autoParameterizer;
+
 	/*
 	   constructor
 	*/
@@ -238,6 +241,13 @@ public class GenericLanguageConnectionFactory
 		return dvf;
 	}
 
+	/**
+		Get the AutoParameterizer for plain statements
+	 */
+	public AutoParameterizer getAutoParameterizer() {
+		return autoParameterizer;
+	}
+
 	/*
 		ModuleControl interface
 	 */
@@ -303,6 +313,13 @@ public class GenericLanguageConnectionFactory
 		   (TypeCompilerFactory) Monitor.startSystemModule(TypeCompilerFactory.MODULE);
 		nodeFactory = (NodeFactory) Monitor.bootServiceModule(create, this, NodeFactory.MODULE, startParams);
 
+		autoParameterizer = new AutoParameterizer(
+				PropertyUtil.booleanProperty(Property.AUTO_PARAMETERIZATION,
+						PropertyUtil.getPropertyFromSet(startParams, Property.AUTO_PARAMETERIZATION),
+						Property.AUTO_PARAMETERIZATION_DEFAULT),
+				PropertyUtil.intPropertyValue(Property.AUTO_PARAMETERIZATION_SELECTIVITY_THRESHOLD,
+						PropertyUtil.getPropertyFromSet(startParams, Property.AUTO_PARAMETERIZATION_SELECTIVITY_THRESHOLD),
+						1, Integer.MAX_VALUE, Property.AUTO_PARAMETERIZATION_SELECTIVITY_THRESHOLD_DEFAULT));
 	}
 
 	/**
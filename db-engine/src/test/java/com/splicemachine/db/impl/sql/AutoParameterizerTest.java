@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.i18n.LocaleFinder;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDate;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.text.DateFormat;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AutoParameterizerTest {
+    private static final DataTypeDescriptor INTEGER = DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER);
+    private static final DataTypeDescriptor DATE = DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DATE);
+
+    @BeforeClass
+    public static void parseDatesWithoutADatabase() {
+        SQLDate.setSkipDBContext(true);
+    }
+
+    @AfterClass
+    public static void restoreDateParsing() {
+        SQLDate.setSkipDBContext(false);
+    }
+
+    @Test
+    public void numericLiteralsMustFitTheParameterExactly() throws Exception {
+        DataValueDescriptor value = AutoParameterizer.coerceLiteral(new SQLDecimal(new BigDecimal("42.0")), INTEGER);
+        assertNotNull(value);
+        assertEquals(42, value.getInt());
+        assertEquals(7, AutoParameterizer.coerceLiteral(new SQLLongint(7L), INTEGER).getInt());
+
+        assertNull("Dropped the fraction", AutoParameterizer.coerceLiteral(new SQLDecimal(new BigDecimal("42.5")), INTEGER));
+        assertNull("Dropped the fraction", AutoParameterizer.coerceLiteral(new SQLDouble(1.5d), INTEGER));
+        assertNull("Overflowed", AutoParameterizer.coerceLiteral(new SQLLongint(3000000000L), INTEGER));
+    }
+
+    @Test
+    public void stringLiteralsConvertToDates() throws Exception {
+        DataValueDescriptor value = AutoParameterizer.coerceLiteral(string("2016-01-02"), DATE);
+        assertTrue(value instanceof SQLDate);
+        assertEquals(new SQLDate("2016-01-02", false, null).getString(), value.getString());
+
+        assertNull(AutoParameterizer.coerceLiteral(string("2016-02-30"), DATE));
+        assertNull(AutoParameterizer.coerceLiteral(string("not a date"), DATE));
+    }
+
+    @Test
+    public void literalsOfAnotherTypeFamilyAreNotConverted() throws Exception {
+        assertNull(AutoParameterizer.coerceLiteral(new SQLChar("1"), INTEGER));
+        assertNull(AutoParameterizer.coerceLiteral(new SQLInteger(1),
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR, 10)));
+        assertNull(AutoParameterizer.coerceLiteral(new SQLInteger(20160102), DATE));
+        assertNull(AutoParameterizer.coerceLiteral(null, INTEGER));
+        assertNull(AutoParameterizer.coerceLiteral(new SQLInteger(1), null));
+    }
+
+    @Test
+    public void charactersAreNeverTruncated() throws Exception {
+        DataTypeDescriptor char3 = DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.CHAR, 3);
+        DataTypeDescriptor varchar3 = DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR, 3);
+        assertEquals("abc", AutoParameterizer.coerceLiteral(new SQLChar("abc"), char3).getString());
+        assertEquals("ab ", AutoParameterizer.coerceLiteral(new SQLChar("ab"), char3).getString());
+        assertNull(AutoParameterizer.coerceLiteral(new SQLChar("abcdef"), char3));
+        assertNull(AutoParameterizer.coerceLiteral(new SQLVarchar("abcd"), varchar3));
+
+        // only blanks are cut off, and they do not change the value
+        assertEquals("ab ", AutoParameterizer.coerceLiteral(new SQLChar("ab     "), char3).getString());
+    }
+
+    @Test
+    public void bindsConvertedLiterals() throws Exception {
+        SQLInteger first = new SQLInteger();
+        SQLDate second = new SQLDate();
+        Activation activation = activation(new DataTypeDescriptor[]{INTEGER, DATE}, first, second);
+        assertTrue(AutoParameterizer.bind(activation,
+                new DataValueDescriptor[]{new SQLDecimal(new BigDecimal("12")), string("2016-01-02")}));
+        assertEquals(12, first.getInt());
+        assertEquals(new SQLDate("2016-01-02", false, null).getString(), second.getString());
+    }
+
+    @Test
+    public void bindFallsBackWhenALiteralCannotBeConverted() throws Exception {
+        SQLInteger first = new SQLInteger();
+        SQLInteger second = new SQLInteger();
+        Activation activation = activation(new DataTypeDescriptor[]{INTEGER, INTEGER}, first, second);
+        assertFalse(AutoParameterizer.bind(activation,
+                new DataValueDescriptor[]{new SQLInteger(1), new SQLDecimal(new BigDecimal("2.5"))}));
+        assertTrue("Bound a parameter of a statement which falls back", first.isNull());
+        assertTrue(second.isNull());
+    }
+
+    @Test
+    public void bindFallsBackWhenTheParametersDoNotMatch() throws Exception {
+        Activation activation = activation(new DataTypeDescriptor[]{INTEGER}, new SQLInteger());
+        assertFalse(AutoParameterizer.bind(activation, new DataValueDescriptor[]{new SQLInteger(1), new SQLInteger(2)}));
+        assertFalse(AutoParameterizer.bind(activation(null, new SQLInteger()), new DataValueDescriptor[]{new SQLInteger(1)}));
+    }
+
+    @Test
+    public void literalSensitiveShapesArePreparedAsWritten() throws Exception {
+        AutoParameterizer parameterizer = new AutoParameterizer(true, 10d);
+        AutoParameterizer.Shape shape = parameterizer.getShape(
+                StatementNormalizer.normalize("select * from t where a = 1").getShape());
+        shape.markLiteralSensitive();
+
+        LanguageConnectionContext lcc = mock(LanguageConnectionContext.class);
+        assertNull(parameterizer.getActivation(lcc, "select * from t where a = 2", false, false));
+        assertEquals(1, shape.getBypasses());
+        assertEquals(0, shape.getExecutions());
+        verify(lcc, never()).getDefaultSchema();
+    }
+
+    @Test
+    public void disabledParameterizerPreparesAsWritten() throws Exception {
+        AutoParameterizer parameterizer = new AutoParameterizer(false, 10d);
+        assertNull(parameterizer.getActivation(mock(LanguageConnectionContext.class), "select * from t where a = 1", false, false));
+        assertTrue(parameterizer.getShapes().isEmpty());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * A string literal which can be compared with dates without a database to take the locale from.
+     */
+    private static SQLChar string(String value) throws StandardException {
+        final LocaleFinder localeFinder = mock(LocaleFinder.class);
+        when(localeFinder.getDateFormat()).thenReturn(DateFormat.getDateInstance(DateFormat.LONG, Locale.US));
+        return new SQLChar(value) {
+            {
+                setLocaleFinder(localeFinder);
+            }
+        };
+    }
+
+    private static Activation activation(DataTypeDescriptor[] types, DataValueDescriptor... parameters) throws StandardException {
+        ParameterValueSet pvs = mock(ParameterValueSet.class);
+        when(pvs.getParameterCount()).thenReturn(parameters.length);
+        for (int i = 0; i < parameters.length; i++) {
+            when(pvs.getParameterForSet(i)).thenReturn(parameters[i]);
+        }
+        ExecPreparedStatement ps = mock(ExecPreparedStatement.class);
+        when(ps.getParameterTypes()).thenReturn(types);
+        Activation activation = mock(Activation.class);
+        when(activation.getParameterValueSet()).thenReturn(pvs);
+        when(activation.getPreparedStatement()).thenReturn(ps);
+        return activation;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StatementNormalizerTest {
+
+    @Test
+    public void replacesComparisonLiterals() throws Exception {
+        StatementNormalizer.NormalizedStatement n = StatementNormalizer.normalize(
+                "SELECT * FROM T WHERE A=-5 AND B <> 'it''s' OR C >= 1.5e3 AND D < 2.25");
+        assertNotNull(n);
+        assertEquals("SELECT * FROM T WHERE A=? AND B <> ? OR C >= ? AND D < ?", n.getShape());
+        DataValueDescriptor[] literals = n.getLiterals();
+        assertEquals(4, literals.length);
+        assertTrue(literals[0] instanceof SQLInteger);
+        assertEquals(-5, literals[0].getInt());
+        assertTrue(literals[1] instanceof SQLChar);
+        assertEquals("it's", literals[1].getString());
+        assertTrue(literals[2] instanceof SQLDouble);
+        assertEquals(1500d, literals[2].getDouble(), 0d);
+        assertTrue(literals[3] instanceof SQLDecimal);
+        assertEquals("2.25", literals[3].getString());
+    }
+
+    @Test
+    public void sameShapeForDifferentLiterals() throws Exception {
+        assertEquals(StatementNormalizer.normalize("select a from t where b = 1").getShape(),
+                StatementNormalizer.normalize("select a from t where b = 12345").getShape());
+    }
+
+    @Test
+    public void typesIntegersByMagnitude() throws Exception {
+        DataValueDescriptor[] literals = StatementNormalizer.normalize(
+                "select * from t where a = 3000000000 and b = 99999999999999999999").getLiterals();
+        assertTrue(literals[0] instanceof SQLLongint);
+        assertTrue(literals[1] instanceof SQLDecimal);
+    }
+
+    @Test
+    public void replacesBetweenBounds() throws Exception {
+        StatementNormalizer.NormalizedStatement n = StatementNormalizer.normalize(
+                "select * from t where a between -1 and 10 and b not between 'a' and 'z'");
+        assertEquals("select * from t where a between ? and ? and b not between ? and ?", n.getShape());
+        assertEquals(4, n.getLiterals().length);
+        assertNull(StatementNormalizer.normalize("select * from t where a between 1 and b"));
+    }
+
+    @Test
+    public void leavesExpressionsAndNonPredicateLiteralsAlone() throws Exception {
+        assertNull(StatementNormalizer.normalize("select * from t where a = 5 + b"));
+        assertNull(StatementNormalizer.normalize("select * from t where c = 'a' || d"));
+        assertNull(StatementNormalizer.normalize("select 1 from t where 1 = 1"));
+        assertNull(StatementNormalizer.normalize("select * from t where a in (1,2) and b like 'a%'"));
+        assertNull(StatementNormalizer.normalize("select * from t where a = X'0A'"));
+        assertNull(StatementNormalizer.normalize("select * from t order by 1 fetch first 5 rows only"));
+    }
+
+    @Test
+    public void keepsUpdateAssignments() throws Exception {
+        StatementNormalizer.NormalizedStatement n = StatementNormalizer.normalize(
+                "update t set a = 5, b = 'x' where id = 7");
+        assertEquals("update t set a = 5, b = 'x' where id = ?", n.getShape());
+        assertEquals(7, n.getLiterals()[0].getInt());
+    }
+
+    @Test
+    public void keepsCommentsAndHints() throws Exception {
+        StatementNormalizer.NormalizedStatement n = StatementNormalizer.normalize(
+                "select * from t --splice-properties index=i1\n where a = 5 /* b = 6 */");
+        assertEquals("select * from t --splice-properties index=i1\n where a = ? /* b = 6 */", n.getShape());
+        assertEquals(1, n.getLiterals().length);
+    }
+
+    @Test
+    public void skipsIneligibleStatements() throws Exception {
+        assertNull(StatementNormalizer.normalize("select * from t where a = ? and b = 5"));
+        assertNull(StatementNormalizer.normalize("create table t (a int default 5)"));
+        assertNull(StatementNormalizer.normalize("call syscs_util.p(5)"));
+        assertNull(StatementNormalizer.normalize("select * from t where a = 'unterminated"));
+    }
+}
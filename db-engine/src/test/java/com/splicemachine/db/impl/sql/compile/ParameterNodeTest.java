@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.db.impl.sql.compile;
+
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+
+import static org.junit.Assert.*;
+
+public class ParameterNodeTest {
+    private static final DataTypeDescriptor INTEGER = DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER, true);
+
+    @Test
+    public void unboundDefaultIsReturnedAsGiven() throws Exception {
+        DataValueDescriptor value = new SQLDecimal(new BigDecimal("2.5"));
+        assertSame(value, parameter(value, null).getDefaultValue());
+        assertNull(parameter(null, INTEGER).getDefaultValue());
+    }
+
+    @Test
+    public void defaultOfTheParameterTypeIsReturnedAsGiven() throws Exception {
+        DataValueDescriptor value = new SQLInteger(3);
+        assertSame(value, parameter(value, INTEGER).getDefaultValue());
+    }
+
+    @Test
+    public void defaultIsConvertedToTheParameterType() throws Exception {
+        DataValueDescriptor value = parameter(new SQLDecimal(new BigDecimal("2.0")), INTEGER).getDefaultValue();
+        assertTrue(value instanceof SQLInteger);
+        assertEquals(2, value.getInt());
+        value = parameter(new SQLLongint(12L), INTEGER).getDefaultValue();
+        assertTrue(value instanceof SQLInteger);
+        assertEquals(12, value.getInt());
+    }
+
+    @Test
+    public void defaultWhichCannotBeConvertedIsIgnored() throws Exception {
+        assertNull(parameter(new SQLDecimal(new BigDecimal("2.5")), INTEGER).getDefaultValue());
+        assertNull(parameter(new SQLLongint(3000000000L), INTEGER).getDefaultValue());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * A parameter bound to {@code type}, without the compiler context that binding it normally requires.
+     */
+    private static ParameterNode parameter(DataValueDescriptor defaultValue, final DataTypeDescriptor type) {
+        ParameterNode node = new ParameterNode() {
+            @Override
+            public DataTypeDescriptor getTypeServices() {
+                return type;
+            }
+        };
+        node.init(0, defaultValue);
+        return node;
+    }
+}
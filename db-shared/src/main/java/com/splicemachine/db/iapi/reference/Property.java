@@ -667,6 +667,24 @@ public interface Property {
 	String STATEMENT_CACHE_SIZE = "derby.language.statementCacheSize";
 	int STATEMENT_CACHE_SIZE_DEFAULT = 100;
 
+	/**
+	 * Tells if statements executed through java.sql.Statement have their
+	 * predicate literals replaced by parameters before the statement cache
+	 * is consulted, so that statements differing only in those literals
+	 * share one compiled plan. Default is false. System property.
+	 */
+	String AUTO_PARAMETERIZATION = "derby.language.autoParameterization";
+	boolean AUTO_PARAMETERIZATION_DEFAULT = false;
+
+	/**
+	 * Factor by which the selectivity estimated from a replaced literal may
+	 * differ from the estimate for an unknown value before the statement
+	 * shape is considered literal sensitive and is no longer shared.
+	 * System property.
+	 */
+	String AUTO_PARAMETERIZATION_SELECTIVITY_THRESHOLD = "derby.language.autoParameterization.selectivityThreshold";
+	int AUTO_PARAMETERIZATION_SELECTIVITY_THRESHOLD_DEFAULT = 10;
+
 	/**
 	 * Tells if the system stored procedures should be updated during database boot up.
 	 * Default is false.  System property.  Loaded once (static initializer).
@@ -1081,6 +1099,20 @@ public interface Property {
 	 * client socket setKeepAlive value
 	 */
 	public final static String DRDA_PROP_KEEPALIVE = "derby.drda.keepAlive";
+
+	/**
+	 * db.drda.nio
+	 *
+	 *<BR>
+	 * If true, the network server accepts connections on non-blocking
+	 * channels and only hands a session to a connection thread once a
+	 * complete request has arrived, so idle connections do not hold a
+	 * thread. The connection threads form a bounded pool whose size is
+	 * derby.drda.maxThreads (or a default based on the number of processors
+	 * when that is 0). Not used when derby.drda.sslMode is not off.
+	 * Default is false.
+	 */
+	public final static String DRDA_PROP_NIO = "derby.drda.nio";
 	
 
     /**
@@ -33,6 +33,7 @@ import com.splicemachine.derby.impl.sql.execute.operations.export.ExportOperatio
 import com.splicemachine.derby.impl.sql.execute.dvd.*;
 import com.splicemachine.derby.serialization.ActivationSerializer;
 import com.splicemachine.derby.serialization.SpliceObserverInstructions;
+import com.splicemachine.derby.impl.kryo.RowBatchSerializer;
 import com.splicemachine.derby.impl.kryo.SparkValueRowSerializer;
 import com.splicemachine.derby.impl.sql.execute.actions.DeleteConstantOperation;
 import com.splicemachine.derby.impl.sql.execute.actions.InsertConstantOperation;
@@ -52,6 +53,7 @@ import com.splicemachine.derby.utils.kryo.DataValueDescriptorSerializer;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.pipeline.client.BulkWrite;
 import com.splicemachine.utils.ByteSlice;
+import com.splicemachine.stream.RowBatch;
 import com.splicemachine.utils.kryo.ExternalizableSerializer;
 import de.javakaffee.kryoserializers.UUIDSerializer;
 import de.javakaffee.kryoserializers.UnmodifiableCollectionsSerializer;
@@ -555,12 +557,15 @@ public class SpliceSparkKryoRegistrator implements KryoRegistrator {
         instance.register(AggregateFinisherFunction.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(AntiJoinFunction.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(AntiJoinRestrictionFlatMapFunction.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(BulkInsertRowsFunction.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(BulkLoadPairFunction.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(CogroupAntiJoinRestrictionFlatMapFunction.class,EXTERNALIZABLE_SERIALIZER);
 
 
 
         instance.register(CogroupInnerJoinRestrictionFlatMapFunction.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(CogroupOuterJoinRestrictionFlatMapFunction.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(ConglomerateKVPairFunction.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(ColumnComparator.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(GroupedAggregateRollupFlatMapFunction.class,EXTERNALIZABLE_SERIALIZER);
 
@@ -662,5 +667,6 @@ public class SpliceSparkKryoRegistrator implements KryoRegistrator {
         instance.register(RowPartition.class, EXTERNALIZABLE_SERIALIZER);
         instance.register(HalfMergeSortJoinOperation.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(HalfMergeSortLeftOuterJoinOperation.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(RowBatch.class, new RowBatchSerializer());
     }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.RowLocation;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.derby.utils.EngineUtils;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.stream.RowBatch;
+import com.splicemachine.utils.IntArrays;
+
+import java.util.Arrays;
+
+/**
+ * Serializes a {@link RowBatch}.
+ *
+ * When every row in the batch is a plain {@link ValueRow} (or a {@link LocatedRow} wrapping one) with the same
+ * column types, the column format ids are written once for the whole batch, and each row is written in the
+ * native row encoding. Any other batch falls back to writing each row through Kryo.
+ */
+public class RowBatchSerializer extends Serializer<RowBatch> {
+    private static final byte GENERIC = 0;
+    private static final byte EXEC_ROW = 1;
+    private static final byte LOCATED_ROW = 2;
+
+    // row locations are written as their length plus LOCATION_OFFSET, or one of these markers
+    private static final int NO_LOCATION = 0;
+    private static final int EMPTY_LOCATION = 1;
+    private static final int LOCATION_OFFSET = 2;
+
+    @Override
+    public void write(Kryo kryo, Output output, RowBatch batch) {
+        int size = batch.size();
+        output.writeInt(size, true);
+        int[] formatIds = size > 0 ? nativeFormatIds(batch) : null;
+        if (formatIds == null) {
+            output.writeByte(GENERIC);
+            for (int i = 0; i < size; i++) {
+                kryo.writeClassAndObject(output, batch.get(i));
+            }
+            return;
+        }
+
+        boolean located = batch.get(0) instanceof LocatedRow;
+        output.writeByte(located ? LOCATED_ROW : EXEC_ROW);
+        output.writeInt(formatIds.length, true);
+        for (int formatId : formatIds) {
+            output.writeInt(formatId, true);
+        }
+        DataHash encoder = getEncoder(formatIds);
+        try {
+            for (int i = 0; i < size; i++) {
+                ExecRow row;
+                if (located) {
+                    LocatedRow locatedRow = (LocatedRow) batch.get(i);
+                    RowLocation rowLocation = locatedRow.getRowLocation();
+                    byte[] location = rowLocation != null ? rowLocation.getBytes() : null;
+                    if (rowLocation == null) {
+                        output.writeInt(NO_LOCATION, true);
+                    } else if (location == null) {
+                        output.writeInt(EMPTY_LOCATION, true);
+                    } else {
+                        output.writeInt(location.length + LOCATION_OFFSET, true);
+                        output.writeBytes(location);
+                    }
+                    row = locatedRow.getRow();
+                } else {
+                    row = (ExecRow) batch.get(i);
+                }
+                encoder.setRow(row);
+                byte[] encoded = encoder.encode();
+                output.writeInt(encoded.length, true);
+                output.writeBytes(encoded);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Exception while serializing row batch", e);
+        }
+    }
+
+    @Override
+    public RowBatch read(Kryo kryo, Input input, Class<RowBatch> type) {
+        int size = input.readInt(true);
+        RowBatch batch = new RowBatch(size);
+        byte kind = input.readByte();
+        if (kind == GENERIC) {
+            for (int i = 0; i < size; i++) {
+                batch.add(kryo.readClassAndObject(input));
+            }
+            return batch;
+        }
+
+        int numColumns = input.readInt(true);
+        int[] formatIds = new int[numColumns];
+        ExecRow template = new ValueRow(numColumns);
+        DataValueDescriptor[] templateColumns = template.getRowArray();
+        for (int i = 0; i < numColumns; i++) {
+            formatIds[i] = input.readInt(true);
+            templateColumns[i] = SparkValueRowSerializer.getDVD(formatIds[i]);
+        }
+        KeyHashDecoder decoder = getEncoder(formatIds).getDecoder();
+        try {
+            for (int i = 0; i < size; i++) {
+                RowLocation rowLocation = null;
+                if (kind == LOCATED_ROW) {
+                    int locationLength = input.readInt(true);
+                    if (locationLength == EMPTY_LOCATION)
+                        rowLocation = new HBaseRowLocation();
+                    else if (locationLength >= LOCATION_OFFSET)
+                        rowLocation = new HBaseRowLocation(input.readBytes(locationLength - LOCATION_OFFSET));
+                }
+                ExecRow row = template.getNewNullRow();
+                int length = input.readInt(true);
+                decoder.set(input.readBytes(length), 0, length);
+                decoder.decode(row);
+                batch.add(kind == LOCATED_ROW ? new LocatedRow(rowLocation, row) : row);
+            }
+        } catch (StandardException e) {
+            throw new RuntimeException("Exception while deserializing row batch with template " + template, e);
+        }
+        return batch;
+    }
+
+    /**
+     * @return the format ids shared by every row in the batch, or null if the batch can't be written
+     * in the native row encoding.
+     */
+    private static int[] nativeFormatIds(RowBatch batch) {
+        Object first = batch.get(0);
+        boolean located = first instanceof LocatedRow;
+        int[] formatIds = null;
+        for (int i = 0; i < batch.size(); i++) {
+            Object next = batch.get(i);
+            ExecRow row;
+            if (located) {
+                if (!(next instanceof LocatedRow)) return null;
+                LocatedRow locatedRow = (LocatedRow) next;
+                RowLocation rowLocation = locatedRow.getRowLocation();
+                if (rowLocation != null && !(rowLocation instanceof HBaseRowLocation)) return null;
+                row = locatedRow.getRow();
+            } else if (next instanceof ExecRow) {
+                row = (ExecRow) next;
+            } else {
+                return null;
+            }
+            if (row == null || row.getClass() != ValueRow.class) return null;
+            for (DataValueDescriptor dvd : row.getRowArray()) {
+                if (dvd == null) return null;
+            }
+
+            int[] rowFormatIds = EngineUtils.getFormatIds(row.getRowArray());
+            if (formatIds == null) {
+                for (int formatId : rowFormatIds) {
+                    // user types may not be in the native encoding, so let Kryo deal with them
+                    if (formatId == StoredFormatIds.SQL_USERTYPE_ID_V3) return null;
+                }
+                formatIds = rowFormatIds;
+            } else if (!Arrays.equals(formatIds, rowFormatIds)) {
+                return null;
+            }
+        }
+        return formatIds;
+    }
+
+    private static DataHash getEncoder(int[] formatIds) {
+        DataValueDescriptor[] dvds = new DataValueDescriptor[formatIds.length];
+        for (int i = 0; i < formatIds.length; i++) {
+            dvds[i] = SparkValueRowSerializer.getDVD(formatIds[i]);
+        }
+        return BareKeyHash.encoder(IntArrays.count(formatIds.length), null,
+                VersionedSerializers.latestVersion(false).getSerializers(dvds));
+    }
+}
@@ -174,7 +174,7 @@ public abstract class SparkValueRowSerializer<T extends ExecRow> extends Seriali
         return instance;
     }
 
-    private static DataValueDescriptor getDVD(int formatId) {
+    static DataValueDescriptor getDVD(int formatId) {
         if (formatId == StoredFormatIds.SQL_DECIMAL_ID) {
             return new SQLDecimal();
         } else {
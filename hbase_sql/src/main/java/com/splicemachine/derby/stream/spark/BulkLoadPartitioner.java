@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import com.splicemachine.primitives.Bytes;
+import org.apache.spark.Partitioner;
+import scala.Tuple2;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Assigns each (conglomerate, row key) pair of a bulk load to the partition which generates the storage
+ * file for its target region. Every conglomerate owns a contiguous range of partitions, one per split.
+ */
+public class BulkLoadPartitioner extends Partitioner {
+    private static final long serialVersionUID = 1l;
+    private final long[] conglomerates;
+    private final byte[][][] splitKeys;
+    private final int[] offsets;
+    private final int numPartitions;
+
+    /**
+     * @param conglomerates the sorted destination conglomerates
+     * @param splitKeys the sorted split keys of each conglomerate, excluding the empty start key
+     */
+    public BulkLoadPartitioner(long[] conglomerates, List<byte[][]> splitKeys) {
+        this.conglomerates = conglomerates;
+        this.splitKeys = splitKeys.toArray(new byte[splitKeys.size()][][]);
+        this.offsets = new int[conglomerates.length];
+        int n = 0;
+        for (int i = 0; i < conglomerates.length; i++) {
+            offsets[i] = n;
+            n += this.splitKeys[i].length + 1;
+        }
+        this.numPartitions = n;
+    }
+
+    @Override
+    public int numPartitions() {
+        return numPartitions;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int getPartition(Object key) {
+        Tuple2<Long, byte[]> k = (Tuple2<Long, byte[]>) key;
+        int c = Arrays.binarySearch(conglomerates, k._1());
+        assert c >= 0 : "Unknown conglomerate " + k._1();
+        byte[][] splits = splitKeys[c];
+        // number of split keys which are <= the row key
+        int low = 0, high = splits.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Bytes.BASE_COMPARATOR.compare(splits[mid], k._2()) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return offsets[c] + low;
+    }
+
+    /**
+     * Orders keys by conglomerate, then by row key, which is the order storage files must be written in.
+     */
+    public static class KeyComparator implements Comparator<Tuple2<Long, byte[]>>, Serializable {
+        private static final long serialVersionUID = 1l;
+
+        @Override
+        public int compare(Tuple2<Long, byte[]> o1, Tuple2<Long, byte[]> o2) {
+            int c = Long.compare(o1._1(), o2._1());
+            if (c != 0)
+                return c;
+            return Bytes.BASE_COMPARATOR.compare(o1._2(), o2._2());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.ErrorState;
+import com.splicemachine.pipeline.constraint.ConstraintContext;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.constants.SIConstants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.spark.api.java.function.Function2;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Writes one sorted partition of a bulk load into a storage file, laid out as
+ * {@code <directory>/<conglomerate>/<family>/part-<partition>} so that each conglomerate's
+ * directory can be handed to the bulk loader as-is.
+ *
+ * Every cell is written with the loading transaction's id as its version, exactly as the write
+ * pipeline would write it. Keys arrive sorted, so a duplicate key among the loaded rows is the same
+ * as the previous key, and is reported as a violation of the conglomerate's unique constraint.
+ */
+public class HFileGenerationFunction implements Function2<Integer, Iterator<Tuple2<Tuple2<Long, byte[]>, KVPair>>, Iterator<HFileGenerationFunction.BulkLoadFile>> {
+    private static final long serialVersionUID = 1l;
+    private final String directory;
+    private final long txnId;
+    private final String compression;
+    private final HashMap<Long, ConstraintContext> uniqueConstraints;
+
+    public HFileGenerationFunction(String directory, long txnId, String compression,
+                                   HashMap<Long, ConstraintContext> uniqueConstraints) {
+        this.directory = directory;
+        this.txnId = txnId;
+        this.compression = compression;
+        this.uniqueConstraints = uniqueConstraints;
+    }
+
+    @Override
+    public Iterator<BulkLoadFile> call(Integer partition, Iterator<Tuple2<Tuple2<Long, byte[]>, KVPair>> rows) throws Exception {
+        if (!rows.hasNext())
+            return Collections.emptyIterator();
+        Tuple2<Tuple2<Long, byte[]>, KVPair> row = rows.next();
+        long conglomerate = row._1()._1();
+        Configuration conf = HConfiguration.unwrapDelegate();
+        Path path = new Path(new Path(new Path(directory, Long.toString(conglomerate)), SIConstants.DEFAULT_FAMILY_NAME),
+                "part-" + partition);
+        FileSystem fs = path.getFileSystem(conf);
+        HFileContext context = new HFileContextBuilder()
+                .withCompression(Compression.getCompressionAlgorithmByName(compression))
+                .build();
+        StoreFile.Writer writer = new StoreFile.WriterBuilder(conf, new CacheConfig(conf), fs)
+                .withFilePath(path)
+                .withFileContext(context)
+                .withComparator(KeyValue.COMPARATOR)
+                .withBloomType(BloomType.NONE)
+                .build();
+        long count = 0;
+        long bytes = 0;
+        byte[] lastKey = null;
+        try {
+            while (true) {
+                KVPair pair = row._2();
+                byte[] key = pair.getRowKey();
+                if (lastKey != null && Bytes.equals(lastKey, key))
+                    throw duplicateKey(conglomerate, key);
+                KeyValue kv = new KeyValue(key, SIConstants.DEFAULT_FAMILY_BYTES, SIConstants.PACKED_COLUMN_BYTES,
+                        txnId, KeyValue.Type.Put, pair.getValue());
+                writer.append(kv);
+                count++;
+                bytes += kv.getLength();
+                lastKey = key;
+                if (!rows.hasNext())
+                    break;
+                row = rows.next();
+            }
+            writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY, Bytes.toBytes(System.currentTimeMillis()));
+        } finally {
+            writer.close();
+        }
+        return Collections.singletonList(new BulkLoadFile(conglomerate, count, bytes)).iterator();
+    }
+
+    private Exception duplicateKey(long conglomerate, byte[] key) {
+        ConstraintContext constraint = uniqueConstraints.get(conglomerate);
+        if (constraint == null)
+            return new IOException("Duplicate row key " + Bytes.toStringBinary(key) + " in conglomerate " + conglomerate);
+        return ErrorState.LANG_DUPLICATE_KEY_CONSTRAINT.newException((Object[]) constraint.getMessages());
+    }
+
+    /**
+     * Summary of a single generated storage file.
+     */
+    public static class BulkLoadFile implements Serializable {
+        private static final long serialVersionUID = 1l;
+        public final long conglomerate;
+        public final long rows;
+        public final long bytes;
+
+        public BulkLoadFile(long conglomerate, long rows, long bytes) {
+            this.conglomerate = conglomerate;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.hbase.HBaseConnectionFactory;
+import com.splicemachine.access.hbase.HBaseTableInfoFactory;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.SpliceSpark;
+import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.iapi.TableWriter;
+import com.splicemachine.derby.stream.output.DataSetWriter;
+import com.splicemachine.derby.stream.output.direct.DirectPipelineWriter;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.ErrorState;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.pipeline.constraint.ConstraintContext;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.Partition;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.log4j.Logger;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.function.PairFunction;
+import org.apache.spark.storage.StorageLevel;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk loads KVPairs keyed by destination conglomerate.
+ *
+ * The pairs are range partitioned by the split points of each conglomerate, sorted within each partition,
+ * and written into storage files which are then handed to the region servers by {@link LoadIncrementalHFiles}.
+ * Split points are taken either from a sample of the keys being loaded, or from the current regions of
+ * each table. The cells carry the loading transaction's id as their version, so the loaded rows become
+ * visible when that transaction commits and are discarded with it if it rolls back.
+ */
+public class SparkBulkDataSetWriter implements DataSetWriter{
+    private static final Logger LOG=Logger.getLogger(SparkBulkDataSetWriter.class);
+    /* The number of keys to sample when choosing split points */
+    private static final int SAMPLE_SIZE=100000;
+
+    private final JavaPairRDD<Long, KVPair> rdd;
+    private final OperationContext opContext;
+    private final String stagingDirectory;
+    private final boolean sampling;
+    private final Map<Long, ConstraintContext> uniqueConstraints;
+    private final long destConglomerate;
+    private TxnView txn;
+
+    public SparkBulkDataSetWriter(JavaPairRDD<Long, KVPair> rdd,
+                                  OperationContext opContext,
+                                  String stagingDirectory,
+                                  boolean sampling,
+                                  Map<Long, ConstraintContext> uniqueConstraints,
+                                  long destConglomerate,
+                                  TxnView txn){
+        this.rdd=rdd;
+        this.opContext=opContext;
+        this.stagingDirectory=stagingDirectory;
+        this.sampling=sampling;
+        this.uniqueConstraints=uniqueConstraints;
+        this.destConglomerate=destConglomerate;
+        this.txn=txn;
+    }
+
+    @Override
+    public DataSet<LocatedRow> write() throws StandardException{
+        long start=System.currentTimeMillis();
+        SConfiguration config=HConfiguration.getConfiguration();
+        Configuration conf=HConfiguration.unwrapDelegate();
+        Path jobDirectory=new Path(stagingDirectory,"bulkload-"+txn.getTxnId()+"-"+start);
+        rdd.persist(StorageLevel.MEMORY_AND_DISK_SER());
+        try{
+            Map<Long, ?> counts=rdd.countByKey();
+            long[] conglomerates=new long[counts.size()];
+            long total=0;
+            int i=0;
+            for(Map.Entry<Long, ?> entry : counts.entrySet()){
+                conglomerates[i++]=entry.getKey();
+                total+=((Number)entry.getValue()).longValue();
+            }
+            Arrays.sort(conglomerates);
+
+            List<HFileGenerationFunction.BulkLoadFile> files=Collections.emptyList();
+            if(conglomerates.length>0){
+                List<byte[][]> splitKeys=sampling?
+                        sampleSplitKeys(conglomerates,counts,total,config):
+                        regionSplitKeys(conglomerates);
+                BulkLoadPartitioner partitioner=new BulkLoadPartitioner(conglomerates,splitKeys);
+                files=rdd.mapToPair(new RowKeyFunction())
+                        .repartitionAndSortWithinPartitions(partitioner,new BulkLoadPartitioner.KeyComparator())
+                        .mapPartitionsWithIndex(new HFileGenerationFunction(jobDirectory.toString(),txn.getTxnId(),
+                                config.getCompressionAlgorithm(),new HashMap<>(uniqueConstraints)),false)
+                        .collect();
+            }
+
+            ValueRow valueRow=new ValueRow(3);
+            valueRow.setColumn(2,new SQLLongint());
+            valueRow.setColumn(3,new SQLVarchar());
+            if(opContext!=null && opContext.getOperation() instanceof InsertOperation && opContext.isPermissive()){
+                long numBadRecords=opContext.getBadRecords();
+                valueRow.setColumn(2,new SQLLongint(numBadRecords));
+                if(numBadRecords>0){
+                    String fileName=opContext.getBadRecordFileName();
+                    valueRow.setColumn(3,new SQLVarchar(fileName));
+                    if(((InsertOperation)opContext.getOperation()).isAboveFailThreshold(numBadRecords)){
+                        throw ErrorState.LANG_IMPORT_TOO_MANY_BAD_RECORDS.newException(fileName);
+                    }
+                }
+            }
+
+            long rows=0;
+            long bytes=0;
+            for(HFileGenerationFunction.BulkLoadFile file : files){
+                if(file.conglomerate==destConglomerate)
+                    rows+=file.rows;
+                bytes+=file.bytes;
+            }
+            load(conglomerates,jobDirectory,conf,config);
+
+            long elapsed=Math.max(1,System.currentTimeMillis()-start);
+            LOG.info(String.format("Bulk loaded %d rows (%d bytes in %d files across %d conglomerates) into conglomerate %d in %d ms: %.1f rows/sec, %.1f bytes/sec",
+                    rows,bytes,files.size(),conglomerates.length,destConglomerate,elapsed,rows*1000d/elapsed,bytes*1000d/elapsed));
+            valueRow.setColumn(1,new SQLLongint(rows));
+            return new SparkDataSet<>(SpliceSpark.getContext().parallelize(Collections.singletonList(new LocatedRow(valueRow)),1));
+        }catch(Exception e){
+            throw Exceptions.parseException(e);
+        }finally{
+            rdd.unpersist();
+            try{
+                FileSystem fs=jobDirectory.getFileSystem(conf);
+                fs.delete(jobDirectory,true);
+            }catch(IOException e){
+                LOG.warn("Unable to remove bulk load staging directory "+jobDirectory,e);
+            }
+        }
+    }
+
+    /**
+     * Chooses split keys from a sample of the keys being loaded. Each conglomerate is split so that no
+     * storage file exceeds the maximum region size, and so that the load keeps the parallelism of its input.
+     * Tables which are still a single region are also split at the sampled keys, so that the load does not
+     * end up in one region.
+     */
+    private List<byte[][]> sampleSplitKeys(long[] conglomerates,Map<Long, ?> counts,long total,SConfiguration config) throws IOException{
+        double fraction=Math.min(1d,(double)SAMPLE_SIZE/Math.max(1,total));
+        List<Tuple2<Long, Tuple2<byte[], Integer>>> sample=rdd.sample(false,fraction).mapToPair(new SampleFunction()).collect();
+        Map<Long, List<byte[]>> keys=new HashMap<>();
+        Map<Long, Long> sampledBytes=new HashMap<>();
+        for(Tuple2<Long, Tuple2<byte[], Integer>> s : sample){
+            List<byte[]> k=keys.get(s._1());
+            if(k==null){
+                k=new ArrayList<>();
+                keys.put(s._1(),k);
+                sampledBytes.put(s._1(),0l);
+            }
+            k.add(s._2()._1());
+            sampledBytes.put(s._1(),sampledBytes.get(s._1())+s._2()._2());
+        }
+
+        long maxFileSize=config.getRegionMaxFileSize();
+        int parallelism=rdd.partitions().size();
+        List<byte[][]> splitKeys=new ArrayList<>(conglomerates.length);
+        for(long conglomerate : conglomerates){
+            List<byte[]> k=keys.get(conglomerate);
+            if(k==null){
+                splitKeys.add(new byte[0][]);
+                continue;
+            }
+            Collections.sort(k,Bytes.BASE_COMPARATOR);
+            long rows=((Number)counts.get(conglomerate)).longValue();
+            long estimatedBytes=(long)(sampledBytes.get(conglomerate)*((double)rows/k.size()));
+            int regions=(int)Math.max(1,(estimatedBytes+maxFileSize-1)/maxFileSize);
+            int files=(int)Math.max(regions,(long)parallelism*rows/Math.max(1,total));
+            splitKeys.add(quantiles(k,files));
+            if(regions>1)
+                presplit(conglomerate,quantiles(k,regions));
+        }
+        return splitKeys;
+    }
+
+    /**
+     * @return at most {@code parts-1} distinct, non-empty split keys which divide the sorted keys into
+     *         {@code parts} ranges of about the same size
+     */
+    static byte[][] quantiles(List<byte[]> sortedKeys,int parts){
+        List<byte[]> splits=new ArrayList<>(parts);
+        for(int i=1;i<parts;i++){
+            byte[] key=sortedKeys.get((int)((long)i*sortedKeys.size()/parts));
+            if(key.length>0 && (splits.isEmpty() || Bytes.BASE_COMPARATOR.compare(splits.get(splits.size()-1),key)<0))
+                splits.add(key);
+        }
+        return splits.toArray(new byte[splits.size()][]);
+    }
+
+    private void presplit(long conglomerate,byte[][] splitPoints){
+        if(splitPoints.length==0)
+            return;
+        String table=Long.toString(conglomerate);
+        try(Partition partition=SIDriver.driver().getTableFactory().getTable(table)){
+            if(partition.subPartitions(true).size()>1)
+                return;
+            try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
+                admin.splitTable(table,splitPoints);
+            }
+        }catch(Exception e){
+            // the loader splits storage files along whatever regions exist, so this is only an optimization
+            LOG.warn("Unable to split conglomerate "+conglomerate+" before bulk loading",e);
+        }
+    }
+
+    private List<byte[][]> regionSplitKeys(long[] conglomerates) throws IOException{
+        List<byte[][]> splitKeys=new ArrayList<>(conglomerates.length);
+        for(long conglomerate : conglomerates){
+            try(Partition partition=SIDriver.driver().getTableFactory().getTable(Long.toString(conglomerate))){
+                List<byte[]> starts=new ArrayList<>();
+                for(Partition region : partition.subPartitions(true)){
+                    byte[] startKey=region.getStartKey();
+                    if(startKey!=null && startKey.length>0)
+                        starts.add(startKey);
+                }
+                Collections.sort(starts,Bytes.BASE_COMPARATOR);
+                splitKeys.add(starts.toArray(new byte[starts.size()][]));
+            }
+        }
+        return splitKeys;
+    }
+
+    private void load(long[] conglomerates,Path jobDirectory,Configuration conf,SConfiguration config) throws Exception{
+        FileSystem fs=jobDirectory.getFileSystem(conf);
+        HBaseTableInfoFactory tableInfoFactory=HBaseTableInfoFactory.getInstance(config);
+        LoadIncrementalHFiles loader=new LoadIncrementalHFiles(conf);
+        for(long conglomerate : conglomerates){
+            Path directory=new Path(jobDirectory,Long.toString(conglomerate));
+            if(!fs.exists(directory))
+                continue;
+            try(Table table=HBaseConnectionFactory.getInstance(config).getConnection()
+                    .getTable(tableInfoFactory.getTableInfo(Long.toString(conglomerate)))){
+                loader.doBulkLoad(directory,(HTable)table);
+            }
+        }
+    }
+
+    @Override
+    public void setTxn(TxnView childTxn){
+        this.txn=childTxn;
+    }
+
+    @Override
+    public TableWriter getTableWriter() throws StandardException{
+        return new DirectPipelineWriter(destConglomerate,txn,opContext,true);
+    }
+
+    @Override
+    public TxnView getTxn(){
+        if(txn==null)
+            return opContext.getTxn();
+        else
+            return txn;
+    }
+
+    @Override
+    public byte[] getDestinationTable(){
+        return Bytes.toBytes(destConglomerate);
+    }
+
+    private static class RowKeyFunction implements PairFunction<Tuple2<Long, KVPair>, Tuple2<Long, byte[]>, KVPair>{
+        private static final long serialVersionUID=1l;
+
+        @Override
+        public Tuple2<Tuple2<Long, byte[]>, KVPair> call(Tuple2<Long, KVPair> pair) throws Exception{
+            return new Tuple2<>(new Tuple2<>(pair._1(),pair._2().getRowKey()),pair._2());
+        }
+    }
+
+    private static class SampleFunction implements PairFunction<Tuple2<Long, KVPair>, Long, Tuple2<byte[], Integer>>{
+        private static final long serialVersionUID=1l;
+
+        @Override
+        public Tuple2<Long, Tuple2<byte[], Integer>> call(Tuple2<Long, KVPair> pair) throws Exception{
+            KVPair kvPair=pair._2();
+            return new Tuple2<>(pair._1(),new Tuple2<>(kvPair.getRowKey(),kvPair.getRowKey().length+kvPair.getValue().length));
+        }
+    }
+}
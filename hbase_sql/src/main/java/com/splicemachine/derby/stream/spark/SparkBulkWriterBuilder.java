@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.derby.stream.output.DataSetWriter;
+import com.splicemachine.derby.stream.output.bulk.BulkTableWriterBuilder;
+import com.splicemachine.kvpair.KVPair;
+import org.apache.spark.api.java.JavaPairRDD;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Builds a {@link SparkBulkDataSetWriter}.
+ */
+public class SparkBulkWriterBuilder extends BulkTableWriterBuilder{
+    private JavaPairRDD<Long, KVPair> rdd;
+
+    public SparkBulkWriterBuilder(){
+    }
+
+    public SparkBulkWriterBuilder(JavaPairRDD<Long, KVPair> rdd){
+        this.rdd=rdd;
+    }
+
+    @Override
+    public DataSetWriter build() throws StandardException{
+        assert txn!=null: "Txn is null";
+        assert stagingDirectory!=null: "Staging directory is null";
+        return new SparkBulkDataSetWriter(rdd,opCtx,stagingDirectory,sampling,uniqueConstraints,destConglomerate,txn);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        super.writeExternal(out);
+        out.writeObject(rdd);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        super.readExternal(in);
+        rdd = (JavaPairRDD)in.readObject();
+    }
+}
@@ -209,6 +209,29 @@ public class SparkDataSetProcessor implements DistributedDataSetProcessor, Seria
         }
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public DataSet<byte[]> readTextFileBytes(String path, SpliceOperation op) {
+        try {
+            FileInfo fileInfo = ImportUtils.getImportFileInfo(path);
+            SpliceSpark.pushScope(op != null ? op.getScopeName() + ": " + OperationContext.Scope.READ_TEXT_FILE.displayName() : "");
+            JavaRDD rdd = SpliceSpark.getContext().newAPIHadoopFile(path, SMTextInputFormat.class, LongWritable.class,Text.class,
+                                                                    new Configuration(HConfiguration.unwrapDelegate())).values().map(new Function<Text,byte[]>() {
+                @Override
+                public byte[] call(Text o) throws Exception {
+                    // the record reader reuses its Text
+                    return Arrays.copyOf(o.getBytes(), o.getLength());
+                }
+            });
+            RDDUtils.setAncestorRDDNames(rdd, 1, new String[] {fileInfo.toSummary()}, null);
+            return new SparkDataSet<>(rdd,OperationContext.Scope.READ_TEXT_FILE.displayName());
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        } finally {
+            SpliceSpark.popScope();
+        }
+    }
+
     @Override
     public <K, V> PairDataSet<K, V> getEmptyPair() {
         return new SparkPairDataSet<>(SpliceSpark.getContext().parallelizePairs(Collections.<Tuple2<K,V>>emptyList(), 1));
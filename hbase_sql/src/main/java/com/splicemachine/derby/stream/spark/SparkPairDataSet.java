@@ -25,9 +25,11 @@ import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.PairDataSet;
+import com.splicemachine.derby.stream.output.BulkWriteDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.DataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.InsertDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.UpdateDataSetWriterBuilder;
+import com.splicemachine.kvpair.KVPair;
 import org.apache.spark.api.java.JavaPairRDD;
 import scala.Tuple2;
 import scala.util.Either;
@@ -118,6 +120,12 @@ public class SparkPairDataSet<K,V> implements PairDataSet<K, V>{
         return new SparkPairDataSet<>(rdd2);
     }
 
+    @Override
+    public PairDataSet<K, V> sortByKey(Comparator<K> comparator, String name, long limit) {
+        // the limit is applied after the shuffle on the Spark side
+        return sortByKey(comparator, name);
+    }
+
     @Override
     public PairDataSet<K, V> partitionBy(Partitioner<K> partitioner, Comparator<K> comparator) {
         partitioner.initialize();
@@ -242,6 +250,12 @@ public class SparkPairDataSet<K,V> implements PairDataSet<K, V>{
         return new SparkDirectWriterBuilder<>(wrapExceptions());
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public BulkWriteDataSetWriterBuilder bulkWriteData() throws StandardException{
+        return new SparkBulkWriterBuilder((JavaPairRDD<Long, KVPair>)rdd);
+    }
+
     private void pushScopeIfNeeded(AbstractSpliceFunction function, boolean pushScope, String scopeDetail) {
         if (pushScope) {
             if (function != null && function.operationContext != null)
@@ -17,6 +17,7 @@ package com.splicemachine.olap;
 
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobQueue;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import com.splicemachine.derby.stream.compaction.SparkCompactionFunction;
 import org.apache.commons.codec.binary.Base64;
@@ -88,6 +89,11 @@ public class DistributedCompaction extends DistributedJob{
         return jobGroup;
     }
 
+    @Override
+    public OlapJobQueue getQueue(){
+        return OlapJobQueue.MAINTENANCE;
+    }
+
     @Override
     public int hashCode(){
         return jobGroup.hashCode();
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.olap;
+
+import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobQueue;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Decides when submitted Olap jobs get to run.
+ *
+ * Jobs wait in one of the {@link OlapJobQueue}s until one of the server's job slots is free. When a slot frees up,
+ * it goes to the queue with the fewest running jobs relative to its weight, so a long backlog of batch or maintenance
+ * work can't hold up interactive queries (and vice versa). Within a queue, jobs run in submission order, except that
+ * jobs from a user who is already running the maximum number of jobs are passed over until one of theirs finishes.
+ *
+ * Queries whose estimated cost is above the interactive cost threshold are admitted into the batch queue instead
+ * of the interactive queue.
+ *
+ * A job which streams its results gives up its slot as soon as it starts streaming (see {@link OlapJobStatus#markStreaming()}).
+ * From then on it runs at the pace its client reads the results, and a client which holds several cursors open
+ * without draining them would otherwise keep every slot busy, starving all other jobs (compactions included) and
+ * even the client's own next cursor.
+ */
+class OlapJobScheduler{
+    private static final Logger LOG=Logger.getLogger(OlapJobScheduler.class);
+    private static final OlapJobQueue[] QUEUES=OlapJobQueue.values();
+
+    private final ExecutorService executionPool;
+    private final int maxRunningJobs;
+    private final int maxJobsPerUser;
+    private final double interactiveCostThreshold;
+    private final int[] weights;
+
+    /*protected by this*/
+    private final ArrayDeque<ScheduledJob>[] pending;
+    private final int[] running;
+    private final Map<String,Integer> runningPerUser=new HashMap<>();
+    private int totalRunning;
+
+    @SuppressWarnings("unchecked")
+    OlapJobScheduler(ExecutorService executionPool,
+                     int maxRunningJobs,
+                     int maxJobsPerUser,
+                     double interactiveCostThreshold,
+                     int interactiveWeight,
+                     int batchWeight,
+                     int maintenanceWeight){
+        this.executionPool=executionPool;
+        this.maxRunningJobs=Math.max(1,maxRunningJobs);
+        this.maxJobsPerUser=maxJobsPerUser;
+        this.interactiveCostThreshold=interactiveCostThreshold;
+        this.weights=new int[QUEUES.length];
+        this.weights[OlapJobQueue.INTERACTIVE.ordinal()]=Math.max(1,interactiveWeight);
+        this.weights[OlapJobQueue.BATCH.ordinal()]=Math.max(1,batchWeight);
+        this.weights[OlapJobQueue.MAINTENANCE.ordinal()]=Math.max(1,maintenanceWeight);
+        this.pending=new ArrayDeque[QUEUES.length];
+        for(int i=0;i<pending.length;i++){
+            pending[i]=new ArrayDeque<>();
+        }
+        this.running=new int[QUEUES.length];
+    }
+
+    /**
+     * Queue the job, and start it right away if there's a free slot for it.
+     *
+     * @return the queue the job was placed in
+     */
+    OlapJobQueue submit(DistributedJob job,OlapJobStatus jobStatus,Callable<Void> callable){
+        OlapJobQueue queue=chooseQueue(job);
+        jobStatus.markQueued(queue);
+        ScheduledJob scheduledJob=new ScheduledJob(job.getUniqueName(),queue,job.getUserId(),jobStatus,callable);
+        synchronized(this){
+            pending[queue.ordinal()].add(scheduledJob);
+            dispatch();
+        }
+        return queue;
+    }
+
+    OlapJobQueue chooseQueue(DistributedJob job){
+        OlapJobQueue queue=job.getQueue();
+        if(queue==null) return OlapJobQueue.BATCH;
+        if(queue==OlapJobQueue.INTERACTIVE && interactiveCostThreshold>0 && job.getEstimatedCost()>interactiveCostThreshold){
+            if(LOG.isDebugEnabled())
+                LOG.debug("Job "+job.getUniqueName()+" has estimated cost "+job.getEstimatedCost()+", scheduling it as a batch job");
+            return OlapJobQueue.BATCH;
+        }
+        return queue;
+    }
+
+    synchronized int getRunningJobs(OlapJobQueue queue){
+        return running[queue.ordinal()];
+    }
+
+    synchronized int getPendingJobs(OlapJobQueue queue){
+        return pending[queue.ordinal()].size();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * Start as many jobs as we have free slots for. Must be called while holding the lock.
+     */
+    private void dispatch(){
+        while(totalRunning<maxRunningJobs){
+            ScheduledJob next=pollNext();
+            if(next==null) return;
+            start(next);
+        }
+    }
+
+    private ScheduledJob pollNext(){
+        ScheduledJob best=null;
+        double bestShare=Double.MAX_VALUE;
+        for(int q=0;q<QUEUES.length;q++){
+            double share=running[q]/(double)weights[q];
+            if(share>=bestShare) continue; //ties go to the more latency sensitive queue
+            ScheduledJob candidate=firstRunnable(pending[q]);
+            if(candidate!=null){
+                best=candidate;
+                bestShare=share;
+            }
+        }
+        if(best!=null)
+            pending[best.queue.ordinal()].remove(best);
+        return best;
+    }
+
+    private ScheduledJob firstRunnable(ArrayDeque<ScheduledJob> queue){
+        Iterator<ScheduledJob> it=queue.iterator();
+        while(it.hasNext()){
+            ScheduledJob job=it.next();
+            if(job.status.currentState().isFinal()){
+                //cancelled, or the client went away while the job was waiting
+                it.remove();
+                continue;
+            }
+            if(maxJobsPerUser>0 && job.userId!=null){
+                Integer userJobs=runningPerUser.get(job.userId);
+                if(userJobs!=null && userJobs>=maxJobsPerUser) continue;
+            }
+            return job;
+        }
+        return null;
+    }
+
+    private void start(final ScheduledJob job){
+        running[job.queue.ordinal()]++;
+        totalRunning++;
+        if(job.userId!=null){
+            Integer userJobs=runningPerUser.get(job.userId);
+            runningPerUser.put(job.userId,userJobs==null?1:userJobs+1);
+        }
+        job.status.markStarted();
+        job.status.setStreamingListener(new Runnable(){
+            @Override
+            public void run(){
+                release(job);
+            }
+        });
+        if(LOG.isDebugEnabled())
+            LOG.debug("Starting job "+job.name+" from queue "+job.queue+" after waiting "+job.status.getQueueWaitTime()+" ms");
+        try{
+            executionPool.submit(new Callable<Void>(){
+                @Override
+                public Void call() throws Exception{
+                    try{
+                        return job.callable.call();
+                    }catch(Throwable t){
+                        LOG.error("Uncaught exception",t);
+                        if(job.status.isRunning()){
+                            job.status.markCompleted(new FailedOlapResult(t));
+                        }
+                    }finally{
+                        finished(job);
+                    }
+                    return null;
+                }
+            });
+        }catch(RejectedExecutionException ree){
+            //the server is shutting down, so the job will never run. Don't dispatch here, we're already dispatching
+            LOG.warn("Could not start job "+job.name,ree);
+            freeSlot(job);
+            job.status.markFinished();
+            job.status.markCompleted(new FailedOlapResult(ree));
+        }
+    }
+
+    private synchronized void finished(ScheduledJob job){
+        job.status.markFinished();
+        if(LOG.isDebugEnabled())
+            LOG.debug("Job "+job.name+" from queue "+job.queue+" waited "+job.status.getQueueWaitTime()+
+                    " ms and ran for "+job.status.getRunningTime()+" ms");
+        release(job);
+    }
+
+    /*
+     * Give up the job's slot, and start the next job in its place. A job releases its slot when it starts
+     * streaming, or when it finishes, whichever comes first.
+     */
+    private synchronized void release(ScheduledJob job){
+        if(freeSlot(job))
+            dispatch();
+    }
+
+    /*
+     * Give back the job's per-queue and per-user slots. Must be called while holding the lock.
+     *
+     * @return false if the job had already given up its slot
+     */
+    private boolean freeSlot(ScheduledJob job){
+        if(job.released) return false;
+        job.released=true;
+        running[job.queue.ordinal()]--;
+        totalRunning--;
+        if(job.userId!=null){
+            Integer userJobs=runningPerUser.get(job.userId);
+            if(userJobs==null || userJobs<=1)
+                runningPerUser.remove(job.userId);
+            else
+                runningPerUser.put(job.userId,userJobs-1);
+        }
+        return true;
+    }
+
+    private static class ScheduledJob{
+        final String name;
+        final OlapJobQueue queue;
+        final String userId;
+        final OlapJobStatus status;
+        final Callable<Void> callable;
+        boolean released; //protected by the scheduler
+
+        ScheduledJob(String name,OlapJobQueue queue,String userId,OlapJobStatus status,Callable<Void> callable){
+            this.name=name;
+            this.queue=queue;
+            this.userId=userId;
+            this.status=status;
+            this.callable=callable;
+        }
+    }
+}
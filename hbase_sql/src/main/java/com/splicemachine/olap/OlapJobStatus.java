@@ -18,6 +18,7 @@ package com.splicemachine.olap;
 import akka.remote.FailureDetector;
 import akka.remote.FailureDetector$;
 import akka.remote.PhiAccrualFailureDetector;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobQueue;
 import com.splicemachine.derby.iapi.sql.olap.OlapResult;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import scala.concurrent.duration.FiniteDuration;
@@ -37,6 +38,14 @@ public class OlapJobStatus implements OlapStatus{
     private volatile AtomicReference<OlapStatus.State> currentState = new AtomicReference<>(State.NOT_SUBMITTED);
     private volatile OlapResult results;
 
+    /*scheduling statistics, in wall-clock milliseconds*/
+    private volatile OlapJobQueue queue;
+    private volatile long queuedTime = -1L;
+    private volatile long startTime = -1L;
+    private volatile long finishTime = -1L;
+    /*run (once) when the job starts streaming its results*/
+    private final AtomicReference<Runnable> streamingListener = new AtomicReference<>();
+
     public OlapJobStatus(long tickTime){
         //TODO -sf- remove the constants
         FiniteDuration maxHeartbeatInterval = FiniteDuration.apply(10*tickTime,TimeUnit.MILLISECONDS);
@@ -137,6 +146,40 @@ public class OlapJobStatus implements OlapStatus{
         return true;
     }
 
+    @Override
+    public void markStreaming(){
+        Runnable listener = streamingListener.getAndSet(null);
+        if(listener!=null)
+            listener.run();
+    }
+
+    /**
+     * @return the queue this job was scheduled in, or {@code null} if it hasn't been scheduled
+     */
+    public OlapJobQueue getQueue(){
+        return queue;
+    }
+
+    /**
+     * @return how long this job is waiting (or waited) in its queue before being given a thread, in milliseconds
+     */
+    public long getQueueWaitTime(){
+        long queued = queuedTime;
+        if(queued<0) return 0L;
+        long started = startTime;
+        return (started<0 ? System.currentTimeMillis() : started)-queued;
+    }
+
+    /**
+     * @return how long this job has been (or was) executing, in milliseconds
+     */
+    public long getRunningTime(){
+        long started = startTime;
+        if(started<0) return 0L;
+        long finished = finishTime;
+        return (finished<0 ? System.currentTimeMillis() : finished)-started;
+    }
+
     @Override
     public boolean isRunning(){
         /*
@@ -147,6 +190,23 @@ public class OlapJobStatus implements OlapStatus{
 
     /*package-private methods*/
     /* ****************************************************************************************************************/
+    void markQueued(OlapJobQueue queue){
+        this.queue = queue;
+        this.queuedTime = System.currentTimeMillis();
+    }
+
+    void markStarted(){
+        this.startTime = System.currentTimeMillis();
+    }
+
+    void markFinished(){
+        this.finishTime = System.currentTimeMillis();
+    }
+
+    void setStreamingListener(Runnable listener){
+        streamingListener.set(listener);
+    }
+
     State currentState(){
         /*
          * Get the current state of the job. If the job has timed out because the waiting client has died (or
@@ -20,11 +20,11 @@ import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.olap.OlapMessage;
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobQueue;
 import org.apache.log4j.Logger;
 import org.sparkproject.jboss.netty.channel.*;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 
@@ -35,7 +35,7 @@ import java.util.concurrent.ThreadFactory;
 class OlapRequestHandler extends AbstractOlapHandler{
     private static final Logger LOG =Logger.getLogger(OlapRequestHandler.class);
 
-    private final ExecutorService executionPool;
+    private final OlapJobScheduler scheduler;
     private final Clock clock;
     private final long clientCheckTimeMs;
 
@@ -44,7 +44,7 @@ class OlapRequestHandler extends AbstractOlapHandler{
                        Clock clock,
                        long clientCheckTimeMs){
         super(jobRegistry);
-        this.executionPool=configureThreadPool(config);
+        this.scheduler=configureScheduler(config);
         this.clock=clock;
         this.clientCheckTimeMs=clientCheckTimeMs;
     }
@@ -93,22 +93,9 @@ class OlapRequestHandler extends AbstractOlapHandler{
         }
         final Callable<Void> job=jr.toCallable(jobStatus,clock,clientCheckTimeMs);
 
-        executionPool.submit(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                try {
-                    return job.call();
-                } catch (Throwable t) {
-                    LOG.error("Uncaught exception", t);
-                    if (jobStatus.isRunning()) {
-                        jobStatus.markCompleted(new FailedOlapResult(t));
-                    }
-                }
-                return null;
-            }
-        });
+        OlapJobQueue queue=scheduler.submit(jr,jobStatus,job);
         if(LOG.isTraceEnabled())
-            LOG.trace("Job "+ jobRequest.getUniqueName()+" successfully submitted");
+            LOG.trace("Job "+ jobRequest.getUniqueName()+" successfully submitted to the "+queue+" queue");
         writeResponse(e,jr.getUniqueName(),jobStatus);
     }
 
@@ -118,9 +105,15 @@ class OlapRequestHandler extends AbstractOlapHandler{
     /*private helper methods*/
 
 
-    private ExecutorService configureThreadPool(SConfiguration config){
+    private OlapJobScheduler configureScheduler(SConfiguration config){
         //TODO -sf- bound this by the number of possible Spark tasks which can run in YARN
         ThreadFactory tf =new ThreadFactoryBuilder().setDaemon(true).setNameFormat("olap-worker-%d").build();
-        return Executors.newCachedThreadPool(tf);
+        return new OlapJobScheduler(Executors.newCachedThreadPool(tf),
+                config.getOlapServerThreads(),
+                config.getOlapServerMaxJobsPerUser(),
+                config.getOlapServerInteractiveCostThreshold(),
+                config.getOlapServerInteractiveWeight(),
+                config.getOlapServerBatchWeight(),
+                config.getOlapServerMaintenanceWeight());
     }
 }
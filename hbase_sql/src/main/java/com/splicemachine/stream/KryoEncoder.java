@@ -28,6 +28,7 @@ public class KryoEncoder extends MessageToByteEncoder<Object> {
     private final Kryo kryo;
     ByteArrayOutputStream outStream;
     Output output;
+    private volatile long bytesWritten;
 
     public KryoEncoder(Kryo kryo) {
         this.kryo = kryo;
@@ -43,8 +44,16 @@ public class KryoEncoder extends MessageToByteEncoder<Object> {
         output.flush();
 
         byte[] outArray = outStream.toByteArray();
-        out.writeShort(outArray.length);
+        out.writeInt(outArray.length);
         out.writeBytes(outArray);
+        bytesWritten += outArray.length + 4;
+    }
+
+    /**
+     * @return the number of bytes this encoder has written to the channel, including framing
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
     }
 
 }
@@ -88,6 +88,7 @@ public class QueryJob implements Callable<Void>{
 
         StreamableRDD streamableRDD = new StreamableRDD<>(sparkDataSet.rdd, context, uuid, clientHost, clientPort,
                 queryRequest.streamingBatches, queryRequest.streamingBatchSize);
+        status.markStreaming();
         streamableRDD.submit();
 
         status.markCompleted(new QueryResult(numPartitions));
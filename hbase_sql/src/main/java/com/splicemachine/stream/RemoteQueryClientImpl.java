@@ -111,7 +111,7 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
             String userId = activation.getLanguageConnectionContext().getCurrentUserId(activation);
 
             RemoteQueryJob jobRequest = new RemoteQueryJob(ah, root.getResultSetNumber(), uuid, host, port, userId, sql,
-                    streamingBatches, streamingBatchSize);
+                    streamingBatches, streamingBatchSize, root.getEstimatedCost());
             olapFuture = EngineDriver.driver().getOlapClient().submit(jobRequest);
             olapFuture.addListener(new Runnable() {
                 @Override
@@ -17,6 +17,7 @@ package com.splicemachine.stream;
 
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobQueue;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import com.splicemachine.derby.impl.sql.execute.operations.SpliceBaseOperation;
 import com.splicemachine.derby.stream.ActivationHolder;
@@ -37,11 +38,12 @@ public class RemoteQueryJob extends DistributedJob {
     String sql;
     int streamingBatches;
     int streamingBatchSize;
+    double estimatedCost;
 
 
     public RemoteQueryJob(ActivationHolder ah, int rootResultSetNumber, UUID uuid, String host, int port,
                           String userId, String sql,
-                          int streamingBatches, int streamingBatchSize) {
+                          int streamingBatches, int streamingBatchSize, double estimatedCost) {
         this.ah = ah;
         this.rootResultSetNumber = rootResultSetNumber;
         this.uuid = uuid;
@@ -51,6 +53,7 @@ public class RemoteQueryJob extends DistributedJob {
         this.sql = sql;
         this.streamingBatches = streamingBatches;
         this.streamingBatchSize = streamingBatchSize;
+        this.estimatedCost = estimatedCost;
     }
 
     @Override
@@ -62,4 +65,19 @@ public class RemoteQueryJob extends DistributedJob {
     public String getName() {
         return "query-"+uuid;
     }
+
+    @Override
+    public OlapJobQueue getQueue() {
+        return OlapJobQueue.INTERACTIVE;
+    }
+
+    @Override
+    public String getUserId() {
+        return userId;
+    }
+
+    @Override
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
 }
@@ -18,11 +18,15 @@ package com.splicemachine.stream;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.util.DefaultClassResolver;
 import com.esotericsoftware.kryo.util.MapReferenceResolver;
+import com.splicemachine.derby.impl.SpliceSpark;
 import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
 import com.splicemachine.derby.stream.ActivationHolder;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.spark.SparkOperationContext;
+import com.splicemachine.stream.accumulator.LongAccumulatorParam;
 import org.apache.log4j.Logger;
+import org.apache.spark.Accumulator;
+import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.Function2;
 import org.apache.spark.serializer.KryoRegistrator;
 import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
@@ -40,6 +44,12 @@ import java.util.UUID;
 import java.util.concurrent.*;
 
 /**
+ * Streams the rows of one partition to the {@link StreamListener} on the query client.
+ *
+ * Rows are sent in {@link RowBatch}es of up to <code>batchSize</code> rows. Flow control is driven by the client: it
+ * grants credits (in rows) with {@link StreamProtocol.Credit} messages as it consumes data, and we never have more
+ * rows in flight than we have credits for. The time spent waiting for credits is reported as stall time.
+ *
  * Created by dgomezferro on 5/25/16.
  */
 public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements Function2<Integer, Iterator<T>, Iterator<String>>, Serializable {
@@ -52,7 +62,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
     private int numPartitions;
     private String host;
     private int port;
-    private Semaphore permits;
+    private transient Semaphore credits;
     private volatile long offset = 0;
     private volatile long limit = Long.MAX_VALUE;
     private Integer partition;
@@ -61,6 +71,11 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
     private NioEventLoopGroup workerGroup;
     private transient CountDownLatch active;
     private int batches;
+    private transient KryoEncoder encoder;
+    private transient volatile long stallNanos;
+    private Accumulator<Long> bytesStreamed;
+    private Accumulator<Long> stallTime;
+    private Accumulator<Long> streamingTime;
 
     // Serialization
     public ResultStreamer() {
@@ -74,8 +89,10 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         this.numPartitions = numPartitions;
         this.batches = batches;
         this.batchSize = batchSize;
-        this.permits = new Semaphore(batches - 1); // we start with one permit taken
-
+        StreamingAccumulators accumulators = StreamingAccumulators.get();
+        this.bytesStreamed = accumulators.bytesStreamed;
+        this.stallTime = accumulators.stallTime;
+        this.streamingTime = accumulators.streamingTime;
     }
 
     @Override
@@ -88,7 +105,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         this.future = this.workerGroup.submit(new Callable<Long>() {
             private long consumed;
             private long sent;
-            private int currentBatch;
+            private RowBatch batch = new RowBatch(batchSize);
 
             @Override
             public Long call() throws InterruptedException {
@@ -105,11 +122,12 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumed++;
 
 
-                        ctx.write(lr, ctx.voidPromise());
-                        currentBatch++;
+                        batch.add(lr);
                         sent++;
 
-                        flushAndGetPermit();
+                        if (batch.isFull()) {
+                            sendBatch();
+                        }
 
                         if (checkLimit()) {
                             return consumed;
@@ -117,6 +135,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
 
                         consumeOffset();
                     }
+                    sendBatch();
                     // Data has been written, request close
                     ctx.writeAndFlush(new StreamProtocol.RequestClose());
 
@@ -128,23 +147,30 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
             }
 
             /**
-             * If the current batch exceeds the batch size, flush the connection and take a new permit, blocking if the client
-             * hasn't had time yet to process previous messages
+             * Send the pending batch, if any. We take one credit per row, blocking if the client hasn't had time yet
+             * to process previous batches
              */
-            private void flushAndGetPermit() throws InterruptedException {
-                if (currentBatch >= batchSize) {
-                    ctx.flush();
-                    currentBatch = 0;
-                    permits.acquire();
+            private void sendBatch() throws InterruptedException {
+                int size = batch.size();
+                if (size == 0)
+                    return;
+                if (!credits.tryAcquire(size)) {
+                    long start = System.nanoTime();
+                    credits.acquire(size);
+                    stallNanos += System.nanoTime() - start;
                 }
+                ctx.writeAndFlush(batch, ctx.voidPromise());
+                batch = new RowBatch(batchSize);
             }
 
             /**
              * If the client hast told us to ignore up to 'offset' messages, consume them here. The client request can
              * arrive after we've already sent some messages.
              */
-            private void consumeOffset() {
+            private void consumeOffset() throws InterruptedException {
                 if (consumed < offset) {
+                    // the client counts skipped rows after the rows we already sent
+                    sendBatch();
                     long count = 0;
                     while (locatedRowIterator.hasNext() && consumed < offset) {
                         locatedRowIterator.next();
@@ -159,9 +185,9 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              * If the client told us to send no more than 'limit' messages, check it here
              * @return true if there's a limit and we reached it, false otherwise
              */
-            private boolean checkLimit() {
+            private boolean checkLimit() throws InterruptedException {
                 if (consumed > limit) {
-                    ctx.flush();
+                    sendBatch();
                     if (LOG.isTraceEnabled())
                         LOG.trace("Reached limit, stopping. consumed " + consumed + " sent " + sent + " limit " + limit);
                     return true;
@@ -174,13 +200,13 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        if (msg instanceof StreamProtocol.Continue) {
-            permits.release();
+        if (msg instanceof StreamProtocol.Credit) {
+            credits.release(((StreamProtocol.Credit) msg).rows);
         } else if (msg instanceof StreamProtocol.ConfirmClose) {
             ctx.close().sync();
         } else if (msg instanceof StreamProtocol.RequestClose) {
             limit = 0; // If they want to close they don't need more data
-            permits.release();
+            credits.release(batchSize); // unblock the writing thread if it's waiting for credits
             // wait for the writing thread to finish
             future.get();
             ctx.writeAndFlush(new StreamProtocol.ConfirmClose());
@@ -200,6 +226,9 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         this.partition = partition;
         this.locatedRowIterator = locatedRowIterator;
         this.active = new CountDownLatch(1);
+        this.credits = new Semaphore(0); // the client grants the initial credits once it accepts our connection
+        this.stallNanos = 0;
+        long start = System.nanoTime();
 
         Bootstrap bootstrap;
         ThreadFactory tf = new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ResultStreamer-"+host+":"+port+"["+partition+"]").build();
@@ -217,7 +246,8 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                     ChannelPipeline p = ch.pipeline();
                     Kryo kryo = new Kryo(new DefaultClassResolver(),new MapReferenceResolver());
                     registry.registerClasses(kryo);
-                    p.addLast(new KryoEncoder(kryo));
+                    encoder = new KryoEncoder(kryo);
+                    p.addLast(encoder);
                     kryo = new Kryo(new DefaultClassResolver(),new MapReferenceResolver());
                     registry.registerClasses(kryo);
                     p.addLast(new KryoDecoder(kryo));
@@ -231,6 +261,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
             active.await();
             long consumed = future.get();
             futureConnect.channel().closeFuture().sync();
+            recordMetrics(consumed, System.nanoTime() - start);
 
             String result;
             if (consumed >= limit) {
@@ -246,6 +277,49 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         }
     }
 
+    private void recordMetrics(long consumed, long elapsedNanos) {
+        long bytes = encoder != null ? encoder.getBytesWritten() : 0;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        long stallMillis = TimeUnit.NANOSECONDS.toMillis(stallNanos);
+        if (bytesStreamed != null) {
+            bytesStreamed.add(bytes);
+            stallTime.add(stallMillis);
+            streamingTime.add(elapsedMillis);
+        }
+        if (LOG.isDebugEnabled()) {
+            long bytesPerSecond = elapsedNanos > 0 ? (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos) : 0;
+            LOG.debug(String.format("Partition %d streamed %d rows, %d bytes in %d ms (%d bytes/s), stalled for %d ms",
+                    partition, consumed, bytes, elapsedMillis, bytesPerSecond, stallMillis));
+        }
+    }
+
+    /**
+     * Totals across all queries streamed from this Spark context, so each query doesn't register
+     * (and leave behind) its own named accumulators.
+     */
+    private static final class StreamingAccumulators {
+        private static StreamingAccumulators instance;
+
+        private final JavaSparkContext sparkContext;
+        private final Accumulator<Long> bytesStreamed;
+        private final Accumulator<Long> stallTime;
+        private final Accumulator<Long> streamingTime;
+
+        private StreamingAccumulators(JavaSparkContext sparkContext) {
+            this.sparkContext = sparkContext;
+            this.bytesStreamed = sparkContext.accumulator(0L, "(ResultStreamer) bytes streamed", LongAccumulatorParam.INSTANCE);
+            this.stallTime = sparkContext.accumulator(0L, "(ResultStreamer) stall time (ms)", LongAccumulatorParam.INSTANCE);
+            this.streamingTime = sparkContext.accumulator(0L, "(ResultStreamer) streaming time (ms)", LongAccumulatorParam.INSTANCE);
+        }
+
+        static synchronized StreamingAccumulators get() {
+            JavaSparkContext sparkContext = SpliceSpark.getContext();
+            if (instance == null || instance.sparkContext != sparkContext)
+                instance = new StreamingAccumulators(sparkContext);
+            return instance;
+        }
+    }
+
     @Override
     public String toString() {
         return "ResultStreamer{" +
@@ -253,7 +327,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                 ", numPartitions=" + numPartitions +
                 ", host='" + host + '\'' +
                 ", port=" + port +
-                ", permits=" + permits +
+                ", credits=" + credits +
                 ", offset=" + offset +
                 ", limit=" + limit +
                 ", partition=" + partition +
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.stream;
+
+/**
+ * A group of rows sent from a {@link ResultStreamer} to a {@link StreamListener} in a single message.
+ * Rows travel in batches so that the per-message framing and the row format are paid for once per
+ * batch rather than once per row.
+ */
+public class RowBatch {
+    private final Object[] rows;
+    private int size;
+
+    public RowBatch(int capacity) {
+        this.rows = new Object[capacity];
+    }
+
+    public void add(Object row) {
+        rows[size++] = row;
+    }
+
+    public Object get(int position) {
+        return rows[position];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == rows.length;
+    }
+
+    @Override
+    public String toString() {
+        return "RowBatch{" +
+                "size=" + size +
+                '}';
+    }
+}
@@ -155,8 +155,18 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         try {
             while (next == null) {
                 PartitionState state = partitionStateMap.get(currentQueue);
-                // We take a message first to make sure we have a connection
-                Object msg = canBlock ? state.messages.take() : state.messages.remove();
+                Object msg;
+                if (state.batch != null) {
+                    // Keep returning rows from the batch we are reading
+                    msg = state.batch.get(state.batchPosition++);
+                    if (state.batchPosition >= state.batch.size()) {
+                        state.batch = null;
+                        state.batchPosition = 0;
+                    }
+                } else {
+                    // We take a message first to make sure we have a connection
+                    msg = canBlock ? state.messages.take() : state.messages.remove();
+                }
                 if (!state.initialized && (offset > 0 || limit > 0)) {
                     if (LOG.isTraceEnabled())
                         LOG.trace("Sending skip " + limit + ", " + offset);
@@ -165,7 +175,13 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                     state.channel.writeAndFlush(new StreamProtocol.Skip(serverLimit, offset));
                 }
                 state.initialized = true;
-                if (msg == RETRY) {
+                if (msg instanceof RowBatch) {
+                    RowBatch batch = (RowBatch) msg;
+                    if (!batch.isEmpty()) {
+                        state.batch = batch;
+                        state.batchPosition = 0;
+                    }
+                } else if (msg == RETRY) {
                     // There was a retried task
                     long currentRead = state.readTotal;
                     long currentOffset = offset + currentRead;
@@ -232,11 +248,12 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                         }
                     }
 
-                    if (state.consumed > batchSize) {
+                    if (state.consumed >= batchSize) {
+                        // Give the server credit for the rows we've consumed
                         if (LOG.isTraceEnabled())
-                            LOG.trace("Writing CONT");
-                        state.channel.writeAndFlush(new StreamProtocol.Continue());
-                        state.consumed -= batchSize;
+                            LOG.trace("Writing CREDIT " + state.consumed);
+                        state.channel.writeAndFlush(new StreamProtocol.Credit((int) state.consumed));
+                        state.consumed = 0;
                     }
                 }
             }
@@ -315,6 +332,9 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         if (stopped) {
             // we are already stopped, ask this stream to close
             channel.writeAndFlush(new StreamProtocol.RequestClose());
+        } else {
+            // grant the initial credits, the server can send as many rows as we can queue up
+            channel.writeAndFlush(new StreamProtocol.Credit(queueSize));
         }
 
         ctx.pipeline().addLast(this);
@@ -390,6 +410,8 @@ class PartitionState {
     int partition;
     Channel channel;
     ArrayBlockingQueue<Object> messages;
+    RowBatch batch; // batch we are currently returning rows from
+    int batchPosition;
     long consumed;
     long readTotal;
     boolean initialized;
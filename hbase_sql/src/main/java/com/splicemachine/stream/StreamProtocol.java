@@ -100,7 +100,25 @@ public class StreamProtocol implements Serializable {
         }
     }
 
-    public static class Continue implements Serializable {
+    /**
+     * Sent by the client to grant the server permission to send {@code rows} more rows, as space frees
+     * up in its buffer for the partition.
+     */
+    public static class Credit implements Serializable {
+        public int rows;
+
+        public Credit() {}
+
+        public Credit(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public String toString() {
+            return "Credit{" +
+                    "rows=" + rows +
+                    '}';
+        }
     }
 
     public static class RequestClose implements Serializable {
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.stream.accumulator;
+
+import org.apache.spark.AccumulatorParam;
+
+/**
+ * Sums {@code Long} accumulators.
+ * <p/>
+ * Spark's own {@code LongAccumulatorParam} is typed on Scala's {@code Long}, so it can only be
+ * used raw from Java; this gives {@link org.apache.spark.Accumulator}{@code <Long>} a typed param.
+ *
+ * @see org.apache.spark.AccumulatorParam
+ */
+public class LongAccumulatorParam implements AccumulatorParam<Long> {
+    public static final LongAccumulatorParam INSTANCE = new LongAccumulatorParam();
+
+    @Override
+    public Long addAccumulator(Long t1, Long t2) {
+        return t1 + t2;
+    }
+
+    @Override
+    public Long addInPlace(Long r1, Long r2) {
+        return r1 + r2;
+    }
+
+    @Override
+    public Long zero(Long initialValue) {
+        return 0L;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.derby.utils.marshall.SparkValueRowSerializerTest;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.stream.RowBatch;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class RowBatchSerializerTest {
+
+    private static Kryo kryo;
+
+    @BeforeClass
+    public static void setup() {
+        kryo = new Kryo();
+        new SpliceSparkKryoRegistrator().registerClasses(kryo);
+    }
+
+    @Test
+    public void testEncodingDecodingExecRows() throws IOException, StandardException {
+        RowBatch batch = new RowBatch(100);
+        for (int i = 0; i < 100; i++) {
+            batch.add(SparkValueRowSerializerTest.getExecRow(i, 13));
+        }
+
+        RowBatch decoded = roundTrip(batch);
+        assertEquals(100, decoded.size());
+        for (int i = 0; i < 100; i++) {
+            ExecRow row = (ExecRow) decoded.get(i);
+            assertEquals(13, row.nColumns());
+            assertEquals(i, row.getRowArray()[0].getInt());
+            assertEquals("" + i, row.getRowArray()[1].getString());
+            assertEquals(i, row.getRowArray()[2].getLong());
+        }
+    }
+
+    @Test
+    public void testEncodingDecodingLocatedRows() throws IOException, StandardException {
+        RowBatch batch = new RowBatch(10);
+        for (int i = 0; i < 10; i++) {
+            HBaseRowLocation location = i % 2 == 0 ? new HBaseRowLocation(Bytes.toBytes(i)) : null;
+            batch.add(new LocatedRow(location, SparkValueRowSerializerTest.getExecRow(i, 4)));
+        }
+
+        RowBatch decoded = roundTrip(batch);
+        assertEquals(10, decoded.size());
+        for (int i = 0; i < 10; i++) {
+            LocatedRow row = (LocatedRow) decoded.get(i);
+            if (i % 2 == 0) {
+                assertArrayEquals(Bytes.toBytes(i), row.getRowLocation().getBytes());
+            } else {
+                assertNull(row.getRowLocation());
+            }
+            assertEquals(i, row.getRow().getRowArray()[0].getInt());
+            assertEquals("" + i, row.getRow().getRowArray()[1].getString());
+        }
+    }
+
+    @Test
+    public void testMixedRowTypesFallBackToKryo() throws IOException, StandardException {
+        RowBatch batch = new RowBatch(3);
+        batch.add(SparkValueRowSerializerTest.getExecRow(1, 3));
+        ValueRow other = new ValueRow(1);
+        other.setColumn(1, new SQLInteger(7));
+        batch.add(other);
+        batch.add(SparkValueRowSerializerTest.getExecRow(2, 3));
+
+        RowBatch decoded = roundTrip(batch);
+        assertEquals(3, decoded.size());
+        assertEquals(1, ((ExecRow) decoded.get(0)).getRowArray()[0].getInt());
+        assertEquals(7, ((ExecRow) decoded.get(1)).getRowArray()[0].getInt());
+        assertEquals("2", ((ExecRow) decoded.get(2)).getRowArray()[1].getString());
+    }
+
+    @Test
+    public void testEmptyBatch() throws IOException {
+        RowBatch decoded = roundTrip(new RowBatch(10));
+        assertTrue(decoded.isEmpty());
+    }
+
+    private static RowBatch roundTrip(RowBatch batch) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Output output = new Output(out);
+        kryo.writeClassAndObject(output, batch);
+        output.close();
+
+        Input input = new Input(new ByteArrayInputStream(out.toByteArray()));
+        RowBatch decoded = (RowBatch) kryo.readClassAndObject(input);
+        input.close();
+        return decoded;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceUnitTest;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static java.lang.String.format;
+
+/**
+ * Imports through SYSCS_UTIL.BULK_IMPORT_HFILE, and creates indexes, which this test bulk loads by setting
+ * the splice.ddl.index.bulkLoadDirectory database property.
+ */
+public class HFileBulkImportIT extends SpliceUnitTest{
+    private static final String SCHEMA=HFileBulkImportIT.class.getSimpleName().toUpperCase();
+    private static final int ROWS=1000;
+
+    private static final SpliceWatcher spliceClassWatcher=new SpliceWatcher(SCHEMA);
+    private static final SpliceSchemaWatcher spliceSchemaWatcher=new SpliceSchemaWatcher(SCHEMA);
+
+    @ClassRule
+    public static TestRule chain=RuleChain.outerRule(spliceClassWatcher).around(spliceSchemaWatcher);
+
+    @Rule
+    public SpliceWatcher methodWatcher=new SpliceWatcher(SCHEMA);
+
+    private static File importDirectory;
+    private static File badDirectory;
+    private static String stagingDirectory;
+    private static final String SET_INDEX_BULK_LOAD_DIRECTORY=
+            "call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY('splice.ddl.index.bulkLoadDirectory', %s)";
+
+    @BeforeClass
+    public static void createImportFiles() throws Exception{
+        importDirectory=SpliceUnitTest.createImportFileDirectory(SCHEMA);
+        badDirectory=SpliceUnitTest.createBadLogDirectory(SCHEMA);
+        stagingDirectory=SpliceUnitTest.getHBaseDirectory()+"/target/bulkload";
+        try(PrintWriter out=new PrintWriter(new FileWriter(new File(importDirectory,"rows.csv")))){
+            for(int i=0;i<ROWS;i++){
+                out.println(i+","+(i%10)+",name"+i);
+            }
+        }
+        try(PrintWriter out=new PrintWriter(new FileWriter(new File(importDirectory,"duplicates.csv")))){
+            out.println("1,1,one");
+            out.println("2,2,two");
+            out.println("1,3,three");
+        }
+        spliceClassWatcher.execute(format(SET_INDEX_BULK_LOAD_DIRECTORY,"'"+stagingDirectory+"-index'"));
+    }
+
+    @AfterClass
+    public static void resetIndexBulkLoadDirectory() throws Exception{
+        spliceClassWatcher.execute(format(SET_INDEX_BULK_LOAD_DIRECTORY,"NULL"));
+    }
+
+    @Test
+    public void bulkImportLoadsTableAndIndexes() throws Exception{
+        methodWatcher.executeUpdate("create table LOADED (a int primary key, b int, c varchar(20))");
+        methodWatcher.executeUpdate("create index LOADED_B on LOADED (b)");
+        methodWatcher.executeUpdate("create unique index LOADED_C on LOADED (c)");
+        bulkImport("LOADED","rows.csv");
+
+        Assert.assertEquals(ROWS,count("select count(*) from LOADED --splice-properties index=null"));
+        Assert.assertEquals(ROWS,count("select count(*) from LOADED --splice-properties index=LOADED_B\n where b >= 0"));
+        Assert.assertEquals(ROWS,count("select count(*) from LOADED --splice-properties index=LOADED_C\n where c is not null"));
+        Assert.assertEquals(ROWS/10,count("select count(*) from LOADED --splice-properties index=LOADED_B\n where b = 3"));
+        Assert.assertEquals(1,count("select count(*) from LOADED --splice-properties index=LOADED_C\n where c = 'name42'"));
+    }
+
+    @Test
+    public void duplicatePrimaryKeyInFileFailsWithConstraintViolation() throws Exception{
+        methodWatcher.executeUpdate("create table DUPLICATES (a int primary key, b int, c varchar(20))");
+        try{
+            bulkImport("DUPLICATES","duplicates.csv");
+            Assert.fail("Expected a primary key violation");
+        }catch(SQLException se){
+            Assert.assertEquals("Unexpected failure: "+se.getMessage(),"23505",se.getSQLState());
+        }
+        Assert.assertEquals(0,count("select count(*) from DUPLICATES"));
+    }
+
+    @Test
+    public void importIntoNonEmptyTableChecksExistingRows() throws Exception{
+        methodWatcher.executeUpdate("create table EXISTING (a int primary key, b int, c varchar(20))");
+        methodWatcher.executeUpdate("create index EXISTING_B on EXISTING (b)");
+        methodWatcher.executeUpdate("insert into EXISTING values (5, 50, 'existing')");
+        // the table is not empty, so the import goes through the write pipeline and the clashing row is rejected
+        bulkImport("EXISTING","rows.csv",-1);
+
+        try(ResultSet rs=methodWatcher.executeQuery("select b, c from EXISTING where a = 5")){
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(50,rs.getInt(1));
+            Assert.assertEquals("existing",rs.getString(2));
+        }
+        Assert.assertEquals(ROWS,count("select count(*) from EXISTING --splice-properties index=null"));
+        Assert.assertEquals(ROWS,count("select count(*) from EXISTING --splice-properties index=EXISTING_B\n where b >= 0"));
+        Assert.assertEquals(1,count("select count(*) from EXISTING --splice-properties index=EXISTING_B\n where b = 50"));
+        Assert.assertEquals(ROWS/10-1,count("select count(*) from EXISTING --splice-properties index=EXISTING_B\n where b = 5"));
+    }
+
+    @Test
+    public void createIndexOnLoadedTable() throws Exception{
+        methodWatcher.executeUpdate("create table INDEXED (a int primary key, b int, c varchar(20))");
+        bulkImport("INDEXED","rows.csv");
+        methodWatcher.executeUpdate("create index INDEXED_B on INDEXED (b, c)");
+
+        Assert.assertEquals(ROWS,count("select count(*) from INDEXED --splice-properties index=INDEXED_B\n where b >= 0"));
+        Assert.assertEquals(ROWS/10,count("select count(*) from INDEXED --splice-properties index=INDEXED_B\n where b = 7"));
+        try(ResultSet rs=methodWatcher.executeQuery("select a from INDEXED --splice-properties index=INDEXED_B\n where b = 7 and c = 'name17'")){
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(17,rs.getInt(1));
+            Assert.assertFalse(rs.next());
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void bulkImport(String table,String file) throws Exception{
+        bulkImport(table,file,0);
+    }
+
+    private void bulkImport(String table,String file,int maxBadRecords) throws Exception{
+        methodWatcher.execute(format("call SYSCS_UTIL.BULK_IMPORT_HFILE('%s','%s',null,'%s',',',null,null,null,null,%d,'%s',null,null,'%s','false')",
+                SCHEMA,table,new File(importDirectory,file).getAbsolutePath(),maxBadRecords,badDirectory.getAbsolutePath(),stagingDirectory));
+    }
+
+    private int count(String sql) throws Exception{
+        try(ResultSet rs=methodWatcher.executeQuery(sql)){
+            Assert.assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import org.junit.Assert;
+import org.junit.Test;
+import scala.Tuple2;
+
+import java.util.Arrays;
+
+public class BulkLoadPartitionerTest{
+
+    private static final byte[][] NO_SPLITS=new byte[0][];
+
+    @Test
+    public void singleRegionConglomeratesGetOnePartitionEach() throws Exception{
+        BulkLoadPartitioner partitioner=new BulkLoadPartitioner(new long[]{1l,2l},Arrays.asList(NO_SPLITS,NO_SPLITS));
+        Assert.assertEquals(2,partitioner.numPartitions());
+        Assert.assertEquals(0,partitioner.getPartition(key(1l,"a")));
+        Assert.assertEquals(1,partitioner.getPartition(key(2l,"a")));
+        Assert.assertEquals(1,partitioner.getPartition(key(2l,"")));
+    }
+
+    @Test
+    public void splitKeyStartsItsPartition() throws Exception{
+        byte[][] splits={bytes("d"),bytes("m")};
+        BulkLoadPartitioner partitioner=new BulkLoadPartitioner(new long[]{7l},Arrays.<byte[][]>asList(splits));
+        Assert.assertEquals(3,partitioner.numPartitions());
+        Assert.assertEquals(0,partitioner.getPartition(key(7l,"")));
+        Assert.assertEquals(0,partitioner.getPartition(key(7l,"a")));
+        Assert.assertEquals(0,partitioner.getPartition(key(7l,"czzz")));
+        Assert.assertEquals(1,partitioner.getPartition(key(7l,"d")));
+        Assert.assertEquals(1,partitioner.getPartition(key(7l,"d0")));
+        Assert.assertEquals(2,partitioner.getPartition(key(7l,"m")));
+        Assert.assertEquals(2,partitioner.getPartition(key(7l,"z")));
+    }
+
+    @Test
+    public void conglomeratesOwnContiguousPartitionRanges() throws Exception{
+        byte[][] first={bytes("m")};
+        byte[][] third={bytes("c"),bytes("f"),bytes("x")};
+        BulkLoadPartitioner partitioner=new BulkLoadPartitioner(new long[]{3l,5l,9l},Arrays.asList(first,NO_SPLITS,third));
+        Assert.assertEquals(2+1+4,partitioner.numPartitions());
+        Assert.assertEquals(0,partitioner.getPartition(key(3l,"a")));
+        Assert.assertEquals(1,partitioner.getPartition(key(3l,"n")));
+        Assert.assertEquals(2,partitioner.getPartition(key(5l,"n")));
+        Assert.assertEquals(3,partitioner.getPartition(key(9l,"b")));
+        Assert.assertEquals(4,partitioner.getPartition(key(9l,"c")));
+        Assert.assertEquals(5,partitioner.getPartition(key(9l,"g")));
+        Assert.assertEquals(6,partitioner.getPartition(key(9l,"y")));
+    }
+
+    @Test
+    public void splitKeysCompareUnsigned() throws Exception{
+        byte[][] splits={new byte[]{(byte)0x80}};
+        BulkLoadPartitioner partitioner=new BulkLoadPartitioner(new long[]{1l},Arrays.<byte[][]>asList(splits));
+        Assert.assertEquals(0,partitioner.getPartition(new Tuple2<>(1l,new byte[]{0x7f})));
+        Assert.assertEquals(1,partitioner.getPartition(new Tuple2<>(1l,new byte[]{(byte)0xff})));
+    }
+
+    @Test
+    public void keyComparatorOrdersByConglomerateThenKey() throws Exception{
+        BulkLoadPartitioner.KeyComparator comparator=new BulkLoadPartitioner.KeyComparator();
+        Assert.assertTrue(comparator.compare(key(1l,"z"),key(2l,"a"))<0);
+        Assert.assertTrue(comparator.compare(key(2l,"a"),key(2l,"b"))<0);
+        Assert.assertTrue(comparator.compare(key(2l,"b"),key(2l,"a"))>0);
+        Assert.assertEquals(0,comparator.compare(key(2l,"a"),key(2l,"a")));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Tuple2<Long, byte[]> key(long conglomerate,String rowKey){
+        return new Tuple2<>(conglomerate,bytes(rowKey));
+    }
+
+    private static byte[] bytes(String s){
+        return s.getBytes();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import com.splicemachine.primitives.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class SparkBulkDataSetWriterTest{
+
+    @Test
+    public void quantilesSplitKeysIntoEqualRanges() throws Exception{
+        List<byte[]> keys=new ArrayList<>();
+        for(int i=0;i<100;i++){
+            keys.add(Bytes.toBytes(i));
+        }
+        byte[][] splits=SparkBulkDataSetWriter.quantiles(keys,4);
+        Assert.assertEquals(3,splits.length);
+        Assert.assertArrayEquals(Bytes.toBytes(25),splits[0]);
+        Assert.assertArrayEquals(Bytes.toBytes(50),splits[1]);
+        Assert.assertArrayEquals(Bytes.toBytes(75),splits[2]);
+    }
+
+    @Test
+    public void onePartNeedsNoSplits() throws Exception{
+        List<byte[]> keys=Arrays.asList(Bytes.toBytes(1),Bytes.toBytes(2));
+        Assert.assertEquals(0,SparkBulkDataSetWriter.quantiles(keys,1).length);
+    }
+
+    @Test
+    public void moreSplitsThanKeysAreDeduplicated() throws Exception{
+        List<byte[]> keys=Arrays.asList(Bytes.toBytes(1),Bytes.toBytes(2),Bytes.toBytes(3));
+        byte[][] splits=SparkBulkDataSetWriter.quantiles(keys,10);
+        Assert.assertEquals(3,splits.length);
+        Assert.assertArrayEquals(Bytes.toBytes(1),splits[0]);
+        Assert.assertArrayEquals(Bytes.toBytes(2),splits[1]);
+        Assert.assertArrayEquals(Bytes.toBytes(3),splits[2]);
+    }
+
+    @Test
+    public void duplicateSampledKeysGiveDistinctSplits() throws Exception{
+        List<byte[]> keys=new ArrayList<>();
+        for(int i=0;i<90;i++){
+            keys.add(Bytes.toBytes(i<80?1:2));
+        }
+        byte[][] splits=SparkBulkDataSetWriter.quantiles(keys,3);
+        Assert.assertEquals(1,splits.length);
+        Assert.assertArrayEquals(Bytes.toBytes(1),splits[0]);
+    }
+
+    @Test
+    public void emptyKeyIsNeverASplit() throws Exception{
+        List<byte[]> keys=new ArrayList<>();
+        for(int i=0;i<10;i++){
+            keys.add(new byte[0]);
+        }
+        keys.add(Bytes.toBytes(5));
+        Collections.sort(keys,Bytes.BASE_COMPARATOR);
+        byte[][] splits=SparkBulkDataSetWriter.quantiles(keys,2);
+        Assert.assertEquals(0,splits.length);
+    }
+}
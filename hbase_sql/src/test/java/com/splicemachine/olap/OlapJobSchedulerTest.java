@@ -0,0 +1,229 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.olap;
+
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import com.splicemachine.derby.iapi.sql.olap.OlapJobQueue;
+import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class OlapJobSchedulerTest{
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() throws Exception{
+        pool=Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void interactiveJobsRunBeforeQueuedBatchJobs() throws Exception{
+        OlapJobScheduler scheduler=new OlapJobScheduler(pool,1,0,0d,8,2,1);
+        List<String> order=new CopyOnWriteArrayList<>();
+        CountDownLatch release=new CountDownLatch(1);
+        CountDownLatch done=new CountDownLatch(3);
+
+        submit(scheduler,new TestJob("batch1",OlapJobQueue.BATCH,null,0d),order,release,done);
+        submit(scheduler,new TestJob("batch2",OlapJobQueue.BATCH,null,0d),order,release,done);
+        submit(scheduler,new TestJob("interactive",OlapJobQueue.INTERACTIVE,null,0d),order,release,done);
+        Assert.assertEquals(1,scheduler.getRunningJobs(OlapJobQueue.BATCH));
+        Assert.assertEquals(1,scheduler.getPendingJobs(OlapJobQueue.BATCH));
+        Assert.assertEquals(1,scheduler.getPendingJobs(OlapJobQueue.INTERACTIVE));
+
+        release.countDown();
+        Assert.assertTrue(done.await(10,TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("batch1","interactive","batch2"),order);
+    }
+
+    @Test
+    public void limitsConcurrentJobsPerUser() throws Exception{
+        OlapJobScheduler scheduler=new OlapJobScheduler(pool,4,1,0d,8,2,1);
+        List<String> order=new CopyOnWriteArrayList<>();
+        CountDownLatch release=new CountDownLatch(1);
+        CountDownLatch done=new CountDownLatch(3);
+
+        OlapJobStatus first=submit(scheduler,new TestJob("a1",OlapJobQueue.INTERACTIVE,"a",0d),order,release,done);
+        OlapJobStatus second=submit(scheduler,new TestJob("a2",OlapJobQueue.INTERACTIVE,"a",0d),order,release,done);
+        submit(scheduler,new TestJob("b1",OlapJobQueue.INTERACTIVE,"b",0d),order,release,done);
+        Assert.assertEquals(2,scheduler.getRunningJobs(OlapJobQueue.INTERACTIVE));
+        Assert.assertEquals(1,scheduler.getPendingJobs(OlapJobQueue.INTERACTIVE));
+        Assert.assertEquals(0L,second.getRunningTime());
+
+        release.countDown();
+        Assert.assertTrue(done.await(10,TimeUnit.SECONDS));
+        Assert.assertTrue("a2 started before a1 finished",order.indexOf("a2")>order.indexOf("a1"));
+        Assert.assertEquals(OlapJobQueue.INTERACTIVE,first.getQueue());
+        Assert.assertTrue(second.getQueueWaitTime()>=0L);
+    }
+
+    @Test
+    public void expensiveQueriesAreScheduledAsBatchJobs() throws Exception{
+        OlapJobScheduler scheduler=new OlapJobScheduler(pool,4,0,1000d,8,2,1);
+        Assert.assertEquals(OlapJobQueue.INTERACTIVE,
+                scheduler.chooseQueue(new TestJob("cheap",OlapJobQueue.INTERACTIVE,"a",10d)));
+        Assert.assertEquals(OlapJobQueue.BATCH,
+                scheduler.chooseQueue(new TestJob("expensive",OlapJobQueue.INTERACTIVE,"a",10000d)));
+        Assert.assertEquals(OlapJobQueue.MAINTENANCE,
+                scheduler.chooseQueue(new TestJob("compaction",OlapJobQueue.MAINTENANCE,null,10000d)));
+    }
+
+    @Test
+    public void cancelledJobsAreNotStarted() throws Exception{
+        OlapJobScheduler scheduler=new OlapJobScheduler(pool,1,0,0d,8,2,1);
+        List<String> order=new CopyOnWriteArrayList<>();
+        CountDownLatch release=new CountDownLatch(1);
+        CountDownLatch done=new CountDownLatch(2);
+
+        submit(scheduler,new TestJob("first",OlapJobQueue.BATCH,null,0d),order,release,done);
+        OlapJobStatus cancelled=submit(scheduler,new TestJob("cancelled",OlapJobQueue.BATCH,null,0d),order,release,done);
+        submit(scheduler,new TestJob("last",OlapJobQueue.BATCH,null,0d),order,release,done);
+        cancelled.markSubmitted();
+        cancelled.cancel();
+
+        release.countDown();
+        Assert.assertTrue(done.await(10,TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("first","last"),order);
+    }
+
+    @Test
+    public void streamingJobsGiveUpTheirSlot() throws Exception{
+        OlapJobScheduler scheduler=new OlapJobScheduler(pool,1,1,0d,8,2,1);
+        List<String> order=new CopyOnWriteArrayList<>();
+        final CountDownLatch streaming=new CountDownLatch(1);
+        final CountDownLatch drained=new CountDownLatch(1);
+        CountDownLatch release=new CountDownLatch(1);
+        CountDownLatch done=new CountDownLatch(1);
+
+        final OlapJobStatus cursor=new OlapJobStatus(1000L);
+        scheduler.submit(new TestJob("cursor",OlapJobQueue.INTERACTIVE,"a",0d),cursor,new Callable<Void>(){
+            @Override
+            public Void call() throws Exception{
+                cursor.markStreaming();
+                streaming.countDown();
+                //the client hasn't read the results yet
+                drained.await();
+                return null;
+            }
+        });
+        Assert.assertTrue(streaming.await(10,TimeUnit.SECONDS));
+        Assert.assertEquals(0,scheduler.getRunningJobs(OlapJobQueue.INTERACTIVE));
+
+        //the same user's next job, and a compaction, both run while the first cursor is still open
+        submit(scheduler,new TestJob("next",OlapJobQueue.INTERACTIVE,"a",0d),order,release,done);
+        Assert.assertEquals(1,scheduler.getRunningJobs(OlapJobQueue.INTERACTIVE));
+        Assert.assertEquals(0,scheduler.getPendingJobs(OlapJobQueue.INTERACTIVE));
+        release.countDown();
+        Assert.assertTrue(done.await(10,TimeUnit.SECONDS));
+
+        CountDownLatch compacted=new CountDownLatch(1);
+        submit(scheduler,new TestJob("compaction",OlapJobQueue.MAINTENANCE,null,0d),order,release,compacted);
+        Assert.assertTrue(compacted.await(10,TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("next","compaction"),order);
+
+        drained.countDown();
+        //finishing a job which already gave up its slot doesn't free another one
+        cursor.markStreaming();
+        Assert.assertEquals(0,scheduler.getRunningJobs(OlapJobQueue.INTERACTIVE));
+    }
+
+    @Test
+    public void rejectedJobsGiveBackTheirSlot() throws Exception{
+        OlapJobScheduler scheduler=new OlapJobScheduler(pool,2,1,0d,8,2,1);
+        pool.shutdown();
+        Callable<Void> neverRuns=new Callable<Void>(){
+            @Override
+            public Void call() throws Exception{
+                throw new AssertionError("Job should not have run");
+            }
+        };
+
+        OlapJobStatus first=new OlapJobStatus(1000L);
+        first.markSubmitted();
+        scheduler.submit(new TestJob("a1",OlapJobQueue.INTERACTIVE,"a",0d),first,neverRuns);
+        OlapJobStatus second=new OlapJobStatus(1000L);
+        second.markSubmitted();
+        scheduler.submit(new TestJob("a2",OlapJobQueue.INTERACTIVE,"a",0d),second,neverRuns);
+
+        //neither job holds a slot, so the second isn't held back by the first one's user limit
+        Assert.assertEquals(0,scheduler.getRunningJobs(OlapJobQueue.INTERACTIVE));
+        Assert.assertEquals(0,scheduler.getPendingJobs(OlapJobQueue.INTERACTIVE));
+        Assert.assertTrue(first.getResult() instanceof FailedOlapResult);
+        Assert.assertTrue(second.getResult() instanceof FailedOlapResult);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static OlapJobStatus submit(OlapJobScheduler scheduler,
+                                        final TestJob job,
+                                        final List<String> order,
+                                        final CountDownLatch release,
+                                        final CountDownLatch done){
+        OlapJobStatus status=new OlapJobStatus(1000L);
+        scheduler.submit(job,status,new Callable<Void>(){
+            @Override
+            public Void call() throws Exception{
+                order.add(job.name);
+                release.await();
+                done.countDown();
+                return null;
+            }
+        });
+        return status;
+    }
+
+    private static class TestJob extends DistributedJob{
+        private final String name;
+        private final OlapJobQueue queue;
+        private final String userId;
+        private final double estimatedCost;
+
+        TestJob(String name,OlapJobQueue queue,String userId,double estimatedCost){
+            this.name=name;
+            this.queue=queue;
+            this.userId=userId;
+            this.estimatedCost=estimatedCost;
+        }
+
+        @Override
+        public Callable<Void> toCallable(OlapStatus jobStatus,Clock clock,long clientTimeoutCheckIntervalMs){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override public String getName(){ return name; }
+        @Override public OlapJobQueue getQueue(){ return queue; }
+        @Override public String getUserId(){ return userId; }
+        @Override public double getEstimatedCost(){ return estimatedCost; }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.hbase;
+
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.storage.ZoneMap;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Decorator for the HBase scanner of a flush or compaction, which summarizes the packed rows that are
+ * written to the new store file into a {@link ZoneMap}.
+ */
+public class ZoneMapScanner implements InternalScanner {
+    private final ZoneMap zoneMap;
+    private final InternalScanner delegate;
+
+    public ZoneMapScanner(ZoneMap zoneMap,InternalScanner scanner) {
+        this.zoneMap = zoneMap;
+        this.delegate = scanner;
+    }
+
+    @Override
+    public boolean next(List<Cell> list) throws IOException{
+        int start = list.size();
+        final boolean more = delegate.next(list);
+        record(list,start);
+        return more;
+    }
+
+    public boolean next(List<Cell> results, int limit) throws IOException {
+        return next(results);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private void record(List<Cell> cells,int start){
+        for(int i=start;i<cells.size();i++){
+            Cell cell = cells.get(i);
+            if(CellUtils.singleMatchingQualifier(cell,SIConstants.PACKED_COLUMN_BYTES))
+                zoneMap.update(cell.getValueArray(),cell.getValueOffset(),cell.getValueLength());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.hbase;
+
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.storage.EntryPredicateFilter;
+import com.splicemachine.storage.ZoneMap;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.regionserver.HBasePlatformUtils;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the {@link ZoneMap} of each store file which this server wrote, so that scans can avoid reading
+ * regions whose data cannot match their predicates.
+ * <p/>
+ * Zone maps are built while a flush or compaction writes a store file, and are registered once the file has
+ * been committed. They are held in memory only, so files which were written before the server started, bulk
+ * loaded, or created by a split have no zone map. A region can only be skipped when <em>every</em> data file
+ * has a zone map, its memstore is empty, and the {@link ZoneMap#union(Collection) union} of the maps excludes
+ * the predicates. The files must not be checked one at a time: the versions of a row (and the columns of a
+ * partial update) are spread across files, so each file may exclude the conjunction on a different column
+ * while the merged row matches it.
+ */
+public class StoreFileZoneMaps{
+    private static final Logger LOG=Logger.getLogger(StoreFileZoneMaps.class);
+
+    /* region encoded name -> store file path -> zone map */
+    private static final ConcurrentMap<String,ConcurrentMap<String,ZoneMap>> regionMaps=new ConcurrentHashMap<>();
+    /*
+     * Zone maps for files which are still being written, keyed by the flushing Store or the CompactionRequest.
+     * Weakly held, because a failed flush or compaction never reports back.
+     */
+    private static final Map<Object,ZoneMap> pendingMaps=Collections.synchronizedMap(new WeakHashMap<Object,ZoneMap>());
+
+    private StoreFileZoneMaps(){}
+
+    /**
+     * @return true if zone maps should be kept for the files of {@code store}.
+     */
+    public static boolean isDataStore(Store store){
+        return Bytes.equals(store.getFamily().getName(),SIConstants.DEFAULT_FAMILY_BYTES);
+    }
+
+    /**
+     * Start a zone map for the file which is being written by {@code writer}.
+     *
+     * @param writer the Store being flushed, or the request being compacted
+     * @return the zone map to populate as the file is written
+     */
+    public static ZoneMap startFile(Object writer){
+        ZoneMap zoneMap=new ZoneMap();
+        pendingMaps.put(writer,zoneMap);
+        return zoneMap;
+    }
+
+    /**
+     * Register the zone map of a file which has been committed to the region.
+     *
+     * @param writer the Store or request passed to {@link #startFile(Object)}
+     * @param regionName the encoded name of the region
+     * @param resultFile the committed file, or {@code null} if no file was written
+     * @param replacedFiles the files which were replaced by {@code resultFile}
+     */
+    public static void finishFile(Object writer,String regionName,StoreFile resultFile,Collection<StoreFile> replacedFiles){
+        ZoneMap zoneMap=pendingMaps.remove(writer);
+        ConcurrentMap<String,ZoneMap> fileMaps=regionMaps.get(regionName);
+        if(fileMaps==null){
+            fileMaps=new ConcurrentHashMap<>();
+            ConcurrentMap<String,ZoneMap> other=regionMaps.putIfAbsent(regionName,fileMaps);
+            if(other!=null)
+                fileMaps=other;
+        }
+        if(replacedFiles!=null){
+            for(StoreFile replaced:replacedFiles){
+                fileMaps.remove(replaced.getPath().toString());
+            }
+        }
+        if(resultFile!=null && zoneMap!=null && zoneMap.isValid()){
+            if(LOG.isTraceEnabled())
+                SpliceLogUtils.trace(LOG,"Registering %s for %s",zoneMap,resultFile.getPath());
+            fileMaps.put(resultFile.getPath().toString(),zoneMap);
+        }
+    }
+
+    /**
+     * Forget all zone maps of a region, e.g. because it was closed.
+     */
+    public static void removeRegion(String regionName){
+        regionMaps.remove(regionName);
+    }
+
+    /**
+     * Determine whether a scan of {@code region} with the specified serialized predicates can be answered
+     * without reading the region.
+     *
+     * @param region the region to scan
+     * @param predicateBytes the serialized {@link EntryPredicateFilter} of the scan
+     * @return the number of store files which can be skipped, or 0 if the region must be read.
+     */
+    public static int skippableFiles(HRegion region,byte[] predicateBytes) throws IOException{
+        ConcurrentMap<String,ZoneMap> fileMaps=regionMaps.get(region.getRegionInfo().getEncodedName());
+        if(fileMaps==null || fileMaps.isEmpty()) return 0;
+        if(HBasePlatformUtils.getMemstoreSize(region)>0) return 0; //there is data which isn't summarized
+
+        Store store=region.getStore(SIConstants.DEFAULT_FAMILY_BYTES);
+        if(store==null) return 0;
+        Collection<StoreFile> storeFiles=store.getStorefiles();
+        if(storeFiles.isEmpty()) return 0;
+        List<ZoneMap> zoneMaps=new ArrayList<>(storeFiles.size());
+        for(StoreFile storeFile:storeFiles){
+            ZoneMap zoneMap=fileMaps.get(storeFile.getPath().toString());
+            if(zoneMap==null) return 0;
+            zoneMaps.add(zoneMap);
+        }
+
+        EntryPredicateFilter predicateFilter=EntryPredicateFilter.fromBytes(predicateBytes);
+        if(ZoneMap.union(zoneMaps).mayMatch(predicateFilter.getValuePredicates())) return 0;
+        return zoneMaps.size();
+    }
+}
@@ -50,6 +50,8 @@ import com.splicemachine.access.HConfiguration;
 import com.splicemachine.concurrent.SystemClock;
 import com.splicemachine.constants.EnvUtils;
 import com.splicemachine.hbase.SICompactionScanner;
+import com.splicemachine.hbase.StoreFileZoneMaps;
+import com.splicemachine.hbase.ZoneMapScanner;
 import com.splicemachine.hbase.ZkUtils;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.si.api.data.OperationStatusFactory;
@@ -147,6 +149,40 @@ public class SIObserver extends BaseRegionObserver{
         }
     }
 
+    @Override
+    public void postCompact(ObserverContext<RegionCoprocessorEnvironment> e,Store store,StoreFile resultFile,
+                            CompactionRequest request) throws IOException{
+        if(tableEnvMatch && request!=null && StoreFileZoneMaps.isDataStore(store)){
+            StoreFileZoneMaps.finishFile(request,regionName(e),resultFile,request.getFiles());
+        }
+        super.postCompact(e,store,resultFile,request);
+    }
+
+    @Override
+    public InternalScanner preFlush(ObserverContext<RegionCoprocessorEnvironment> e,Store store,
+                                    InternalScanner scanner) throws IOException{
+        if(tableEnvMatch && StoreFileZoneMaps.isDataStore(store)){
+            return new ZoneMapScanner(StoreFileZoneMaps.startFile(store),scanner);
+        }
+        return super.preFlush(e,store,scanner);
+    }
+
+    @Override
+    public void postFlush(ObserverContext<RegionCoprocessorEnvironment> e,Store store,StoreFile resultFile) throws IOException{
+        if(tableEnvMatch && StoreFileZoneMaps.isDataStore(store)){
+            StoreFileZoneMaps.finishFile(store,regionName(e),resultFile,null);
+        }
+        super.postFlush(e,store,resultFile);
+    }
+
+    @Override
+    public void postClose(ObserverContext<RegionCoprocessorEnvironment> e,boolean abortRequested){
+        if(tableEnvMatch){
+            StoreFileZoneMaps.removeRegion(regionName(e));
+        }
+        super.postClose(e,abortRequested);
+    }
+
     @Override
     public void preDelete(ObserverContext<RegionCoprocessorEnvironment> e,Delete delete,WALEdit edit,
                           Durability writeToWAL) throws IOException{
@@ -166,10 +202,11 @@ public class SIObserver extends BaseRegionObserver{
                                       InternalScanner scanner,ScanType scanType,CompactionRequest compactionRequest) throws IOException{
         if(tableEnvMatch){
             SIDriver driver=SIDriver.driver();
-            SICompactionState state = new SICompactionState(driver.getTxnSupplier(),
-                    driver.getRollForward(),
-                    driver.getConfiguration().getActiveTransactionCacheSize());
-            return new SICompactionScanner(state,scanner);
+            SICompactionState state = SICompactionState.newCompactionState(driver,scanType==ScanType.COMPACT_DROP_DELETES);
+            InternalScanner siScanner = new SICompactionScanner(state,scanner);
+            if(compactionRequest==null || !StoreFileZoneMaps.isDataStore(store))
+                return siScanner;
+            return new ZoneMapScanner(StoreFileZoneMaps.startFile(compactionRequest),siScanner);
         }else{
             return super.preCompact(e,store,scanner,scanType,compactionRequest);
         }
@@ -278,6 +315,10 @@ public class SIObserver extends BaseRegionObserver{
         return EntryPredicateFilter.fromBytes(serializedPredicateFilter);
     }
 
+    private static String regionName(ObserverContext<RegionCoprocessorEnvironment> e){
+        return e.getEnvironment().getRegion().getRegionInfo().getEncodedName();
+    }
+
     private boolean shouldUseSI(OperationWithAttributes op){
         if(op.getAttribute(SIConstants.SI_NEEDED)==null) return false;
         else return op.getAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME)==null;
@@ -16,6 +16,11 @@
 package com.splicemachine.si.data.hbase.coprocessor;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import com.google.common.base.Supplier;
 import com.google.protobuf.RpcCallback;
@@ -39,6 +44,8 @@ import com.splicemachine.si.api.txn.lifecycle.TxnLifecycleStore;
 import com.splicemachine.si.api.txn.lifecycle.TxnPartition;
 import com.splicemachine.si.coprocessor.TxnMessage;
 import com.splicemachine.si.impl.data.StripedTxnLifecycleStore;
+import com.splicemachine.si.impl.data.TxnGroupCommitStatus;
+import com.splicemachine.si.impl.TxnUtils;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.region.RegionServerControl;
 import com.splicemachine.si.impl.region.RegionTxnStore;
@@ -55,8 +62,15 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
     private static final Logger LOG=Logger.getLogger(TxnLifecycleEndpoint.class);
 
     private TxnLifecycleStore lifecycleStore;
+    private HRegion region;
     private volatile boolean isTxnTable=false;
 
+    /**
+     * Group commit metrics, shared by every transaction region on this server
+     */
+    public static final TxnGroupCommitStatus groupCommitStatus=new TxnGroupCommitStatus();
+    private static final AtomicBoolean groupCommitJmxRegistered=new AtomicBoolean(false);
+
     public static final CountedReference<TransactionResolver> resolverRef=new CountedReference<>(new Supplier<TransactionResolver>(){
         @Override
         public TransactionResolver get(){
@@ -71,7 +85,7 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
 
     @Override
     public void start(CoprocessorEnvironment env) throws IOException{
-        HRegion region=(HRegion)((RegionCoprocessorEnvironment)env).getRegion();
+        region=(HRegion)((RegionCoprocessorEnvironment)env).getRegion();
         HBaseSIEnvironment siEnv = HBaseSIEnvironment.loadEnvironment(new SystemClock(),ZkUtils.getRecoverableZooKeeper());
         SConfiguration configuration=siEnv.configuration();
         TableType table=EnvUtils.getTableType(configuration,(RegionCoprocessorEnvironment)env);
@@ -88,11 +102,25 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
             TimestampSource timestampSource=driver.getTimestampSource();
             int txnLockStrips = configuration.getTransactionLockStripes();
             lifecycleStore = new StripedTxnLifecycleStore(txnLockStrips,regionStore,
-                    new RegionServerControl(region),timestampSource);
+                    new RegionServerControl(region),timestampSource,
+                    configuration.getTransactionCommitGroupSize(),groupCommitStatus);
+            registerGroupCommitJmx();
             isTxnTable=true;
         }
     }
 
+    private static void registerGroupCommitJmx(){
+        if(!groupCommitJmxRegistered.compareAndSet(false,true)) return;
+        try{
+            MBeanServer mbs=ManagementFactory.getPlatformMBeanServer();
+            mbs.registerMBean(groupCommitStatus,new ObjectName("com.splicemachine.txn:type=TxnGroupCommitManagement")); // Same string is in JMXUtils
+        }catch(InstanceAlreadyExistsException ignored){
+            //we may share a JVM with another region server (e.g. when testing)
+        }catch(Exception e){
+            LOG.error("Unable to register group commit metrics with JMX. Commits will proceed, but metrics will not be available",e);
+        }
+    }
+
     @Override
     public void stop(CoprocessorEnvironment env){
         SpliceLogUtils.info(LOG, "Shutting down TxnLifecycleEndpoint");
@@ -172,6 +200,25 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
         }
     }
 
+    @Override
+    public void getTransactions(RpcController controller,TxnMessage.TxnsRequest request,RpcCallback<TxnMessage.TxnsResponse> done){
+        try{
+            TxnMessage.TxnsResponse.Builder response=TxnMessage.TxnsResponse.newBuilder();
+            int count=request.getTxnIdsCount();
+            for(int i=0;i<count;i++){
+                long txnId=request.getTxnIds(i);
+                if(!region.getRegionInfo().containsRow(TxnUtils.getRowKey(txnId)))
+                    continue; //held by another region, the client will have to look it up there
+                TxnMessage.Txn transaction=lifecycleStore.getTransaction(txnId);
+                if(transaction!=null)
+                    response.addTxns(transaction);
+            }
+            done.run(response.build());
+        }catch(IOException ioe){
+            ResponseConverter.setControllerException(controller,ioe);
+        }
+    }
+
     @Override
     public void getActiveTransactionIds(RpcController controller,TxnMessage.ActiveTxnRequest request,RpcCallback<TxnMessage.ActiveTxnIdResponse> done){
         long endTxnId=request.getEndTxnId();
@@ -15,6 +15,8 @@
 
 package com.splicemachine.si.impl;
 
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongObjectOpenHashMap;
 import org.sparkproject.guava.collect.Iterators;
 import org.sparkproject.guava.collect.Lists;
 import org.sparkproject.guava.primitives.Longs;
@@ -30,6 +32,7 @@ import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.coprocessor.TxnMessage;
 import com.splicemachine.si.impl.txn.InheritingTxnView;
 import com.splicemachine.timestamp.api.TimestampSource;
@@ -242,6 +245,48 @@ public class CoprocessorTxnStore implements TxnStore {
         }
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        /*
+         * Transactions are spread over the buckets of the transaction table by the low bits of their id, so
+         * ask the region holding each bucket for all of that bucket's transactions at once. A region only
+         * answers for the transactions it holds, so anything missing from a response (e.g. because the
+         * bucket has been split since) is looked up on its own.
+         */
+        LongArrayList[] buckets=new LongArrayList[SIConstants.TRANSACTION_TABLE_BUCKET_COUNT];
+        for(long txnId : txnIds){
+            int bucket=(int)(txnId&(SIConstants.TRANSACTION_TABLE_BUCKET_COUNT-1));
+            if(buckets[bucket]==null)
+                buckets[bucket]=new LongArrayList();
+            buckets[bucket].add(txnId);
+        }
+        LongObjectOpenHashMap<TxnView> found=new LongObjectOpenHashMap<>(txnIds.length);
+        try(TxnNetworkLayer table = tableFactory.accessTxnNetwork()){
+            for(LongArrayList bucket : buckets){
+                if(bucket==null) continue;
+                lookups.incrementAndGet();
+                TxnMessage.TxnsRequest.Builder request=TxnMessage.TxnsRequest.newBuilder();
+                for(int i=0;i<bucket.size();i++){
+                    request.addTxnIds(bucket.get(i));
+                }
+                for(TxnMessage.Txn message : table.getTxns(getTransactionRowKey(bucket.get(0)),request.build())){
+                    TxnView txn=decode(message);
+                    if(txn!=null)
+                        found.put(txn.getTxnId(),txn);
+                }
+            }
+        }catch(Throwable throwable){
+            throw new IOException(throwable);
+        }
+
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            TxnView txn=found.get(txnIds[i]);
+            txns[i]=txn!=null?txn:getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
     /*caching methods--since we don't have a cache, these are no-ops*/
     @Override
     public boolean transactionCached(long txnId){
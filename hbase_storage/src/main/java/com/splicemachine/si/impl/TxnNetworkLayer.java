@@ -38,5 +38,7 @@ public interface TxnNetworkLayer extends AutoCloseable{
 
     TxnMessage.Txn getTxn(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
+    Collection<TxnMessage.Txn> getTxns(byte[] rowKey,TxnMessage.TxnsRequest request) throws IOException;
+
     void close() throws IOException;
 }
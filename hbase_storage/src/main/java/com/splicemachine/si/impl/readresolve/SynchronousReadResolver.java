@@ -15,6 +15,7 @@
 
 package com.splicemachine.si.impl.readresolve;
 
+import com.carrotsearch.hppc.LongLongOpenHashMap;
 import com.splicemachine.annotations.ThreadSafe;
 import com.splicemachine.si.api.readresolve.KeyedReadResolver;
 import com.splicemachine.si.api.readresolve.ReadResolver;
@@ -27,15 +28,19 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.RegionPartition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -54,6 +59,10 @@ public class SynchronousReadResolver implements KeyedReadResolver{
     public static final SynchronousReadResolver INSTANCE=new SynchronousReadResolver();
     public static volatile boolean DISABLED_ROLLFORWARD=false;
 
+    /*markers for transactions which are not resolved by a commit timestamp*/
+    private static final long ROLLED_BACK=-1l;
+    private static final long UNRESOLVABLE=0l;
+
     /**
      * @param region      the region for the relevant read resolver
      * @param txnSupplier a Transaction Supplier for fetching transaction information
@@ -85,7 +94,8 @@ public class SynchronousReadResolver implements KeyedReadResolver{
             if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
                 trafficControl.acquire(1);
                 try{
-                    SynchronousReadResolver.INSTANCE.resolveRolledback(region,rowKey,txnId,failOnError);
+                    if(SynchronousReadResolver.INSTANCE.resolveRolledback(region,rowKey,txnId,failOnError))
+                        status.resolutionWritten(1);
                     resolved=true;
                 }finally{
                     trafficControl.release(1);
@@ -98,7 +108,8 @@ public class SynchronousReadResolver implements KeyedReadResolver{
                 if(t==Txn.ROOT_TRANSACTION){
                     trafficControl.acquire(1);
                     try{
-                        SynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
+                        if(SynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError))
+                            status.resolutionWritten(1);
                         resolved=true;
                     }finally{
                         trafficControl.release(1);
@@ -119,18 +130,122 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
-    /******************************************************************************************************************/
-    /*private helper methods */
-    private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
+
+    @Override
+    public int resolve(Partition region,
+                       ByteSlice[] rowKeys,
+                       long[] txnIds,
+                       int size,
+                       boolean[] resolved,
+                       TxnSupplier supplier,
+                       RollForwardStatus status,
+                       boolean failOnError,
+                       TrafficControl trafficControl){
         assert region instanceof RegionPartition: "Not on a region!";
+        Arrays.fill(resolved,0,size,false);
+        if(size<=0 || DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return 0; //do nothing if we are closing or rollforward is disabled
+
         /*
-         * Resolve the row as committed directly.
-         *
-         * This does a Put to the row, bypassing SI and the WAL, so it should be pretty low impact
+         * Build a mutation for every row which can be resolved, looking up each distinct
+         * transaction only once.
          */
-        if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
-            return; //do nothing if we are closing or rollforward is disabled
+        LongLongOpenHashMap resolutions=new LongLongOpenHashMap();
+        Mutation[] mutations=new Mutation[size];
+        int[] positions=new int[size];
+        int numMutations=0;
+        for(int i=0;i<size;i++){
+            long txnId=txnIds[i];
+            long resolution;
+            if(resolutions.containsKey(txnId))
+                resolution=resolutions.lget();
+            else{
+                resolution=getResolution(supplier,txnId,failOnError);
+                resolutions.put(txnId,resolution);
+            }
+            if(resolution==UNRESOLVABLE) continue;
+
+            Mutation mutation;
+            if(resolution==ROLLED_BACK)
+                mutation=rolledbackDelete(rowKeys[i],txnId);
+            else
+                mutation=committedPut(rowKeys[i],txnId,resolution);
+            mutations[numMutations]=mutation;
+            positions[numMutations]=i;
+            numMutations++;
+        }
+
+        /*
+         * Write the mutations in as few batches as the traffic control will allow. When permits
+         * are scarce, we wait for a single permit and write a single row, so that we back off to
+         * small writes until the pressure on the region clears.
+         */
+        int numResolved=0;
+        int written=0;
+        while(written<numMutations){
+            int permits=trafficControl.tryAcquire(1,numMutations-written);
+            if(permits<=0){
+                try{
+                    trafficControl.acquire(1);
+                }catch(InterruptedException e){
+                    LOG.debug("Interrupted which performing read resolution, will not resolve");
+                    Thread.currentThread().interrupt();
+                    return numResolved;
+                }
+                permits=1;
+            }
+            try{
+                Mutation[] toWrite=Arrays.copyOfRange(mutations,written,written+permits);
+                OperationStatus[] statuses=((RegionPartition)region).unwrapDelegate().batchMutate(toWrite);
+                int successes=0;
+                for(int i=0;i<statuses.length;i++){
+                    if(statuses[i].getOperationStatusCode()==HConstants.OperationStatusCode.SUCCESS){
+                        resolved[positions[written+i]]=true;
+                        status.rowResolved();
+                        successes++;
+                    }
+                }
+                if(successes>0)
+                    status.resolutionWritten(successes);
+                numResolved+=successes;
+            }catch(IOException e){
+                if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)){
+                    LOG.info("Exception encountered when attempting to resolve a batch of rows",e);
+                    if(failOnError)
+                        throw new RuntimeException(e);
+                }
+            }finally{
+                trafficControl.release(permits);
+            }
+            written+=permits;
+        }
+        return numResolved;
+    }
+
+    /******************************************************************************************************************/
+    /*private helper methods */
+    private long getResolution(TxnSupplier supplier,long txnId,boolean failOnError){
+        TxnView transaction;
+        try{
+            transaction=supplier.getTransaction(txnId);
+        }catch(IOException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
+            if(failOnError)
+                throw new RuntimeException(e);
+            return UNRESOLVABLE;
+        }
+        if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK)
+            return ROLLED_BACK;
+        TxnView t=transaction;
+        while(t.getState()==Txn.State.COMMITTED){
+            t=t.getParentTxnView();
+        }
+        if(t==Txn.ROOT_TRANSACTION)
+            return transaction.getEffectiveCommitTimestamp();
+        return UNRESOLVABLE;
+    }
 
+    private Put committedPut(ByteSlice rowKey,long txnId,long commitTimestamp){
         Put put=new Put(rowKey.getByteCopy());
         put.add(SIConstants.DEFAULT_FAMILY_BYTES,
                 SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
@@ -138,18 +253,44 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
         put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
         put.setDurability(Durability.SKIP_WAL);
+        return put;
+    }
+
+    private Delete rolledbackDelete(ByteSlice rowKey,long txnId){
+        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
+        delete.setDurability(Durability.SKIP_WAL);
+        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return delete;
+    }
+
+    private boolean resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
+        assert region instanceof RegionPartition: "Not on a region!";
+        /*
+         * Resolve the row as committed directly.
+         *
+         * This does a Put to the row, bypassing SI and the WAL, so it should be pretty low impact
+         */
+        if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return false; //do nothing if we are closing or rollforward is disabled
+
+        Put put=committedPut(rowKey,txnId,commitTimestamp);
         try{
             ((RegionPartition)region).unwrapDelegate().put(put);
+            return true;
         }catch(IOException e){
             if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)){
                 LOG.info("Exception encountered when attempting to resolve a row as committed",e);
                 if(failOnError)
                     throw new RuntimeException(e);
             }
+            return false;
         }
     }
 
-    private void resolveRolledback(Partition region,ByteSlice rowKey,long txnId,boolean failOnError){
+    private boolean resolveRolledback(Partition region,ByteSlice rowKey,long txnId,boolean failOnError){
         assert region instanceof RegionPartition: "Not on a region!";
         /*
          * Resolve the row as rolled back directly.
@@ -157,20 +298,17 @@ public class SynchronousReadResolver implements KeyedReadResolver{
          * This does a Delete to the row, bypassing SI and the WAL, so it should be pretty low impact
          */
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
-            return; //do nothing if we are closing
+            return false; //do nothing if we are closing
 
-        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
-        delete.setDurability(Durability.SKIP_WAL);
-        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        Delete delete=rolledbackDelete(rowKey,txnId);
         try{
             ((RegionPartition)region).unwrapDelegate().delete(delete);
+            return true;
         }catch(IOException ioe){
             LOG.info("Exception encountered when attempting to resolve a row as rolled back",ioe);
             if(failOnError)
                 throw new RuntimeException(ioe);
+            return false;
         }
     }
 }
@@ -32,8 +32,10 @@ import com.splicemachine.utils.Source;
 import com.splicemachine.utils.SpliceLogUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.log4j.Logger;
 import java.io.IOException;
@@ -200,6 +202,24 @@ public class RegionTxnStore implements TxnPartition{
         region.put(put);
     }
 
+    @Override
+    public void recordCommits(long[] txnIds,long[] commitTimestamps) throws IOException{
+        if(LOG.isTraceEnabled())
+            SpliceLogUtils.trace(LOG,"recordCommits size=%d",txnIds.length);
+        Mutation[] puts=new Mutation[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            Put put=new Put(getRowKey(txnIds[i]));
+            put.add(FAMILY,V2TxnDecoder.COMMIT_QUALIFIER_BYTES,Encoding.encode(commitTimestamps[i]));
+            put.add(FAMILY,V2TxnDecoder.STATE_QUALIFIER_BYTES,Txn.State.COMMITTED.encode());
+            puts[i]=put;
+        }
+        OperationStatus[] statuses=region.batchMutate(puts);
+        for(int i=0;i<statuses.length;i++){
+            if(statuses[i].getOperationStatusCode()!=HConstants.OperationStatusCode.SUCCESS)
+                throw new IOException("Unable to record commit of txn "+txnIds[i]+": "+statuses[i].getExceptionMsg());
+        }
+    }
+
     @Override
     public void recordGlobalCommit(long txnId,long globalCommitTs) throws IOException{
         Put put=new Put(getRowKey(txnId));
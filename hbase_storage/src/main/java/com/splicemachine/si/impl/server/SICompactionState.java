@@ -15,6 +15,8 @@
 
 package com.splicemachine.si.impl.server;
 
+import com.carrotsearch.hppc.LongLongOpenHashMap;
+import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.hbase.CellUtils;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.readresolve.RollForward;
@@ -22,6 +24,7 @@ import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
 import com.splicemachine.si.impl.txn.CommittedTxn;
 import com.splicemachine.si.impl.txn.RolledBackTxn;
@@ -33,120 +36,121 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Captures the SI logic to perform when a data table is compacted (without explicit HBase dependencies). Provides the
  * guts for SICompactionScanner.
  * <p/>
  * It is handed key-values and can change them.
+ * <p/>
+ * Each row is handed over in sorted order, and is processed in place rather than through an intermediate sorted
+ * set: the first pass resolves the transaction of every SI cell (looking up each distinct transaction in the row
+ * only once), the second decides which cells survive and which commit timestamps must be added, and the third
+ * merges the new commit timestamp cells into their sorted position while copying the survivors out. The working
+ * arrays are reused from row to row, and new commit timestamp cells are carved out of shared slabs rather than
+ * allocated one at a time.
+ * <p/>
+ * When a purge horizon is set, a row which was deleted by a transaction that committed before the horizon has
+ * every version the delete hides removed. The tombstone itself is only removed when the compaction is allowed to
+ * drop delete markers (i.e. when it covers every file in the store), since otherwise older versions in files
+ * outside of the compaction would reappear.
  */
 public class SICompactionState {
     private static final Logger LOG = Logger.getLogger(SICompactionState.class);
+    /*Purge horizon which disables purging of deleted rows*/
+    public static final long NO_PURGE = -1l;
+
+    /*resolutions for transactions which do not resolve to a commit timestamp*/
+    private static final long ROLLED_BACK = -1l;
+    private static final long UNRESOLVED = 0l;
+
+    private static final int SLAB_SIZE = 1<<16;
+
     private final TxnSupplier transactionStore;
-    private SortedSet<Cell> dataToReturn;
     private final RollForward rollForward;
+    private final long purgeHorizon;
+    private final boolean dropDeleteMarkers;
     private ByteSlice rowSlice = new ByteSlice();
 
+    /*per-row working state, reused between rows*/
+    private final LongLongOpenHashMap rowResolutions = new LongLongOpenHashMap();
+    private CellType[] cellTypes = new CellType[16];
+    private long[] resolutions = new long[16];
+    private long[] commitTimestamps = new long[16];
+    private final byte[] commitTimestampValue = new byte[Bytes.SIZEOF_LONG];
+
+    /*
+     * The slab which new commit timestamp cells are written into. Cells which have been returned may still be
+     * referenced by the store file writer after we return, so a slab is never written over; when it fills, a
+     * new one is allocated and the old one is left to whoever still holds its cells.
+     */
+    private byte[] slab;
+    private int slabPosition;
+
     public SICompactionState(TxnSupplier transactionStore,RollForward rollForward,int activeTransactionCacheSize) {
-        this.rollForward = rollForward;
-        this.transactionStore = new ActiveTxnCacheSupplier(transactionStore,activeTransactionCacheSize);
-        this.dataToReturn  =new TreeSet<>(KeyValue.COMPARATOR);
+        this(transactionStore,rollForward,activeTransactionCacheSize,NO_PURGE,false);
     }
 
     /**
-     * Given a list of key-values, populate the results list with possibly mutated values.
-     *
-     * @param rawList - the input of key values to process
-     * @param results - the output key values
+     * @param purgeHorizon the id of the oldest active transaction; rows deleted by transactions which committed
+     *                     before this have the versions they hide removed. Use {@link #NO_PURGE} to keep all versions.
+     * @param dropDeleteMarkers whether or not the tombstones of purged rows may be removed as well
      */
-    public void mutate(List<Cell> rawList, List<Cell> results) throws IOException {
-        dataToReturn.clear();
-        for (Cell aRawList : rawList) {
-            mutate(aRawList);
-        }
-        results.addAll(dataToReturn);
+    public SICompactionState(TxnSupplier transactionStore,
+                             RollForward rollForward,
+                             int activeTransactionCacheSize,
+                             long purgeHorizon,
+                             boolean dropDeleteMarkers) {
+        this.rollForward = rollForward;
+        this.transactionStore = new ActiveTxnCacheSupplier(transactionStore,activeTransactionCacheSize);
+        this.purgeHorizon = purgeHorizon;
+        this.dropDeleteMarkers = dropDeleteMarkers;
     }
 
     /**
-     * Apply SI mutation logic to an individual key-value. Return the "new" key-value.
+     * Create the compaction state for a compaction of a data table, purging deleted rows if
+     * the configuration allows it.
+     *
+     * @param driver the SI driver for this server
+     * @param dropDeleteMarkers whether or not the compaction covers every file in the store, and may
+     *                          therefore remove tombstones
      */
-    private void mutate(Cell element) throws IOException {
-        final CellType cellType= getKeyValueType(element);
-        long timestamp = element.getTimestamp();
-        switch (cellType) {
-            case COMMIT_TIMESTAMP:
-                /*
-                 * Older versions of SI code would put an "SI Fail" element in the commit timestamp
-                 * field when a row has been rolled back. While newer versions will just outright delete the entry,
-                 * we still need to deal with entries which are in the old form. As time goes on, this should
-                 * be less and less frequent, but you still have to check
-                 */
-                ensureTransactionCached(timestamp,element);
-                dataToReturn.add(element);
-                return;
-            case TOMBSTONE:
-            case ANTI_TOMBSTONE:
-            case USER_DATA:
-                if(mutateCommitTimestamp(timestamp,element))
-                    dataToReturn.add(element);
-                return;
-            default:
-                if(LOG.isDebugEnabled()){
-                    String famString = Bytes.toString(element.getFamilyArray(),element.getFamilyOffset(),element.getFamilyLength());
-                    String qualString = Bytes.toString(element.getQualifierArray(),element.getQualifierOffset(),element.getQualifierLength());
-                       SpliceLogUtils.debug(LOG,"KeyValue with family %s and column %s are not SI-managed, ignoring",
-                               famString,qualString);
-                }
-                dataToReturn.add(element);
-        }
-    }
-
-    private void ensureTransactionCached(long timestamp,Cell element) {
-        if(!transactionStore.transactionCached(timestamp)){
-            if(isFailedCommitTimestamp(element)){
-                transactionStore.cache(new RolledBackTxn(timestamp));
-            }else if (element.getValueLength()>0){ //shouldn't happen, but you never know
-                long commitTs = Bytes.toLong(element.getValueArray(),element.getValueOffset(),element.getValueLength());
-                transactionStore.cache(new CommittedTxn(timestamp,commitTs));
+    public static SICompactionState newCompactionState(SIDriver driver,boolean dropDeleteMarkers) throws IOException {
+        SConfiguration config = driver.getConfiguration();
+        long purgeHorizon = NO_PURGE;
+        if(config.getCompactionPurgeDeletedRows()){
+            long currentTimestamp = driver.getTimestampSource().nextTimestamp();
+            purgeHorizon = currentTimestamp;
+            long[] activeTxnIds = driver.getTxnStore().getActiveTransactionIds(0l,currentTimestamp,null);
+            for(long activeTxnId:activeTxnIds){
+                if(activeTxnId<purgeHorizon)
+                    purgeHorizon = activeTxnId;
             }
         }
+        return new SICompactionState(driver.getTxnSupplier(),
+                driver.getRollForward(),
+                config.getActiveTransactionCacheSize(),
+                purgeHorizon,
+                dropDeleteMarkers);
     }
 
     /**
-     * Replace unknown commit timestamps with actual commit times.
+     * Given a list of key-values, populate the results list with possibly mutated values.
+     *
+     * @param rawList - the input of key values to process, all from the same row and in sorted order
+     * @param results - the output key values
      */
-    private boolean mutateCommitTimestamp(long timestamp,Cell element) throws IOException {
-        TxnView transaction = transactionStore.getTransaction(timestamp);
-        if(transaction.getEffectiveState()== Txn.State.ROLLEDBACK){
-            /*
-             * This transaction has been rolled back, so just remove the data
-             * from physical storage
-             */
-            recordResolved(element,transaction);
-            return false;
-        }
-        TxnView t = transaction;
-        while(t.getState()== Txn.State.COMMITTED){
-            t = t.getParentTxnView();
-        }
-        if(t==Txn.ROOT_TRANSACTION){
-            /*
-             * This element has been committed all the way to the user level, so a
-             * commit timestamp can be placed on it.
-             */
-            long globalCommitTimestamp = transaction.getEffectiveCommitTimestamp();
-            dataToReturn.add(newTransactionTimeStampKeyValue(element, Bytes.toBytes(globalCommitTimestamp)));
-            recordResolved(element, transaction);
-        }
-        return true;
-    }
+    public void mutate(List<Cell> rawList, List<Cell> results) throws IOException {
+        int size = rawList.size();
+        if(size<=0) return;
+        ensureCapacity(size);
+        rowResolutions.clear();
 
-    private void recordResolved(Cell element, TxnView transaction) {
-        rowSlice.set(element.getRowArray(),element.getRowOffset(),element.getRowLength());
-        rollForward.recordResolved(rowSlice,transaction.getTxnId());
+        long tombstoneTimestamp = resolve(rawList);
+        int numCommitTimestamps = filter(rawList,tombstoneTimestamp);
+        merge(rawList,results,numCommitTimestamps);
     }
 
     public Cell newTransactionTimeStampKeyValue(Cell element, byte[] value) {
@@ -181,4 +185,251 @@ public class SICompactionState {
         return CellType.OTHER;
     }
 
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * Classify every cell in the row and resolve the transaction which wrote it.
+     *
+     * @return the timestamp of the newest tombstone which is visible to every active transaction, or -1 if
+     * there is no such tombstone (or purging is disabled).
+     */
+    private long resolve(List<Cell> rawList) throws IOException {
+        long tombstoneTimestamp = -1l;
+        int size = rawList.size();
+        for(int i=0;i<size;i++){
+            Cell element = rawList.get(i);
+            CellType cellType = getKeyValueType(element);
+            cellTypes[i] = cellType;
+            long timestamp = element.getTimestamp();
+            switch(cellType){
+                case COMMIT_TIMESTAMP:
+                    /*
+                     * Older versions of SI code would put an "SI Fail" element in the commit timestamp
+                     * field when a row has been rolled back. While newer versions will just outright delete the entry,
+                     * we still need to deal with entries which are in the old form. As time goes on, this should
+                     * be less and less frequent, but you still have to check
+                     */
+                    resolutions[i] = commitTimestampResolution(timestamp,element);
+                    break;
+                case TOMBSTONE:
+                    resolutions[i] = resolution(timestamp);
+                    if(tombstoneTimestamp<0 && purgeHorizon>=0 && resolutions[i]>0 && resolutions[i]<purgeHorizon){
+                        /*
+                         * The tombstone column is sorted newest first, so the first tombstone which every
+                         * active transaction can see is the newest one.
+                         */
+                        tombstoneTimestamp = timestamp;
+                    }
+                    break;
+                case ANTI_TOMBSTONE:
+                case USER_DATA:
+                    resolutions[i] = resolution(timestamp);
+                    break;
+                default:
+                    if(LOG.isDebugEnabled()){
+                        String famString = Bytes.toString(element.getFamilyArray(),element.getFamilyOffset(),element.getFamilyLength());
+                        String qualString = Bytes.toString(element.getQualifierArray(),element.getQualifierOffset(),element.getQualifierLength());
+                        SpliceLogUtils.debug(LOG,"KeyValue with family %s and column %s are not SI-managed, ignoring",
+                                famString,qualString);
+                    }
+                    resolutions[i] = UNRESOLVED;
+            }
+        }
+        return tombstoneTimestamp;
+    }
+
+    /**
+     * Decide which cells survive the compaction. Cells which are removed have their type cleared; the
+     * commit timestamps which must be added to the row are collected into {@code commitTimestamps}.
+     *
+     * @return the number of commit timestamps to add
+     */
+    private int filter(List<Cell> rawList,long tombstoneTimestamp) {
+        int numCommitTimestamps = 0;
+        int size = rawList.size();
+        for(int i=0;i<size;i++){
+            CellType cellType = cellTypes[i];
+            Cell element = rawList.get(i);
+            long timestamp = element.getTimestamp();
+            long resolution = resolutions[i];
+            switch(cellType){
+                case COMMIT_TIMESTAMP:
+                    if(resolution==ROLLED_BACK || hiddenByTombstone(cellType,timestamp,tombstoneTimestamp))
+                        cellTypes[i] = null;
+                    break;
+                case TOMBSTONE:
+                case ANTI_TOMBSTONE:
+                case USER_DATA:
+                    if(resolution==ROLLED_BACK){
+                        /*
+                         * This transaction has been rolled back, so just remove the data
+                         * from physical storage
+                         */
+                        recordResolved(element,timestamp);
+                        cellTypes[i] = null;
+                    }else if(hiddenByTombstone(cellType,timestamp,tombstoneTimestamp)){
+                        cellTypes[i] = null;
+                    }else if(resolution>0){
+                        /*
+                         * This element has been committed all the way to the user level, so a
+                         * commit timestamp can be placed on it.
+                         */
+                        commitTimestamps[numCommitTimestamps] = timestamp;
+                        numCommitTimestamps++;
+                        recordResolved(element,timestamp);
+                    }
+                    break;
+                default:
+                    //not SI-managed, so always keep it
+            }
+        }
+        if(numCommitTimestamps<=1) return numCommitTimestamps;
+
+        /*
+         * The same transaction usually wrote more than one column, so sort and de-duplicate. We sort
+         * ascending, then reverse into the newest-first order of the commit timestamp column.
+         */
+        Arrays.sort(commitTimestamps,0,numCommitTimestamps);
+        int distinct = 0;
+        for(int i=numCommitTimestamps-1;i>=0;i--){
+            if(distinct==0 || commitTimestamps[distinct-1]!=commitTimestamps[i]){
+                commitTimestamps[distinct] = commitTimestamps[i];
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Copy the surviving cells into {@code results}, inserting new commit timestamp cells in sorted position. If
+     * the row already has a commit timestamp for a transaction, the existing cell is kept.
+     */
+    private void merge(List<Cell> rawList,List<Cell> results,int numCommitTimestamps) {
+        int size = rawList.size();
+        int next = 0;
+        for(int i=0;i<size;i++){
+            if(cellTypes[i]==null) continue;
+            Cell element = rawList.get(i);
+            while(next<numCommitTimestamps){
+                int compare = compareToCommitTimestamp(element,commitTimestamps[next]);
+                if(compare<0) break;
+                if(compare>0)
+                    results.add(newCommitTimestampCell(element,commitTimestamps[next]));
+                next++;
+            }
+            results.add(element);
+        }
+        Cell last = rawList.get(size-1);
+        while(next<numCommitTimestamps){
+            results.add(newCommitTimestampCell(last,commitTimestamps[next]));
+            next++;
+        }
+    }
+
+    private boolean hiddenByTombstone(CellType cellType,long timestamp,long tombstoneTimestamp) {
+        if(tombstoneTimestamp<0 || timestamp>tombstoneTimestamp) return false;
+        if(timestamp<tombstoneTimestamp || dropDeleteMarkers) return true;
+        /*
+         * The tombstone is staying, so we must keep its commit timestamp too; data written by the same
+         * transaction as the tombstone is still hidden by it.
+         */
+        return cellType==CellType.USER_DATA;
+    }
+
+    private long commitTimestampResolution(long timestamp,Cell element) {
+        long resolution;
+        if(isFailedCommitTimestamp(element)){
+            resolution = ROLLED_BACK;
+            if(!transactionStore.transactionCached(timestamp))
+                transactionStore.cache(new RolledBackTxn(timestamp));
+        }else if (element.getValueLength()>0){ //shouldn't happen, but you never know
+            resolution = Bytes.toLong(element.getValueArray(),element.getValueOffset(),element.getValueLength());
+            if(!transactionStore.transactionCached(timestamp))
+                transactionStore.cache(new CommittedTxn(timestamp,resolution));
+        }else
+            return UNRESOLVED;
+        rowResolutions.put(timestamp,resolution);
+        return resolution;
+    }
+
+    private long resolution(long txnId) throws IOException {
+        if(rowResolutions.containsKey(txnId))
+            return rowResolutions.lget();
+
+        long resolution = UNRESOLVED;
+        TxnView transaction = transactionStore.getTransaction(txnId);
+        if(transaction.getEffectiveState()== Txn.State.ROLLEDBACK){
+            resolution = ROLLED_BACK;
+        }else{
+            TxnView t = transaction;
+            while(t.getState()== Txn.State.COMMITTED){
+                t = t.getParentTxnView();
+            }
+            if(t==Txn.ROOT_TRANSACTION)
+                resolution = transaction.getEffectiveCommitTimestamp();
+        }
+        rowResolutions.put(txnId,resolution);
+        return resolution;
+    }
+
+    /**
+     * Compare {@code element} (from the same row) to a commit timestamp cell for {@code txnId}, in
+     * KeyValue order.
+     *
+     * @return a negative number if {@code element} sorts first, positive if the commit timestamp sorts first, and
+     * 0 if {@code element} is a commit timestamp for the same transaction
+     */
+    private int compareToCommitTimestamp(Cell element,long txnId) {
+        byte[] family = SIConstants.DEFAULT_FAMILY_BYTES;
+        int compare = Bytes.BASE_COMPARATOR.compare(element.getFamilyArray(),element.getFamilyOffset(),element.getFamilyLength(),
+                family,0,family.length);
+        if(compare!=0) return compare;
+        byte[] qualifier = SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES;
+        compare = Bytes.BASE_COMPARATOR.compare(element.getQualifierArray(),element.getQualifierOffset(),element.getQualifierLength(),
+                qualifier,0,qualifier.length);
+        if(compare!=0) return compare;
+        //newer versions sort first
+        long timestamp = element.getTimestamp();
+        if(timestamp!=txnId)
+            return timestamp>txnId? -1 : 1;
+        //higher type codes (i.e. deletes) sort first
+        return (KeyValue.Type.Put.getCode() & 0xff)-(element.getTypeByte() & 0xff);
+    }
+
+    private Cell newCommitTimestampCell(Cell element,long txnId) {
+        byte[] family = SIConstants.DEFAULT_FAMILY_BYTES;
+        byte[] qualifier = SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES;
+        int rowLength = element.getRowLength();
+        int length = (int)KeyValue.getKeyValueDataStructureSize(rowLength,family.length,qualifier.length,commitTimestampValue.length);
+        if(slab==null || slabPosition+length>slab.length){
+            slab = new byte[Math.max(SLAB_SIZE,length)];
+            slabPosition = 0;
+        }
+        Bytes.toBytes(rowResolutions.get(txnId),commitTimestampValue,0);
+        KeyValue kv = new KeyValue(slab,slabPosition,
+                element.getRowArray(),element.getRowOffset(),rowLength,
+                family,0,family.length,
+                qualifier,0,qualifier.length,
+                txnId,KeyValue.Type.Put,
+                commitTimestampValue,0,commitTimestampValue.length,
+                null);
+        slabPosition+=length;
+        return kv;
+    }
+
+    private void recordResolved(Cell element, long txnId) {
+        rowSlice.set(element.getRowArray(),element.getRowOffset(),element.getRowLength());
+        rollForward.recordResolved(rowSlice,txnId);
+    }
+
+    private void ensureCapacity(int size) {
+        if(cellTypes.length>=size) return;
+        int newSize = cellTypes.length;
+        while(newSize<size)
+            newSize<<=1;
+        cellTypes = new CellType[newSize];
+        resolutions = new long[newSize];
+        commitTimestamps = new long[newSize];
+    }
 }
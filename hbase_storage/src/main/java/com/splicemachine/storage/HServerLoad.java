@@ -15,7 +15,6 @@
 
 package com.splicemachine.storage;
 
-import com.splicemachine.primitives.Bytes;
 import org.apache.hadoop.hbase.RegionLoad;
 import org.apache.hadoop.hbase.ServerLoad;
 
@@ -59,9 +58,11 @@ public class HServerLoad implements PartitionServerLoad{
         Map<byte[], RegionLoad> regionsLoad=load.getRegionsLoad();
         Set<PartitionLoad> loads = new HashSet<>(regionsLoad.size(),0.9f);
         for(Map.Entry<byte[],RegionLoad> regionLoad:regionsLoad.entrySet()){
-            String name = Bytes.toString(regionLoad.getKey());
             RegionLoad rl = regionLoad.getValue();
-            PartitionLoad pl = new HPartitionLoad(name,rl.getStorefileSizeMB(),rl.getMemStoreSizeMB(),rl.getStorefileIndexSizeMB());
+            //use the same form of the region name as the partitions do
+            String name = rl.getNameAsString();
+            PartitionLoad pl = new HPartitionLoad(name,rl.getStorefileSizeMB(),rl.getMemStoreSizeMB(),rl.getStorefileIndexSizeMB(),
+                    rl.getWriteRequestsCount());
             loads.add(pl);
         }
         return loads;
@@ -65,6 +65,7 @@ public class ListingResultScanner implements DataScanner{
     @Override public long getBytesOutput(){ return resultScanner.getBytesOutput(); }
     @Override public long getRowsFiltered(){ return resultScanner.getRowsFiltered(); }
     @Override public long getRowsVisited(){ return resultScanner.getRowsVisited(); }
+    @Override public long getFilesSkipped(){ return 0l; }
 
     private static class ListView extends AbstractList<DataCell>{
         private List<Cell> cells;
@@ -88,6 +88,7 @@ public class RegionDataScanner implements DataScanner{
     @Override public long getBytesOutput(){ return outputBytesCounter.getTotal(); }
     @Override public long getRowsFiltered(){ return filteredRowCounter.getTotal(); }
     @Override public long getRowsVisited(){ return readTimer.getNumEvents(); }
+    @Override public long getFilesSkipped(){ return 0l; }
 
     @Override public void close() throws IOException{ delegate.close(); }
 
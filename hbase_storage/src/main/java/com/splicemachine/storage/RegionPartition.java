@@ -20,6 +20,7 @@ import com.splicemachine.si.impl.HRegionTooBusy;
 
 import org.apache.hadoop.hbase.DroppedSnapshotException;
 import org.sparkproject.guava.collect.Iterators;
+import com.splicemachine.hbase.StoreFileZoneMaps;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.metrics.Metrics;
@@ -222,6 +223,12 @@ public class RegionPartition implements Partition{
 
         Scan s=((HScan)scan).unwrapDelegate();
         try{
+            byte[] predicateBytes=s.getAttribute(SIConstants.ENTRY_PREDICATE_LABEL);
+            if(predicateBytes!=null){
+                int skippableFiles=StoreFileZoneMaps.skippableFiles(region,predicateBytes);
+                if(skippableFiles>0)
+                    return new SkippedDataScanner(this,skippableFiles);
+            }
             RegionScanner scanner=region.getScanner(s);
 
             return new RegionDataScanner(this,scanner,metricFactory);
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.TimeView;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A DataScanner over a region which was not read at all, because none of its store files could
+ * contain a row matching the scan's predicates.
+ */
+public class SkippedDataScanner implements DataScanner{
+    private final Partition partition;
+    private final long filesSkipped;
+
+    public SkippedDataScanner(Partition partition,long filesSkipped){
+        this.partition=partition;
+        this.filesSkipped=filesSkipped;
+    }
+
+    @Override
+    public @Nonnull List<DataCell> next(int limit) throws IOException{
+        return Collections.emptyList();
+    }
+
+    @Override public TimeView getReadTime(){ return Metrics.noOpTimeView(); }
+    @Override public long getBytesOutput(){ return 0l; }
+    @Override public long getRowsFiltered(){ return 0l; }
+    @Override public long getRowsVisited(){ return 0l; }
+    @Override public long getFilesSkipped(){ return filesSkipped; }
+    @Override public Partition getPartition(){ return partition; }
+    @Override public void close() throws IOException{ }
+}
@@ -59,7 +59,7 @@ public class ZkTimestampSource implements TimestampSource {
                 int timestampPort = config.getTimestampServerBindPort();
 		    	LOG.info("Creating the TimestampClient...");
                 HBaseConnectionFactory hbcf = HBaseConnectionFactory.getInstance(config);
-                _tc = new TimestampClient(timeout,
+                _tc = new TimestampClient(timeout,config.getTimestampClientMaxBatchSize(),
                         new HBaseTimestampHostProvider(hbcf,timestampPort));
     		}
     	}
@@ -90,6 +90,25 @@ public class ZkTimestampSource implements TimestampSource {
 		return nextTimestamp;
 	}
 
+    @Override
+    public long nextTimestamps(int count) {
+        TimestampClient client = getTimestampClient();
+
+        long firstTimestamp;
+        try {
+            firstTimestamp = client.getNextTimestamps(count);
+        } catch (UnsupportedOperationException uoe) {
+            throw uoe; // the server predates batched requests; callers can fall back to single timestamps
+        } catch (Exception e) {
+            LOG.error("Unable to fetch new timestamps", e);
+            throw new RuntimeException("Unable to fetch new timestamps", e);
+        }
+
+        SpliceLogUtils.debug(LOG, "Next %s timestamps start at: %s", count, firstTimestamp);
+
+        return firstTimestamp;
+    }
+
 	// The following two are same as ZooKeeperStatTimestampSource,
 	// and can probably stay this way.
 	
@@ -34,6 +34,7 @@ import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.storage.DataFilter;
 import com.splicemachine.storage.HCell;
 import com.splicemachine.storage.RegionPartition;
+import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.GreenLight;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.hadoop.hbase.Cell;
@@ -220,4 +221,63 @@ public class SynchronousReadResolverTest {
         Assert.assertEquals("Incorrect committed txnId", childTxn.getTxnId(), commitTs.getTimestamp());
         Assert.assertEquals("Incorrect commit timestamp!", childTxn.getEffectiveCommitTimestamp(), Bytes.toLong(CellUtil.cloneValue(commitTs)));
     }
+
+    @Test
+    public void testResolvingABatchUsesASingleWrite() throws Exception {
+        HRegion region = MockRegionUtils.getMockRegion();
+        RegionPartition rp = new RegionPartition(region);
+
+        TestingTimestampSource timestampSource = new TestingTimestampSource();
+        TxnStore store = new TestingTxnStore(new IncrementingClock(),timestampSource,HExceptionFactory.INSTANCE,Long.MAX_VALUE);
+        ClientTxnLifecycleManager tc = new ClientTxnLifecycleManager(timestampSource,HExceptionFactory.INSTANCE);
+        tc.setTxnStore(store);
+        tc.setKeepAliveScheduler(new ManualKeepAliveScheduler(store));
+
+        Txn committedTxn = tc.beginTransaction(Bytes.toBytes("1184"));
+        Txn rolledBackTxn = tc.beginTransaction(Bytes.toBytes("1184"));
+        Txn activeTxn = tc.beginTransaction(Bytes.toBytes("1184"));
+
+        ByteSlice[] rowKeys = new ByteSlice[4];
+        long[] txnIds = new long[4];
+        Txn[] writers = new Txn[]{committedTxn,committedTxn,rolledBackTxn,activeTxn};
+        for(int i=0;i<rowKeys.length;i++){
+            byte[] rowKey = Encoding.encode("hello"+i);
+            Put testPut = new Put(rowKey);
+            testPut.add(SIConstants.DEFAULT_FAMILY_BYTES,
+                    SIConstants.PACKED_COLUMN_BYTES,
+                    writers[i].getTxnId(), Encoding.encode("hello2"));
+            region.put(testPut);
+            rowKeys[i] = ByteSlice.wrap(rowKey);
+            txnIds[i] = writers[i].getTxnId();
+        }
+        committedTxn.commit();
+        rolledBackTxn.rollback();
+
+        RollForwardStatus status = new RollForwardStatus();
+        for(int i=0;i<rowKeys.length;i++){
+            status.rowWritten();
+        }
+        boolean[] resolved = new boolean[rowKeys.length];
+        int numResolved = SynchronousReadResolver.INSTANCE.resolve(rp,rowKeys,txnIds,rowKeys.length,resolved,
+                store,status,true,GreenLight.INSTANCE);
+
+        Assert.assertEquals("Incorrect number of resolved rows!", 3, numResolved);
+        Assert.assertTrue("Committed row not resolved!", resolved[0]);
+        Assert.assertTrue("Committed row not resolved!", resolved[1]);
+        Assert.assertTrue("Rolled back row not resolved!", resolved[2]);
+        Assert.assertFalse("Active row was resolved!", resolved[3]);
+        Assert.assertEquals("Rows were not written in a single batch!", 1, status.getTotalResolutionWrites());
+        Assert.assertEquals("Incorrect number of rows written!", 3, status.getTotalRowsResolved());
+        Assert.assertEquals("Active row is no longer waiting to be resolved!", 1, status.getTotalRowsToResolve());
+
+        for(int i=0;i<2;i++){
+            Result result = region.get(new Get(rowKeys[i].getByteCopy()));
+            Assert.assertEquals("Incorrect result size after read resolve!", 2, result.size());
+            Cell commitTs = result.getColumnLatestCell(SIConstants.DEFAULT_FAMILY_BYTES, SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES);
+            Assert.assertNotNull("No Commit TS column found!", commitTs);
+            Assert.assertEquals("Incorrect commit timestamp!", committedTxn.getEffectiveCommitTimestamp(), Bytes.toLong(CellUtil.cloneValue(commitTs)));
+        }
+        Assert.assertEquals("Rolled back row was not removed!", 0, region.get(new Get(rowKeys[2].getByteCopy())).size());
+        Assert.assertEquals("Active row was modified!", 1, region.get(new Get(rowKeys[3].getByteCopy())).size());
+    }
 }
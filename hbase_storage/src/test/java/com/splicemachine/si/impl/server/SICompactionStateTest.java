@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnStore;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.data.HExceptionFactory;
+import com.splicemachine.si.impl.ClientTxnLifecycleManager;
+import com.splicemachine.si.impl.ManualKeepAliveScheduler;
+import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.si.impl.store.TestingTimestampSource;
+import com.splicemachine.si.impl.store.TestingTxnStore;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests around the SI transformations applied to a row during compaction.
+ */
+public class SICompactionStateTest{
+    private static final byte[] ROW = Encoding.encode("hello");
+
+    private TxnStore store;
+    private ClientTxnLifecycleManager tc;
+    private Txn[] lastTxns; //the insert, delete and still-active transactions of the last deleted row
+
+    @Before
+    public void setUp() throws Exception{
+        TestingTimestampSource timestampSource = new TestingTimestampSource();
+        store = new TestingTxnStore(new IncrementingClock(),timestampSource,HExceptionFactory.INSTANCE,Long.MAX_VALUE);
+        tc = new ClientTxnLifecycleManager(timestampSource,HExceptionFactory.INSTANCE);
+        tc.setTxnStore(store);
+        tc.setKeepAliveScheduler(new ManualKeepAliveScheduler(store));
+    }
+
+    @Test
+    public void testAddsCommitTimestampsInSortedOrder() throws Exception{
+        Txn first = tc.beginTransaction(Bytes.toBytes("1184"));
+        Txn second = tc.beginTransaction(Bytes.toBytes("1184"));
+        first.commit();
+        second.commit();
+
+        List<Cell> row = sorted(data(first.getTxnId()),
+                data(second.getTxnId()),
+                commitTimestamp(first.getTxnId(),first.getEffectiveCommitTimestamp()));
+
+        List<Cell> results = new ArrayList<>();
+        new SICompactionState(store,NoopRollForward.INSTANCE,16).mutate(row,results);
+
+        Assert.assertEquals("Incorrect number of cells!",4,results.size());
+        assertSorted(results);
+        assertCommitTimestamp(results.get(0),second);
+        assertCommitTimestamp(results.get(1),first);
+    }
+
+    @Test
+    public void testRemovesRolledBackData() throws Exception{
+        Txn committed = tc.beginTransaction(Bytes.toBytes("1184"));
+        Txn rolledBack = tc.beginTransaction(Bytes.toBytes("1184"));
+        committed.commit();
+        rolledBack.rollback();
+
+        List<Cell> row = sorted(data(committed.getTxnId()),data(rolledBack.getTxnId()));
+
+        List<Cell> results = new ArrayList<>();
+        new SICompactionState(store,NoopRollForward.INSTANCE,16).mutate(row,results);
+
+        Assert.assertEquals("Incorrect number of cells!",2,results.size());
+        assertCommitTimestamp(results.get(0),committed);
+        Assert.assertEquals("Incorrect data cell!",committed.getTxnId(),results.get(1).getTimestamp());
+    }
+
+    @Test
+    public void testPurgesVersionsHiddenByTombstoneButKeepsTombstone() throws Exception{
+        List<Cell> results = compactDeletedRow(false);
+        Txn[] txns = lastTxns;
+
+        Assert.assertEquals("Incorrect number of cells!",3,results.size());
+        assertSorted(results);
+        assertCommitTimestamp(results.get(0),txns[1]);
+        Assert.assertEquals("Tombstone not kept!",txns[1].getTxnId(),results.get(1).getTimestamp());
+        Assert.assertEquals("Newer data not kept!",txns[2].getTxnId(),results.get(2).getTimestamp());
+    }
+
+    @Test
+    public void testPurgesTombstoneWhenDroppingDeleteMarkers() throws Exception{
+        List<Cell> results = compactDeletedRow(true);
+        Txn[] txns = lastTxns;
+
+        Assert.assertEquals("Incorrect number of cells!",1,results.size());
+        Assert.assertEquals("Newer data not kept!",txns[2].getTxnId(),results.get(0).getTimestamp());
+    }
+
+    @Test
+    public void testDoesNotPurgeTombstoneNewerThanHorizon() throws Exception{
+        Txn insert = tc.beginTransaction(Bytes.toBytes("1184"));
+        insert.commit();
+        Txn delete = tc.beginTransaction(Bytes.toBytes("1184"));
+        delete.commit();
+
+        List<Cell> row = sorted(data(insert.getTxnId()),tombstone(delete.getTxnId()));
+
+        List<Cell> results = new ArrayList<>();
+        new SICompactionState(store,NoopRollForward.INSTANCE,16,delete.getEffectiveCommitTimestamp(),true).mutate(row,results);
+
+        Assert.assertEquals("Incorrect number of cells!",4,results.size());
+        assertSorted(results);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private List<Cell> compactDeletedRow(boolean dropDeleteMarkers) throws Exception{
+        Txn insert = tc.beginTransaction(Bytes.toBytes("1184"));
+        insert.commit();
+        Txn delete = tc.beginTransaction(Bytes.toBytes("1184"));
+        delete.commit();
+        Txn active = tc.beginTransaction(Bytes.toBytes("1184"));
+        lastTxns = new Txn[]{insert,delete,active};
+
+        List<Cell> row = sorted(data(insert.getTxnId()),
+                commitTimestamp(insert.getTxnId(),insert.getEffectiveCommitTimestamp()),
+                tombstone(delete.getTxnId()),
+                data(active.getTxnId()));
+
+        List<Cell> results = new ArrayList<>();
+        new SICompactionState(store,NoopRollForward.INSTANCE,16,active.getTxnId(),dropDeleteMarkers).mutate(row,results);
+        return results;
+    }
+
+    private static Cell data(long txnId){
+        return new KeyValue(ROW,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId,Encoding.encode("hello2"));
+    }
+
+    private static Cell tombstone(long txnId){
+        return new KeyValue(ROW,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId,SIConstants.EMPTY_BYTE_ARRAY);
+    }
+
+    private static Cell commitTimestamp(long txnId,long commitTs){
+        return new KeyValue(ROW,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,Bytes.toBytes(commitTs));
+    }
+
+    private static List<Cell> sorted(Cell... cells){
+        List<Cell> row = new ArrayList<>(cells.length);
+        Collections.addAll(row,cells);
+        Collections.sort(row,KeyValue.COMPARATOR);
+        return row;
+    }
+
+    private static void assertSorted(List<Cell> cells){
+        for(int i=1;i<cells.size();i++){
+            Assert.assertTrue("Cells out of order at position "+i,KeyValue.COMPARATOR.compare(cells.get(i-1),cells.get(i))<0);
+        }
+    }
+
+    private static void assertCommitTimestamp(Cell cell,Txn txn){
+        Assert.assertTrue("Not a commit timestamp!",CellUtil.matchingQualifier(cell,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES));
+        Assert.assertEquals("Incorrect committed txnId",txn.getTxnId(),cell.getTimestamp());
+        Assert.assertEquals("Incorrect commit timestamp!",txn.getEffectiveCommitTimestamp(),Bytes.toLong(CellUtil.cloneValue(cell)));
+    }
+}
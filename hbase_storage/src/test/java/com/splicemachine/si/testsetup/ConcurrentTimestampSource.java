@@ -33,6 +33,11 @@ public class ConcurrentTimestampSource implements TimestampSource{
           return id.incrementAndGet();
      }
 
+     @Override
+     public long nextTimestamps(int count) {
+          return id.getAndAdd(count)+1;
+     }
+
      @Override
      public void rememberTimestamp(long timestamp) {
           memory = timestamp;
@@ -112,6 +112,11 @@ public class LocalOlapClient implements OlapClient{
             return true;
         }
 
+        @Override
+        public void markStreaming(){
+
+        }
+
         @Override
         public boolean isRunning(){
             return result==null;
@@ -15,6 +15,7 @@
 
 package com.splicemachine.si.impl;
 
+import com.carrotsearch.hppc.LongLongOpenHashMap;
 import com.splicemachine.annotations.ThreadSafe;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.readresolve.KeyedReadResolver;
@@ -30,6 +31,7 @@ import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -48,6 +50,10 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
     public static final MSynchronousReadResolver INSTANCE=new MSynchronousReadResolver();
     public static volatile boolean DISABLED_ROLLFORWARD=false;
 
+    /*markers for transactions which are not resolved by a commit timestamp*/
+    private static final long ROLLED_BACK=-1l;
+    private static final long UNRESOLVABLE=0l;
+
     /**
      * @param region      the region for the relevant read resolver
      * @param txnSupplier a Transaction Supplier for fetching transaction information
@@ -113,8 +119,80 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+
+    @Override
+    public int resolve(Partition region,
+                       ByteSlice[] rowKeys,
+                       long[] txnIds,
+                       int size,
+                       boolean[] resolved,
+                       TxnSupplier supplier,
+                       RollForwardStatus status,
+                       boolean failOnError,
+                       TrafficControl trafficControl){
+        Arrays.fill(resolved,0,size,false);
+        /*
+         * The in-memory partition has no batched mixed mutation, so we write each row on its own;
+         * we still only look up each distinct transaction once.
+         */
+        LongLongOpenHashMap resolutions=new LongLongOpenHashMap();
+        int numResolved=0;
+        for(int i=0;i<size;i++){
+            long txnId=txnIds[i];
+            long resolution;
+            if(resolutions.containsKey(txnId))
+                resolution=resolutions.lget();
+            else{
+                resolution=getResolution(supplier,txnId,failOnError);
+                resolutions.put(txnId,resolution);
+            }
+            status.rowResolved();
+            if(resolution==UNRESOLVABLE) continue;
+            try{
+                trafficControl.acquire(1);
+            }catch(InterruptedException e){
+                LOG.debug("Interrupted which performing read resolution, will not resolve");
+                Thread.currentThread().interrupt();
+                return numResolved;
+            }
+            try{
+                if(resolution==ROLLED_BACK)
+                    resolveRolledback(region,rowKeys[i],txnId,failOnError);
+                else
+                    resolveCommitted(region,rowKeys[i],txnId,resolution,failOnError);
+                status.resolutionWritten(1);
+                resolved[i]=true;
+                numResolved++;
+            }finally{
+                trafficControl.release(1);
+            }
+        }
+        return numResolved;
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
+    private long getResolution(TxnSupplier supplier,long txnId,boolean failOnError){
+        TxnView transaction;
+        try{
+            transaction=supplier.getTransaction(txnId);
+        }catch(IOException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
+            if(failOnError)
+                throw new RuntimeException(e);
+            return UNRESOLVABLE;
+        }
+        if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK)
+            return ROLLED_BACK;
+        TxnView t=transaction;
+        while(t.getState()==Txn.State.COMMITTED){
+            t=t.getParentTxnView();
+        }
+        if(t==Txn.ROOT_TRANSACTION)
+            return transaction.getEffectiveCommitTimestamp();
+        return UNRESOLVABLE;
+    }
+
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
         /*
          * Resolve the row as committed directly.
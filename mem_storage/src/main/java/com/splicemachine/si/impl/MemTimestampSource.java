@@ -30,6 +30,11 @@ public class MemTimestampSource implements TimestampSource {
         return id.incrementAndGet();
     }
 
+    @Override
+    public long nextTimestamps(int count) {
+        return id.getAndAdd(count)+1;
+    }
+
     @Override
     public void rememberTimestamp(long timestamp) {
         memory = timestamp;
@@ -282,7 +282,7 @@ public class TxnPartition implements Partition{
 
     @Override
     public PartitionLoad getLoad() throws IOException{
-        throw new UnsupportedOperationException("IMPLEMENT");
+        return basePartition.getLoad();
     }
 
     @Override
@@ -16,11 +16,6 @@
 package com.splicemachine.storage;
 
 import com.splicemachine.access.util.ByteComparisons;
-import org.sparkproject.guava.base.Predicate;
-import org.sparkproject.guava.collect.BiMap;
-import org.sparkproject.guava.collect.HashBiMap;
-import org.sparkproject.guava.collect.Sets;
-import com.splicemachine.collections.EmptyNavigableSet;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.metrics.Metrics;
@@ -28,17 +23,11 @@ import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.storage.util.MappedDataResultScanner;
 import com.splicemachine.utils.Pair;
-import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Scott Fines
@@ -50,8 +39,12 @@ public class MPartition implements Partition{
     private final String tableName;
     private final PartitionServer owner;
 
-    private final ConcurrentSkipListSet<DataCell> memstore=new ConcurrentSkipListSet<>();
-    private final BiMap<ByteBuffer, Lock> lockMap=HashBiMap.create();
+    private final RowMemstore memstore=new RowMemstore();
+    /*
+     * Every row has its own lock, so that locking a row never needs a partition-wide monitor, and a batch
+     * which tries to lock many rows never fails on a row that merely shares a lock with a locked one.
+     */
+    private final RowLockTable rowLocks=new RowLockTable();
     private AtomicLong writes=new AtomicLong(0l);
     private AtomicLong reads=new AtomicLong(0l);
     private AtomicLong sequenceGen = new AtomicLong(0l);
@@ -85,16 +78,8 @@ public class MPartition implements Partition{
     }
 
     @Override
-    public DataResult get(final DataGet get,DataResult previous) throws IOException{
-        DataCell start=new MCell(get.key(),new byte[]{},new byte[]{},get.highTimestamp(),new byte[]{},CellType.USER_DATA);
-
-        Set<DataCell> data=Sets.filter(memstore.tailSet(start,true),new Predicate<DataCell>(){
-            @Override
-            public boolean apply(DataCell dataCell){
-                byte[] key=get.key();
-                return Bytes.equals(dataCell.keyArray(),dataCell.keyOffset(),dataCell.keyLength(),key,0,key.length);
-            }
-        });
+    public DataResult get(DataGet get,DataResult previous) throws IOException{
+        Set<DataCell> data=memstore.row(get.key());
         long curSeq = sequenceGen.get();
         try(SetScanner ss=new SetScanner(curSeq,data.iterator(),get.lowTimestamp(),get.highTimestamp(),get.filter(),this,Metrics.noOpMetricFactory())){
             List<DataCell> toReturn=ss.next(-1);
@@ -122,7 +107,7 @@ public class MPartition implements Partition{
         DataCell start=new MCell(rowKey,family,new byte[]{},Long.MAX_VALUE,new byte[]{},CellType.USER_DATA);
         DataCell end=new MCell(rowKey,family,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,0l,new byte[]{},CellType.USER_DATA);
 
-        Set<DataCell> data=memstore.subSet(start,true,end,true);
+        Set<DataCell> data=memstore.row(rowKey).subSet(start,true,end,true);
         List<DataCell> toReturn=new ArrayList<>(data.size());
         DataCell last=null;
         for(DataCell d : data){
@@ -149,8 +134,7 @@ public class MPartition implements Partition{
 
     @Override
     public DataScanner openScanner(DataScan scan,MetricFactory metricFactory) throws IOException{
-        NavigableSet<DataCell> dataCells=getAscendingScanSet(scan);
-        Iterator<DataCell> iter = scan.isDescendingScan()? dataCells.descendingIterator(): dataCells.iterator();
+        Iterator<DataCell> iter = getScanCells(scan);
 
         long curSeq = sequenceGen.get();
         return new SetScanner(curSeq,iter,scan.lowVersion(),scan.highVersion(),scan.getFilter(),this,metricFactory);
@@ -249,7 +233,7 @@ public class MPartition implements Partition{
         DataCell s=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,Long.MAX_VALUE,new byte[]{},CellType.FOREIGN_KEY_COUNTER);
         DataCell e=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,0l,new byte[]{},CellType.FOREIGN_KEY_COUNTER);
 
-        NavigableSet<DataCell> dataCells=memstore.subSet(s,true,e,true);
+        NavigableSet<DataCell> dataCells=memstore.row(key).subSet(s,true,e,true);
         List<DataCell> results=new ArrayList<>(dataCells.size());
         DataCell lastResult=null;
         for(DataCell dc : dataCells){
@@ -271,7 +255,7 @@ public class MPartition implements Partition{
         DataCell s=new MCell(key,new byte[]{},new byte[]{},Long.MAX_VALUE,new byte[]{},CellType.USER_DATA);
         DataCell e=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,0l,new byte[]{},CellType.USER_DATA);
 
-        NavigableSet<DataCell> dataCells=memstore.subSet(s,true,e,true);
+        NavigableSet<DataCell> dataCells=memstore.row(key).subSet(s,true,e,true);
         List<DataCell> results=new ArrayList<>(dataCells.size());
         DataCell lastResult=null;
         for(DataCell dc : dataCells){
@@ -288,16 +272,7 @@ public class MPartition implements Partition{
 
     @Override
     public Lock getRowLock(byte[] key,int keyOff,int keyLen) throws IOException{
-        final ByteBuffer wrap=ByteBuffer.wrap(key,keyOff,keyLen);
-        Lock lock;
-        synchronized(lockMap){
-            lock=lockMap.get(wrap);
-            if(lock==null){
-                lock=new MemLock(wrap);
-                lockMap.put(wrap,lock);
-            }
-        }
-        return lock;
+        return rowLocks.get(key,keyOff,keyLen);
     }
 
     @Override
@@ -392,7 +367,7 @@ public class MPartition implements Partition{
 
     @Override
     public PartitionLoad getLoad() throws IOException{
-        return new MPartitionLoad(getName());
+        return new MPartitionLoad(getName(),writes.get());
     }
 
     @Override
@@ -407,62 +382,6 @@ public class MPartition implements Partition{
 
     /* ****************************************************************************************************************/
     /*private helper methods*/
-    private class MemLock implements Lock{
-        private ByteBuffer key;
-        private final Lock lock;
-        private int lockCount=0;
-
-        public MemLock(ByteBuffer key){
-            this.key=key;
-            this.lock=new ReentrantLock();
-        }
-
-        @Override
-        public void lock(){
-            lock.lock();
-            lockCount++;
-        }
-
-        @Override
-        public void lockInterruptibly() throws InterruptedException{
-            lock.lockInterruptibly();
-            lockCount++;
-        }
-
-        @Override
-        public boolean tryLock(){
-            if(lock.tryLock()){
-                lockCount++;
-                return true;
-            }else return false;
-        }
-
-        @Override
-        public boolean tryLock(long time,@Nonnull TimeUnit unit) throws InterruptedException{
-            if(lock.tryLock(time,unit)){
-                lockCount++;
-                return true;
-            }else return false;
-        }
-
-        @Override
-        public void unlock(){
-            lockCount--;
-            if(lockCount==0){
-                synchronized(lockMap){
-                    lockMap.remove(key);
-                }
-            }
-            lock.unlock();
-        }
-
-        @Override
-        @Nonnull
-        public Condition newCondition(){
-            return lock.newCondition();
-        }
-    }
-
     private void put(MPut mPut) throws IOException{
         long seq = sequenceGen.incrementAndGet();
         Lock lock=getRowLock(mPut.key(),0,mPut.key().length);
@@ -470,12 +389,9 @@ public class MPartition implements Partition{
         try{
             Iterable<DataCell> cells=mPut.cells();
             for(DataCell dc : cells){
-                if(memstore.contains(dc)){
-                    memstore.remove(dc);
-                }
                 DataCell clone=dc.getClone();
                 ((MCell)clone).sequence(seq);
-                memstore.add(clone);
+                memstore.put(clone);
             }
         }finally{
             lock.unlock();
@@ -496,38 +412,18 @@ public class MPartition implements Partition{
         }
     }
 
-    private NavigableSet<DataCell> getAscendingScanSet(DataScan scan){
-        NavigableSet<DataCell> dataCells;
-        if(memstore.size()<=0)
-            dataCells = EmptyNavigableSet.instance();
-        else{
-            byte[] startKey=scan.getStartKey();
-            byte[] stopKey=scan.getStopKey();
-            DataCell start;
-            DataCell stop;
-            if(startKey==null|| startKey.length==0) {
-                if(stopKey==null||stopKey.length==0){
-                    return memstore;
-                }else{
-                    start = memstore.first();
-                }
-            }else
-                start=new MCell(startKey,new byte[]{},new byte[]{},scan.highVersion(),new byte[]{},CellType.COMMIT_TIMESTAMP);
-
-            if(stopKey==null||stopKey.length==0){
-                return memstore.tailSet(start,true);
-            }else
-                stop=new MCell(stopKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,scan.lowVersion(),new byte[]{},CellType.FOREIGN_KEY_COUNTER);
-
-            /*
-             * It is possible (particularly if the start key is null) that the stop value compares to less than
-             * the start key, and that is a reasonable situation. In that case, we know that the end results
-             * are empty, so bypass creating a new Set object in this case.
-             */
-            if(stop.compareTo(start)<0) return EmptyNavigableSet.instance();
-            dataCells=memstore.subSet(start,true,stop,false);
-        }
-        return dataCells;
+    private Iterator<DataCell> getScanCells(DataScan scan){
+        if(memstore.isEmpty())
+            return Collections.emptyIterator();
+        byte[] startKey=scan.getStartKey();
+        byte[] stopKey=scan.getStopKey();
+        if(startKey!=null && startKey.length==0) startKey=null;
+        if(stopKey!=null && stopKey.length==0) stopKey=null;
+
+        DataCell stop=null;
+        if(stopKey!=null)
+            stop=new MCell(stopKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,scan.lowVersion(),new byte[]{},CellType.FOREIGN_KEY_COUNTER);
+        return memstore.scan(startKey,stopKey,stop,scan.isDescendingScan());
     }
 
 
@@ -21,9 +21,15 @@ package com.splicemachine.storage;
  */
 public class MPartitionLoad implements PartitionLoad{
     private final String partitionName;
+    private final long writeRequestCount;
 
     public MPartitionLoad(String partitionName){
+        this(partitionName,0L);
+    }
+
+    public MPartitionLoad(String partitionName,long writeRequestCount){
         this.partitionName=partitionName;
+        this.writeRequestCount=writeRequestCount;
     }
 
     @Override
@@ -41,6 +47,11 @@ public class MPartitionLoad implements PartitionLoad{
         return 0;
     }
 
+    @Override
+    public long getWriteRequestCount(){
+        return writeRequestCount;
+    }
+
     @Override
     public String getPartitionName(){
         return partitionName;
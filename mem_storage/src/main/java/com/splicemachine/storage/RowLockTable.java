@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One lock per row, held in a table only while some thread holds or waits for it.
+ * <p/>
+ * Two different rows never share a lock, so a {@code tryLock} on one row cannot fail because another row
+ * is locked. Each entry counts the threads which hold or wait for it, and the last one to release the lock
+ * removes the entry, so the table only grows with the number of rows locked concurrently.
+ */
+@ThreadSafe
+class RowLockTable{
+    private final ConcurrentMap<ByteBuffer,Entry> locks=new ConcurrentHashMap<>();
+
+    /**
+     * @return the lock of the row. The lock may be used by any thread, and for as long as the caller likes;
+     * it only pins the row's entry while it is held.
+     */
+    Lock get(byte[] key,int keyOff,int keyLen){
+        //ByteBuffer hashes and compares by content, so every copy of the key maps to the same entry
+        return new RowLock(ByteBuffer.wrap(Arrays.copyOfRange(key,keyOff,keyOff+keyLen)));
+    }
+
+    /**
+     * @return the number of rows which are currently locked, or waited for
+     */
+    int size(){
+        return locks.size();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private Entry acquire(ByteBuffer key){
+        while(true){
+            Entry entry=locks.get(key);
+            if(entry==null){
+                entry=new Entry();
+                Entry other=locks.putIfAbsent(key,entry);
+                if(other!=null)
+                    entry=other;
+            }
+            synchronized(entry){
+                if(!entry.removed){
+                    entry.refs++;
+                    return entry;
+                }
+            }
+            //the last holder removed the entry after we found it; install a fresh one
+        }
+    }
+
+    private void release(ByteBuffer key,Entry entry){
+        synchronized(entry){
+            if(--entry.refs==0){
+                entry.removed=true;
+                locks.remove(key,entry);
+            }
+        }
+    }
+
+    private static final class Entry{
+        final ReentrantLock lock=new ReentrantLock();
+        int refs; //guarded by this
+        boolean removed; //guarded by this
+    }
+
+    private final class RowLock implements Lock{
+        private final ByteBuffer key;
+
+        RowLock(ByteBuffer key){
+            this.key=key;
+        }
+
+        @Override
+        public void lock(){
+            acquire(key).lock.lock();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException{
+            Entry entry=acquire(key);
+            try{
+                entry.lock.lockInterruptibly();
+            }catch(InterruptedException ie){
+                release(key,entry);
+                throw ie;
+            }
+        }
+
+        @Override
+        public boolean tryLock(){
+            Entry entry=acquire(key);
+            if(entry.lock.tryLock())
+                return true;
+            release(key,entry);
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time,TimeUnit unit) throws InterruptedException{
+            Entry entry=acquire(key);
+            boolean locked=false;
+            try{
+                locked=entry.lock.tryLock(time,unit);
+                return locked;
+            }finally{
+                if(!locked)
+                    release(key,entry);
+            }
+        }
+
+        @Override
+        public void unlock(){
+            //the entry cannot be removed while the caller holds its lock
+            Entry entry=locks.get(key);
+            if(entry==null || !entry.lock.isHeldByCurrentThread())
+                throw new IllegalMonitorStateException();
+            entry.lock.unlock();
+            release(key,entry);
+        }
+
+        @Override
+        public Condition newCondition(){
+            throw new UnsupportedOperationException("Row locks do not support conditions");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.access.util.ByteComparisons;
+import com.splicemachine.collections.EmptyNavigableSet;
+import com.splicemachine.primitives.ByteComparator;
+import org.sparkproject.guava.base.Function;
+import org.sparkproject.guava.collect.Iterators;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * The memstore of an {@link MPartition}, keyed by row.
+ * <p/>
+ * Each row holds its own sorted set of cells, so point reads and writes only touch the cells of a single
+ * row, and writers to different rows never contend on the same structure. Scans see the cells of all rows
+ * in {@link DataCell} order, exactly as if the memstore were a single sorted set.
+ * <p/>
+ * Callers must hold the row lock when modifying a row, since empty rows are removed from the memstore.
+ */
+@ThreadSafe
+class RowMemstore{
+    private static final Function<NavigableSet<DataCell>,Iterator<DataCell>> ASCENDING=new Function<NavigableSet<DataCell>, Iterator<DataCell>>(){
+        @Override
+        public Iterator<DataCell> apply(NavigableSet<DataCell> row){
+            return row.iterator();
+        }
+    };
+    private static final Function<NavigableSet<DataCell>,Iterator<DataCell>> DESCENDING=new Function<NavigableSet<DataCell>, Iterator<DataCell>>(){
+        @Override
+        public Iterator<DataCell> apply(NavigableSet<DataCell> row){
+            return row.descendingIterator();
+        }
+    };
+
+    private final ByteComparator comparator;
+    private final ConcurrentSkipListMap<byte[],NavigableSet<DataCell>> rows;
+
+    RowMemstore(){
+        this.comparator=ByteComparisons.comparator();
+        this.rows=new ConcurrentSkipListMap<>(comparator);
+    }
+
+    boolean isEmpty(){
+        return rows.isEmpty();
+    }
+
+    /**
+     * @return the cells of the row, or an empty set if the row has no cells.
+     */
+    NavigableSet<DataCell> row(byte[] key){
+        NavigableSet<DataCell> row=rows.get(key);
+        if(row==null) return EmptyNavigableSet.instance();
+        return row;
+    }
+
+    /**
+     * Replace the cell with the same coordinates as {@code cell}, or add it if there is none.
+     */
+    void put(DataCell cell){
+        byte[] key=cell.key();
+        NavigableSet<DataCell> row=rows.get(key);
+        if(row==null){
+            row=new ConcurrentSkipListSet<>();
+            NavigableSet<DataCell> other=rows.putIfAbsent(key,row);
+            if(other!=null)
+                row=other;
+        }
+        row.remove(cell);
+        row.add(cell);
+    }
+
+    void remove(DataCell cell){
+        byte[] key=cell.key();
+        NavigableSet<DataCell> row=rows.get(key);
+        if(row==null) return;
+        row.remove(cell);
+        if(row.isEmpty())
+            rows.remove(key,row);
+    }
+
+    /**
+     * Iterate over the cells of the rows in {@code [startKey,stopKey)}, followed by the cells of the
+     * {@code stopKey} row which sort before {@code stopCell}.
+     *
+     * @param startKey the first row to return, or {@code null} to start at the first row
+     * @param stopKey the row to stop at, or {@code null} to continue to the last row
+     * @param stopCell the cell to stop at within the {@code stopKey} row. Ignored if {@code stopKey} is null
+     * @param descending whether to iterate in descending order
+     */
+    Iterator<DataCell> scan(byte[] startKey,byte[] stopKey,DataCell stopCell,boolean descending){
+        NavigableMap<byte[],NavigableSet<DataCell>> scanRows;
+        NavigableSet<DataCell> stopRow=null;
+        if(stopKey==null){
+            scanRows=startKey==null?rows:rows.tailMap(startKey,true);
+        }else{
+            if(startKey!=null && comparator.compare(stopKey,startKey)<0)
+                return Collections.<DataCell>emptyIterator();
+            scanRows=startKey==null?rows.headMap(stopKey,false):rows.subMap(startKey,true,stopKey,false);
+            NavigableSet<DataCell> row=rows.get(stopKey);
+            if(row!=null)
+                stopRow=row.headSet(stopCell,false);
+        }
+
+        Iterator<DataCell> cells;
+        if(descending){
+            cells=Iterators.concat(Iterators.transform(scanRows.descendingMap().values().iterator(),DESCENDING));
+            if(stopRow!=null)
+                cells=Iterators.concat(stopRow.descendingIterator(),cells);
+        }else{
+            cells=Iterators.concat(Iterators.transform(scanRows.values().iterator(),ASCENDING));
+            if(stopRow!=null)
+                cells=Iterators.concat(cells,stopRow.iterator());
+        }
+        return cells;
+    }
+}
@@ -193,6 +193,11 @@ class SetScanner implements DataScanner{
         return rowCounter.getTotal();
     }
 
+    @Override
+    public long getFilesSkipped(){
+        return 0l;
+    }
+
     @Override
     public void close() throws IOException{
 
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.primitives.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+public class RowLockTableTest{
+
+    @Test
+    public void copiesOfAKeyShareALock() throws Exception{
+        RowLockTable table=new RowLockTable();
+        byte[] key=Bytes.toBytes("row");
+        Lock lock=table.get(key,0,key.length);
+        lock.lock();
+        try{
+            byte[] padded=Bytes.toBytes("xrowx");
+            Assert.assertFalse("Locked a held row",tryLockInOtherThread(table.get(padded,1,3)));
+        }finally{
+            lock.unlock();
+        }
+        Assert.assertTrue(tryLockInOtherThread(table.get(key,0,key.length)));
+        Assert.assertEquals(0,table.size());
+    }
+
+    @Test
+    public void distinctRowsNeverShareALock() throws Exception{
+        final RowLockTable table=new RowLockTable();
+        int rows=10000;
+        List<Lock> held=new ArrayList<>(rows);
+        for(int i=0;i<rows;i+=2){
+            byte[] key=Bytes.toBytes(i);
+            Lock lock=table.get(key,0,key.length);
+            lock.lock();
+            held.add(lock);
+        }
+        try{
+            // a batch which tries every other row must not fail on any of them
+            final int total=rows;
+            ExecutorService executor=Executors.newSingleThreadExecutor();
+            try{
+                int failed=executor.submit(new Callable<Integer>(){
+                    @Override
+                    public Integer call() throws Exception{
+                        int failures=0;
+                        for(int i=1;i<total;i+=2){
+                            byte[] key=Bytes.toBytes(i);
+                            Lock lock=table.get(key,0,key.length);
+                            if(lock.tryLock())
+                                lock.unlock();
+                            else
+                                failures++;
+                        }
+                        return failures;
+                    }
+                }).get();
+                Assert.assertEquals("Rows failed to lock",0,failed);
+            }finally{
+                executor.shutdownNow();
+            }
+        }finally{
+            for(Lock lock : held){
+                lock.unlock();
+            }
+        }
+        Assert.assertEquals(0,table.size());
+    }
+
+    @Test
+    public void locksAreReentrant() throws Exception{
+        RowLockTable table=new RowLockTable();
+        byte[] key=Bytes.toBytes("row");
+        Lock first=table.get(key,0,key.length);
+        Lock second=table.get(key,0,key.length);
+        first.lock();
+        Assert.assertTrue(second.tryLock());
+        Assert.assertEquals(1,table.size());
+        second.unlock();
+        Assert.assertFalse("Released a lock which is still held",tryLockInOtherThread(table.get(key,0,key.length)));
+        first.unlock();
+        Assert.assertEquals(0,table.size());
+    }
+
+    @Test
+    public void failedTryLockLeavesNoEntry() throws Exception{
+        RowLockTable table=new RowLockTable();
+        byte[] key=Bytes.toBytes("row");
+        Lock lock=table.get(key,0,key.length);
+        lock.lock();
+        Assert.assertFalse(tryLockInOtherThread(table.get(key,0,key.length)));
+        lock.unlock();
+        Assert.assertEquals(0,table.size());
+    }
+
+    @Test(expected=IllegalMonitorStateException.class)
+    public void unlockWithoutHoldingFails() throws Exception{
+        RowLockTable table=new RowLockTable();
+        byte[] key=Bytes.toBytes("row");
+        table.get(key,0,key.length).unlock();
+    }
+
+    @Test
+    public void concurrentUpdatesOfTheSameRowsAreSerialized() throws Exception{
+        final RowLockTable table=new RowLockTable();
+        final int rows=8;
+        final int iterations=20000;
+        final long[] counters=new long[rows];
+        int threads=8;
+        ExecutorService executor=Executors.newFixedThreadPool(threads);
+        try{
+            List<Future<Void>> futures=new ArrayList<>(threads);
+            for(int t=0;t<threads;t++){
+                final int seed=t;
+                futures.add(executor.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        for(int i=0;i<iterations;i++){
+                            int row=(i+seed)%rows;
+                            byte[] key=Bytes.toBytes(row);
+                            Lock lock=table.get(key,0,key.length);
+                            lock.lock();
+                            try{
+                                counters[row]++;
+                            }finally{
+                                lock.unlock();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> future : futures){
+                future.get(1,TimeUnit.MINUTES);
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+        long total=0;
+        for(long counter : counters){
+            total+=counter;
+        }
+        Assert.assertEquals((long)threads*iterations,total);
+        Assert.assertEquals(0,table.size());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static boolean tryLockInOtherThread(final Lock lock) throws Exception{
+        ExecutorService executor=Executors.newSingleThreadExecutor();
+        try{
+            return executor.submit(new Callable<Boolean>(){
+                @Override
+                public Boolean call() throws Exception{
+                    if(!lock.tryLock())
+                        return false;
+                    lock.unlock();
+                    return true;
+                }
+            }).get();
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+}
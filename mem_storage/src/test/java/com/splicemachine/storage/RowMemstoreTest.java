@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.access.util.ByteComparisons;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.constants.SIConstants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Checks that scans over a {@link RowMemstore} return exactly the cells that a single sorted set of all
+ * cells would return between the same bounds.
+ */
+public class RowMemstoreTest{
+    private static final byte[] FAMILY=SIConstants.DEFAULT_FAMILY_BYTES;
+    private static final byte[] COMMIT=SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES;
+    private static final byte[] PACKED=SIConstants.PACKED_COLUMN_BYTES;
+    private static final byte[] FK_COUNTER=SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES;
+
+    private RowMemstore memstore;
+    private TreeSet<DataCell> allCells;
+
+    @Before
+    public void setUp() throws Exception{
+        memstore=new RowMemstore();
+        allCells=new TreeSet<>();
+        for(String row : new String[]{"a","b","bb","c","d"}){
+            for(long version=1;version<=3;version++){
+                add(cell(row,COMMIT,version));
+                add(cell(row,PACKED,version));
+            }
+        }
+        // cells of the last row which sort after the stop cell of a scan stopping at that row
+        add(cell("d",FK_COUNTER,0l));
+        add(cell("d",Bytes.toBytes("z"),5l));
+    }
+
+    @Test
+    public void fullScan() throws Exception{
+        assertScan(null,null,false);
+        assertScan(null,null,true);
+    }
+
+    @Test
+    public void startKeyIsInclusive() throws Exception{
+        assertScan("b",null,false);
+        assertScan("b",null,true);
+        assertScan("ba",null,false);
+        assertScan("e",null,false);
+    }
+
+    @Test
+    public void stopKeyWithoutARowExcludesLaterRows() throws Exception{
+        assertScan(null,"bc",false);
+        assertScan("a","bc",true);
+        assertScan("0","1",false);
+    }
+
+    @Test
+    public void stopKeyRowReturnsCellsBeforeTheStopCell() throws Exception{
+        // the stop cell sorts after the data cells of its row, but before the counter and later qualifiers
+        List<DataCell> cells=assertScan("c","d",false);
+        Assert.assertTrue("Expected cells of the stop row",containsRow(cells,"d"));
+        Assert.assertFalse("Did not expect the stop cell itself",cells.contains(cell("d",FK_COUNTER,0l)));
+        Assert.assertFalse("Did not expect cells after the stop cell",cells.contains(cell("d",Bytes.toBytes("z"),5l)));
+        assertScan("c","d",true);
+        assertScan(null,"d",true);
+    }
+
+    @Test
+    public void startKeyEqualToStopKeyReturnsOnlyTheStopRowPrefix() throws Exception{
+        List<DataCell> cells=assertScan("b","b",false);
+        Assert.assertFalse(cells.isEmpty());
+        assertScan("b","b",true);
+    }
+
+    @Test
+    public void stopKeyBeforeStartKeyIsEmpty() throws Exception{
+        Assert.assertTrue(assertScan("c","b",false).isEmpty());
+        Assert.assertTrue(assertScan("c","b",true).isEmpty());
+    }
+
+    @Test
+    public void descendingScanIsReverseOfAscending() throws Exception{
+        List<DataCell> ascending=scan("a","d",false);
+        List<DataCell> descending=scan("a","d",true);
+        Collections.reverse(descending);
+        Assert.assertEquals(ascending,descending);
+    }
+
+    @Test
+    public void putReplacesCellWithSameCoordinates() throws Exception{
+        DataCell replacement=new MCell(Bytes.toBytes("b"),FAMILY,PACKED,2l,Bytes.toBytes("new"),CellType.USER_DATA);
+        memstore.put(replacement);
+        int count=0;
+        for(DataCell dc : memstore.row(Bytes.toBytes("b"))){
+            if(dc.equals(replacement)){
+                Assert.assertArrayEquals(Bytes.toBytes("new"),dc.value());
+                count++;
+            }
+        }
+        Assert.assertEquals(1,count);
+        Assert.assertEquals(6,memstore.row(Bytes.toBytes("b")).size());
+    }
+
+    @Test
+    public void removingLastCellRemovesRow() throws Exception{
+        for(DataCell dc : new ArrayList<>(memstore.row(Bytes.toBytes("bb")))){
+            memstore.remove(dc);
+            allCells.remove(dc);
+        }
+        Assert.assertTrue(memstore.row(Bytes.toBytes("bb")).isEmpty());
+        assertScan("b","c",false);
+        assertScan("bb","bb",true);
+
+        for(DataCell dc : new ArrayList<>(allCells)){
+            memstore.remove(dc);
+        }
+        Assert.assertTrue(memstore.isEmpty());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void add(DataCell cell){
+        memstore.put(cell);
+        allCells.add(cell);
+    }
+
+    private static DataCell cell(String row,byte[] qualifier,long version){
+        CellType type=qualifier==FK_COUNTER?CellType.FOREIGN_KEY_COUNTER:CellType.USER_DATA;
+        return new MCell(Bytes.toBytes(row),FAMILY,qualifier,version,Bytes.toBytes(row+version),type);
+    }
+
+    /**
+     * Scan as MPartition does: the stop cell is the foreign key counter of the stop row, at the lowest version.
+     */
+    private List<DataCell> scan(String start,String stop,boolean descending){
+        byte[] startKey=start==null?null:Bytes.toBytes(start);
+        byte[] stopKey=stop==null?null:Bytes.toBytes(stop);
+        DataCell stopCell=stop==null?null:stopCell(stop);
+        List<DataCell> cells=new ArrayList<>();
+        Iterator<DataCell> iter=memstore.scan(startKey,stopKey,stopCell,descending);
+        while(iter.hasNext()){
+            cells.add(iter.next());
+        }
+        return cells;
+    }
+
+    private List<DataCell> assertScan(String start,String stop,boolean descending){
+        List<DataCell> expected=new ArrayList<>();
+        Iterator<DataCell> iter=descending?allCells.descendingIterator():allCells.iterator();
+        while(iter.hasNext()){
+            DataCell dc=iter.next();
+            if(start!=null && compare(dc,start)<0) continue;
+            if(stop!=null){
+                int c=compare(dc,stop);
+                if(c>0 || (c==0 && dc.compareTo(stopCell(stop))>=0)) continue;
+            }
+            expected.add(dc);
+        }
+        List<DataCell> actual=scan(start,stop,descending);
+        Assert.assertEquals("Incorrect cells for ["+start+","+stop+") descending="+descending,expected,actual);
+        return actual;
+    }
+
+    private static DataCell stopCell(String stop){
+        return new MCell(Bytes.toBytes(stop),FAMILY,FK_COUNTER,0l,new byte[]{},CellType.FOREIGN_KEY_COUNTER);
+    }
+
+    private static int compare(DataCell dc,String row){
+        byte[] key=Bytes.toBytes(row);
+        return ByteComparisons.comparator().compare(dc.keyArray(),dc.keyOffset(),dc.keyLength(),key,0,key.length);
+    }
+
+    private static boolean containsRow(List<DataCell> cells,String row){
+        for(DataCell dc : cells){
+            if(compare(dc,row)==0) return true;
+        }
+        return false;
+    }
+}
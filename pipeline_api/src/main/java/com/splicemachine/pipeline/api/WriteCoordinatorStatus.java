@@ -45,4 +45,15 @@ public interface WriteCoordinatorStatus {
     void setMaxFlushesPerRegion(int newMaxFlushesPerRegion);
 
     long getSynchronousFlushCount();
+
+    /**
+     * @return the encoding used to send writes over the wire (ROW, COLUMNAR or COLUMNAR_COMPRESSED)
+     */
+    String getWireFormat();
+
+    /**
+     * @param newWireFormat one of ROW, COLUMNAR or COLUMNAR_COMPRESSED, in any case
+     * @throws IllegalArgumentException if the format is not one of those, in which case the format is unchanged
+     */
+    void setWireFormat(String newWireFormat);
 }
@@ -161,8 +161,9 @@ class ServerCallBuffer implements CallBuffer<Pair<byte[], PartitionBuffer>> {
             value.clear(); // zero out
         }
         if(bws.size()==0) return null;
-        else
-            return new BulkWrites(bws, this.txn, this.buffers.lastKey());
+        BulkWrites bulkWrites = new BulkWrites(bws, this.txn, this.buffers.lastKey());
+        bulkWrites.setWireFormat(writeConfiguration.getWireFormat());
+        return bulkWrites;
     }
 
     public int getHeapSize() {
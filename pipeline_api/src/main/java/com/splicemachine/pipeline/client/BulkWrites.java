@@ -35,6 +35,8 @@ public class BulkWrites{
      * any region which is present on the destination region server
      */
     private transient byte[] regionKey;
+    /*how to encode this on the wire; the receiving side detects the format itself*/
+    private transient PipelineEncoding.WireFormat wireFormat=PipelineEncoding.WireFormat.ROW;
 
     public BulkWrites(){
         bulkWrites=new ArrayList<>(0);
@@ -64,6 +66,14 @@ public class BulkWrites{
         return txn;
     }
 
+    public PipelineEncoding.WireFormat getWireFormat(){
+        return wireFormat;
+    }
+
+    public void setWireFormat(PipelineEncoding.WireFormat wireFormat){
+        this.wireFormat=wireFormat;
+    }
+
     public int getBufferHeapSize(){
         int size=0;
         for(BulkWrite bw : bulkWrites){
@@ -29,8 +29,15 @@ public class Monitor implements WriteCoordinatorStatus,BufferConfiguration{
     public AtomicInteger outstandingBuffers = new AtomicInteger(0);
     public volatile long pauseTime;
     public AtomicLong writesRejected = new AtomicLong(0l);
+    public volatile PipelineEncoding.WireFormat wireFormat;
 
     public Monitor(long maxHeapSize, int maxEntries, int maxRetries,long pauseTime,int maxFlushesPerRegion) {
+        this(maxHeapSize,maxEntries,maxRetries,pauseTime,maxFlushesPerRegion,PipelineEncoding.WireFormat.ROW);
+    }
+
+    public Monitor(long maxHeapSize, int maxEntries, int maxRetries,long pauseTime,int maxFlushesPerRegion,
+                   PipelineEncoding.WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
         this.maxHeapSize = maxHeapSize;
         this.maxEntries = maxEntries;
         this.maxRetries = maxRetries;
@@ -51,6 +58,10 @@ public class Monitor implements WriteCoordinatorStatus,BufferConfiguration{
     @Override public int getMaxEntries() { return maxEntries; }
     @Override public int getMaxFlushesPerRegion() { return maxFlushesPerRegion; }
     @Override public void setMaxFlushesPerRegion(int newMaxFlushesPerRegion) { this.maxFlushesPerRegion = newMaxFlushesPerRegion; }
+    @Override public String getWireFormat() { return wireFormat.name(); }
+    @Override public void setWireFormat(String newWireFormat) { this.wireFormat = PipelineEncoding.WireFormat.parse(newWireFormat); }
+
+    public PipelineEncoding.WireFormat getPipelineWireFormat() { return wireFormat; }
 
     @Override
     public long getSynchronousFlushCount() {
@@ -15,12 +15,16 @@
 
 package com.splicemachine.pipeline.client;
 
+import com.splicemachine.encoding.Encoding;
 import com.splicemachine.encoding.ExpandedDecoder;
 import com.splicemachine.encoding.ExpandingEncoder;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.utils.ByteSlice;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
 import org.sparkproject.guava.collect.Iterators;
 
 import javax.annotation.Nonnull;
@@ -33,8 +37,81 @@ import java.util.*;
  *         Date: 1/19/15
  */
 public class PipelineEncoding {
+    private static final byte COLUMNAR_FLAG = 0x01;
+    private static final byte COMPRESSED_FLAG = 0x02;
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    /**
+     * The layout used for the KVPairs of a BulkWrites on the wire.
+     *
+     * The row format has no header, and always begins with the (positive) encoded length of the transaction,
+     * whose first byte has the high bit set. The other formats begin with a flag byte whose high bit is clear,
+     * which is how {@link #decode(TxnOperationFactory, byte[])} tells them apart.
+     */
+    public enum WireFormat{
+        /**
+         * Each KVPair is written in turn as type, row key and value. This is the original format.
+         */
+        ROW,
+        /**
+         * The types, row keys and values of each BulkWrite are written as separate streams. Types are
+         * run-length encoded, and each row key is stored as the suffix it does not share with the key before it.
+         */
+        COLUMNAR,
+        /**
+         * {@link #COLUMNAR}, with everything after the flag byte compressed as an LZ4 block.
+         */
+        COLUMNAR_COMPRESSED;
+
+        /**
+         * @param name the name of a format, in any case
+         * @return the format with that name
+         * @throws IllegalArgumentException if there is no such format
+         */
+        public static WireFormat parse(String name){
+            if(name!=null){
+                for(WireFormat format : values()){
+                    if(format.name().equalsIgnoreCase(name.trim()))
+                        return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown wire format <"+name+">, expected one of "+Arrays.toString(values()));
+        }
+    }
 
     public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites){
+        switch(bulkWrites.getWireFormat()){
+            case COLUMNAR:
+                return encodeColumnar(operationFactory,bulkWrites,false);
+            case COLUMNAR_COMPRESSED:
+                return encodeColumnar(operationFactory,bulkWrites,true);
+            default:
+                return encodeRows(operationFactory,bulkWrites);
+        }
+    }
+
+
+    public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
+        byte format = data[0];
+        if((format & 0x80)!=0){
+            //no flag byte, so this is the row format
+            return decode(operationFactory,data,0,false);
+        }
+        if((format & ~(COLUMNAR_FLAG|COMPRESSED_FLAG))!=0 || (format & COLUMNAR_FLAG)==0)
+            throw new IllegalArgumentException("Unknown BulkWrites wire format: "+format);
+        if((format & COMPRESSED_FLAG)!=0){
+            ExpandedDecoder lengthDecoder = new ExpandedDecoder(data,1);
+            int uncompressedLength = lengthDecoder.decodeInt();
+            int blockOffset = lengthDecoder.currentOffset();
+            data = decompress(data,blockOffset,data.length-blockOffset,uncompressedLength);
+            return decode(operationFactory,data,0,true);
+        }
+        return decode(operationFactory,data,1,true);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[] encodeRows(TxnOperationFactory operationFactory,BulkWrites bulkWrites){
         /*
          * The encoding for a BulkWrites is as follows:
          * Txn (1-N bytes)
@@ -56,10 +133,79 @@ public class PipelineEncoding {
 
         int heapSize = bulkWrites.getBufferHeapSize();
         ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length);
+        Collection<BulkWrite> bws = bulkWrites.getBulkWrites();
+        encodeHeader(buffer,txnBytes,bws);
+
+        for(BulkWrite bw:bws){
+            Collection<KVPair> mutations = bw.getMutations();
+            buffer.encode(mutations.size());
+            for(KVPair kvPair:mutations){
+                //TODO -sf- use a run-length encoding for type information here?
+                buffer.rawEncode(kvPair.getType().asByte());
+                buffer.rawEncode(kvPair.rowKeySlice());
+                buffer.rawEncode(kvPair.valueSlice());
+            }
+        }
+        return buffer.getBuffer();
+    }
+
+    private static byte[] encodeColumnar(TxnOperationFactory operationFactory,BulkWrites bulkWrites,boolean compress){
+        /*
+         * Same header as the row format, preceded by a flag byte. The body of each BulkWrite is
+         * # of KVPairs
+         * (type, run length) pairs
+         * total length of the row keys
+         * for 1...# of KVPairs:
+         *  length of prefix shared with the previous row key, remaining suffix
+         * for 1...# of KVPairs:
+         *  value
+         */
+        byte[] txnBytes = operationFactory.encode(bulkWrites.getTxn());
+
+        int heapSize = bulkWrites.getBufferHeapSize();
+        ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length+1);
+        buffer.rawEncode(COLUMNAR_FLAG);
+        Collection<BulkWrite> bws = bulkWrites.getBulkWrites();
+        encodeHeader(buffer,txnBytes,bws);
+        for(BulkWrite bw:bws){
+            encodeColumns(buffer,bw.getMutations());
+        }
+        byte[] columnar = buffer.getBuffer();
+        if(!compress) return columnar;
+
+        int uncompressedLength = columnar.length-1;
+        int lengthBytes = Encoding.encodedLength(uncompressedLength);
+        LZ4Compressor compressor = LZ4.fastCompressor();
+        byte[] compressed = new byte[1+lengthBytes+compressor.maxCompressedLength(uncompressedLength)];
+        int blockLength = compressor.compress(columnar,1,uncompressedLength,compressed,1+lengthBytes);
+        if(1+lengthBytes+blockLength>=columnar.length)
+            return columnar; //incompressible, so don't make the server pay for decompression
+
+        compressed[0] = (byte)(COLUMNAR_FLAG|COMPRESSED_FLAG);
+        Encoding.encode(uncompressedLength,compressed,1);
+        return Arrays.copyOf(compressed,1+lengthBytes+blockLength);
+    }
+
+    private static byte[] decompress(byte[] block,int offset,int length,int uncompressedLength){
+        if(uncompressedLength<0)
+            throw new IllegalArgumentException("Corrupt LZ4 block: negative length "+uncompressedLength);
+        byte[] data = new byte[uncompressedLength];
+        int decoded;
+        try{
+            //the safe decompressor never reads or writes out of bounds, however corrupt the block
+            decoded = LZ4.safeDecompressor().decompress(block,offset,length,data,0,uncompressedLength);
+        }catch(LZ4Exception e){
+            throw new IllegalArgumentException("Corrupt LZ4 block",e);
+        }
+        if(decoded!=uncompressedLength)
+            throw new IllegalArgumentException("Corrupt LZ4 block: expected "+uncompressedLength+" bytes, but decoded "+decoded);
+        return data;
+    }
+
+    private static void encodeHeader(ExpandingEncoder buffer,byte[] txnBytes,Collection<BulkWrite> bws){
         buffer.rawEncode(txnBytes);
 
         //encode BulkWrite metadata
-        Collection<BulkWrite> bws = bulkWrites.getBulkWrites();
         buffer.encode(bws.size());
         for(BulkWrite bw:bws){
             buffer.encode(bw.getEncodedStringName());
@@ -68,23 +214,58 @@ public class PipelineEncoding {
         for(BulkWrite bw:bws){
             buffer.encode(bw.getSkipIndexWrite());
         }
+    }
 
-        for(BulkWrite bw:bws){
-            Collection<KVPair> mutations = bw.getMutations();
-            buffer.encode(mutations.size());
-            for(KVPair kvPair:mutations){
-                //TODO -sf- use a run-length encoding for type information here?
-                buffer.rawEncode(kvPair.getType().asByte());
-                buffer.rawEncode(kvPair.rowKeySlice());
-                buffer.rawEncode(kvPair.valueSlice());
+    private static void encodeColumns(ExpandingEncoder buffer,Collection<KVPair> mutations){
+        buffer.encode(mutations.size());
+        byte runType = 0;
+        int runLength = 0;
+        int keyBytes = 0;
+        for(KVPair kvPair:mutations){
+            byte type = kvPair.getType().asByte();
+            if(runLength>0 && type!=runType){
+                buffer.rawEncode(runType);
+                buffer.encode(runLength);
+                runLength = 0;
             }
+            runType = type;
+            runLength++;
+            keyBytes+=kvPair.rowKeySlice().length();
+        }
+        if(runLength>0){
+            buffer.rawEncode(runType);
+            buffer.encode(runLength);
+        }
+
+        buffer.encode(keyBytes);
+        ByteSlice previous = null;
+        for(KVPair kvPair:mutations){
+            ByteSlice key = kvPair.rowKeySlice();
+            int shared = previous==null? 0 : sharedPrefixLength(previous,key);
+            buffer.encode(shared);
+            buffer.rawEncode(key.array(),key.offset()+shared,key.length()-shared);
+            previous = key;
+        }
+
+        for(KVPair kvPair:mutations){
+            buffer.rawEncode(kvPair.valueSlice());
         }
-        return buffer.getBuffer();
     }
 
+    private static int sharedPrefixLength(ByteSlice previous,ByteSlice key){
+        int max = Math.min(previous.length(),key.length());
+        byte[] p = previous.array();
+        byte[] k = key.array();
+        int pOff = previous.offset();
+        int kOff = key.offset();
+        int i = 0;
+        while(i<max && p[pOff+i]==k[kOff+i])
+            i++;
+        return i;
+    }
 
-    public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
-        ExpandedDecoder decoder = new ExpandedDecoder(data);
+    private static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data,int offset,boolean columnar){
+        ExpandedDecoder decoder = new ExpandedDecoder(data,offset);
         byte[] txnBytes = decoder.rawBytes();
         TxnView txn = operationFactory.decode(txnBytes,0,txnBytes.length);
         int bwSize = decoder.decodeInt();
@@ -97,7 +278,7 @@ public class PipelineEncoding {
             skipIndexWrites[i] = decoder.decodeByte();
         }
 
-        return new BulkWrites(new BulkWriteCol(skipIndexWrites,data,decoder.currentOffset(),stringNames),txn);
+        return new BulkWrites(new BulkWriteCol(skipIndexWrites,data,decoder.currentOffset(),stringNames,columnar),txn);
     }
 
 
@@ -108,6 +289,7 @@ public class PipelineEncoding {
         private final List<String> encodedStringNames;
         private final byte[] skipIndexWrites;
         private final byte[] buffer;
+        private final boolean columnar;
         /*
          * we keep a cache of previously created BulkWrites, so that we can have
          * deterministic iteration (i.e. returning the same objects instead of
@@ -117,8 +299,9 @@ public class PipelineEncoding {
         private transient ExpandedDecoder decoder;
         private transient int lastIndex = 0;
 
-        public BulkWriteCol(byte[] skipIndexWrites, byte[] buffer,int kvOffset, List<String> encodedStringNames) {
+        public BulkWriteCol(byte[] skipIndexWrites, byte[] buffer,int kvOffset, List<String> encodedStringNames,boolean columnar) {
             this.kvOffset = kvOffset;
+            this.columnar = columnar;
             this.encodedStringNames = encodedStringNames;
             this.buffer = buffer;
             this.skipIndexWrites = skipIndexWrites;
@@ -164,6 +347,15 @@ public class PipelineEncoding {
             public BulkWrite next() {
                 String esN = encodedStrings.next();
                 byte skipIndexWrite = skipIndexWrites[index++];
+                Collection<KVPair> kvPairs = columnar? decodeColumns() : decodeRows();
+
+                BulkWrite bulkWrite = new BulkWrite(kvPairs, esN, skipIndexWrite);
+                cache.add(bulkWrite);
+                lastIndex=index;
+                return bulkWrite;
+            }
+
+            private Collection<KVPair> decodeRows(){
                 int size = decoder.decodeInt();
                 Collection<KVPair> kvPairs = new ArrayList<>(size);
                 KVPair template = new KVPair();
@@ -175,12 +367,49 @@ public class PipelineEncoding {
                     decoder.sliceNext(valueSlice);
                     kvPairs.add(template.shallowClone());
                 }
+                return kvPairs;
+            }
 
+            private Collection<KVPair> decodeColumns(){
+                int size = decoder.decodeInt();
+                byte[] types = new byte[size];
+                int filled = 0;
+                while(filled<size){
+                    byte type = decoder.rawByte();
+                    int runLength = decoder.decodeInt();
+                    Arrays.fill(types,filled,filled+runLength,type);
+                    filled+=runLength;
+                }
 
-                BulkWrite bulkWrite = new BulkWrite(kvPairs, esN, skipIndexWrite);
-                cache.add(bulkWrite);
-                lastIndex=index;
-                return bulkWrite;
+                //rebuild the prefix-compressed row keys into a single shared array
+                byte[] keys = new byte[decoder.decodeInt()];
+                int[] keyOffsets = new int[size];
+                int[] keyLengths = new int[size];
+                ByteSlice suffix = new ByteSlice();
+                int position = 0;
+                int previousOffset = 0;
+                for(int i=0;i<size;i++){
+                    int shared = decoder.decodeInt();
+                    decoder.sliceNext(suffix);
+                    System.arraycopy(keys,previousOffset,keys,position,shared);
+                    System.arraycopy(suffix.array(),suffix.offset(),keys,position+shared,suffix.length());
+                    keyOffsets[i] = position;
+                    keyLengths[i] = shared+suffix.length();
+                    previousOffset = position;
+                    position+=keyLengths[i];
+                }
+
+                Collection<KVPair> kvPairs = new ArrayList<>(size);
+                KVPair template = new KVPair();
+                ByteSlice rowKeySlice = template.rowKeySlice();
+                ByteSlice valueSlice = template.valueSlice();
+                for(int i=0;i<size;i++){
+                    template.setType(KVPair.Type.decode(types[i]));
+                    rowKeySlice.set(keys,keyOffsets[i],keyLengths[i]);
+                    decoder.sliceNext(valueSlice);
+                    kvPairs.add(template.shallowClone());
+                }
+                return kvPairs;
             }
         }
     }
@@ -80,7 +80,8 @@ public class WriteCoordinator {
         int numRetries = config.getMaxRetries();
         long pause = config.getClientPause();
         int maxFlushesPerRegion = config.getWriteMaxFlushesPerRegion();
-        Monitor monitor = new Monitor(maxBufferHeapSize, maxEntries, numRetries, pause, maxFlushesPerRegion);
+        PipelineEncoding.WireFormat wireFormat = PipelineEncoding.WireFormat.parse(config.getPipelineWireFormat());
+        Monitor monitor = new Monitor(maxBufferHeapSize, maxEntries, numRetries, pause, maxFlushesPerRegion, wireFormat);
 
         return new WriteCoordinator(writer, syncWriter, monitor,partitionFactory,exceptionFactory,writerPool);
     }
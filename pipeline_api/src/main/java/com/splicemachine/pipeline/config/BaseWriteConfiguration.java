@@ -24,6 +24,7 @@ import com.splicemachine.pipeline.api.RecordingContext;
 import com.splicemachine.pipeline.context.WriteContext;
 import com.splicemachine.pipeline.api.WriteResponse;
 import com.splicemachine.pipeline.client.BulkWriteResult;
+import com.splicemachine.pipeline.client.PipelineEncoding;
 import com.splicemachine.pipeline.client.WriteResult;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
@@ -144,6 +145,11 @@ public abstract class BaseWriteConfiguration implements WriteConfiguration {
         this.recordingContext = recordingContext;
     }
 
+    @Override
+    public PipelineEncoding.WireFormat getWireFormat() {
+        return PipelineEncoding.WireFormat.ROW;
+    }
+
     @Override
     public WriteResponse globalError(Throwable t) throws ExecutionException {
         t=exceptionFactory.processPipelineException(t);
@@ -24,6 +24,7 @@ import com.splicemachine.pipeline.api.WriteResponse;
 import com.splicemachine.pipeline.client.BulkWrite;
 import com.splicemachine.pipeline.client.BulkWriteResult;
 import com.splicemachine.pipeline.client.Monitor;
+import com.splicemachine.pipeline.client.PipelineEncoding;
 import com.splicemachine.pipeline.client.WriteResult;
 
 import java.util.concurrent.ExecutionException;
@@ -57,6 +58,11 @@ public class DefaultWriteConfiguration extends BaseWriteConfiguration {
         return Metrics.basicMetricFactory();
     }
 
+    @Override
+    public PipelineEncoding.WireFormat getWireFormat() {
+        return monitor.getPipelineWireFormat();
+    }
+
     @Override
     public WriteResponse partialFailure(BulkWriteResult result, BulkWrite request) throws ExecutionException {
         IntObjectOpenHashMap<WriteResult> failedRows = result.getFailedRows();
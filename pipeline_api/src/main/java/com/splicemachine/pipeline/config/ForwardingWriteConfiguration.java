@@ -24,6 +24,7 @@ import com.splicemachine.pipeline.context.WriteContext;
 import com.splicemachine.pipeline.api.WriteResponse;
 import com.splicemachine.pipeline.client.BulkWrite;
 import com.splicemachine.pipeline.client.BulkWriteResult;
+import com.splicemachine.pipeline.client.PipelineEncoding;
 
 import java.util.concurrent.ExecutionException;
 
@@ -98,4 +99,9 @@ public class ForwardingWriteConfiguration implements WriteConfiguration {
     public PipelineExceptionFactory getExceptionFactory(){
         return delegate.getExceptionFactory();
     }
+
+    @Override
+    public PipelineEncoding.WireFormat getWireFormat(){
+        return delegate.getWireFormat();
+    }
 }
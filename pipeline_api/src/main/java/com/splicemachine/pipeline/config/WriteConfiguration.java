@@ -23,6 +23,7 @@ import com.splicemachine.pipeline.api.RecordingContext;
 import com.splicemachine.pipeline.api.WriteResponse;
 import com.splicemachine.pipeline.client.BulkWrite;
 import com.splicemachine.pipeline.client.BulkWriteResult;
+import com.splicemachine.pipeline.client.PipelineEncoding;
 import com.splicemachine.pipeline.context.WriteContext;
 
 import java.util.concurrent.ExecutionException;
@@ -53,4 +54,9 @@ public interface WriteConfiguration {
     RecordingContext getRecordingContext();
 
     void setRecordingContext(RecordingContext recordingContext);
+
+    /**
+     * @return the encoding to send writes over the wire with
+     */
+    PipelineEncoding.WireFormat getWireFormat();
 }
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.pipeline.traffic;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link SpliceWriteControl} which adapts its admission limits to the observed write latency.
+ *
+ * Dependent (base table plus indexes) and independent (single table) writes are admitted against separate
+ * budgets, each with a thread and a row-count limit. The configured limits act as ceilings; the limits actually
+ * in force are a fraction of those ceilings, which each budget adjusts in AIMD fashion once every
+ * {@link #SAMPLE_WINDOW} completed writes:
+ *
+ * <ul>
+ *     <li>If the average per-row latency over the window exceeds {@link #LATENCY_TOLERANCE} times the budget's
+ *     baseline (the lowest window average seen, slowly relaxed upwards), or if the queue of rows admitted ahead of
+ *     each completing write never dropped below {@link #STANDING_QUEUE_FRACTION} of the row limit during the window
+ *     (a standing queue, which means writes arrive faster than they complete, however fast each one is), the region server is congested and the
+ *     limits are cut multiplicatively.</li>
+ *     <li>Otherwise, if the limits were actually binding during the window (writes were rejected, or at least
+ *     half of the permitted threads were in use), they are raised additively.</li>
+ * </ul>
+ *
+ * Limits never drop below {@link #MIN_FRACTION} of their ceilings, so a budget can always make progress. The
+ * limits in force, and the number of rejected writes, are published through {@link #getWriteStatus()}.
+ *
+ * Completed writes are sampled without locking; only the write which completes a window takes the budget's lock
+ * to adjust the limits. Rejections are counted outside of the {@link WriteStatus}, so rejecting a write allocates
+ * nothing.
+ *
+ * As with {@link AtomicSpliceWriteControl}, independent writes which do not fit their own budget attempt to
+ * borrow from the dependent budget before being rejected.
+ */
+public class AdaptiveSpliceWriteControl implements SpliceWriteControl{
+    private static final Logger LOG = Logger.getLogger(AdaptiveSpliceWriteControl.class);
+
+    /*the number of completed writes between adjustments of a budget*/
+    static final int SAMPLE_WINDOW = 64;
+    /*the lowest fraction of the ceiling a limit is allowed to drop to*/
+    static final double MIN_FRACTION = 0.1d;
+    /*the multiplicative decrease applied when congestion is detected*/
+    static final double DECREASE_FACTOR = 0.75d;
+    /*the additive increase (as a fraction of the ceiling) applied when the limits are binding*/
+    static final double INCREASE_STEP = 0.05d;
+    /*how far above the baseline the window latency may go before we consider the server congested*/
+    static final double LATENCY_TOLERANCE = 2.0d;
+    /*how much the baseline relaxes every window, so that it follows a lasting change in workload*/
+    static final double BASELINE_DRIFT = 1.05d;
+    /*the fraction of the row limit which, if always queued ahead of completing writes, indicates congestion*/
+    static final double STANDING_QUEUE_FRACTION = 0.5d;
+
+    private final AtomicReference<WriteStatus> writeStatus;
+    private final Budget dependent;
+    private final Budget independent;
+
+    public AdaptiveSpliceWriteControl(int maxDependentWriteThreads,
+                                      int maxIndependentWriteThreads,int maxDependentWriteCount,int maxIndependentWriteCount) {
+        assert (maxDependentWriteThreads >= 0 &&
+                maxIndependentWriteThreads >= 0 &&
+                maxDependentWriteCount >= 0 &&
+                maxIndependentWriteCount >= 0);
+        this.dependent = new Budget(true,maxDependentWriteThreads,maxDependentWriteCount);
+        this.independent = new Budget(false,maxIndependentWriteThreads,maxIndependentWriteCount);
+        WriteStatus initial = new WriteStatus(0,0,0,0);
+        initial = WriteStatus.withDependentLimits(initial,maxDependentWriteThreads,maxDependentWriteCount);
+        initial = WriteStatus.withIndependentLimits(initial,maxIndependentWriteThreads,maxIndependentWriteCount);
+        this.writeStatus = new AtomicReference<>(initial);
+    }
+
+    @Override
+    public Status performDependentWrite(int writes) {
+        return admitDependent(writes,false);
+    }
+
+    @Override
+    public boolean finishDependentWrite(int writes) {
+        while (true) {
+            WriteStatus state = writeStatus.get();
+            if (writeStatus.compareAndSet(state, WriteStatus.decrementDependentWriteStatus(state, writes)))
+                return true;
+        }
+    }
+
+    @Override
+    public Status performIndependentWrite(int writes) {
+        while (true) {
+            WriteStatus state = writeStatus.get();
+            if (state.independentWriteThreads > state.maxIndependentWriteThreads
+                    || state.independentWriteCount > state.maxIndependentWriteCount) {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace(String.format(
+                            "Independent budget full, attempting to borrow from dependent: independentWriteThreads=%d, maxIndependentWriteThreads=%d, independentWriteCount=%d, maxIndependentWriteCount=%d, requestedWriteCount=%d",
+                            state.independentWriteThreads, state.maxIndependentWriteThreads, state.independentWriteCount, state.maxIndependentWriteCount, writes));
+                }
+                return admitDependent(writes,true);
+            }
+            if (writeStatus.compareAndSet(state, WriteStatus.incrementIndependentWriteStatus(state, writes))) {
+                return Status.INDEPENDENT;
+            }
+        }
+    }
+
+    @Override
+    public boolean finishIndependentWrite(int writes) {
+        while (true) {
+            WriteStatus state = writeStatus.get();
+            if (writeStatus.compareAndSet(state, WriteStatus.decrementIndependentWriteStatus(state, writes)))
+                return true;
+        }
+    }
+
+    @Override
+    public void recordWriteLatency(Status status, int writes, long latencyNanos) {
+        Budget budget;
+        switch (status) {
+            case DEPENDENT:
+                budget = dependent;
+                break;
+            case INDEPENDENT:
+                budget = independent;
+                break;
+            default:
+                return;
+        }
+        budget.sample(writes, latencyNanos / Math.max(writes, 1));
+    }
+
+    @Override
+    public WriteStatus getWriteStatus() {
+        return WriteStatus.withRejections(writeStatus.get(), dependent.rejections.get(), independent.rejections.get());
+    }
+
+    /**
+     * @return the dependent thread limit currently in force, which may be below the configured ceiling
+     */
+    @Override
+    public int maxDependendentWriteThreads(){
+        return writeStatus.get().maxDependentWriteThreads;
+    }
+
+    /**
+     * @return the independent thread limit currently in force, which may be below the configured ceiling
+     */
+    @Override
+    public int maxIndependentWriteThreads(){
+        return writeStatus.get().maxIndependentWriteThreads;
+    }
+
+    /**
+     * @return the dependent row limit currently in force, which may be below the configured ceiling
+     */
+    @Override
+    public int maxDependentWriteCount(){
+        return writeStatus.get().maxDependentWriteCount;
+    }
+
+    /**
+     * @return the independent row limit currently in force, which may be below the configured ceiling
+     */
+    @Override
+    public int maxIndependentWriteCount(){
+        return writeStatus.get().maxIndependentWriteCount;
+    }
+
+    /**
+     * Sets the ceiling for the independent thread limit. The limit in force adapts beneath it.
+     */
+    @Override
+    public void setMaxIndependentWriteThreads(int newMaxIndependentWriteThreads){
+        independent.setCeilings(newMaxIndependentWriteThreads,independent.maxCount);
+    }
+
+    /**
+     * Sets the ceiling for the dependent thread limit. The limit in force adapts beneath it.
+     */
+    @Override
+    public void setMaxDependentWriteThreads(int newMaxDependentWriteThreads){
+        dependent.setCeilings(newMaxDependentWriteThreads,dependent.maxCount);
+    }
+
+    /**
+     * Sets the ceiling for the independent row limit. The limit in force adapts beneath it.
+     */
+    @Override
+    public void setMaxIndependentWriteCount(int newMaxIndependentWriteCount){
+        independent.setCeilings(independent.maxThreads,newMaxIndependentWriteCount);
+    }
+
+    /**
+     * Sets the ceiling for the dependent row limit. The limit in force adapts beneath it.
+     */
+    @Override
+    public void setMaxDependentWriteCount(int newMaxDependentWriteCount){
+        dependent.setCeilings(dependent.maxThreads,newMaxDependentWriteCount);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private Status admitDependent(int writes,boolean borrowing){
+        while (true) {
+            WriteStatus state = writeStatus.get();
+            if (state.dependentWriteThreads > state.maxDependentWriteThreads
+                    || state.dependentWriteCount > state.maxDependentWriteCount) {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace(String.format(
+                            "Rejected %s write: dependentWriteThreads=%d, maxDependentWriteThreads=%d, dependentWriteCount=%d, maxDependentWriteCount=%d, requestedWriteCount=%d",
+                            borrowing ? "independent" : "dependent",
+                            state.dependentWriteThreads, state.maxDependentWriteThreads, state.dependentWriteCount, state.maxDependentWriteCount, writes));
+                }
+                (borrowing ? independent : dependent).rejections.incrementAndGet();
+                return Status.REJECTED;
+            }
+            if (writeStatus.compareAndSet(state, WriteStatus.incrementDependentWriteStatus(state, writes))) {
+                return Status.DEPENDENT;
+            }
+        }
+    }
+
+    private void publishLimits(boolean isDependent,int maxThreads,int maxCount){
+        while (true) {
+            WriteStatus state = writeStatus.get();
+            WriteStatus next = isDependent
+                    ? WriteStatus.withDependentLimits(state, maxThreads, maxCount)
+                    : WriteStatus.withIndependentLimits(state, maxThreads, maxCount);
+            if (writeStatus.compareAndSet(state, next))
+                return;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private class Budget{
+        private final boolean isDependent;
+        private volatile int maxThreads;
+        private volatile int maxCount;
+        private final AtomicLong rejections = new AtomicLong();
+
+        /*the current window, accumulated by every completed write without locking*/
+        private final AtomicLong completedWrites = new AtomicLong();
+        private final AtomicLong windowLatency = new AtomicLong();
+        private final AtomicInteger windowSamples = new AtomicInteger();
+        private final AtomicInteger windowMinQueueDepth = new AtomicInteger(Integer.MAX_VALUE);
+        private volatile boolean bindingInWindow;
+
+        /*all guarded by this*/
+        private double fraction = 1.0d;
+        private double baselineLatency = Double.NaN;
+        private long lastRejections;
+
+        Budget(boolean isDependent,int maxThreads,int maxCount){
+            this.isDependent = isDependent;
+            this.maxThreads = maxThreads;
+            this.maxCount = maxCount;
+        }
+
+        synchronized void setCeilings(int maxThreads,int maxCount){
+            this.maxThreads = maxThreads;
+            this.maxCount = maxCount;
+            publish();
+        }
+
+        void sample(int writes,long perRowLatencyNanos){
+            WriteStatus state = writeStatus.get();
+            int threads = isDependent ? state.dependentWriteThreads : state.independentWriteThreads;
+            int threadLimit = isDependent ? state.maxDependentWriteThreads : state.maxIndependentWriteThreads;
+            //the rows of other writes which were admitted and are still in flight
+            int queueDepth = Math.max(0, (isDependent ? state.dependentWriteCount : state.independentWriteCount) - writes);
+
+            windowLatency.addAndGet(perRowLatencyNanos);
+            windowSamples.incrementAndGet();
+            int minQueueDepth;
+            while ((minQueueDepth = windowMinQueueDepth.get()) > queueDepth) {
+                if (windowMinQueueDepth.compareAndSet(minQueueDepth, queueDepth))
+                    break;
+            }
+            if (!bindingInWindow && 2 * threads >= threadLimit)
+                bindingInWindow = true;
+            if (completedWrites.incrementAndGet() % SAMPLE_WINDOW == 0)
+                adjust(state);
+        }
+
+        private synchronized void adjust(WriteStatus state){
+            /*
+             * Writes which complete while we drain the window may land in either window; that only
+             * smears the averages a little, so the window is not fenced off from them.
+             */
+            int samples = windowSamples.getAndSet(0);
+            if (samples == 0)
+                return;
+            double windowAverage = (double) windowLatency.getAndSet(0L) / samples;
+            int minQueueDepth = windowMinQueueDepth.getAndSet(Integer.MAX_VALUE);
+            long rejected = rejections.get();
+            boolean binding = bindingInWindow || rejected > lastRejections;
+            bindingInWindow = false;
+            lastRejections = rejected;
+
+            int countLimit = isDependent ? state.maxDependentWriteCount : state.maxIndependentWriteCount;
+            boolean standingQueue = minQueueDepth > STANDING_QUEUE_FRACTION * countLimit;
+            double oldFraction = fraction;
+            if (Double.isNaN(baselineLatency)) {
+                baselineLatency = windowAverage;
+            } else if (windowAverage > LATENCY_TOLERANCE * baselineLatency || standingQueue) {
+                fraction = Math.max(MIN_FRACTION, fraction * DECREASE_FACTOR);
+            } else if (binding) {
+                fraction = Math.min(1.0d, fraction + INCREASE_STEP);
+            }
+            baselineLatency = Math.min(baselineLatency * BASELINE_DRIFT, windowAverage);
+            if (fraction != oldFraction) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(String.format("Adjusted %s write limits from %.2f to %.2f of ceiling: windowLatency=%.0fns/row, baselineLatency=%.0fns/row, minQueueDepth=%d",
+                            isDependent ? "dependent" : "independent", oldFraction, fraction, windowAverage, baselineLatency, minQueueDepth));
+                }
+                publish();
+            }
+        }
+
+        private void publish(){
+            publishLimits(isDependent, scale(maxThreads), scale(maxCount));
+        }
+
+        private int scale(int ceiling){
+            return Math.max(1, (int) Math.ceil(ceiling * fraction));
+        }
+    }
+}
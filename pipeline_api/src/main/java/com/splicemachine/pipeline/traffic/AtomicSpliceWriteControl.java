@@ -104,6 +104,11 @@ public class AtomicSpliceWriteControl implements SpliceWriteControl{
         }
     }
 
+    @Override
+    public void recordWriteLatency(Status status, int writes, long latencyNanos) {
+        //fixed limits, so nothing to adapt
+    }
+
     @Override
     public WriteStatus getWriteStatus() {
         return writeStatus.get();
@@ -32,6 +32,16 @@ public interface SpliceWriteControl{
 
     boolean finishIndependentWrite(int writes);
 
+    /**
+     * Record how long an admitted write took to perform. Controls which adapt their limits use
+     * this as their congestion signal; controls with fixed limits ignore it.
+     *
+     * @param status the status the write was admitted with
+     * @param writes the number of rows in the write
+     * @param latencyNanos the time taken to perform the write, in nanoseconds
+     */
+    void recordWriteLatency(Status status,int writes,long latencyNanos);
+
     WriteStatus getWriteStatus();
 
     int maxDependendentWriteThreads();
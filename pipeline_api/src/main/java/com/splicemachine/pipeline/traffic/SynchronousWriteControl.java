@@ -87,6 +87,11 @@ public class SynchronousWriteControl implements SpliceWriteControl{
         }
     }
 
+    @Override
+    public void recordWriteLatency(Status status,int writes,long latencyNanos){
+        //fixed limits, so nothing to adapt
+    }
+
     @Override
     public WriteStatus getWriteStatus(){
         return currStatus;
@@ -15,14 +15,35 @@
 
 package com.splicemachine.pipeline.traffic;
 
+/**
+ * An immutable snapshot of the writes currently admitted by a {@link SpliceWriteControl}.
+ *
+ * Controls which adapt their admission limits also publish the limits in force and the number of writes
+ * they have rejected; controls with fixed limits report a limit of {@code -1} and no rejections.
+ */
 public class WriteStatus {
     int dependentWriteThreads;
     int independentWriteThreads;
     int dependentWriteCount;
     int independentWriteCount;
+    int maxDependentWriteThreads;
+    int maxIndependentWriteThreads;
+    int maxDependentWriteCount;
+    int maxIndependentWriteCount;
+    long dependentRejections;
+    long independentRejections;
 
     public WriteStatus(int dependentWriteThreads, int dependentWriteCount,
                        int independentWriteCount, int independentWriteThreads) {
+        this(dependentWriteThreads, dependentWriteCount, independentWriteCount, independentWriteThreads,
+                -1, -1, -1, -1, 0L, 0L);
+    }
+
+    private WriteStatus(int dependentWriteThreads, int dependentWriteCount,
+                        int independentWriteCount, int independentWriteThreads,
+                        int maxDependentWriteThreads, int maxDependentWriteCount,
+                        int maxIndependentWriteCount, int maxIndependentWriteThreads,
+                        long dependentRejections, long independentRejections) {
         assert (dependentWriteThreads >= 0 &&
                 independentWriteThreads >= 0 &&
                 dependentWriteCount >= 0 &&
@@ -31,27 +52,71 @@ public class WriteStatus {
         this.independentWriteThreads = independentWriteThreads;
         this.dependentWriteCount = dependentWriteCount;
         this.independentWriteCount = independentWriteCount;
+        this.maxDependentWriteThreads = maxDependentWriteThreads;
+        this.maxIndependentWriteThreads = maxIndependentWriteThreads;
+        this.maxDependentWriteCount = maxDependentWriteCount;
+        this.maxIndependentWriteCount = maxIndependentWriteCount;
+        this.dependentRejections = dependentRejections;
+        this.independentRejections = independentRejections;
     }
 
 
     public static WriteStatus incrementDependentWriteStatus(WriteStatus clone, int writes) {
         return new WriteStatus(clone.dependentWriteThreads + 1, clone.dependentWriteCount + writes,
-                clone.independentWriteCount, clone.independentWriteThreads);
+                clone.independentWriteCount, clone.independentWriteThreads,
+                clone.maxDependentWriteThreads, clone.maxDependentWriteCount,
+                clone.maxIndependentWriteCount, clone.maxIndependentWriteThreads,
+                clone.dependentRejections, clone.independentRejections);
     }
 
     public static WriteStatus incrementIndependentWriteStatus(WriteStatus clone, int writes) {
         return new WriteStatus(clone.dependentWriteThreads, clone.dependentWriteCount,
-                clone.independentWriteCount + writes, clone.independentWriteThreads + 1);
+                clone.independentWriteCount + writes, clone.independentWriteThreads + 1,
+                clone.maxDependentWriteThreads, clone.maxDependentWriteCount,
+                clone.maxIndependentWriteCount, clone.maxIndependentWriteThreads,
+                clone.dependentRejections, clone.independentRejections);
     }
 
     public static WriteStatus decrementDependentWriteStatus(WriteStatus clone, int writes) {
         return new WriteStatus(clone.dependentWriteThreads - 1, clone.dependentWriteCount - writes,
-                clone.independentWriteCount, clone.independentWriteThreads);
+                clone.independentWriteCount, clone.independentWriteThreads,
+                clone.maxDependentWriteThreads, clone.maxDependentWriteCount,
+                clone.maxIndependentWriteCount, clone.maxIndependentWriteThreads,
+                clone.dependentRejections, clone.independentRejections);
     }
 
     public static WriteStatus decrementIndependentWriteStatus(WriteStatus clone, int writes) {
         return new WriteStatus(clone.dependentWriteThreads, clone.dependentWriteCount,
-                clone.independentWriteCount - writes, clone.independentWriteThreads - 1);
+                clone.independentWriteCount - writes, clone.independentWriteThreads - 1,
+                clone.maxDependentWriteThreads, clone.maxDependentWriteCount,
+                clone.maxIndependentWriteCount, clone.maxIndependentWriteThreads,
+                clone.dependentRejections, clone.independentRejections);
+    }
+
+    public static WriteStatus withRejections(WriteStatus clone, long dependentRejections, long independentRejections) {
+        if (clone.dependentRejections == dependentRejections && clone.independentRejections == independentRejections)
+            return clone;
+        return new WriteStatus(clone.dependentWriteThreads, clone.dependentWriteCount,
+                clone.independentWriteCount, clone.independentWriteThreads,
+                clone.maxDependentWriteThreads, clone.maxDependentWriteCount,
+                clone.maxIndependentWriteCount, clone.maxIndependentWriteThreads,
+                dependentRejections, independentRejections);
+    }
+
+    public static WriteStatus withDependentLimits(WriteStatus clone, int maxWriteThreads, int maxWriteCount) {
+        return new WriteStatus(clone.dependentWriteThreads, clone.dependentWriteCount,
+                clone.independentWriteCount, clone.independentWriteThreads,
+                maxWriteThreads, maxWriteCount,
+                clone.maxIndependentWriteCount, clone.maxIndependentWriteThreads,
+                clone.dependentRejections, clone.independentRejections);
+    }
+
+    public static WriteStatus withIndependentLimits(WriteStatus clone, int maxWriteThreads, int maxWriteCount) {
+        return new WriteStatus(clone.dependentWriteThreads, clone.dependentWriteCount,
+                clone.independentWriteCount, clone.independentWriteThreads,
+                clone.maxDependentWriteThreads, clone.maxDependentWriteCount,
+                maxWriteCount, maxWriteThreads,
+                clone.dependentRejections, clone.independentRejections);
     }
 
     @Override
@@ -77,13 +142,43 @@ public class WriteStatus {
         return independentWriteCount;
     }
 
+    public int getMaxDependentWriteThreads() {
+        return maxDependentWriteThreads;
+    }
+
+    public int getMaxIndependentWriteThreads() {
+        return maxIndependentWriteThreads;
+    }
+
+    public int getMaxDependentWriteCount() {
+        return maxDependentWriteCount;
+    }
+
+    public int getMaxIndependentWriteCount() {
+        return maxIndependentWriteCount;
+    }
+
+    public long getDependentRejections() {
+        return dependentRejections;
+    }
+
+    public long getIndependentRejections() {
+        return independentRejections;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj == this || (obj instanceof WriteStatus) &&
                 this.dependentWriteCount == ((WriteStatus) obj).dependentWriteCount &&
                 this.dependentWriteThreads == ((WriteStatus) obj).dependentWriteThreads &&
                 this.independentWriteCount == ((WriteStatus) obj).independentWriteCount &&
-                this.independentWriteThreads == ((WriteStatus) obj).independentWriteThreads;
+                this.independentWriteThreads == ((WriteStatus) obj).independentWriteThreads &&
+                this.maxDependentWriteThreads == ((WriteStatus) obj).maxDependentWriteThreads &&
+                this.maxIndependentWriteThreads == ((WriteStatus) obj).maxIndependentWriteThreads &&
+                this.maxDependentWriteCount == ((WriteStatus) obj).maxDependentWriteCount &&
+                this.maxIndependentWriteCount == ((WriteStatus) obj).maxIndependentWriteCount &&
+                this.dependentRejections == ((WriteStatus) obj).dependentRejections &&
+                this.independentRejections == ((WriteStatus) obj).independentRejections;
     }
     @Override
     public int hashCode(){
@@ -92,6 +187,12 @@ public class WriteStatus {
         hC+= 31*hC+dependentWriteThreads;
         hC+= 31*hC+independentWriteCount;
         hC+= 31*hC+independentWriteThreads;
+        hC+= 31*hC+maxDependentWriteThreads;
+        hC+= 31*hC+maxIndependentWriteThreads;
+        hC+= 31*hC+maxDependentWriteCount;
+        hC+= 31*hC+maxIndependentWriteCount;
+        hC+= 31*hC+(int)(dependentRejections^(dependentRejections>>>32));
+        hC+= 31*hC+(int)(independentRejections^(independentRejections>>>32));
         return hC;
     }
 }
\ No newline at end of file
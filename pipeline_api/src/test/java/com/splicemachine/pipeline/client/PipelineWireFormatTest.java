@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Round-trip tests for each of the BulkWrites wire formats.
+ */
+@Category(ArchitectureIndependent.class)
+public class PipelineWireFormatTest{
+    private static final byte[] TXN_BYTES=new byte[]{0x01,0x02,0x03};
+
+    private final TxnView txn=new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,false,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+
+    @Test
+    public void rowFormatRoundTrips() throws Exception{
+        assertRoundTrips(PipelineEncoding.WireFormat.ROW,generateBulkWrites(3,100));
+    }
+
+    @Test
+    public void columnarFormatRoundTrips() throws Exception{
+        assertRoundTrips(PipelineEncoding.WireFormat.COLUMNAR,generateBulkWrites(3,100));
+    }
+
+    @Test
+    public void compressedColumnarFormatRoundTrips() throws Exception{
+        assertRoundTrips(PipelineEncoding.WireFormat.COLUMNAR_COMPRESSED,generateBulkWrites(3,100));
+    }
+
+    @Test
+    public void emptyBulkWriteRoundTrips() throws Exception{
+        for(PipelineEncoding.WireFormat format : PipelineEncoding.WireFormat.values()){
+            assertRoundTrips(format,generateBulkWrites(2,0));
+        }
+    }
+
+    @Test
+    public void columnarFormatIsSmallerForSortedNarrowRows() throws Exception{
+        TxnOperationFactory operationFactory=operationFactory();
+        BulkWrites row=new BulkWrites(generateBulkWrites(1,1000),txn);
+        BulkWrites columnar=new BulkWrites(generateBulkWrites(1,1000),txn);
+        columnar.setWireFormat(PipelineEncoding.WireFormat.COLUMNAR);
+        BulkWrites compressed=new BulkWrites(generateBulkWrites(1,1000),txn);
+        compressed.setWireFormat(PipelineEncoding.WireFormat.COLUMNAR_COMPRESSED);
+
+        int rowSize=PipelineEncoding.encode(operationFactory,row).length;
+        int columnarSize=PipelineEncoding.encode(operationFactory,columnar).length;
+        int compressedSize=PipelineEncoding.encode(operationFactory,compressed).length;
+        Assert.assertTrue("Columnar encoding ("+columnarSize+") should be smaller than row encoding ("+rowSize+")",columnarSize<rowSize);
+        Assert.assertTrue("Compressed encoding ("+compressedSize+") should be no larger than columnar encoding ("+columnarSize+")",compressedSize<=columnarSize);
+    }
+
+    @Test
+    public void truncatedCompressedPayloadIsRejected() throws Exception{
+        TxnOperationFactory operationFactory=operationFactory();
+        BulkWrites compressed=new BulkWrites(generateBulkWrites(1,1000),txn);
+        compressed.setWireFormat(PipelineEncoding.WireFormat.COLUMNAR_COMPRESSED);
+        byte[] encoded=PipelineEncoding.encode(operationFactory,compressed);
+        try{
+            PipelineEncoding.decode(operationFactory,Arrays.copyOf(encoded,encoded.length-10));
+            Assert.fail("Decoded a truncated payload");
+        }catch(IllegalArgumentException expected){
+            //the block no longer decompresses to the recorded length
+        }
+    }
+
+    @Test
+    public void wireFormatNamesAreCaseInsensitive() throws Exception{
+        Assert.assertEquals(PipelineEncoding.WireFormat.COLUMNAR_COMPRESSED,PipelineEncoding.WireFormat.parse("columnar_Compressed"));
+        Assert.assertEquals(PipelineEncoding.WireFormat.ROW,PipelineEncoding.WireFormat.parse(" row "));
+    }
+
+    @Test
+    public void unknownWireFormatIsRejectedAndLeavesTheFormatUnchanged() throws Exception{
+        Monitor monitor=new Monitor(1024l,10,1,1l,1,PipelineEncoding.WireFormat.COLUMNAR);
+        try{
+            monitor.setWireFormat("columns");
+            Assert.fail("Accepted an unknown wire format");
+        }catch(IllegalArgumentException expected){
+            Assert.assertTrue("The error should list the valid formats: "+expected.getMessage(),
+                    expected.getMessage().contains("COLUMNAR_COMPRESSED"));
+        }
+        Assert.assertEquals(PipelineEncoding.WireFormat.COLUMNAR,monitor.getPipelineWireFormat());
+        monitor.setWireFormat("row");
+        Assert.assertEquals("ROW",monitor.getWireFormat());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private TxnOperationFactory operationFactory(){
+        TxnOperationFactory operationFactory=mock(TxnOperationFactory.class);
+        when(operationFactory.encode(any(TxnView.class))).thenReturn(TXN_BYTES);
+        when(operationFactory.decode(any(byte[].class),anyInt(),anyInt())).thenReturn(txn);
+        return operationFactory;
+    }
+
+    private void assertRoundTrips(PipelineEncoding.WireFormat format,Collection<BulkWrite> bws){
+        TxnOperationFactory operationFactory=operationFactory();
+        BulkWrites toEncode=new BulkWrites(bws,txn);
+        toEncode.setWireFormat(format);
+
+        BulkWrites decoded=PipelineEncoding.decode(operationFactory,PipelineEncoding.encode(operationFactory,toEncode));
+        Collection<BulkWrite> actualBws=decoded.getBulkWrites();
+        Assert.assertEquals(format+": bulk write size does not match!",bws.size(),actualBws.size());
+        Iterator<BulkWrite> correctIter=bws.iterator();
+        Iterator<BulkWrite> actualIter=actualBws.iterator();
+        while(correctIter.hasNext()){
+            BulkWrite cbw=correctIter.next();
+            BulkWrite abw=actualIter.next();
+            Assert.assertEquals(format+": Incorrect encodedStringName",cbw.getEncodedStringName(),abw.getEncodedStringName());
+            Assert.assertEquals(format+": Incorrect skipIndexWrite",cbw.getSkipIndexWrite(),abw.getSkipIndexWrite());
+
+            Collection<KVPair> cKvs=cbw.getMutations();
+            Collection<KVPair> aKvs=abw.getMutations();
+            Assert.assertEquals(format+": Incorrect kvPair size",cKvs.size(),aKvs.size());
+            Iterator<KVPair> cKvIter=cKvs.iterator();
+            Iterator<KVPair> aKvIter=aKvs.iterator();
+            while(cKvIter.hasNext()){
+                KVPair cKv=cKvIter.next();
+                KVPair aKv=aKvIter.next();
+                Assert.assertArrayEquals(format+": KVPair row not correct",cKv.getRowKey(),aKv.getRowKey());
+                Assert.assertArrayEquals(format+": KVPair value not correct",cKv.getValue(),aKv.getValue());
+                Assert.assertEquals(format+": KVPair type not correct",cKv.getType(),aKv.getType());
+            }
+        }
+    }
+
+    /*
+     * Sorted row keys with a common prefix, narrow values and runs of the same type, as an insert would produce.
+     */
+    private Collection<BulkWrite> generateBulkWrites(int size,int rowsPerWrite){
+        Random random=new Random(size*31+rowsPerWrite);
+        List<BulkWrite> bws=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            Collection<KVPair> kvPairs=new ArrayList<>(rowsPerWrite);
+            for(int j=0;j<rowsPerWrite;j++){
+                KVPair.Type type=j%50<45?KVPair.Type.INSERT:(j%2==0?KVPair.Type.DELETE:KVPair.Type.UPSERT);
+                byte[] value=type==KVPair.Type.DELETE?new byte[0]:Bytes.toBytes(random.nextInt(1000));
+                kvPairs.add(new KVPair(Bytes.concat(Arrays.asList(Bytes.toBytes(i),Bytes.toBytes((long)j))),value,type));
+            }
+            bws.add(new BulkWrite(kvPairs,Integer.toString(i)));
+        }
+        return bws;
+    }
+}
@@ -38,4 +38,76 @@ public class SpliceWriteControlTest {
         assertEquals("{ dependentWriteThreads=0, independentWriteThreads=1, dependentWriteCount=0, independentWriteCount=25 }", writeControl.getWriteStatus().toString());
     }
 
+
+    @Test
+    public void adaptiveControlCutsLimitsWhenLatencyRises() {
+        AdaptiveSpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(100, 100, 10000, 10000);
+
+        //establish a baseline
+        recordWindow(writeControl, SpliceWriteControl.Status.INDEPENDENT, 1000L);
+        assertEquals(10000, writeControl.getWriteStatus().getMaxIndependentWriteCount());
+
+        recordWindow(writeControl, SpliceWriteControl.Status.INDEPENDENT, 10000L);
+        WriteStatus status = writeControl.getWriteStatus();
+        assertEquals(7500, status.getMaxIndependentWriteCount());
+        assertEquals(75, status.getMaxIndependentWriteThreads());
+        assertEquals("Dependent budget should be unaffected", 10000, status.getMaxDependentWriteCount());
+
+        for (int i = 0; i < 50; i++) {
+            recordWindow(writeControl, SpliceWriteControl.Status.INDEPENDENT, 1000000000L);
+        }
+        assertEquals("Should not drop below the minimum fraction", 1000, writeControl.getWriteStatus().getMaxIndependentWriteCount());
+    }
+
+    @Test
+    public void adaptiveControlRaisesLimitsOnlyWhenBinding() {
+        AdaptiveSpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(10, 10, 1000, 1000);
+        recordWindow(writeControl, SpliceWriteControl.Status.DEPENDENT, 1000L);
+        recordWindow(writeControl, SpliceWriteControl.Status.DEPENDENT, 100000L);
+        assertEquals(750, writeControl.getWriteStatus().getMaxDependentWriteCount());
+
+        //fast, but nobody is waiting on the limit
+        recordWindow(writeControl, SpliceWriteControl.Status.DEPENDENT, 1000L);
+        assertEquals(750, writeControl.getWriteStatus().getMaxDependentWriteCount());
+
+        //fast, and the limit is rejecting writes
+        for (int i = 0; i < 9; i++) {
+            assertEquals(SpliceWriteControl.Status.DEPENDENT, writeControl.performDependentWrite(1));
+        }
+        assertEquals(SpliceWriteControl.Status.REJECTED, writeControl.performDependentWrite(1));
+        assertEquals(1, writeControl.getWriteStatus().getDependentRejections());
+        recordWindow(writeControl, SpliceWriteControl.Status.DEPENDENT, 1000L);
+        assertEquals(800, writeControl.getWriteStatus().getMaxDependentWriteCount());
+    }
+
+    @Test
+    public void adaptiveControlCutsLimitsOnStandingQueue() {
+        AdaptiveSpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(10, 10, 1000, 1000);
+        recordWindow(writeControl, SpliceWriteControl.Status.DEPENDENT, 1000L);
+
+        //latency is fine, but 600 rows stay queued ahead of every write in the window
+        for (int i = 0; i < 6; i++) {
+            assertEquals(SpliceWriteControl.Status.DEPENDENT, writeControl.performDependentWrite(100));
+        }
+        recordWindow(writeControl, SpliceWriteControl.Status.DEPENDENT, 1000L);
+        assertEquals(750, writeControl.getWriteStatus().getMaxDependentWriteCount());
+    }
+
+    @Test
+    public void adaptiveControlCountsBorrowedRejectionsAsIndependent() {
+        SpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(0, 0, 200, 200);
+        assertEquals(SpliceWriteControl.Status.INDEPENDENT, writeControl.performIndependentWrite(25));
+        assertEquals(SpliceWriteControl.Status.DEPENDENT, writeControl.performIndependentWrite(25));
+        assertEquals(SpliceWriteControl.Status.REJECTED, writeControl.performIndependentWrite(25));
+
+        WriteStatus status = writeControl.getWriteStatus();
+        assertEquals(0, status.getDependentRejections());
+        assertEquals(1, status.getIndependentRejections());
+    }
+
+    private static void recordWindow(SpliceWriteControl writeControl, SpliceWriteControl.Status status, long latencyPerRow) {
+        for (int i = 0; i < AdaptiveSpliceWriteControl.SAMPLE_WINDOW; i++) {
+            writeControl.recordWriteLatency(status, 10, 10 * latencyPerRow);
+        }
+    }
 }
\ No newline at end of file
@@ -77,6 +77,12 @@ public interface SConfiguration {
 
     long getMaxDdlWait();
 
+    /**
+     * @return the directory in which new indexes are staged for bulk loading, or null if CREATE INDEX
+     * writes index rows through the write pipeline.
+     */
+    String getIndexBulkLoadDirectory();
+
     // HConfiguration
     int getRegionServerHandlerCount();
 
@@ -99,6 +105,10 @@ public interface SConfiguration {
     // OperationConfiguration
     int getSequenceBlockSize();
 
+    int getSequenceMaxBlockSize();
+
+    long getSequenceAllocationInterval();
+
     // PipelineConfiguration
     int getCoreWriterThreads();
 
@@ -110,6 +120,10 @@ public interface SConfiguration {
 
     int getMaxIndependentWrites();
 
+    boolean adaptiveWriteControl();
+
+    String getPipelineWireFormat();
+
     int getMaxRetries();
 
     int getMaxWriterThreads();
@@ -142,6 +156,12 @@ public interface SConfiguration {
 
     int getReadResolverThreads();
 
+    int getScanBatchSize();
+
+    int getTransactionCommitGroupSize();
+
+    boolean getCompactionPurgeDeletedRows();
+
     int getOlapClientWaitTime();
 
     int getOlapClientTickTime();
@@ -150,8 +170,20 @@ public interface SConfiguration {
 
     int getOlapServerThreads();
 
+    int getOlapServerInteractiveWeight();
+
+    int getOlapServerBatchWeight();
+
+    int getOlapServerMaintenanceWeight();
+
+    int getOlapServerMaxJobsPerUser();
+
+    double getOlapServerInteractiveCostThreshold();
+
     int getTimestampClientWaitTime();
 
+    int getTimestampClientMaxBatchSize();
+
     int getTimestampServerBindPort();
 
     int getTransactionKeepAliveThreads();
@@ -195,6 +227,10 @@ public interface SConfiguration {
 
     long getBroadcastRegionRowThreshold();
 
+    long getControlSideMemoryBudget();
+
+    String getControlSideSpillDirectory();
+
     long getOptimizerPlanMaximumTimeout();
 
     long getOptimizerPlanMinimumTimeout();
@@ -230,6 +266,10 @@ public interface SConfiguration {
 
     long getPartitionCacheExpiration();
 
+    double getStaleWriteFraction();
+
+    long getStaleMinWrites();
+
     // StorageConfiguration
     int getSplitBlockSize();
 
@@ -31,7 +31,11 @@ public class ConfigurationBuilder {
     public int completedTxnConcurrency;
     public int readResolverQueueSize;
     public int readResolverThreads;
+    public int scanBatchSize;
+    public int transactionCommitGroupSize;
+    public boolean compactionPurgeDeletedRows;
     public int timestampClientWaitTime;
+    public int timestampClientMaxBatchSize;
     public int timestampServerBindPort;
     public int transactionKeepAliveThreads;
     public int transactionLockStripes;
@@ -40,12 +44,15 @@ public class ConfigurationBuilder {
 
     // OperationConfiguration
     public int sequenceBlockSize;
+    public int sequenceMaxBlockSize;
+    public long sequenceAllocationInterval;
 
     // DDLConfiguration
     public long ddlDrainingInitialWait;
     public long ddlDrainingMaximumWait;
     public long ddlRefreshInterval;
     public long maxDdlWait;
+    public String indexBulkLoadDirectory;
 
     // AuthenticationConfiguration
     public boolean authenticationNativeCreateCredentialsDatabase;
@@ -71,6 +78,8 @@ public class ConfigurationBuilder {
     public long fallbackRegionRowCount;
     public long fallbackRemoteLatencyRatio;
     public long partitionCacheExpiration;
+    public double staleWriteFraction;
+    public long staleMinWrites;
 
     // StorageConfiguration
     public int splitBlockSize;
@@ -105,15 +114,22 @@ public class ConfigurationBuilder {
     public int olapClientTickTime;
     public int olapServerBindPort;
     public int olapServerThreads;
+    public int olapServerInteractiveWeight;
+    public int olapServerBatchWeight;
+    public int olapServerMaintenanceWeight;
+    public int olapServerMaxJobsPerUser;
+    public double olapServerInteractiveCostThreshold;
     public int partitionserverJmxPort;
     public int partitionserverPort;
     public long broadcastRegionMbThreshold;
     public long broadcastRegionRowThreshold;
+    public long controlSideMemoryBudget;
     public long optimizerPlanMaximumTimeout;
     public long optimizerPlanMinimumTimeout;
     public String networkBindAddress;
     public String upgradeForcedFrom;
     public String storageFactoryHome;
+    public String controlSideSpillDirectory;
 
     // PipelineConfiguration
     public int coreWriterThreads;
@@ -121,6 +137,8 @@ public class ConfigurationBuilder {
     public int maxBufferEntries;
     public int maxDependentWrites;
     public int maxIndependentWrites;
+    public boolean adaptiveWriteControl;
+    public String pipelineWireFormat;
     public int maxRetries;
     public int maxWriterThreads;
     public int pipelineKryoPoolSize;
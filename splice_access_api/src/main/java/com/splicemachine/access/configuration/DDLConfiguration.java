@@ -52,12 +52,25 @@ public class DDLConfiguration implements ConfigurationDefault {
     public static final String DDL_DRAINING_MAXIMUM_WAIT = "splice.ddl.drainingWait.maximum";
     private static final long DEFAULT_DDL_DRAINING_MAXIMUM_WAIT = 100000;
 
+    /**
+     * The directory in which CREATE INDEX stages storage files for the new index, so they can be bulk loaded
+     * into it instead of writing each index row through the write pipeline. The directory must be writable
+     * by the OLAP server and readable by the region servers. Unique indexes are always populated through
+     * the write pipeline. The directory can also be set per database through the database property of the
+     * same name, which takes precedence over this setting.
+     *
+     * Defaults to null, which disables bulk loading of new indexes.
+     */
+    public static final String INDEX_BULK_LOAD_DIRECTORY = "splice.ddl.index.bulkLoadDirectory";
+    private static final String DEFAULT_INDEX_BULK_LOAD_DIRECTORY = null;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.maxDdlWait = configurationSource.getLong(MAX_DDL_WAIT, DEFAULT_MAX_DDL_WAIT);
         builder.ddlRefreshInterval = configurationSource.getLong(DDL_REFRESH_INTERVAL, DEFAULT_DDL_REFRESH_INTERVAL);
         builder.ddlDrainingInitialWait = configurationSource.getLong(DDL_DRAINING_INITIAL_WAIT, DEFAULT_DDL_DRAINING_INITIAL_WAIT);
         builder.ddlDrainingMaximumWait = configurationSource.getLong(DDL_DRAINING_MAXIMUM_WAIT, DEFAULT_DDL_DRAINING_MAXIMUM_WAIT);
+        builder.indexBulkLoadDirectory = configurationSource.getString(INDEX_BULK_LOAD_DIRECTORY, DEFAULT_INDEX_BULK_LOAD_DIRECTORY);
     }
 
 }
@@ -48,8 +48,31 @@ public class OperationConfiguration implements ConfigurationDefault {
     public static final String SEQUENCE_BLOCK_SIZE = "splice.sequence.allocationBlockSize";
     private static final int DEFAULT_SEQUENCE_BLOCK_SIZE = 1000;
 
+    /**
+     * The largest block a single RegionServer may reserve for a sequence.
+     *
+     * Block sizes adapt to how quickly a RegionServer consumes a sequence: a block which is used up well within
+     * {@link #SEQUENCE_ALLOCATION_INTERVAL} causes the next block to be twice as large, up to this size, and a
+     * block which lasts much longer causes the next one to shrink back towards {@link #SEQUENCE_BLOCK_SIZE}.
+     * Setting this equal to the block size disables adaptive sizing.
+     *
+     * Defaults to 100000
+     */
+    public static final String SEQUENCE_MAX_BLOCK_SIZE = "splice.sequence.maxAllocationBlockSize";
+    private static final int DEFAULT_SEQUENCE_MAX_BLOCK_SIZE = 100000;
+
+    /**
+     * The time (in milliseconds) a reserved sequence block should last at the observed consumption rate.
+     *
+     * Defaults to 1000 ms
+     */
+    public static final String SEQUENCE_ALLOCATION_INTERVAL = "splice.sequence.allocationInterval";
+    private static final long DEFAULT_SEQUENCE_ALLOCATION_INTERVAL = 1000L;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.sequenceBlockSize = configurationSource.getInt(SEQUENCE_BLOCK_SIZE, DEFAULT_SEQUENCE_BLOCK_SIZE);
+        builder.sequenceMaxBlockSize = configurationSource.getInt(SEQUENCE_MAX_BLOCK_SIZE, DEFAULT_SEQUENCE_MAX_BLOCK_SIZE);
+        builder.sequenceAllocationInterval = configurationSource.getLong(SEQUENCE_ALLOCATION_INTERVAL, DEFAULT_SEQUENCE_ALLOCATION_INTERVAL);
     }
 }
@@ -147,6 +147,31 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String MAX_DEPENDENT_WRITES = "splice.client.write.maxDependentWrites";
     public static final int DEFAULT_MAX_DEPENDENT_WRITES = 40000;
 
+    /**
+     * When enabled, the write pipeline adapts its admission limits to the observed write latency, treating the
+     * configured maximum independent and dependent writes (and the IPC thread count) as upper bounds. When
+     * disabled, those are used as fixed limits and can only be changed through JMX.
+     *
+     * Defaults to false
+     */
+    public static final String ADAPTIVE_WRITE_CONTROL = "splice.client.write.adaptiveControl";
+    public static final boolean DEFAULT_ADAPTIVE_WRITE_CONTROL = false;
+
+    /**
+     * The encoding used to send writes over the pipeline. One of
+     * <ul>
+     *     <li>{@code row}: each row is encoded in turn</li>
+     *     <li>{@code columnar}: row keys, values and types are grouped into separate streams, and row keys
+     *     are prefix-compressed</li>
+     *     <li>{@code columnar_compressed}: the columnar encoding, LZ4 compressed</li>
+     * </ul>
+     * Servers accept all encodings regardless of this setting, so it only affects what is sent.
+     *
+     * Defaults to row
+     */
+    public static final String PIPELINE_WIRE_FORMAT = "splice.client.write.wireFormat";
+    public static final String DEFAULT_PIPELINE_WIRE_FORMAT = "row";
+
     public static final String IPC_THREADS="hbase.regionserver.handler.count";
     public static final int DEFAULT_IPC_THREADS = 200;
 
@@ -158,6 +183,7 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.ipcThreads = configurationSource.getInt(IPC_THREADS, DEFAULT_IPC_THREADS);
         builder.maxIndependentWrites = configurationSource.getInt(MAX_INDEPENDENT_WRITES, DEFAULT_MAX_INDEPENDENT_WRITES);
         builder.maxDependentWrites = configurationSource.getInt(MAX_DEPENDENT_WRITES, DEFAULT_MAX_DEPENDENT_WRITES);
+        builder.adaptiveWriteControl = configurationSource.getBoolean(ADAPTIVE_WRITE_CONTROL, DEFAULT_ADAPTIVE_WRITE_CONTROL);
         builder.coreWriterThreads = configurationSource.getInt(CORE_WRITER_THREADS, DEFAULT_WRITE_THREADS_CORE);
         builder.maxWriterThreads = configurationSource.getInt(MAX_WRITER_THREADS, DEFAULT_MAX_WRITER_THREADS);
         builder.writeMaxFlushesPerRegion = configurationSource.getInt(WRITE_MAX_FLUSHES_PER_REGION, WRITE_DEFAULT_MAX_FLUSHES_PER_REGION);
@@ -170,6 +196,7 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.maxBufferHeapSize = configurationSource.getLong(MAX_BUFFER_HEAP_SIZE, DEFAULT_WRITE_BUFFER_SIZE);
         builder.startupLockWaitPeriod = configurationSource.getLong(STARTUP_LOCK_WAIT_PERIOD, DEFAULT_STARTUP_LOCK_PERIOD);
 
+        builder.pipelineWireFormat = configurationSource.getString(PIPELINE_WIRE_FORMAT, DEFAULT_PIPELINE_WIRE_FORMAT);
         builder.sparkIoCompressionCodec = configurationSource.getString(SPARK_IO_COMPRESSION_CODEC, DEFAULT_SPARK_IO_COMPRESSION_CODEC);
         builder.sparkResultStreamingBatches = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCHES, DEFAULT_SPARK_RESULT_STREAMING_BATCHES);
         builder.sparkResultStreamingBatchSize = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCH_SIZE, DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE);
@@ -63,6 +63,7 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  long ddlDrainingMaximumWait;
     private final  long ddlRefreshInterval;
     private final  long maxDdlWait;
+    private final  String indexBulkLoadDirectory;
 
     // HConfiguration
     private final  int regionServerHandlerCount;
@@ -77,6 +78,8 @@ public final class SConfigurationImpl implements SConfiguration {
 
     // OperationConfiguration
     private final  int sequenceBlockSize;
+    private final  int sequenceMaxBlockSize;
+    private final  long sequenceAllocationInterval;
 
     // PipelineConfiguration
     private final  int coreWriterThreads;
@@ -84,6 +87,8 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int maxBufferEntries;
     private final  int maxDependentWrites;
     private final  int maxIndependentWrites;
+    private final  boolean adaptiveWriteControl;
+    private final  String pipelineWireFormat;
     private final  int maxRetries;
     private final  int maxWriterThreads;
     private final  int pipelineKryoPoolSize;
@@ -106,9 +111,18 @@ public final class SConfigurationImpl implements SConfiguration {
     private final int olapClientTickTime;
     private final int olapServerBindPort;
     private final int olapServerThreads;
+    private final int olapServerInteractiveWeight;
+    private final int olapServerBatchWeight;
+    private final int olapServerMaintenanceWeight;
+    private final int olapServerMaxJobsPerUser;
+    private final double olapServerInteractiveCostThreshold;
     private final  int readResolverQueueSize;
     private final  int readResolverThreads;
+    private final  int scanBatchSize;
+    private final  int transactionCommitGroupSize;
+    private final  boolean compactionPurgeDeletedRows;
     private final  int timestampClientWaitTime;
+    private final  int timestampClientMaxBatchSize;
     private final  int timestampServerBindPort;
     private final  int transactionKeepAliveThreads;
     private final  int transactionLockStripes;
@@ -132,11 +146,13 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int partitionserverPort;
     private final  long broadcastRegionMbThreshold;
     private final  long broadcastRegionRowThreshold;
+    private final  long controlSideMemoryBudget;
     private final  long optimizerPlanMaximumTimeout;
     private final  long optimizerPlanMinimumTimeout;
     private final  String networkBindAddress;
     private final  String upgradeForcedFrom;
     private final String storageFactoryHome;
+    private final String controlSideSpillDirectory;
 
     // StatsConfiguration
     private final  double fallbackNullFraction;
@@ -151,6 +167,8 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  long fallbackRegionRowCount;
     private final  long fallbackRemoteLatencyRatio;
     private final  long partitionCacheExpiration;
+    private final  double staleWriteFraction;
+    private final  long staleMinWrites;
 
     // StorageConfiguration
     private final  int splitBlockSize;
@@ -231,6 +249,10 @@ public final class SConfigurationImpl implements SConfiguration {
     public long getMaxDdlWait() {
         return maxDdlWait;
     }
+    @Override
+    public String getIndexBulkLoadDirectory() {
+        return indexBulkLoadDirectory;
+    }
 
     // HConfiguration
     @Override
@@ -275,6 +297,14 @@ public final class SConfigurationImpl implements SConfiguration {
     public int getSequenceBlockSize() {
         return sequenceBlockSize;
     }
+    @Override
+    public int getSequenceMaxBlockSize() {
+        return sequenceMaxBlockSize;
+    }
+    @Override
+    public long getSequenceAllocationInterval() {
+        return sequenceAllocationInterval;
+    }
 
     // PipelineConfiguration
     @Override
@@ -298,6 +328,14 @@ public final class SConfigurationImpl implements SConfiguration {
         return maxIndependentWrites;
     }
     @Override
+    public boolean adaptiveWriteControl() {
+        return adaptiveWriteControl;
+    }
+    @Override
+    public String getPipelineWireFormat() {
+        return pipelineWireFormat;
+    }
+    @Override
     public int getMaxRetries() {
         return maxRetries;
     }
@@ -382,10 +420,46 @@ public final class SConfigurationImpl implements SConfiguration {
         return olapServerThreads;
     }
     @Override
+    public int getOlapServerInteractiveWeight() {
+        return olapServerInteractiveWeight;
+    }
+    @Override
+    public int getOlapServerBatchWeight() {
+        return olapServerBatchWeight;
+    }
+    @Override
+    public int getOlapServerMaintenanceWeight() {
+        return olapServerMaintenanceWeight;
+    }
+    @Override
+    public int getOlapServerMaxJobsPerUser() {
+        return olapServerMaxJobsPerUser;
+    }
+    @Override
+    public double getOlapServerInteractiveCostThreshold() {
+        return olapServerInteractiveCostThreshold;
+    }
+    @Override
+    public int getScanBatchSize() {
+        return scanBatchSize;
+    }
+    @Override
+    public int getTransactionCommitGroupSize() {
+        return transactionCommitGroupSize;
+    }
+    @Override
+    public boolean getCompactionPurgeDeletedRows() {
+        return compactionPurgeDeletedRows;
+    }
+    @Override
     public int getTimestampClientWaitTime() {
         return timestampClientWaitTime;
     }
     @Override
+    public int getTimestampClientMaxBatchSize() {
+        return timestampClientMaxBatchSize;
+    }
+    @Override
     public int getTimestampServerBindPort() {
         return timestampServerBindPort;
     }
@@ -472,6 +546,14 @@ public final class SConfigurationImpl implements SConfiguration {
         return broadcastRegionRowThreshold;
     }
     @Override
+    public long getControlSideMemoryBudget() {
+        return controlSideMemoryBudget;
+    }
+    @Override
+    public String getControlSideSpillDirectory() {
+        return controlSideSpillDirectory;
+    }
+    @Override
     public long getOptimizerPlanMaximumTimeout() {
         return optimizerPlanMaximumTimeout;
     }
@@ -534,6 +616,14 @@ public final class SConfigurationImpl implements SConfiguration {
         return fallbackRemoteLatencyRatio;
     }
     @Override
+    public double getStaleWriteFraction() {
+        return staleWriteFraction;
+    }
+    @Override
+    public long getStaleMinWrites() {
+        return staleMinWrites;
+    }
+    @Override
     public long getPartitionCacheExpiration() {
         return partitionCacheExpiration;
     }
@@ -575,17 +665,24 @@ public final class SConfigurationImpl implements SConfiguration {
         completedTxnConcurrency = builder.completedTxnConcurrency;
         readResolverQueueSize = builder.readResolverQueueSize;
         readResolverThreads = builder.readResolverThreads;
+        scanBatchSize = builder.scanBatchSize;
+        transactionCommitGroupSize = builder.transactionCommitGroupSize;
+        compactionPurgeDeletedRows = builder.compactionPurgeDeletedRows;
         timestampClientWaitTime = builder.timestampClientWaitTime;
+        timestampClientMaxBatchSize = builder.timestampClientMaxBatchSize;
         timestampServerBindPort = builder.timestampServerBindPort;
         transactionKeepAliveThreads = builder.transactionKeepAliveThreads;
         transactionLockStripes = builder.transactionLockStripes;
         transactionKeepAliveInterval = builder.transactionKeepAliveInterval;
         transactionTimeout = builder.transactionTimeout;
         sequenceBlockSize = builder.sequenceBlockSize;
+        sequenceMaxBlockSize = builder.sequenceMaxBlockSize;
+        sequenceAllocationInterval = builder.sequenceAllocationInterval;
         ddlDrainingInitialWait = builder.ddlDrainingInitialWait;
         ddlDrainingMaximumWait = builder.ddlDrainingMaximumWait;
         ddlRefreshInterval = builder.ddlRefreshInterval;
         maxDdlWait = builder.maxDdlWait;
+        indexBulkLoadDirectory = builder.indexBulkLoadDirectory;
         authenticationNativeCreateCredentialsDatabase = builder.authenticationNativeCreateCredentialsDatabase;
         authentication = builder.authentication;
         authenticationCustomProvider = builder.authenticationCustomProvider;
@@ -606,6 +703,8 @@ public final class SConfigurationImpl implements SConfiguration {
         fallbackRegionRowCount = builder.fallbackRegionRowCount;
         fallbackRemoteLatencyRatio = builder.fallbackRemoteLatencyRatio;
         partitionCacheExpiration = builder.partitionCacheExpiration;
+        staleWriteFraction = builder.staleWriteFraction;
+        staleMinWrites = builder.staleMinWrites;
         splitBlockSize = builder.splitBlockSize;
         regionMaxFileSize = builder.regionMaxFileSize;
         tableSplitSleepInterval = builder.tableSplitSleepInterval;
@@ -642,6 +741,8 @@ public final class SConfigurationImpl implements SConfiguration {
         maxBufferEntries = builder.maxBufferEntries;
         maxDependentWrites = builder.maxDependentWrites;
         maxIndependentWrites = builder.maxIndependentWrites;
+        adaptiveWriteControl = builder.adaptiveWriteControl;
+        pipelineWireFormat = builder.pipelineWireFormat;
         maxRetries = builder.maxRetries;
         maxWriterThreads = builder.maxWriterThreads;
         pipelineKryoPoolSize = builder.pipelineKryoPoolSize;
@@ -657,11 +758,18 @@ public final class SConfigurationImpl implements SConfiguration {
         olapClientTickTime = builder.olapClientTickTime;
         olapServerBindPort = builder.olapServerBindPort;
         olapServerThreads = builder.olapServerThreads;
+        olapServerInteractiveWeight = builder.olapServerInteractiveWeight;
+        olapServerBatchWeight = builder.olapServerBatchWeight;
+        olapServerMaintenanceWeight = builder.olapServerMaintenanceWeight;
+        olapServerMaxJobsPerUser = builder.olapServerMaxJobsPerUser;
+        olapServerInteractiveCostThreshold = builder.olapServerInteractiveCostThreshold;
         sparkResultStreamingBatches = builder.sparkResultStreamingBatches;
         sparkResultStreamingBatchSize = builder.sparkResultStreamingBatchSize;
         compactionReservedSlots = builder.compactionReservedSlots;
         reservedSlotsTimeout = builder.reservedSlotsTimeout;
         storageFactoryHome = builder.storageFactoryHome;
+        controlSideMemoryBudget = builder.controlSideMemoryBudget;
+        controlSideSpillDirectory = builder.controlSideSpillDirectory;
     }
 
     private static final Logger LOG = Logger.getLogger("splice.config");
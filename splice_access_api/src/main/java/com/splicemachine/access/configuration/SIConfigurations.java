@@ -105,6 +105,16 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String TIMESTAMP_CLIENT_WAIT_TIME = "splice.timestamp_server.clientWaitTime";
     private static final int DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME = 60000;
 
+    /**
+     * The maximum number of concurrent timestamp requests the timestamp client will coalesce into
+     * a single round trip to the Timestamp Server. While one request is outstanding, callers queue up
+     * and are sent together (and granted consecutive timestamps) when the response arrives.
+     * Setting this to 1 sends every request individually, as soon as it is made.
+     * Defaults to 1024
+     */
+    public static final String TIMESTAMP_CLIENT_MAX_BATCH_SIZE = "splice.timestamp_server.clientMaxBatchSize";
+    private static final int DEFAULT_TIMESTAMP_CLIENT_MAX_BATCH_SIZE = 1024;
+
     /**
      * The Port to bind the Timestamp Server connection to
      * Defaults to 60012
@@ -143,9 +153,79 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String OLAP_SERVER_THREADS = "splice.olap_server.threads";
     private static final int DEFAULT_OLAP_SERVER_THREADS = 16;
 
+    /**
+     * The relative share of the Olap server's threads given to the interactive, batch and maintenance
+     * queues when jobs are waiting in more than one of them. A queue with no waiting jobs doesn't hold
+     * on to its share.
+     *
+     * Defaults to 8, 2 and 1
+     */
+    public static final String OLAP_SERVER_INTERACTIVE_WEIGHT = "splice.olap_server.interactiveWeight";
+    private static final int DEFAULT_OLAP_SERVER_INTERACTIVE_WEIGHT = 8;
+
+    public static final String OLAP_SERVER_BATCH_WEIGHT = "splice.olap_server.batchWeight";
+    private static final int DEFAULT_OLAP_SERVER_BATCH_WEIGHT = 2;
+
+    public static final String OLAP_SERVER_MAINTENANCE_WEIGHT = "splice.olap_server.maintenanceWeight";
+    private static final int DEFAULT_OLAP_SERVER_MAINTENANCE_WEIGHT = 1;
+
+    /**
+     * The maximum number of Olap jobs a single user can have running at once; further jobs from that user
+     * wait in their queue. Setting this to 0 or less removes the limit.
+     *
+     * Defaults to 8
+     */
+    public static final String OLAP_SERVER_MAX_JOBS_PER_USER = "splice.olap_server.maxJobsPerUser";
+    private static final int DEFAULT_OLAP_SERVER_MAX_JOBS_PER_USER = 8;
+
+    /**
+     * Queries whose estimated cost is above this threshold are scheduled in the batch queue instead of
+     * the interactive queue, so they don't compete with short queries for the interactive share.
+     *
+     * Defaults to 100000000 (100 times the control side cost threshold)
+     */
+    public static final String OLAP_SERVER_INTERACTIVE_COST_THRESHOLD = "splice.olap_server.interactiveCostThreshold";
+    private static final double DEFAULT_OLAP_SERVER_INTERACTIVE_COST_THRESHOLD = 100000000D;
+
     public static final String ACTIVE_TRANSACTION_CACHE_SIZE="splice.txn.activeCacheSize";
     private static final int DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE = 1<<12;
 
+    /**
+     * The number of rows a table scanner reads ahead and resolves transactional visibility for
+     * as a block. The transactions which wrote the block are fetched from the transaction table
+     * in one bulk lookup per transaction region, rather than one lookup per transaction. Setting
+     * this to 1 or less filters each row as it is read.
+     *
+     * Defaults to 128
+     */
+    public static final String SCAN_BATCH_SIZE="splice.txn.scanBatchSize";
+    private static final int DEFAULT_SCAN_BATCH_SIZE = 128;
+
+    /**
+     * The maximum number of concurrent commits against a single transaction region which are
+     * recorded together, in one write and with one block of commit timestamps. While one group
+     * is being written, commits queue up and are written as the next group when it finishes.
+     * Setting this to 1 or less records every commit on its own. A group takes its commit timestamps in a
+     * single timestamp request, which can ask for at most 65535 timestamps, so larger values are reduced to that.
+     *
+     * Defaults to 256
+     */
+    public static final String TRANSACTION_COMMIT_GROUP_SIZE="splice.txn.commitGroupSize";
+    private static final int DEFAULT_TRANSACTION_COMMIT_GROUP_SIZE = 256;
+    /*the most timestamps a single timestamp request can ask for (TimestampClient sends the count as an unsigned short)*/
+    private static final int MAX_TRANSACTION_COMMIT_GROUP_SIZE = 0xFFFF;
+
+    /**
+     * Whether or not compactions physically remove rows which were deleted before the oldest active
+     * transaction began, along with every version they hide. Read-only transactions are not recorded in
+     * the transaction table, so a long-running read-only query which began before the oldest active
+     * writable transaction may lose versions it could still see; only enable this when that is acceptable.
+     *
+     * Defaults to false
+     */
+    public static final String COMPACTION_PURGE_DELETED_ROWS="splice.txn.compactionPurge";
+    private static final boolean DEFAULT_COMPACTION_PURGE_DELETED_ROWS = false;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.completedTxnConcurrency  = configurationSource.getInt(completedTxnConcurrency, DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY);
@@ -155,12 +235,21 @@ public class SIConfigurations implements ConfigurationDefault {
         builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, -1); //TODO -sf- reset to DEFAULT once ReadResolution works
 //        builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, DEFAULT_READ_RESOLVER_QUEUE_SIZE);
         builder.timestampClientWaitTime  = configurationSource.getInt(TIMESTAMP_CLIENT_WAIT_TIME, DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME);
+        builder.timestampClientMaxBatchSize  = configurationSource.getInt(TIMESTAMP_CLIENT_MAX_BATCH_SIZE, DEFAULT_TIMESTAMP_CLIENT_MAX_BATCH_SIZE);
         builder.timestampServerBindPort  = configurationSource.getInt(TIMESTAMP_SERVER_BIND_PORT, DEFAULT_TIMESTAMP_SERVER_BIND_PORT);
         builder.activeTransactionCacheSize  = configurationSource.getInt(ACTIVE_TRANSACTION_CACHE_SIZE, DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE);
+        builder.scanBatchSize  = configurationSource.getInt(SCAN_BATCH_SIZE, DEFAULT_SCAN_BATCH_SIZE);
+        builder.transactionCommitGroupSize  = Math.min(configurationSource.getInt(TRANSACTION_COMMIT_GROUP_SIZE, DEFAULT_TRANSACTION_COMMIT_GROUP_SIZE), MAX_TRANSACTION_COMMIT_GROUP_SIZE);
+        builder.compactionPurgeDeletedRows  = configurationSource.getBoolean(COMPACTION_PURGE_DELETED_ROWS, DEFAULT_COMPACTION_PURGE_DELETED_ROWS);
         builder.olapServerBindPort  = configurationSource.getInt(OLAP_SERVER_BIND_PORT, DEFAULT_OLAP_SERVER_BIND_PORT);
         builder.olapClientWaitTime  = configurationSource.getInt(OLAP_CLIENT_WAIT_TIME, DEFAULT_OLAP_CLIENT_WAIT_TIME);
         builder.olapClientTickTime  = configurationSource.getInt(OLAP_CLIENT_TICK_TIME, DEFAULT_OLAP_CLIENT_TICK_TIME);
         builder.olapServerThreads = configurationSource.getInt(OLAP_SERVER_THREADS, DEFAULT_OLAP_SERVER_THREADS);
+        builder.olapServerInteractiveWeight = configurationSource.getInt(OLAP_SERVER_INTERACTIVE_WEIGHT, DEFAULT_OLAP_SERVER_INTERACTIVE_WEIGHT);
+        builder.olapServerBatchWeight = configurationSource.getInt(OLAP_SERVER_BATCH_WEIGHT, DEFAULT_OLAP_SERVER_BATCH_WEIGHT);
+        builder.olapServerMaintenanceWeight = configurationSource.getInt(OLAP_SERVER_MAINTENANCE_WEIGHT, DEFAULT_OLAP_SERVER_MAINTENANCE_WEIGHT);
+        builder.olapServerMaxJobsPerUser = configurationSource.getInt(OLAP_SERVER_MAX_JOBS_PER_USER, DEFAULT_OLAP_SERVER_MAX_JOBS_PER_USER);
+        builder.olapServerInteractiveCostThreshold = configurationSource.getDouble(OLAP_SERVER_INTERACTIVE_COST_THRESHOLD, DEFAULT_OLAP_SERVER_INTERACTIVE_COST_THRESHOLD);
 
         builder.transactionTimeout = configurationSource.getLong(TRANSACTION_TIMEOUT, DEFAULT_TRANSACTION_TIMEOUT);
         builder.transactionKeepAliveInterval = configurationSource.getLong(TRANSACTION_KEEP_ALIVE_INTERVAL, DEFAULT_TRANSACTION_KEEP_ALIVE_INTERVAL);
@@ -72,6 +72,27 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String CONTROL_SIDE_ROWCOUNT_THRESHOLD = "splice.dataset.control.rowCountThreshold";
     private static final double DEFAULT_CONTROL_SIDE_ROWCOUNT_THRESHOLD = 100000D;
 
+    /**
+     * The maximum number of bytes a single control-side hash join, aggregation or sort
+     * may hold in heap before it begins spilling partitions to local disk.
+     *
+     * Control-side operations are expected to be small, but when the optimizer's estimates
+     * are wrong this budget keeps a single query from exhausting the region server's heap.
+     * Spilled data is kept in {@link #CONTROL_SIDE_SPILL_DIRECTORY}.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String CONTROL_SIDE_MEMORY_BUDGET = "splice.dataset.control.memoryBudget";
+    private static final long DEFAULT_CONTROL_SIDE_MEMORY_BUDGET = 64L*1024*1024;
+
+    /**
+     * The local directory in which control-side operations spill data that exceeds
+     * {@link #CONTROL_SIDE_MEMORY_BUDGET}.
+     *
+     * Defaults to the JVM temporary directory (java.io.tmpdir)
+     */
+    public static final String CONTROL_SIDE_SPILL_DIRECTORY = "splice.dataset.control.spillDirectory";
+
     //debug options
     /**
      * For debugging an operation, this will force the query parser to dump any generated
@@ -235,6 +256,9 @@ public class SQLConfiguration implements ConfigurationDefault {
 //        builder.controlSideCostThreshold = configurationSource.getDouble(CONTROL_SIDE_COST_THRESHOLD, DEFAULT_CONTROL_SIDE_COST_THRESHOLD);
 //        builder.controlSideRowcountThreshold = configurationSource.getDouble(CONTROL_SIDE_ROWCOUNT_THRESHOLD, DEFAULT_CONTROL_SIDE_ROWCOUNT_THRESHOLD);
 
+        builder.controlSideMemoryBudget = configurationSource.getLong(CONTROL_SIDE_MEMORY_BUDGET, DEFAULT_CONTROL_SIDE_MEMORY_BUDGET);
+        builder.controlSideSpillDirectory = configurationSource.getString(CONTROL_SIDE_SPILL_DIRECTORY, System.getProperty("java.io.tmpdir"));
+
         builder.networkBindAddress = configurationSource.getString(NETWORK_BIND_ADDRESS, DEFAULT_NETWORK_BIND_ADDRESS);
     }
 }
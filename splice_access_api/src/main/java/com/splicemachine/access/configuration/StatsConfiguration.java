@@ -125,6 +125,21 @@ public class StatsConfiguration implements ConfigurationDefault {
     public static final String FALLBACK_ROW_WIDTH="splice.statistics.fallbackMinimumRowWidth";
     public static final int DEFAULT_FALLBACK_ROW_WIDTH=170;
 
+    /**
+     * The fraction of a partition's row count which must have been written since statistics were last
+     * collected before that partition is considered stale. Only partitions which are stale are re-collected
+     * when statistics are requested with the staleOnly flag set.
+     */
+    public static final String STALE_WRITE_FRACTION="splice.statistics.staleWriteFraction";
+    public static final double DEFAULT_STALE_WRITE_FRACTION=0.1d;
+
+    /**
+     * The minimum number of writes a partition must see before it is considered stale, regardless of
+     * its row count. This keeps small partitions from being re-collected after every handful of writes.
+     */
+    public static final String STALE_MIN_WRITES="splice.statistics.staleMinWrites";
+    public static final long DEFAULT_STALE_MIN_WRITES=10000l;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         // FIXME: JC - some of these are not referenced anywhere outside. Do we need them?
@@ -142,10 +157,12 @@ public class StatsConfiguration implements ConfigurationDefault {
         builder.partitionCacheExpiration = configurationSource.getLong(PARTITION_CACHE_EXPIRATION, DEFAULT_PARTITION_CACHE_EXPIRATION);
 //        builder.partitionCacheSize = configurationSource.getLong(PARTITION_CACHE_SIZE, DEFAULT_PARTITION_CACHE_SIZE);
         builder.fallbackRegionRowCount = configurationSource.getLong(FALLBACK_REGION_ROW_COUNT, DEFAULT_FALLBACK_REGION_COUNT);
+        builder.staleMinWrites = configurationSource.getLong(STALE_MIN_WRITES, DEFAULT_STALE_MIN_WRITES);
 
         builder.fallbackNullFraction = configurationSource.getDouble(FALLBACK_NULL_FRACTION, DEFAULT_FALLBACK_NULL_FRACTION);
 //        builder.fallbackCardinalityFraction = configurationSource.getDouble(FALLBACK_CARDINALITY_FRACTION, DEFAULT_FALLBACK_CARDINALITY_FRACTION);
 //        builder.fallbackIndexSelectivityFraction = configurationSource.getDouble(FALLBACK_INDEX_SELECTIVITY_FRACTION, DEFAULT_FALLBACK_INDEX_SELECTIVITY_FRACTION);
         builder.optimizerExtraQualifierMultiplier = configurationSource.getDouble(OPTIMIZER_EXTRA_QUALIFIER_MULTIPLIER, DEFAULT_OPTIMIZER_EXTRA_QUALIFIER_MULTIPLIER);
+        builder.staleWriteFraction = configurationSource.getDouble(STALE_WRITE_FRACTION, DEFAULT_STALE_WRITE_FRACTION);
     }
 }
@@ -38,6 +38,12 @@ public interface DataScanner extends AutoCloseable{
 
     long getRowsVisited();
 
+    /**
+     * @return the number of store files which this scanner did not have to read, because summaries of their
+     * contents showed that no row in them could match the scan's predicates.
+     */
+    long getFilesSkipped();
+
     @Override void close() throws IOException;
 
     Partition getPartition();
@@ -26,5 +26,10 @@ public interface PartitionLoad{
 
     int getStorefileIndexSizeMB();
 
+    /**
+     * @return the number of write requests the partition has served since it was opened
+     */
+    long getWriteRequestCount();
+
     String getPartitionName();
 }
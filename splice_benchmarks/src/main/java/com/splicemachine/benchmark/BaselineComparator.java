@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file ({@code -rf json}) against a recorded baseline and exits non-zero if
+ * any benchmark regressed by more than the allowed threshold.
+ *
+ * <pre>
+ *     java -cp benchmarks.jar com.splicemachine.benchmark.BaselineComparator &lt;baseline.json&gt; &lt;results.json&gt; [thresholdPercent]
+ * </pre>
+ *
+ * Benchmarks are matched on their name plus their {@code @Param} values. For time-based modes
+ * (avgt, sample, ss) a larger score is a regression; for throughput a smaller one is. Benchmarks
+ * that appear in only one of the two files are reported but never fail the comparison.
+ */
+public class BaselineComparator{
+    private static final double DEFAULT_THRESHOLD_PERCENT=10d;
+
+    public static void main(String...args) throws IOException{
+        if(args.length<2){
+            System.err.println("Usage: BaselineComparator <baseline.json> <results.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold=args.length>2?Double.parseDouble(args[2]):DEFAULT_THRESHOLD_PERCENT;
+        int regressions=compare(read(args[0]),read(args[1]),threshold,System.out);
+        if(regressions>0){
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n",regressions,threshold);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print how each current result compares to the baseline.
+     *
+     * @return the number of benchmarks which regressed by more than {@code thresholdPercent}
+     */
+    static int compare(Map<String,Result> baseline,Map<String,Result> current,double thresholdPercent,PrintStream out){
+        int regressions=0;
+        for(Map.Entry<String,Result> entry : current.entrySet()){
+            Result now=entry.getValue();
+            Result then=baseline.get(entry.getKey());
+            if(then==null){
+                out.printf("NEW        %-80s %12.3f %s%n",entry.getKey(),now.score,now.unit);
+                continue;
+            }
+            if(!then.unit.equals(now.unit) || !then.mode.equals(now.mode)){
+                out.printf("SKIPPED    %-80s unit or mode changed (%s %s -> %s %s)%n",
+                        entry.getKey(),then.mode,then.unit,now.mode,now.unit);
+                continue;
+            }
+            double change=(now.score-then.score)/then.score*100d;
+            double worse="thrpt".equals(now.mode)?-change:change;
+            String status="OK";
+            if(worse>thresholdPercent){
+                status="REGRESSED";
+                regressions++;
+            }else if(worse< -thresholdPercent)
+                status="IMPROVED";
+            out.printf("%-10s %-80s %12.3f -> %12.3f %s (%+.1f%%)%n",
+                    status,entry.getKey(),then.score,now.score,now.unit,change);
+        }
+        for(String missing : baseline.keySet()){
+            if(!current.containsKey(missing))
+                out.printf("MISSING    %s%n",missing);
+        }
+        return regressions;
+    }
+
+    /**
+     * @return the results of a JMH JSON result file, keyed by benchmark name and {@code @Param} values
+     */
+    static Map<String,Result> read(String file) throws IOException{
+        try(Reader reader=new InputStreamReader(new FileInputStream(file),StandardCharsets.UTF_8)){
+            return read(reader);
+        }
+    }
+
+    static Map<String,Result> read(Reader reader){
+        Map<String,Result> results=new TreeMap<>();
+        JsonArray runs=new JsonParser().parse(reader).getAsJsonArray();
+        for(JsonElement element : runs){
+            JsonObject run=element.getAsJsonObject();
+            StringBuilder key=new StringBuilder(run.get("benchmark").getAsString());
+            JsonElement params=run.get("params");
+            if(params!=null && params.isJsonObject()){
+                //TreeMap so that parameter order is stable across JMH versions
+                Map<String,String> sorted=new TreeMap<>();
+                for(Map.Entry<String,JsonElement> param : params.getAsJsonObject().entrySet()){
+                    sorted.put(param.getKey(),param.getValue().getAsString());
+                }
+                key.append(sorted);
+            }
+            JsonObject metric=run.getAsJsonObject("primaryMetric");
+            results.put(key.toString(),new Result(run.get("mode").getAsString(),
+                    metric.get("score").getAsDouble(),
+                    metric.get("scoreUnit").getAsString()));
+        }
+        return results;
+    }
+
+    static class Result{
+        final String mode;
+        final double score;
+        final String unit;
+
+        Result(String mode,double score,String unit){
+            this.mode=mode;
+            this.score=score;
+            this.unit=unit;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.storage.index.BitIndex;
+import com.splicemachine.storage.index.BitIndexing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the three {@link BitIndex} encodings for a row shape: the cost to encode
+ * the index, and the cost to wrap (decode) an encoded one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class BitIndexBenchmark{
+    private static final int NUM_ROWS=1024;
+
+    public enum IndexType{
+        UNCOMPRESSED{
+            @Override
+            BitIndex create(BitSet set,BitSet scalar,BitSet floats,BitSet doubles){
+                return BitIndexing.uncompressedBitMap(set,scalar,floats,doubles);
+            }
+        },
+        SPARSE{
+            @Override
+            BitIndex create(BitSet set,BitSet scalar,BitSet floats,BitSet doubles){
+                return BitIndexing.sparseBitMap(set,scalar,floats,doubles);
+            }
+        },
+        COMPRESSED{
+            @Override
+            BitIndex create(BitSet set,BitSet scalar,BitSet floats,BitSet doubles){
+                return BitIndexing.compressedBitMap(set,scalar,floats,doubles);
+            }
+        },
+        BEST{
+            @Override
+            BitIndex create(BitSet set,BitSet scalar,BitSet floats,BitSet doubles){
+                return BitIndexing.getBestIndex(set,scalar,floats,doubles);
+            }
+        };
+
+        abstract BitIndex create(BitSet set,BitSet scalar,BitSet floats,BitSet doubles);
+    }
+
+    @Param({"NARROW","WIDE","SPARSE_NULLS"})
+    public RowShape shape;
+
+    @Param({"UNCOMPRESSED","SPARSE","COMPRESSED","BEST"})
+    public IndexType indexType;
+
+    private BitSet[] setFields;
+    private byte[][] encodedIndexes;
+    private BitSet scalarFields;
+    private BitSet floatFields;
+    private BitSet doubleFields;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        Object[][] rows=shape.generateRows(NUM_ROWS,0xC0FFEEl);
+        scalarFields=shape.scalarFields();
+        floatFields=shape.floatFields();
+        doubleFields=shape.doubleFields();
+        setFields=new BitSet[NUM_ROWS];
+        encodedIndexes=new byte[NUM_ROWS][];
+        for(int i=0;i<NUM_ROWS;i++){
+            setFields[i]=shape.notNullFields(rows[i]);
+            encodedIndexes[i]=indexType.create(setFields[i],scalarFields,floatFields,doubleFields).encode();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        return indexType.create(setFields[next()],scalarFields,floatFields,doubleFields).encode();
+    }
+
+    @Benchmark
+    public int decode(){
+        byte[] encoded=encodedIndexes[next()];
+        return BitIndexing.wrap(encoded,0,encoded.length).cardinality();
+    }
+
+    private int next(){
+        int p=position;
+        position=(p+1)&(NUM_ROWS-1);
+        return p;
+    }
+}
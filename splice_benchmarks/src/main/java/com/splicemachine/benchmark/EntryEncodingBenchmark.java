@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.storage.EntryDecoder;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the packed-row path: an {@link EntryEncoder} writing the set columns of a row
+ * behind its bit index, and an {@link EntryDecoder} reading them back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class EntryEncodingBenchmark{
+    private static final int NUM_ROWS=1024;
+
+    @Param({"NARROW","WIDE","SPARSE_NULLS","LONG_STRINGS","DECIMALS"})
+    public RowShape shape;
+
+    private Object[][] rows;
+    private BitSet[] setFields;
+    private byte[][] encodedRows;
+    private BitSet scalarFields;
+    private BitSet floatFields;
+    private BitSet doubleFields;
+    private EntryEncoder encoder;
+    private EntryDecoder decoder;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException{
+        rows=shape.generateRows(NUM_ROWS,0xC0FFEEl);
+        scalarFields=shape.scalarFields();
+        floatFields=shape.floatFields();
+        doubleFields=shape.doubleFields();
+        setFields=new BitSet[NUM_ROWS];
+        for(int i=0;i<NUM_ROWS;i++){
+            setFields[i]=shape.notNullFields(rows[i]);
+        }
+        encoder=EntryEncoder.create(new KryoPool(1),shape.numColumns(),setFields[0],scalarFields,floatFields,doubleFields);
+        decoder=new EntryDecoder();
+        encodedRows=new byte[NUM_ROWS][];
+        for(int i=0;i<NUM_ROWS;i++){
+            encodedRows[i]=encodeRow(i);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException{
+        return encodeRow(next());
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) throws IOException{
+        decoder.set(encodedRows[next()]);
+        MultiFieldDecoder fieldDecoder=decoder.getEntryDecoder();
+        bh.consume(shape.decodeSetFields(decoder.getCurrentIndex(),fieldDecoder));
+    }
+
+    private byte[] encodeRow(int i) throws IOException{
+        encoder.reset(setFields[i],scalarFields,floatFields,doubleFields);
+        shape.encodeSetFields(rows[i],encoder.getEntryEncoder());
+        return encoder.encode();
+    }
+
+    private int next(){
+        int p=position;
+        position=(p+1)&(NUM_ROWS-1);
+        return p;
+    }
+}
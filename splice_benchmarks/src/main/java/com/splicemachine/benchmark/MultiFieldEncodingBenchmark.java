@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the raw {@link MultiFieldEncoder}/{@link MultiFieldDecoder} cost of a row, which is
+ * what every row key and packed row in the engine goes through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class MultiFieldEncodingBenchmark{
+    private static final int NUM_ROWS=1024;
+
+    @Param({"NARROW","WIDE","SPARSE_NULLS","LONG_STRINGS","DECIMALS"})
+    public RowShape shape;
+
+    private Object[][] rows;
+    private byte[][] encodedRows;
+    private MultiFieldEncoder encoder;
+    private MultiFieldDecoder decoder;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        rows=shape.generateRows(NUM_ROWS,0xC0FFEEl);
+        encoder=MultiFieldEncoder.create(shape.numColumns());
+        decoder=MultiFieldDecoder.create();
+        encodedRows=new byte[NUM_ROWS][];
+        for(int i=0;i<NUM_ROWS;i++){
+            encoder.reset();
+            shape.encode(rows[i],encoder);
+            encodedRows[i]=encoder.build();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        Object[] row=rows[next()];
+        encoder.reset();
+        shape.encode(row,encoder);
+        return encoder.build();
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh){
+        decoder.set(encodedRows[next()]);
+        bh.consume(shape.decode(decoder));
+    }
+
+    private int next(){
+        int p=position;
+        position=(p+1)&(NUM_ROWS-1);
+        return p;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.concurrent.SystemClock;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineEncoding;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.MOperationFactory;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PipelineEncoding} for a single region's worth of {@link BulkWrites}, which
+ * is what every write RPC serializes on the client and deserializes on the server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class PipelineEncodingBenchmark{
+
+    @Param({"100","1000"})
+    public int batchSize;
+
+    @Param({"32","512"})
+    public int valueSize;
+
+    @Param({"ROW","COLUMNAR","COLUMNAR_COMPRESSED"})
+    public PipelineEncoding.WireFormat wireFormat;
+
+    private TxnOperationFactory operationFactory;
+    private BulkWrites bulkWrites;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        operationFactory=new SimpleTxnOperationFactory(MExceptionFactory.INSTANCE,new MOperationFactory(SystemClock.INSTANCE));
+        Random random=new Random(0xC0FFEEl);
+        List<KVPair> mutations=new ArrayList<>(batchSize);
+        for(int i=0;i<batchSize;i++){
+            byte[] value=new byte[valueSize];
+            random.nextBytes(value);
+            mutations.add(new KVPair(Bytes.toBytes(random.nextLong()),value));
+        }
+        BulkWrite write=new BulkWrite(mutations,"benchmark_conglomerate");
+        TxnView txn=new ActiveWriteTxn(0x100l,0x100l,Txn.ROOT_TRANSACTION,false,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+        bulkWrites=new BulkWrites(Collections.singletonList(write),txn);
+        bulkWrites.setWireFormat(wireFormat);
+        encoded=PipelineEncoding.encode(operationFactory,bulkWrites);
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        return PipelineEncoding.encode(operationFactory,bulkWrites);
+    }
+
+    @Benchmark
+    public int decode(){
+        BulkWrites decoded=PipelineEncoding.decode(operationFactory,encoded);
+        int size=0;
+        for(BulkWrite bw : decoded.getBulkWrites()){
+            size+=bw.getSize();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.storage.index.BitIndex;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * The row layouts the encoding benchmarks are parameterized over. Each shape describes
+ * the type of every column and what fraction of them are null, and knows how to produce
+ * deterministic rows of that layout (the same seed always yields the same rows, so numbers
+ * recorded on different runs are comparable).
+ *
+ * @see MultiFieldEncodingBenchmark
+ * @see EntryEncodingBenchmark
+ */
+public enum RowShape{
+    /** A handful of fixed-width columns, no nulls: the typical fact-table key/measure row. */
+    NARROW(new ColumnType[]{ColumnType.INT,ColumnType.LONG,ColumnType.DOUBLE,ColumnType.INT},0f),
+    /** Fifty mixed columns, lightly null. */
+    WIDE(repeat(new ColumnType[]{ColumnType.INT,ColumnType.LONG,ColumnType.STRING,ColumnType.DOUBLE,ColumnType.DECIMAL},10),0.1f),
+    /** Fifty mixed columns of which most are null, which favours the sparse/compressed bit indexes. */
+    SPARSE_NULLS(repeat(new ColumnType[]{ColumnType.INT,ColumnType.LONG,ColumnType.STRING,ColumnType.DOUBLE,ColumnType.DECIMAL},10),0.8f),
+    /** A key followed by several long varchar columns. */
+    LONG_STRINGS(new ColumnType[]{ColumnType.LONG,ColumnType.LONG_STRING,ColumnType.LONG_STRING,ColumnType.LONG_STRING},0f),
+    /** A key followed by decimal columns, which take the slowest encoding path. */
+    DECIMALS(new ColumnType[]{ColumnType.LONG,ColumnType.DECIMAL,ColumnType.DECIMAL,ColumnType.DECIMAL,ColumnType.DECIMAL,ColumnType.DECIMAL},0f);
+
+    public enum ColumnType{ INT, LONG, DOUBLE, STRING, LONG_STRING, DECIMAL }
+
+    private final ColumnType[] columns;
+    private final float nullFraction;
+
+    RowShape(ColumnType[] columns,float nullFraction){
+        this.columns=columns;
+        this.nullFraction=nullFraction;
+    }
+
+    public int numColumns(){
+        return columns.length;
+    }
+
+    public ColumnType columnType(int position){
+        return columns[position];
+    }
+
+    /**
+     * @return {@code numRows} rows of this shape. A {@code null} entry in a row is a null column.
+     */
+    public Object[][] generateRows(int numRows,long seed){
+        Random random=new Random(seed);
+        Object[][] rows=new Object[numRows][];
+        for(int i=0;i<numRows;i++){
+            Object[] row=new Object[columns.length];
+            for(int c=0;c<columns.length;c++){
+                if(nullFraction>0f && random.nextFloat()<nullFraction) continue;
+                row[c]=generateValue(columns[c],random);
+            }
+            rows[i]=row;
+        }
+        return rows;
+    }
+
+    public BitSet notNullFields(Object[] row){
+        BitSet set=new BitSet(columns.length);
+        for(int c=0;c<row.length;c++){
+            if(row[c]!=null) set.set(c);
+        }
+        return set;
+    }
+
+    public BitSet scalarFields(){
+        return fieldsOf(ColumnType.INT,ColumnType.LONG);
+    }
+
+    public BitSet floatFields(){
+        return new BitSet(columns.length);
+    }
+
+    public BitSet doubleFields(){
+        return fieldsOf(ColumnType.DOUBLE);
+    }
+
+    /**
+     * Encode every column of {@code row} into {@code encoder}, writing an empty field for each null column.
+     */
+    public void encode(Object[] row,MultiFieldEncoder encoder){
+        for(int c=0;c<columns.length;c++){
+            Object value=row[c];
+            if(value==null){
+                if(columns[c]==ColumnType.DOUBLE) encoder.encodeEmptyDouble();
+                else encoder.encodeEmpty();
+            }else
+                encodeValue(columns[c],value,encoder);
+        }
+    }
+
+    /**
+     * Encode only the non-null columns of {@code row}, which is the layout an
+     * {@link com.splicemachine.storage.EntryEncoder} expects.
+     */
+    public void encodeSetFields(Object[] row,MultiFieldEncoder encoder){
+        for(int c=0;c<columns.length;c++){
+            if(row[c]!=null)
+                encodeValue(columns[c],row[c],encoder);
+        }
+    }
+
+    /**
+     * Decode every column from {@code decoder}, folding the results into a checksum so that the
+     * JIT cannot discard the work.
+     */
+    public long decode(MultiFieldDecoder decoder){
+        long checksum=0l;
+        for(ColumnType column : columns){
+            if(column==ColumnType.DOUBLE){
+                if(decoder.nextIsNullDouble()){
+                    decoder.getNextRawDouble();
+                    continue;
+                }
+            }else if(decoder.nextIsNull()){
+                decoder.skip();
+                continue;
+            }
+            checksum+=decodeValue(column,decoder);
+        }
+        return checksum;
+    }
+
+    /**
+     * Decode the columns present in {@code index} from {@code decoder}, as written by
+     * {@link #encodeSetFields(Object[], MultiFieldEncoder)}.
+     */
+    public long decodeSetFields(BitIndex index,MultiFieldDecoder decoder){
+        long checksum=0l;
+        for(int c=0;c<columns.length;c++){
+            if(index.isSet(c))
+                checksum+=decodeValue(columns[c],decoder);
+        }
+        return checksum;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static void encodeValue(ColumnType type,Object value,MultiFieldEncoder encoder){
+        switch(type){
+            case INT:
+                encoder.encodeNext((Integer)value);
+                break;
+            case LONG:
+                encoder.encodeNext((Long)value);
+                break;
+            case DOUBLE:
+                encoder.encodeNext((Double)value);
+                break;
+            case STRING:
+            case LONG_STRING:
+                encoder.encodeNext((String)value);
+                break;
+            case DECIMAL:
+                encoder.encodeNext((BigDecimal)value);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected column type "+type);
+        }
+    }
+
+    private static long decodeValue(ColumnType type,MultiFieldDecoder decoder){
+        switch(type){
+            case INT:
+                return decoder.decodeNextInt();
+            case LONG:
+                return decoder.decodeNextLong();
+            case DOUBLE:
+                return (long)decoder.decodeNextDouble();
+            case STRING:
+            case LONG_STRING:
+                return decoder.decodeNextString().length();
+            case DECIMAL:
+                return decoder.decodeNextBigDecimal().scale();
+            default:
+                throw new IllegalStateException("Unexpected column type "+type);
+        }
+    }
+
+    private BitSet fieldsOf(ColumnType... types){
+        BitSet set=new BitSet(columns.length);
+        for(int c=0;c<columns.length;c++){
+            for(ColumnType type : types){
+                if(columns[c]==type){
+                    set.set(c);
+                    break;
+                }
+            }
+        }
+        return set;
+    }
+
+    private static Object generateValue(ColumnType type,Random random){
+        switch(type){
+            case INT:
+                return random.nextInt();
+            case LONG:
+                return random.nextLong();
+            case DOUBLE:
+                return random.nextDouble()*1000d;
+            case STRING:
+                return randomString(random,4+random.nextInt(16));
+            case LONG_STRING:
+                return randomString(random,256+random.nextInt(768));
+            case DECIMAL:
+                return BigDecimal.valueOf(random.nextLong(),random.nextInt(10));
+            default:
+                throw new IllegalStateException("Unexpected column type "+type);
+        }
+    }
+
+    private static String randomString(Random random,int length){
+        char[] chars=new char[length];
+        for(int i=0;i<length;i++){
+            chars[i]=(char)('a'+random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private static ColumnType[] repeat(ColumnType[] pattern,int times){
+        ColumnType[] columns=new ColumnType[pattern.length*times];
+        for(int i=0;i<times;i++){
+            System.arraycopy(pattern,0,columns,i*pattern.length,pattern.length);
+        }
+        return columns;
+    }
+}
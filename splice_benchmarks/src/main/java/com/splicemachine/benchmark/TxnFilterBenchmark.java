@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.carrotsearch.hppc.LongObjectOpenHashMap;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.SimpleTxnFilter;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.MCell;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SimpleTxnFilter#filterCell(DataCell)} over rows with several versions each,
+ * which is the per-cell cost every transactional scan pays.
+ *
+ * <p>{@code resolvedFraction} controls how many versions carry a commit timestamp cell (i.e. have
+ * been read-resolved); the remainder have to be looked up through the transaction supplier.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class TxnFilterBenchmark{
+    private static final int NUM_ROWS=1024;
+    private static final int NUM_TXNS=256;
+
+    @Param({"1","4"})
+    public int versionsPerRow;
+
+    @Param({"0.0","0.9","1.0"})
+    public float resolvedFraction;
+
+    private DataCell[][] rows;
+    private SimpleTxnFilter filter;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        Random random=new Random(0xC0FFEEl);
+        final LongObjectOpenHashMap<TxnView> txns=new LongObjectOpenHashMap<>(NUM_TXNS);
+        for(int i=1;i<=NUM_TXNS;i++){
+            long begin=i*0x100l;
+            txns.put(begin,new CommittedTxn(begin,begin+1));
+        }
+        long readTs=(NUM_TXNS+1)*0x100l;
+        TxnView readTxn=new InheritingTxnView(Txn.ROOT_TRANSACTION,readTs,readTs,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+        TxnSupplier supplier=new CompletedTxnCacheSupplier(new MapTxnSupplier(txns),NUM_TXNS,1);
+        filter=new SimpleTxnFilter("benchmark_conglomerate",readTxn,NoOpReadResolver.INSTANCE,supplier);
+
+        byte[] value=new byte[32];
+        rows=new DataCell[NUM_ROWS][];
+        for(int r=0;r<NUM_ROWS;r++){
+            byte[] key=Bytes.toBytes(random.nextLong());
+            DataCell[] cells=new DataCell[versionsPerRow*2];
+            int size=0;
+            //commit timestamp cells sort ahead of the user data in a real row
+            long[] versions=new long[versionsPerRow];
+            for(int v=0;v<versionsPerRow;v++){
+                versions[v]=(1+random.nextInt(NUM_TXNS))*0x100l;
+                if(random.nextFloat()<resolvedFraction){
+                    cells[size++]=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,
+                            SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,
+                            versions[v],Bytes.toBytes(versions[v]+1),CellType.COMMIT_TIMESTAMP);
+                }
+            }
+            for(int v=0;v<versionsPerRow;v++){
+                cells[size++]=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,
+                        versions[v],value,CellType.USER_DATA);
+            }
+            DataCell[] row=new DataCell[size];
+            System.arraycopy(cells,0,row,0,size);
+            rows[r]=row;
+        }
+    }
+
+    @Benchmark
+    public void filterRow(Blackhole bh) throws IOException{
+        DataCell[] row=rows[position];
+        position=(position+1)&(NUM_ROWS-1);
+        filter.nextRow();
+        for(DataCell cell : row){
+            bh.consume(filter.filterCell(cell));
+        }
+    }
+
+    private static class MapTxnSupplier implements TxnSupplier{
+        private final LongObjectOpenHashMap<TxnView> txns;
+
+        MapTxnSupplier(LongObjectOpenHashMap<TxnView> txns){
+            this.txns=txns;
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId) throws IOException{
+            return txns.get(txnId);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+            return txns.get(txnId);
+        }
+
+        @Override
+        public TxnView[] getTransactions(long[] txnIds) throws IOException{
+            TxnView[] result=new TxnView[txnIds.length];
+            for(int i=0;i<txnIds.length;i++){
+                result[i]=txns.get(txnIds[i]);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean transactionCached(long txnId){
+            return false;
+        }
+
+        @Override
+        public void cache(TxnView toCache){
+        }
+
+        @Override
+        public TxnView getTransactionFromCache(long txnId){
+            return null;
+        }
+    }
+}
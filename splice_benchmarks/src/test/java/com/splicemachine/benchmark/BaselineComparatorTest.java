@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.benchmark;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Compares the JMH result files in the test resources. Against the baseline, the results hold one
+ * benchmark within the threshold, two regressions (one of them in throughput), an improvement, a
+ * changed unit, a new benchmark and a missing one.
+ */
+public class BaselineComparatorTest{
+    private static final String BITINDEX_ENCODE="com.splicemachine.benchmark.BitIndexBenchmark.encode{indexType=SPARSE, shape=NARROW}";
+
+    @Test
+    public void parameterOrderDoesNotMatter() throws Exception{
+        Map<String,BaselineComparator.Result> baseline=read("baseline.json");
+        Map<String,BaselineComparator.Result> results=read("results.json");
+        Assert.assertTrue(baseline.containsKey(BITINDEX_ENCODE));
+        Assert.assertTrue(results.containsKey(BITINDEX_ENCODE));
+        Assert.assertEquals(105d,results.get(BITINDEX_ENCODE).score,0d);
+    }
+
+    @Test
+    public void regressionsBeyondTheThresholdAreCounted() throws Exception{
+        String report=compare(10d,2);
+        assertLine(report,"OK","BitIndexBenchmark.encode");
+        assertLine(report,"REGRESSED","MultiFieldEncodingBenchmark.encode");
+        assertLine(report,"REGRESSED","PipelineEncodingBenchmark.encode");
+        assertLine(report,"IMPROVED","EntryEncodingBenchmark.encode");
+        assertLine(report,"SKIPPED","EntryEncodingBenchmark.decode");
+        assertLine(report,"NEW","BitIndexBenchmark.decode");
+        assertLine(report,"MISSING","MultiFieldEncodingBenchmark.decode");
+    }
+
+    @Test
+    public void lowerThroughputIsARegression() throws Exception{
+        // the time-based regression is 25% and the throughput one 20%
+        String report=compare(22d,1);
+        assertLine(report,"REGRESSED","MultiFieldEncodingBenchmark.encode");
+        assertLine(report,"OK","PipelineEncodingBenchmark.encode");
+    }
+
+    @Test
+    public void nothingRegressesWithinALargeThreshold() throws Exception{
+        compare(30d,0);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Map<String,BaselineComparator.Result> read(String resource) throws Exception{
+        try(Reader reader=new InputStreamReader(BaselineComparatorTest.class.getResourceAsStream(resource),StandardCharsets.UTF_8)){
+            return BaselineComparator.read(reader);
+        }
+    }
+
+    private static String compare(double threshold,int expectedRegressions) throws Exception{
+        ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+        PrintStream out=new PrintStream(bytes,true,"UTF-8");
+        int regressions=BaselineComparator.compare(read("baseline.json"),read("results.json"),threshold,out);
+        String report=new String(bytes.toByteArray(),StandardCharsets.UTF_8);
+        Assert.assertEquals(report,expectedRegressions,regressions);
+        return report;
+    }
+
+    private static void assertLine(String report,String status,String benchmark){
+        for(String line : report.split("\n")){
+            if(line.contains("."+benchmark+"{")){
+                Assert.assertTrue("Expected "+status+" but was: "+line,line.startsWith(status+" "));
+                return;
+            }
+        }
+        Assert.fail("No line for "+benchmark+" in:\n"+report);
+    }
+}
@@ -64,6 +64,10 @@ public class AndPredicate implements Predicate{
         return ands != null ? ands.hashCode() : 0;
     }
 
+    ObjectArrayList<Predicate> getAnds() {
+        return ands;
+    }
+
     @Override
     public boolean applies(int column) {
     	Object[] buffer = ands.buffer;
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.storage;
+
+import com.splicemachine.primitives.Bytes;
+
+/**
+ * Base class for predicate trees which have been compiled into bytecode by the {@link PredicateCompiler}.
+ * <p/>
+ * A generated subclass implements {@link #match(int, byte[], int, int)} and
+ * {@link #matchAfter(int, byte[], int, int)} as a single chain of column tests and short-circuiting
+ * comparisons, calling the static helpers in this class directly. The comparison values are held
+ * in {@link #constants}, so that one generated class can be shared by every scan which has a predicate
+ * tree of the same shape.
+ * <p/>
+ * The helpers are public because the generated classes are defined in their own class loader, and therefore
+ * do not share this package at runtime.
+ */
+public abstract class CompiledPredicate{
+    protected byte[][] constants;
+
+    /**
+     * Equivalent to applying each predicate which {@link Predicate#applies(int)} to {@code column}
+     * and requiring all of them to match.
+     */
+    public abstract boolean match(int column,byte[] data,int offset,int length);
+
+    /**
+     * Equivalent to {@link #match(int, byte[], int, int)}, but restricted to those predicates
+     * which must be checked again once the row is fully composed.
+     */
+    public abstract boolean matchAfter(int column,byte[] data,int offset,int length);
+
+    void setConstants(byte[][] constants){
+        this.constants=constants;
+    }
+
+    /* ****************************************************************************************************************/
+    /*helpers invoked from generated code*/
+
+    public static boolean isColumn(int column,int expectedColumn){
+        return column==expectedColumn;
+    }
+
+    public static boolean isNull(byte[] data,int length){
+        return data==null || length==0;
+    }
+
+    public static boolean isNotNull(byte[] data,int length){
+        return data!=null && length>0;
+    }
+
+    public static boolean hasLength(byte[] data,int length,int expectedLength){
+        return data!=null && length==expectedLength;
+    }
+
+    public static boolean lacksLength(byte[] data,int length,int expectedLength){
+        return data==null || length!=expectedLength;
+    }
+
+    public static boolean dataLess(byte[] value,byte[] data,int offset,int length){
+        return Bytes.BASE_COMPARATOR.compare(value,0,value.length,data,offset,length)>0;
+    }
+
+    public static boolean dataLessOrEqual(byte[] value,byte[] data,int offset,int length){
+        return Bytes.BASE_COMPARATOR.compare(value,0,value.length,data,offset,length)>=0;
+    }
+
+    public static boolean dataEqual(byte[] value,byte[] data,int offset,int length){
+        //encoded values of different lengths can never be equal, so avoid the comparison entirely
+        return value.length==length && Bytes.BASE_COMPARATOR.compare(value,0,length,data,offset,length)==0;
+    }
+
+    public static boolean dataNotEqual(byte[] value,byte[] data,int offset,int length){
+        return !dataEqual(value,data,offset,length);
+    }
+
+    public static boolean dataGreaterOrEqual(byte[] value,byte[] data,int offset,int length){
+        return Bytes.BASE_COMPARATOR.compare(value,0,value.length,data,offset,length)<=0;
+    }
+
+    public static boolean dataGreater(byte[] value,byte[] data,int offset,int length){
+        return Bytes.BASE_COMPARATOR.compare(value,0,value.length,data,offset,length)<0;
+    }
+
+    /**
+     * @return the length of {@code data} once trailing encoded whitespace has been ignored, in the same manner
+     * as {@link CharValuePredicate}.
+     */
+    public static int charLength(byte[] value,byte[] data,int offset,int length){
+        if(length<=value.length) return length;
+        int pos=offset+length-1;
+        while(pos>=offset && (pos-offset>=value.length) && data[pos]==34){ //34 is the encoded value of a whitespace terminator
+            pos--;
+        }
+        return pos-offset+1;
+    }
+}
@@ -33,6 +33,9 @@ public class EntryPredicateFilter {
     private ObjectArrayList<Predicate> valuePredicates;
     private boolean returnIndex;
     private BitSet predicateColumns;
+    /*the predicates compiled into bytecode, or null if they are interpreted*/
+    private CompiledPredicate compiledPredicates;
+    private boolean compilationAttempted;
 
 		private long rowsFiltered = 0l;
 
@@ -95,11 +98,19 @@ public class EntryPredicateFilter {
 						int bufferSize = valuePredicates.size();
 						if(bufferSize>0){
 								int predicatePosition = index.getPredicatePosition(encodedPos);
-								for (int i =0; i<bufferSize; i++) {
-										if(((Predicate)buffer[i]).applies(predicatePosition) && !((Predicate)buffer[i]).match(predicatePosition,array, offset,limit)){
+								CompiledPredicate compiled = compiledPredicates();
+								if(compiled!=null){
+										if(!compiled.match(predicatePosition,array,offset,limit)){
 												rowsFiltered++;
 												return false;
 										}
+								}else{
+										for (int i =0; i<bufferSize; i++) {
+												if(((Predicate)buffer[i]).applies(predicatePosition) && !((Predicate)buffer[i]).match(predicatePosition,array, offset,limit)){
+														rowsFiltered++;
+														return false;
+												}
+										}
 								}
 						}
 						accumulate(index, encodedPos, accumulator, array, offset, limit);
@@ -127,6 +138,14 @@ public class EntryPredicateFilter {
     public boolean checkPredicates(ByteSlice buffer,int position){
         Object[] vpBuffer = valuePredicates.buffer;
         int ibuffer = valuePredicates.size();
+        if(ibuffer<=0) return true;
+        CompiledPredicate compiled = compiledPredicates();
+        if(compiled!=null){
+            if(buffer!=null)
+                return compiled.matchAfter(position,buffer.array(),buffer.offset(),buffer.length());
+            else
+                return compiled.matchAfter(position,null,0,0);
+        }
         for (int i =0; i<ibuffer; i++) {
             Predicate predicate = (Predicate) vpBuffer[i];
             if(!predicate.applies(position))
@@ -206,6 +225,20 @@ public class EntryPredicateFilter {
 
     public void setValuePredicates(ObjectArrayList<Predicate> valuePredicates) {
         this.valuePredicates = valuePredicates;
+        this.compiledPredicates = null;
+        this.compilationAttempted = false;
+    }
+
+    private CompiledPredicate compiledPredicates(){
+        if(!compilationAttempted){
+            /*
+             * Compile on first use rather than in the constructor, so that filters which are only
+             * serialized (e.g. on the client side of a scan) never pay for code generation.
+             */
+            compiledPredicates = PredicateCompiler.compile(valuePredicates);
+            compilationAttempted = true;
+        }
+        return compiledPredicates;
     }
 
     private void skipField(MultiFieldDecoder decoder, int position, Indexed index) {
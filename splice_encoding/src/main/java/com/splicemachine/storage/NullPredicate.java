@@ -71,6 +71,16 @@ public class NullPredicate implements Predicate{
         return this.column==column;
     }
 
+    int getColumn() { return column; }
+
+    boolean filtersIfMissing() { return filterIfMissing; }
+
+    boolean isNullNumericalComparison() { return isNullNumericalComparison; }
+
+    boolean isDoubleColumn() { return isDoubleColumn; }
+
+    boolean isFloatColumn() { return isFloatColumn; }
+
     @Override
     public boolean match(int column,byte[] data, int offset, int length) {
         if(this.column!=column) return true; //not the right column, don't worry about it
@@ -0,0 +1,464 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.storage;
+
+import com.carrotsearch.hppc.ObjectArrayList;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.Module;
+import com.splicemachine.db.iapi.services.compiler.ClassBuilder;
+import com.splicemachine.db.iapi.services.compiler.JavaFactory;
+import com.splicemachine.db.iapi.services.compiler.MethodBuilder;
+import com.splicemachine.db.iapi.services.classfile.VMOpcode;
+import com.splicemachine.db.iapi.services.monitor.Monitor;
+import com.splicemachine.db.iapi.util.ByteArray;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiles the predicates of an {@link EntryPredicateFilter} into a generated {@link CompiledPredicate},
+ * using the same bytecode services which generate activations.
+ * <p/>
+ * The predicate tree is first flattened into a list of per-column checks. Each comparison is specialized
+ * at compile time: the sort order and comparison operator select a single comparison helper, and the
+ * outcome for a null column is folded into a constant. The checks are then emitted as one method which
+ * dispatches on the column and short-circuits on the first failing check, so the scan pays for one call per
+ * column instead of an {@code applies}/{@code match} pair per predicate.
+ * <p/>
+ * Generated classes only depend on the shape of the predicate tree, not the values being compared, so
+ * they are cached and shared between scans. When the predicates cannot be compiled (e.g. they contain
+ * an {@link OrPredicate}, which carries state across columns), or when the bytecode services are not
+ * available in this JVM, {@link #compile(ObjectArrayList)} returns {@code null} and the predicates
+ * are interpreted as before.
+ */
+public class PredicateCompiler{
+    private static final Logger LOG=Logger.getLogger(PredicateCompiler.class);
+    private static final String GENERATED_PACKAGE="com.splicemachine.storage.generated.";
+    private static final String BASE_CLASS=CompiledPredicate.class.getName();
+    private static final String[] MATCH_PARAMETERS=new String[]{"int","byte[]","int","int"};
+    /*
+     * Limits the number of generated classes that we keep alive. Beyond this, new shapes are
+     * interpreted rather than compiled.
+     */
+    private static final int MAX_CACHED_SHAPES=1024;
+
+    private static final ConcurrentMap<String,Class<? extends CompiledPredicate>> compiledShapes=new ConcurrentHashMap<>();
+    private static final AtomicLong classCounter=new AtomicLong(0l);
+    private static final GeneratedPredicateLoader loader=new GeneratedPredicateLoader(CompiledPredicate.class.getClassLoader());
+
+    private PredicateCompiler(){}
+
+    /**
+     * @param predicates the predicates to compile
+     * @return a compiled form of {@code predicates}, or {@code null} if the predicates should be interpreted
+     */
+    public static CompiledPredicate compile(ObjectArrayList<Predicate> predicates){
+        if(predicates==null || predicates.size()<=0) return null;
+
+        List<Check> checks=new ArrayList<>(predicates.size());
+        List<byte[]> constants=new ArrayList<>();
+        Object[] buffer=predicates.buffer;
+        int size=predicates.size();
+        for(int i=0;i<size;i++){
+            if(!flatten((Predicate)buffer[i],false,checks,constants))
+                return null;
+        }
+
+        String shape=shapeOf(checks);
+        Class<? extends CompiledPredicate> compiledClass=compiledShapes.get(shape);
+        if(compiledClass==null){
+            if(compiledShapes.size()>=MAX_CACHED_SHAPES) return null;
+            JavaFactory javaFactory=(JavaFactory)Monitor.getSystemModule(Module.JavaFactory);
+            if(javaFactory==null) return null; //the engine isn't running in this JVM, so interpret instead
+            try{
+                compiledClass=generate(javaFactory,checks);
+            }catch(StandardException|LinkageError e){
+                SpliceLogUtils.warn(LOG,"Unable to compile predicates "+predicates+", falling back to interpretation",e);
+                return null;
+            }
+            Class<? extends CompiledPredicate> other=compiledShapes.putIfAbsent(shape,compiledClass);
+            if(other!=null)
+                compiledClass=other;
+        }
+
+        try{
+            CompiledPredicate compiled=compiledClass.newInstance();
+            compiled.setConstants(constants.toArray(new byte[constants.size()][]));
+            return compiled;
+        }catch(InstantiationException|IllegalAccessException e){
+            SpliceLogUtils.warn(LOG,"Unable to instantiate compiled predicates "+predicates+", falling back to interpretation",e);
+            return null;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*flattening*/
+
+    /**
+     * Adds the checks for {@code predicate} to {@code checks}. The top level of the predicate list
+     * is an implicit AND, so nested {@link AndPredicate}s are flattened into it.
+     *
+     * @param forceAfter true if the enclosing predicate is checked again after the row is composed, in
+     *                   which case all of its children must be as well.
+     * @return false if the predicate cannot be compiled.
+     */
+    static boolean flatten(Predicate predicate,boolean forceAfter,List<Check> checks,List<byte[]> constants){
+        boolean after=forceAfter || predicate.checkAfter();
+        if(predicate instanceof AndPredicate){
+            ObjectArrayList<Predicate> ands=((AndPredicate)predicate).getAnds();
+            Object[] buffer=ands.buffer;
+            int size=ands.size();
+            for(int i=0;i<size;i++){
+                if(!flatten((Predicate)buffer[i],after,checks,constants))
+                    return false;
+            }
+            return true;
+        }else if(predicate instanceof ValuePredicate){
+            ValuePredicate vp=(ValuePredicate)predicate;
+            byte[] compareValue=vp.getCompareValue();
+            if(compareValue==null) return false;
+            ComparisonOp op=ComparisonOp.forPredicate(vp.getCompareOp(),vp.isDescending());
+            if(op==null){
+                //NO_OP matches anything, except that null entries may still be removed
+                if(compareValue.length>0 && vp.removesNullEntries())
+                    checks.add(new Check(vp.getColumn(),after,Kind.NOT_NULL,null,-1,false,0));
+                return true;
+            }
+
+            Kind kind=predicate instanceof CharValuePredicate?Kind.CHAR_VALUE:Kind.VALUE;
+            boolean nullResult;
+            if(compareValue.length<=0) nullResult=true; //null matches null
+            else if(vp.removesNullEntries()) nullResult=false;
+            else nullResult=op.apply(compareValue,new byte[]{},0,0);
+
+            checks.add(new Check(vp.getColumn(),after,kind,op,constants.size(),nullResult,0));
+            constants.add(compareValue);
+            return true;
+        }else if(predicate instanceof NullPredicate){
+            NullPredicate np=(NullPredicate)predicate;
+            int expectedLength=np.isDoubleColumn()?8:np.isFloatColumn()?4:0;
+            Kind kind;
+            if(np.isNullNumericalComparison())
+                kind=Kind.NEVER;
+            else if(np.filtersIfMissing())
+                kind=expectedLength>0?Kind.HAS_LENGTH:Kind.NOT_NULL;
+            else
+                kind=expectedLength>0?Kind.LACKS_LENGTH:Kind.NULL;
+            checks.add(new Check(np.getColumn(),after,kind,null,-1,false,expectedLength));
+            return true;
+        }
+        return false;
+    }
+
+    private static String shapeOf(List<Check> checks){
+        StringBuilder sb=new StringBuilder();
+        for(Check check:checks){
+            sb.append(check.column).append(':')
+                    .append(check.after?'A':'-')
+                    .append(check.kind.ordinal()).append(',')
+                    .append(check.op==null?-1:check.op.ordinal()).append(',')
+                    .append(check.constant).append(',')
+                    .append(check.nullResult?'T':'F').append(',')
+                    .append(check.expectedLength).append(';');
+        }
+        return sb.toString();
+    }
+
+    /* ****************************************************************************************************************/
+    /*code generation*/
+
+    private static Class<? extends CompiledPredicate> generate(JavaFactory javaFactory,List<Check> checks) throws StandardException{
+        String className="CompiledPredicate"+classCounter.incrementAndGet();
+        ClassBuilder cb=javaFactory.newClassBuilder(null,GENERATED_PACKAGE,Modifier.PUBLIC|Modifier.FINAL,className,BASE_CLASS);
+        MethodBuilder constructor=cb.newConstructorBuilder(Modifier.PUBLIC);
+        constructor.callSuper();
+        constructor.methodReturn();
+        constructor.complete();
+
+        generateMatch(cb,"match",checks,false);
+        generateMatch(cb,"matchAfter",checks,true);
+
+        ByteArray bytecode=cb.getClassBytecode();
+        return loader.define(cb.getFullName(),bytecode).asSubclass(CompiledPredicate.class);
+    }
+
+    /*
+     * Generates
+     *
+     * public final boolean <methodName>(int column,byte[] data,int offset,int length){
+     *     return isColumn(column,c0)? (check00 && check01 && ...)
+     *          : isColumn(column,c1)? (check10 && ...)
+     *          ...
+     *          : true;
+     * }
+     */
+    private static void generateMatch(ClassBuilder cb,String methodName,List<Check> checks,boolean afterOnly){
+        Map<Integer,List<Check>> columnChecks=new LinkedHashMap<>();
+        for(Check check:checks){
+            if(afterOnly && !check.after) continue;
+            List<Check> forColumn=columnChecks.get(check.column);
+            if(forColumn==null){
+                forColumn=new ArrayList<>();
+                columnChecks.put(check.column,forColumn);
+            }
+            forColumn.add(check);
+        }
+
+        MethodBuilder mb=cb.newMethodBuilder(Modifier.PUBLIC|Modifier.FINAL,"boolean",methodName,MATCH_PARAMETERS);
+        pushColumnDispatch(mb,new ArrayList<>(columnChecks.entrySet()),0);
+        mb.methodReturn();
+        mb.complete();
+    }
+
+    private static void pushColumnDispatch(MethodBuilder mb,List<Map.Entry<Integer,List<Check>>> columns,int position){
+        if(position>=columns.size()){
+            mb.push(true); //no predicates on this column
+            return;
+        }
+        Map.Entry<Integer,List<Check>> column=columns.get(position);
+        mb.getParameter(0);
+        mb.push(column.getKey().intValue());
+        callHelper(mb,"isColumn","boolean",2);
+        mb.conditionalIf();
+        pushConjunction(mb,column.getValue(),0);
+        mb.startElseCode();
+        pushColumnDispatch(mb,columns,position+1);
+        mb.completeConditional();
+    }
+
+    private static void pushConjunction(MethodBuilder mb,List<Check> checks,int position){
+        pushCheck(mb,checks.get(position));
+        if(position==checks.size()-1) return;
+
+        mb.conditionalIf();
+        pushConjunction(mb,checks,position+1);
+        mb.startElseCode();
+        mb.push(false);
+        mb.completeConditional();
+    }
+
+    private static void pushCheck(MethodBuilder mb,Check check){
+        switch(check.kind){
+            case NEVER:
+                mb.push(false);
+                return;
+            case NULL:
+                pushDataAndLength(mb);
+                callHelper(mb,"isNull","boolean",2);
+                return;
+            case NOT_NULL:
+                pushDataAndLength(mb);
+                callHelper(mb,"isNotNull","boolean",2);
+                return;
+            case HAS_LENGTH:
+                pushDataAndLength(mb);
+                mb.push(check.expectedLength);
+                callHelper(mb,"hasLength","boolean",3);
+                return;
+            case LACKS_LENGTH:
+                pushDataAndLength(mb);
+                mb.push(check.expectedLength);
+                callHelper(mb,"lacksLength","boolean",3);
+                return;
+            case VALUE:
+            case CHAR_VALUE:
+                pushDataAndLength(mb);
+                callHelper(mb,"isNull","boolean",2);
+                mb.conditionalIf();
+                mb.push(check.nullResult);
+                mb.startElseCode();
+                pushConstant(mb,check.constant);
+                mb.getParameter(1);
+                mb.getParameter(2);
+                if(check.kind==Kind.CHAR_VALUE){
+                    pushConstant(mb,check.constant);
+                    mb.getParameter(1);
+                    mb.getParameter(2);
+                    mb.getParameter(3);
+                    callHelper(mb,"charLength","int",4);
+                }else
+                    mb.getParameter(3);
+                callHelper(mb,check.op.helperName,"boolean",4);
+                mb.completeConditional();
+                return;
+            default:
+                throw new IllegalStateException("Unexpected check kind "+check.kind);
+        }
+    }
+
+    private static void pushDataAndLength(MethodBuilder mb){
+        mb.getParameter(1);
+        mb.getParameter(3);
+    }
+
+    private static void pushConstant(MethodBuilder mb,int constant){
+        mb.pushThis();
+        mb.getField(BASE_CLASS,"constants","byte[][]");
+        mb.getArrayElement(constant);
+    }
+
+    private static void callHelper(MethodBuilder mb,String helper,String returnType,int numArgs){
+        mb.callMethod(VMOpcode.INVOKESTATIC,BASE_CLASS,helper,returnType,numArgs);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+
+    enum Kind{
+        NEVER,
+        NULL,
+        NOT_NULL,
+        HAS_LENGTH,
+        LACKS_LENGTH,
+        VALUE,
+        CHAR_VALUE
+    }
+
+    /**
+     * The comparison performed against the column data, once the sort order of the column
+     * has been taken into account.
+     */
+    enum ComparisonOp{
+        DATA_LESS("dataLess"){
+            @Override boolean apply(byte[] value,byte[] data,int offset,int length){
+                return CompiledPredicate.dataLess(value,data,offset,length);
+            }
+        },
+        DATA_LESS_OR_EQUAL("dataLessOrEqual"){
+            @Override boolean apply(byte[] value,byte[] data,int offset,int length){
+                return CompiledPredicate.dataLessOrEqual(value,data,offset,length);
+            }
+        },
+        DATA_EQUAL("dataEqual"){
+            @Override boolean apply(byte[] value,byte[] data,int offset,int length){
+                return CompiledPredicate.dataEqual(value,data,offset,length);
+            }
+        },
+        DATA_NOT_EQUAL("dataNotEqual"){
+            @Override boolean apply(byte[] value,byte[] data,int offset,int length){
+                return CompiledPredicate.dataNotEqual(value,data,offset,length);
+            }
+        },
+        DATA_GREATER_OR_EQUAL("dataGreaterOrEqual"){
+            @Override boolean apply(byte[] value,byte[] data,int offset,int length){
+                return CompiledPredicate.dataGreaterOrEqual(value,data,offset,length);
+            }
+        },
+        DATA_GREATER("dataGreater"){
+            @Override boolean apply(byte[] value,byte[] data,int offset,int length){
+                return CompiledPredicate.dataGreater(value,data,offset,length);
+            }
+        };
+
+        final String helperName;
+
+        ComparisonOp(String helperName){
+            this.helperName=helperName;
+        }
+
+        abstract boolean apply(byte[] value,byte[] data,int offset,int length);
+
+        /**
+         * @return {@code true} if some encoded value between {@code min} and {@code max} (inclusive)
+         * could satisfy this comparison against {@code value}.
+         */
+        boolean rangeMayMatch(byte[] min,byte[] max,byte[] value){
+            switch(this){
+                case DATA_LESS:
+                    return compare(min,value)<0;
+                case DATA_LESS_OR_EQUAL:
+                    return compare(min,value)<=0;
+                case DATA_EQUAL:
+                    return compare(min,value)<=0 && compare(max,value)>=0;
+                case DATA_NOT_EQUAL:
+                    return compare(min,value)!=0 || compare(max,value)!=0;
+                case DATA_GREATER_OR_EQUAL:
+                    return compare(max,value)>=0;
+                case DATA_GREATER:
+                    return compare(max,value)>0;
+                default:
+                    return true;
+            }
+        }
+
+        private static int compare(byte[] data,byte[] value){
+            return Bytes.BASE_COMPARATOR.compare(data,0,data.length,value,0,value.length);
+        }
+
+        /**
+         * @return the comparison equivalent to {@link ValuePredicate} with the specified operator and sort order,
+         * or {@code null} if the operator always matches.
+         */
+        static ComparisonOp forPredicate(CompareOp compareOp,boolean desc){
+            switch(compareOp){
+                case LESS:
+                    return desc?DATA_GREATER:DATA_LESS;
+                case LESS_OR_EQUAL:
+                    return desc?DATA_GREATER_OR_EQUAL:DATA_LESS_OR_EQUAL;
+                case EQUAL:
+                    return DATA_EQUAL;
+                case NOT_EQUAL:
+                    return DATA_NOT_EQUAL;
+                case GREATER_OR_EQUAL:
+                    return desc?DATA_LESS_OR_EQUAL:DATA_GREATER_OR_EQUAL;
+                case GREATER:
+                    return desc?DATA_LESS:DATA_GREATER;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    static final class Check{
+        final int column;
+        final boolean after;
+        final Kind kind;
+        final ComparisonOp op;
+        final int constant;
+        final boolean nullResult;
+        final int expectedLength;
+
+        Check(int column,boolean after,Kind kind,ComparisonOp op,int constant,boolean nullResult,int expectedLength){
+            this.column=column;
+            this.after=after;
+            this.kind=kind;
+            this.op=op;
+            this.constant=constant;
+            this.nullResult=nullResult;
+            this.expectedLength=expectedLength;
+        }
+    }
+
+    private static final class GeneratedPredicateLoader extends ClassLoader{
+        GeneratedPredicateLoader(ClassLoader parent){
+            super(parent);
+        }
+
+        Class<?> define(String name,ByteArray bytecode){
+            return defineClass(name,bytecode.getArray(),bytecode.getOffset(),bytecode.getLength());
+        }
+    }
+}
@@ -53,6 +53,16 @@ public class ValuePredicate implements Predicate{
         return this.column==column;
     }
 
+    int getColumn(){ return column; }
+
+    CompareOp getCompareOp(){ return compareOp; }
+
+    byte[] getCompareValue(){ return compareValue; }
+
+    boolean isDescending(){ return desc; }
+
+    boolean removesNullEntries(){ return removeNullEntries; }
+
     @Override
     public boolean equals(Object o){
         if(this==o) return true;
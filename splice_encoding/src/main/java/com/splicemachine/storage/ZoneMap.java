@@ -0,0 +1,228 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.carrotsearch.hppc.ObjectArrayList;
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.storage.index.BitIndex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Summary of the packed rows written to a single store file: for each column, the smallest and largest
+ * encoded value, and the number of rows in which the column was non-null.
+ * <p/>
+ * Values are compared in encoded (byte) order, which is the order used by {@link ValuePredicate}, so
+ * the summary can decide whether a set of pushed-down predicates could match <em>any</em> row in the file
+ * without reading it. The summary is conservative: {@link #mayMatch(ObjectArrayList)} only returns
+ * {@code false} when no value in the file can satisfy some predicate of the conjunction.
+ * <p/>
+ * A ZoneMap is built by a single thread (during a flush or compaction), and must not be modified once it
+ * has been published to readers.
+ * <p/>
+ * The columns of a row may be spread over several files (through partial updates, versions and deletes), so
+ * the maps of the individual files of a region must never be checked separately: a conjunction which each
+ * file excludes on a different column may still match the merged row. Check the {@link #union(Collection)}
+ * of the maps instead.
+ */
+public class ZoneMap{
+    private static final byte[][] NO_VALUES=new byte[0][];
+    private static final long[] NO_COUNTS=new long[0];
+
+    private final EntryDecoder entryDecoder=new EntryDecoder();
+    private byte[][] minValues=NO_VALUES;
+    private byte[][] maxValues=NO_VALUES;
+    private long[] nonNullCounts=NO_COUNTS;
+    private long rowCount;
+    private boolean valid=true;
+
+    /**
+     * Add a packed row to the summary.
+     *
+     * @param data the array holding the packed row
+     * @param offset the offset of the packed row in {@code data}
+     * @param length the length of the packed row
+     */
+    public void update(byte[] data,int offset,int length){
+        if(!valid) return;
+        rowCount++;
+        if(length<=0) return; //every column is missing, so there is nothing to record
+
+        try{
+            entryDecoder.set(data,offset,length);
+            BitIndex index=entryDecoder.getCurrentIndex();
+            MultiFieldDecoder decoder=entryDecoder.getEntryDecoder();
+            int end=offset+length;
+            for(int encodedPos=index.nextSetBit(0);encodedPos>=0;encodedPos=index.nextSetBit(encodedPos+1)){
+                int fieldOffset=decoder.offset();
+                if(fieldOffset>end) break; //no more data in the row
+                entryDecoder.seekForward(decoder,encodedPos);
+                int fieldLength=decoder.offset()-1-fieldOffset;
+                if(fieldLength<=0) continue; //an implicit null field
+                if(fieldOffset+fieldLength>end)
+                    fieldLength=end-fieldOffset;
+                record(index.getPredicatePosition(encodedPos),data,fieldOffset,fieldLength);
+            }
+        }catch(IOException|RuntimeException e){
+            /*
+             * The row isn't in a format we understand (e.g. it isn't a packed row at all). We can no
+             * longer say anything about the values in this file, so stop collecting.
+             */
+            invalidate();
+        }
+    }
+
+    /**
+     * Summarize several files as if they were one, so that the values of every column of every row in the
+     * files are covered no matter how the row's columns are divided between the files.
+     *
+     * @param zoneMaps the maps of the files
+     * @return a new map holding the union of the ranges of each column, which is invalid if any of
+     * {@code zoneMaps} is.
+     */
+    public static ZoneMap union(Collection<ZoneMap> zoneMaps){
+        ZoneMap union=new ZoneMap();
+        for(ZoneMap zoneMap:zoneMaps){
+            if(!zoneMap.valid){
+                union.invalidate();
+                return union;
+            }
+            union.rowCount+=zoneMap.rowCount;
+            for(int column=0;column<zoneMap.nonNullCounts.length;column++){
+                long count=zoneMap.nonNullCounts[column];
+                if(count<=0) continue;
+                byte[] min=zoneMap.minValues[column];
+                byte[] max=zoneMap.maxValues[column];
+                union.record(column,min,0,min.length);
+                union.record(column,max,0,max.length);
+                //record() counted the bounds as two values; keep the true count
+                union.nonNullCounts[column]+=count-2;
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Mark this summary as unusable, so that it never excludes any predicate.
+     */
+    public void invalidate(){
+        valid=false;
+        minValues=NO_VALUES;
+        maxValues=NO_VALUES;
+        nonNullCounts=NO_COUNTS;
+    }
+
+    public boolean isValid(){ return valid; }
+
+    public long getRowCount(){ return rowCount; }
+
+    /**
+     * @return the number of rows in which {@code column} had a non-null value.
+     */
+    public long getNonNullCount(int column){
+        return column<nonNullCounts.length?nonNullCounts[column]:0l;
+    }
+
+    /**
+     * @return the smallest encoded value of {@code column}, or {@code null} if the column was never set.
+     */
+    public byte[] getMin(int column){
+        return column<minValues.length?minValues[column]:null;
+    }
+
+    /**
+     * @return the largest encoded value of {@code column}, or {@code null} if the column was never set.
+     */
+    public byte[] getMax(int column){
+        return column<maxValues.length?maxValues[column]:null;
+    }
+
+    /**
+     * Determine whether any row summarized by this map could satisfy all of {@code predicates}.
+     *
+     * @param predicates the (implicitly AND-ed) predicates of an {@link EntryPredicateFilter}
+     * @return {@code false} if no row in the file can match the predicates, {@code true} if some row might.
+     */
+    public boolean mayMatch(ObjectArrayList<Predicate> predicates){
+        if(!valid || predicates==null) return true;
+
+        Object[] buffer=predicates.buffer;
+        int size=predicates.size();
+        List<PredicateCompiler.Check> checks=new ArrayList<>();
+        List<byte[]> constants=new ArrayList<>();
+        for(int i=0;i<size;i++){
+            checks.clear();
+            constants.clear();
+            //predicates which can't be flattened (e.g. ORs) are simply not used to exclude the file
+            if(!PredicateCompiler.flatten((Predicate)buffer[i],false,checks,constants)) continue;
+            for(PredicateCompiler.Check check:checks){
+                if(excludes(check,constants))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString(){
+        if(!valid) return "ZoneMap{invalid}";
+        StringBuilder sb=new StringBuilder("ZoneMap{rows=").append(rowCount);
+        for(int i=0;i<nonNullCounts.length;i++){
+            if(nonNullCounts[i]<=0) continue;
+            sb.append(",").append(i).append("=[").append(Bytes.toHex(minValues[i]))
+                    .append(",").append(Bytes.toHex(maxValues[i])).append("]");
+        }
+        return sb.append("}").toString();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private boolean excludes(PredicateCompiler.Check check,List<byte[]> constants){
+        /*
+         * Character comparisons ignore trailing whitespace, so they don't follow the byte order. Nullable
+         * comparisons would require knowing that every row has a value for the column, which we can't know
+         * when rows are written as partial updates.
+         */
+        if(check.kind!=PredicateCompiler.Kind.VALUE || check.op==null || check.nullResult) return false;
+        /*
+         * Primary key columns are never written to the packed row, so a column without any values in
+         * this file tells us nothing about the rows which the predicate will be applied to.
+         */
+        if(getNonNullCount(check.column)<=0) return false;
+        return !check.op.rangeMayMatch(minValues[check.column],maxValues[check.column],constants.get(check.constant));
+    }
+
+    private void record(int column,byte[] data,int offset,int length){
+        if(column>=nonNullCounts.length){
+            int newSize=Math.max(column+1,2*nonNullCounts.length);
+            minValues=Arrays.copyOf(minValues,newSize);
+            maxValues=Arrays.copyOf(maxValues,newSize);
+            nonNullCounts=Arrays.copyOf(nonNullCounts,newSize);
+        }
+        byte[] min=minValues[column];
+        if(min==null || Bytes.BASE_COMPARATOR.compare(data,offset,length,min,0,min.length)<0)
+            minValues[column]=Arrays.copyOfRange(data,offset,offset+length);
+        byte[] max=maxValues[column];
+        if(max==null || Bytes.BASE_COMPARATOR.compare(data,offset,length,max,0,max.length)>0)
+            maxValues[column]=Arrays.copyOfRange(data,offset,offset+length);
+        nonNullCounts[column]++;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.storage;
+
+import com.carrotsearch.hppc.ObjectArrayList;
+import com.splicemachine.db.iapi.reference.Module;
+import com.splicemachine.db.iapi.reference.Property;
+import com.splicemachine.db.iapi.services.compiler.JavaFactory;
+import com.splicemachine.db.iapi.services.monitor.Monitor;
+import com.splicemachine.db.impl.services.bytecode.BCJava;
+import com.splicemachine.db.impl.services.cache.ConcurrentCacheFactory;
+import com.splicemachine.db.impl.services.jmxnone.NoManagementService;
+import com.splicemachine.db.impl.services.stream.SingleStream;
+import com.splicemachine.db.impl.services.timer.SingletonTimerFactory;
+import com.splicemachine.db.impl.services.uuid.BasicUUIDFactory;
+import com.splicemachine.encoding.Encoding;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Checks that the flattened, specialized form which {@link PredicateCompiler} generates code for, and the
+ * generated classes themselves, behave the same as interpreting the original predicates.
+ */
+public class PredicateCompilerTest{
+
+    @BeforeClass
+    public static void bootJavaFactory() throws Exception{
+        if(Monitor.getMonitor()==null){
+            //there is no modules.properties on this classpath, so name the modules that the monitor and the bytecode services need
+            Properties bootProperties=new Properties();
+            bootProperties.setProperty(Property.MODULE_PREFIX+"streams",SingleStream.class.getName());
+            bootProperties.setProperty(Property.MODULE_PREFIX+"uuid",BasicUUIDFactory.class.getName());
+            bootProperties.setProperty(Property.MODULE_PREFIX+"timer",SingletonTimerFactory.class.getName());
+            bootProperties.setProperty(Property.MODULE_PREFIX+"mgmt",NoManagementService.class.getName());
+            bootProperties.setProperty(Property.MODULE_PREFIX+"cacheManager",ConcurrentCacheFactory.class.getName());
+            bootProperties.setProperty(Property.MODULE_PREFIX+"javaCompiler",BCJava.class.getName());
+            if(System.getProperty(Property.ERRORLOG_FIELD_PROPERTY)==null)
+                System.setProperty(Property.ERRORLOG_FIELD_PROPERTY,"java.lang.System.err"); //rather than a derby.log
+            Monitor.startMonitor(bootProperties,System.err);
+        }
+        Assert.assertNotNull("Could not boot the bytecode services!",(JavaFactory)Monitor.startSystemModule(Module.JavaFactory));
+    }
+
+    @Test
+    public void comparisonsMatchValuePredicate() throws Exception{
+        Random random=new Random(0l);
+        for(CompareOp op:CompareOp.values()){
+            for(boolean desc:new boolean[]{false,true}){
+                for(boolean removeNulls:new boolean[]{false,true}){
+                    for(int i=0;i<100;i++){
+                        byte[] value=Encoding.encode(random.nextInt(20)-10,desc);
+                        ValuePredicate predicate=new ValuePredicate(op,1,value,removeNulls,desc);
+                        assertSameResults(predicate,randomInts(random,desc));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void charComparisonsMatchCharValuePredicate() throws Exception{
+        Random random=new Random(1l);
+        for(CompareOp op:CompareOp.values()){
+            byte[] value=Encoding.encode("abc");
+            ValuePredicate predicate=new CharValuePredicate(op,1,value,false,false);
+            assertSameResults(predicate,new byte[][]{
+                    null,
+                    new byte[]{},
+                    Encoding.encode("abc"),
+                    Encoding.encode("abc   "),
+                    Encoding.encode("ab"),
+                    Encoding.encode("abd  "),
+                    Encoding.encode("abcd"),
+                    Encoding.encode(Integer.toString(random.nextInt()))
+            });
+        }
+    }
+
+    @Test
+    public void emptyComparisonValueMatchesNull() throws Exception{
+        ValuePredicate predicate=new ValuePredicate(CompareOp.EQUAL,1,new byte[]{},true,false);
+        assertSameResults(predicate,new byte[][]{null,new byte[]{},Encoding.encode(1)});
+    }
+
+    @Test
+    public void nullChecksMatchNullPredicate() throws Exception{
+        byte[][] data=new byte[][]{null,new byte[]{},new byte[4],new byte[8],Encoding.encode(12)};
+        for(boolean filterIfMissing:new boolean[]{false,true}){
+            for(boolean numerical:new boolean[]{false,true}){
+                assertSameResults(new NullPredicate(filterIfMissing,numerical,1,false,false),data);
+                assertSameResults(new NullPredicate(filterIfMissing,numerical,1,true,false),data);
+                assertSameResults(new NullPredicate(filterIfMissing,numerical,1,false,true),data);
+            }
+        }
+    }
+
+    @Test
+    public void nestedAndsAreFlattened() throws Exception{
+        Predicate lower=new ValuePredicate(CompareOp.GREATER_OR_EQUAL,1,Encoding.encode(-3),true,false);
+        Predicate upper=new ValuePredicate(CompareOp.LESS,1,Encoding.encode(4),false,false);
+        Predicate other=new NullPredicate(true,false,2,false,false);
+        Predicate and=AndPredicate.newAndPredicate(lower,AndPredicate.newAndPredicate(upper,other));
+
+        List<PredicateCompiler.Check> checks=new ArrayList<>();
+        List<byte[]> constants=new ArrayList<>();
+        Assert.assertTrue("Could not flatten ands!",PredicateCompiler.flatten(and,false,checks,constants));
+        Assert.assertEquals("Incorrect number of checks!",3,checks.size());
+        Assert.assertEquals("Incorrect number of constants!",2,constants.size());
+        for(PredicateCompiler.Check check:checks){
+            //the and contains a checkAfter() predicate, so all of its children must be checked afterwards
+            Assert.assertTrue("Check not performed after the row is composed!",check.after);
+        }
+
+        Random random=new Random(2l);
+        byte[][] data=randomInts(random,false);
+        for(int column=0;column<4;column++){
+            for(byte[] d:data){
+                and.reset();
+                boolean expected=and.match(column,d,0,d==null?0:d.length);
+                boolean actual=evaluate(checks,constants,column,d,false);
+                Assert.assertEquals("Incorrect match for column "+column+" and data "+Arrays.toString(d),expected,actual);
+            }
+        }
+    }
+
+    @Test
+    public void generatedComparisonsMatchValuePredicate() throws Exception{
+        Random random=new Random(3l);
+        for(CompareOp op:CompareOp.values()){
+            for(boolean desc:new boolean[]{false,true}){
+                for(boolean removeNulls:new boolean[]{false,true}){
+                    for(int i=0;i<10;i++){
+                        byte[] value=Encoding.encode(random.nextInt(20)-10,desc);
+                        assertCompiledSameResults(new ValuePredicate(op,1,value,removeNulls,desc),randomInts(random,desc));
+                    }
+                    assertCompiledSameResults(new ValuePredicate(op,1,new byte[]{},removeNulls,desc),randomInts(random,desc));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void generatedCharComparisonsMatchCharValuePredicate() throws Exception{
+        byte[][] data=new byte[][]{
+                null,
+                new byte[]{},
+                Encoding.encode("abc"),
+                Encoding.encode("abc   "),
+                Encoding.encode("ab"),
+                Encoding.encode("abd  "),
+                Encoding.encode("abcd"),
+                Encoding.encode("a")
+        };
+        for(CompareOp op:CompareOp.values()){
+            for(boolean removeNulls:new boolean[]{false,true}){
+                assertCompiledSameResults(new CharValuePredicate(op,1,Encoding.encode("abc"),removeNulls,false),data);
+                assertCompiledSameResults(new CharValuePredicate(op,1,Encoding.encode("abc  "),removeNulls,false),data);
+            }
+        }
+    }
+
+    @Test
+    public void generatedNullChecksMatchNullPredicate() throws Exception{
+        byte[][] data=new byte[][]{null,new byte[]{},new byte[4],new byte[8],Encoding.encode(12),Encoding.encode(12.5d)};
+        for(boolean filterIfMissing:new boolean[]{false,true}){
+            for(boolean numerical:new boolean[]{false,true}){
+                assertCompiledSameResults(new NullPredicate(filterIfMissing,numerical,1,false,false),data);
+                assertCompiledSameResults(new NullPredicate(filterIfMissing,numerical,1,true,false),data);
+                assertCompiledSameResults(new NullPredicate(filterIfMissing,numerical,1,false,true),data);
+            }
+        }
+    }
+
+    @Test
+    public void generatedConjunctionsMatchAndPredicate() throws Exception{
+        Random random=new Random(4l);
+        for(int i=0;i<20;i++){
+            Predicate lower=new ValuePredicate(CompareOp.GREATER_OR_EQUAL,1,Encoding.encode(random.nextInt(10)-10),true,false);
+            Predicate upper=new ValuePredicate(CompareOp.LESS,1,Encoding.encode(random.nextInt(10)),false,false);
+            Predicate notNull=new NullPredicate(true,false,2,false,false);
+            Predicate chars=new CharValuePredicate(CompareOp.NOT_EQUAL,0,Encoding.encode("ab"),false,false);
+            Predicate[] predicates=new Predicate[]{chars,AndPredicate.newAndPredicate(lower,AndPredicate.newAndPredicate(upper,notNull))};
+            CompiledPredicate compiled=PredicateCompiler.compile(ObjectArrayList.from(predicates));
+            Assert.assertNotNull("Did not compile "+Arrays.toString(predicates),compiled);
+
+            byte[][] data=randomInts(random,false);
+            for(int column=0;column<4;column++){
+                for(byte[] d:data){
+                    int length=d==null?0:d.length;
+                    boolean expected=true;
+                    boolean expectedAfter=true;
+                    for(Predicate p:predicates){
+                        p.reset();
+                        boolean matches=p.match(column,d,0,length);
+                        expected&=matches;
+                        expectedAfter&=!p.checkAfter() || matches;
+                    }
+                    Assert.assertEquals("Incorrect match for column "+column+" and data "+Arrays.toString(d),
+                            expected,compiled.match(column,d,0,length));
+                    Assert.assertEquals("Incorrect after match for column "+column+" and data "+Arrays.toString(d),
+                            expectedAfter,compiled.matchAfter(column,d,0,length));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void generatedClassesAreSharedBetweenConstants() throws Exception{
+        CompiledPredicate two=PredicateCompiler.compile(ObjectArrayList.<Predicate>from(new ValuePredicate(CompareOp.EQUAL,1,Encoding.encode(2),true,false)));
+        CompiledPredicate three=PredicateCompiler.compile(ObjectArrayList.<Predicate>from(new ValuePredicate(CompareOp.EQUAL,1,Encoding.encode(3),true,false)));
+        Assert.assertNotNull(two);
+        Assert.assertNotNull(three);
+        Assert.assertSame("Did not share the generated class!",two.getClass(),three.getClass());
+        byte[] data=Encoding.encode(3);
+        Assert.assertFalse(two.match(1,data,0,data.length));
+        Assert.assertTrue(three.match(1,data,0,data.length));
+    }
+
+    @Test
+    public void orsAreNotCompiled() throws Exception{
+        Predicate or=OrPredicate.or(new NullPredicate(true,false,1,false,false),new NullPredicate(true,false,2,false,false));
+        Assert.assertFalse("Compiled an or predicate!",
+                PredicateCompiler.flatten(or,false,new ArrayList<PredicateCompiler.Check>(),new ArrayList<byte[]>()));
+        Assert.assertNull("Compiled an or predicate!",PredicateCompiler.compile(ObjectArrayList.from(or)));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[][] randomInts(Random random,boolean desc){
+        byte[][] data=new byte[22][];
+        data[0]=null;
+        data[1]=new byte[]{};
+        for(int i=2;i<data.length;i++){
+            data[i]=Encoding.encode(random.nextInt(20)-10,desc);
+        }
+        return data;
+    }
+
+    private static void assertSameResults(Predicate predicate,byte[][] data){
+        List<PredicateCompiler.Check> checks=new ArrayList<>();
+        List<byte[]> constants=new ArrayList<>();
+        Assert.assertTrue("Could not flatten "+predicate,PredicateCompiler.flatten(predicate,false,checks,constants));
+        for(int column=0;column<3;column++){
+            for(byte[] d:data){
+                int length=d==null?0:d.length;
+                boolean expected=predicate.match(column,d,0,length);
+                Assert.assertEquals("Incorrect match for "+predicate+" on "+Arrays.toString(d),
+                        expected,evaluate(checks,constants,column,d,false));
+                boolean expectedAfter=!predicate.checkAfter() || expected;
+                Assert.assertEquals("Incorrect after match for "+predicate+" on "+Arrays.toString(d),
+                        expectedAfter,evaluate(checks,constants,column,d,true));
+            }
+        }
+    }
+
+    /*
+     * Compiles the predicate, and checks the generated class against the predicate, with the data both
+     * at the start of the array and at an offset into it
+     */
+    private static void assertCompiledSameResults(Predicate predicate,byte[][] data){
+        CompiledPredicate compiled=PredicateCompiler.compile(ObjectArrayList.from(predicate));
+        Assert.assertNotNull("Did not compile "+predicate,compiled);
+        for(int column=0;column<3;column++){
+            for(byte[] d:data){
+                int length=d==null?0:d.length;
+                predicate.reset();
+                boolean expected=predicate.match(column,d,0,length);
+                boolean expectedAfter=!predicate.checkAfter() || expected;
+                Assert.assertEquals("Incorrect match for "+predicate+" on "+Arrays.toString(d),
+                        expected,compiled.match(column,d,0,length));
+                Assert.assertEquals("Incorrect after match for "+predicate+" on "+Arrays.toString(d),
+                        expectedAfter,compiled.matchAfter(column,d,0,length));
+                if(d!=null){
+                    byte[] shifted=new byte[length+5];
+                    System.arraycopy(d,0,shifted,3,length);
+                    Assert.assertEquals("Incorrect match at an offset for "+predicate+" on "+Arrays.toString(d),
+                            expected,compiled.match(column,shifted,3,length));
+                }
+            }
+        }
+    }
+
+    /*
+     * Evaluates the checks in the same way that the generated code does
+     */
+    private static boolean evaluate(List<PredicateCompiler.Check> checks,List<byte[]> constants,
+                                    int column,byte[] data,boolean afterOnly){
+        int length=data==null?0:data.length;
+        for(PredicateCompiler.Check check:checks){
+            if(!CompiledPredicate.isColumn(column,check.column)) continue;
+            if(afterOnly && !check.after) continue;
+            boolean result;
+            switch(check.kind){
+                case NEVER:
+                    result=false;
+                    break;
+                case NULL:
+                    result=CompiledPredicate.isNull(data,length);
+                    break;
+                case NOT_NULL:
+                    result=CompiledPredicate.isNotNull(data,length);
+                    break;
+                case HAS_LENGTH:
+                    result=CompiledPredicate.hasLength(data,length,check.expectedLength);
+                    break;
+                case LACKS_LENGTH:
+                    result=CompiledPredicate.lacksLength(data,length,check.expectedLength);
+                    break;
+                case VALUE:
+                case CHAR_VALUE:
+                    if(CompiledPredicate.isNull(data,length))
+                        result=check.nullResult;
+                    else{
+                        byte[] value=constants.get(check.constant);
+                        int l=check.kind==PredicateCompiler.Kind.CHAR_VALUE?CompiledPredicate.charLength(value,data,0,length):length;
+                        result=check.op.apply(value,data,0,l);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+            if(!result) return false;
+        }
+        return true;
+    }
+}
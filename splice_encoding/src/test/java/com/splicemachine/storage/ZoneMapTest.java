@@ -0,0 +1,254 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.ObjectArrayList;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that a {@link ZoneMap} only excludes predicates which no summarized row can satisfy.
+ */
+public class ZoneMapTest{
+    private static KryoPool defaultPool=new KryoPool(100);
+
+    @Test
+    public void excludesValuesOutsideOfRange() throws Exception{
+        ZoneMap zoneMap=new ZoneMap();
+        for(int i=10;i<=20;i++){
+            byte[] row=encodeRow(i,i*2);
+            zoneMap.update(row,0,row.length);
+        }
+        Assert.assertEquals("Incorrect row count!",11,zoneMap.getRowCount());
+        Assert.assertEquals("Incorrect non-null count!",11,zoneMap.getNonNullCount(0));
+
+        assertMayMatch(zoneMap,CompareOp.EQUAL,0,5,false);
+        assertMayMatch(zoneMap,CompareOp.EQUAL,0,15,true);
+        assertMayMatch(zoneMap,CompareOp.EQUAL,0,25,false);
+        assertMayMatch(zoneMap,CompareOp.LESS,0,10,false);
+        assertMayMatch(zoneMap,CompareOp.LESS_OR_EQUAL,0,10,true);
+        assertMayMatch(zoneMap,CompareOp.GREATER,0,20,false);
+        assertMayMatch(zoneMap,CompareOp.GREATER_OR_EQUAL,0,20,true);
+        assertMayMatch(zoneMap,CompareOp.NOT_EQUAL,0,15,true);
+        assertMayMatch(zoneMap,CompareOp.GREATER,1,40,false);
+        assertMayMatch(zoneMap,CompareOp.GREATER,1,39,true);
+    }
+
+    @Test
+    public void excludesNotEqualOnlyForSingleValue() throws Exception{
+        ZoneMap zoneMap=new ZoneMap();
+        for(int i=0;i<5;i++){
+            byte[] row=encodeRow(7,i);
+            zoneMap.update(row,0,row.length);
+        }
+        assertMayMatch(zoneMap,CompareOp.NOT_EQUAL,0,7,false);
+        assertMayMatch(zoneMap,CompareOp.NOT_EQUAL,0,8,true);
+        assertMayMatch(zoneMap,CompareOp.NOT_EQUAL,1,3,true);
+    }
+
+    @Test
+    public void doesNotExcludeWhenNullsMatch() throws Exception{
+        ZoneMap zoneMap=new ZoneMap();
+        byte[] row=encodeRow(10,10);
+        zoneMap.update(row,0,row.length);
+
+        //a null column sorts before every value, so without removing nulls a LESS comparison matches nulls
+        Predicate nullable=new ValuePredicate(CompareOp.LESS,0,Encoding.encode(5),false,false);
+        Assert.assertTrue("Incorrectly excluded predicate which matches nulls!",
+                zoneMap.mayMatch(ObjectArrayList.from(nullable)));
+    }
+
+    @Test
+    public void doesNotExcludeColumnsWhichAreNeverSet() throws Exception{
+        ZoneMap zoneMap=new ZoneMap();
+        for(int i=0;i<3;i++){
+            byte[] row=encodeRow(i,null);
+            zoneMap.update(row,0,row.length);
+        }
+        Assert.assertEquals("Incorrect non-null count!",0,zoneMap.getNonNullCount(1));
+        //the column may be part of the primary key, which isn't stored in the packed row
+        assertMayMatch(zoneMap,CompareOp.EQUAL,1,1,true);
+        Predicate notNull=new NullPredicate(true,false,1,false,false);
+        Assert.assertTrue("Incorrectly excluded IS NOT NULL on a column which is never set!",
+                zoneMap.mayMatch(ObjectArrayList.from(notNull)));
+    }
+
+    @Test
+    public void readsRowsFromTheMiddleOfALargerArray() throws Exception{
+        ZoneMap zoneMap=new ZoneMap();
+        byte[] row=encodeRow(10,20);
+        byte[] buffer=new byte[row.length+10];
+        System.arraycopy(row,0,buffer,5,row.length);
+        zoneMap.update(buffer,5,row.length);
+
+        assertMayMatch(zoneMap,CompareOp.EQUAL,0,10,true);
+        assertMayMatch(zoneMap,CompareOp.EQUAL,0,11,false);
+        assertMayMatch(zoneMap,CompareOp.EQUAL,1,20,true);
+        assertMayMatch(zoneMap,CompareOp.EQUAL,1,21,false);
+    }
+
+    @Test
+    public void ignoresOrPredicates() throws Exception{
+        ZoneMap zoneMap=new ZoneMap();
+        byte[] row=encodeRow(10,20);
+        zoneMap.update(row,0,row.length);
+
+        Predicate or=new OrPredicate(ObjectArrayList.from(
+                (Predicate)new ValuePredicate(CompareOp.EQUAL,0,Encoding.encode(1),true,false),
+                new ValuePredicate(CompareOp.EQUAL,1,Encoding.encode(2),true,false)));
+        Assert.assertTrue("Incorrectly excluded OR predicate!",zoneMap.mayMatch(ObjectArrayList.from(or)));
+
+        Predicate excluded=new ValuePredicate(CompareOp.EQUAL,0,Encoding.encode(1),true,false);
+        Assert.assertFalse("OR predicate prevented exclusion by the rest of the conjunction!",
+                zoneMap.mayMatch(ObjectArrayList.from(or,excluded)));
+    }
+
+    @Test
+    public void invalidMapMatchesEverything() throws Exception{
+        ZoneMap zoneMap=new ZoneMap();
+        byte[] row=encodeRow(10,20);
+        zoneMap.update(row,0,row.length);
+        zoneMap.invalidate();
+
+        Assert.assertFalse("Map is still valid!",zoneMap.isValid());
+        assertMayMatch(zoneMap,CompareOp.EQUAL,0,11,true);
+    }
+
+    @Test
+    public void unionCoversARowSplitAcrossFiles() throws Exception{
+        //the first file holds the row as first written
+        ZoneMap first=new ZoneMap();
+        byte[] row=encodeRow(5,10);
+        first.update(row,0,row.length);
+        //the second holds a partial update of its second column, and other rows
+        ZoneMap second=new ZoneMap();
+        row=encodeRow(null,20);
+        second.update(row,0,row.length);
+        for(int i=7;i<=9;i++){
+            row=encodeRow(i,20);
+            second.update(row,0,row.length);
+        }
+
+        ObjectArrayList<Predicate> predicates=ObjectArrayList.from(
+                (Predicate)new ValuePredicate(CompareOp.EQUAL,0,Encoding.encode(5),true,false),
+                new ValuePredicate(CompareOp.EQUAL,1,Encoding.encode(20),true,false));
+        //each file excludes the conjunction on a different column, but the merged row (5,20) matches it
+        Assert.assertFalse(first.mayMatch(predicates));
+        Assert.assertFalse(second.mayMatch(predicates));
+        ZoneMap union=ZoneMap.union(Arrays.asList(first,second));
+        Assert.assertTrue("Union excluded a row split across files!",union.mayMatch(predicates));
+
+        Assert.assertEquals("Incorrect row count!",5,union.getRowCount());
+        Assert.assertEquals("Incorrect non-null count!",4,union.getNonNullCount(0));
+        Assert.assertEquals("Incorrect non-null count!",5,union.getNonNullCount(1));
+        assertMayMatch(union,CompareOp.EQUAL,0,6,true);
+        assertMayMatch(union,CompareOp.EQUAL,0,10,false);
+        assertMayMatch(union,CompareOp.LESS,1,10,false);
+        assertMayMatch(union,CompareOp.GREATER,1,20,false);
+    }
+
+    @Test
+    public void unionWithAnInvalidMapMatchesEverything() throws Exception{
+        ZoneMap valid=new ZoneMap();
+        byte[] row=encodeRow(10,20);
+        valid.update(row,0,row.length);
+        ZoneMap invalid=new ZoneMap();
+        invalid.invalidate();
+
+        ZoneMap union=ZoneMap.union(Arrays.asList(valid,invalid));
+        Assert.assertFalse("Union is valid!",union.isValid());
+        assertMayMatch(union,CompareOp.EQUAL,0,11,true);
+    }
+
+    @Test
+    public void neverExcludesAMatchingRow() throws Exception{
+        Random random=new Random(0l);
+        for(int file=0;file<100;file++){
+            ZoneMap zoneMap=new ZoneMap();
+            List<Integer[]> rows=new ArrayList<>();
+            int numRows=random.nextInt(10)+1;
+            for(int i=0;i<numRows;i++){
+                Integer[] values=new Integer[]{randomValue(random),randomValue(random)};
+                rows.add(values);
+                byte[] row=encodeRow(values[0],values[1]);
+                zoneMap.update(row,0,row.length);
+            }
+
+            CompareOp[] ops=CompareOp.values();
+            for(int p=0;p<50;p++){
+                Predicate predicate=new ValuePredicate(ops[random.nextInt(ops.length)],random.nextInt(2),
+                        Encoding.encode(random.nextInt(20)-10),random.nextBoolean(),false);
+                if(anyRowMatches(predicate,rows)){
+                    Assert.assertTrue("Excluded "+predicate+" which matches a row in "+zoneMap,
+                            zoneMap.mayMatch(ObjectArrayList.from(predicate)));
+                }
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void assertMayMatch(ZoneMap zoneMap,CompareOp op,int column,int value,boolean expected){
+        Predicate predicate=new ValuePredicate(op,column,Encoding.encode(value),true,false);
+        Assert.assertEquals("Incorrect result for "+predicate+" against "+zoneMap,
+                expected,zoneMap.mayMatch(ObjectArrayList.from(predicate)));
+    }
+
+    private static Integer randomValue(Random random){
+        return random.nextInt(5)==0?null:random.nextInt(20)-10;
+    }
+
+    private static boolean anyRowMatches(Predicate predicate,List<Integer[]> rows){
+        for(Integer[] row:rows){
+            boolean matches=true;
+            for(int i=0;i<row.length && matches;i++){
+                if(!predicate.applies(i)) continue;
+                byte[] data=row[i]==null?new byte[]{}:Encoding.encode(row[i]);
+                matches=predicate.match(i,data,0,data.length);
+            }
+            if(matches) return true;
+        }
+        return false;
+    }
+
+    private static byte[] encodeRow(Integer first,Integer second) throws IOException{
+        BitSet setCols=new BitSet(2);
+        BitSet scalarFields=new BitSet(2);
+        if(first!=null){
+            setCols.set(0);
+            scalarFields.set(0);
+        }
+        if(second!=null){
+            setCols.set(1);
+            scalarFields.set(1);
+        }
+        EntryEncoder encoder=EntryEncoder.create(defaultPool,2,setCols,scalarFields,null,null);
+        MultiFieldEncoder fieldEncoder=encoder.getEntryEncoder();
+        if(first!=null) fieldEncoder.encodeNext(first);
+        if(second!=null) fieldEncoder.encodeNext(second);
+        return encoder.encode();
+    }
+}
@@ -56,6 +56,14 @@ public interface SpliceOperation extends StandardCloseable, NoPutResultSet, Conv
      */
     DataSet<LocatedRow> getResultDataSet(DataSetProcessor dsp) throws StandardException;
 
+    /**
+     * Dataset of which only the first {@code rowLimit} rows are going to be consumed (e.g. because of an enclosing
+     * {@code FETCH FIRST} clause). Operations may use the limit to do less work, but are free to return more rows.
+     *
+     * @param rowLimit the number of rows that will be consumed, or {@code <=0} if all of them will be
+     */
+    DataSet<LocatedRow> getDataSet(DataSetProcessor dsp,long rowLimit) throws StandardException;
+
     OperationContext getOperationContext();
 
     void setOperationContext(OperationContext operationContext);
@@ -56,4 +56,26 @@ public abstract class DistributedJob implements Serializable{
     public final boolean isSubmitted() {
         return submitted;
     }
+
+    /**
+     * @return the queue the OLAP server schedules this job in
+     */
+    public OlapJobQueue getQueue() {
+        return OlapJobQueue.BATCH;
+    }
+
+    /**
+     * @return the user who submitted this job, or {@code null} for internal jobs, which are not subject to
+     * per-user concurrency limits
+     */
+    public String getUserId() {
+        return null;
+    }
+
+    /**
+     * @return the optimizer's estimated cost of this job, or 0 if unknown
+     */
+    public double getEstimatedCost() {
+        return 0d;
+    }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.iapi.sql.olap;
+
+/**
+ * The scheduling queues of the OLAP server. Each queue gets a weighted share of the server's job slots, so
+ * a backlog in one queue can't starve the others.
+ */
+public enum OlapJobQueue{
+    /**
+     * Queries waiting on a user
+     */
+    INTERACTIVE,
+    /**
+     * Large queries and bulk DDL operations (index creation, alter table, etc.)
+     */
+    BATCH,
+    /**
+     * Background work, such as compactions and statistics collection
+     */
+    MAINTENANCE
+}
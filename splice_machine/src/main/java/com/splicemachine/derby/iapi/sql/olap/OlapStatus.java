@@ -51,5 +51,11 @@ public interface OlapStatus{
 
     boolean markRunning();
 
+    /**
+     * Called by a job which is about to stream its results to the client. From then on the job runs at the pace
+     * at which the client reads its results, so it no longer holds one of the server's job slots.
+     */
+    void markStreaming();
+
     boolean isRunning();
 }
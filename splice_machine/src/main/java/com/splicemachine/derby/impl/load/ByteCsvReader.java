@@ -0,0 +1,270 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads CSV records directly from a UTF-8 byte stream, without decoding each line into a String.
+ * <p>
+ * Each call to {@link #next()} splits one record in place: quotes are stripped and escaped quotes
+ * collapsed within the read buffer, so a field is just an offset and a length into {@link #getBuffer()}.
+ * Those are only valid until the next call to {@link #next()}.
+ * <p>
+ * The tokenizing rules match the SuperCSV tokenizer used by {@link SpliceCsvReader}: empty lines are
+ * skipped, a quote character toggles quoted mode wherever it appears, a doubled quote inside quotes is a
+ * literal quote, and line breaks inside quotes are kept as {@code \n}. Because UTF-8 never uses bytes below
+ * 0x80 inside a multi-byte sequence, this is only correct when the quote and delimiter are ASCII
+ * characters (see {@link #supports(String, char, char)}).
+ */
+public class ByteCsvReader implements Closeable{
+    private static final int DEFAULT_BUFFER_SIZE = 64*1024;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final InputStream in;
+    private final byte quote;
+    private final byte delimiter;
+    private final int maxLinesPerRow;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    /*start of the current record in the buffer. Field offsets are relative to it until the record is done*/
+    private int recordStart;
+    private int[] fieldOffsets = new int[16];
+    private int[] fieldLengths = new int[16];
+    private int fieldCount;
+    private long lineNumber;
+
+    public ByteCsvReader(InputStream in,char quote,char delimiter,int maxLinesPerRow){
+        this(in,quote,delimiter,maxLinesPerRow,DEFAULT_BUFFER_SIZE);
+    }
+
+    public ByteCsvReader(InputStream in,char quote,char delimiter,int maxLinesPerRow,int bufferSize){
+        assert quote<0x80 && delimiter<0x80: "Only ASCII quote and delimiter characters are supported";
+        this.in = in;
+        this.quote = (byte)quote;
+        this.delimiter = (byte)delimiter;
+        this.maxLinesPerRow = maxLinesPerRow;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * @return true if records in {@code charset} with the given quote and delimiter can be split at the byte level.
+     */
+    public static boolean supports(String charset,char quote,char delimiter){
+        return StandardCharsets.UTF_8.name().equalsIgnoreCase(charset) && quote<0x80 && delimiter<0x80;
+    }
+
+    /**
+     * Advance to the next record.
+     *
+     * @return false if the end of the stream has been reached
+     * @throws IOException if the stream cannot be read, or the record is malformed. A malformed record is
+     * consumed, so reading may continue with the following record.
+     */
+    public boolean next() throws IOException{
+        fieldCount = 0;
+        while(true){
+            recordStart = position;
+            if(position>=limit && !fill())
+                return false;
+            byte b = buffer[position];
+            if(b==LF){
+                position++;
+                lineNumber++;
+            }else if(b==CR){
+                position++;
+                skipLineFeed();
+                lineNumber++;
+            }else
+                break;
+        }
+        readRecord();
+        return true;
+    }
+
+    /**
+     * Read the records in {@code data[0,length)} instead of the stream, e.g. a line that has already been
+     * read by the caller. The bytes are modified in place by {@link #next()}.
+     */
+    public void reset(byte[] data,int length){
+        buffer = data;
+        position = 0;
+        limit = length;
+        eof = true;
+        recordStart = 0;
+        fieldCount = 0;
+    }
+
+    public int getFieldCount(){
+        return fieldCount;
+    }
+
+    public byte[] getBuffer(){
+        return buffer;
+    }
+
+    public int getFieldOffset(int field){
+        return recordStart+fieldOffsets[field];
+    }
+
+    public int getFieldLength(int field){
+        return fieldLengths[field];
+    }
+
+    /**
+     * @return the number of lines read so far, including the current record.
+     */
+    public long getLineNumber(){
+        return lineNumber;
+    }
+
+    /**
+     * @return the fields of the current record as Strings, for error reporting.
+     */
+    public List<String> getFields(){
+        List<String> fields = new ArrayList<>(fieldCount);
+        for(int i=0;i<fieldCount;i++){
+            fields.add(new String(buffer,getFieldOffset(i),fieldLengths[i],StandardCharsets.UTF_8));
+        }
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException{
+        in.close();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private void readRecord() throws IOException{
+        int read = 0; //relative to recordStart
+        int write = 0; //relative to recordStart, never ahead of read
+        int fieldStart = 0;
+        boolean quoted = false;
+        long startLine = lineNumber+1;
+        while(true){
+            if(recordStart+read>=limit && !fill()){
+                position = recordStart+read;
+                lineNumber++;
+                addField(fieldStart,write);
+                if(quoted)
+                    throw new IOException("unexpected end of file while reading quoted column beginning on line "+startLine+" and ending on line "+lineNumber);
+                return;
+            }
+            byte b = buffer[recordStart+read];
+            if(quoted){
+                if(b==quote){
+                    if(recordStart+read+1>=limit) fill();
+                    if(recordStart+read+1<limit && buffer[recordStart+read+1]==quote){
+                        buffer[recordStart+write++] = quote;
+                        read+=2;
+                    }else{
+                        quoted = false;
+                        read++;
+                    }
+                }else if(b==LF || b==CR){
+                    read++;
+                    if(b==CR){
+                        position = recordStart+read;
+                        skipLineFeed();
+                        read = position-recordStart;
+                    }
+                    lineNumber++;
+                    if(maxLinesPerRow>0 && lineNumber-startLine+1>=maxLinesPerRow){
+                        position = recordStart+read;
+                        addField(fieldStart,write);
+                        throw new IOException("max number of lines to read exceeded while reading quoted column beginning on line "
+                                +startLine+" and ending on line "+lineNumber);
+                    }
+                    buffer[recordStart+write++] = LF;
+                }else{
+                    buffer[recordStart+write++] = b;
+                    read++;
+                }
+            }else if(b==delimiter){
+                addField(fieldStart,write);
+                fieldStart = write;
+                read++;
+            }else if(b==quote){
+                quoted = true;
+                read++;
+            }else if(b==LF || b==CR){
+                addField(fieldStart,write);
+                position = recordStart+read+1;
+                if(b==CR)
+                    skipLineFeed();
+                lineNumber++;
+                return;
+            }else{
+                buffer[recordStart+write++] = b;
+                read++;
+            }
+        }
+    }
+
+    private void addField(int start,int end){
+        if(fieldCount==fieldOffsets.length){
+            fieldOffsets = Arrays.copyOf(fieldOffsets,2*fieldCount);
+            fieldLengths = Arrays.copyOf(fieldLengths,2*fieldCount);
+        }
+        fieldOffsets[fieldCount] = start;
+        fieldLengths[fieldCount] = end-start;
+        fieldCount++;
+    }
+
+    private void skipLineFeed() throws IOException{
+        if(position>=limit && !fill()) return;
+        if(buffer[position]==LF)
+            position++;
+    }
+
+    /*
+     * Read more bytes, keeping everything from recordStart on. The record is shifted to the start of
+     * the buffer (or the buffer grown) when there is no room left behind it.
+     */
+    private boolean fill() throws IOException{
+        if(eof) return false;
+        if(limit==buffer.length){
+            if(recordStart>0){
+                System.arraycopy(buffer,recordStart,buffer,0,limit-recordStart);
+                position -= recordStart;
+                limit -= recordStart;
+                recordStart = 0;
+            }else
+                buffer = Arrays.copyOf(buffer,2*buffer.length);
+        }
+        int n = in.read(buffer,limit,buffer.length-limit);
+        if(n<0){
+            eof = true;
+            return false;
+        }
+        limit+=n;
+        return true;
+    }
+}
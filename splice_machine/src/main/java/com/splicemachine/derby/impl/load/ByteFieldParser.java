@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import java.math.BigDecimal;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+/**
+ * Sets import fields directly from their UTF-8 bytes, for the common textual forms of numeric, date and
+ * timestamp columns.
+ * <p>
+ * Anything outside of those forms (signs with surrounding whitespace, exponents, values too long to fit
+ * in a long, non-ISO dates, ...) is rejected rather than handled, so that the caller can fall back to the
+ * String parsing of the column type and get exactly the same values and errors as before.
+ */
+public class ByteFieldParser{
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_INT_DIGITS = 9;
+
+    private ByteFieldParser(){}
+
+    /**
+     * @return true if {@code data[offset,offset+length)} is one of the textual forms of SQL NULL accepted by import.
+     */
+    public static boolean isNull(byte[] data,int offset,int length){
+        if(length==0) return true;
+        if(length!=4) return false;
+        return (data[offset]=='n' && data[offset+1]=='u' && data[offset+2]=='l' && data[offset+3]=='l')
+                || (data[offset]=='N' && data[offset+1]=='U' && data[offset+2]=='L' && data[offset+3]=='L');
+    }
+
+    /**
+     * Set {@code dvd} from the bytes of a non-null field.
+     *
+     * @param parseDateTimes whether DATE and TIMESTAMP fields are in their default (ISO) format
+     * @return false if the field was not set, and has to be parsed from its String form instead
+     */
+    public static boolean setValue(DataValueDescriptor dvd,byte[] data,int offset,int length,boolean parseDateTimes) throws StandardException{
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_INTEGER_ID:
+                return setLong(dvd,data,offset,length,MAX_INT_DIGITS,Integer.MIN_VALUE,Integer.MAX_VALUE);
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return setLong(dvd,data,offset,length,MAX_LONG_DIGITS,Long.MIN_VALUE,Long.MAX_VALUE);
+            case StoredFormatIds.SQL_SMALLINT_ID:
+                return setLong(dvd,data,offset,length,MAX_INT_DIGITS,Short.MIN_VALUE,Short.MAX_VALUE);
+            case StoredFormatIds.SQL_TINYINT_ID:
+                return setLong(dvd,data,offset,length,MAX_INT_DIGITS,Byte.MIN_VALUE,Byte.MAX_VALUE);
+            case StoredFormatIds.SQL_DECIMAL_ID:
+                return setDecimal(dvd,data,offset,length);
+            case StoredFormatIds.SQL_DATE_ID:
+                return parseDateTimes && setDate(dvd,data,offset,length);
+            case StoredFormatIds.SQL_TIMESTAMP_ID:
+                return parseDateTimes && setTimestamp(dvd,data,offset,length);
+            default:
+                return false;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static boolean setLong(DataValueDescriptor dvd,byte[] data,int offset,int length,
+                                   int maxDigits,long min,long max) throws StandardException{
+        int pos = offset;
+        int end = offset+length;
+        boolean negative = false;
+        if(data[pos]=='-' || data[pos]=='+'){
+            negative = data[pos]=='-';
+            pos++;
+        }
+        int digits = end-pos;
+        if(digits<=0 || digits>maxDigits) return false;
+        long value = 0;
+        for(;pos<end;pos++){
+            int d = data[pos]-'0';
+            if(d<0 || d>9) return false;
+            value = value*10+d;
+        }
+        if(negative) value = -value;
+        if(value<min || value>max) return false;
+        if(maxDigits==MAX_LONG_DIGITS)
+            dvd.setValue(value);
+        else
+            dvd.setValue((int)value);
+        return true;
+    }
+
+    private static boolean setDecimal(DataValueDescriptor dvd,byte[] data,int offset,int length) throws StandardException{
+        int pos = offset;
+        int end = offset+length;
+        boolean negative = false;
+        if(data[pos]=='-' || data[pos]=='+'){
+            negative = data[pos]=='-';
+            pos++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for(;pos<end;pos++){
+            byte b = data[pos];
+            if(b=='.'){
+                if(scale>=0) return false;
+                scale = 0;
+                continue;
+            }
+            int d = b-'0';
+            if(d<0 || d>9) return false;
+            if(++digits>MAX_LONG_DIGITS) return false;
+            unscaled = unscaled*10+d;
+            if(scale>=0) scale++;
+        }
+        if(digits==0) return false;
+        dvd.setBigDecimal(BigDecimal.valueOf(negative?-unscaled:unscaled,scale<0?0:scale));
+        return true;
+    }
+
+    /*yyyy-mm-dd*/
+    private static boolean setDate(DataValueDescriptor dvd,byte[] data,int offset,int length) throws StandardException{
+        if(length!=10 || !isDate(data,offset)) return false;
+        dvd.setValue(new DateTime(year(data,offset),month(data,offset),day(data,offset),0,0,DateTimeZone.UTC));
+        return true;
+    }
+
+    /*yyyy-mm-dd hh:mm:ss[.f[f[f]]]*/
+    private static boolean setTimestamp(DataValueDescriptor dvd,byte[] data,int offset,int length) throws StandardException{
+        if(length<19 || length==20 || length>23 || !isDate(data,offset) || data[offset+10]!=' '
+                || data[offset+13]!=':' || data[offset+16]!=':') return false;
+        int hour = twoDigits(data,offset+11);
+        int minute = twoDigits(data,offset+14);
+        int second = twoDigits(data,offset+17);
+        if(hour<0 || hour>23 || minute<0 || minute>59 || second<0 || second>59) return false;
+        int millis = 0;
+        if(length>19){
+            if(data[offset+19]!='.') return false;
+            for(int i=20;i<23;i++){
+                int d = i<length?data[offset+i]-'0':0;
+                if(d<0 || d>9) return false;
+                millis = millis*10+d;
+            }
+        }
+        dvd.setValue(new DateTime(year(data,offset),month(data,offset),day(data,offset),hour,minute,second,millis,DateTimeZone.UTC));
+        return true;
+    }
+
+    private static boolean isDate(byte[] data,int offset){
+        if(data[offset+4]!='-' || data[offset+7]!='-') return false;
+        int year = year(data,offset);
+        int month = month(data,offset);
+        int day = day(data,offset);
+        if(year<1 || month<1 || month>12 || day<1) return false;
+        return day<=daysInMonth(year,month);
+    }
+
+    private static int year(byte[] data,int offset){
+        int high = twoDigits(data,offset);
+        int low = twoDigits(data,offset+2);
+        return high<0 || low<0? -1 : high*100+low;
+    }
+
+    private static int month(byte[] data,int offset){
+        return twoDigits(data,offset+5);
+    }
+
+    private static int day(byte[] data,int offset){
+        return twoDigits(data,offset+8);
+    }
+
+    private static int twoDigits(byte[] data,int offset){
+        int high = data[offset]-'0';
+        int low = data[offset+1]-'0';
+        if(high<0 || high>9 || low<0 || low>9) return -1;
+        return high*10+low;
+    }
+
+    private static int daysInMonth(int year,int month){
+        switch(month){
+            case 2:
+                return (year%4==0 && (year%100!=0 || year%400==0))?29:28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
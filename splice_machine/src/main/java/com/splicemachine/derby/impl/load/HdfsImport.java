@@ -183,6 +183,8 @@ public class HdfsImport {
                  charset,
                  true,
                  false,
+                 null,
+                 false,
                  results);
     }
 
@@ -263,6 +265,63 @@ public class HdfsImport {
                  charset,
                  false,
                  false,
+                 null,
+                 false,
+                 results);
+    }
+
+    /**
+     * The SYSCS_UTIL.BULK_IMPORT_HFILE system procedure imports data like {@link #IMPORT_DATA}, but rather than
+     * writing each row through the write pipeline, it writes the encoded rows and their index entries into
+     * storage files and bulk loads them into the table and its indexes.
+     * <p/>
+     * Bulk loading is only used for initial loads, since keys are not checked against existing rows: tables
+     * which already hold data, or have triggers or foreign keys, are imported through the write pipeline
+     * instead. Primary key and unique index violations among the imported rows fail the import.
+     *
+     * @param bulkImportDirectory The directory in which storage files are staged before being loaded. It must be on
+     *                            the same file system as the HBase root directory.
+     * @param skipSampling If <code>true</code>, storage files are split along the current regions of the table
+     *                     and its indexes instead of split points sampled from the imported data. Use this when
+     *                     the tables have already been split.
+     * @see #IMPORT_DATA for the remaining parameters
+     */
+    public static void BULK_IMPORT_HFILE(String schemaName,
+                                         String tableName,
+                                         String insertColumnList,
+                                         String fileName,
+                                         String columnDelimiter,
+                                         String characterDelimiter,
+                                         String timestampFormat,
+                                         String dateFormat,
+                                         String timeFormat,
+                                         long badRecordsAllowed,
+                                         String badRecordDirectory,
+                                         String oneLineRecords,
+                                         String charset,
+                                         String bulkImportDirectory,
+                                         String skipSampling,
+                                         ResultSet[] results
+    ) throws SQLException {
+        if (bulkImportDirectory == null || bulkImportDirectory.isEmpty())
+            throw PublicAPI.wrapStandardException(ErrorState.LANG_INVALID_FUNCTION_ARGUMENT.newException("null", "bulkImportDirectory"));
+        doImport(schemaName,
+                 tableName,
+                 insertColumnList,
+                 fileName,
+                 columnDelimiter,
+                 characterDelimiter,
+                 timestampFormat,
+                 dateFormat,
+                 timeFormat,
+                 badRecordsAllowed,
+                 badRecordDirectory,
+                 oneLineRecords,
+                 charset,
+                 false,
+                 false,
+                 bulkImportDirectory,
+                 Boolean.parseBoolean(skipSampling),
                  results);
     }
 
@@ -282,6 +341,8 @@ public class HdfsImport {
                                  String charset,
                                  boolean isUpsert,
                                  boolean isCheckScan,
+                                 String bulkImportDirectory,
+                                 boolean skipSampling,
                                  ResultSet[] results) throws SQLException {
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG, "doImport {schemaName=%s, tableName=%s, insertColumnList=%s, fileName=%s, " +
@@ -370,7 +431,9 @@ public class HdfsImport {
             ColumnInfo columnInfo = new ColumnInfo(conn, schemaName, tableName, insertColumnList);
             String insertSql = "INSERT INTO " + entityName + "(" + columnInfo.getInsertColumnNames() + ") " +
                 "--splice-properties insertMode=" + (isUpsert ? "UPSERT" : "INSERT") + ", statusDirectory=" +
-                badRecordDirectory + ", badRecordsAllowed=" + badRecordsAllowed + "\n" +
+                badRecordDirectory + ", badRecordsAllowed=" + badRecordsAllowed +
+                (bulkImportDirectory == null ? "" :
+                    ", bulkImportDirectory=" + bulkImportDirectory + ", skipSampling=" + skipSampling) + "\n" +
                 " SELECT * from " +
                 importVTI + " AS importVTI (" + columnInfo.getImportAsColumns() + ")";
 
@@ -304,6 +304,26 @@ public class SpliceSystemProcedures extends DefaultSystemProcedureGenerator {
                             .build();
                     procedures.add(upport);
 
+                    Procedure bulkImport = Procedure.newBuilder().name("BULK_IMPORT_HFILE")
+                            .numOutputParams(0).numResultSets(1).ownerClass(HdfsImport.class.getCanonicalName())
+                            .catalog("schemaName")
+                            .catalog("tableName")
+                            .varchar("insertColumnList",32672)
+                            .varchar("fileName",32672)
+                            .varchar("columnDelimiter",5)
+                            .varchar("characterDelimiter", 5)
+                            .varchar("timestampFormat",32672)
+                            .varchar("dateFormat",32672)
+                            .varchar("timeFormat",32672)
+                            .bigint("maxBadRecords")
+                            .varchar("badRecordDirectory",32672)
+                            .varchar("oneLineRecords",5)
+                            .varchar("charset",32672)
+                            .varchar("bulkImportDirectory",32672)
+                            .varchar("skipSampling",5)
+                            .build();
+                    procedures.add(bulkImport);
+
                     Procedure getAutoIncLocs = Procedure.newBuilder().name("SYSCS_GET_AUTO_INCREMENT_ROW_LOCATIONS")
                             .numOutputParams(0).numResultSets(1).ownerClass(HdfsImport.class.getCanonicalName())
                             .catalog("schemaName")
@@ -609,6 +629,28 @@ public class SpliceSystemProcedures extends DefaultSystemProcedureGenerator {
                     		.sqlControl(RoutineAliasInfo.NO_SQL).returnType(null).isDeterministic(false)
                     		.build());
 
+                    /*
+                     * Procedure to get the plan cache statistics of auto-parameterized statement shapes
+                     * on the server the connection is on.
+                     */
+                    procedures.add(Procedure.newBuilder().name("SYSCS_GET_STATEMENT_SHAPE_STATISTICS")
+                            .numOutputParams(0)
+                            .numResultSets(1)
+                            .ownerClass(SpliceAdmin.class.getCanonicalName())
+                            .sqlControl(RoutineAliasInfo.NO_SQL).returnType(null).isDeterministic(false)
+                            .build());
+
+                    /*
+                     * Procedure to get the block allocation statistics of the sequences and identity
+                     * columns in use on the server the connection is on.
+                     */
+                    procedures.add(Procedure.newBuilder().name("SYSCS_GET_SEQUENCE_ALLOCATION_STATISTICS")
+                            .numOutputParams(0)
+                            .numResultSets(1)
+                            .ownerClass(SpliceAdmin.class.getCanonicalName())
+                            .sqlControl(RoutineAliasInfo.NO_SQL).returnType(null).isDeterministic(false)
+                            .build());
+
                     procedures.add(Procedure.newBuilder().name("GET_ACTIVATION")
                             .numOutputParams(0)
                             .numResultSets(1)
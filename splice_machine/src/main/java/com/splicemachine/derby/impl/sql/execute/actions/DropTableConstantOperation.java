@@ -18,6 +18,7 @@ package com.splicemachine.derby.impl.sql.execute.actions;
 import com.splicemachine.db.impl.services.uuid.BasicUUID;
 import com.splicemachine.ddl.DDLMessage.*;
 import com.splicemachine.derby.ddl.DDLUtils;
+import com.splicemachine.derby.impl.stats.StalePartitionDetector;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
 import com.splicemachine.db.catalog.UUID;
 import com.splicemachine.db.iapi.services.sanity.SanityManager;
@@ -130,6 +131,7 @@ public class DropTableConstantOperation extends DDLSingleTableConstantOperation
 
             /* Remove Statistics*/
             dd.deletePartitionStatistics(cd.getConglomerateNumber(),tc);
+            StalePartitionDetector.forget(cd.getConglomerateNumber());
 
             /*
              * if it's for an index, since similar indexes share one conglomerate, we only drop the conglomerate once
@@ -18,10 +18,12 @@ package com.splicemachine.derby.impl.sql.execute.actions;
 import com.splicemachine.derby.impl.sql.execute.index.DistributedPopulateIndexJob;
 import com.splicemachine.derby.stream.utils.StreamUtils;
 import com.splicemachine.db.iapi.services.io.FormatableBitSet;
+import com.splicemachine.db.iapi.services.property.PropertyUtil;
 import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
 import com.splicemachine.derby.stream.output.WriteReadUtils;
 import org.sparkproject.guava.primitives.Ints;
 import com.splicemachine.EngineDriver;
+import com.splicemachine.access.configuration.DDLConfiguration;
 import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.ddl.DDLUtils;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
@@ -172,7 +174,13 @@ public abstract class IndexConstantOperation extends DDLSingleTableConstantOpera
 			String prefix = StreamUtils.getScopeString(this);
 			String userId = activation.getLanguageConnectionContext().getCurrentUserId(activation);
 			String jobGroup = userId + " <" +indexTransaction.getTxnId() +">";
-			EngineDriver.driver().getOlapClient().execute(new DistributedPopulateIndexJob(childTxn, builder, scope, jobGroup, prefix, tentativeIndex, indexFormatIds));
+			// a database property overrides the server-wide bulk load directory
+			String bulkLoadDirectory = PropertyUtil.getServiceProperty(
+					activation.getLanguageConnectionContext().getTransactionExecute(),
+					DDLConfiguration.INDEX_BULK_LOAD_DIRECTORY,
+					EngineDriver.driver().getConfiguration().getIndexBulkLoadDirectory());
+			EngineDriver.driver().getOlapClient().execute(new DistributedPopulateIndexJob(childTxn, builder, scope, jobGroup, prefix,
+					tentativeIndex, indexFormatIds, bulkLoadDirectory));
             childTxn.commit();
         } catch (IOException e) {
             throw Exceptions.parseException(e);
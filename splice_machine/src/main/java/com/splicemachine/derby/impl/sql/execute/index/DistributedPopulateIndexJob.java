@@ -41,10 +41,12 @@ public class DistributedPopulateIndexJob extends DistributedJob implements Exter
     String prefix;
     DDLMessage.TentativeIndex tentativeIndex;
     int[] indexFormatIds;
+    String bulkLoadDirectory;
 
     public DistributedPopulateIndexJob() {}
     public DistributedPopulateIndexJob(TxnView childTxn, ScanSetBuilder<LocatedRow> scanSetBuilder, String scope,
-                                       String jobGroup, String prefix, DDLMessage.TentativeIndex tentativeIndex, int[] indexFormatIds) {
+                                       String jobGroup, String prefix, DDLMessage.TentativeIndex tentativeIndex, int[] indexFormatIds,
+                                       String bulkLoadDirectory) {
         this.childTxn = childTxn;
         this.scanSetBuilder = scanSetBuilder;
         this.scope = scope;
@@ -52,6 +54,7 @@ public class DistributedPopulateIndexJob extends DistributedJob implements Exter
         this.prefix = prefix;
         this.tentativeIndex = tentativeIndex;
         this.indexFormatIds = indexFormatIds;
+        this.bulkLoadDirectory = bulkLoadDirectory;
     }
 
     @Override
@@ -72,6 +75,9 @@ public class DistributedPopulateIndexJob extends DistributedJob implements Exter
         out.writeUTF(prefix);
         out.writeObject(tentativeIndex.toByteArray());
         ArrayUtil.writeIntArray(out,indexFormatIds);
+        out.writeBoolean(bulkLoadDirectory != null);
+        if (bulkLoadDirectory != null)
+            out.writeUTF(bulkLoadDirectory);
         SIDriver.driver().getOperationFactory().writeTxn(childTxn,out);
     }
 
@@ -84,6 +90,8 @@ public class DistributedPopulateIndexJob extends DistributedJob implements Exter
         byte[] bytes = (byte[]) in.readObject();
         tentativeIndex = DDLMessage.TentativeIndex.parseFrom(bytes);
         indexFormatIds = ArrayUtil.readIntArray(in);
+        if (in.readBoolean())
+            bulkLoadDirectory = in.readUTF();
         childTxn = SIDriver.driver().getOperationFactory().readTxn(in);
     }
 }
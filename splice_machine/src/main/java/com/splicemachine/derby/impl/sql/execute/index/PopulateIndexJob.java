@@ -21,10 +21,12 @@ import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import com.splicemachine.derby.iapi.sql.olap.SuccessfulOlapResult;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.function.ConglomerateKVPairFunction;
 import com.splicemachine.derby.stream.function.IndexTransformFunction;
 import com.splicemachine.derby.stream.function.KVPairFunction;
 import com.splicemachine.derby.stream.iapi.*;
 import com.splicemachine.derby.stream.output.DataSetWriter;
+import com.splicemachine.kvpair.KVPair;
 import java.util.concurrent.Callable;
 
 /**
@@ -53,14 +55,31 @@ public class PopulateIndexJob implements Callable<Void> {
         DDLMessage.TentativeIndex tentativeIndex = request.tentativeIndex;
         String scope = request.scope;
         DataSet<LocatedRow> dataSet = request.scanSetBuilder.buildDataSet(request.prefix);
-        PairDataSet dsToWrite = dataSet
-                .map(new IndexTransformFunction(tentativeIndex,request.indexFormatIds), null, false, true, scope + ": Prepare Index")
-                .index(new KVPairFunction(), false, true, scope + ": Populate Index");
-        DataSetWriter writer = dsToWrite.directWriteData()
-                .operationContext(request.scanSetBuilder.getOperationContext())
-                .destConglomerate(tentativeIndex.getIndex().getConglomerate())
-                .txn(request.childTxn)
-                .build();
+        DataSet<KVPair> indexRows = dataSet
+                .map(new IndexTransformFunction(tentativeIndex,request.indexFormatIds), null, false, true, scope + ": Prepare Index");
+        long indexConglomerate = tentativeIndex.getIndex().getConglomerate();
+        String bulkLoadDirectory = request.bulkLoadDirectory;
+        DataSetWriter writer;
+        // unique indexes go through the pipeline, which reports duplicates against the right constraint
+        if (bulkLoadDirectory != null && !tentativeIndex.getIndex().getUnique()) {
+            writer = indexRows
+                    .index(new ConglomerateKVPairFunction(indexConglomerate), false, true, scope + ": Populate Index")
+                    .bulkWriteData()
+                    .stagingDirectory(bulkLoadDirectory)
+                    .sampling(true)
+                    .operationContext(request.scanSetBuilder.getOperationContext())
+                    .destConglomerate(indexConglomerate)
+                    .txn(request.childTxn)
+                    .build();
+        } else {
+            writer = indexRows
+                    .index(new KVPairFunction(), false, true, scope + ": Populate Index")
+                    .directWriteData()
+                    .operationContext(request.scanSetBuilder.getOperationContext())
+                    .destConglomerate(indexConglomerate)
+                    .txn(request.childTxn)
+                    .build();
+        }
         @SuppressWarnings("unused") DataSet<LocatedRow> result = writer.write();
         jobStatus.markCompleted(new SuccessfulOlapResult());
         return null;
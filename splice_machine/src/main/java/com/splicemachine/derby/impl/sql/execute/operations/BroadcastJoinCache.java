@@ -49,15 +49,19 @@ public class BroadcastJoinCache{
     }
 
     public BroadcastJoinCache(){
-       this(ByteBufferMapTableLoader.INSTANCE);
+       this(EncodedJoinTableLoader.INSTANCE);
     }
 
     public BroadcastJoinCache(JoinTableLoader tableLoader){
         this.tableLoader = tableLoader;
+        /*
+         * We deliberately hold strong references here. Tables are removed as soon as the last
+         * operation using them closes (or shortly after they stop being accessed), and letting the
+         * GC drop a table in the middle of a join only forces us to re-read the entire inner side.
+         */
         this.cache =CacheBuilder.newBuilder()
                 .maximumSize(1000)
                 .expireAfterAccess(2,TimeUnit.SECONDS)
-                .softValues()
                 .build();
     }
 
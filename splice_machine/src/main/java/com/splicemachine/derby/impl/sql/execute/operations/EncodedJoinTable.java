@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import org.sparkproject.guava.collect.AbstractIterator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * A JoinTable over an {@link EncodedRowHashTable}.
+ *
+ * Inner rows are kept in their encoded form, and are only decoded (into a new row, since
+ * callers are free to hold on to the rows that they are given) when they are returned
+ * from {@link #fetchInner(ExecRow)}.
+ */
+class EncodedJoinTable implements JoinTable{
+    private final EncodedRowHashTable table;
+    private final int[] outerHashKeys;
+    private final ExecRow innerTemplateRow;
+    private final KeyEncoder outerKeyEncoder;
+    private final KeyHashDecoder innerRowDecoder;
+
+    EncodedJoinTable(EncodedRowHashTable table,int[] outerHashKeys,ExecRow outerTemplateRow,ExecRow innerTemplateRow){
+        this.table=table;
+        this.outerHashKeys=outerHashKeys;
+        this.innerTemplateRow=innerTemplateRow;
+        if(table.isLongKeyed()){
+            this.outerKeyEncoder=null;
+        }else{
+            DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(outerTemplateRow);
+            this.outerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                    BareKeyHash.encoder(outerHashKeys,null,serializers),NoOpPostfix.INSTANCE);
+        }
+        if(innerTemplateRow==null){
+            this.innerRowDecoder=null; //the table is empty
+        }else{
+            DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(innerTemplateRow);
+            this.innerRowDecoder=BareKeyHash.decoder(null,null,innerSerializers);
+        }
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(table.size()<=0)
+            return Collections.emptyIterator();
+        int head;
+        if(table.isLongKeyed()){
+            DataValueDescriptor key=outer.getColumn(outerHashKeys[0]+1);
+            head=key.isNull()?table.nullKeyHead():table.find(key.getLong());
+        }else{
+            byte[] outerKey=outerKeyEncoder.getKey(outer);
+            assert outerKey!=null: "Programmer error: outer row does not have row key";
+            head=table.find(outerKey,0,outerKey.length);
+        }
+        if(head<0)
+            return Collections.emptyIterator();
+        return new InnerRowIterator(head);
+    }
+
+    //nothing to close
+    @Override public void close(){}
+
+    /**
+     * @return true if the join can use a long-keyed table: there is exactly one join column, and it is integral
+     * on both sides of the join.
+     */
+    static boolean isLongKeyed(int[] innerHashKeys,ExecRow innerRow,int[] outerHashKeys,ExecRow outerTemplateRow){
+        if(innerHashKeys.length!=1 || outerHashKeys.length!=1) return false;
+        try{
+            return isIntegral(innerRow.getColumn(innerHashKeys[0]+1))
+                    && isIntegral(outerTemplateRow.getColumn(outerHashKeys[0]+1));
+        }catch(StandardException e){
+            return false;
+        }
+    }
+
+    private static boolean isIntegral(DataValueDescriptor dvd){
+        if(dvd==null) return false;
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private class InnerRowIterator extends AbstractIterator<ExecRow>{
+        private int next;
+
+        InnerRowIterator(int head){
+            this.next=head;
+        }
+
+        @Override
+        protected ExecRow computeNext(){
+            if(next<0) return endOfData();
+            int row=next;
+            next=table.nextRow(row);
+            ExecRow decoded=innerTemplateRow.getNewNullRow();
+            innerRowDecoder.set(table.rowPage(row),table.rowOffset(row),table.rowLength(row));
+            try{
+                innerRowDecoder.decode(decoded);
+            }catch(StandardException e){
+                throw new RuntimeException(e);
+            }
+            return decoded;
+        }
+    }
+
+    static class Factory implements JoinTable.Factory{
+        private final EncodedRowHashTable table;
+        private final int[] outerHashKeys;
+        private final ExecRow outerTemplateRow;
+        private final ExecRow innerTemplateRow;
+
+        Factory(EncodedRowHashTable table,int[] outerHashKeys,ExecRow outerTemplateRow,ExecRow innerTemplateRow){
+            this.table=table;
+            this.outerHashKeys=outerHashKeys;
+            this.outerTemplateRow=outerTemplateRow;
+            this.innerTemplateRow=innerTemplateRow;
+        }
+
+        @Override
+        public JoinTable newTable(){
+            return new EncodedJoinTable(table,outerHashKeys,outerTemplateRow,innerTemplateRow);
+        }
+    }
+}
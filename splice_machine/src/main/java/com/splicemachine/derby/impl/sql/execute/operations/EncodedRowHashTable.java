@@ -0,0 +1,271 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import com.splicemachine.primitives.Bytes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An append-only multimap from an encoded join key to encoded rows.
+ *
+ * Rows (and, for byte[] keys, their keys) are copied into a small number of large byte[] pages, and
+ * located through an open-addressing hash table built out of primitive arrays. Rows sharing a key are
+ * chained together through {@link #nextRow(int)}. The result is that the table costs a handful of bytes
+ * of overhead per row, rather than the several objects per row of a {@code Map<ByteBuffer,List<ExecRow>>},
+ * and has no per-row objects for the garbage collector to trace.
+ *
+ * When the join is over a single integral column, the table can be built in <em>long-keyed</em> mode,
+ * which stores the key itself in the slot array rather than in the arena. In that mode rows
+ * with a null key are kept in a separate chain, available through {@link #nullKeyHead()}.
+ *
+ * Not thread safe during construction; once all rows have been added, any number of threads may
+ * read it concurrently.
+ */
+final class EncodedRowHashTable{
+    private static final int DEFAULT_PAGE_SIZE=1<<20;
+    private static final float LOAD_FACTOR=0.5f;
+    private static final Hash32 HASH=HashFunctions.murmur3(0);
+
+    private final boolean longKeyed;
+    private final int pageSize;
+
+    /*the arena*/
+    private final List<byte[]> pages=new ArrayList<>();
+    private byte[] currentPage;
+    private int pagePosition;
+
+    /*per-row metadata: the location of the row's record in the arena, and the next row with the same key*/
+    private long[] rowAddress=new long[16];
+    private int[] rowNext=new int[16];
+    private int rowCount;
+
+    /*the hash slots: the first row in the chain for each key, and that key's hash (or the key itself)*/
+    private int[] slotHead;
+    private int[] slotHash;
+    private long[] slotKey;
+    private int slotsUsed;
+    private int nullKeyHead=-1;
+
+    EncodedRowHashTable(boolean longKeyed){
+        this(longKeyed,DEFAULT_PAGE_SIZE,16);
+    }
+
+    EncodedRowHashTable(boolean longKeyed,int pageSize,int initialSlots){
+        this.longKeyed=longKeyed;
+        this.pageSize=pageSize;
+        int size=Integer.highestOneBit(Math.max(initialSlots,2)-1)<<1;
+        this.slotHead=new int[size];
+        Arrays.fill(slotHead,-1);
+        if(longKeyed)
+            this.slotKey=new long[size];
+        else
+            this.slotHash=new int[size];
+    }
+
+    boolean isLongKeyed(){
+        return longKeyed;
+    }
+
+    int size(){
+        return rowCount;
+    }
+
+    /**
+     * @return the approximate number of bytes held by this table
+     */
+    long heapSize(){
+        long size=0;
+        for(byte[] page : pages){
+            size+=page.length;
+        }
+        size+=rowAddress.length*8L+rowNext.length*4L;
+        size+=slotHead.length*(longKeyed?12L:8L);
+        return size;
+    }
+
+    void add(byte[] key,byte[] row){
+        assert !longKeyed: "Cannot add a byte[] key to a long-keyed table";
+        int hash=HASH.hash(key,0,key.length);
+        int slot=findSlot(key,0,key.length,hash);
+        long address=append(key,row);
+        if(slotHead[slot]<0){
+            slotHash[slot]=hash;
+            slotsUsed++;
+        }
+        slotHead[slot]=link(address,slotHead[slot]);
+        if(slotsUsed>slotHead.length*LOAD_FACTOR)
+            resize();
+    }
+
+    void add(long key,byte[] row){
+        assert longKeyed: "Cannot add a long key to a byte[]-keyed table";
+        int slot=findSlot(key);
+        long address=append(null,row);
+        if(slotHead[slot]<0){
+            slotKey[slot]=key;
+            slotsUsed++;
+        }
+        slotHead[slot]=link(address,slotHead[slot]);
+        if(slotsUsed>slotHead.length*LOAD_FACTOR)
+            resize();
+    }
+
+    void addNullKey(byte[] row){
+        assert longKeyed: "Null keys are only kept separately in long-keyed tables";
+        nullKeyHead=link(append(null,row),nullKeyHead);
+    }
+
+    /**
+     * @return the first row with the specified key, or -1 if there is no such row.
+     */
+    int find(byte[] key,int offset,int length){
+        int slot=findSlot(key,offset,length,HASH.hash(key,offset,length));
+        return slotHead[slot];
+    }
+
+    /**
+     * @return the first row with the specified key, or -1 if there is no such row.
+     */
+    int find(long key){
+        return slotHead[findSlot(key)];
+    }
+
+    int nullKeyHead(){
+        return nullKeyHead;
+    }
+
+    /**
+     * @return the next row with the same key as {@code row}, or -1 if {@code row} is the last.
+     */
+    int nextRow(int row){
+        return rowNext[row];
+    }
+
+    byte[] rowPage(int row){
+        return pages.get((int)(rowAddress[row]>>>32));
+    }
+
+    /**
+     * @return the offset of the encoded row within {@link #rowPage(int)}
+     */
+    int rowOffset(int row){
+        byte[] page=rowPage(row);
+        int offset=(int)rowAddress[row];
+        if(!longKeyed)
+            offset+=4+Bytes.toInt(page,offset);
+        return offset+4;
+    }
+
+    int rowLength(int row){
+        byte[] page=rowPage(row);
+        int offset=(int)rowAddress[row];
+        if(!longKeyed)
+            offset+=4+Bytes.toInt(page,offset);
+        return Bytes.toInt(page,offset);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private int findSlot(byte[] key,int offset,int length,int hash){
+        int mask=slotHead.length-1;
+        int slot=hash&mask;
+        while(true){
+            int head=slotHead[slot];
+            if(head<0) return slot;
+            if(slotHash[slot]==hash && keyEquals(head,key,offset,length)) return slot;
+            slot=(slot+1)&mask;
+        }
+    }
+
+    private int findSlot(long key){
+        int mask=slotHead.length-1;
+        int slot=HASH.hash(key)&mask;
+        while(true){
+            if(slotHead[slot]<0 || slotKey[slot]==key) return slot;
+            slot=(slot+1)&mask;
+        }
+    }
+
+    private boolean keyEquals(int row,byte[] key,int offset,int length){
+        byte[] page=rowPage(row);
+        int keyOffset=(int)rowAddress[row];
+        int keyLength=Bytes.toInt(page,keyOffset);
+        return Bytes.equals(page,keyOffset+4,keyLength,key,offset,length);
+    }
+
+    private int link(long address,int next){
+        if(rowCount==rowAddress.length){
+            rowAddress=Arrays.copyOf(rowAddress,rowCount*2);
+            rowNext=Arrays.copyOf(rowNext,rowCount*2);
+        }
+        rowAddress[rowCount]=address;
+        rowNext[rowCount]=next;
+        return rowCount++;
+    }
+
+    private long append(byte[] key,byte[] row){
+        int recordSize=4+row.length;
+        if(key!=null)
+            recordSize+=4+key.length;
+        if(currentPage==null || pagePosition+recordSize>currentPage.length){
+            currentPage=new byte[Math.max(pageSize,recordSize)];
+            pages.add(currentPage);
+            pagePosition=0;
+        }
+        long address=(((long)(pages.size()-1))<<32)|pagePosition;
+        if(key!=null)
+            pagePosition=put(key,currentPage,pagePosition);
+        pagePosition=put(row,currentPage,pagePosition);
+        return address;
+    }
+
+    private static int put(byte[] data,byte[] page,int position){
+        Bytes.toBytes(data.length,page,position);
+        System.arraycopy(data,0,page,position+4,data.length);
+        return position+4+data.length;
+    }
+
+    private void resize(){
+        int[] oldHead=slotHead;
+        int[] oldHash=slotHash;
+        long[] oldKey=slotKey;
+        int newSize=oldHead.length*2;
+        int mask=newSize-1;
+        slotHead=new int[newSize];
+        Arrays.fill(slotHead,-1);
+        if(longKeyed)
+            slotKey=new long[newSize];
+        else
+            slotHash=new int[newSize];
+
+        for(int i=0;i<oldHead.length;i++){
+            if(oldHead[i]<0) continue;
+            int slot=(longKeyed?HASH.hash(oldKey[i]):oldHash[i])&mask;
+            while(slotHead[slot]>=0)
+                slot=(slot+1)&mask;
+            slotHead[slot]=oldHead[i];
+            if(longKeyed)
+                slotKey[slot]=oldKey[i];
+            else
+                slotHash[slot]=oldHash[i];
+        }
+    }
+}
@@ -18,6 +18,11 @@ package com.splicemachine.derby.impl.sql.execute.operations;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.splicemachine.derby.stream.iapi.*;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -27,10 +32,17 @@ import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.loader.GeneratedMethod;
 import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.ConstraintDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.KeyConstraintDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.sql.execute.HasIncrement;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.RowLocation;
+import com.splicemachine.db.catalog.UUID;
 import com.splicemachine.db.impl.sql.compile.InsertNode;
 import com.splicemachine.db.impl.sql.execute.BaseActivation;
 import com.splicemachine.derby.iapi.sql.execute.DataSetProcessorFactory;
@@ -40,14 +52,22 @@ import com.splicemachine.derby.impl.sql.execute.actions.InsertConstantOperation;
 import com.splicemachine.derby.impl.sql.execute.sequence.SequenceKey;
 import com.splicemachine.derby.impl.sql.execute.sequence.SpliceSequence;
 import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.ddl.DDLUtils;
+import com.splicemachine.derby.stream.function.BulkInsertRowsFunction;
+import com.splicemachine.derby.stream.function.BulkLoadPairFunction;
 import com.splicemachine.derby.stream.function.InsertPairFunction;
 import com.splicemachine.derby.stream.output.DataSetWriter;
 import com.splicemachine.derby.stream.output.WriteReadUtils;
 import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
 import com.splicemachine.pipeline.ErrorState;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.pipeline.constraint.ConstraintContext;
+import com.splicemachine.protobuf.ProtoUtil;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.Pair;
 
 
@@ -70,6 +90,8 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
     public InsertNode.InsertMode insertMode;
     public String statusDirectory;
     private int failBadRecordCount;
+    private String bulkImportDirectory;
+    private boolean skipSampling;
 
 
     @Override
@@ -88,6 +110,8 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
                            String insertMode,
                            String statusDirectory,
                            int failBadRecordCount,
+                           String bulkImportDirectory,
+                           boolean skipSampling,
                            double optimizerEstimatedRowCount,
                            double optimizerEstimatedCost,
                            String tableVersion) throws StandardException{
@@ -95,6 +119,8 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         this.insertMode=InsertNode.InsertMode.valueOf(insertMode);
         this.statusDirectory=statusDirectory;
         this.failBadRecordCount = (failBadRecordCount >= 0 ? failBadRecordCount : -1);
+        this.bulkImportDirectory=bulkImportDirectory;
+        this.skipSampling=skipSampling;
         init();
     }
 
@@ -214,6 +240,9 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         if(in.readBoolean())
             statusDirectory=in.readUTF();
         failBadRecordCount=in.readInt();
+        if(in.readBoolean())
+            bulkImportDirectory=in.readUTF();
+        skipSampling=in.readBoolean();
     }
 
     @Override
@@ -229,6 +258,10 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         if(statusDirectory!=null)
             out.writeUTF(statusDirectory);
         out.writeInt(failBadRecordCount);
+        out.writeBoolean(bulkImportDirectory!=null);
+        if(bulkImportDirectory!=null)
+            out.writeUTF(bulkImportDirectory);
+        out.writeBoolean(skipSampling);
     }
 
     @SuppressWarnings({ "unchecked" })
@@ -250,6 +283,24 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         try{
             if(statusDirectory!=null)
                 dsp.setSchedulerPool("import");
+            if(bulkImportDirectory!=null){
+                Map<Long,ConstraintContext> uniqueConstraints=new HashMap<>();
+                List<DDLMessage.TentativeIndex> indexes=getBulkLoadIndexes(dsp,uniqueConstraints);
+                if(indexes!=null){
+                    PairDataSet dataSet=set.flatMap(new BulkInsertRowsFunction(operationContext,pkCols,tableVersion,
+                            execRowTypeFormatIds,heapConglom,txn,indexes))
+                            .index(new BulkLoadPairFunction());
+                    DataSetWriter writer=dataSet.bulkWriteData()
+                            .stagingDirectory(bulkImportDirectory)
+                            .sampling(!skipSampling)
+                            .uniqueConstraints(uniqueConstraints)
+                            .destConglomerate(heapConglom)
+                            .operationContext(operationContext)
+                            .txn(txn)
+                            .build();
+                    return writer.write();
+                }
+            }
             PairDataSet dataSet=set.index(new InsertPairFunction(operationContext),true);
             DataSetWriter writer=dataSet.insertData(operationContext)
                     .autoIncrementRowLocationArray(autoIncrementRowLocationArray)
@@ -270,6 +321,85 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
 
     }
 
+    /**
+     * Bulk loads write storage files directly, so they bypass the write pipeline that fires triggers,
+     * resolves upserts, checks foreign keys and checks keys against existing rows. Those statements, and
+     * loads into a table or index which already holds data, fall back to the pipeline.
+     *
+     * @param uniqueConstraints filled with the primary key or unique constraint of each conglomerate which
+     *                          enforces one, so that duplicates among the loaded rows are reported against it
+     * @return the indexes to build alongside the table, or null if this insert cannot be bulk loaded
+     */
+    private List<DDLMessage.TentativeIndex> getBulkLoadIndexes(DataSetProcessor dsp,
+                                                               Map<Long,ConstraintContext> uniqueConstraints) throws StandardException{
+        if(dsp.getType()!=DataSetProcessor.Type.SPARK
+                || insertMode!=InsertNode.InsertMode.INSERT
+                || getTriggerHandler()!=null){
+            LOG.warn("Cannot bulk load into conglomerate "+heapConglom+" for this statement, using the write pipeline");
+            return null;
+        }
+        LanguageConnectionContext lcc=activation.getLanguageConnectionContext();
+        DataDictionary dd=lcc.getDataDictionary();
+        ConglomerateDescriptor cd=dd.getConglomerateDescriptor(heapConglom);
+        TableDescriptor td=dd.getTableDescriptor(cd.getTableID());
+        Map<UUID,ConstraintDescriptor> keyConstraints=new HashMap<>();
+        for(ConstraintDescriptor constraint:dd.getConstraintDescriptors(td)){
+            switch(constraint.getConstraintType()){
+                case DataDictionary.FOREIGNKEY_CONSTRAINT:
+                    LOG.warn("Cannot bulk load into "+td.getName()+" since it has foreign keys, using the write pipeline");
+                    return null;
+                case DataDictionary.PRIMARYKEY_CONSTRAINT:
+                    uniqueConstraints.put(heapConglom,ConstraintContext.primaryKey(td.getName(),constraint.getConstraintName()));
+                    break;
+                case DataDictionary.UNIQUE_CONSTRAINT:
+                    keyConstraints.put(((KeyConstraintDescriptor)constraint).getConglomerateId(),constraint);
+                    break;
+            }
+        }
+        if(!isEmpty(heapConglom)){
+            LOG.warn("Cannot bulk load into "+td.getName()+" since it is not empty, using the write pipeline");
+            return null;
+        }
+        // Group by conglomerate number, since several descriptors may share the same index conglomerate
+        Map<Long,ConglomerateDescriptor> indexConglomerates=new LinkedHashMap<>();
+        for(ConglomerateDescriptor conglomerate:td.getConglomerateDescriptorList()){
+            if(!conglomerate.isIndex())
+                continue;
+            ConglomerateDescriptor existing=indexConglomerates.get(conglomerate.getConglomerateNumber());
+            if(existing==null || (!existing.getIndexDescriptor().isUnique() && conglomerate.getIndexDescriptor().isUnique()))
+                indexConglomerates.put(conglomerate.getConglomerateNumber(),conglomerate);
+        }
+        List<DDLMessage.TentativeIndex> indexes=new ArrayList<>(indexConglomerates.size());
+        for(ConglomerateDescriptor conglomerate:indexConglomerates.values()){
+            if(!isEmpty(conglomerate.getConglomerateNumber())){
+                LOG.warn("Cannot bulk load into "+td.getName()+" since index "+conglomerate.getConglomerateName()+
+                        " is not empty, using the write pipeline");
+                return null;
+            }
+            if(conglomerate.getIndexDescriptor().isUnique()){
+                ConstraintDescriptor constraint=keyConstraints.get(conglomerate.getUUID());
+                String constraintName=constraint!=null?constraint.getConstraintName():conglomerate.getConglomerateName();
+                uniqueConstraints.put(conglomerate.getConglomerateNumber(),ConstraintContext.unique(td.getName(),constraintName));
+            }
+            indexes.add(ProtoUtil.createTentativeIndex(lcc,heapConglom,conglomerate.getConglomerateNumber(),td,
+                    conglomerate.getIndexDescriptor().getIndexDescriptor()));
+        }
+        return indexes;
+    }
+
+    /**
+     * Checks for any data in a conglomerate, regardless of its visibility to this transaction, so that
+     * deleted or uncommitted rows also count.
+     */
+    private static boolean isEmpty(long conglomerate) throws StandardException{
+        try(Partition table=SIDriver.driver().getTableFactory().getTable(Long.toString(conglomerate));
+            DataScanner scanner=table.openScanner(DDLUtils.createFullScan())){
+            return scanner.next(1).isEmpty();
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }
+    }
+
     @Override
     public String getVTIFileName(){
         return getSubOperations().get(0).getVTIFileName();
@@ -281,11 +281,18 @@ public class ProjectRestrictOperation extends SpliceBaseOperation {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException {
+        return getDataSet(dsp, -1L);
+    }
+
+    @Override
+    public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp, long rowLimit) throws StandardException {
         if (alwaysFalse) {
             return dsp.getEmpty();
         }
         OperationContext operationContext = dsp.createOperationContext(this);
-        DataSet<LocatedRow> sourceSet = source.getDataSet(dsp);
+        // without a restriction we produce a row for every source row, so the source may use the same limit
+        DataSet<LocatedRow> sourceSet = rowLimit > 0 && restrictionMethodName == null
+                ? source.getDataSet(dsp, rowLimit) : source.getDataSet(dsp);
         try {
             operationContext.pushScope();
             return sourceSet.flatMap(new ProjectRestrictFlatMapFunction<SpliceOperation>(operationContext), true);
@@ -194,7 +194,8 @@ public class RowCountOperation extends SpliceBaseOperation {
         final long fetchLimit = getFetchLimit();
         long offset = getTotalOffset();
         OperationContext operationContext = dsp.createOperationContext(this);
-        DataSet<LocatedRow> sourceSet = source.getDataSet(dsp);
+        // let an ORDER BY underneath us keep only the rows we are going to return
+        DataSet<LocatedRow> sourceSet = fetchLimit > 0 ? source.getDataSet(dsp, offset + fetchLimit) : source.getDataSet(dsp);
         return sourceSet.zipWithIndex().mapPartitions(new OffsetFunction<SpliceOperation, LocatedRow>(operationContext, offset, fetchLimit));
     }
 
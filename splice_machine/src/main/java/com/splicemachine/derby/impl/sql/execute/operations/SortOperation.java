@@ -196,8 +196,16 @@ public class SortOperation extends SpliceBaseOperation{
                 .toString();
     }
 
-    @SuppressWarnings({"rawtypes","unchecked"})
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException{
+        return getDataSet(dsp,-1L);
+    }
+
+    /**
+     * When only the first {@code rowLimit} rows are consumed, the sort need not order its whole input.
+     */
+    @Override
+    @SuppressWarnings({"rawtypes","unchecked"})
+    public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp,long rowLimit) throws StandardException{
         OperationContext operationContext=dsp.createOperationContext(this);
         DataSet dataSet=source.getDataSet(dsp);
 
@@ -220,7 +228,7 @@ public class SortOperation extends SpliceBaseOperation{
 
         operationContext.pushScopeForOp(OperationContext.Scope.SHUFFLE);
         PairDataSet sortedByKey=pair.sortByKey(new RowComparator(descColumns,nullsOrderedLow),
-            OperationContext.Scope.SORT.displayName());
+            OperationContext.Scope.SORT.displayName(),rowLimit);
         operationContext.popScope();
 
         operationContext.pushScopeForOp(OperationContext.Scope.READ_SORTED);
@@ -814,4 +814,9 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
     public DataSet<LocatedRow> getResultDataSet(DataSetProcessor dsp) throws StandardException {
         return getDataSet(dsp);
     }
+
+    @Override
+    public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp,long rowLimit) throws StandardException {
+        return getDataSet(dsp);
+    }
 }
@@ -34,6 +34,7 @@ import com.splicemachine.si.api.filter.SIFilter;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.filter.HRowAccumulator;
 import com.splicemachine.si.impl.txn.DDLTxnView;
 import com.splicemachine.si.impl.filter.PackedTxnFilter;
@@ -46,11 +47,18 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.log4j.Logger;
 import java.io.IOException;
 import com.carrotsearch.hppc.BitSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 /**
- * TableScanner which applies SI to generate a row
+ * TableScanner which applies SI to generate a row.
+ * <p>
+ * When the SI filter supports it, rows are read from the underlying scanner in blocks of
+ * {@code splice.txn.scanBatchSize}, and the filter is given the whole block to resolve
+ * transactional visibility for before the rows are filtered one at a time.
+ *
  * @author Scott Fines
  * Date: 4/4/14
  */
@@ -82,6 +90,11 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private EntryDecoder entryDecoder;
     private final Counter outputBytesCounter;
     private long demarcationPoint;
+    private final int batchSize;
+    private TxnFilter batchFilter;
+    private final List<List<DataCell>> batch;
+    private int batchPosition;
+    private boolean scannerExhausted;
 
     protected SITableScanner(DataScanner scanner,
                              final TransactionalRegion region,
@@ -115,6 +128,9 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         this.keyDecoderProvider = getKeyDecoder(accessedPks, keyColumnEncodingOrder,
                 keyColumnTypes, VersionedSerializers.typesForVersion(tableVersion));
         this.tableVersion = tableVersion;
+        SIDriver driver = SIDriver.driver();
+        this.batchSize = driver==null?1:driver.getConfiguration().getScanBatchSize();
+        this.batch = batchSize>1?new ArrayList<List<DataCell>>(batchSize):Collections.<List<DataCell>>emptyList();
         if(filterFactory==null){
             this.filterFactory = createFilterFactory(txn, demarcationPoint);
         }
@@ -156,7 +172,7 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         SIFilter filter = getSIFilter();
         do{
             template.resetRowArray(); //necessary to deal with null entries--maybe make the underlying call faster?
-            List<DataCell> keyValues=regionScanner.next(-1);
+            List<DataCell> keyValues=nextRow();
 
             if(keyValues.size()<=0){
                 currentRowLocation = null;
@@ -242,8 +258,13 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         return regionScanner.getRowsVisited();
     }
 
+    public long getFilesSkipped() {
+        return regionScanner.getFilesSkipped();
+    }
+
     public void setRegionScanner(DataScanner scanner){
         this.regionScanner = scanner;
+        this.scannerExhausted = false;
     }
 
     public long getBytesVisited() {
@@ -322,10 +343,43 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
             predicateFilter= buildInitialPredicateFilter();
             accumulator = ExecRowAccumulator.newAccumulator(predicateFilter, false, template, rowDecodingMap, tableVersion);
             siFilter = filterFactory.newFilter(predicateFilter,getRowEntryDecoder(),accumulator,isCountStar);
+            if(batchSize>1 && siFilter instanceof TxnFilter)
+                batchFilter = (TxnFilter)siFilter;
         }
         return siFilter;
     }
 
+    /**
+     * @return the cells of the next row, or an empty list if the scanner is exhausted.
+     */
+    private List<DataCell> nextRow() throws IOException{
+        if(batchFilter==null)
+            return regionScanner.next(-1);
+        if(batchPosition>=batch.size()){
+            fillBatch();
+            if(batch.size()<=0)
+                return Collections.emptyList();
+        }
+        List<DataCell> row = batch.get(batchPosition);
+        batch.set(batchPosition,null); //let the row be collected once it's been returned
+        batchPosition++;
+        return row;
+    }
+
+    private void fillBatch() throws IOException{
+        batch.clear();
+        batchPosition = 0;
+        while(!scannerExhausted && batch.size()<batchSize){
+            List<DataCell> cells = regionScanner.next(-1);
+            if(cells.size()<=0)
+                scannerExhausted = true;
+            else
+                batch.add(new ArrayList<>(cells)); //the scanner may reuse its list for the next row
+        }
+        if(batch.size()>0)
+            batchFilter.prepareBatch(batch);
+    }
+
     protected EntryDecoder getRowEntryDecoder() {
         return new EntryDecoder();
     }
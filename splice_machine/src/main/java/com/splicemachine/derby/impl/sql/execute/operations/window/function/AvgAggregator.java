@@ -22,12 +22,19 @@ import com.splicemachine.db.iapi.sql.execute.WindowFunction;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.NumberDataValue;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLSmallint;
+import com.splicemachine.db.iapi.types.SQLTinyint;
 
 /**
+ * AVG over a window frame, kept as a running sum and count of the non-null values in the frame.
  *
  * Created by jyuan on 7/31/14.
  */
-public class AvgAggregator extends SpliceGenericWindowFunction {
+public class AvgAggregator extends RunningWindowAggregator {
+    private NumberDataValue sum;
+    private long count;
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
@@ -37,53 +44,54 @@ public class AvgAggregator extends SpliceGenericWindowFunction {
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
+    protected void addValue(DataValueDescriptor value) throws StandardException {
+        if (isNull(value)) {
+            return;
+        }
+        if (sum == null) {
+            sum = newSum(value);
+        } else {
+            sum = sum.plus(sum, (NumberDataValue) value, sum);
+        }
+        count++;
     }
 
     @Override
-    protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvds[0].cloneValue(false));
+    protected void removeValue(DataValueDescriptor value) throws StandardException {
+        if (isNull(value)) {
+            return;
+        }
+        if (--count == 0) {
+            sum = null;
         } else {
-            NumberDataValue input = (NumberDataValue)dvds[0];
-            if (input != null && ! input.isNull()) {
-                NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-                nv.plus(input, nv, nv);
-                chunk.setResult(nv);
-            }
+            sum = sum.minus(sum, (NumberDataValue) value, sum);
         }
     }
 
     @Override
-    protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        NumberDataValue input = (NumberDataValue)dvds[0];
-        if (input != null && ! input.isNull()) {
-            NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-            nv.minus(nv, input, nv);
-            chunk.setResult(nv);
-        }
+    protected void clear() {
+        sum = null;
+        count = 0;
     }
 
     public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        long count = first.last - first.first;
-        NumberDataValue result = (NumberDataValue)first.getResult().cloneValue(false);
-        long r = result.getLong();
-        for (int i = 1; i < chunks.size(); ++i) {
-            WindowChunk chunk = chunks.get(i);
-            NumberDataValue dvd = (NumberDataValue)chunk.getResult();
-            r += dvd.getLong();
-            count += chunk.last - chunk.first;
+        if (count == 0) {
+            return nullResult();
         }
-        result.setValue((r*1.0)/count);
+        DataValueDescriptor result = resultType.cloneValue(false);
+        result.setValue(sum.getDouble() / count);
         return result;
     }
 
     public WindowFunction newWindowFunction() {
         return new AvgAggregator();
     }
+
+    private static NumberDataValue newSum(DataValueDescriptor first) throws StandardException {
+        if (first instanceof SQLTinyint || first instanceof SQLSmallint || first instanceof SQLInteger) {
+            // widen, so that the running sum can't overflow where the average itself wouldn't
+            return new SQLLongint(first.getLong());
+        }
+        return (NumberDataValue) first.cloneValue(false);
+    }
 }
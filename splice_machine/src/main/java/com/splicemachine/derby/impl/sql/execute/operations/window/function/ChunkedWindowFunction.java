@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.window.function;
+
+import java.util.ArrayList;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Base class for window functions which keep the rows of the frame, in chunks of {@link #CHUNKSIZE} rows, and
+ * recalculate their result over a chunk as rows enter and leave it.
+ */
+public abstract class ChunkedWindowFunction extends SpliceGenericWindowFunction {
+
+    public static final int CHUNKSIZE = 100;
+    protected ArrayList<WindowChunk> chunks;
+    protected WindowChunk first, last;
+
+    @Override
+    protected void add(DataValueDescriptor[] addends) throws StandardException{
+        if (first == null && last == null) {
+            reset();
+        }
+
+        if (last.isFull()) {
+            last = new WindowChunk();
+            chunks.add(last);
+        }
+        last.add(addends);
+        calculateOnAdd(last, addends);
+    }
+
+    @Override
+    public DataValueDescriptor[] remove() throws StandardException{
+
+        DataValueDescriptor[] dvd = first.remove();
+        if (first.consumed()) {
+            chunks.remove(first);
+            if (chunks.size() == 0) {
+                first = last = null;
+                return null;
+            }
+            first = chunks.get(0);
+        }
+        else {
+            calculateOnRemove(first, dvd);
+        }
+        return dvd;
+    }
+
+    protected abstract void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException;
+
+    protected abstract void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException;
+
+    @Override
+    public void reset() {
+        WindowChunk chunk = new WindowChunk();
+        first = last = chunk;
+        chunks = new ArrayList<>();
+        chunks.add(chunk);
+    }
+
+    protected class WindowChunk {
+        DataValueDescriptor result;
+        DataValueDescriptor[] previous;
+        DataValueDescriptor[][] values;
+        int first, last;
+
+        public WindowChunk() {
+            values = new DataValueDescriptor[CHUNKSIZE][];
+            first = last = 0;
+        }
+
+        @SuppressFBWarnings(value = "EI_EXPOSE_REP",justification = "Intentional")
+        public DataValueDescriptor[] getPrevious() {
+            return previous;
+        }
+
+        @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
+        public void setPrevious(DataValueDescriptor[] previousValues) {
+            this.previous = previousValues;
+        }
+
+        public DataValueDescriptor getResult() {
+            return result;
+        }
+
+        public DataValueDescriptor[] remove() {
+            return values[first++];
+        }
+
+        public void add(DataValueDescriptor[] v) {
+            values[last++] = v;
+        }
+
+        public void setResult(DataValueDescriptor v) throws StandardException {
+            if (result == null) {
+                result = resultType.cloneValue(false);
+            }
+            this.result.setValue(v);
+        }
+
+        public DataValueDescriptor[] get(int i) {
+            return values[i];
+        }
+
+        private boolean consumed () {
+            return (first >= last);
+        }
+
+        private boolean isFull() {
+            return (last == CHUNKSIZE);
+        }
+    }
+}
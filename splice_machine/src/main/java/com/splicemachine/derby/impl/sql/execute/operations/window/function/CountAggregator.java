@@ -24,10 +24,12 @@ import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.SQLLongint;
 
 /**
+ * COUNT over a window frame.
  *
  * Created by jyuan on 7/31/14.
  */
-public class CountAggregator extends SpliceGenericWindowFunction {
+public class CountAggregator extends RunningWindowAggregator {
+    private long count;
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
@@ -37,37 +39,21 @@ public class CountAggregator extends SpliceGenericWindowFunction {
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
+    protected void addValue(DataValueDescriptor value) throws StandardException {
+        count++;
     }
 
     @Override
-    protected void calculateOnAdd(SpliceGenericWindowFunction.WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            SQLLongint r = new SQLLongint(1);
-            chunk.setResult(r);
-        } else {
-            long count = result.getLong();
-            result.setValue(count+1);
-            chunk.setResult(result);
-        }
+    protected void removeValue(DataValueDescriptor value) throws StandardException {
+        count--;
     }
 
     @Override
-    protected void calculateOnRemove(SpliceGenericWindowFunction.WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        long count = result.getLong();
-        result.setValue(count-1);
-        chunk.setResult(result);
+    protected void clear() {
+        count = 0;
     }
 
     public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        long count = 0;
-        for (WindowChunk chunk : chunks) {
-            count += chunk.getResult().getLong();
-        }
         return new SQLLongint(count);
     }
 
@@ -42,7 +42,7 @@ import com.splicemachine.db.iapi.types.SQLLongint;
  * @author Jeff Cunningham
  *         Date: 8/5/14
  */
-public class DenseRankFunction extends SpliceGenericWindowFunction implements WindowFunction {
+public class DenseRankFunction extends ChunkedWindowFunction implements WindowFunction {
     private long rank;
 
     @Override
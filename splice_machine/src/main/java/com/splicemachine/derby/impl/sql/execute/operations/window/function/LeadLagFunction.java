@@ -30,7 +30,7 @@ import com.splicemachine.db.impl.sql.compile.LeadLagFunctionDefinition;
  * @author Jeff Cunningham
  *         Date: 9/30/15
  */
-public class LeadLagFunction extends SpliceGenericWindowFunction {
+public class LeadLagFunction extends ChunkedWindowFunction {
     private int offset;
     // TODO: JC - handle default value
     private DataValueDescriptor defaultValue;
@@ -88,6 +88,11 @@ public class LeadLagFunction extends SpliceGenericWindowFunction {
         return leadLag;
     }
 
+    @Override
+    public boolean needsEntireFrame() {
+        return true;
+    }
+
     @Override
     public DataValueDescriptor getResult() throws StandardException {
         return chunks.get(0).getResult();
@@ -18,6 +18,7 @@ package com.splicemachine.derby.impl.sql.execute.operations.window.function;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayDeque;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableHashtable;
@@ -27,11 +28,20 @@ import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 
 /**
+ * MAX or MIN over a window frame.
+ * <p/>
+ * The candidates for the result are kept in a monotonic deque: a value is dropped as soon as a
+ * later value arrives which is at least as good, since it can never be the result again (the later
+ * value will stay in the frame for at least as long). The head of the deque is then always the
+ * result, and each value is added and dropped at most once, however wide the frame is.
  *
  * Created by jyuan on 7/22/14.
  */
-public class MaxMinAggregator extends SpliceGenericWindowFunction {
+public class MaxMinAggregator extends RunningWindowAggregator {
     private boolean isMax;
+    private ArrayDeque<Candidate> candidates;
+    private long added;
+    private long removed;
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
@@ -42,69 +52,41 @@ public class MaxMinAggregator extends SpliceGenericWindowFunction {
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
-    }
-
-    @Override
-    protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvd) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvd[0]);
+    protected void addValue(DataValueDescriptor value) throws StandardException {
+        long position = added++;
+        if (isNull(value)) {
+            return;
         }
-        else if(isMax && dvd[0].compare(result) > 0) {
-            chunk.setResult(dvd[0]);
+        if (!removable) {
+            // nothing ever leaves the frame, so only the best value so far matters
+            if (candidates.isEmpty() || isBetter(value, candidates.peekFirst().value)) {
+                candidates.clear();
+                candidates.addLast(new Candidate(position, value));
+            }
+            return;
         }
-        else if (!isMax && dvd[0].compare(result) < 0) {
-            chunk.setResult(dvd[0]);
+        while (!candidates.isEmpty() && !isBetter(candidates.peekLast().value, value)) {
+            candidates.pollLast();
         }
+        candidates.addLast(new Candidate(position, value));
     }
 
     @Override
-    protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        if (dvds[0].compare(result) == 0) {
-            recalculate(chunk);
+    protected void removeValue(DataValueDescriptor value) throws StandardException {
+        long position = removed++;
+        if (!candidates.isEmpty() && candidates.peekFirst().position == position) {
+            candidates.pollFirst();
         }
     }
 
-    private void recalculate(WindowChunk chunk) throws StandardException{
-        DataValueDescriptor result = chunk.get(chunk.first)[0];
-
-        for (int i = chunk.first+1; i < chunk.last; ++i) {
-            DataValueDescriptor dvd = chunk.get(i)[0];
-            if (isMax) {
-                if (dvd.compare(result) > 0) {
-                    result = dvd;
-                }
-            }
-            else {
-                if (dvd.compare(result) < 0) {
-                    result = dvd;
-                }
-            }
-        }
-        chunk.setResult(result);
+    @Override
+    protected void clear() {
+        candidates = new ArrayDeque<>();
+        added = removed = 0;
     }
 
     public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        DataValueDescriptor result = first.getResult();
-        for (int i = 1; i < chunks.size(); ++i) {
-            DataValueDescriptor dvd = chunks.get(i).getResult();
-            if (isMax) {
-                if (dvd.compare(result) > 0) {
-                    result = dvd;
-                }
-            }
-            else {
-                if (dvd.compare(result) < 0) {
-                    result = dvd;
-                }
-            }
-        }
-        return result;
+        return candidates.isEmpty() ? nullResult() : candidates.peekFirst().value;
     }
 
     @Override
@@ -123,4 +105,19 @@ public class MaxMinAggregator extends SpliceGenericWindowFunction {
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         isMax = in.readBoolean();
     }
+
+    private boolean isBetter(DataValueDescriptor value, DataValueDescriptor than) throws StandardException {
+        int c = value.compare(than);
+        return isMax ? c > 0 : c < 0;
+    }
+
+    private static class Candidate {
+        final long position;
+        final DataValueDescriptor value;
+
+        Candidate(long position, DataValueDescriptor value) {
+            this.position = position;
+            this.value = value;
+        }
+    }
 }
@@ -42,7 +42,7 @@ import com.splicemachine.db.iapi.types.SQLLongint;
  * @author Jeff Cunningham
  *         Date: 8/5/14
  */
-public class RankFunction extends SpliceGenericWindowFunction implements WindowFunction {
+public class RankFunction extends ChunkedWindowFunction implements WindowFunction {
     // running count of all the rows
     private long rowNum;
     // the row rank. If values in the ranking column are the same, they receive the same rank.
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations.window.function;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+import java.util.ArrayDeque;
+
+/**
+ * Base class for aggregates which keep a single running result for the whole frame, and which
+ * can take a value back out of that result when it leaves the frame. Sliding the frame by one
+ * row is then O(1) (amortized), no matter how wide the frame is.
+ * <p/>
+ * Values leave the frame in the order that they entered it, so the inputs are retained in a
+ * queue until they do; when the frame has no lower bound, nothing ever leaves, and nothing
+ * is retained.
+ */
+public abstract class RunningWindowAggregator extends SpliceGenericWindowFunction {
+    private ArrayDeque<DataValueDescriptor[]> frame;
+
+    @Override
+    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
+        this.add(valueDescriptors);
+    }
+
+    @Override
+    protected void add(DataValueDescriptor[] addends) throws StandardException {
+        if (removable) {
+            frame.addLast(addends);
+        }
+        addValue(addends[0]);
+    }
+
+    @Override
+    public DataValueDescriptor[] remove() throws StandardException {
+        DataValueDescriptor[] dvds = frame.pollFirst();
+        if (dvds != null) {
+            removeValue(dvds[0]);
+        }
+        return dvds;
+    }
+
+    @Override
+    public void reset() {
+        // called from the super constructor, so subclass state can't rely on field initializers
+        frame = new ArrayDeque<>();
+        clear();
+    }
+
+    /**
+     * Include a value which has just entered the frame in the running result.
+     */
+    protected abstract void addValue(DataValueDescriptor value) throws StandardException;
+
+    /**
+     * Take the oldest value in the frame, which is now leaving it, back out of the running result.
+     */
+    protected abstract void removeValue(DataValueDescriptor value) throws StandardException;
+
+    /**
+     * Reset the running result to that of an empty frame.
+     */
+    protected abstract void clear();
+
+    protected DataValueDescriptor nullResult() {
+        DataValueDescriptor result = resultType.cloneValue(false);
+        result.setToNull();
+        return result;
+    }
+
+    protected static boolean isNull(DataValueDescriptor value) {
+        return value == null || value.isNull();
+    }
+}
@@ -18,7 +18,6 @@ package com.splicemachine.derby.impl.sql.execute.operations.window.function;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.util.ArrayList;
 import java.util.List;
 
 import com.splicemachine.db.iapi.error.StandardException;
@@ -28,20 +27,22 @@ import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
 import com.splicemachine.db.iapi.sql.execute.WindowFunction;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
- * Base class for all window functions. Contains frame "chucking" mechanism for
- * window frames.
+ * Base class for all window functions. Functions are given the values of the rows as they enter the frame
+ * (see {@link #add(DataValueDescriptor[])}) and leave it (see {@link #remove()}), and keep whatever state they need
+ * to produce their result; see {@link ChunkedWindowFunction} and {@link RunningWindowAggregator}.
  *
  * Created by jyuan on 7/28/14.
  */
 public abstract class SpliceGenericWindowFunction implements WindowFunction {
 
-    public static final int CHUNKSIZE = 100;
     protected DataValueDescriptor resultType;
-    protected ArrayList<WindowChunk> chunks;
-    protected WindowChunk first, last;
+    /**
+     * Whether values can ever leave the frame. When they can't (the frame starts at UNBOUNDED PRECEDING),
+     * functions which keep a running result have no need to retain their inputs.
+     */
+    protected boolean removable = true;
 
     public SpliceGenericWindowFunction() {
         reset();
@@ -62,39 +63,17 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         this.resultType = resultType.cloneValue(false);
     }
 
-    protected void add(DataValueDescriptor[] addends) throws StandardException{
-        if (first == null && last == null) {
-            reset();
-        }
-
-        if (last.isFull()) {
-            last = new WindowChunk();
-            chunks.add(last);
-        }
-        last.add(addends);
-        calculateOnAdd(last, addends);
-    }
-
-    public DataValueDescriptor[] remove() throws StandardException{
-
-        DataValueDescriptor[] dvd = first.remove();
-        if (first.consumed()) {
-            chunks.remove(first);
-            if (chunks.size() == 0) {
-                first = last = null;
-                return null;
-            }
-            first = chunks.get(0);
-        }
-        else {
-            calculateOnRemove(first, dvd);
-        }
-        return dvd;
-    }
-
-    protected abstract void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException;
+    /**
+     * Include the values of a row which has just entered the frame.
+     */
+    protected abstract void add(DataValueDescriptor[] addends) throws StandardException;
 
-    protected abstract void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException;
+    /**
+     * Take the values of the oldest row in the frame, which is now leaving it, back out.
+     *
+     * @return the values which left the frame
+     */
+    public abstract DataValueDescriptor[] remove() throws StandardException;
 
     /**
      * Return the first non-zero comparison of each array item in order.<br/>
@@ -138,14 +117,6 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         return (dvd == null || dvd.length == 0);
     }
 
-    public void reset() {
-        WindowChunk chunk = new WindowChunk();
-        first = last = chunk;
-        chunks = new ArrayList<>();
-        chunks.add(chunk);
-    }
-
-
     public void writeExternal(ObjectOutput out) throws IOException {
         // default to doing nothing
     }
@@ -164,59 +135,6 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         }
     }
 
-    protected class WindowChunk {
-        DataValueDescriptor result;
-        DataValueDescriptor[] previous;
-        DataValueDescriptor[][] values;
-        int first, last;
-
-        public WindowChunk() {
-            values = new DataValueDescriptor[CHUNKSIZE][];
-            first = last = 0;
-        }
-
-        @SuppressFBWarnings(value = "EI_EXPOSE_REP",justification = "Intentional")
-        public DataValueDescriptor[] getPrevious() {
-            return previous;
-        }
-
-        @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
-        public void setPrevious(DataValueDescriptor[] previousValues) {
-            this.previous = previousValues;
-        }
-
-        public DataValueDescriptor getResult() {
-            return result;
-        }
-
-        public DataValueDescriptor[] remove() {
-            return values[first++];
-        }
-
-        public void add(DataValueDescriptor[] v) {
-            values[last++] = v;
-        }
-
-        public void setResult(DataValueDescriptor v) throws StandardException {
-            if (result == null) {
-                result = resultType.cloneValue(false);
-            }
-            this.result.setValue(v);
-        }
-
-        public DataValueDescriptor[] get(int i) {
-            return values[i];
-        }
-
-        private boolean consumed () {
-            return (first >= last);
-        }
-
-        private boolean isFull() {
-            return (last == CHUNKSIZE);
-        }
-    }
-
     //
     // Derby no-ops
     //
@@ -249,4 +167,16 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         // override/implement if function needs the entire frame
         return null;
     }
+
+    /**
+     * @return true if this function can only produce its results once the entire frame has been
+     * seen (via {@link #finishFrame()}), rather than as each row's frame is completed.
+     */
+    public boolean needsEntireFrame() {
+        return false;
+    }
+
+    public void setRemovable(boolean removable) {
+        this.removable = removable;
+    }
 }
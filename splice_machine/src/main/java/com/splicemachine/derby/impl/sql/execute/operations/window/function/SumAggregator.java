@@ -24,10 +24,13 @@ import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.NumberDataValue;
 
 /**
+ * SUM over a window frame. Values leaving the frame are subtracted back out of the running sum.
  *
  * Created by jyuan on 7/31/14.
  */
-public class SumAggregator extends SpliceGenericWindowFunction {
+public class SumAggregator extends RunningWindowAggregator {
+    private NumberDataValue sum;
+    private long nonNullCount;
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
@@ -37,46 +40,41 @@ public class SumAggregator extends SpliceGenericWindowFunction {
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
+    protected void addValue(DataValueDescriptor value) throws StandardException {
+        if (isNull(value)) {
+            return;
+        }
+        if (sum == null) {
+            // sum in the result type, which is wide enough not to overflow where the input type would
+            sum = (NumberDataValue) (resultType != null ? resultType.cloneValue(false) : value.cloneValue(false));
+            sum.setValue(value);
+        } else {
+            sum = sum.plus(sum, (NumberDataValue) value, sum);
+        }
+        nonNullCount++;
     }
 
     @Override
-    protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvds[0].cloneValue(false));
+    protected void removeValue(DataValueDescriptor value) throws StandardException {
+        if (isNull(value)) {
+            return;
+        }
+        if (--nonNullCount == 0) {
+            sum = null; // start afresh, rather than carrying forward any rounding from the subtractions
         } else {
-            NumberDataValue input = (NumberDataValue)dvds[0];
-            if (input != null && ! input.isNull()) {
-                NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-                nv.plus(input, nv, nv);
-                chunk.setResult(nv);
-            }
+            sum = sum.minus(sum, (NumberDataValue) value, sum);
         }
     }
 
     @Override
-    protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        NumberDataValue input = (NumberDataValue)dvds[0];
-        if (input != null && ! input.isNull()) {
-            NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-            nv.minus(nv, input, nv);
-            chunk.setResult(nv);
-        }
+    protected void clear() {
+        sum = null;
+        nonNullCount = 0;
     }
 
     @Override
     public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        NumberDataValue result = (NumberDataValue)first.getResult();
-        for (int i = 1; i < chunks.size(); ++i) {
-            NumberDataValue dvd = (NumberDataValue)chunks.get(i).getResult();
-            result.plus(result, dvd, result);
-        }
-        return result;
+        return sum == null ? nullResult() : sum;
     }
 
     @Override
@@ -17,39 +17,95 @@ package com.splicemachine.derby.impl.sql.execute.sequence;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.pipeline.Exceptions;
+import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Hands out sequence values from blocks reserved on the sequence row.
+ *
+ * Values are taken from the current block without locking. When a block holds more than one value,
+ * the next block is reserved asynchronously once half of the current block has been handed out, so
+ * callers only wait on the sequence row when values are consumed faster than a block can be reserved.
+ * The size of each block adapts to the consumption rate: it doubles (up to {@code maxBlockAllocationSize})
+ * when a block is used up in less than half of {@code allocationInterval}, and halves (down to
+ * {@code blockAllocationSize}) when a block lasts more than four times that long.
+ */
 public abstract class AbstractSequence implements Sequence, Externalizable{
-    protected final AtomicLong remaining=new AtomicLong(0l);
+    private static final ExecutorService PREFETCH_EXECUTOR=Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("sequence-prefetch-%d").setDaemon(true).build());
+
     protected final AtomicLong currPosition=new AtomicLong(0l);
     protected long blockAllocationSize;
+    protected long maxBlockAllocationSize;
+    protected long allocationInterval;
     protected long incrementSteps;
     protected final Lock updateLock=new ReentrantLock();
     protected long startingValue;
 
+    private volatile Block current;
+    private Future<Block> prefetch; // guarded by updateLock
+    private volatile long currentBlockSize;
+
+    private final AtomicLong allocations=new AtomicLong(0l);
+    private final AtomicLong allocationConflicts=new AtomicLong(0l);
+    private final AtomicLong prefetches=new AtomicLong(0l);
+    private final AtomicLong stalls=new AtomicLong(0l);
+    private final AtomicLong stallNanos=new AtomicLong(0l);
+
     public AbstractSequence(){
 
     }
 
     public AbstractSequence(long blockAllocationSize,long incrementSteps,long startingValue){
-        if(incrementSteps>blockAllocationSize)
-            blockAllocationSize=incrementSteps;
+        this(blockAllocationSize,blockAllocationSize,0l,incrementSteps,startingValue);
+    }
+
+    /**
+     * @param blockAllocationSize the smallest block to reserve, in units of the sequence value
+     * @param maxBlockAllocationSize the largest block to reserve, in units of the sequence value
+     * @param allocationInterval the time (in milliseconds) a block should last at the observed consumption rate
+     * @param incrementSteps the increment of the sequence
+     * @param startingValue the starting value of the sequence
+     */
+    public AbstractSequence(long blockAllocationSize,long maxBlockAllocationSize,long allocationInterval,
+                            long incrementSteps,long startingValue){
+        if(Math.abs(incrementSteps)>blockAllocationSize)
+            blockAllocationSize=Math.abs(incrementSteps);
+        if(maxBlockAllocationSize<blockAllocationSize)
+            maxBlockAllocationSize=blockAllocationSize;
         this.blockAllocationSize=blockAllocationSize;
+        this.maxBlockAllocationSize=maxBlockAllocationSize;
+        this.allocationInterval=allocationInterval;
         this.incrementSteps=incrementSteps;
         this.startingValue=startingValue;
     }
 
     public long getNext() throws StandardException{
-        if(remaining.getAndDecrement()<=0)
-            allocateBlock();
-        return currPosition.getAndAdd(incrementSteps);
+        while(true){
+            Block block=current;
+            if(block!=null){
+                long index=block.used.getAndIncrement();
+                if(index<block.count){
+                    if(index==block.prefetchAt)
+                        startPrefetch(block);
+                    return block.first+index*incrementSteps;
+                }
+            }
+            nextBlock(block);
+        }
     }
 
     protected abstract long getCurrentValue() throws IOException;
@@ -58,32 +114,197 @@ public abstract class AbstractSequence implements Sequence, Externalizable{
 
     public abstract void close() throws IOException;
 
-    private void allocateBlock() throws StandardException{
-        boolean success=false;
-        while(!success){
-            updateLock.lock();
-            try{
-                if(remaining.getAndDecrement()>0)
-                    return;
-                currPosition.set(getCurrentValue());
-                success=atomicIncrement(currPosition.get()+(incrementSteps>blockAllocationSize?incrementSteps:blockAllocationSize));
-                if(success){
-                    remaining.set(blockAllocationSize/incrementSteps-1);
+    /**
+     * @return the number of blocks reserved on the sequence row
+     */
+    public long getAllocations(){
+        return allocations.get();
+    }
+
+    /**
+     * @return the number of reservations which lost a race on the sequence row and had to be retried
+     */
+    public long getAllocationConflicts(){
+        return allocationConflicts.get();
+    }
+
+    /**
+     * @return the number of blocks reserved ahead of time
+     */
+    public long getPrefetches(){
+        return prefetches.get();
+    }
+
+    /**
+     * @return the number of times a caller had to wait for a block to be reserved
+     */
+    public long getStalls(){
+        return stalls.get();
+    }
+
+    /**
+     * @return the total time (in nanoseconds) callers waited for blocks to be reserved
+     */
+    public long getStallNanos(){
+        return stallNanos.get();
+    }
+
+    public long getBlockAllocationSize(){
+        return blockAllocationSize;
+    }
+
+    /**
+     * @return the size of the next block to be reserved
+     */
+    public long getCurrentBlockSize(){
+        long size=currentBlockSize;
+        return size>0?size:blockAllocationSize;
+    }
+
+    public long getIncrementSteps(){
+        return incrementSteps;
+    }
+
+    private boolean isAdaptive(){
+        return blockAllocationSize>Math.abs(incrementSteps);
+    }
+
+    private void startPrefetch(Block block){
+        updateLock.lock();
+        try{
+            if(prefetch!=null || current!=block)
+                return;
+            adapt(block);
+            final long size=getCurrentBlockSize();
+            prefetch=PREFETCH_EXECUTOR.submit(new Callable<Block>(){
+                @Override
+                public Block call() throws Exception{
+                    return reserve(size);
+                }
+            });
+            prefetches.incrementAndGet();
+        }finally{
+            updateLock.unlock();
+        }
+    }
+
+    private void nextBlock(Block exhausted) throws StandardException{
+        updateLock.lock();
+        try{
+            if(current!=exhausted)
+                return; // another caller already replaced it
+            long start=System.nanoTime();
+            boolean ready=prefetch!=null && prefetch.isDone();
+            Block next=takePrefetched();
+            if(next==null){
+                ready=false;
+                try{
+                    next=reserve(getCurrentBlockSize());
+                }catch(IOException e){
+                    throw Exceptions.parseException(e);
+                }
+            }
+            long now=System.nanoTime();
+            if(exhausted!=null && !ready){
+                stalls.incrementAndGet();
+                stallNanos.addAndGet(now-start);
+            }
+            next.activatedAt=now;
+            current=next;
+        }finally{
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Wait for the block being reserved in the background, if there is one. A failed prefetch is
+     * dropped so that the caller can retry the reservation itself.
+     */
+    private Block takePrefetched(){
+        Future<Block> pending=prefetch;
+        if(pending==null)
+            return null;
+        prefetch=null;
+        boolean interrupted=false;
+        try{
+            while(true){
+                try{
+                    return pending.get();
+                }catch(InterruptedException ie){
+                    interrupted=true;
                 }
-            }catch(IOException e){
-                throw Exceptions.parseException(e);
-            }finally{
-                updateLock.unlock();
             }
+        }catch(ExecutionException ee){
+            return null;
+        }finally{
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Size the next block so that it lasts about {@code allocationInterval} at the rate the
+     * first half of the current block was consumed.
+     */
+    private void adapt(Block block){
+        if(allocationInterval<=0)
+            return;
+        long lifetime=2*TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-block.activatedAt);
+        long size=getCurrentBlockSize();
+        if(lifetime<allocationInterval/2)
+            size=Math.min(size*2,maxBlockAllocationSize);
+        else if(lifetime>allocationInterval*4)
+            size=Math.max(size/2,blockAllocationSize);
+        currentBlockSize=size;
+    }
+
+    /**
+     * Reserve a block on the sequence row, retrying when another server reserves concurrently.
+     * Only one reservation is in flight at a time: either the prefetch, or a caller holding
+     * {@link #updateLock} after waiting for the prefetch.
+     */
+    private Block reserve(long size) throws IOException{
+        // a descending sequence reserves its block below the current value
+        long step=Math.abs(incrementSteps);
+        long span=step>size?step:size;
+        if(incrementSteps<0)
+            span=-span;
+        while(true){
+            currPosition.set(getCurrentValue());
+            if(atomicIncrement(currPosition.get()+span)){
+                allocations.incrementAndGet();
+                return new Block(currPosition.get(),Math.max(size/step,1l),isAdaptive());
+            }
+            allocationConflicts.incrementAndGet();
         }
     }
 
+    /**
+     * A block of reserved values. Values are claimed by incrementing {@code used}; a caller
+     * which claims an index past {@code count} has to move on to the next block.
+     */
+    private static final class Block{
+        final long first;
+        final long count;
+        final long prefetchAt;
+        final AtomicLong used=new AtomicLong(0l);
+
+        volatile long activatedAt;
+
+        Block(long first,long count,boolean prefetch){
+            this.first=first;
+            this.count=count;
+            this.prefetchAt=prefetch?count/2:-1l;
+        }
+    }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException{
         out.writeLong(blockAllocationSize);
         out.writeLong(incrementSteps);
         out.writeLong(startingValue);
+        out.writeLong(maxBlockAllocationSize);
+        out.writeLong(allocationInterval);
     }
 
     @Override
@@ -91,5 +312,7 @@ public abstract class AbstractSequence implements Sequence, Externalizable{
         blockAllocationSize=in.readLong();
         incrementSteps=in.readLong();
         startingValue=in.readLong();
+        maxBlockAllocationSize=in.readLong();
+        allocationInterval=in.readLong();
     }
 }
@@ -16,8 +16,10 @@
 package com.splicemachine.derby.impl.sql.execute.sequence;
 
 import com.splicemachine.access.api.PartitionFactory;
+import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.tools.ResourcePool;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -70,7 +72,9 @@ public class SequenceKey implements ResourcePool.Key{
     }
 
     public SpliceSequence makeNew() throws StandardException{
-        return new SpliceSequence(blockAllocationSize,sysColumnsRow,
+        SConfiguration config=SIDriver.driver().getConfiguration();
+        return new SpliceSequence(blockAllocationSize,config.getSequenceMaxBlockSize(),
+                config.getSequenceAllocationInterval(),sysColumnsRow,
                 autoIncStart, autoIncrement,partitionFactory,opFactory);
     }
 }
\ No newline at end of file
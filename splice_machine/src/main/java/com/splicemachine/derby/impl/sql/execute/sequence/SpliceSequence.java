@@ -49,6 +49,29 @@ public class SpliceSequence extends AbstractSequence{
         this.opFactory = operationFactory;
     }
 
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
+    public SpliceSequence(long blockAllocationSize,
+                          long maxBlockAllocationSize,
+                          long allocationInterval,
+                          byte[] sysColumnsRow,
+                          long startingValue,
+                          long incrementSteps,
+                          PartitionFactory partitionFactory,
+                          TxnOperationFactory operationFactory){
+        super(blockAllocationSize,maxBlockAllocationSize,allocationInterval,incrementSteps,startingValue);
+        this.sysColumnsRow=sysColumnsRow;
+        this.partitionFactory = partitionFactory;
+        this.opFactory = operationFactory;
+    }
+
+    /**
+     * @return the row of the sequence (or identity column) this sequence reserves its blocks on
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP",justification = "Intentional")
+    public byte[] getSysColumnsRow(){
+        return sysColumnsRow;
+    }
+
     @Override
     protected long getCurrentValue() throws IOException{
         try(Partition sysColumnTable = partitionFactory.getTable(OperationConfiguration.SEQUENCE_TABLE_NAME_BYTES)){
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.storage.PartitionLoad;
+import com.splicemachine.storage.PartitionServer;
+import com.splicemachine.utils.Pair;
+import org.sparkproject.guava.cache.Cache;
+import org.sparkproject.guava.cache.CacheBuilder;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which partitions of a table need their statistics re-collected, based on the number
+ * of writes each partition has served since statistics were last collected for it.
+ *
+ * The write counters reported by the storage layer are reset whenever a partition is (re)opened,
+ * and the statistics tables have no place to keep them, so the counter observed at the last collection
+ * is held in memory here. When no baseline is known (or the counter has gone backwards because the partition
+ * moved), the whole counter is treated as new writes, which can only ever make a partition look
+ * more stale than it really is.
+ *
+ * That also makes it safe to forget baselines: they are held per conglomerate, forgotten when the statistics
+ * of the conglomerate are dropped (which includes dropping the table), and otherwise expire once no collection
+ * has looked at them for {@link #BASELINE_EXPIRATION_HOURS}. Baselines of partitions which have been split or
+ * merged away are pruned whenever a collection records new ones.
+ */
+public class StalePartitionDetector {
+    private static final long BASELINE_EXPIRATION_HOURS = 7*24;
+    private static final long MAX_TABLES = 10000;
+
+    /*conglomerate id -> (partition name -> write count when statistics were last collected)*/
+    private static final Cache<Long,Map<String,Long>> collectedWriteCounts = CacheBuilder.newBuilder()
+            .maximumSize(MAX_TABLES)
+            .expireAfterAccess(BASELINE_EXPIRATION_HOURS,TimeUnit.HOURS)
+            .build();
+
+    private static final Comparator<Partition> startKeyOrder = new Comparator<Partition>(){
+        @Override
+        public int compare(Partition o1,Partition o2){
+            return Bytes.startComparator.compare(o1.getStartKey(),o2.getStartKey());
+        }
+    };
+
+    /**
+     * Fetch the current write counters of the specified partitions, keyed by partition name. The counters
+     * are fetched with a single pass over the servers' loads; a partition which no server reports (e.g. because
+     * it is in transition) is asked directly.
+     */
+    public static Map<String,Long> getWriteCounts(List<Partition> partitions) throws StandardException{
+        Map<String,Long> writeCounts = new HashMap<>(partitions.size());
+        Set<String> names = new HashSet<>(partitions.size());
+        for(Partition partition:partitions){
+            names.add(partition.getName());
+        }
+        try{
+            try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
+                for(PartitionServer server:admin.allServers()){
+                    for(PartitionLoad load:server.getLoad().getPartitionLoads()){
+                        if(names.contains(load.getPartitionName()))
+                            writeCounts.put(load.getPartitionName(),load.getWriteRequestCount());
+                    }
+                }
+            }
+            for(Partition partition:partitions){
+                if(!writeCounts.containsKey(partition.getName()))
+                    writeCounts.put(partition.getName(),partition.getLoad().getWriteRequestCount());
+            }
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }
+        return writeCounts;
+    }
+
+    /**
+     * @return true if a partition with the given statistics and write counters should be re-collected.
+     * A partition is stale if it has no statistics, or if it has seen at least {@code max(minWrites, staleFraction*rowCount)}
+     * writes since its statistics were collected.
+     */
+    public static boolean isStale(boolean hasStatistics,
+                                  long rowCount,
+                                  long baseline,
+                                  long writeCount,
+                                  double staleFraction,
+                                  long minWrites){
+        if(!hasStatistics) return true;
+        long writes = writeCount>=baseline? writeCount-baseline : writeCount;
+        double threshold = Math.max(minWrites,staleFraction*rowCount);
+        return writes>=threshold;
+    }
+
+    public static List<Partition> stalePartitions(long conglomerateId,
+                                                  List<Partition> partitions,
+                                                  List<PartitionStatisticsDescriptor> statistics,
+                                                  Map<String,Long> writeCounts,
+                                                  double staleFraction,
+                                                  long minWrites){
+        Map<String,PartitionStatisticsDescriptor> statsByPartition = new HashMap<>(statistics.size());
+        for(PartitionStatisticsDescriptor desc:statistics){
+            statsByPartition.put(desc.getPartitionId(),desc);
+        }
+        Map<String,Long> baselines = collectedWriteCounts.getIfPresent(conglomerateId);
+        if(baselines==null)
+            baselines = Collections.emptyMap();
+        List<Partition> stale = new ArrayList<>();
+        for(Partition partition:partitions){
+            String name = partition.getName();
+            PartitionStatisticsDescriptor desc = statsByPartition.get(name);
+            Long baseline = baselines.get(name);
+            Long writeCount = writeCounts.get(name);
+            if(isStale(desc!=null,
+                    desc==null?0l:desc.getRowCount(),
+                    baseline==null?0l:baseline,
+                    writeCount==null?0l:writeCount,
+                    staleFraction,
+                    minWrites))
+                stale.add(partition);
+        }
+        return stale;
+    }
+
+    /**
+     * Coalesce the stale partitions into contiguous key ranges, so that neighbouring stale partitions
+     * are collected by a single scan.
+     *
+     * @return the [start,end) key of each range of adjacent stale partitions, in key order
+     */
+    public static List<Pair<byte[],byte[]>> contiguousRanges(List<Partition> partitions,Collection<Partition> stale){
+        List<Partition> sorted = new ArrayList<>(partitions);
+        Collections.sort(sorted,startKeyOrder);
+        Set<String> staleNames = new HashSet<>(stale.size());
+        for(Partition partition:stale){
+            staleNames.add(partition.getName());
+        }
+        List<Pair<byte[],byte[]>> ranges = new ArrayList<>();
+        byte[] start = null;
+        byte[] end = null;
+        for(Partition partition:sorted){
+            if(staleNames.contains(partition.getName())){
+                if(start==null)
+                    start = partition.getStartKey();
+                end = partition.getEndKey();
+            }else if(start!=null){
+                ranges.add(Pair.newPair(start,end));
+                start = null;
+            }
+        }
+        if(start!=null)
+            ranges.add(Pair.newPair(start,end));
+        return ranges;
+    }
+
+    /**
+     * Remember the write counters observed when statistics were collected for the given partitions of
+     * a conglomerate.
+     *
+     * @param writeCounts the write counters of every partition of the conglomerate. Baselines of partitions
+     *                    which are not in here no longer exist, and are discarded.
+     */
+    public static synchronized void recordCollected(long conglomerateId,
+                                                    Collection<Partition> collected,
+                                                    Map<String,Long> writeCounts){
+        Map<String,Long> previous = collectedWriteCounts.getIfPresent(conglomerateId);
+        Map<String,Long> baselines = new HashMap<>(writeCounts.size());
+        if(previous!=null){
+            for(Map.Entry<String,Long> baseline:previous.entrySet()){
+                if(writeCounts.containsKey(baseline.getKey()))
+                    baselines.put(baseline.getKey(),baseline.getValue());
+            }
+        }
+        for(Partition partition:collected){
+            Long writeCount = writeCounts.get(partition.getName());
+            if(writeCount!=null)
+                baselines.put(partition.getName(),writeCount);
+        }
+        collectedWriteCounts.put(conglomerateId,Collections.unmodifiableMap(baselines));
+    }
+
+    /**
+     * Forget the baselines of a conglomerate, e.g. because its statistics (or the conglomerate itself)
+     * have been dropped.
+     */
+    public static void forget(long conglomerateId){
+        collectedWriteCounts.invalidate(conglomerateId);
+    }
+}
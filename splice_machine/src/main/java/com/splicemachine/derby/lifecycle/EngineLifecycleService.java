@@ -41,6 +41,9 @@ import com.splicemachine.pipeline.PipelineDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.contextfactory.ReferenceCountingFactoryDriver;
+import com.splicemachine.hbase.jmx.JMXUtils;
+import com.splicemachine.si.api.txn.TransactionCacheManagement;
+import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.tools.EmbedConnectionMaker;
 import com.splicemachine.tools.version.ManifestReader;
@@ -138,6 +141,15 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
              * this exception and don't worry about it too much.
              */
         }
+
+        TxnSupplier txnSupplier=SIDriver.driver().getTxnSupplier();
+        if(txnSupplier instanceof TransactionCacheManagement){
+            try{
+                mbs.registerMBean(txnSupplier,new ObjectName(JMXUtils.TRANSACTION_CACHE_MANAGEMENT));
+            }catch(InstanceAlreadyExistsException ignored){
+                //same as above
+            }
+        }
     }
 
     @Override
@@ -18,13 +18,13 @@ package com.splicemachine.derby.stream.control;
 import com.google.common.base.Function;
 import org.sparkproject.guava.collect.FluentIterable;
 import org.sparkproject.guava.collect.Iterables;
-import org.sparkproject.guava.collect.Multimaps;
 import org.sparkproject.guava.collect.Sets;
 import org.sparkproject.guava.util.concurrent.Futures;
 import com.splicemachine.access.api.DistributedFileSystem;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.stream.control.output.ControlExportDataSetWriter;
+import com.splicemachine.derby.stream.control.spill.SpillContext;
 import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -44,7 +44,6 @@ import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.Future;
 
-import static com.splicemachine.derby.stream.control.ControlUtils.entryToTuple;
 
 /**
  *
@@ -114,7 +113,7 @@ public class ControlDataSet<V> implements DataSet<V> {
                     throw new RuntimeException(e);
                 }
             }
-        }));
+        }),SpillContext.forOperation(function.operationContext));
     }
 
     @Override
@@ -149,7 +148,13 @@ public class ControlDataSet<V> implements DataSet<V> {
 
     @Override
     public <Op extends SpliceOperation, K> PairDataSet<K, V> keyBy(final SpliceFunction<Op, V, K> function) {
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.index(iterable,function).entries()));
+        return new ControlPairDataSet<>(FluentIterable.from(iterable).transform(new Function<V, Tuple2<K, V>>() {
+            @Nullable
+            @Override
+            public Tuple2<K, V> apply(@Nullable V v) {
+                return new Tuple2<>(function.apply(v),v);
+            }
+        }),SpillContext.forOperation(function.operationContext));
     }
 
     @Override
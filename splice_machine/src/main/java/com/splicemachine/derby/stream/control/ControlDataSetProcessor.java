@@ -16,6 +16,8 @@
 package com.splicemachine.derby.stream.control;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
@@ -26,6 +28,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.zip.GZIPInputStream;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -210,6 +213,21 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return readTextFile(s);
     }
 
+    @Override
+    public DataSet<byte[]> readTextFileBytes(final String s,SpliceOperation op){
+        return new ControlDataSet<>(new Iterable<byte[]>(){
+            @Override
+            public Iterator<byte[]> iterator(){
+                try{
+                    InputStream is=getFileStream(s);
+                    return new TextFileBytesIterator(is);
+                }catch(IOException e){
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
+
     @Override
     public <K,V> PairDataSet<K, V> getEmptyPair(){
         Iterable<Tuple2<K, V>> ks=Collections.emptyList();
@@ -256,6 +274,62 @@ public class ControlDataSetProcessor implements DataSetProcessor{
 
     }
 
+    /**
+     * Splits a stream into lines, as {@link TextFileIterator} does, without decoding them.
+     */
+    private static class TextFileBytesIterator implements Iterator<byte[]>{
+        private final InputStream in;
+        private final ByteArrayOutputStream line=new ByteArrayOutputStream();
+        private byte[] next;
+        private boolean eof;
+
+        public TextFileBytesIterator(InputStream inputStream){
+            this.in=new BufferedInputStream(inputStream);
+        }
+
+        @Override
+        public void remove(){
+        }
+
+        @Override
+        public byte[] next(){
+            if(!hasNext()) throw new NoSuchElementException();
+            byte[] n=next;
+            next=null;
+            return n;
+        }
+
+        @Override
+        public boolean hasNext(){
+            if(next!=null) return true;
+            if(eof) return false;
+            try{
+                line.reset();
+                int b;
+                while((b=in.read())>=0){
+                    if(b=='\n'){
+                        next=line.toByteArray();
+                        return true;
+                    }else if(b=='\r'){
+                        in.mark(1);
+                        if(in.read()!='\n')
+                            in.reset();
+                        next=line.toByteArray();
+                        return true;
+                    }
+                    line.write(b);
+                }
+                eof=true;
+                in.close();
+                if(line.size()>0)
+                    next=line.toByteArray();
+                return next!=null;
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     @Override
     public void setPermissive(String statusDirectory, String importFileName, long badRecordThreshold){
         this.permissive = true;
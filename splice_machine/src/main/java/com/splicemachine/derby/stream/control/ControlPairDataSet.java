@@ -20,14 +20,20 @@ import com.google.common.base.Optional;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.control.spill.ExternalSorter;
+import com.splicemachine.derby.stream.control.spill.SpillContext;
+import com.splicemachine.derby.stream.control.spill.SpillingHashOperations;
 import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.PairDataSet;
+import com.splicemachine.derby.stream.control.output.ControlBulkDataSetWriter;
+import com.splicemachine.derby.stream.output.BulkWriteDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.DataSetWriter;
 import com.splicemachine.derby.stream.output.DataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.InsertDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.UpdateDataSetWriterBuilder;
+import com.splicemachine.derby.stream.output.bulk.BulkTableWriterBuilder;
 import com.splicemachine.derby.stream.output.delete.DeletePipelineWriter;
 import com.splicemachine.derby.stream.output.delete.DeleteTableWriterBuilder;
 import com.splicemachine.derby.stream.output.direct.DirectDataSetWriter;
@@ -39,16 +45,19 @@ import com.splicemachine.derby.stream.output.update.UpdatePipelineWriter;
 import com.splicemachine.derby.stream.output.update.UpdateTableWriterBuilder;
 import com.splicemachine.kvpair.KVPair;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.sparkproject.guava.base.Predicate;
 import org.sparkproject.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
 import java.util.*;
-import static com.splicemachine.derby.stream.control.ControlUtils.entryToTuple;
 import static com.splicemachine.derby.stream.control.ControlUtils.multimapFromIterable;
 
 /**
+ * Pair DataSet which executes in the local JVM.
  *
+ * Hash-based operations (grouping, reducing and hash joins) are performed through
+ * {@link SpillingHashOperations}, and sorts through {@link ExternalSorter}, so that they will
+ * spill to local disk rather than exhaust the heap when the data exceeds the configured
+ * {@link SpillContext memory budget}.
  *
  * @see org.sparkproject.guava.collect.Multimap
  * @see org.sparkproject.guava.collect.Multimaps
@@ -57,8 +66,15 @@ import static com.splicemachine.derby.stream.control.ControlUtils.multimapFromIt
  */
 public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     public Iterable<Tuple2<K,V>> source;
+    private final SpillContext spillContext;
+
     public ControlPairDataSet(Iterable<Tuple2<K,V>> source) {
+        this(source,null);
+    }
+
+    public ControlPairDataSet(Iterable<Tuple2<K,V>> source,SpillContext spillContext) {
         this.source = source;
+        this.spillContext = spillContext;
     }
 
 
@@ -103,21 +119,22 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
-        Multimap<K,V> newMap = multimapFromIterable(source);
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.forMap(Maps.transformValues(newMap.asMap(), new Function<Collection<V>, V>() {
+        Iterable<Tuple2<K,Iterable<V>>> groups = SpillingHashOperations.groupByKey(source,spillContext());
+        return new ControlPairDataSet<>(FluentIterable.from(groups).transform(new Function<Tuple2<K, Iterable<V>>, Tuple2<K, V>>() {
             @Override
-            public V apply(@Nullable Collection<V> vs) {
+            public Tuple2<K, V> apply(@Nullable Tuple2<K, Iterable<V>> group) {
+                assert group!=null: "Group cannot be null";
                 try {
                     V returnValue = null;
-                    for (V v : vs) {
+                    for (V v : group._2()) {
                         returnValue = function2.call(returnValue, v);
                     }
-                    return returnValue;
+                    return new Tuple2<>(group._1(),returnValue);
                 } catch (Exception e) {
                     throw new RuntimeException(e);
                 }
             }
-        })).entries()));
+        }),spillContext);
     }
 
     @Override
@@ -132,18 +149,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator) {
-        /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
-         */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
-            }
-        }).immutableSortedCopy(source));
+        return sortByKey(comparator,null,-1L);
     }
 
     @Override
@@ -152,6 +158,12 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         return sortByKey(comparator);
     }
 
+    @Override
+    public PairDataSet<K, V> sortByKey(Comparator<K> comparator, String name, long limit) {
+        // Sorts in memory, spilling sorted runs if the data exceeds the budget
+        return new ControlPairDataSet<>(ExternalSorter.sort(source,comparator,limit,spillContext()),spillContext);
+    }
+
     @Override
     public PairDataSet<K, V> partitionBy(Partitioner<K> partitioner, Comparator<K> comparator) {
         // we don't need to partition
@@ -160,15 +172,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, Iterable<V>> groupByKey() {
-        Multimap<K,V> newMap = multimapFromIterable(source);
-        return new ControlPairDataSet<>(FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
-            @Nullable
-            @Override
-            public Tuple2<K, Iterable<V>> apply(@Nullable Map.Entry<K, Collection<V>> e) {
-                assert e!=null: "E cannot be null";
-                return new Tuple2<K, Iterable<V>>(e.getKey(), e.getValue());
-            }
-        }));
+        return new ControlPairDataSet<>(SpillingHashOperations.groupByKey(source,spillContext()),spillContext);
     }
 
     @Override
@@ -178,71 +182,53 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <W> PairDataSet< K, Tuple2<V, Optional<W>>> hashLeftOuterJoin(final PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterable(((ControlPairDataSet) rightDataSet).source);
-
-        return new ControlPairDataSet<>(Iterables.concat(FluentIterable.from(source).transform(new Function<Tuple2<K, V>, Iterable<Tuple2<K, Tuple2<V, Optional<W>>>>>() {
-            @Nullable
+        // Hashes the right side, spilling if necessary
+        Iterable<Tuple2<K,W>> rightSide = ((ControlPairDataSet<K,W>) rightDataSet).source;
+        SpillContext context = sharedContext(rightDataSet);
+        return new ControlPairDataSet<>(SpillingHashOperations.hashJoin(source,rightSide,new SpillingHashOperations.JoinEmitter<K, V, W, Tuple2<K, Tuple2<V, Optional<W>>>>() {
             @Override
-            public Iterable<Tuple2<K, Tuple2<V, Optional<W>>>> apply(@Nullable Tuple2<K, V> t) {
-                assert t!=null: "T cannot be null";
-                List<Tuple2<K,Tuple2<V,Optional<W>>>> result = new ArrayList<>();
-                K key = t._1();
-                V value = t._2();
-                if (rightSide.containsKey(key)) {
-                    for (W rightValue : rightSide.get(key)) {
+            public void emit(K key, V value, Collection<W> matches, List<Tuple2<K, Tuple2<V, Optional<W>>>> result) {
+                if (!matches.isEmpty()) {
+                    for (W rightValue : matches) {
                         result.add(new Tuple2<>(key,new Tuple2<>(value,Optional.of(rightValue))));
                     }
                 } else
                     result.add(new Tuple2<>(key,new Tuple2<>(value,Optional.<W>absent())));
-                return result;
             }
-        })));
+        },orUnowned(context)),context);
     }
 
     @Override
     public <W> PairDataSet< K, Tuple2<Optional<V>, W>> hashRightOuterJoin(PairDataSet< K, W> rightDataSet) {
-        // Materializes the left side
-        final Multimap<K, V> leftSide = multimapFromIterable(source);
-
-
-        return new ControlPairDataSet<>(Iterables.concat(FluentIterable.from(((ControlPairDataSet<K,W>) rightDataSet).source).transform(new Function<Tuple2<K, W>, Iterable<Tuple2<K, Tuple2<Optional<V>, W>>>>() {
-            @Nullable
+        // Hashes the left side, spilling if necessary
+        Iterable<Tuple2<K,W>> rightSide = ((ControlPairDataSet<K,W>) rightDataSet).source;
+        SpillContext context = sharedContext(rightDataSet);
+        return new ControlPairDataSet<>(SpillingHashOperations.hashJoin(rightSide,source,new SpillingHashOperations.JoinEmitter<K, W, V, Tuple2<K, Tuple2<Optional<V>, W>>>() {
             @Override
-            public Iterable<Tuple2<K, Tuple2<Optional<V>, W>>> apply(@Nullable Tuple2<K, W> t) {
-                assert t!=null: "t cannot be null!";
-                List<Tuple2<K,Tuple2<Optional<V>,W>>> result = new ArrayList<>();
-                K key = t._1();
-                W value = t._2();
-                if (leftSide.containsKey(key)) {
-                    for (V leftValue: leftSide.get(key)) {
+            public void emit(K key, W value, Collection<V> matches, List<Tuple2<K, Tuple2<Optional<V>, W>>> result) {
+                if (!matches.isEmpty()) {
+                    for (V leftValue: matches) {
                         result.add(new Tuple2<>(key,new Tuple2<>(Optional.of(leftValue),value)));
                     }
                 } else
                     result.add(new Tuple2<>(key,new Tuple2<>(Optional.<V>absent(),value)));
-                return result;
             }
-        })));
+        },orUnowned(context)),context);
     }
 
     @Override
     public <W> PairDataSet< K, Tuple2<V, W>> hashJoin(PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterable(((ControlPairDataSet<K,W>) rightDataSet).source);
-        return new ControlPairDataSet<>(Iterables.concat(FluentIterable.from(source).transform(new Function<Tuple2<K, V>, Iterable<Tuple2<K, Tuple2<V, W>>>>() {
-            @Nullable
+        // Hashes the right side, spilling if necessary
+        Iterable<Tuple2<K,W>> rightSide = ((ControlPairDataSet<K,W>) rightDataSet).source;
+        SpillContext context = sharedContext(rightDataSet);
+        return new ControlPairDataSet<>(SpillingHashOperations.hashJoin(source,rightSide,new SpillingHashOperations.JoinEmitter<K, V, W, Tuple2<K, Tuple2<V, W>>>() {
             @Override
-            public Iterable<Tuple2<K, Tuple2<V, W>>> apply(@Nullable Tuple2<K, V> t) {
-                assert t!=null: "Tuple cannot be null";
-                List<Tuple2<K,Tuple2<V,W>>> result = new ArrayList<>();
-                K key = t._1();
-                V value = t._2();
-                for (W rightValue : rightSide.get(key)) {
+            public void emit(K key, V value, Collection<W> matches, List<Tuple2<K, Tuple2<V, W>>> result) {
+                for (W rightValue : matches) {
                     result.add(new Tuple2<>(key,new Tuple2<>(value,rightValue)));
                 }
-                return result;
             }
-        })));
+        },orUnowned(context)),context);
     }
 
     @Override
@@ -253,15 +239,16 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     
     @Override
     public <W> PairDataSet< K, V> subtractByKey(PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterable(((ControlPairDataSet<K,W>) rightDataSet).source);
-        return new ControlPairDataSet<>(FluentIterable.from(source).filter(new Predicate<Tuple2<K, V>>() {
+        // Hashes the right side, spilling if necessary
+        Iterable<Tuple2<K,W>> rightSide = ((ControlPairDataSet<K,W>) rightDataSet).source;
+        SpillContext context = sharedContext(rightDataSet);
+        return new ControlPairDataSet<>(SpillingHashOperations.hashJoin(source,rightSide,new SpillingHashOperations.JoinEmitter<K, V, W, Tuple2<K, V>>() {
             @Override
-            public boolean apply(@Nullable Tuple2<K, V> t) {
-                assert t!=null: "T cannot be null";
-                return rightSide.get(t._1()).isEmpty();
+            public void emit(K key, V value, Collection<W> matches, List<Tuple2<K, V>> result) {
+                if (matches.isEmpty())
+                    result.add(new Tuple2<>(key,value));
             }
-        }));
+        },orUnowned(context)),context);
     }
 
     @Override
@@ -270,6 +257,27 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         return subtractByKey(rightDataSet);
     }
 
+    /**
+     * @return the context to spill through. Data sets which were not created on behalf of an operation
+     * (single rows, empty data sets, and the like) have no context of their own, and are given one which
+     * nobody closes.
+     */
+    private SpillContext spillContext() {
+        return orUnowned(spillContext);
+    }
+
+    /**
+     * @return the context of this data set or, if it has none, the context of {@code other}, so that
+     * a binary operation stays owned whenever either of its inputs is
+     */
+    private SpillContext sharedContext(PairDataSet<K, ?> other) {
+        return spillContext!=null?spillContext:((ControlPairDataSet<K, ?>) other).spillContext;
+    }
+
+    private static SpillContext orUnowned(SpillContext context) {
+        return context!=null?context:SpillContext.unowned();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("ControlPairDataSet [");
@@ -321,7 +329,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
             Collection<W> ws=right.get(key);
             result.add(new Tuple2<>(key,new Tuple2<Iterable<V>, Iterable<W>>(vs,ws)));
         }
-        return new ControlPairDataSet<>(result);
+        return new ControlPairDataSet<>(result,sharedContext(rightDataSet));
     }
 
     @Override
@@ -332,7 +340,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, V> union(PairDataSet<K, V> dataSet) {
-        return new ControlPairDataSet<>(Iterables.concat(source,((ControlPairDataSet<K,V>)dataSet).source));
+        return new ControlPairDataSet<>(Iterables.concat(source,((ControlPairDataSet<K,V>)dataSet).source),sharedContext(dataSet));
     }
 
     @Override
@@ -404,4 +412,17 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         };
     }
 
+    @Override
+    @SuppressFBWarnings(value = "SE_NO_SUITABLE_CONSTRUCTOR_FOR_EXTERNALIZATION",justification = "Serialization" +
+            "of Control-side operations does not happen and would be a mistake")
+    public BulkWriteDataSetWriterBuilder bulkWriteData() throws StandardException{
+        return new BulkTableWriterBuilder(){
+            @Override
+            public DataSetWriter build() throws StandardException{
+                assert txn!=null: "Txn is null";
+                return new ControlBulkDataSetWriter((Iterable)ControlPairDataSet.this.source,destConglomerate,txn,opCtx);
+            }
+        };
+    }
+
 }
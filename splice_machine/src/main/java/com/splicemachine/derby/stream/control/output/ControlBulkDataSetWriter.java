@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.output;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.control.ControlDataSet;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.iapi.TableWriter;
+import com.splicemachine.derby.stream.output.DataSetWriter;
+import com.splicemachine.derby.stream.output.direct.DirectPipelineWriter;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.TxnView;
+import scala.Tuple2;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bulk writer for data sets executing in the local JVM. Local data sets are small enough that generating
+ * storage files is not worth it, so the pairs are written directly to each destination conglomerate
+ * without passing through index maintenance, since index entries are already part of the data set.
+ */
+public class ControlBulkDataSetWriter implements DataSetWriter{
+    private final Iterable<Tuple2<Long,KVPair>> source;
+    private final long destConglomerate;
+    private final OperationContext opCtx;
+    private TxnView txn;
+
+    public ControlBulkDataSetWriter(Iterable<Tuple2<Long, KVPair>> source,
+                                    long destConglomerate,
+                                    TxnView txn,
+                                    OperationContext opCtx){
+        this.source=source;
+        this.destConglomerate=destConglomerate;
+        this.txn=txn;
+        this.opCtx=opCtx;
+    }
+
+    @Override
+    public DataSet<LocatedRow> write() throws StandardException{
+        Map<Long,DirectPipelineWriter> writers=new HashMap<>();
+        long count=0;
+        try{
+            for(Tuple2<Long,KVPair> pair:source){
+                DirectPipelineWriter writer=writers.get(pair._1());
+                if(writer==null){
+                    writer=new DirectPipelineWriter(pair._1(),txn,opCtx,true);
+                    writer.open();
+                    writers.put(pair._1(),writer);
+                }
+                writer.write(pair._2());
+                count++;
+            }
+            for(DirectPipelineWriter writer:writers.values()){
+                writer.close(); //make sure everything gets written
+            }
+
+            ValueRow valueRow=new ValueRow(1);
+            valueRow.setColumn(1,new SQLLongint(count));
+            return new ControlDataSet<>(Collections.singletonList(new LocatedRow(valueRow)));
+        }catch(Exception e){
+            throw Exceptions.parseException(e);
+        }
+    }
+
+    @Override
+    public void setTxn(TxnView childTxn){
+        this.txn=childTxn;
+    }
+
+    @Override
+    public TableWriter getTableWriter() throws StandardException{
+        return new DirectPipelineWriter(destConglomerate,txn,opCtx,true);
+    }
+
+    @Override
+    public TxnView getTxn(){
+        return txn;
+    }
+
+    @Override
+    public byte[] getDestinationTable(){
+        return Bytes.toBytes(Long.toString(destConglomerate));
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.stream.control.spill;
+
+import org.sparkproject.guava.collect.AbstractIterator;
+import org.sparkproject.guava.collect.Iterators;
+import scala.Tuple2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Memory-bounded, stable sort for control-side pair datasets.
+ *
+ * Rows are accumulated in memory until their estimated size exceeds the {@link SpillContext memory budget}, at
+ * which point the buffer is sorted and written out as a run. Once the source is exhausted, the runs (and whatever
+ * remains in memory) are k-way merged through a {@link LoserTree}. So that no merge has too many files open,
+ * runs are grouped into levels of similar size, and each full level is merged into a single run of the level
+ * above, as in a multi-level merge sort. When nothing spills, this is a plain in-memory sort.
+ *
+ * The spill files are deleted once the output has been read to the end. Output which is abandoned before then
+ * is cleaned up when the {@link SpillContext} is closed.
+ *
+ * When a row limit is known (e.g. {@code ORDER BY ... FETCH FIRST n ROWS ONLY}), no more than {@code limit}
+ * rows are emitted. Small limits are served from a bounded heap without sorting the whole input; larger ones
+ * use the external sort, but truncate every run to {@code limit} rows before it is spilled. The heap counts
+ * against the memory budget as well: if the rows it holds outgrow the budget, they are handed to the external
+ * sort along with the rest of the input.
+ *
+ * Runs are written in the same Kryo key/value format as every other {@link SpillFile}, and merged with the
+ * caller's key comparator, rather than as byte-comparable encoded keys. The keys which reach this class are
+ * arbitrary objects ordered by an arbitrary {@link Comparator} (e.g. the sort order, direction and null
+ * ordering of an ORDER BY), and nothing at this level knows how to encode them in a way which preserves that
+ * order; the row would also still have to be written alongside its encoded key.
+ *
+ * The returned iterables are lazy: no work is performed until {@code iterator()} is called, and
+ * each call to {@code iterator()} re-executes the sort from its source.
+ */
+public class ExternalSorter{
+    /**
+     * The maximum number of runs merged in a single pass, which is also the number of runs in a full level.
+     */
+    public static final int DEFAULT_MERGE_FAN_IN = 64;
+    /**
+     * The largest limit which is served from an in-memory heap, rather than through the external sort.
+     */
+    public static final long TOP_N_HEAP_THRESHOLD = 1<<16;
+
+    private ExternalSorter(){}
+
+    public static <K,V> Iterable<Tuple2<K,V>> sort(Iterable<Tuple2<K,V>> source,
+                                                  Comparator<K> comparator,
+                                                  SpillContext context){
+        return sort(source,comparator,-1L,context);
+    }
+
+    /**
+     * @param limit the maximum number of rows to return, or {@code <=0} to return all rows.
+     */
+    public static <K,V> Iterable<Tuple2<K,V>> sort(final Iterable<Tuple2<K,V>> source,
+                                                  final Comparator<K> comparator,
+                                                  final long limit,
+                                                  final SpillContext context){
+        final Comparator<Tuple2<K,V>> rowComparator=new Comparator<Tuple2<K,V>>(){
+            @Override
+            public int compare(Tuple2<K,V> o1,Tuple2<K,V> o2){
+                return comparator.compare(o1._1(),o2._1());
+            }
+        };
+        if(limit>0 && limit<=TOP_N_HEAP_THRESHOLD){
+            return new Iterable<Tuple2<K,V>>(){
+                @Override
+                public Iterator<Tuple2<K,V>> iterator(){
+                    return topN(source.iterator(),rowComparator,(int)limit,context);
+                }
+            };
+        }
+        return new Iterable<Tuple2<K,V>>(){
+            @Override
+            public Iterator<Tuple2<K,V>> iterator(){
+                return externalSort(source.iterator(),rowComparator,limit,context);
+            }
+        };
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static <K,V> Iterator<Tuple2<K,V>> topN(Iterator<Tuple2<K,V>> source,
+                                                    final Comparator<Tuple2<K,V>> comparator,
+                                                    int limit,
+                                                    SpillContext context){
+        /*
+         * The heap is ordered worst-first, so that the root is the row to evict when a better one arrives. Rows
+         * carry their arrival order, which breaks ties the same way a stable sort would.
+         */
+        PriorityQueue<Sequenced<Tuple2<K,V>>> heap=new PriorityQueue<>(Math.min(limit,1024)+1,new Comparator<Sequenced<Tuple2<K,V>>>(){
+            @Override
+            public int compare(Sequenced<Tuple2<K,V>> o1,Sequenced<Tuple2<K,V>> o2){
+                return -o1.compareTo(o2,comparator);
+            }
+        });
+        long seq=0;
+        long heapBytes=0L;
+        while(source.hasNext()){
+            Sequenced<Tuple2<K,V>> next=new Sequenced<>(source.next(),seq++);
+            if(heap.size()>=limit){
+                if(next.compareTo(heap.peek(),comparator)>=0) continue;
+                heapBytes-=heap.poll().bytes;
+            }
+            next.bytes=SizeEstimator.OBJECT_OVERHEAD+SizeEstimator.estimate(next.value);
+            heap.add(next);
+            heapBytes+=next.bytes;
+            if(heapBytes>context.getMemoryBudget()){
+                /*
+                 * The rows we hold no longer fit in memory. None of the rows evicted so far can make the
+                 * result, so the external sort only needs the ones in the heap, in arrival order to keep the
+                 * sort stable, followed by the rest of the source.
+                 */
+                return externalSort(Iterators.concat(inArrivalOrder(heap),source),comparator,limit,context);
+            }
+        }
+        //the heap drains worst-first
+        List<Tuple2<K,V>> result=new ArrayList<>(heap.size());
+        while(!heap.isEmpty()){
+            result.add(heap.poll().value);
+        }
+        Collections.reverse(result);
+        return result.iterator();
+    }
+
+    private static <T> Iterator<T> inArrivalOrder(Collection<Sequenced<T>> rows){
+        List<Sequenced<T>> sorted=new ArrayList<>(rows);
+        rows.clear();
+        Collections.sort(sorted,new Comparator<Sequenced<T>>(){
+            @Override
+            public int compare(Sequenced<T> o1,Sequenced<T> o2){
+                return o1.seq<o2.seq?-1:(o1.seq==o2.seq?0:1);
+            }
+        });
+        List<T> values=new ArrayList<>(sorted.size());
+        for(Sequenced<T> row : sorted){
+            values.add(row.value);
+        }
+        return values.iterator();
+    }
+
+    static <K,V> Iterator<Tuple2<K,V>> externalSort(Iterator<Tuple2<K,V>> source,
+                                                    Comparator<Tuple2<K,V>> comparator,
+                                                    long limit,
+                                                    SpillContext context){
+        return externalSort(source,comparator,limit,DEFAULT_MERGE_FAN_IN,context);
+    }
+
+    static <K,V> Iterator<Tuple2<K,V>> externalSort(Iterator<Tuple2<K,V>> source,
+                                                    Comparator<Tuple2<K,V>> comparator,
+                                                    long limit,
+                                                    int fanIn,
+                                                    SpillContext context){
+        assert fanIn>1: "Cannot merge fewer than 2 runs at a time";
+        List<Tuple2<K,V>> buffer=new ArrayList<>();
+        /*
+         * Runs are kept in levels: a run of level i+1 is the merge of fanIn runs of level i, so the runs
+         * of a level are of about the same size, and each row is rewritten once per level rather than
+         * once per merge. Every run of a level is older than every run of the levels below it.
+         */
+        List<List<SpillFile<K,V>>> levels=new ArrayList<>();
+        long bufferedBytes=0L;
+        try{
+            while(source.hasNext()){
+                Tuple2<K,V> row=source.next();
+                buffer.add(row);
+                bufferedBytes+=SizeEstimator.OBJECT_OVERHEAD+SizeEstimator.estimate(row);
+                if(bufferedBytes>context.getMemoryBudget()){
+                    addRun(levels,0,writeRun(buffer,comparator,limit,context),fanIn,comparator,limit,context);
+                    buffer=new ArrayList<>();
+                    bufferedBytes=0L;
+                }
+            }
+            Collections.sort(buffer,comparator);
+            if(limit>0 && buffer.size()>limit)
+                buffer=buffer.subList(0,(int)limit);
+            if(levels.isEmpty())
+                return buffer.iterator();
+
+            //leave room for the in-memory rows in the final merge
+            List<SpillFile<K,V>> runs=finalRuns(levels,fanIn-1,comparator,limit,context);
+            List<Iterator<Tuple2<K,V>>> inputs=new ArrayList<>(runs.size()+1);
+            for(SpillFile<K,V> run : runs){
+                inputs.add(run.iterator());
+            }
+            //the in-memory rows arrived last, so they come last to keep the sort stable
+            inputs.add(buffer.iterator());
+            return new MergeIterator<>(new LoserTree<>(inputs,comparator),runs,limit);
+        }catch(IOException e){
+            deleteAll(levels);
+            throw new RuntimeException(e);
+        }catch(RuntimeException e){
+            deleteAll(levels);
+            throw e;
+        }
+    }
+
+    private static <K,V> SpillFile<K,V> writeRun(List<Tuple2<K,V>> buffer,
+                                                 Comparator<Tuple2<K,V>> comparator,
+                                                 long limit,
+                                                 SpillContext context) throws IOException{
+        Collections.sort(buffer,comparator);
+        SpillFile<K,V> run=SpillFile.create(context);
+        long remaining=limit>0?limit:Long.MAX_VALUE;
+        for(Tuple2<K,V> row : buffer){
+            if(remaining--<=0) break;
+            run.write(row._1(),row._2());
+        }
+        run.finishWriting();
+        return run;
+    }
+
+    /**
+     * Add a run to the given level. A level which fills up is merged into a single run of the level above.
+     */
+    private static <K,V> void addRun(List<List<SpillFile<K,V>>> levels,
+                                     int level,
+                                     SpillFile<K,V> run,
+                                     int fanIn,
+                                     Comparator<Tuple2<K,V>> comparator,
+                                     long limit,
+                                     SpillContext context) throws IOException{
+        while(true){
+            if(levels.size()<=level)
+                levels.add(new ArrayList<SpillFile<K,V>>());
+            List<SpillFile<K,V>> runs=levels.get(level);
+            runs.add(run);
+            if(runs.size()<fanIn) return;
+            run=merge(runs,comparator,limit,context);
+            runs.clear();
+            level++;
+        }
+    }
+
+    /**
+     * Merge the newest levels until no more than {@code maxRuns} runs remain, so that the final merge keeps a
+     * bounded number of files open.
+     *
+     * @return the remaining runs, oldest first
+     */
+    private static <K,V> List<SpillFile<K,V>> finalRuns(List<List<SpillFile<K,V>>> levels,
+                                                        int maxRuns,
+                                                        Comparator<Tuple2<K,V>> comparator,
+                                                        long limit,
+                                                        SpillContext context) throws IOException{
+        int total=0;
+        for(List<SpillFile<K,V>> runs : levels){
+            total+=runs.size();
+        }
+        for(int level=0;total>maxRuns && level<levels.size();level++){
+            List<SpillFile<K,V>> runs=levels.get(level);
+            if(runs.size()<2) continue;
+            //this level is newer than the ones above it, so its merged run goes after theirs
+            SpillFile<K,V> merged=merge(runs,comparator,limit,context);
+            total-=runs.size()-1;
+            runs.clear();
+            if(levels.size()<=level+1)
+                levels.add(new ArrayList<SpillFile<K,V>>());
+            levels.get(level+1).add(merged);
+        }
+        List<SpillFile<K,V>> result=new ArrayList<>(total);
+        for(int level=levels.size()-1;level>=0;level--){
+            result.addAll(levels.get(level));
+        }
+        return result;
+    }
+
+    /**
+     * Merge the given runs (in order) into a single run, deleting them once they have been merged.
+     */
+    private static <K,V> SpillFile<K,V> merge(List<SpillFile<K,V>> runs,
+                                              Comparator<Tuple2<K,V>> comparator,
+                                              long limit,
+                                              SpillContext context) throws IOException{
+        List<Iterator<Tuple2<K,V>>> inputs=new ArrayList<>(runs.size());
+        for(SpillFile<K,V> run : runs){
+            inputs.add(run.iterator());
+        }
+        Iterator<Tuple2<K,V>> merged=new MergeIterator<>(new LoserTree<>(inputs,comparator),new ArrayList<>(runs),limit);
+        SpillFile<K,V> output=SpillFile.create(context);
+        try{
+            while(merged.hasNext()){
+                Tuple2<K,V> row=merged.next();
+                output.write(row._1(),row._2());
+            }
+            output.finishWriting();
+        }catch(RuntimeException e){
+            output.delete();
+            throw e;
+        }
+        return output;
+    }
+
+    private static <K,V> void deleteAll(List<SpillFile<K,V>> runs){
+        for(SpillFile<K,V> run : runs){
+            run.delete();
+        }
+    }
+
+    private static <K,V> void deleteAll(Collection<List<SpillFile<K,V>>> levels){
+        for(List<SpillFile<K,V>> runs : levels){
+            deleteAll(runs);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private static class Sequenced<T>{
+        private final T value;
+        private final long seq;
+        private long bytes;
+
+        Sequenced(T value,long seq){
+            this.value=value;
+            this.seq=seq;
+        }
+
+        int compareTo(Sequenced<T> other,Comparator<T> comparator){
+            int c=comparator.compare(value,other.value);
+            if(c!=0) return c;
+            return seq<other.seq?-1:(seq==other.seq?0:1);
+        }
+    }
+
+    private static class MergeIterator<K,V> extends AbstractIterator<Tuple2<K,V>> implements Closeable{
+        private final LoserTree<Tuple2<K,V>> tree;
+        private final List<SpillFile<K,V>> runs;
+        private long remaining;
+
+        MergeIterator(LoserTree<Tuple2<K,V>> tree,List<SpillFile<K,V>> runs,long limit){
+            this.tree=tree;
+            this.runs=runs;
+            this.remaining=limit>0?limit:Long.MAX_VALUE;
+        }
+
+        @Override
+        protected Tuple2<K,V> computeNext(){
+            try{
+                if(remaining>0 && tree.hasNext()){
+                    remaining--;
+                    return tree.next();
+                }
+            }catch(RuntimeException e){
+                deleteAll(runs);
+                throw e;
+            }
+            deleteAll(runs);
+            return endOfData();
+        }
+
+        /**
+         * Stop the merge early, deleting the runs which have not been read to the end.
+         */
+        @Override
+        public void close(){
+            deleteAll(runs);
+        }
+    }
+
+    /**
+     * A tournament tree of losers over {@code k} sorted inputs. Each internal node holds the input which lost the
+     * match played there, and node 0 holds the overall winner; replacing the winner replays only the matches on
+     * the path from its leaf to the root, so each output row costs {@code log2(k)} comparisons.
+     *
+     * Ties are won by the input with the lower index, which makes the merge stable when the inputs are given in
+     * arrival order.
+     */
+    static class LoserTree<T>{
+        private final Iterator<T>[] inputs;
+        private final Object[] heads;
+        private final boolean[] exhausted;
+        private final int[] tree;
+        private final Comparator<T> comparator;
+
+        @SuppressWarnings("unchecked")
+        LoserTree(List<Iterator<T>> inputs,Comparator<T> comparator){
+            int k=inputs.size();
+            this.inputs=inputs.toArray(new Iterator[k]);
+            this.heads=new Object[k];
+            this.exhausted=new boolean[k];
+            this.tree=new int[Math.max(k,1)];
+            this.comparator=comparator;
+            for(int i=0;i<k;i++){
+                advance(i);
+            }
+            if(k==0){
+                tree[0]=-1;
+            }else
+                tree[0]=build(1);
+        }
+
+        boolean hasNext(){
+            int winner=tree[0];
+            return winner>=0 && !exhausted[winner];
+        }
+
+        @SuppressWarnings("unchecked")
+        T next(){
+            int winner=tree[0];
+            T value=(T)heads[winner];
+            advance(winner);
+            int k=inputs.length;
+            int s=winner;
+            for(int t=(s+k)>>1;t>0;t>>=1){
+                if(beats(tree[t],s)){
+                    int tmp=tree[t];
+                    tree[t]=s;
+                    s=tmp;
+                }
+            }
+            tree[0]=s;
+            return value;
+        }
+
+        private int build(int node){
+            int k=inputs.length;
+            if(node>=k) return node-k;
+            int a=build(2*node);
+            int b=build(2*node+1);
+            if(beats(a,b)){
+                tree[node]=b;
+                return a;
+            }else{
+                tree[node]=a;
+                return b;
+            }
+        }
+
+        private void advance(int input){
+            if(inputs[input].hasNext())
+                heads[input]=inputs[input].next();
+            else{
+                heads[input]=null;
+                exhausted[input]=true;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean beats(int a,int b){
+            if(exhausted[a]) return false;
+            if(exhausted[b]) return true;
+            int c=comparator.compare((T)heads[a],(T)heads[b]);
+            return c<0 || (c==0 && a<b);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import scala.Tuple2;
+
+/**
+ * Cheap, approximate heap-size estimates for the objects which flow through control-side
+ * pair datasets. These numbers only need to be good enough to decide when to spill; they
+ * make no attempt to be exact.
+ */
+public class SizeEstimator{
+    /*object header + reference fields of a typical small wrapper object*/
+    static final int OBJECT_OVERHEAD = 16;
+    /*an entry in an ArrayListMultimap: slot in the list plus its share of the map entry*/
+    static final int ENTRY_OVERHEAD = 48;
+    /*what we assume for objects whose size we know nothing about*/
+    static final int DEFAULT_SIZE = 64;
+
+    private SizeEstimator(){}
+
+    public static long estimate(Object o){
+        if(o==null) return 0;
+        if(o instanceof ExecRow){
+            DataValueDescriptor[] dvds=((ExecRow)o).getRowArray();
+            long size=OBJECT_OVERHEAD;
+            if(dvds!=null){
+                size+=OBJECT_OVERHEAD+8*dvds.length;
+                for(DataValueDescriptor dvd : dvds){
+                    if(dvd!=null)
+                        size+=dvd.estimateMemoryUsage();
+                }
+            }
+            return size;
+        }else if(o instanceof LocatedRow){
+            return OBJECT_OVERHEAD+estimate(((LocatedRow)o).getRow())+DEFAULT_SIZE;
+        }else if(o instanceof Tuple2){
+            Tuple2 t=(Tuple2)o;
+            return OBJECT_OVERHEAD+estimate(t._1())+estimate(t._2());
+        }else if(o instanceof byte[]){
+            return OBJECT_OVERHEAD+((byte[])o).length;
+        }
+        return DEFAULT_SIZE;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.kryo.KryoPool;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The resources available to a single spilling control-side operation: how much heap it may
+ * use before spilling, where to put the spilled data, and how to serialize it.
+ *
+ * The context also keeps track of the spill files it has created and not yet deleted. Closing it deletes
+ * them, so an operation which is closed before its results have been read to the end does not leave files
+ * (or open readers) behind. A context may still be used after it has been closed.
+ */
+public class SpillContext implements AutoCloseable{
+    /**
+     * The number of partitions a hash table is split into at every recursion level.
+     */
+    public static final int DEFAULT_FAN_OUT = 16;
+    /**
+     * The maximum recursion depth. Past this point a partition consists (most likely) of
+     * a handful of heavily-duplicated keys, and no amount of re-partitioning will help,
+     * so we hold it in memory regardless of the budget.
+     */
+    public static final int DEFAULT_MAX_LEVELS = 4;
+
+    private static final long DEFAULT_MEMORY_BUDGET = 64L*1024*1024;
+
+    private final long memoryBudget;
+    private final File spillDirectory;
+    private final int fanOut;
+    private final int maxLevels;
+    private final KryoPool kryoPool;
+    private final Set<SpillFile<?,?>> liveFiles=Collections.newSetFromMap(new ConcurrentHashMap<SpillFile<?,?>,Boolean>());
+    private volatile boolean owned=true;
+
+    public SpillContext(long memoryBudget,File spillDirectory,int fanOut,int maxLevels,KryoPool kryoPool){
+        assert fanOut>1: "Cannot partition into fewer than 2 partitions";
+        this.memoryBudget=memoryBudget;
+        this.spillDirectory=spillDirectory;
+        this.fanOut=fanOut;
+        this.maxLevels=maxLevels;
+        this.kryoPool=kryoPool;
+    }
+
+    /**
+     * @return a context configured from the running engine, or with default settings
+     * if the engine has not been started (e.g. in unit tests).
+     */
+    public static SpillContext defaultContext(){
+        EngineDriver driver=EngineDriver.driver();
+        long budget=DEFAULT_MEMORY_BUDGET;
+        String dir=System.getProperty("java.io.tmpdir");
+        if(driver!=null){
+            SConfiguration config=driver.getConfiguration();
+            budget=config.getControlSideMemoryBudget();
+            dir=config.getControlSideSpillDirectory();
+        }
+        return new SpillContext(budget,new File(dir),DEFAULT_FAN_OUT,DEFAULT_MAX_LEVELS,SpliceKryoRegistry.getInstance());
+    }
+
+    /**
+     * @return a {@link #defaultContext() default context} which nobody will close. Spilling structures
+     * do not hold spill files past the end of an iteration in such a context.
+     */
+    public static SpillContext unowned(){
+        return defaultContext().disown();
+    }
+
+    /**
+     * @return a {@link #defaultContext() default context} which is closed along with the operation of
+     * {@code operationContext}, or an {@link #unowned()} one if there is no such operation.
+     */
+    public static SpillContext forOperation(OperationContext<?> operationContext){
+        SpliceOperation op=operationContext==null?null:operationContext.getOperation();
+        if(op==null)
+            return unowned();
+        SpillContext context=defaultContext();
+        try{
+            op.registerCloseable(context);
+        }catch(StandardException e){
+            throw new RuntimeException(e);
+        }
+        return context;
+    }
+
+    public long getMemoryBudget(){ return memoryBudget; }
+
+    public File getSpillDirectory(){ return spillDirectory; }
+
+    public int getFanOut(){ return fanOut; }
+
+    public int getMaxLevels(){ return maxLevels; }
+
+    public KryoPool getKryoPool(){ return kryoPool; }
+
+    /**
+     * @return true if this context will be closed by whoever created it, so that spill files may be
+     * kept until then
+     */
+    public boolean isOwned(){ return owned; }
+
+    /**
+     * Delete every spill file created through this context which has not been deleted already.
+     */
+    @Override
+    public void close(){
+        for(SpillFile<?,?> file : new ArrayList<>(liveFiles)){
+            file.delete();
+        }
+    }
+
+    SpillContext disown(){
+        owned=false;
+        return this;
+    }
+
+    void register(SpillFile<?,?> file){
+        liveFiles.add(file);
+    }
+
+    void unregister(SpillFile<?,?> file){
+        liveFiles.remove(file);
+    }
+
+    /**
+     * @return the number of spill files created through this context which have not been deleted
+     */
+    int liveFiles(){
+        return liveFiles.size();
+    }
+}
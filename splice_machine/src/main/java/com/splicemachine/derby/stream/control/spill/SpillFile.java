@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.collect.AbstractIterator;
+import scala.Tuple2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An append-only file of key-value pairs on local disk.
+ *
+ * Pairs are written as consecutive Kryo records (using the Splice registry, so rows are stored
+ * in the same compact form used to ship them between servers). A file is written once, then
+ * {@link #finishWriting() sealed}, after which it may be read any number of times until it
+ * is {@link #delete() deleted}.
+ *
+ * Every file is registered with the {@link SpillContext} which created it until it is deleted, so that
+ * closing the context removes the files (and closes the readers) of an operation which was abandoned
+ * part way through.
+ */
+public class SpillFile<K,V> implements Iterable<Tuple2<K,V>>{
+    private static final Logger LOG=Logger.getLogger(SpillFile.class);
+    private static final int BUFFER_SIZE=64*1024;
+
+    private final File file;
+    private final SpillContext context;
+    private final KryoPool kryoPool;
+    private final List<Reader> openReaders=new ArrayList<>(1); //guarded by this
+    private Kryo kryo;
+    private Output output;
+    private long count;
+
+    private SpillFile(File file,SpillContext context) throws FileNotFoundException{
+        this.file=file;
+        this.context=context;
+        this.kryoPool=context.getKryoPool();
+        this.kryo=kryoPool.get();
+        this.output=new Output(new FileOutputStream(file),BUFFER_SIZE);
+    }
+
+    public static <K,V> SpillFile<K,V> create(SpillContext context) throws IOException{
+        File dir=context.getSpillDirectory();
+        if(!dir.exists() && !dir.mkdirs() && !dir.exists())
+            throw new IOException("Unable to create spill directory "+dir);
+        File f=File.createTempFile("splice-spill-",".bin",dir);
+        SpillFile<K,V> spill;
+        try{
+            spill=new SpillFile<>(f,context);
+        }catch(FileNotFoundException e){
+            if(!f.delete())
+                LOG.warn("Unable to delete spill file "+f);
+            throw e;
+        }
+        context.register(spill);
+        return spill;
+    }
+
+    public void write(K key,V value){
+        assert output!=null: "Cannot write to a sealed spill file";
+        kryo.writeClassAndObject(output,key);
+        kryo.writeClassAndObject(output,value);
+        count++;
+    }
+
+    /**
+     * Flush and close the write side of the file. Idempotent.
+     */
+    public void finishWriting(){
+        if(output==null) return;
+        try{
+            output.close();
+        }finally{
+            output=null;
+            kryoPool.returnInstance(kryo);
+            kryo=null;
+        }
+    }
+
+    public long size(){
+        return count;
+    }
+
+    public long bytesOnDisk(){
+        return file.length();
+    }
+
+    /**
+     * Close any readers which are still open, and remove the file. Idempotent.
+     */
+    public void delete(){
+        List<Reader> readers;
+        synchronized(this){
+            readers=new ArrayList<>(openReaders);
+        }
+        for(Reader reader : readers){
+            reader.close();
+        }
+        finishWriting();
+        if(file.exists() && !file.delete())
+            LOG.warn("Unable to delete spill file "+file);
+        context.unregister(this);
+    }
+
+    @Override
+    public Iterator<Tuple2<K,V>> iterator(){
+        assert output==null: "Cannot read a spill file which is still being written";
+        Input input;
+        try{
+            input=new Input(new FileInputStream(file),BUFFER_SIZE);
+        }catch(FileNotFoundException e){
+            throw new RuntimeException(e);
+        }
+        Reader reader=new Reader(input,kryoPool.get(),count);
+        synchronized(this){
+            openReaders.add(reader);
+        }
+        return reader;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private class Reader extends AbstractIterator<Tuple2<K,V>> implements Closeable{
+        private Input input;
+        private Kryo reader;
+        private long remaining;
+
+        Reader(Input input,Kryo reader,long remaining){
+            this.input=input;
+            this.reader=reader;
+            this.remaining=remaining;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Tuple2<K,V> computeNext(){
+            if(input==null)
+                throw new IllegalStateException("Spill file "+file+" was deleted while it was being read");
+            if(remaining<=0){
+                close();
+                return endOfData();
+            }
+            remaining--;
+            K key=(K)reader.readClassAndObject(input);
+            V value=(V)reader.readClassAndObject(input);
+            return new Tuple2<>(key,value);
+        }
+
+        @Override
+        public void close(){
+            synchronized(SpillFile.this){
+                if(input==null) return;
+                openReaders.remove(this);
+            }
+            input.close();
+            kryoPool.returnInstance(reader);
+            input=null;
+            reader=null;
+        }
+    }
+}
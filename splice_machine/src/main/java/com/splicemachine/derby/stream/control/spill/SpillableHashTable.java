@@ -0,0 +1,193 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.collect.ArrayListMultimap;
+import org.sparkproject.guava.collect.Multimap;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A hash-partitioned multimap which holds at most {@link SpillContext#getMemoryBudget()} bytes
+ * (approximately) in heap.
+ *
+ * Entries are distributed over {@link SpillContext#getFanOut()} partitions by a hash of their key. Whenever
+ * the estimated size of the in-memory partitions exceeds the budget, the largest in-memory partition is
+ * written to a {@link SpillFile}; from then on, every entry for that partition goes directly to disk. A spilled
+ * partition is expected to be re-read into a new table one level deeper (which uses a different
+ * hash function, and therefore splits the partition further).
+ *
+ * Once the table has recursed {@link SpillContext#getMaxLevels()} times, it stops spilling: at that point the
+ * partition is dominated by duplicate keys, which cannot be split by re-hashing.
+ */
+public class SpillableHashTable<K,V>{
+    private static final Logger LOG=Logger.getLogger(SpillableHashTable.class);
+
+    private final SpillContext context;
+    private final int level;
+    private final Multimap<K,V>[] partitions;
+    private final SpillFile<K,V>[] spills;
+    private final long[] partitionBytes;
+    private long inMemoryBytes;
+    private boolean hasSpilled;
+
+    @SuppressWarnings("unchecked")
+    public SpillableHashTable(SpillContext context,int level){
+        this.context=context;
+        this.level=level;
+        int fanOut=context.getFanOut();
+        this.partitions=new Multimap[fanOut];
+        this.spills=new SpillFile[fanOut];
+        this.partitionBytes=new long[fanOut];
+        for(int i=0;i<fanOut;i++){
+            partitions[i]=ArrayListMultimap.create();
+        }
+    }
+
+    /**
+     * Build a table from the specified source.
+     */
+    public static <K,V> SpillableHashTable<K,V> build(Iterable<Tuple2<K,V>> source,SpillContext context,int level){
+        SpillableHashTable<K,V> table=new SpillableHashTable<>(context,level);
+        boolean success=false;
+        try{
+            for(Tuple2<K,V> t : source){
+                table.put(t._1(),t._2());
+            }
+            table.finishWriting();
+            success=true;
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }finally{
+            if(!success)
+                table.close();
+        }
+        return table;
+    }
+
+    public void put(K key,V value) throws IOException{
+        int p=partitionFor(key);
+        SpillFile<K,V> spill=spills[p];
+        if(spill!=null){
+            spill.write(key,value);
+            return;
+        }
+        partitions[p].put(key,value);
+        long size=SizeEstimator.ENTRY_OVERHEAD+SizeEstimator.estimate(key)+SizeEstimator.estimate(value);
+        partitionBytes[p]+=size;
+        inMemoryBytes+=size;
+        if(inMemoryBytes>context.getMemoryBudget()){
+            while(inMemoryBytes>context.getMemoryBudget() && spillLargestPartition()){
+                //keep spilling until we are back under budget
+            }
+        }
+    }
+
+    /**
+     * @return the partition the key belongs in at this level of recursion.
+     */
+    public int partitionFor(K key){
+        int h=key==null?0:key.hashCode();
+        //murmur3 finalizer, seeded by the level so that each level partitions differently
+        h^=level*0x9E3779B9;
+        h^=h>>>16;
+        h*=0x85ebca6b;
+        h^=h>>>13;
+        h*=0xc2b2ae35;
+        h^=h>>>16;
+        return (h&Integer.MAX_VALUE)%partitions.length;
+    }
+
+    public int numPartitions(){
+        return partitions.length;
+    }
+
+    public int level(){
+        return level;
+    }
+
+    public boolean hasSpilled(){
+        return hasSpilled;
+    }
+
+    public boolean isSpilled(int partition){
+        return spills[partition]!=null;
+    }
+
+    /**
+     * @return the in-memory contents of the partition, or {@code null} if the partition has been spilled
+     */
+    public Multimap<K,V> partition(int partition){
+        return partitions[partition];
+    }
+
+    public SpillFile<K,V> spillFile(int partition){
+        return spills[partition];
+    }
+
+    /**
+     * Seal all spilled partitions so that they can be read back.
+     */
+    public void finishWriting(){
+        for(SpillFile<K,V> spill : spills){
+            if(spill!=null)
+                spill.finishWriting();
+        }
+    }
+
+    /**
+     * Release all memory and remove any files on disk.
+     */
+    public void close(){
+        for(int i=0;i<spills.length;i++){
+            if(spills[i]!=null){
+                spills[i].delete();
+                spills[i]=null;
+            }
+            partitions[i]=null;
+        }
+        inMemoryBytes=0;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private boolean spillLargestPartition() throws IOException{
+        if(level>=context.getMaxLevels()) return false;
+        int largest=-1;
+        for(int i=0;i<partitions.length;i++){
+            if(spills[i]==null && partitionBytes[i]>0 && (largest<0 || partitionBytes[i]>partitionBytes[largest]))
+                largest=i;
+        }
+        if(largest<0) return false;
+
+        SpillFile<K,V> spill=SpillFile.create(context);
+        for(Map.Entry<K,V> entry : partitions[largest].entries()){
+            spill.write(entry.getKey(),entry.getValue());
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug(String.format("Spilled partition %d at level %d: %d entries, ~%d bytes",
+                    largest,level,spill.size(),partitionBytes[largest]));
+        spills[largest]=spill;
+        partitions[largest]=null;
+        inMemoryBytes-=partitionBytes[largest];
+        partitionBytes[largest]=0;
+        hasSpilled=true;
+        return true;
+    }
+}
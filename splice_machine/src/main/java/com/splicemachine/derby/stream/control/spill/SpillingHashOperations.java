@@ -0,0 +1,290 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import org.sparkproject.guava.collect.AbstractIterator;
+import org.sparkproject.guava.collect.Multimap;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory-bounded hash aggregation and hash joins for control-side pair datasets.
+ *
+ * All operations here are (recursive) Grace-style hash algorithms over a {@link SpillableHashTable}:
+ * partitions which fit in memory are processed directly, while spilled partitions are re-read one
+ * level deeper once the in-memory work is done. When nothing spills, the behavior (and cost) is
+ * the same as building a single in-heap multimap.
+ *
+ * The returned iterables are lazy: nothing is read until {@code iterator()} is first called. The hash table
+ * is built from its source only once per iterable, and is shared by every iterator over it (a join still
+ * streams its probe side once per iterator). The table, and any spill files it has written, are held until
+ * the {@link SpillContext} is closed; the spill files of a partially consumed iterator are deleted then as
+ * well, so a context which belongs to an operation cleans up after it when the operation is closed.
+ *
+ * A context which nobody will close ({@link SpillContext#unowned()}) cannot hold spill files for later
+ * iterators, so in that case every iterator builds a table of its own and deletes it as it finishes.
+ */
+public class SpillingHashOperations{
+
+    private SpillingHashOperations(){}
+
+    /**
+     * Produces the output rows of a join for a single probe-side row.
+     *
+     * @param <K> the join key type
+     * @param <P> the probe-side value type
+     * @param <B> the build-side value type
+     * @param <R> the output type
+     */
+    public interface JoinEmitter<K,P,B,R>{
+        /**
+         * @param key the join key
+         * @param probeValue the probe-side value
+         * @param matches the build-side values with the same key (empty if there are none)
+         * @param output the destination for output rows
+         */
+        void emit(K key,P probeValue,Collection<B> matches,List<R> output);
+    }
+
+    public static <K,V> Iterable<Tuple2<K,Iterable<V>>> groupByKey(final Iterable<Tuple2<K,V>> source,
+                                                                   final SpillContext context){
+        final SharedTable<K,V> table=new SharedTable<>(source,context);
+        return new Iterable<Tuple2<K,Iterable<V>>>(){
+            @Override
+            public Iterator<Tuple2<K,Iterable<V>>> iterator(){
+                if(!context.isOwned())
+                    return new GroupIterator<>(SpillableHashTable.build(source,context,0),true,context);
+                return new GroupIterator<>(table.get(),false,context);
+            }
+        };
+    }
+
+    /**
+     * Join {@code probeSide} against {@code buildSide}. The build side is hashed into a {@link SpillableHashTable},
+     * then the probe side is streamed past it.
+     */
+    public static <K,P,B,R> Iterable<R> hashJoin(final Iterable<Tuple2<K,P>> probeSide,
+                                                 final Iterable<Tuple2<K,B>> buildSide,
+                                                 final JoinEmitter<K,P,B,R> emitter,
+                                                 final SpillContext context){
+        final SharedTable<K,B> table=new SharedTable<>(buildSide,context);
+        return new Iterable<R>(){
+            @Override
+            public Iterator<R> iterator(){
+                if(!context.isOwned())
+                    return new JoinIterator<>(SpillableHashTable.build(buildSide,context,0),true,probeSide.iterator(),emitter,context);
+                return new JoinIterator<>(table.get(),false,probeSide.iterator(),emitter,context);
+            }
+        };
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+
+    /**
+     * The top-level table of an iterable, built the first time it is needed.
+     */
+    private static class SharedTable<K,V>{
+        private final Iterable<Tuple2<K,V>> source;
+        private final SpillContext context;
+        private SpillableHashTable<K,V> table; //guarded by this
+
+        SharedTable(Iterable<Tuple2<K,V>> source,SpillContext context){
+            this.source=source;
+            this.context=context;
+        }
+
+        synchronized SpillableHashTable<K,V> get(){
+            if(table==null)
+                table=SpillableHashTable.build(source,context,0);
+            return table;
+        }
+    }
+
+    /**
+     * Iterates over the groups of a table. A table which the iterator {@code owns} (i.e. one built from a
+     * spilled partition during this iteration) is closed as soon as it has been read; a shared table is
+     * only read, and left for the next iterator.
+     */
+    private static class GroupIterator<K,V> extends AbstractIterator<Tuple2<K,Iterable<V>>>{
+        private final SpillableHashTable<K,V> table;
+        private final boolean owned;
+        private final SpillContext context;
+        private int nextPartition=0;
+        private Iterator<Map.Entry<K,Collection<V>>> current;
+        private Iterator<Tuple2<K,Iterable<V>>> nested;
+
+        GroupIterator(SpillableHashTable<K,V> table,boolean owned,SpillContext context){
+            this.table=table;
+            this.owned=owned;
+            this.context=context;
+        }
+
+        @Override
+        protected Tuple2<K,Iterable<V>> computeNext(){
+            while(true){
+                if(current!=null && current.hasNext()){
+                    Map.Entry<K,Collection<V>> e=current.next();
+                    return new Tuple2<K,Iterable<V>>(e.getKey(),e.getValue());
+                }
+                if(nested!=null && nested.hasNext())
+                    return nested.next();
+                current=null;
+                nested=null;
+                if(nextPartition>=table.numPartitions()){
+                    if(owned)
+                        table.close();
+                    return endOfData();
+                }
+                int p=nextPartition++;
+                if(table.isSpilled(p)){
+                    SpillFile<K,V> spill=table.spillFile(p);
+                    SpillableHashTable<K,V> child=SpillableHashTable.build(spill,context,table.level()+1);
+                    if(owned)
+                        spill.delete();
+                    nested=new GroupIterator<>(child,true,context);
+                }else{
+                    current=table.partition(p).asMap().entrySet().iterator();
+                }
+            }
+        }
+    }
+
+    /**
+     * Joins a probe side against a table. As with {@link GroupIterator}, the table is closed at the end only if
+     * the iterator owns it; the spill files of the probe side always belong to the iterator.
+     */
+    private static class JoinIterator<K,P,B,R> extends AbstractIterator<R>{
+        private final SpillableHashTable<K,B> table;
+        private final boolean owned;
+        private final Iterator<Tuple2<K,P>> probe;
+        private final JoinEmitter<K,P,B,R> emitter;
+        private final SpillContext context;
+        private final SpillFile<K,P>[] probeSpills;
+        private final List<R> buffer=new ArrayList<>();
+        private Iterator<R> buffered=Collections.emptyIterator();
+        private int nextPartition=0;
+        private Iterator<R> nested;
+        private SpillFile<K,P> nestedProbe;
+
+        @SuppressWarnings("unchecked")
+        JoinIterator(SpillableHashTable<K,B> table,boolean owned,Iterator<Tuple2<K,P>> probe,JoinEmitter<K,P,B,R> emitter,SpillContext context){
+            this.table=table;
+            this.owned=owned;
+            this.probe=probe;
+            this.emitter=emitter;
+            this.context=context;
+            this.probeSpills=new SpillFile[table.numPartitions()];
+        }
+
+        @Override
+        protected R computeNext(){
+            try{
+                while(true){
+                    if(buffered.hasNext())
+                        return buffered.next();
+                    if(probe.hasNext()){
+                        probeRow(probe.next());
+                        continue;
+                    }
+                    /*
+                     * The probe side is exhausted, so all the in-memory partitions have been joined. Now
+                     * join the spilled partitions pairwise, one level deeper.
+                     */
+                    if(nested!=null && nested.hasNext())
+                        return nested.next();
+                    if(!advanceSpilledPartition()){
+                        if(owned)
+                            table.close();
+                        return endOfData();
+                    }
+                }
+            }catch(RuntimeException e){
+                cleanup();
+                throw e;
+            }catch(Exception e){
+                cleanup();
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void probeRow(Tuple2<K,P> row) throws Exception{
+            K key=row._1();
+            int p=table.partitionFor(key);
+            if(table.isSpilled(p)){
+                SpillFile<K,P> spill=probeSpills[p];
+                if(spill==null)
+                    spill=probeSpills[p]=SpillFile.create(context);
+                spill.write(key,row._2());
+                return;
+            }
+            Multimap<K,B> partition=table.partition(p);
+            buffer.clear();
+            emitter.emit(key,row._2(),partition.get(key),buffer);
+            buffered=buffer.iterator();
+        }
+
+        private boolean advanceSpilledPartition(){
+            if(nestedProbe!=null){
+                nestedProbe.delete();
+                nestedProbe=null;
+            }
+            nested=null;
+            while(nextPartition<table.numPartitions()){
+                int p=nextPartition++;
+                if(!table.isSpilled(p)) continue;
+                SpillFile<K,B> buildSpill=table.spillFile(p);
+                SpillFile<K,P> probeSpill=probeSpills[p];
+                probeSpills[p]=null;
+                if(probeSpill==null){
+                    //no probe rows hashed to this partition, so nothing can be emitted from it
+                    if(owned)
+                        buildSpill.delete();
+                    continue;
+                }
+                probeSpill.finishWriting();
+                SpillableHashTable<K,B> child=SpillableHashTable.build(buildSpill,context,table.level()+1);
+                if(owned)
+                    buildSpill.delete();
+                nestedProbe=probeSpill;
+                nested=new JoinIterator<>(child,true,probeSpill.iterator(),emitter,context);
+                return true;
+            }
+            return false;
+        }
+
+        private void cleanup(){
+            if(owned)
+                table.close();
+            for(int i=0;i<probeSpills.length;i++){
+                if(probeSpills[i]!=null){
+                    probeSpills[i].delete();
+                    probeSpills[i]=null;
+                }
+            }
+            if(nestedProbe!=null){
+                nestedProbe.delete();
+                nestedProbe=null;
+            }
+        }
+    }
+}
@@ -16,8 +16,10 @@
 package com.splicemachine.derby.stream.function;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -35,6 +37,8 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.shared.common.reference.SQLState;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.load.ByteCsvReader;
+import com.splicemachine.derby.impl.load.ByteFieldParser;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.output.WriteReadUtils;
@@ -127,37 +131,13 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
             ExecRow returnRow = execRow.getClone();
             for (int i = 1; i <= returnRow.nColumns(); i++) {
                 DataValueDescriptor dvd = returnRow.getColumn(i);
-                int type = dvd.getTypeFormatId();
                 if (values.size() <= i-1) {
                     throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(), values.size());
                 }
                 String value = values.get(i - 1);
                 if (value != null && (value.equals("null") || value.equals("NULL") || value.isEmpty()))
                     value = null;
-                if (type == StoredFormatIds.SQL_TIME_ID) {
-                    if(calendar==null)
-                        calendar = new GregorianCalendar();
-                    if (timeFormat == null || value==null){
-                        ((DateTimeDataValue)dvd).setValue(value,calendar);
-                    }else
-                        dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
-                } else if (type == StoredFormatIds.SQL_TIMESTAMP_ID) {
-                    if(calendar==null)
-                        calendar = new GregorianCalendar();
-                    if (timestampFormat == null || value==null)
-                        ((DateTimeDataValue)dvd).setValue(value,calendar);
-                    else
-                        dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
-                } else if (type == StoredFormatIds.SQL_DATE_ID) {
-                    if(calendar==null)
-                        calendar = new GregorianCalendar();
-                    if (dateTimeFormat == null || value == null)
-                        ((DateTimeDataValue)dvd).setValue(value,calendar);
-                    else
-                        dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
-                } else {
-                    dvd.setValue(value);
-                }
+                setValue(dvd, value);
             }
             return new LocatedRow(returnRow);
         } catch (Exception e) {
@@ -169,14 +149,103 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
         }
     }
 
+    /**
+     * Same as {@link #call(List)}, but for the current record of a {@link ByteCsvReader}. Numeric, date and
+     * timestamp fields in their plain forms are set straight from the record bytes; only the remaining fields
+     * are decoded into Strings.
+     */
+    @SuppressFBWarnings(value = "REC_CATCH_EXCEPTION",justification = "Intentional")
+    public LocatedRow call(ByteCsvReader record) throws Exception {
+        operationContext.recordRead();
+        try {
+            ExecRow returnRow = execRow.getClone();
+            byte[] data = record.getBuffer();
+            for (int i = 1; i <= returnRow.nColumns(); i++) {
+                DataValueDescriptor dvd = returnRow.getColumn(i);
+                if (record.getFieldCount() <= i-1) {
+                    throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(), record.getFieldCount());
+                }
+                int offset = record.getFieldOffset(i - 1);
+                int length = record.getFieldLength(i - 1);
+                if (ByteFieldParser.isNull(data, offset, length))
+                    setValue(dvd, null);
+                else if (!ByteFieldParser.setValue(dvd, data, offset, length, parseDateTimes(dvd)))
+                    setValue(dvd, new String(data, offset, length, StandardCharsets.UTF_8));
+            }
+            return new LocatedRow(returnRow);
+        } catch (Exception e) {
+            if (operationContext.isPermissive()) {
+               operationContext.recordBadRecord(e.getLocalizedMessage() + record.getFields(), e);
+                return null;
+            }
+            throw e; // Not Permissive of errors
+        }
+    }
+
+    private void setValue(DataValueDescriptor dvd, String value) throws StandardException {
+        int type = dvd.getTypeFormatId();
+        if (type == StoredFormatIds.SQL_TIME_ID) {
+            if(calendar==null)
+                calendar = new GregorianCalendar();
+            if (timeFormat == null || value==null){
+                ((DateTimeDataValue)dvd).setValue(value,calendar);
+            }else
+                dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
+        } else if (type == StoredFormatIds.SQL_TIMESTAMP_ID) {
+            if(calendar==null)
+                calendar = new GregorianCalendar();
+            if (timestampFormat == null || value==null)
+                ((DateTimeDataValue)dvd).setValue(value,calendar);
+            else
+                dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
+        } else if (type == StoredFormatIds.SQL_DATE_ID) {
+            if(calendar==null)
+                calendar = new GregorianCalendar();
+            if (dateTimeFormat == null || value == null)
+                ((DateTimeDataValue)dvd).setValue(value,calendar);
+            else
+                dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
+        } else {
+            dvd.setValue(value);
+        }
+    }
+
+    /*dates and timestamps can only be parsed from bytes when they are in the default format*/
+    private boolean parseDateTimes(DataValueDescriptor dvd) {
+        int type = dvd.getTypeFormatId();
+        if (type == StoredFormatIds.SQL_DATE_ID)
+            return dateTimeFormat == null;
+        if (type == StoredFormatIds.SQL_TIMESTAMP_ID)
+            return timestampFormat == null;
+        return true;
+    }
+
+    /**
+     * @return a reader splitting records at the byte level, or null if records in {@code charset} have
+     * to be decoded before they can be split.
+     */
+    ByteCsvReader newByteCsvReader(InputStream in, String charset) {
+        char quote = quoteCharacter();
+        char delimiter = columnDelimiterCharacter();
+        if (!ByteCsvReader.supports(charset, quote, delimiter))
+            return null;
+        SConfiguration config =EngineDriver.driver().getConfiguration();
+        return new ByteCsvReader(in, quote, delimiter, config.getImportMaxQuotedColumnLines());
+    }
+
+    private char quoteCharacter() {
+        return characterDelimiter!=null && characterDelimiter.length()>0?characterDelimiter.charAt(0):DEFAULT_STRIP_STRING;
+    }
+
+    private char columnDelimiterCharacter() {
+        return columnDelimiter!=null && columnDelimiter.length()>0?columnDelimiter.charAt(0):DEFAULT_COLUMN_DELIMITTER;
+    }
+
     void checkPreference() {
         if (preference==null){
             SConfiguration config =EngineDriver.driver().getConfiguration();
             int maxQuotedLines = config.getImportMaxQuotedColumnLines();
-            preference=new CsvPreference.Builder(
-                    characterDelimiter!=null && characterDelimiter.length()>0?characterDelimiter.charAt(0):DEFAULT_STRIP_STRING,
-                    columnDelimiter!=null && columnDelimiter.length()>0?columnDelimiter.charAt(0):DEFAULT_COLUMN_DELIMITTER,
-                    "\n").maxLinesPerRow(maxQuotedLines).build();
+            preference=new CsvPreference.Builder(quoteCharacter(),columnDelimiterCharacter(),"\n").maxLinesPerRow(maxQuotedLines).build();
         }
     }
 
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.db.iapi.services.io.ArrayUtil;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.RowLocation;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.index.IndexTransformer;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.sequence.SpliceSequence;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.output.WriteReadUtils;
+import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes inserted rows for a bulk load. Each row is encoded exactly as the insert pipeline would encode it,
+ * and is emitted together with the entry for every index on the table, each keyed by its destination
+ * conglomerate.
+ */
+public class BulkInsertRowsFunction extends SpliceFlatMapFunction<SpliceOperation,LocatedRow,Tuple2<Long,KVPair>> {
+    private int[] pkCols;
+    private String tableVersion;
+    private int[] execRowTypeFormatIds;
+    private long heapConglom;
+    private TxnView txn;
+    private List<DDLMessage.TentativeIndex> tentativeIndexes;
+
+    private transient InsertPipelineWriter encoder;
+    private transient IndexTransformer[] transformers;
+
+    public BulkInsertRowsFunction() {
+        super();
+    }
+
+    public BulkInsertRowsFunction(OperationContext<SpliceOperation> operationContext,
+                                  int[] pkCols,
+                                  String tableVersion,
+                                  int[] execRowTypeFormatIds,
+                                  long heapConglom,
+                                  TxnView txn,
+                                  List<DDLMessage.TentativeIndex> tentativeIndexes) {
+        super(operationContext);
+        this.pkCols = pkCols;
+        this.tableVersion = tableVersion;
+        this.execRowTypeFormatIds = execRowTypeFormatIds;
+        this.heapConglom = heapConglom;
+        this.txn = txn;
+        this.tentativeIndexes = tentativeIndexes;
+    }
+
+    @Override
+    public Iterable<Tuple2<Long, KVPair>> call(LocatedRow locatedRow) throws Exception {
+        if (encoder == null)
+            init();
+        ExecRow row = locatedRow.getRow();
+        try {
+            KVPair pair = encoder.encode(row);
+            List<Tuple2<Long, KVPair>> pairs = new ArrayList<>(transformers.length + 1);
+            pairs.add(new Tuple2<>(heapConglom, pair));
+            for (int i = 0; i < transformers.length; i++) {
+                KVPair indexPair = transformers[i].translate(pair);
+                pairs.add(new Tuple2<>(tentativeIndexes.get(i).getIndex().getConglomerate(), indexPair));
+            }
+            operationContext.recordWrite();
+            return pairs;
+        } catch (Exception e) {
+            if (operationContext.isPermissive()) {
+                operationContext.recordBadRecord(e.getLocalizedMessage() + row.toString(), e);
+                return Collections.emptyList();
+            }
+            throw e;
+        }
+    }
+
+    private void init() {
+        encoder = new InsertPipelineWriter(pkCols,
+                tableVersion,
+                WriteReadUtils.getExecRowFromTypeFormatIds(execRowTypeFormatIds),
+                new RowLocation[0],
+                new SpliceSequence[0],
+                heapConglom,
+                txn,
+                operationContext,
+                false);
+        transformers = new IndexTransformer[tentativeIndexes.size()];
+        for (int i = 0; i < transformers.length; i++) {
+            transformers[i] = new IndexTransformer(tentativeIndexes.get(i));
+        }
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        ArrayUtil.writeIntArray(out, pkCols);
+        out.writeUTF(tableVersion);
+        ArrayUtil.writeIntArray(out, execRowTypeFormatIds);
+        out.writeLong(heapConglom);
+        SIDriver.driver().getOperationFactory().writeTxn(txn, out);
+        out.writeInt(tentativeIndexes.size());
+        for (DDLMessage.TentativeIndex tentativeIndex : tentativeIndexes) {
+            byte[] message = tentativeIndex.toByteArray();
+            out.writeInt(message.length);
+            out.write(message);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        pkCols = ArrayUtil.readIntArray(in);
+        tableVersion = in.readUTF();
+        execRowTypeFormatIds = ArrayUtil.readIntArray(in);
+        heapConglom = in.readLong();
+        txn = SIDriver.driver().getOperationFactory().readTxn(in);
+        int size = in.readInt();
+        tentativeIndexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            byte[] message = new byte[in.readInt()];
+            in.readFully(message);
+            tentativeIndexes.add(DDLMessage.TentativeIndex.parseFrom(message));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.kvpair.KVPair;
+import scala.Tuple2;
+
+/**
+ * Keys the output of {@link BulkInsertRowsFunction} by destination conglomerate.
+ */
+public class BulkLoadPairFunction extends SplicePairFunction<SpliceOperation,Tuple2<Long,KVPair>,Long,KVPair> {
+
+    public BulkLoadPairFunction() {
+        super();
+    }
+
+    @Override
+    public Tuple2<Long, KVPair> call(Tuple2<Long, KVPair> tuple) throws Exception {
+        return tuple;
+    }
+
+    @Override
+    public Long genKey(Tuple2<Long, KVPair> tuple) {
+        return tuple._1();
+    }
+
+    @Override
+    public KVPair genValue(Tuple2<Long, KVPair> tuple) {
+        return tuple._2();
+    }
+}
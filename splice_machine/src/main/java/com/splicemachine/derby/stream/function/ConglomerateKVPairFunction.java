@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.kvpair.KVPair;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Keys every KVPair by a single destination conglomerate, for bulk loads into one table.
+ */
+public class ConglomerateKVPairFunction extends SplicePairFunction<SpliceOperation,KVPair,Long,KVPair> {
+    private long conglomerate;
+
+    public ConglomerateKVPairFunction() {
+        super();
+    }
+
+    public ConglomerateKVPairFunction(long conglomerate) {
+        super();
+        this.conglomerate = conglomerate;
+    }
+
+    @Override
+    public Tuple2<Long, KVPair> call(KVPair kvPair) throws Exception {
+        return new Tuple2<>(conglomerate,kvPair);
+    }
+
+    @Override
+    public Long genKey(KVPair kvPair) {
+        return conglomerate;
+    }
+
+    @Override
+    public KVPair genValue(KVPair kvPair) {
+        return kvPair;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeLong(conglomerate);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        conglomerate = in.readLong();
+    }
+}
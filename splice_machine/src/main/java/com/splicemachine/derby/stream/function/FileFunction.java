@@ -17,17 +17,21 @@ package com.splicemachine.derby.stream.function;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.load.ByteCsvReader;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 
 /**
  *
- * Function for parsing CSV files that are splittable by Hadoop.  The tokenizer swaps in and out
- * the line to be tokenized.
+ * Function for parsing CSV files that are splittable by Hadoop, one line at a time.  Each line arrives as
+ * its UTF-8 bytes. When the quote and delimiter characters allow it, the line is split at the byte level
+ * by a {@link ByteCsvReader}, so that plain numeric, date and timestamp fields never become Strings.
+ * Otherwise the line is decoded, and the tokenizer swaps in and out the line to be tokenized.
  *
  * Special attention should be paid to permissive execution of the OperationContext.  This occurs
  * during imports so that failures are <i>handled</i>.
@@ -35,9 +39,10 @@ import java.util.Collections;
  *
  */
 @NotThreadSafe
-public class FileFunction extends AbstractFileFunction<String> {
+public class FileFunction extends AbstractFileFunction<byte[]> {
     boolean initialized = false;
     MutableCSVTokenizer tokenizer;
+    ByteCsvReader byteCsvReader;
     public FileFunction() {
         super();
     }
@@ -49,26 +54,34 @@ public class FileFunction extends AbstractFileFunction<String> {
 
     /**
      *
-     * Call Method for parsing the string into either a singleton List with a LocatedRow or
-     * an empty list.
+     * Call Method for parsing the bytes of a line into either a singleton List with a LocatedRow or
+     * an empty list. Empty lines are skipped.
      *
-     * @param s
+     * @param line
      * @return
      * @throws Exception
      */
     @Override
-    public Iterable<LocatedRow> call(final String s) throws Exception {
-        if (operationContext.isFailed())
+    public Iterable<LocatedRow> call(final byte[] line) throws Exception {
+        if (operationContext.isFailed() || line.length == 0)
             return Collections.EMPTY_LIST;
         if (!initialized) {
-            Reader reader = new StringReader(s);
-            checkPreference();
-            tokenizer= new MutableCSVTokenizer(reader,preference);
+            byteCsvReader = newByteCsvReader(new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8.name());
+            if (byteCsvReader == null) {
+                checkPreference();
+                tokenizer = new MutableCSVTokenizer(new StringReader(""), preference);
+            }
             initialized = true;
         }
         try {
-            tokenizer.setLine(s);
-            LocatedRow lr =  call(tokenizer.read());
+            LocatedRow lr;
+            if (byteCsvReader != null) {
+                byteCsvReader.reset(line, line.length);
+                lr = byteCsvReader.next() ? call(byteCsvReader) : null;
+            } else {
+                tokenizer.setLine(new String(line, StandardCharsets.UTF_8));
+                lr = call(tokenizer.read());
+            }
             return lr==null?Collections.EMPTY_LIST:Collections.singletonList(lr);
         } catch (Exception e) {
             if (operationContext.isPermissive()) {
@@ -78,4 +91,4 @@ public class FileFunction extends AbstractFileFunction<String> {
             throw StandardException.plainWrapException(e);
         }
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,7 @@ package com.splicemachine.derby.stream.function;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.load.ByteCsvReader;
 import com.splicemachine.derby.impl.load.SpliceCsvReader;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -71,6 +72,7 @@ import java.util.NoSuchElementException;
                     private boolean initialized = false;
                     private Reader reader;
                     private SpliceCsvReader spliceCsvReader;
+                    private ByteCsvReader byteCsvReader;
                     private boolean hasNext = true;
                     private boolean stale = false;
                     @Override
@@ -79,18 +81,30 @@ import java.util.NoSuchElementException;
                                 return hasNext;
                             try {
                                 if (!initialized) {
-                                    reader = new BufferedReader(new InputStreamReader(s,charset));
-                                    spliceCsvReader = new SpliceCsvReader(reader, preference);
+                                    byteCsvReader = newByteCsvReader(s, charset);
+                                    if (byteCsvReader == null) {
+                                        reader = new BufferedReader(new InputStreamReader(s,charset));
+                                        spliceCsvReader = new SpliceCsvReader(reader, preference);
+                                    }
                                     initialized = true;
                                 }
                                 while (true) {
                                     try {
-                                        if (!spliceCsvReader.hasNext()) {
-                                            reader.close();
-                                            hasNext = false;
-                                            return false;
+                                        if (byteCsvReader != null) {
+                                            if (!byteCsvReader.next()) {
+                                                byteCsvReader.close();
+                                                hasNext = false;
+                                                return false;
+                                            }
+                                            nextRow = call(byteCsvReader);
+                                        } else {
+                                            if (!spliceCsvReader.hasNext()) {
+                                                reader.close();
+                                                hasNext = false;
+                                                return false;
+                                            }
+                                            nextRow = call(spliceCsvReader.next());
                                         }
-                                        nextRow = call(spliceCsvReader.next());
                                         if (nextRow != null) {
                                             stale = true;
                                             hasNext = true;
@@ -89,6 +89,12 @@ public interface DataSetProcessor {
     DataSet<String> readTextFile(String path);
 
     DataSet<String> readTextFile(String path, SpliceOperation op);
+
+    /**
+     * Same as {@link #readTextFile(String, SpliceOperation)}, but returns the undecoded UTF-8 bytes of
+     * each line.
+     */
+    DataSet<byte[]> readTextFileBytes(String path, SpliceOperation op);
     
     /**
      * Gets an empty PairDataSet
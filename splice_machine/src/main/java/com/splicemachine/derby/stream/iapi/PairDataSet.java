@@ -20,6 +20,7 @@ import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.function.*;
+import com.splicemachine.derby.stream.output.BulkWriteDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.DataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.InsertDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.UpdateDataSetWriterBuilder;
@@ -44,6 +45,14 @@ public interface PairDataSet<K,V> {
     <Op extends SpliceOperation, U> DataSet<U> flatmap(SpliceFlatMapFunction<Op, Tuple2<K, V>, U> function,boolean isLast);
     PairDataSet<K,V> sortByKey(Comparator<K> comparator);
     PairDataSet<K,V> sortByKey(Comparator<K> comparator,String name);
+
+    /**
+     * Sort by key, knowing that only the first {@code limit} rows will be consumed. Implementations
+     * may use the limit to avoid sorting the full data set, but are free to return more rows.
+     *
+     * @param limit the number of rows that will be consumed, or {@code <=0} if all of them will be.
+     */
+    PairDataSet<K,V> sortByKey(Comparator<K> comparator,String name,long limit);
     PairDataSet<K, V> partitionBy(Partitioner<K> partitioner, Comparator<K> comparator);
     PairDataSet<K, Iterable<V>> groupByKey();
     PairDataSet<K, Iterable<V>> groupByKey(String name);
@@ -61,5 +70,6 @@ public interface PairDataSet<K,V> {
     InsertDataSetWriterBuilder insertData(OperationContext operationContext) throws StandardException;
     UpdateDataSetWriterBuilder updateData(OperationContext operationContext) throws StandardException;
     DataSetWriterBuilder directWriteData() throws StandardException;
+    BulkWriteDataSetWriterBuilder bulkWriteData() throws StandardException;
     String toString();
 }
\ No newline at end of file
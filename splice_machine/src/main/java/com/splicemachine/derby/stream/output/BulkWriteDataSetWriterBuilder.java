@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.output;
+
+import com.splicemachine.pipeline.constraint.ConstraintContext;
+
+import java.util.Map;
+
+/**
+ * Builds a writer that bulk loads KVPairs keyed by destination conglomerate, writing storage files
+ * directly instead of pushing every row through the write pipeline.
+ */
+public interface BulkWriteDataSetWriterBuilder extends DataSetWriterBuilder{
+
+    /**
+     * @param stagingDirectory the directory in which storage files are generated before being loaded
+     */
+    BulkWriteDataSetWriterBuilder stagingDirectory(String stagingDirectory);
+
+    /**
+     * @param sampling if true, split points are chosen by sampling the keys being loaded, otherwise
+     *                 the current region boundaries of each destination table are used
+     */
+    BulkWriteDataSetWriterBuilder sampling(boolean sampling);
+
+    /**
+     * @param uniqueConstraints the primary key or unique constraint enforced by each destination conglomerate,
+     *                          reported when the loaded keys of that conglomerate contain a duplicate
+     */
+    BulkWriteDataSetWriterBuilder uniqueConstraints(Map<Long, ConstraintContext> uniqueConstraints);
+}
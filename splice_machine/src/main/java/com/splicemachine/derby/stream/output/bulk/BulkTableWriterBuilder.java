@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.output.bulk;
+
+import com.splicemachine.derby.stream.output.BulkWriteDataSetWriterBuilder;
+import com.splicemachine.derby.stream.output.direct.DirectTableWriterBuilder;
+import com.splicemachine.pipeline.constraint.ConstraintContext;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base builder for bulk loads. The destination conglomerate is only used as the destination reported
+ * to the caller; the KVPairs themselves are keyed by the conglomerate they belong to.
+ */
+public abstract class BulkTableWriterBuilder extends DirectTableWriterBuilder implements BulkWriteDataSetWriterBuilder{
+    protected String stagingDirectory;
+    protected boolean sampling;
+    protected Map<Long, ConstraintContext> uniqueConstraints = new HashMap<>();
+
+    @Override
+    public BulkWriteDataSetWriterBuilder stagingDirectory(String stagingDirectory){
+        this.stagingDirectory = stagingDirectory;
+        return this;
+    }
+
+    @Override
+    public BulkWriteDataSetWriterBuilder sampling(boolean sampling){
+        this.sampling = sampling;
+        return this;
+    }
+
+    @Override
+    public BulkWriteDataSetWriterBuilder uniqueConstraints(Map<Long, ConstraintContext> uniqueConstraints){
+        this.uniqueConstraints = uniqueConstraints;
+        return this;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        super.writeExternal(out);
+        out.writeBoolean(stagingDirectory!=null);
+        if(stagingDirectory!=null)
+            out.writeUTF(stagingDirectory);
+        out.writeBoolean(sampling);
+        out.writeInt(uniqueConstraints.size());
+        for(Map.Entry<Long, ConstraintContext> entry : uniqueConstraints.entrySet()){
+            out.writeLong(entry.getKey());
+            out.writeObject(entry.getValue());
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        super.readExternal(in);
+        if(in.readBoolean())
+            stagingDirectory = in.readUTF();
+        sampling = in.readBoolean();
+        int size = in.readInt();
+        uniqueConstraints = new HashMap<>(size);
+        for(int i = 0; i < size; i++){
+            uniqueConstraints.put(in.readLong(), (ConstraintContext)in.readObject());
+        }
+    }
+}
@@ -127,6 +127,21 @@ public class InsertPipelineWriter extends AbstractPipelineWriter<ExecRow>{
         }
     }
 
+    /**
+     * Encodes a row exactly as {@link #insert(ExecRow)} would, without opening a write buffer. Used by
+     * bulk loads that write the encoded pairs into storage files rather than through the pipeline.
+     */
+    public KVPair encode(ExecRow execRow) throws StandardException {
+        if (encoder == null)
+            encoder = new PairEncoder(getKeyEncoder(), getRowHash(), dataType);
+        beforeRow(execRow);
+        try {
+            return encoder.encode(execRow);
+        } catch (IOException e) {
+            throw Exceptions.parseException(e);
+        }
+    }
+
     public void insert(Iterator<ExecRow> execRows) throws StandardException {
         while (execRows.hasNext())
             insert(execRows.next());
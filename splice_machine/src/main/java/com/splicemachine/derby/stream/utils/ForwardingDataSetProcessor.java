@@ -115,6 +115,11 @@ public abstract class ForwardingDataSetProcessor implements DataSetProcessor{
         return delegate.readTextFile(path,op);
     }
 
+    @Override
+    public DataSet<byte[]> readTextFileBytes(String path,SpliceOperation op){
+        return delegate.readTextFileBytes(path,op);
+    }
+
     @Override
     public <K,V> PairDataSet<K, V> getEmptyPair(){
         return delegate.getEmptyPair();
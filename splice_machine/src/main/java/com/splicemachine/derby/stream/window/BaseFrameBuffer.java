@@ -31,6 +31,13 @@ import java.util.Iterator;
 import java.util.List;
 
 /**
+ * Evaluates the window functions over a single partition, one frame per row.
+ * <p/>
+ * When every function can be evaluated from the frame alone, rows are emitted as soon as their frame
+ * is complete, and only the rows which some frame still needs are held in memory. Functions which
+ * need the entire partition before producing results (e.g. LEAD and LAG) force the whole partition
+ * to be evaluated, and buffered, before the first row is emitted.
+ *
  * Created by jyuan on 9/15/14.
  */
 abstract public class BaseFrameBuffer implements WindowFrameBuffer{
@@ -43,11 +50,14 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     protected int start;
     protected int end;
     protected int current;
-    protected ArrayList<ExecRow> rows;
+    protected RowRingBuffer rows;
     protected PeekingIterator<ExecRow> source;
     protected byte[] partition;
     protected int[] sortColumns;
     private boolean initialized;
+    private boolean streaming;
+    private boolean needsMove;
+    private ExecRow nextRow;
 
     @SuppressFBWarnings(value="EI_EXPOSE_REP2", justification="Intentional")
     public static WindowFrameBuffer createFrameBuffer(
@@ -88,12 +98,20 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
         // The frame definition will not change over the life of this frame buffer
         this.frameStart = frameDefinition.getFrameStart().getValue();
         this.frameEnd = frameDefinition.getFrameEnd().getValue();
-        this.rows = new ArrayList<ExecRow>();
+        this.rows = new RowRingBuffer();
         this.resultBuffer = new ResultBuffer();
     }
 
     public ExecRow next() {
-        return resultBuffer.next();
+        if (!streaming) {
+            return resultBuffer.next();
+        }
+        if (!hasNext()) {
+            return null;
+        }
+        ExecRow row = nextRow;
+        nextRow = null;
+        return row;
     }
 
     private ExecRow nextInternal() throws IOException, StandardException {
@@ -109,7 +127,6 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
             SpliceGenericWindowFunction function = (SpliceGenericWindowFunction) templateRow.getColumn(aggregatorColumnId).getObject();
             row.setColumn(resultColumnId, function.getResult().cloneValue(false));
         }
-        this.resultBuffer.bufferResult(row);
         return row;
     }
 
@@ -133,15 +150,35 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
             initialized = true;
             try {
                 reset();
-                while (nextInternal() != null) {
+                streaming = !needsEntireFrame();
+                if (!streaming) {
+                    ExecRow row;
+                    while ((row = nextInternal()) != null) {
+                        resultBuffer.bufferResult(row);
+                        move();
+                    }
+                    finishFrame();
+                }
+            } catch (Exception se) {
+                throw new RuntimeException(se);
+            }
+        }
+        if (!streaming) {
+            return resultBuffer.hasNext();
+        }
+        if (nextRow == null) {
+            try {
+                // slide the frame past the row we last emitted only once the caller is done with it
+                if (needsMove) {
                     move();
                 }
-                finishFrame();
+                nextRow = nextInternal();
+                needsMove = nextRow != null;
             } catch (Exception se) {
                 throw new RuntimeException(se);
             }
         }
-        return resultBuffer.hasNext();
+        return nextRow != null;
     }
 
     @Override
@@ -165,7 +202,7 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     }
 
     protected void reset() throws StandardException, IOException {
-        rows = new ArrayList<ExecRow>();
+        rows.clear();
 
         // Initialize window functions
         for (WindowAggregator aggregator : this.aggregators) {
@@ -173,6 +210,8 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
             SpliceGenericWindowFunction windowFunction =
                     (SpliceGenericWindowFunction) templateRow.getColumn(aggregatorColumnId).getObject();
             windowFunction.reset();
+            // rows only leave the frame when it has a lower bound
+            windowFunction.setRemovable(frameStart != Long.MIN_VALUE);
             aggregator.initialize(templateRow);
         }
 
@@ -182,6 +221,17 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
 
     abstract protected void loadFrame() throws IOException, StandardException;
 
+    private boolean needsEntireFrame() throws StandardException {
+        for (WindowAggregator aggregator : aggregators) {
+            SpliceGenericWindowFunction function =
+                    (SpliceGenericWindowFunction) templateRow.getColumn(aggregator.getFunctionColumnId()).getObject();
+            if (function.needsEntireFrame()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static class ResultBuffer implements Iterator<ExecRow> {
         private final List<ExecRow> results = new ArrayList<>();
         private Iterator<ExecRow> resultItr;
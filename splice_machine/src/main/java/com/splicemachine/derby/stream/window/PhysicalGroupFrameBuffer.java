@@ -81,7 +81,7 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
             // 2. the row was just moved out of th window frame
             // 3. window start frame is after the current row
 
-            rows.remove(0);
+            rows.removeFirst();
             start--;
             current--;
             end--;
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The rows currently held by a frame buffer, in the order they were read.
+ * <p/>
+ * Rows only ever leave from the front, and arrive at the back, so this is kept as a
+ * growable ring buffer: both ends are O(1), and the backing array only grows as large
+ * as the most rows the frame ever needs to hold at once.
+ */
+class RowRingBuffer{
+    private ExecRow[] buffer;
+    private int head;
+    private int size;
+
+    RowRingBuffer(){
+        this(16);
+    }
+
+    RowRingBuffer(int initialCapacity){
+        int capacity=1;
+        while(capacity<initialCapacity)
+            capacity<<=1;
+        this.buffer=new ExecRow[capacity];
+    }
+
+    void add(ExecRow row){
+        if(size==buffer.length)
+            grow();
+        buffer[(head+size)&(buffer.length-1)]=row;
+        size++;
+    }
+
+    ExecRow get(int index){
+        if(index<0 || index>=size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        return buffer[(head+index)&(buffer.length-1)];
+    }
+
+    ExecRow removeFirst(){
+        if(size==0)
+            throw new NoSuchElementException();
+        ExecRow row=buffer[head];
+        buffer[head]=null; //let the row be collected once it's been emitted
+        head=(head+1)&(buffer.length-1);
+        size--;
+        return row;
+    }
+
+    int size(){
+        return size;
+    }
+
+    void clear(){
+        Arrays.fill(buffer,null);
+        head=size=0;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void grow(){
+        ExecRow[] newBuffer=new ExecRow[buffer.length<<1];
+        int firstPart=Math.min(size,buffer.length-head);
+        System.arraycopy(buffer,head,newBuffer,0,firstPart);
+        System.arraycopy(buffer,0,newBuffer,firstPart,size-firstPart);
+        buffer=newBuffer;
+        head=0;
+    }
+}
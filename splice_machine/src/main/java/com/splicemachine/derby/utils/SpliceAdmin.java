@@ -19,6 +19,7 @@ import com.splicemachine.db.catalog.SystemProcedures;
 import com.splicemachine.db.iapi.reference.SQLState;
 import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.ddl.DDLUtils;
+import com.splicemachine.derby.impl.sql.execute.sequence.SpliceSequence;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
 import com.splicemachine.protobuf.ProtoUtil;
 import org.sparkproject.guava.collect.Lists;
@@ -49,6 +50,7 @@ import com.splicemachine.db.impl.jdbc.EmbedResultSet40;
 import com.splicemachine.db.impl.jdbc.ResultSetBuilder;
 import com.splicemachine.db.impl.jdbc.ResultSetBuilder.RowBuilder;
 import com.splicemachine.db.impl.sql.GenericActivationHolder;
+import com.splicemachine.db.impl.sql.AutoParameterizer;
 import com.splicemachine.db.impl.sql.GenericColumnDescriptor;
 import com.splicemachine.db.impl.sql.GenericPreparedStatement;
 import com.splicemachine.db.impl.sql.execute.IteratorNoPutResultSet;
@@ -56,6 +58,7 @@ import com.splicemachine.db.impl.sql.execute.ValueRow;
 import com.splicemachine.derby.stream.ActivationHolder;
 import com.splicemachine.pipeline.ErrorState;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.PartitionLoad;
@@ -809,6 +812,86 @@ public class SpliceAdmin extends BaseAdminProcedures{
         EngineDriver.driver().dbAdministrator().emptyGlobalStatementCache();
     }
 
+    private static final ResultColumnDescriptor[] STATEMENT_SHAPE_COLUMNS=new GenericColumnDescriptor[]{
+            new GenericColumnDescriptor("SHAPE",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+            new GenericColumnDescriptor("COMPILATIONS",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("HITS",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("HIT_RATE",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE)),
+            new GenericColumnDescriptor("EXECUTIONS",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("FALLBACKS",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("BYPASSES",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("LITERAL_SENSITIVE",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BOOLEAN))
+    };
+
+    public static void SYSCS_GET_STATEMENT_SHAPE_STATISTICS(final ResultSet[] resultSet) throws SQLException{
+        EmbedConnection defaultConn=(EmbedConnection)getDefaultConn();
+        LanguageConnectionContext lcc=defaultConn.getLanguageConnection();
+        List<AutoParameterizer.Shape> shapes=lcc.getLanguageConnectionFactory().getAutoParameterizer().getShapes();
+        List<ExecRow> rows=new ArrayList<>(shapes.size());
+        try{
+            for(AutoParameterizer.Shape shape:shapes){
+                ExecRow row=new ValueRow(STATEMENT_SHAPE_COLUMNS.length);
+                row.setRowArray(new DataValueDescriptor[]{
+                        new SQLVarchar(shape.getText()),
+                        new SQLLongint(shape.getCompilations()),
+                        new SQLLongint(shape.getHits()),
+                        new SQLDouble(shape.getHitRate()),
+                        new SQLLongint(shape.getExecutions()),
+                        new SQLLongint(shape.getFallbacks()),
+                        new SQLLongint(shape.getBypasses()),
+                        new SQLBoolean(shape.isLiteralSensitive())
+                });
+                rows.add(row);
+            }
+            IteratorNoPutResultSet resultsToWrap=new IteratorNoPutResultSet(rows,STATEMENT_SHAPE_COLUMNS,lcc.getLastActivation());
+            resultsToWrap.openCore();
+            resultSet[0]=new EmbedResultSet40(defaultConn,resultsToWrap,false,null,true);
+        }catch(StandardException se){
+            throw PublicAPI.wrapStandardException(se);
+        }
+    }
+
+    private static final ResultColumnDescriptor[] SEQUENCE_ALLOCATION_COLUMNS=new GenericColumnDescriptor[]{
+            new GenericColumnDescriptor("SEQUENCE_ROW",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
+            new GenericColumnDescriptor("INCREMENT",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("BLOCK_SIZE",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("CURRENT_BLOCK_SIZE",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("ALLOCATIONS",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("CONFLICTS",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("PREFETCHES",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("STALLS",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+            new GenericColumnDescriptor("STALL_TIME_MS",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT))
+    };
+
+    public static void SYSCS_GET_SEQUENCE_ALLOCATION_STATISTICS(final ResultSet[] resultSet) throws SQLException{
+        EmbedConnection defaultConn=(EmbedConnection)getDefaultConn();
+        LanguageConnectionContext lcc=defaultConn.getLanguageConnection();
+        Collection<SpliceSequence> sequences=EngineDriver.driver().sequencePool().getResources();
+        List<ExecRow> rows=new ArrayList<>(sequences.size());
+        try{
+            for(SpliceSequence sequence:sequences){
+                ExecRow row=new ValueRow(SEQUENCE_ALLOCATION_COLUMNS.length);
+                row.setRowArray(new DataValueDescriptor[]{
+                        new SQLVarchar(Bytes.toHex(sequence.getSysColumnsRow())),
+                        new SQLLongint(sequence.getIncrementSteps()),
+                        new SQLLongint(sequence.getBlockAllocationSize()),
+                        new SQLLongint(sequence.getCurrentBlockSize()),
+                        new SQLLongint(sequence.getAllocations()),
+                        new SQLLongint(sequence.getAllocationConflicts()),
+                        new SQLLongint(sequence.getPrefetches()),
+                        new SQLLongint(sequence.getStalls()),
+                        new SQLLongint(sequence.getStallNanos()/1000000l)
+                });
+                rows.add(row);
+            }
+            IteratorNoPutResultSet resultsToWrap=new IteratorNoPutResultSet(rows,SEQUENCE_ALLOCATION_COLUMNS,lcc.getLastActivation());
+            resultsToWrap.openCore();
+            resultSet[0]=new EmbedResultSet40(defaultConn,resultsToWrap,false,null,true);
+        }catch(StandardException se){
+            throw PublicAPI.wrapStandardException(se);
+        }
+    }
+
     private static Collection<PartitionServer> getLoad() throws SQLException{
         try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
             return admin.allServers();
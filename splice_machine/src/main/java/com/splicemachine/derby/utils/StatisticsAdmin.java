@@ -23,6 +23,7 @@ import com.splicemachine.derby.utils.stats.StatsResult;
 import org.sparkproject.guava.collect.FluentIterable;
 import org.sparkproject.guava.collect.Lists;
 import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.PublicAPI;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableBitSet;
@@ -46,21 +47,24 @@ import com.splicemachine.db.shared.common.reference.SQLState;
 import com.splicemachine.ddl.DDLMessage.DDLChange;
 import com.splicemachine.derby.ddl.DDLUtils;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.stats.PartitionStatsStore;
 import com.splicemachine.derby.impl.stats.SimpleOverheadManagedPartitionStatistics;
+import com.splicemachine.derby.impl.stats.StalePartitionDetector;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
 import com.splicemachine.derby.impl.store.access.base.SpliceConglomerate;
-import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DistributedDataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.metrics.Metrics;
 import com.splicemachine.pipeline.ErrorState;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.protobuf.ProtoUtil;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.stats.ColumnStatistics;
 import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.Pair;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
@@ -179,19 +183,22 @@ public class StatisticsAdmin extends BaseAdminProcedures {
             authorize(tds);
             TransactionController transactionExecute = lcc.getTransactionExecute();
             transactionExecute.elevate("statistics");
-            dropTableStatistics(tds,dd,tc);
-            ddlNotification(tc,tds);
-//            ExecRow templateOutputRow = buildOutputTemplateRow();
-            TxnView txn = ((SpliceTransactionManager) transactionExecute).getRawTransaction().getActiveStateTxn();
-
-            // Create the Dataset.  This needs to stay in a dataset for parallel execution (very important).
-            DataSet<ExecRow> dataSet = null;
-
             HashMap<Long,Pair<String,String>> display = new HashMap<>();
-            List<Future<StatsResult>> futures = new ArrayList(tds.size());
             for (TableDescriptor td : tds) {
                 display.put(td.getHeapConglomerateId(),Pair.newPair(schema,td.getName()));
-                futures.add(collectTableStatistics(td, txn, conn));
+            }
+            List<Future<StatsResult>> futures;
+            if (staleOnly) {
+                futures = collectStaleStatistics(tds, dd, tc, conn);
+            } else {
+                dropTableStatistics(tds,dd,tc);
+                ddlNotification(tc,tds);
+                TxnView txn = ((SpliceTransactionManager) transactionExecute).getRawTransaction().getActiveStateTxn();
+
+                futures = new ArrayList(tds.size());
+                for (TableDescriptor td : tds) {
+                    futures.add(collectTableStatistics(td, txn, conn));
+                }
             }
             IteratorNoPutResultSet resultsToWrap = wrapResults(conn,
             displayTableStatistics(futures,dd,transactionExecute,display));
@@ -254,17 +261,20 @@ public class StatisticsAdmin extends BaseAdminProcedures {
             DataDictionary dd = conn.getLanguageConnection().getDataDictionary();
             dd.startWriting(conn.getLanguageConnection());
             TransactionController tc = conn.getLanguageConnection().getTransactionExecute();
-            dropTableStatistics(tds,dd,tc);
-            ddlNotification(tc, tds);
-            TxnView txn = ((SpliceTransactionManager) tc).getRawTransaction().getActiveStateTxn();
+            List<Future<StatsResult>> futures;
+            if (staleOnly) {
+                futures = collectStaleStatistics(tds, dd, tc, conn);
+            } else {
+                dropTableStatistics(tds,dd,tc);
+                ddlNotification(tc, tds);
+                TxnView txn = ((SpliceTransactionManager) tc).getRawTransaction().getActiveStateTxn();
+                futures = Lists.newArrayList(collectTableStatistics(tableDesc, txn, conn));
+            }
             HashMap<Long,Pair<String,String>> display = new HashMap<>();
             display.put(tableDesc.getHeapConglomerateId(),Pair.newPair(schema,table));
             IteratorNoPutResultSet resultsToWrap = wrapResults(
                 conn,
-                displayTableStatistics(Lists.newArrayList(
-                    collectTableStatistics(tableDesc, txn, conn)
-                ),
-                dd, tc, display));
+                displayTableStatistics(futures, dd, tc, display));
             outputResults[0] = new EmbedResultSet40(conn, resultsToWrap, false, null, true);
         } catch (StandardException se) {
             throw PublicAPI.wrapStandardException(se);
@@ -327,10 +337,83 @@ public class StatisticsAdmin extends BaseAdminProcedures {
                                                              TxnView txn,
                                                              EmbedConnection conn) throws StandardException, ExecutionException {
 
-       return collectBaseTableStatistics(table, txn, conn);
+        List<Partition> partitions = getPartitions(table);
+        StalePartitionDetector.recordCollected(table.getHeapConglomerateId(), partitions, StalePartitionDetector.getWriteCounts(partitions));
+        return collectBaseTableStatistics(table, new byte[0], new byte[0], txn, conn);
+    }
+
+    /**
+     * Collect statistics only for those partitions which have seen enough writes since they were last
+     * collected (or which have never been collected). The statistics of those partitions, as well as those of
+     * partitions which no longer exist, are dropped; the statistics of every other partition are left in place,
+     * and are merged with the new ones when the table statistics are read.
+     */
+    private static List<Future<StatsResult>> collectStaleStatistics(List<TableDescriptor> tds,
+                                                                    DataDictionary dd,
+                                                                    TransactionController tc,
+                                                                    EmbedConnection conn) throws StandardException, ExecutionException {
+        SConfiguration config = EngineDriver.driver().getConfiguration();
+        List<TableDescriptor> changed = new ArrayList<>(tds.size());
+        List<Pair<TableDescriptor,List<Pair<byte[],byte[]>>>> toCollect = new ArrayList<>(tds.size());
+        for (TableDescriptor td : tds) {
+            long heapConglomerateId = td.getHeapConglomerateId();
+            List<Partition> partitions = getPartitions(td);
+            List<PartitionStatisticsDescriptor> statistics = dd.getPartitionStatistics(heapConglomerateId, tc);
+            Map<String,Long> writeCounts = StalePartitionDetector.getWriteCounts(partitions);
+            List<Partition> stale = StalePartitionDetector.stalePartitions(heapConglomerateId, partitions, statistics, writeCounts,
+                    config.getStaleWriteFraction(), config.getStaleMinWrites());
+
+            Set<String> staleNames = new HashSet<>(stale.size());
+            for (Partition partition : stale) {
+                staleNames.add(partition.getName());
+            }
+            boolean dropped = false;
+            for (PartitionStatisticsDescriptor desc : statistics) {
+                //partitions which have been split or merged away no longer exist, so their statistics go too
+                if (staleNames.contains(desc.getPartitionId()) || !writeCounts.containsKey(desc.getPartitionId())) {
+                    if (LOG.isDebugEnabled())
+                        SpliceLogUtils.debug(LOG, "Dropping partition statistics [%d,%s]", heapConglomerateId, desc.getPartitionId());
+                    dd.deletePartitionStatistics(heapConglomerateId, desc.getPartitionId(), tc);
+                    dropped = true;
+                }
+            }
+            if (dropped)
+                changed.add(td);
+            if (!stale.isEmpty()) {
+                toCollect.add(Pair.newPair(td, StalePartitionDetector.contiguousRanges(partitions, stale)));
+                /*
+                 * If the collection fails, the statistics of these partitions are already gone,
+                 * so they will be picked up again by the next collection regardless of the baseline.
+                 */
+                StalePartitionDetector.recordCollected(heapConglomerateId, stale, writeCounts);
+            }
+            if (LOG.isDebugEnabled())
+                SpliceLogUtils.debug(LOG, "Table %s has %d stale partitions out of %d", td.getName(), stale.size(), partitions.size());
+        }
+        if (!changed.isEmpty())
+            ddlNotification(tc, changed);
+        if (toCollect.isEmpty())
+            return Collections.emptyList();
+
+        TxnView txn = ((SpliceTransactionManager) tc).getRawTransaction().getActiveStateTxn();
+        List<Future<StatsResult>> futures = new ArrayList<>();
+        for (Pair<TableDescriptor,List<Pair<byte[],byte[]>>> tableRanges : toCollect) {
+            for (Pair<byte[],byte[]> range : tableRanges.getSecond()) {
+                futures.add(collectBaseTableStatistics(tableRanges.getFirst(), range.getFirst(), range.getSecond(), txn, conn));
+            }
+        }
+        return futures;
+    }
+
+    private static List<Partition> getPartitions(TableDescriptor table) throws StandardException {
+        List<Partition> partitions = new ArrayList<>();
+        PartitionStatsStore.getPartitions(Bytes.toBytes(Long.toString(table.getHeapConglomerateId())), partitions, true);
+        return partitions;
     }
 
     private static Future<StatsResult> collectBaseTableStatistics(TableDescriptor table,
+                                                                 byte[] startKey,
+                                                                 byte[] stopKey,
                                                                  TxnView txn,
                                                                  EmbedConnection conn) throws StandardException, ExecutionException {
         long heapConglomerateId = table.getHeapConglomerateId();
@@ -338,7 +421,7 @@ public class StatisticsAdmin extends BaseAdminProcedures {
         DistributedDataSetProcessor dsp = EngineDriver.driver().processorFactory().distributedProcessor();
 
         ScanSetBuilder ssb = dsp.newScanSet(null,Long.toString(heapConglomerateId)).activation(activation);
-        ScanSetBuilder scanSetBuilder = createTableScanner(ssb,conn,table,txn);
+        ScanSetBuilder scanSetBuilder = createTableScanner(ssb,conn,table,startKey,stopKey,txn);
         String scope = getScopeName(table);
 
         String userId = activation.getLanguageConnectionContext().getCurrentUserId(activation);
@@ -355,9 +438,9 @@ public class StatisticsAdmin extends BaseAdminProcedures {
         return String.format(OperationContext.Scope.COLLECT_STATS.displayName(), td.getName());
     }
 
-    private static DataScan createScan (TxnView txn) {
+    private static DataScan createScan (TxnView txn, byte[] startKey, byte[] stopKey) {
         DataScan scan=SIDriver.driver().getOperationFactory().newDataScan(txn);
-        return scan.startKey(new byte[0]).stopKey(new byte[0]);
+        return scan.startKey(startKey).stopKey(stopKey);
     }
 
     public static int[] getFormatIds(EmbedConnection conn, long columnStatsConglomId) throws StandardException{
@@ -370,6 +453,8 @@ public class StatisticsAdmin extends BaseAdminProcedures {
     private static ScanSetBuilder createTableScanner(ScanSetBuilder builder,
                                                      EmbedConnection conn,
                                                      TableDescriptor table,
+                                                     byte[] startKey,
+                                                     byte[] stopKey,
                                                      TxnView txn) throws StandardException{
 
         List<ColumnDescriptor> colsToCollect = getCollectedColumns(table);
@@ -422,7 +507,7 @@ public class StatisticsAdmin extends BaseAdminProcedures {
                 }
             }
         }
-        DataScan scan = createScan(txn);
+        DataScan scan = createScan(txn, startKey, stopKey);
         ExecRow rowTemplate = new ValueRow(execRowFormatIds.length);
         DataValueDescriptor[] dvds = rowTemplate.getRowArray();
         DataValueFactory dataValueFactory=conn.getLanguageConnection().getDataValueFactory();
@@ -647,6 +732,7 @@ public class StatisticsAdmin extends BaseAdminProcedures {
             if (LOG.isDebugEnabled())
                 SpliceLogUtils.debug(LOG,"Dropping conglomerate statistics [%d]",cd.getConglomerateNumber());
             dd.deletePartitionStatistics(cd.getConglomerateNumber(),tc);
+            StalePartitionDetector.forget(cd.getConglomerateNumber());
         }
     }
 
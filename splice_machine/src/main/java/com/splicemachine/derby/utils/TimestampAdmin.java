@@ -93,7 +93,10 @@ public class TimestampAdmin extends BaseAdminProcedures {
 	private static final ResultColumnDescriptor[] TIMESTAMP_REQUEST_INFO_COLUMNS = new GenericColumnDescriptor[] {
 		new GenericColumnDescriptor("hostName",           DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
 		new GenericColumnDescriptor("totalRequestCount",  DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
-		new GenericColumnDescriptor("avgRequestDuration", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE))
+		new GenericColumnDescriptor("avgRequestDuration", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE)),
+		new GenericColumnDescriptor("roundTripCount",     DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("avgRequestsPerRoundTrip", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE)),
+		new GenericColumnDescriptor("avgRoundTripDuration", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE))
 	};
 	
 	public static void SYSCS_GET_TIMESTAMP_REQUEST_INFO(final ResultSet[] resultSet) throws SQLException {
@@ -101,9 +104,9 @@ public class TimestampAdmin extends BaseAdminProcedures {
             @Override
             public void operate(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException, SQLException {
                 List<Pair<String, TimestampClientStatistics>> mgrs = JMXUtils.getTimestampClientStatistics(connections);
-				ExecRow template = new ValueRow(3);
+				ExecRow template = new ValueRow(6);
 				template.setRowArray(new DataValueDescriptor[]{
-					new SQLVarchar(), new SQLDouble(), new SQLDouble()
+					new SQLVarchar(), new SQLDouble(), new SQLDouble(), new SQLLongint(), new SQLDouble(), new SQLDouble()
 				});
 				List<ExecRow> rows = Lists.newArrayListWithExpectedSize(mgrs.size());
 				for (Pair<String, TimestampClientStatistics> mgmtPair : mgrs) {
@@ -114,6 +117,9 @@ public class TimestampAdmin extends BaseAdminProcedures {
 						dvds[0].setValue(mgmtPair.getFirst()); // region server name
 						dvds[1].setValue(mgmt.getNumberTimestampRequests());
 						dvds[2].setValue(mgmt.getAvgTimestampRequestDuration());
+						dvds[3].setValue(mgmt.getNumberTimestampRoundTrips());
+						dvds[4].setValue(mgmt.getAvgTimestampsPerRoundTrip());
+						dvds[5].setValue(mgmt.getAvgRoundTripDuration());
 					} catch (StandardException se) {
 						throw PublicAPI.wrapStandardException(se);
 					}
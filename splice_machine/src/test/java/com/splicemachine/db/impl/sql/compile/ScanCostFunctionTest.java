@@ -15,13 +15,22 @@
 
 package com.splicemachine.db.impl.sql.compile;
 
+import com.splicemachine.db.iapi.sql.compile.CompilerContext;
+import com.splicemachine.db.iapi.sql.compile.Optimizable;
+import com.splicemachine.db.iapi.store.access.StoreCostController;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.util.JBitSet;
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.*;
 import org.junit.experimental.categories.Category;
 
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 
+import static org.mockito.Mockito.*;
+
 /**
  * Created by jleach on 8/8/15.
  */
@@ -86,4 +95,73 @@ public class ScanCostFunctionTest {
         );
     }
 
+    @Test
+    public void testPeekedSelectivityFarFromTheEstimateIsParameterSensitive() throws Exception {
+        CompilerContext cc = compilerContext(10d);
+        checkParameterSensitivity(RelationalOperator.EQUALS_RELOP, 0.5d, 0.01d, cc);
+        verify(cc).markParameterSensitive();
+    }
+
+    @Test
+    public void testPeekedSelectivityWithinTheThresholdIsNotParameterSensitive() throws Exception {
+        CompilerContext cc = compilerContext(10d);
+        checkParameterSensitivity(RelationalOperator.EQUALS_RELOP, 0.05d, 0.01d, cc);
+        checkParameterSensitivity(RelationalOperator.GREATER_THAN_RELOP, 0.1d, 0.3d, cc);
+        verify(cc, never()).markParameterSensitive();
+    }
+
+    @Test
+    public void testValueMissingFromStatisticsIsParameterSensitive() throws Exception {
+        CompilerContext cc = compilerContext(10d);
+        checkParameterSensitivity(RelationalOperator.LESS_THAN_RELOP, 0d, 0.3d, cc);
+        verify(cc).markParameterSensitive();
+    }
+
+    @Test
+    public void testParameterSensitivityIsNotCheckedWithoutAThreshold() throws Exception {
+        CompilerContext cc = compilerContext(0d);
+        StoreCostController scc = checkParameterSensitivity(RelationalOperator.EQUALS_RELOP, 0.5d, 0.01d, cc);
+        verify(cc, never()).markParameterSensitive();
+        verifyZeroInteractions(scc);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static CompilerContext compilerContext(double threshold) {
+        CompilerContext cc = mock(CompilerContext.class);
+        when(cc.getParameterSensitivityThreshold()).thenReturn(threshold);
+        return cc;
+    }
+
+    /**
+     * Check a predicate on column 1 whose selectivity is {@code withValue} for the parameter's default value,
+     * and {@code withoutValue} for an unknown value.
+     */
+    private static StoreCostController checkParameterSensitivity(int operator,
+                                                                 double withValue,
+                                                                 double withoutValue,
+                                                                 CompilerContext cc) throws Exception {
+        DataValueDescriptor value = new SQLInteger(5);
+        StoreCostController scc = mock(StoreCostController.class);
+        // either end of the range may be open
+        when(scc.getSelectivity(eq(1), any(DataValueDescriptor.class), anyBoolean(), any(DataValueDescriptor.class), anyBoolean()))
+                .thenReturn(withValue);
+
+        ColumnReference column = mock(ColumnReference.class);
+        when(column.getColumnNumber()).thenReturn(1);
+        BinaryRelationalOperatorNode relop = mock(BinaryRelationalOperatorNode.class);
+        when(relop.getOperator()).thenReturn(operator);
+        when(relop.getColumnOperand(any(Optimizable.class))).thenReturn(column);
+        when(relop.getCompareValue(any(Optimizable.class))).thenReturn(value);
+        when(relop.selectivity(any(Optimizable.class))).thenReturn(withoutValue);
+        AndNode andNode = mock(AndNode.class);
+        when(andNode.getLeftOperand()).thenReturn(relop);
+        Predicate p = new Predicate();
+        p.init(andNode, new JBitSet(1));
+
+        ScanCostFunction scf = new ScanCostFunction(new BitSet(), null, null, scc, null, null, null, false, new ResultColumnList());
+        scf.checkParameterSensitivity(p, QualifierPhase.BASE, cc);
+        return scc;
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for splitting CSV records at the byte level. Every input is read with several buffer sizes,
+ * so that records are split across buffer refills.
+ */
+public class ByteCsvReaderTest {
+    private static final int[] BUFFER_SIZES = {1, 2, 3, 7, 64*1024};
+
+    @Test
+    public void splitsRecords() throws Exception {
+        assertRecords("a,b,c\n1,22,333", 0,
+                Arrays.asList("a", "b", "c"),
+                Arrays.asList("1", "22", "333"));
+    }
+
+    @Test
+    public void emptyFieldsHaveNoBytes() throws Exception {
+        assertRecords(",a,,\n", 0, Arrays.asList("", "a", "", ""));
+    }
+
+    @Test
+    public void stripsQuotesAndUnescapesDoubledQuotes() throws Exception {
+        assertRecords("\"a,b\",\"say \"\"hi\"\"\",x\"y\"z\n", 0, Arrays.asList("a,b", "say \"hi\"", "xyz"));
+    }
+
+    @Test
+    public void keepsLineBreaksInsideQuotes() throws Exception {
+        assertRecords("\"x\r\ny\rz\",w\r\nnext", 0,
+                Arrays.asList("x\ny\nz", "w"),
+                Arrays.asList("next"));
+    }
+
+    @Test
+    public void skipsEmptyLines() throws Exception {
+        assertRecords("\n\na\r\n\r\n\rb\r", 0, Arrays.asList("a"), Arrays.asList("b"));
+    }
+
+    @Test
+    public void readsMultiByteCharacters() throws Exception {
+        assertRecords("\u00e9t\u00e9,\u65e5\u672c\n", 0, Arrays.asList("\u00e9t\u00e9", "\u65e5\u672c"));
+    }
+
+    @Test
+    public void usesConfiguredQuoteAndDelimiter() throws Exception {
+        ByteCsvReader reader = reader("'a|b'|c\n", '\'', '|', 0, 64);
+        assertTrue(reader.next());
+        assertEquals(Arrays.asList("a|b", "c"), reader.getFields());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void failsOnQuotedColumnsSpanningTooManyLines() throws Exception {
+        for (int bufferSize : BUFFER_SIZES) {
+            ByteCsvReader reader = reader("\"a\nb\nc\"d\"\ne,f\n", '"', ',', 2, bufferSize);
+            try {
+                reader.next();
+                fail("Expected the quoted column to exceed the line limit");
+            } catch (IOException expected) {
+            }
+            // reading resumes after the lines which were consumed
+            assertTrue(reader.next());
+            assertEquals(Arrays.asList("cd"), reader.getFields());
+            assertTrue(reader.next());
+            assertEquals(Arrays.asList("e", "f"), reader.getFields());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void failsOnUnterminatedQuote() throws Exception {
+        for (int bufferSize : BUFFER_SIZES) {
+            ByteCsvReader reader = reader("a,\"b\nc", '"', ',', 0, bufferSize);
+            try {
+                reader.next();
+                fail("Expected an unterminated quoted column to fail");
+            } catch (IOException expected) {
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void resetReadsOneLineAtATime() throws Exception {
+        ByteCsvReader reader = reader("", '"', ',', 0, 64);
+        assertFalse(reader.next());
+        byte[] first = "a,\"b,c\",d".getBytes(StandardCharsets.UTF_8);
+        reader.reset(first, first.length);
+        assertTrue(reader.next());
+        assertEquals(Arrays.asList("a", "b,c", "d"), reader.getFields());
+        assertFalse(reader.next());
+        // only the given length of the line is read
+        byte[] second = "1,2xxxx".getBytes(StandardCharsets.UTF_8);
+        reader.reset(second, 3);
+        assertTrue(reader.next());
+        assertEquals(Arrays.asList("1", "2"), reader.getFields());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void recognizesNulls() throws Exception {
+        byte[] data = "xnullNULLNullnul".getBytes(StandardCharsets.UTF_8);
+        assertTrue(ByteFieldParser.isNull(data, 0, 0));
+        assertTrue(ByteFieldParser.isNull(data, 1, 4));
+        assertTrue(ByteFieldParser.isNull(data, 5, 4));
+        assertFalse(ByteFieldParser.isNull(data, 9, 4));
+        assertFalse(ByteFieldParser.isNull(data, 13, 3));
+    }
+
+    @Test
+    public void supportsOnlyUtf8WithAsciiDelimiters() throws Exception {
+        assertTrue(ByteCsvReader.supports("UTF-8", '"', ','));
+        assertTrue(ByteCsvReader.supports("utf-8", '"', '\t'));
+        assertFalse(ByteCsvReader.supports("ISO-8859-1", '"', ','));
+        assertFalse(ByteCsvReader.supports("UTF-8", '"', '\u00a6'));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    @SafeVarargs
+    private static void assertRecords(String input, int maxLines, List<String>... expected) throws IOException {
+        for (int bufferSize : BUFFER_SIZES) {
+            ByteCsvReader reader = reader(input, '"', ',', maxLines, bufferSize);
+            List<List<String>> actual = new ArrayList<>();
+            while (reader.next()) {
+                actual.add(reader.getFields());
+            }
+            assertEquals("Incorrect records with a buffer of " + bufferSize + " bytes", Arrays.asList(expected), actual);
+        }
+    }
+
+    private static ByteCsvReader reader(String input, char quote, char delimiter, int maxLines, int bufferSize) {
+        return new ByteCsvReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), quote, delimiter, maxLines, bufferSize);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDate;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLSmallint;
+import com.splicemachine.db.iapi.types.SQLTimestamp;
+import com.splicemachine.db.iapi.types.SQLTinyint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+
+/**
+ * Tests for setting import fields from their bytes. Every accepted value must match the value the
+ * String parsing of the column type produces, and every rejected value must leave the column untouched.
+ */
+public class ByteFieldParserTest {
+
+    @Test
+    public void nullForms() throws Exception {
+        assertTrue(isNull(""));
+        assertTrue(isNull("null"));
+        assertTrue(isNull("NULL"));
+        assertFalse(isNull("Null"));
+        assertFalse(isNull("nul"));
+        assertFalse(isNull("nulls"));
+        assertFalse(isNull(" "));
+    }
+
+    @Test
+    public void integers() throws Exception {
+        assertInteger("0", 0);
+        assertInteger("42", 42);
+        assertInteger("-42", -42);
+        assertInteger("+42", 42);
+        assertInteger("007", 7);
+        assertInteger("999999999", 999999999);
+        assertInteger("-999999999", -999999999);
+    }
+
+    @Test
+    public void integersFallBack() throws Exception {
+        // whitespace, exponents and non-digits are left to the String parsing
+        for (String s : new String[]{" 1", "1 ", "1e5", "1.0", "0x10", "-", "+", "--1", "1-"}) {
+            assertRejected(new SQLInteger(), s);
+        }
+        // ten digits may or may not fit in an int, so they are never parsed from bytes
+        assertRejected(new SQLInteger(), "1000000000");
+        assertRejected(new SQLInteger(), "2147483648");
+    }
+
+    @Test
+    public void longs() throws Exception {
+        assertLong("123456789012345678", 123456789012345678L);
+        assertLong("-123456789012345678", -123456789012345678L);
+        assertLong("1", 1L);
+        // nineteen digits may overflow a long
+        assertRejected(new SQLLongint(), "1234567890123456789");
+        assertRejected(new SQLLongint(), "9223372036854775807");
+    }
+
+    @Test
+    public void smallAndTinyIntsAreRangeChecked() throws Exception {
+        assertShort("32767", (short) 32767);
+        assertShort("-32768", (short) -32768);
+        assertRejected(new SQLSmallint(), "32768");
+        assertRejected(new SQLSmallint(), "-32769");
+
+        assertTiny("127", (byte) 127);
+        assertTiny("-128", (byte) -128);
+        assertRejected(new SQLTinyint(), "128");
+        assertRejected(new SQLTinyint(), "-129");
+    }
+
+    @Test
+    public void decimals() throws Exception {
+        assertDecimal("0", "0");
+        assertDecimal("12.50", "12.50");
+        assertDecimal("-12.5", "-12.5");
+        assertDecimal("+0.001", "0.001");
+        assertDecimal(".5", "0.5");
+        assertDecimal("5.", "5");
+        assertDecimal("123456789012345678", "123456789012345678");
+        assertDecimal("1234567890.12345678", "1234567890.12345678");
+    }
+
+    @Test
+    public void decimalsFallBack() throws Exception {
+        for (String s : new String[]{"1e5", "1.2.3", ".", "-", " 1.0", "1,0", "1234567890123456789", "1234567890.123456789"}) {
+            assertRejected(new SQLDecimal(), s);
+        }
+    }
+
+    @Test
+    public void dates() throws Exception {
+        assertDate("2016-01-01");
+        assertDate("2016-02-29");
+        assertDate("2000-02-29");
+        assertDate("0001-12-31");
+        assertDate("9999-12-31");
+    }
+
+    @Test
+    public void datesFallBack() throws Exception {
+        for (String s : new String[]{"2016-13-01", "2016-00-01", "2016-01-00", "2016-02-30", "2015-02-29",
+                "1900-02-29", "2016-04-31", "0000-01-01", "2016/01/01", "2016-1-01", "16-01-01", "2016-01-01 ",
+                "2016-0a-01"}) {
+            assertRejected(new SQLDate(), s);
+        }
+        // a custom format means the String parsing has to be used
+        assertFalse(set(new SQLDate(), "2016-01-01", false));
+    }
+
+    @Test
+    public void timestamps() throws Exception {
+        assertTimestamp("2016-01-01 00:00:00");
+        assertTimestamp("2016-02-29 23:59:59");
+        assertTimestamp("2016-06-15 12:34:56.7");
+        assertTimestamp("2016-06-15 12:34:56.78");
+        assertTimestamp("2016-06-15 12:34:56.789");
+    }
+
+    @Test
+    public void timestampsFallBack() throws Exception {
+        for (String s : new String[]{"2016-01-01", "2016-01-01 00:00", "2016-01-01 00:00:00.", "2016-01-01 00:00:00.1234",
+                "2016-01-01T00:00:00", "2016-01-01 24:00:00", "2016-01-01 00:60:00", "2016-01-01 00:00:60",
+                "2016-01-01 00:00:00,1", "2016-01-01 00:00:00.1a", "2016-02-30 00:00:00", "2016-01-01 0:00:00"}) {
+            assertRejected(new SQLTimestamp(), s);
+        }
+        assertFalse(set(new SQLTimestamp(), "2016-01-01 00:00:00", false));
+    }
+
+    @Test
+    public void otherTypesFallBack() throws Exception {
+        assertRejected(new SQLVarchar(), "abc");
+        assertRejected(new SQLVarchar(), "1");
+    }
+
+    @Test
+    public void honoursOffsetAndLength() throws Exception {
+        byte[] data = "xx-1234,2016-01-02yy".getBytes(StandardCharsets.UTF_8);
+        SQLInteger i = new SQLInteger();
+        assertTrue(ByteFieldParser.setValue(i, data, 2, 5, true));
+        assertEquals(-1234, i.getInt());
+        SQLDate d = new SQLDate();
+        assertTrue(ByteFieldParser.setValue(d, data, 8, 10, true));
+        assertEquals(new SQLDate("2016-01-02", false, null).getString(), d.getString());
+        assertTrue(ByteFieldParser.isNull(data, 3, 0));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static boolean isNull(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        return ByteFieldParser.isNull(b, 0, b.length);
+    }
+
+    private static boolean set(DataValueDescriptor dvd, String s, boolean parseDateTimes) throws Exception {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        return ByteFieldParser.setValue(dvd, b, 0, b.length, parseDateTimes);
+    }
+
+    private static void assertRejected(DataValueDescriptor dvd, String s) throws Exception {
+        assertFalse("Parsed <" + s + "> from bytes", set(dvd, s, true));
+        assertTrue("Set <" + s + "> although it was rejected", dvd.isNull());
+    }
+
+    private static void assertInteger(String s, int expected) throws Exception {
+        SQLInteger dvd = new SQLInteger();
+        assertTrue(s, set(dvd, s, true));
+        assertEquals(s, expected, dvd.getInt());
+        SQLInteger parsed = new SQLInteger();
+        parsed.setValue(s.startsWith("+") ? s.substring(1) : s);
+        assertEquals(s, parsed.getInt(), dvd.getInt());
+    }
+
+    private static void assertLong(String s, long expected) throws Exception {
+        SQLLongint dvd = new SQLLongint();
+        assertTrue(s, set(dvd, s, true));
+        assertEquals(s, expected, dvd.getLong());
+    }
+
+    private static void assertShort(String s, short expected) throws Exception {
+        SQLSmallint dvd = new SQLSmallint();
+        assertTrue(s, set(dvd, s, true));
+        assertEquals(s, expected, dvd.getShort());
+    }
+
+    private static void assertTiny(String s, byte expected) throws Exception {
+        SQLTinyint dvd = new SQLTinyint();
+        assertTrue(s, set(dvd, s, true));
+        assertEquals(s, expected, dvd.getByte());
+    }
+
+    private static void assertDecimal(String s, String expected) throws Exception {
+        SQLDecimal dvd = new SQLDecimal();
+        assertTrue(s, set(dvd, s, true));
+        assertEquals(s, 0, new BigDecimal(expected).compareTo((BigDecimal) dvd.getObject()));
+        SQLDecimal parsed = new SQLDecimal();
+        parsed.setValue(s);
+        assertEquals(s, 0, ((BigDecimal) parsed.getObject()).compareTo((BigDecimal) dvd.getObject()));
+    }
+
+    private static void assertDate(String s) throws Exception {
+        SQLDate dvd = new SQLDate();
+        assertTrue(s, set(dvd, s, true));
+        assertEquals(s, new SQLDate(s, false, null).getString(), dvd.getString());
+        assertEquals(s, s, dvd.getString());
+    }
+
+    private static void assertTimestamp(String s) throws Exception {
+        SQLTimestamp dvd = new SQLTimestamp();
+        assertTrue(s, set(dvd, s, true));
+        assertEquals(s, new SQLTimestamp(s, false, null).getTimestamp(null), dvd.getTimestamp(null));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(ArchitectureIndependent.class)
+public class EncodedRowHashTableTest {
+
+    @Test
+    public void testByteKeyedLookups() throws Exception {
+        EncodedRowHashTable table = new EncodedRowHashTable(false, 256, 2);
+        for (int i = 0; i < 1000; i++) {
+            table.add(Bytes.toBytes("key" + (i % 100)), Bytes.toBytes(i));
+        }
+        assertEquals(1000, table.size());
+        for (int k = 0; k < 100; k++) {
+            byte[] key = Bytes.toBytes("key" + k);
+            Set<Integer> found = new HashSet<>();
+            for (int row = table.find(key, 0, key.length); row >= 0; row = table.nextRow(row)) {
+                assertEquals(4, table.rowLength(row));
+                int value = Bytes.toInt(table.rowPage(row), table.rowOffset(row));
+                assertEquals(k, value % 100);
+                found.add(value);
+            }
+            assertEquals("Wrong number of rows for key " + k, 10, found.size());
+        }
+        byte[] missing = Bytes.toBytes("key100");
+        assertEquals(-1, table.find(missing, 0, missing.length));
+    }
+
+    @Test
+    public void testLongKeyedLookups() throws Exception {
+        EncodedRowHashTable table = new EncodedRowHashTable(true, 64, 2);
+        for (long i = -500; i < 500; i++) {
+            table.add(i * 31, Bytes.toBytes(i));
+        }
+        table.addNullKey(Bytes.toBytes(Long.MIN_VALUE));
+        for (long i = -500; i < 500; i++) {
+            int row = table.find(i * 31);
+            assertTrue("Did not find key " + i, row >= 0);
+            assertEquals(i, Bytes.toLong(table.rowPage(row), table.rowOffset(row)));
+            assertEquals(-1, table.nextRow(row));
+        }
+        assertEquals(-1, table.find(1));
+        int nullRow = table.nullKeyHead();
+        assertEquals(Long.MIN_VALUE, Bytes.toLong(table.rowPage(nullRow), table.rowOffset(nullRow)));
+    }
+
+    @Test
+    public void testRowsLargerThanAPage() throws Exception {
+        EncodedRowHashTable table = new EncodedRowHashTable(true, 16, 2);
+        byte[] big = new byte[100];
+        big[99] = 7;
+        table.add(1L, big);
+        table.add(2L, Bytes.toBytes(2));
+        int row = table.find(1L);
+        assertEquals(100, table.rowLength(row));
+        assertEquals(7, table.rowPage(row)[table.rowOffset(row) + 99]);
+        row = table.find(2L);
+        assertEquals(2, Bytes.toInt(table.rowPage(row), table.rowOffset(row)));
+    }
+}
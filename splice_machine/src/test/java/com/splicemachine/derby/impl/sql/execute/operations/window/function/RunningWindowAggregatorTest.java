@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations.window.function;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Slides frames of various widths across random data (with nulls), and checks each running aggregate
+ * against the result of recomputing the frame from scratch.
+ */
+@Category(ArchitectureIndependent.class)
+public class RunningWindowAggregatorTest {
+
+    private static final int NUM_ROWS = 2000;
+
+    @Test
+    public void testSlidingMax() throws Exception {
+        for (int width : new int[]{1, 2, 7, 100}) {
+            checkSlidingFrame(newMaxMin("MAX", new SQLInteger()), width, Aggregate.MAX);
+        }
+    }
+
+    @Test
+    public void testSlidingMin() throws Exception {
+        for (int width : new int[]{1, 2, 7, 100}) {
+            checkSlidingFrame(newMaxMin("MIN", new SQLInteger()), width, Aggregate.MIN);
+        }
+    }
+
+    @Test
+    public void testSlidingSum() throws Exception {
+        for (int width : new int[]{1, 3, 50}) {
+            RunningWindowAggregator sum = new SumAggregator();
+            sum.setResultType(new SQLLongint());
+            checkSlidingFrame(sum, width, Aggregate.SUM);
+        }
+    }
+
+    @Test
+    public void testSlidingCount() throws Exception {
+        RunningWindowAggregator count = new CountAggregator();
+        count.setResultType(new SQLLongint());
+        checkSlidingFrame(count, 5, Aggregate.COUNT);
+    }
+
+    @Test
+    public void testSlidingAvg() throws Exception {
+        RunningWindowAggregator avg = new AvgAggregator();
+        avg.setResultType(new SQLDouble());
+        checkSlidingFrame(avg, 9, Aggregate.AVG);
+    }
+
+    @Test
+    public void testUnboundedFrameRetainsNothing() throws Exception {
+        MaxMinAggregator max = newMaxMin("MAX", new SQLInteger());
+        max.setRemovable(false);
+        for (int i = NUM_ROWS; i > 0; i--) {
+            // a descending sequence would leave every value as a candidate if the frame could shrink
+            max.accumulate(new DataValueDescriptor[]{new SQLInteger(i)});
+            Assert.assertEquals(NUM_ROWS, max.getResult().getInt());
+        }
+        Assert.assertNull("Nothing should have been retained to remove", max.remove());
+    }
+
+    @Test
+    public void testEmptyFrameIsNull() throws Exception {
+        MaxMinAggregator min = newMaxMin("MIN", new SQLInteger());
+        min.accumulate(new DataValueDescriptor[]{new SQLInteger(3)});
+        min.remove();
+        Assert.assertTrue(min.getResult().isNull());
+
+        SumAggregator sum = new SumAggregator();
+        sum.setResultType(new SQLLongint());
+        sum.accumulate(new DataValueDescriptor[]{new SQLInteger()});
+        Assert.assertTrue(sum.getResult().isNull());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private enum Aggregate { MAX, MIN, SUM, COUNT, AVG }
+
+    private static MaxMinAggregator newMaxMin(String name, DataValueDescriptor resultType) {
+        MaxMinAggregator function = (MaxMinAggregator) new MaxMinAggregator().setup(null, name, null, null).newWindowFunction();
+        function.setResultType(resultType);
+        return function;
+    }
+
+    private static void checkSlidingFrame(RunningWindowAggregator function, int width, Aggregate aggregate) throws Exception {
+        function.reset();
+        Random random = new Random(width);
+        // a LinkedList, since the frame holds nulls
+        Deque<Integer> frame = new LinkedList<>();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            Integer next = random.nextInt(10) == 0 ? null : random.nextInt(1000) - 500;
+            frame.addLast(next);
+            function.accumulate(new DataValueDescriptor[]{next == null ? new SQLInteger() : new SQLInteger(next)});
+            if (frame.size() > width) {
+                frame.pollFirst();
+                function.remove();
+            }
+
+            Double expected = bruteForce(frame, aggregate);
+            DataValueDescriptor actual = function.getResult();
+            if (expected == null) {
+                Assert.assertTrue("Expected null " + aggregate + " at row " + i + " for width " + width, actual.isNull());
+            } else {
+                Assert.assertEquals(aggregate + " at row " + i + " for width " + width, expected, actual.getDouble(), 1e-9);
+            }
+        }
+    }
+
+    private static Double bruteForce(Deque<Integer> frame, Aggregate aggregate) {
+        if (aggregate == Aggregate.COUNT) {
+            return (double) frame.size();
+        }
+        Double result = null;
+        int nonNull = 0;
+        for (Integer value : frame) {
+            if (value == null) continue;
+            nonNull++;
+            if (result == null) {
+                result = (double) value;
+            } else if (aggregate == Aggregate.MAX) {
+                result = Math.max(result, value);
+            } else if (aggregate == Aggregate.MIN) {
+                result = Math.min(result, value);
+            } else {
+                result += value;
+            }
+        }
+        if (aggregate == Aggregate.AVG && result != null) {
+            result /= nonNull;
+        }
+        return result;
+    }
+}
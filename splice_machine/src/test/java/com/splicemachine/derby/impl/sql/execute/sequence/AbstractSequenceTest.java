@@ -16,6 +16,13 @@
 package com.splicemachine.derby.impl.sql.execute.sequence;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Assert;
@@ -60,11 +67,86 @@ public class AbstractSequenceTest {
 		}
 	}
 	
+	@Test
+	public void singleThreaded100BlockWithStarting20NegativeIncrement() throws Exception {
+		Sequence sequence = new SpliceTestSequence(100,-1,20);
+		for (long i = 0; i< 1000; i++) {
+			long next = sequence.getNext();
+			Assert.assertEquals(20-i,next);
+		}
+	}
+
+	@Test
+	public void adaptiveNegativeIncrementByTen() throws Exception {
+		Sequence sequence = new SpliceTestSequence(100,10000,60000,-10,0);
+		for (long i = 0; i< 10000; i++) {
+			long next = sequence.getNext();
+			Assert.assertEquals(-10*i,next);
+		}
+	}
+
+	@Test
+	public void adaptiveBlockGrowsWhenConsumedQuickly() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(100,10000,60000,1,0);
+		for (long i = 0; i< 100000; i++) {
+			long next = sequence.getNext();
+			Assert.assertEquals(i,next);
+		}
+		Assert.assertEquals(10000,sequence.getCurrentBlockSize());
+		Assert.assertTrue("Too many allocations: "+sequence.getAllocations(),sequence.getAllocations()<100);
+		Assert.assertTrue(sequence.getPrefetches()>0);
+	}
+
+	@Test
+	public void adaptiveBlockStaysAtConfiguredSizeForSingleValueBlocks() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(1,10000,60000,1,0);
+		for (long i = 0; i< 1000; i++) {
+			long next = sequence.getNext();
+			Assert.assertEquals(i,next);
+		}
+		Assert.assertEquals(1,sequence.getCurrentBlockSize());
+		Assert.assertEquals(1000,sequence.getAllocations());
+		Assert.assertEquals(0,sequence.getPrefetches());
+	}
+
+	@Test
+	public void concurrentCallersGetUniqueValues() throws Exception {
+		final SpliceTestSequence sequence = new SpliceTestSequence(10,1000,60000,1,0);
+		final int threads = 8;
+		final int perThread = 10000;
+		final Set<Long> seen = Collections.newSetFromMap(new ConcurrentHashMap<Long,Boolean>());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			Future<?>[] futures = new Future<?>[threads];
+			for (int t = 0; t < threads; t++) {
+				futures[t] = executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int i = 0; i < perThread; i++) {
+							Assert.assertTrue(seen.add(sequence.getNext()));
+						}
+						return null;
+					}
+				});
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			executor.shutdownNow();
+		}
+		Assert.assertEquals(threads*perThread,seen.size());
+	}
+
 	private class SpliceTestSequence extends AbstractSequence {
 		long currentValue = -1;
 		SpliceTestSequence(long blockAllocationSize, long incrementSteps, long startingValue) {
 			super(blockAllocationSize,incrementSteps,startingValue);
 		}
+
+		SpliceTestSequence(long blockAllocationSize, long maxBlockAllocationSize, long allocationInterval,
+						   long incrementSteps, long startingValue) {
+			super(blockAllocationSize,maxBlockAllocationSize,allocationInterval,incrementSteps,startingValue);
+		}
 		
 			@Override
 			protected long getCurrentValue() throws IOException {
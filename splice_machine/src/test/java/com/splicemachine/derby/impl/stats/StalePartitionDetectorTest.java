@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class StalePartitionDetectorTest{
+
+    @Test
+    public void partitionWithoutStatisticsIsStale() throws Exception{
+        Assert.assertTrue(StalePartitionDetector.isStale(false,0l,0l,0l,0.1d,100l));
+    }
+
+    @Test
+    public void staleAfterFractionOfRowsWritten() throws Exception{
+        Assert.assertFalse(StalePartitionDetector.isStale(true,100000l,500l,10499l,0.1d,100l));
+        Assert.assertTrue(StalePartitionDetector.isStale(true,100000l,500l,10500l,0.1d,100l));
+    }
+
+    @Test
+    public void smallPartitionsNeedMinimumWrites() throws Exception{
+        Assert.assertFalse(StalePartitionDetector.isStale(true,10l,0l,99l,0.1d,100l));
+        Assert.assertTrue(StalePartitionDetector.isStale(true,10l,0l,100l,0.1d,100l));
+    }
+
+    @Test
+    public void counterResetCountsAllWrites() throws Exception{
+        //the partition was reopened, so its counter restarted below the baseline
+        Assert.assertTrue(StalePartitionDetector.isStale(true,1000l,50000l,200l,0.1d,100l));
+        Assert.assertFalse(StalePartitionDetector.isStale(true,1000l,50000l,50l,0.1d,100l));
+    }
+
+    @Test
+    public void adjacentStalePartitionsAreCoalesced() throws Exception{
+        Partition a=partition("a",new byte[0],new byte[]{1});
+        Partition b=partition("b",new byte[]{1},new byte[]{2});
+        Partition c=partition("c",new byte[]{2},new byte[]{3});
+        Partition d=partition("d",new byte[]{3},new byte[0]);
+
+        List<Pair<byte[],byte[]>> ranges=StalePartitionDetector.contiguousRanges(Arrays.asList(d,b,a,c),Arrays.asList(a,b,d));
+        Assert.assertEquals(2,ranges.size());
+        Assert.assertArrayEquals(new byte[0],ranges.get(0).getFirst());
+        Assert.assertArrayEquals(new byte[]{2},ranges.get(0).getSecond());
+        Assert.assertArrayEquals(new byte[]{3},ranges.get(1).getFirst());
+        Assert.assertArrayEquals(new byte[0],ranges.get(1).getSecond());
+    }
+
+    @Test
+    public void noStalePartitionsNoRanges() throws Exception{
+        Partition a=partition("a",new byte[0],new byte[0]);
+        Assert.assertTrue(StalePartitionDetector.contiguousRanges(Collections.singletonList(a),Collections.<Partition>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void baselinesAreHeldPerConglomerate() throws Exception{
+        Partition a=partition("a",new byte[0],new byte[]{1});
+        Partition b=partition("b",new byte[]{1},new byte[0]);
+        List<Partition> partitions=Arrays.asList(a,b);
+        List<PartitionStatisticsDescriptor> statistics=Arrays.asList(statistics("a",1000l),statistics("b",1000l));
+        Map<String,Long> writeCounts=writeCounts("a",5000l,"b",5000l);
+
+        StalePartitionDetector.recordCollected(1l,partitions,writeCounts);
+        Assert.assertTrue(StalePartitionDetector.stalePartitions(1l,partitions,statistics,writeCounts,0.1d,100l).isEmpty());
+        //another conglomerate whose partitions happen to have the same names has no baseline
+        Assert.assertEquals(2,StalePartitionDetector.stalePartitions(2l,partitions,statistics,writeCounts,0.1d,100l).size());
+
+        StalePartitionDetector.forget(1l);
+        Assert.assertEquals(2,StalePartitionDetector.stalePartitions(1l,partitions,statistics,writeCounts,0.1d,100l).size());
+    }
+
+    @Test
+    public void baselinesOfRemovedPartitionsArePruned() throws Exception{
+        Partition a=partition("a",new byte[0],new byte[]{1});
+        Partition b=partition("b",new byte[]{1},new byte[0]);
+        List<PartitionStatisticsDescriptor> statistics=Arrays.asList(statistics("a",1000l),statistics("b",1000l));
+
+        StalePartitionDetector.recordCollected(3l,Arrays.asList(a,b),writeCounts("a",5000l,"b",5000l));
+        //b no longer exists, so recording a alone discards the baseline of b
+        StalePartitionDetector.recordCollected(3l,Collections.singletonList(a),writeCounts("a",6000l));
+
+        List<Partition> stale=StalePartitionDetector.stalePartitions(3l,Arrays.asList(a,b),statistics,
+                writeCounts("a",6000l,"b",5000l),0.1d,100l);
+        Assert.assertEquals(Collections.singletonList(b),stale);
+        StalePartitionDetector.forget(3l);
+    }
+
+    private static PartitionStatisticsDescriptor statistics(String partitionId,long rowCount){
+        PartitionStatisticsDescriptor desc=mock(PartitionStatisticsDescriptor.class);
+        when(desc.getPartitionId()).thenReturn(partitionId);
+        when(desc.getRowCount()).thenReturn(rowCount);
+        return desc;
+    }
+
+    private static Map<String,Long> writeCounts(Object... namesAndCounts){
+        Map<String,Long> writeCounts=new HashMap<>();
+        for(int i=0;i<namesAndCounts.length;i+=2){
+            writeCounts.put((String)namesAndCounts[i],(Long)namesAndCounts[i+1]);
+        }
+        return writeCounts;
+    }
+
+    private static Partition partition(String name,byte[] start,byte[] end){
+        Partition p=mock(Partition.class);
+        when(p.getName()).thenReturn(name);
+        when(p.getStartKey()).thenReturn(start);
+        when(p.getEndKey()).thenReturn(end);
+        return p;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the memory-bounded sort used by control-side pair datasets.
+ */
+@Category(ArchitectureIndependent.class)
+public class ExternalSorterTest{
+    private static final Comparator<Integer> ASCENDING=new Comparator<Integer>(){
+        @Override
+        public int compare(Integer o1,Integer o2){
+            return o1.compareTo(o2);
+        }
+    };
+
+    private static final Comparator<Tuple2<Integer,Integer>> BY_KEY=new Comparator<Tuple2<Integer,Integer>>(){
+        @Override
+        public int compare(Tuple2<Integer,Integer> o1,Tuple2<Integer,Integer> o2){
+            return o1._1().compareTo(o2._1());
+        }
+    };
+
+    @Rule public TemporaryFolder tempFolder=new TemporaryFolder();
+
+    private File spillDir;
+
+    @Before
+    public void setUp() throws Exception{
+        spillDir=tempFolder.newFolder("spill");
+    }
+
+    @Test
+    public void sortWithoutSpilling() throws Exception{
+        SpillContext context=new SpillContext(Long.MAX_VALUE,spillDir,4,3,new KryoPool(1));
+        List<Tuple2<Integer,Integer>> rows=rows(1000,100);
+        assertSortedStably(rows,toList(ExternalSorter.sort(rows,ASCENDING,context).iterator()),-1);
+        Assert.assertEquals("Should not have spilled",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void sortSpillsAndMerges() throws Exception{
+        //small enough that there are more runs than can be merged in one pass
+        SpillContext context=new SpillContext(2048,spillDir,4,3,new KryoPool(1));
+        List<Tuple2<Integer,Integer>> rows=rows(5000,300);
+        assertSortedStably(rows,toList(ExternalSorter.sort(rows,ASCENDING,context).iterator()),-1);
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void topNFromHeap() throws Exception{
+        SpillContext context=new SpillContext(Long.MAX_VALUE,spillDir,4,3,new KryoPool(1));
+        List<Tuple2<Integer,Integer>> rows=rows(5000,300);
+        assertSortedStably(rows,toList(ExternalSorter.sort(rows,ASCENDING,25,context).iterator()),25);
+        assertSortedStably(rows,toList(ExternalSorter.sort(rows,ASCENDING,10000,context).iterator()),10000);
+    }
+
+    @Test
+    public void topNHeapSpillsOverBudget() throws Exception{
+        SpillContext context=new SpillContext(2048,spillDir,4,3,new KryoPool(1));
+        List<Tuple2<Integer,Integer>> rows=rows(5000,300);
+        Iterator<Tuple2<Integer,Integer>> sorted=ExternalSorter.sort(rows,ASCENDING,1000,context).iterator();
+        Assert.assertTrue("Expected the heap to spill",context.liveFiles()>0);
+        assertSortedStably(rows,toList(sorted),1000);
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void limitedExternalSort() throws Exception{
+        SpillContext context=new SpillContext(2048,spillDir,4,3,new KryoPool(1));
+        List<Tuple2<Integer,Integer>> rows=rows(5000,300);
+        assertSortedStably(rows,toList(ExternalSorter.externalSort(rows.iterator(),BY_KEY,100,context)),100);
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void multiLevelMergeIsStable() throws Exception{
+        //a fan-in of 3 turns the hundreds of runs into several levels of merges
+        SpillContext context=new SpillContext(1024,spillDir,4,3,new KryoPool(1));
+        List<Tuple2<Integer,Integer>> rows=rows(5000,300);
+        assertSortedStably(rows,toList(ExternalSorter.externalSort(rows.iterator(),BY_KEY,-1L,3,context)),-1);
+        assertSortedStably(rows,toList(ExternalSorter.externalSort(rows.iterator(),BY_KEY,250L,3,context)),250);
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+        Assert.assertEquals(0,context.liveFiles());
+    }
+
+    @Test
+    public void abandonedSortIsCleanedUpOnClose() throws Exception{
+        SpillContext context=new SpillContext(2048,spillDir,4,3,new KryoPool(1));
+        Iterator<Tuple2<Integer,Integer>> sorted=ExternalSorter.sort(rows(5000,300),ASCENDING,context).iterator();
+        for(int i=0;i<10;i++){
+            sorted.next();
+        }
+        Assert.assertTrue("Expected the sort to spill",spillDir.listFiles().length>0);
+        Assert.assertEquals(spillDir.listFiles().length,context.liveFiles());
+
+        context.close();
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+        Assert.assertEquals(0,context.liveFiles());
+    }
+
+    @Test
+    public void loserTreeMergesUnevenInputs() throws Exception{
+        List<Iterator<Integer>> inputs=new ArrayList<>();
+        List<Integer> expected=new ArrayList<>();
+        Random random=new Random(0L);
+        for(int i=0;i<7;i++){
+            List<Integer> run=new ArrayList<>();
+            for(int j=0;j<i*3;j++){
+                run.add(random.nextInt(50));
+            }
+            Collections.sort(run);
+            expected.addAll(run);
+            inputs.add(run.iterator());
+        }
+        Collections.sort(expected);
+
+        ExternalSorter.LoserTree<Integer> tree=new ExternalSorter.LoserTree<>(inputs,ASCENDING);
+        List<Integer> actual=new ArrayList<>();
+        while(tree.hasNext()){
+            actual.add(tree.next());
+        }
+        Assert.assertEquals("Incorrect merge output",expected,actual);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * Value is the arrival position, so a stable sort must keep values ascending within each key.
+     */
+    private static List<Tuple2<Integer,Integer>> rows(int count,int distinctKeys){
+        Random random=new Random(count);
+        List<Tuple2<Integer,Integer>> rows=new ArrayList<>(count);
+        for(int i=0;i<count;i++){
+            rows.add(new Tuple2<>(random.nextInt(distinctKeys),i));
+        }
+        return rows;
+    }
+
+    private static <T> List<T> toList(Iterator<T> iterator){
+        List<T> list=new ArrayList<>();
+        while(iterator.hasNext()){
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+    private static void assertSortedStably(List<Tuple2<Integer,Integer>> input,
+                                           List<Tuple2<Integer,Integer>> actual,
+                                           int limit){
+        List<Tuple2<Integer,Integer>> expected=new ArrayList<>(input);
+        Collections.sort(expected,new Comparator<Tuple2<Integer,Integer>>(){
+            @Override
+            public int compare(Tuple2<Integer,Integer> o1,Tuple2<Integer,Integer> o2){
+                int c=o1._1().compareTo(o2._1());
+                return c!=0?c:o1._2().compareTo(o2._2());
+            }
+        });
+        if(limit>0 && expected.size()>limit)
+            expected=expected.subList(0,limit);
+        Assert.assertEquals("Incorrect sort output",expected,actual);
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the memory-bounded hash operations used by control-side pair datasets.
+ */
+@Category(ArchitectureIndependent.class)
+public class SpillingHashOperationsTest{
+    @Rule public TemporaryFolder tempFolder=new TemporaryFolder();
+
+    private File spillDir;
+
+    @Before
+    public void setUp() throws Exception{
+        spillDir=tempFolder.newFolder("spill");
+    }
+
+    @Test
+    public void groupByKeyWithoutSpilling() throws Exception{
+        SpillContext context=new SpillContext(Long.MAX_VALUE,spillDir,4,3,new KryoPool(1));
+        assertGroupsCorrect(rows(1000,37),context,37);
+    }
+
+    @Test
+    public void groupByKeySpillsAndRecurses() throws Exception{
+        SpillContext context=new SpillContext(4096,spillDir,4,3,new KryoPool(1));
+        SpillableHashTable<Integer,Integer> table=SpillableHashTable.build(rows(5000,1000),context,0);
+        Assert.assertTrue("Table should have spilled with such a small budget",table.hasSpilled());
+        table.close();
+
+        assertGroupsCorrect(rows(5000,1000),context,1000);
+        context.close();
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void groupByKeyWithHeavilyDuplicatedKeyStopsRecursing() throws Exception{
+        SpillContext context=new SpillContext(1024,spillDir,4,2,new KryoPool(1));
+        assertGroupsCorrect(rows(2000,1),context,1);
+        context.close();
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void innerJoinSpilledMatchesInMemory() throws Exception{
+        List<Tuple2<Integer,Integer>> left=rows(3000,500);
+        List<Tuple2<Integer,Integer>> right=rows(1000,700);
+
+        SpillContext small=new SpillContext(2048,spillDir,4,3,new KryoPool(1));
+        SpillContext large=new SpillContext(Long.MAX_VALUE,spillDir,4,3,new KryoPool(1));
+
+        Map<Integer,Integer> spilled=countByKey(SpillingHashOperations.hashJoin(left,right,new InnerJoin(),small));
+        Map<Integer,Integer> inMemory=countByKey(SpillingHashOperations.hashJoin(left,right,new InnerJoin(),large));
+        Assert.assertEquals("Incorrect join results when spilling",inMemory,spilled);
+
+        int expected=0;
+        for(Tuple2<Integer,Integer> l : left){
+            for(Tuple2<Integer,Integer> r : right){
+                if(l._1().equals(r._1())) expected++;
+            }
+        }
+        int actual=0;
+        for(Integer c : spilled.values()) actual+=c;
+        Assert.assertEquals("Incorrect number of joined rows",expected,actual);
+        small.close();
+        large.close();
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void antiJoinSpilled() throws Exception{
+        List<Tuple2<Integer,Integer>> left=rows(2000,400);
+        List<Tuple2<Integer,Integer>> right=new ArrayList<>();
+        for(int i=0;i<400;i+=2){
+            right.add(new Tuple2<>(i,i));
+        }
+        SpillContext context=new SpillContext(1024,spillDir,4,3,new KryoPool(1));
+        Iterable<Integer> result=SpillingHashOperations.hashJoin(left,right,
+                new SpillingHashOperations.JoinEmitter<Integer,Integer,Integer,Integer>(){
+                    @Override
+                    public void emit(Integer key,Integer probeValue,Collection<Integer> matches,List<Integer> output){
+                        if(matches.isEmpty()) output.add(key);
+                    }
+                },context);
+        int count=0;
+        for(Integer key : result){
+            Assert.assertTrue("Key "+key+" should have been removed",key%2==1);
+            count++;
+        }
+        Assert.assertEquals("Incorrect number of rows",1000,count);
+    }
+
+    @Test
+    public void groupByKeyIsBuiltOncePerIterable() throws Exception{
+        SpillContext context=new SpillContext(4096,spillDir,4,3,new KryoPool(1));
+        CountingIterable source=new CountingIterable(rows(5000,1000));
+        Iterable<Tuple2<Integer,Iterable<Integer>>> groups=SpillingHashOperations.groupByKey(source,context);
+        Assert.assertEquals("Source read before iteration",0,source.reads);
+
+        Map<Integer,Integer> first=groupSizes(groups);
+        Map<Integer,Integer> second=groupSizes(groups);
+        Assert.assertEquals("Re-iteration gave different groups",first,second);
+        Assert.assertEquals("Incorrect number of groups",1000,first.size());
+        Assert.assertEquals("Source was read more than once",1,source.reads);
+
+        context.close();
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void hashJoinBuildsOncePerIterable() throws Exception{
+        SpillContext context=new SpillContext(2048,spillDir,4,3,new KryoPool(1));
+        CountingIterable probe=new CountingIterable(rows(3000,500));
+        CountingIterable build=new CountingIterable(rows(1000,700));
+        Iterable<Tuple2<Integer,Integer>> joined=SpillingHashOperations.hashJoin(probe,build,new InnerJoin(),context);
+
+        Map<Integer,Integer> first=countByKey(joined);
+        Map<Integer,Integer> second=countByKey(joined);
+        Assert.assertEquals("Re-iteration gave different results",first,second);
+        Assert.assertFalse(first.isEmpty());
+        Assert.assertEquals("Build side was read more than once",1,build.reads);
+        Assert.assertEquals("Probe side should be streamed on each iteration",2,probe.reads);
+
+        context.close();
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void abandonedIteratorsAreCleanedUpWhenTheContextIsClosed() throws Exception{
+        SpillContext context=new SpillContext(1024,spillDir,4,3,new KryoPool(1));
+        Iterator<Tuple2<Integer,Iterable<Integer>>> groups=SpillingHashOperations.groupByKey(rows(5000,1000),context).iterator();
+        Iterator<Tuple2<Integer,Integer>> joined=SpillingHashOperations.hashJoin(rows(3000,500),rows(1000,700),new InnerJoin(),context).iterator();
+        for(int i=0;i<10;i++){
+            groups.next();
+            joined.next();
+        }
+        Assert.assertTrue("Expected the operations to have spilled",context.liveFiles()>0);
+
+        context.close();
+        Assert.assertEquals("Spill files are still registered",0,context.liveFiles());
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    @Test
+    public void unownedContextsCleanUpAfterEachIteration() throws Exception{
+        SpillContext context=new SpillContext(1024,spillDir,4,3,new KryoPool(1)).disown();
+        CountingIterable source=new CountingIterable(rows(5000,1000));
+        Iterable<Tuple2<Integer,Iterable<Integer>>> groups=SpillingHashOperations.groupByKey(source,context);
+        Iterable<Tuple2<Integer,Integer>> joined=SpillingHashOperations.hashJoin(rows(3000,500),rows(1000,700),new InnerJoin(),context);
+
+        Assert.assertEquals("Incorrect number of groups",1000,groupSizes(groups).size());
+        Assert.assertEquals("Re-iteration gave different groups",groupSizes(groups),groupSizes(groups));
+        Assert.assertEquals("Re-iteration gave different results",countByKey(joined),countByKey(joined));
+        Assert.assertEquals("Each iteration should build its own table",3,source.reads);
+        Assert.assertEquals("Spill files are still registered",0,context.liveFiles());
+        Assert.assertEquals("Spill files were not cleaned up",0,spillDir.listFiles().length);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static List<Tuple2<Integer,Integer>> rows(int count,int distinctKeys){
+        List<Tuple2<Integer,Integer>> rows=new ArrayList<>(count);
+        for(int i=0;i<count;i++){
+            rows.add(new Tuple2<>(i%distinctKeys,i));
+        }
+        return rows;
+    }
+
+    private static void assertGroupsCorrect(List<Tuple2<Integer,Integer>> rows,SpillContext context,int distinctKeys){
+        Map<Integer,Integer> groups=new HashMap<>();
+        for(Tuple2<Integer,Iterable<Integer>> group : SpillingHashOperations.groupByKey(rows,context)){
+            Assert.assertFalse("Key "+group._1()+" seen twice",groups.containsKey(group._1()));
+            int size=0;
+            for(Integer v : group._2()){
+                Assert.assertEquals("Value in the wrong group",group._1().intValue(),v%distinctKeys);
+                size++;
+            }
+            groups.put(group._1(),size);
+        }
+        Assert.assertEquals("Incorrect number of groups",distinctKeys,groups.size());
+        int total=0;
+        for(Integer s : groups.values()) total+=s;
+        Assert.assertEquals("Incorrect number of rows",rows.size(),total);
+    }
+
+    private static Map<Integer,Integer> groupSizes(Iterable<Tuple2<Integer,Iterable<Integer>>> groups){
+        Map<Integer,Integer> sizes=new HashMap<>();
+        for(Tuple2<Integer,Iterable<Integer>> group : groups){
+            int size=0;
+            for(Integer ignored : group._2()) size++;
+            sizes.put(group._1(),size);
+        }
+        return sizes;
+    }
+
+    private static Map<Integer,Integer> countByKey(Iterable<Tuple2<Integer,Integer>> joined){
+        Map<Integer,Integer> counts=new HashMap<>();
+        for(Tuple2<Integer,Integer> t : joined){
+            Integer c=counts.get(t._1());
+            counts.put(t._1(),c==null?1:c+1);
+        }
+        return counts;
+    }
+
+    private static class CountingIterable implements Iterable<Tuple2<Integer,Integer>>{
+        private final List<Tuple2<Integer,Integer>> rows;
+        private int reads;
+
+        CountingIterable(List<Tuple2<Integer,Integer>> rows){
+            this.rows=rows;
+        }
+
+        @Override
+        public Iterator<Tuple2<Integer,Integer>> iterator(){
+            reads++;
+            return rows.iterator();
+        }
+    }
+
+    private static class InnerJoin implements SpillingHashOperations.JoinEmitter<Integer,Integer,Integer,Tuple2<Integer,Integer>>{
+        @Override
+        public void emit(Integer key,Integer probeValue,Collection<Integer> matches,List<Tuple2<Integer,Integer>> output){
+            for(Integer m : matches){
+                output.add(new Tuple2<>(key,m));
+            }
+        }
+    }
+}
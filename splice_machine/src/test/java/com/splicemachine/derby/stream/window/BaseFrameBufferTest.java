@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.UserType;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
+import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregatorImpl;
+import com.splicemachine.derby.impl.sql.execute.operations.window.function.SumAggregator;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Drives a running aggregate through a frame buffer, checking that results are emitted as each
+ * row's frame completes rather than once the whole partition has been read.
+ */
+@Category(ArchitectureIndependent.class)
+public class BaseFrameBufferTest {
+
+    private static final int NUM_ROWS = 500;
+
+    @Test
+    public void testSlidingSumStreams() throws Exception {
+        // SUM(a) OVER (ROWS BETWEEN 2 PRECEDING AND CURRENT ROW)
+        FrameDefinition frame = new FrameDefinition(FrameDefinition.FrameMode.ROWS.ordinal(),
+                FrameDefinition.Frame.PRECEDING.ordinal(), 2,
+                FrameDefinition.Frame.CURRENT_ROW.ordinal(), 0);
+        CountingSource source = new CountingSource(NUM_ROWS);
+        WindowFrameBuffer buffer = BaseFrameBuffer.createFrameBuffer(sumAggregator(frame), source, frame, new int[0], newRow(0));
+
+        for (int i = 0; i < NUM_ROWS; i++) {
+            Assert.assertTrue("Missing row " + i, buffer.hasNext());
+            ExecRow row = buffer.next();
+            Assert.assertEquals("Incorrect input at row " + i, i, row.getColumn(1).getInt());
+            long expected = i + Math.max(i - 1, 0) + Math.max(i - 2, 0);
+            Assert.assertEquals("Incorrect sum at row " + i, expected, row.getColumn(2).getLong());
+            Assert.assertTrue("Read " + source.read + " rows to emit row " + i, source.read <= i + 2);
+        }
+        Assert.assertFalse(buffer.hasNext());
+    }
+
+    @Test
+    public void testUnboundedSumStreams() throws Exception {
+        // SUM(a) OVER (ROWS BETWEEN UNBOUNDED PRECEDING AND 1 FOLLOWING)
+        FrameDefinition frame = new FrameDefinition(FrameDefinition.FrameMode.ROWS.ordinal(),
+                FrameDefinition.Frame.UNBOUNDED_PRECEDING.ordinal(), 0,
+                FrameDefinition.Frame.FOLLOWING.ordinal(), 1);
+        CountingSource source = new CountingSource(NUM_ROWS);
+        WindowFrameBuffer buffer = BaseFrameBuffer.createFrameBuffer(sumAggregator(frame), source, frame, new int[0], newRow(0));
+
+        for (int i = 0; i < NUM_ROWS; i++) {
+            Assert.assertTrue("Missing row " + i, buffer.hasNext());
+            ExecRow row = buffer.next();
+            int last = Math.min(i + 1, NUM_ROWS - 1);
+            Assert.assertEquals("Incorrect sum at row " + i, (long) last * (last + 1) / 2, row.getColumn(2).getLong());
+            Assert.assertTrue("Read " + source.read + " rows to emit row " + i, source.read <= i + 3);
+        }
+        Assert.assertFalse(buffer.hasNext());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static WindowAggregator[] sumAggregator(FrameDefinition frame) {
+        SumAggregator sum = new SumAggregator();
+        sum.setResultType(new SQLLongint());
+        return new WindowAggregator[]{new WindowAggregatorImpl(sum, 3, new int[]{1}, 2, frame)};
+    }
+
+    /**
+     * @return a row of (input value, result, window function)
+     */
+    private static ExecRow newRow(int value) {
+        ValueRow row = new ValueRow(3);
+        row.setRowArray(new DataValueDescriptor[]{new SQLInteger(value), new SQLLongint(), new UserType()});
+        return row;
+    }
+
+    private static class CountingSource implements Iterator<ExecRow> {
+        private final int size;
+        private int read;
+
+        CountingSource(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return read < size;
+        }
+
+        @Override
+        public ExecRow next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return newRow(read++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
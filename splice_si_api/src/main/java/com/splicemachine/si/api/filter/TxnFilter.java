@@ -18,9 +18,24 @@ package com.splicemachine.si.api.filter;
 import com.splicemachine.storage.DataCell;
 import com.splicemachine.storage.DataFilter;
 
+import java.io.IOException;
+import java.util.List;
+
 public interface TxnFilter extends DataFilter{
     void nextRow();
 
+    /**
+     * Prepare to filter a block of rows. Implementations may fetch every transaction which
+     * wrote to the block up front (see {@link com.splicemachine.si.api.txn.TxnSupplier#getTransactions(long[])}),
+     * so that filtering the individual cells need not look each one up on its own.
+     * <p>
+     * The rows are still passed through {@link #filterCell(DataCell)} one at a time afterwards; calling
+     * this is purely an optimization, and filters must behave correctly if it is never called.
+     *
+     * @param rows the cells of each row in the block, in the order they will be filtered
+     */
+    void prepareBatch(List<List<DataCell>> rows) throws IOException;
+
     DataCell produceAccumulatedResult();
     boolean getExcludeRow();
 
@@ -26,6 +26,12 @@ import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -36,6 +42,11 @@ import java.util.concurrent.TimeUnit;
  * <p/>
  * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
  * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * <p/>
+ * The background thread does not resolve each event as it arrives. Instead, it holds events until the
+ * disruptor signals the end of a batch, then groups them by region (discarding duplicate rows) and
+ * resolves each region's rows with a single call, so that a burst of events drains as a few large
+ * region writes rather than many small ones.
  *
  * @author Scott Fines
  *         Date: 7/1/14
@@ -107,23 +118,88 @@ public class AsyncReadResolver{
         }
     }
 
+    private static class PendingRow{
+        final ByteSlice rowKey;
+        final long txnId;
+        final RollForward rollForward;
+
+        PendingRow(ByteSlice rowKey,long txnId,RollForward rollForward){
+            this.rowKey=rowKey;
+            this.txnId=txnId;
+            this.rollForward=rollForward;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof PendingRow)) return false;
+            PendingRow that=(PendingRow)o;
+            return txnId==that.txnId && rowKey.equals(that.rowKey);
+        }
+
+        @Override
+        public int hashCode(){
+            return 31*rowKey.hashCode()+(int)(txnId^(txnId>>>32));
+        }
+    }
+
     private class ResolveEventHandler implements EventHandler<ResolveEvent>{
+        private final Map<Partition,Set<PendingRow>> pending=new HashMap<>();
+        private int coalesced=0;
 
         @Override
         public void onEvent(ResolveEvent event,long sequence,boolean endOfBatch) throws Exception{
+            /*
+             * The event will be re-used by the ring buffer once we return, so take our own view
+             * of it. The row key array is a fresh copy for every event, so it's safe to hold on to.
+             */
+            Set<PendingRow> rows=pending.get(event.region);
+            if(rows==null){
+                rows=new LinkedHashSet<>();
+                pending.put(event.region,rows);
+            }
+            ByteSlice rowKey=ByteSlice.wrap(event.rowKey.array(),event.rowKey.offset(),event.rowKey.length());
+            if(!rows.add(new PendingRow(rowKey,event.txnId,event.rollForward)))
+                coalesced++;
+
+            if(endOfBatch)
+                flush();
+        }
+
+        private void flush() throws Exception{
             try{
-                if(synchronousResolver.resolve(event.region,
-                        event.rowKey,
-                        event.txnId,
-                        txnSupplier,
-                        status,
-                        false,
-                        trafficControl)){
-                    event.rollForward.recordResolved(event.rowKey,event.txnId);
+                if(coalesced>0)
+                    status.eventsCoalesced(coalesced);
+                for(Map.Entry<Partition,Set<PendingRow>> regionRows:pending.entrySet()){
+                    resolve(regionRows.getKey(),regionRows.getValue());
                 }
             }catch(Exception e){
                 LOG.info("Error during read resolution",e);
                 throw e;
+            }finally{
+                pending.clear();
+                coalesced=0;
+            }
+        }
+
+        private void resolve(Partition region,Set<PendingRow> rows){
+            int size=rows.size();
+            List<PendingRow> toResolve=new ArrayList<>(rows);
+            ByteSlice[] rowKeys=new ByteSlice[size];
+            long[] txnIds=new long[size];
+            for(int i=0;i<size;i++){
+                PendingRow row=toResolve.get(i);
+                rowKeys[i]=row.rowKey;
+                txnIds[i]=row.txnId;
+            }
+            boolean[] resolved=new boolean[size];
+            if(synchronousResolver.resolve(region,rowKeys,txnIds,size,resolved,txnSupplier,status,false,trafficControl)<=0)
+                return;
+            for(int i=0;i<size;i++){
+                if(resolved[i]){
+                    PendingRow row=toResolve.get(i);
+                    row.rollForward.recordResolved(row.rowKey,row.txnId);
+                }
             }
         }
     }
@@ -144,6 +220,7 @@ public class AsyncReadResolver{
             try{
                 sequence=ringBuffer.tryNext();
             }catch(InsufficientCapacityException e){
+                status.eventDropped();
                 if(LOG.isTraceEnabled())
                     LOG.trace("Unable to submit for read resolution");
                 return;
@@ -33,4 +33,25 @@ public interface KeyedReadResolver{
                     RollForwardStatus status,
                     boolean failOnError,
                     TrafficControl trafficControl);
+
+    /**
+     * Resolve a group of rows which all belong to {@code region}, using as few region writes as
+     * possible. The transaction for each distinct id in {@code txnIds} is fetched only once.
+     *
+     * @param region the region which owns all the rows
+     * @param rowKeys the rows to resolve. Only the first {@code size} entries are considered
+     * @param txnIds the id of the transaction which wrote each row, parallel to {@code rowKeys}
+     * @param size the number of rows to resolve
+     * @param resolved filled in with whether or not each row was resolved
+     * @return the number of rows which were resolved
+     */
+    int resolve(Partition region,
+                ByteSlice[] rowKeys,
+                long[] txnIds,
+                int size,
+                boolean[] resolved,
+                TxnSupplier txnSupplier,
+                RollForwardStatus status,
+                boolean failOnError,
+                TrafficControl trafficControl);
 }
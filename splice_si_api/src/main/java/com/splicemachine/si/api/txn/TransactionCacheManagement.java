@@ -26,4 +26,41 @@ import javax.management.MXBean;
 @MXBean
 public interface TransactionCacheManagement {
 
+    /**
+     * @return the total number (since the cache was created) of lookups which
+     * could be served from cache.
+     */
+    long getTotalHits();
+
+    /**
+     * @return the total number (since the cache was created) of lookups which
+     * could <em>not</em> be served from cache.
+     */
+    long getTotalMisses();
+
+    /**
+     * @return the total number of lookups made against the cache since it was created
+     */
+    long getTotalRequests();
+
+    /**
+     * @return the total number (since the cache was created) of entries which were
+     * evicted to make room for others
+     */
+    long getTotalEvictedEntries();
+
+    /**
+     * @return the fraction of lookups which were hits--i.e. totalHits/totalRequests
+     */
+    float getHitPercentage();
+
+    /**
+     * @return the number of transactions currently held in the cache
+     */
+    int getCurrentSize();
+
+    /**
+     * @return the maximum number of transactions which can be held before an eviction is forced.
+     */
+    int getMaxCacheSize();
 }
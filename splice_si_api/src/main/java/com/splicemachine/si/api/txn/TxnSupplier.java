@@ -43,6 +43,17 @@ public interface TxnSupplier {
 		 */
 		TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException;
 
+		/**
+		 * Get the transactions associated with each of {@code txnIds}.
+		 *
+		 * Functionally equivalent to calling {@link #getTransaction(long)} for each id, but stores
+		 * which have to go over the network fetch them in as few requests as they can.
+		 *
+		 * @param txnIds the transaction ids to fetch.
+		 * @return the transaction for each id, in the same order as {@code txnIds}
+		 */
+		TxnView[] getTransactions(long[] txnIds) throws IOException;
+
 		/**
 		 * Determines whether this Store has the transaction in its local cache
 		 * or not.
@@ -137,6 +137,20 @@ public interface TxnPartition{
      */
     void recordCommit(long txnId,long commitTs) throws IOException;
 
+    /**
+     * Record that a group of transactions were committed, as a single write to the local storage.
+     * <p/>
+     * This has the same semantics as calling {@link #recordCommit(long, long)} for each entry, and
+     * carries the same requirement for external synchronization of every transaction in the group.
+     * If this method throws an exception, then any subset of the group may have been recorded; since
+     * recording a commit twice is harmless, callers may safely retry the entries individually.
+     *
+     * @param txnIds           the transaction ids to commit
+     * @param commitTimestamps the commit timestamp for each entry in {@code txnIds}
+     * @throws IOException if any of the commits could not be recorded.
+     */
+    void recordCommits(long[] txnIds,long[] commitTimestamps) throws IOException;
+
     /**
      * Record that the transaction was globally committed, and assign the committed timestamp to it.
      * <p/>
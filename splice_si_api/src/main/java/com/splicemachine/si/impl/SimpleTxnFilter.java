@@ -30,6 +30,7 @@ import com.splicemachine.storage.DataFilter;
 import com.splicemachine.utils.ByteSlice;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Transaction filter which performs basic transactional filtering (i.e. row visibility, tombstones,
@@ -48,6 +49,8 @@ public class SimpleTxnFilter implements TxnFilter{
     private final LongArrayList antiTombstonedTxnRows=new LongArrayList(1);
     private final ByteSlice rowKey=new ByteSlice();
     private final String tableName;
+    //per batch fields (see prepareBatch())
+    private final LongOpenHashSet batchTxnIds=new LongOpenHashSet();
 
     /*
      * The most common case for databases is insert-only--that is, that there
@@ -111,6 +114,47 @@ public class SimpleTxnFilter implements TxnFilter{
         }
     }
 
+    @Override
+    public void prepareBatch(List<List<DataCell>> rows) throws IOException{
+        /*
+         * A commit timestamp cell tells us everything we need to know about its transaction, so
+         * cache those first; they need no lookup at all.
+         */
+        for(int r=0;r<rows.size();r++){
+            List<DataCell> row=rows.get(r);
+            for(int c=0;c<row.size();c++){
+                DataCell cell=row.get(c);
+                if(cell.dataType()==CellType.COMMIT_TIMESTAMP && !transactionStore.transactionCached(cell.version()))
+                    cacheCommittedTransaction(cell);
+            }
+        }
+        /*
+         * Then fetch every other transaction which wrote to the block with a single bulk lookup. The
+         * suppliers cache what they fetch, so filtering the individual cells finds them there instead
+         * of going to the transaction table one transaction at a time.
+         */
+        batchTxnIds.clear();
+        for(int r=0;r<rows.size();r++){
+            List<DataCell> row=rows.get(r);
+            for(int c=0;c<row.size();c++){
+                DataCell cell=row.get(c);
+                switch(cell.dataType()){
+                    case USER_DATA:
+                    case TOMBSTONE:
+                    case ANTI_TOMBSTONE:
+                        long txnId=cell.version();
+                        if(!transactionStore.transactionCached(txnId))
+                            batchTxnIds.add(txnId);
+                        break;
+                    default:
+                        //nothing to look up
+                }
+            }
+        }
+        if(!batchTxnIds.isEmpty())
+            transactionStore.getTransactions(batchTxnIds.toArray());
+    }
+
     @Override
     public DataCell produceAccumulatedResult(){
         return null;
@@ -267,13 +311,18 @@ public class SimpleTxnFilter implements TxnFilter{
 			 * a failure, so we have to check for it.
 			 */
 
-            long commitTs=data.valueAsLong();//dataStore.getOpFactory().getValueToLong(data);
-            TxnView toCache=new CommittedTxn(txnId,commitTs);//since we don't care about the begin timestamp, just use the TxnId
-            transactionStore.cache(toCache);
-            currentTxn=toCache;
+            cacheCommittedTransaction(data);
         }
     }
 
+    private void cacheCommittedTransaction(DataCell commitTimestamp){
+        long txnId=commitTimestamp.version();
+        long commitTs=commitTimestamp.valueAsLong();//dataStore.getOpFactory().getValueToLong(data);
+        TxnView toCache=new CommittedTxn(txnId,commitTs);//since we don't care about the begin timestamp, just use the TxnId
+        transactionStore.cache(toCache);
+        currentTxn=toCache;
+    }
+
 
     @Override
     public RowAccumulator getAccumulator(){
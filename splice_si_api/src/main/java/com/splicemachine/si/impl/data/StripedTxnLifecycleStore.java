@@ -27,6 +27,9 @@ import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -54,14 +57,35 @@ public class StripedTxnLifecycleStore implements TxnLifecycleStore{
     private final TxnPartition baseStore;
     private final ServerControl serverControl;
     private final TimestampSource timestampSource;
+    private final TxnGroupCommitter groupCommitter;
+    /*commits which are waiting on their group, released once the group has been written*/
+    private final ConcurrentMap<Long,CountDownLatch> inFlightCommits=new ConcurrentHashMap<>();
 
     public StripedTxnLifecycleStore(int numPartitions,
                                     TxnPartition baseStore,
                                     ServerControl serverControl,TimestampSource timestampSource){
+        this(numPartitions,baseStore,serverControl,timestampSource,1,null);
+    }
+
+    /**
+     * @param maxCommitGroupSize the most concurrent commits to record in a single write. A value of 1 or less
+     *                           records every commit on its own.
+     * @param groupCommitStatus where to record group commit metrics. May be {@code null} only if group commit
+     *                          is disabled.
+     */
+    public StripedTxnLifecycleStore(int numPartitions,
+                                    TxnPartition baseStore,
+                                    ServerControl serverControl,TimestampSource timestampSource,
+                                    int maxCommitGroupSize,
+                                    TxnGroupCommitStatus groupCommitStatus){
         this.lockStriper=LongStripedSynchronizer.stripedReadWriteLock(numPartitions,false);
         this.baseStore=baseStore;
         this.serverControl=serverControl;
         this.timestampSource=timestampSource;
+        if(maxCommitGroupSize>1)
+            this.groupCommitter=new TxnGroupCommitter(baseStore,timestampSource,maxCommitGroupSize,groupCommitStatus);
+        else
+            this.groupCommitter=null;
     }
 
     @Override
@@ -90,48 +114,90 @@ public class StripedTxnLifecycleStore implements TxnLifecycleStore{
     @Override
     public long commitTransaction(long txnId) throws IOException{
         Lock lock=lockStriper.get(txnId).writeLock();
-        acquireLock(lock);
-        try{
-            Txn.State state=baseStore.getState(txnId);
-            if(state==null){
-//                LOG.warn("Attempting to commit a read-only transaction. Waste of a network call");
-                return -1l; //no need to acquire a new timestamp if we have a read-only transaction
-            }
-            if(state==Txn.State.COMMITTED){
-                SpliceLogUtils.warn(LOG,"attempting to commit already committed txn=%d",txnId);
-                return baseStore.getCommitTimestamp(txnId);
+        CountDownLatch commitDone;
+        while(true){
+            CountDownLatch inFlight;
+            acquireLock(lock);
+            try{
+                inFlight=inFlightCommits.get(txnId);
+                if(inFlight==null){
+                    Txn.State state=baseStore.getState(txnId);
+                    if(state==null){
+//                        LOG.warn("Attempting to commit a read-only transaction. Waste of a network call");
+                        return -1l; //no need to acquire a new timestamp if we have a read-only transaction
+                    }
+                    if(state==Txn.State.COMMITTED){
+                        SpliceLogUtils.warn(LOG,"attempting to commit already committed txn=%d",txnId);
+                        return baseStore.getCommitTimestamp(txnId);
+                    }
+                    if(state==Txn.State.ROLLEDBACK) {
+                        SpliceLogUtils.error(LOG,"attempting to commit rolled back txn=%d",txnId);
+                        throw baseStore.cannotCommit(txnId, state);
+                    }
+                    if(groupCommitter==null){
+                        long commitTs=timestampSource.nextTimestamp();
+                        baseStore.recordCommit(txnId,commitTs);
+                        return commitTs;
+                    }
+                    /*
+                     * Our commit may wait a while for its group, and the stripe lock is shared with other
+                     * transactions, so we release it before we wait. Registering the commit first makes anyone
+                     * who tries to roll us back (or commit us again) in the meantime wait until the group has
+                     * been written, so nobody can change our state in between our state check and the write.
+                     */
+                    commitDone=new CountDownLatch(1);
+                    inFlightCommits.put(txnId,commitDone);
+                    break;
+                }
+            }finally{
+                unlock(lock);
             }
-            if(state==Txn.State.ROLLEDBACK) {
-                SpliceLogUtils.error(LOG,"attempting to commit rolled back txn=%d",txnId);
-                throw baseStore.cannotCommit(txnId, state);
+            awaitCommit(inFlight);
+        }
+
+        try{
+            //keep the region open while our group is written
+            serverControl.startOperation();
+            try{
+                return groupCommitter.commit(txnId);
+            }finally{
+                serverControl.stopOperation();
             }
-            long commitTs=timestampSource.nextTimestamp();
-            baseStore.recordCommit(txnId,commitTs);
-            return commitTs;
         }finally{
-            unlock(lock);
+            //release waiters even if the region refused the operation
+            inFlightCommits.remove(txnId);
+            commitDone.countDown();
         }
     }
 
     @Override
     public void rollbackTransaction(long txnId) throws IOException{
         Lock lock=lockStriper.get(txnId).writeLock();
-        acquireLock(lock);
-        try{
-            Txn.State state=baseStore.getState(txnId);
-            if(state==null){
-                return;
-            }
-            switch(state){
-                case COMMITTED:
-                    return;
-                case ROLLEDBACK:
+        while(true){
+            CountDownLatch inFlight;
+            acquireLock(lock);
+            try{
+                inFlight=inFlightCommits.get(txnId);
+                if(inFlight==null){
+                    Txn.State state=baseStore.getState(txnId);
+                    if(state==null){
+                        return;
+                    }
+                    switch(state){
+                        case COMMITTED:
+                            return;
+                        case ROLLEDBACK:
+                            return;
+                        default:
+                            baseStore.recordRollback(txnId);
+                    }
                     return;
-                default:
-                    baseStore.recordRollback(txnId);
+                }
+            }finally{
+                unlock(lock);
             }
-        }finally{
-            unlock(lock);
+            //a commit is being written, so find out how it went before deciding anything
+            awaitCommit(inFlight);
         }
     }
 
@@ -182,6 +248,17 @@ public class StripedTxnLifecycleStore implements TxnLifecycleStore{
     }
     /* ***************************************************************************************************************/
     /*private helper methods*/
+    private void awaitCommit(CountDownLatch commitDone) throws IOException{
+        try{
+            while(!commitDone.await(200,TimeUnit.MILLISECONDS)){
+                //stop waiting if the client has gone away
+                serverControl.ensureNetworkOpen();
+            }
+        }catch(InterruptedException e){
+            throw new IOException(e);
+        }
+    }
+
     private void unlock(Lock lock) throws IOException{
         lock.unlock();
         serverControl.stopOperation();
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.si.impl.data;
+
+import javax.management.MXBean;
+
+/**
+ * Monitoring view of transaction group commit on this server.
+ * <p/>
+ * Histograms are bucketed by powers of two: entry {@code 0} counts values of at most {@code 1},
+ * and entry {@code i} counts values in {@code (2^(i-1), 2^i]}. The final entry also counts
+ * everything larger.
+ */
+@MXBean
+public interface TxnGroupCommitManagement{
+
+    /**
+     * @return the total number of transactions committed through group commit
+     */
+    long getTotalCommits();
+
+    /**
+     * @return the total number of groups written; each group is a single write to the transaction table
+     */
+    long getTotalCommitGroups();
+
+    /**
+     * @return the average number of transactions written per group
+     */
+    double getAverageGroupSize();
+
+    /**
+     * @return the average time (in milliseconds) from a commit arriving to it being recorded
+     */
+    double getAverageCommitLatency();
+
+    /**
+     * @return the number of groups written, bucketed by the number of transactions in the group
+     */
+    long[] getGroupSizeHistogram();
+
+    /**
+     * @return the number of commits, bucketed by their latency in microseconds
+     */
+    long[] getCommitLatencyHistogram();
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.si.impl.data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for {@link TxnGroupCommitter}. A single instance is usually shared by every
+ * transaction region on a server.
+ */
+public class TxnGroupCommitStatus implements TxnGroupCommitManagement{
+    private static final int NUM_BUCKETS=32;
+
+    private final AtomicLong commits=new AtomicLong(0l);
+    private final AtomicLong groups=new AtomicLong(0l);
+    private final AtomicLong totalLatency=new AtomicLong(0l); //nanoseconds
+    private final AtomicLongArray groupSizes=new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLongArray latencies=new AtomicLongArray(NUM_BUCKETS);
+
+    @Override public long getTotalCommits(){ return commits.get(); }
+    @Override public long getTotalCommitGroups(){ return groups.get(); }
+
+    @Override
+    public double getAverageGroupSize(){
+        long g=groups.get();
+        return g==0?0d:((double)commits.get())/g;
+    }
+
+    @Override
+    public double getAverageCommitLatency(){
+        long c=commits.get();
+        return c==0?0d:((double)totalLatency.get())/c/TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override public long[] getGroupSizeHistogram(){ return snapshot(groupSizes); }
+    @Override public long[] getCommitLatencyHistogram(){ return snapshot(latencies); }
+
+    public void groupWritten(int size){
+        groups.incrementAndGet();
+        groupSizes.incrementAndGet(bucket(size));
+    }
+
+    public void commitRecorded(long latencyNanos){
+        commits.incrementAndGet();
+        totalLatency.addAndGet(latencyNanos);
+        latencies.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    static int bucket(long value){
+        if(value<=1) return 0;
+        int b=64-Long.numberOfLeadingZeros(value-1); //ceil(log2(value))
+        return Math.min(b,NUM_BUCKETS-1);
+    }
+
+    private static long[] snapshot(AtomicLongArray buckets){
+        long[] data=new long[buckets.length()];
+        for(int i=0;i<data.length;i++){
+            data[i]=buckets.get(i);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.si.impl.data;
+
+import com.splicemachine.si.api.txn.lifecycle.TxnPartition;
+import com.splicemachine.timestamp.api.TimestampSource;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Coalesces concurrent commits against a single transaction partition into groups, so that each
+ * group costs one block of commit timestamps and one write to the partition, rather than one of
+ * each per transaction.
+ * <p/>
+ * The first commit to arrive while no group is being written becomes the leader: it writes itself
+ * along with everyone queued behind it (up to the maximum group size), then hands leadership to
+ * the first commit which arrived while it was writing. An uncontended commit is therefore written
+ * immediately, and commits only wait on each other while a write is already in flight.
+ * <p/>
+ * Callers must have already verified that their transaction is able to commit, and must keep it from
+ * being rolled back until {@link #commit(long)} returns; this class only allocates the timestamps and
+ * records the commits.
+ */
+public class TxnGroupCommitter{
+    private static final Logger LOG=Logger.getLogger(TxnGroupCommitter.class);
+
+    private final TxnPartition partition;
+    private final TimestampSource timestampSource;
+    private final int maxGroupSize;
+    private final TxnGroupCommitStatus status;
+
+    private final ArrayDeque<PendingCommit> queue=new ArrayDeque<>();
+    private boolean leaderActive; //guarded by queue
+
+    public TxnGroupCommitter(TxnPartition partition,
+                             TimestampSource timestampSource,
+                             int maxGroupSize,
+                             TxnGroupCommitStatus status){
+        assert maxGroupSize>0: "Cannot have a group size of "+maxGroupSize;
+        this.partition=partition;
+        this.timestampSource=timestampSource;
+        this.maxGroupSize=maxGroupSize;
+        this.status=status;
+    }
+
+    /**
+     * Commit the transaction, possibly as part of a larger group.
+     *
+     * @param txnId the transaction to commit
+     * @return the commit timestamp assigned to the transaction
+     * @throws IOException if the commit could not be recorded
+     */
+    public long commit(long txnId) throws IOException{
+        long start=System.nanoTime();
+        PendingCommit commit=new PendingCommit(txnId);
+        boolean lead;
+        synchronized(queue){
+            queue.add(commit);
+            lead=!leaderActive;
+            leaderActive=true;
+        }
+        if(!lead)
+            lead=commit.awaitTurn();
+        if(lead)
+            lead();
+
+        long commitTs=commit.get();
+        status.commitRecorded(System.nanoTime()-start);
+        return commitTs;
+    }
+
+    /**
+     * @return the number of commits currently waiting for a group to be written
+     */
+    int queuedCommits(){
+        synchronized(queue){
+            return queue.size();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void lead(){
+        PendingCommit[] group;
+        synchronized(queue){
+            group=new PendingCommit[Math.min(queue.size(),maxGroupSize)];
+            for(int i=0;i<group.length;i++){
+                group[i]=queue.poll();
+            }
+        }
+        try{
+            write(group);
+        }catch(Throwable t){
+            //make sure that nobody is left waiting on a group which failed unexpectedly
+            for(PendingCommit commit : group){
+                commit.fail(t);
+            }
+        }finally{
+            PendingCommit next;
+            synchronized(queue){
+                next=queue.peek();
+                if(next==null)
+                    leaderActive=false;
+            }
+            if(next!=null)
+                next.promote();
+        }
+    }
+
+    void write(PendingCommit[] group){
+        int size=group.length;
+        long firstTs;
+        try{
+            firstTs=size==1?timestampSource.nextTimestamp():timestampSource.nextTimestamps(size);
+        }catch(UnsupportedOperationException uoe){
+            //the timestamp source can't hand out a block right now, so commit the group one at a time
+            for(PendingCommit commit : group){
+                write(new PendingCommit[]{commit});
+            }
+            return;
+        }catch(RuntimeException re){
+            for(PendingCommit commit : group){
+                commit.fail(re);
+            }
+            return;
+        }
+
+        if(size==1){
+            PendingCommit commit=group[0];
+            try{
+                partition.recordCommit(commit.txnId,firstTs);
+                commit.complete(firstTs);
+            }catch(IOException ioe){
+                commit.fail(ioe);
+            }
+            status.groupWritten(1);
+            return;
+        }
+
+        long[] txnIds=new long[size];
+        long[] commitTimestamps=new long[size];
+        for(int i=0;i<size;i++){
+            txnIds[i]=group[i].txnId;
+            commitTimestamps[i]=firstTs+i;
+        }
+        try{
+            partition.recordCommits(txnIds,commitTimestamps);
+            for(int i=0;i<size;i++){
+                group[i].complete(commitTimestamps[i]);
+            }
+        }catch(IOException ioe){
+            /*
+             * Some of the group may have been recorded, but recording a commit is idempotent, so we
+             * retry each one on its own to find out exactly which of them could not be committed
+             */
+            SpliceLogUtils.warn(LOG,"Unable to record a group of %d commits, retrying individually: %s",size,ioe.getMessage());
+            for(int i=0;i<size;i++){
+                try{
+                    partition.recordCommit(txnIds[i],commitTimestamps[i]);
+                    group[i].complete(commitTimestamps[i]);
+                }catch(IOException e){
+                    group[i].fail(e);
+                }
+            }
+        }
+        status.groupWritten(size);
+    }
+
+    static class PendingCommit{
+        private static final int WAITING=0;
+        private static final int LEADING=1;
+        private static final int DONE=2;
+
+        private final long txnId;
+        private int state=WAITING; //guarded by this
+        private long commitTs;
+        private Throwable error;
+
+        PendingCommit(long txnId){
+            this.txnId=txnId;
+        }
+
+        synchronized void complete(long commitTs){
+            if(state==DONE) return;
+            this.commitTs=commitTs;
+            this.state=DONE;
+            notifyAll();
+        }
+
+        synchronized void fail(Throwable error){
+            if(state==DONE) return;
+            this.error=error;
+            this.state=DONE;
+            notifyAll();
+        }
+
+        synchronized void promote(){
+            if(state==WAITING){
+                state=LEADING;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Wait until this commit has either been written by a leader, or is made the leader itself.
+         * <p/>
+         * Once queued, a commit may be written at any moment, so we cannot abandon the wait
+         * when interrupted; instead, the interrupt is restored when we are done.
+         *
+         * @return true if the caller must now lead a group
+         */
+        synchronized boolean awaitTurn(){
+            boolean interrupted=false;
+            while(state==WAITING){
+                try{
+                    wait();
+                }catch(InterruptedException ie){
+                    interrupted=true;
+                }
+            }
+            if(interrupted)
+                Thread.currentThread().interrupt();
+            return state==LEADING;
+        }
+
+        synchronized long get() throws IOException{
+            assert state==DONE: "Commit of txn "+txnId+" has not been written";
+            if(error==null) return commitTs;
+            if(error instanceof IOException) throw (IOException)error;
+            if(error instanceof RuntimeException) throw (RuntimeException)error;
+            if(error instanceof Error) throw (Error)error;
+            throw new IOException(error);
+        }
+    }
+}
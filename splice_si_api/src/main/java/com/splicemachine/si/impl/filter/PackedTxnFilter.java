@@ -23,6 +23,7 @@ import com.splicemachine.storage.DataCell;
 import com.splicemachine.storage.DataFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 public class PackedTxnFilter implements TxnFilter, SIFilter{
     private final TxnFilter simpleFilter;
@@ -63,6 +64,11 @@ public class PackedTxnFilter implements TxnFilter, SIFilter{
         }
     }
 
+    @Override
+    public void prepareBatch(List<List<DataCell>> rows) throws IOException{
+        simpleFilter.prepareBatch(rows);
+    }
+
     @Override
     public boolean filterRow(){
         return getExcludeRow();
@@ -49,6 +49,31 @@ public class HLC {
         }
     }
 
+    /**
+     * Advance the clock by {@code count} events at once.
+     *
+     * @return the first of {@code count} consecutive HLC values
+     */
+    public long sendOrLocalEvents(int count) {
+        assert count>0: "Cannot allocate "+count+" events";
+        long currentHLC;
+        long firstHLC;
+        while (true) {
+            currentHLC = atomicHLC.get();
+            long[] hlc = HLCToPhysicalAndLogical(currentHLC);
+            long logical = Math.max(hlc[0], System.currentTimeMillis());
+            if (logical == hlc[0])
+                hlc[1]++;
+            else {
+                hlc[0] = logical;
+                hlc[1] = 0l;
+            }
+            firstHLC = physicalAndLogicalToHLC(hlc[0],hlc[1]);
+            if (atomicHLC.compareAndSet(currentHLC,firstHLC+count-1))
+                return firstHLC;
+        }
+    }
+
     public long receiveEvent(long message) {
         long currentHLC;
         long returnHLC;
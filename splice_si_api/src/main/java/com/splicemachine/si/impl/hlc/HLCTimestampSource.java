@@ -32,6 +32,11 @@ public class HLCTimestampSource implements TimestampSource {
         return hlc.sendOrLocalEvent();
     }
 
+    @Override
+    public long nextTimestamps(int count) {
+        return hlc.sendOrLocalEvents(count);
+    }
+
     @Override
     public void rememberTimestamp(long timestamp) {
         // No Op
@@ -28,4 +28,31 @@ public interface RollForwardManagement {
     long getTotalUpdates();
 
     long getTotalRowsToResolve();
+
+    /**
+     * @return the number of mutations which were issued against a region in order to resolve rows. When
+     * resolution is batched, a single write may resolve many rows.
+     */
+    long getTotalResolutionWrites();
+
+    /**
+     * @return the number of rows which were resolved by all resolution writes.
+     */
+    long getTotalRowsResolved();
+
+    /**
+     * @return the average number of rows resolved by a single resolution write.
+     */
+    double getAverageRowsPerWrite();
+
+    /**
+     * @return the number of resolution events which were discarded because they duplicated another
+     * pending event for the same row and transaction.
+     */
+    long getTotalCoalescedEvents();
+
+    /**
+     * @return the number of resolution events which were dropped because the resolution queue was full.
+     */
+    long getTotalDroppedEvents();
 }
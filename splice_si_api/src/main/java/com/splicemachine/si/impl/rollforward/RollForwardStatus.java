@@ -24,9 +24,42 @@ import java.util.concurrent.atomic.AtomicLong;
 public class RollForwardStatus implements RollForwardManagement{
     private final AtomicLong numUpdates = new AtomicLong(0l);
     private final AtomicLong rowsToResolve = new AtomicLong(0l);
+    private final AtomicLong resolutionWrites = new AtomicLong(0l);
+    private final AtomicLong rowsResolved = new AtomicLong(0l);
+    private final AtomicLong coalescedEvents = new AtomicLong(0l);
+    private final AtomicLong droppedEvents = new AtomicLong(0l);
 
     @Override public long getTotalUpdates() { return numUpdates.get(); }
     @Override public long getTotalRowsToResolve() { return  rowsToResolve.get(); }
+    @Override public long getTotalResolutionWrites(){ return resolutionWrites.get(); }
+    @Override public long getTotalRowsResolved(){ return rowsResolved.get(); }
+    @Override public long getTotalCoalescedEvents(){ return coalescedEvents.get(); }
+    @Override public long getTotalDroppedEvents(){ return droppedEvents.get(); }
+
+    @Override
+    public double getAverageRowsPerWrite(){
+        long writes = resolutionWrites.get();
+        if(writes<=0) return 0d;
+        return ((double)rowsResolved.get())/writes;
+    }
+
+    /**
+     * Record that a single write was issued against a region, which resolved {@code numRows} rows.
+     *
+     * @param numRows the number of rows resolved by the write
+     */
+    public void resolutionWritten(int numRows){
+        resolutionWrites.incrementAndGet();
+        rowsResolved.addAndGet(numRows);
+    }
+
+    public void eventsCoalesced(int numEvents){
+        coalescedEvents.addAndGet(numEvents);
+    }
+
+    public void eventDropped(){
+        droppedEvents.incrementAndGet();
+    }
 
     public void rowResolved(){
         boolean shouldContinue;
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.TxnView;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity concurrent cache of transactions, keyed by primitive transaction id.
+ * <p/>
+ * The table is split into buckets of {@link #BUCKET_SIZE} consecutive slots, and a transaction
+ * may only live in the bucket its id hashes to. Ids are kept in a flat {@code long[]} next to the
+ * transactions themselves, so a lookup scans at most one bucket's worth of primitives without boxing,
+ * allocating, or taking a lock; a hit is confirmed against the stored transaction's own id, so a
+ * lookup racing a replacement sees either the old or the new entry, never a mismatched one.
+ * <p/>
+ * Writers are serialized per lock stripe. When an insert finds its bucket full, it evicts using
+ * CLOCK: each slot has a reference bit which reads set, and the bucket's hand sweeps forward, clearing
+ * bits, until it finds a slot which hasn't been read since the hand last passed it.
+ * <p/>
+ * Slots hold the transactions themselves rather than a packed state and commit timestamp. Visibility
+ * of a child transaction depends on its parents' effective state, isolation level and destination
+ * tables, which a pair of longs can't carry; rebuilding a view from packed fields would allocate on
+ * every hit, which is what this cache exists to avoid. Completed transactions are immutable, so
+ * sharing the instance is safe.
+ *
+ * @see CompletedTxnCacheSupplier
+ */
+final class CompletedTxnCache{
+    static final int BUCKET_SIZE=8;
+
+    private final long[] keys;
+    private final AtomicReferenceArray<TxnView> values;
+    /*
+     * Reference bits and bucket hands are deliberately non-volatile: a lost update only makes
+     * eviction a little less accurate, which isn't worth a memory barrier on every read.
+     */
+    private final boolean[] referenced;
+    private final byte[] hands;
+    private final Object[] locks;
+    private final int bucketMask;
+    private final int lockMask;
+
+    private final AtomicInteger size=new AtomicInteger();
+    private final AtomicLong evictions=new AtomicLong();
+
+    CompletedTxnCache(int maxSize,int concurrencyLevel){
+        int capacity=BUCKET_SIZE;
+        while(capacity<maxSize)
+            capacity<<=1;
+        int numBuckets=capacity/BUCKET_SIZE;
+        this.keys=new long[capacity];
+        this.values=new AtomicReferenceArray<>(capacity);
+        this.referenced=new boolean[capacity];
+        this.hands=new byte[numBuckets];
+        this.bucketMask=numBuckets-1;
+
+        int numLocks=1;
+        while(numLocks<concurrencyLevel && numLocks<numBuckets)
+            numLocks<<=1;
+        this.locks=new Object[numLocks];
+        for(int i=0;i<numLocks;i++){
+            locks[i]=new Object();
+        }
+        this.lockMask=numLocks-1;
+    }
+
+    /**
+     * @return the cached transaction with id {@code txnId}, or {@code null} if it isn't cached.
+     */
+    TxnView get(long txnId){
+        int start=bucket(txnId)*BUCKET_SIZE;
+        for(int i=start;i<start+BUCKET_SIZE;i++){
+            if(keys[i]!=txnId) continue;
+            TxnView txn=values.get(i);
+            if(txn!=null && txn.getTxnId()==txnId){
+                if(!referenced[i]) //avoid dirtying the cache line when it's already set
+                    referenced[i]=true;
+                return txn;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cache {@code txn}, evicting a less recently used entry from its bucket if the bucket is full.
+     */
+    void put(TxnView txn){
+        long txnId=txn.getTxnId();
+        int bucket=bucket(txnId);
+        int start=bucket*BUCKET_SIZE;
+        synchronized(locks[bucket&lockMask]){
+            int free=-1;
+            for(int i=start;i<start+BUCKET_SIZE;i++){
+                TxnView existing=values.get(i);
+                if(existing==null){
+                    if(free<0) free=i;
+                }else if(existing.getTxnId()==txnId){
+                    values.set(i,txn); //replace, in case the state has been refined
+                    return;
+                }
+            }
+            if(free>=0){
+                insert(free,txnId,txn);
+                size.incrementAndGet();
+                return;
+            }
+
+            int hand=hands[bucket];
+            //readers may keep setting bits behind the hand, so give up after two sweeps and take what we're on
+            for(int sweep=0;referenced[start+hand] && sweep<2*BUCKET_SIZE;sweep++){
+                referenced[start+hand]=false;
+                hand=(hand+1)&(BUCKET_SIZE-1);
+            }
+            insert(start+hand,txnId,txn);
+            hands[bucket]=(byte)((hand+1)&(BUCKET_SIZE-1));
+            evictions.incrementAndGet();
+        }
+    }
+
+    int size(){
+        return size.get();
+    }
+
+    int capacity(){
+        return keys.length;
+    }
+
+    long evictions(){
+        return evictions.get();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private void insert(int slot,long txnId,TxnView txn){
+        /*
+         * Publish the transaction before the key. A reader which sees the new key will then
+         * see the new transaction; a reader which sees the old key fails the id check on the
+         * new transaction and treats it as a miss.
+         */
+        values.set(slot,txn);
+        keys[slot]=txnId;
+        referenced[slot]=false;
+    }
+
+    private int bucket(long txnId){
+        //transaction ids are allocated in strides, so mix the bits before masking (murmur3 finalizer)
+        long h=txnId;
+        h^=h>>>33;
+        h*=0xff51afd7ed558ccdL;
+        h^=h>>>33;
+        h*=0xc4ceb9fe1a85ec53L;
+        h^=h>>>33;
+        return (int)h&bucketMask;
+    }
+}
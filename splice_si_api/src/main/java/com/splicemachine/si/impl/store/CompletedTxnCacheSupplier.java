@@ -15,40 +15,41 @@
 
 package com.splicemachine.si.impl.store;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.splicemachine.concurrent.StripedCounter;
+import com.splicemachine.si.api.txn.TransactionCacheManagement;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
- * This class is thread-safe, and safe to be shared between many threads.
+ * This class is thread-safe, and safe to be shared between many threads. Lookups against the cache
+ * neither lock nor allocate; see {@link CompletedTxnCache}.
  *
  * @author Scott Fines
  *         Date: 6/18/14
  */
-public class CompletedTxnCacheSupplier implements TxnSupplier{
-    private ConcurrentLinkedHashMap<Long, TxnView> cache; // autobox for now
+public class CompletedTxnCacheSupplier implements TxnSupplier, TransactionCacheManagement{
+    private final CompletedTxnCache cache;
     private final TxnSupplier delegate;
-    private final AtomicLong hits=new AtomicLong();
-    private final AtomicLong requests=new AtomicLong();
+    /*every SI-filtered read bumps one of these, so keep scanning threads off a shared cache line*/
+    private final StripedCounter hits;
+    private final StripedCounter misses;
 
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
-        cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
-                .maximumWeightedCapacity(maxSize)
-                .concurrencyLevel(concurrencyLevel)
-                .build();
+        cache=new CompletedTxnCache(maxSize,concurrencyLevel);
         this.delegate=delegate;
+        this.hits=new StripedCounter(concurrencyLevel);
+        this.misses=new StripedCounter(concurrencyLevel);
     }
 
     public int getMaxSize(){
-        return cache.size();
+        return cache.capacity();
     }
 
     @Override
@@ -59,29 +60,57 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
     }
 
     @Override
-    @SuppressFBWarnings("SF_SWITCH_NO_DEFAULT") //intentional
     public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
         if(txnId==-1)
             return Txn.ROOT_TRANSACTION;
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId); // autobox until Cliff C merge
+        TxnView txn=cache.get(txnId);
         if(txn!=null){
-            hits.incrementAndGet();
+            hits.increment();
             return txn;
         }
+        misses.increment();
         //bummer, we aren't in the cache, need to check the delegate
         TxnView transaction=delegate.getTransaction(txnId,getDestinationTables);
         if(transaction==null) //noinspection ConstantConditions
             return transaction; //don't cache read-only transactions;
 
-        switch(transaction.getEffectiveState()){
-            case COMMITTED:
-            case ROLLEDBACK:
-                cache.put(transaction.getTxnId(),transaction); // Cache for Future Use
-        }
+        cacheIfCompleted(transaction);
         return transaction;
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        int[] missing=new int[txnIds.length];
+        int numMissing=0;
+        for(int i=0;i<txnIds.length;i++){
+            long txnId=txnIds[i];
+            TxnView txn=txnId==-1?Txn.ROOT_TRANSACTION:cache.get(txnId);
+            if(txn!=null){
+                txns[i]=txn;
+            }else{
+                missing[numMissing++]=i;
+            }
+        }
+        hits.add(txnIds.length-numMissing);
+        misses.add(numMissing);
+        if(numMissing<=0) return txns;
+
+        //fetch everything we don't have from the delegate in one go
+        long[] toFetch=new long[numMissing];
+        for(int i=0;i<numMissing;i++){
+            toFetch[i]=txnIds[missing[i]];
+        }
+        TxnView[] fetched=delegate.getTransactions(toFetch);
+        for(int i=0;i<numMissing;i++){
+            TxnView transaction=fetched[i];
+            txns[missing[i]]=transaction;
+            if(transaction!=null) //don't cache read-only transactions
+                cacheIfCompleted(transaction);
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId){
         return cache.get(txnId)!=null;
@@ -90,15 +119,63 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
     @Override
     public void cache(TxnView toCache){
         if(toCache.getState()==Txn.State.ACTIVE) return; //cannot cache incomplete transactions
-        cache.put(toCache.getTxnId(),toCache);
+        cache.put(toCache);
     }
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
-        requests.incrementAndGet();
         TxnView txn=cache.get(txnId);
         if(txn!=null)
-            hits.incrementAndGet();
+            hits.increment();
+        else
+            misses.increment();
         return txn;
     }
+
+    @SuppressFBWarnings("SF_SWITCH_NO_DEFAULT") //intentional
+    private void cacheIfCompleted(TxnView transaction){
+        switch(transaction.getEffectiveState()){
+            case COMMITTED:
+            case ROLLEDBACK:
+                cache.put(transaction); // Cache for Future Use
+        }
+    }
+
+    /*JMX methods*/
+
+    @Override
+    public long getTotalHits(){
+        return hits.get();
+    }
+
+    @Override
+    public long getTotalMisses(){
+        return misses.get();
+    }
+
+    @Override
+    public long getTotalRequests(){
+        return hits.get()+misses.get();
+    }
+
+    @Override
+    public long getTotalEvictedEntries(){
+        return cache.evictions();
+    }
+
+    @Override
+    public float getHitPercentage(){
+        long requests=getTotalRequests();
+        return requests==0?0f:(float)hits.get()/requests;
+    }
+
+    @Override
+    public int getCurrentSize(){
+        return cache.size();
+    }
+
+    @Override
+    public int getMaxCacheSize(){
+        return cache.capacity();
+    }
 }
@@ -27,6 +27,7 @@ import com.splicemachine.si.api.txn.*;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
+import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
 import com.splicemachine.si.impl.store.TestingTimestampSource;
 import com.splicemachine.si.impl.store.TestingTxnStore;
 import com.splicemachine.si.impl.txn.*;
@@ -48,6 +49,10 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
@@ -273,6 +278,56 @@ public class SimpleTxnFilterTest{
         assertRolledBack(baseStore,rolledBackTxn);
     }
 
+    @Test
+    public void testPrepareBatchFetchesTransactionsInBulk() throws Exception{
+        Txn committed=txnLifecycleManager.beginTransaction(Bytes.toBytes("table"));
+        committed.commit();
+        Txn rolledBack=txnLifecycleManager.beginTransaction(Bytes.toBytes("table"));
+        rolledBack.rollback();
+
+        final AtomicInteger singleLookups=new AtomicInteger(0);
+        final AtomicInteger bulkLookups=new AtomicInteger(0);
+        TxnStore countingStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),exceptionFactory,Long.MAX_VALUE){
+            @Override
+            public Txn getTransaction(long txnId) throws IOException{
+                singleLookups.incrementAndGet();
+                return (Txn)txnStore.getTransaction(txnId);
+            }
+
+            @Override
+            public Txn[] getTransactions(long[] txnIds) throws IOException{
+                bulkLookups.incrementAndGet();
+                Txn[] txns=new Txn[txnIds.length];
+                for(int i=0;i<txnIds.length;i++){
+                    txns[i]=(Txn)txnStore.getTransaction(txnIds[i]);
+                }
+                return txns;
+            }
+        };
+        TxnSupplier cachingStore=new CompletedTxnCacheSupplier(countingStore,100,16);
+
+        TxnView myTxn=txnLifecycleManager.beginTransaction(Bytes.toBytes("table"));
+        SimpleTxnFilter filterState=new SimpleTxnFilter(null,myTxn,NoOpReadResolver.INSTANCE,cachingStore);
+
+        List<List<DataCell>> batch=new ArrayList<>();
+        batch.add(Collections.singletonList(getUserCell(committed)));
+        batch.add(Collections.singletonList(getUserCell(rolledBack)));
+        batch.add(Collections.singletonList(getUserCell(committed)));
+        filterState.prepareBatch(batch);
+        Assert.assertEquals("Should have fetched the block's transactions in a single lookup!",1,bulkLookups.get());
+
+        DataFilter.ReturnCode[] expected=new DataFilter.ReturnCode[]{
+                DataFilter.ReturnCode.INCLUDE,DataFilter.ReturnCode.SKIP,DataFilter.ReturnCode.INCLUDE
+        };
+        for(int i=0;i<batch.size();i++){
+            filterState.nextRow();
+            DataFilter.ReturnCode returnCode=filterState.filterCell(batch.get(i).get(0));
+            Assert.assertEquals("Incorrect return code for row "+i+"!",expected[i],returnCode);
+        }
+        Assert.assertEquals("Filtering a prepared batch should not look transactions up again!",0,singleLookups.get());
+        Assert.assertEquals("Filtering a prepared batch should not look transactions up again!",1,bulkLookups.get());
+    }
+
     /* ****************************************************************************************************************/
     /*private helper methods*/
     private ReadResolver getRollBackReadResolver(final Pair<ByteSlice, Long> rolledBackTs){
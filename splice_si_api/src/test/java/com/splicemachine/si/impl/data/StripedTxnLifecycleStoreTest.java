@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl.data;
+
+import com.splicemachine.access.api.ServerControl;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.lifecycle.TxnPartition;
+import com.splicemachine.si.impl.store.TestingTimestampSource;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@Category(ArchitectureIndependent.class)
+public class StripedTxnLifecycleStoreTest{
+    private final CountDownLatch writing=new CountDownLatch(1);
+    private final CountDownLatch release=new CountDownLatch(1);
+    private volatile Txn.State state=Txn.State.ACTIVE;
+
+    private TxnPartition partition;
+    private StripedTxnLifecycleStore store;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception{
+        partition=mock(TxnPartition.class);
+        when(partition.getState(1l)).thenAnswer(new Answer<Txn.State>(){
+            @Override
+            public Txn.State answer(InvocationOnMock invocation) throws Throwable{
+                return state;
+            }
+        });
+        doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                writing.countDown();
+                release.await();
+                state=Txn.State.COMMITTED;
+                return null;
+            }
+        }).when(partition).recordCommit(eq(1l),anyLong());
+        //a single stripe, so that every transaction shares a lock
+        store=new StripedTxnLifecycleStore(1,partition,mock(ServerControl.class),new TestingTimestampSource(),16,new TxnGroupCommitStatus());
+        executor=Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void commitWaitingOnItsGroupDoesNotHoldTheStripe() throws Exception{
+        Future<Long> commit=commitInBackground();
+        Assert.assertTrue(writing.await(10,TimeUnit.SECONDS));
+
+        Future<Void> elevate=executor.submit(new Callable<Void>(){
+            @Override
+            public Void call() throws Exception{
+                store.elevateTransaction(2l,new byte[]{1});
+                return null;
+            }
+        });
+        elevate.get(10,TimeUnit.SECONDS);
+        verify(partition).addDestinationTable(eq(2l),any(byte[].class));
+
+        release.countDown();
+        Assert.assertEquals(1l,(long)commit.get(10,TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rollbackWaitsForAnInFlightCommit() throws Exception{
+        Future<Long> commit=commitInBackground();
+        Assert.assertTrue(writing.await(10,TimeUnit.SECONDS));
+
+        Future<Void> rollback=executor.submit(new Callable<Void>(){
+            @Override
+            public Void call() throws Exception{
+                store.rollbackTransaction(1l);
+                return null;
+            }
+        });
+        try{
+            rollback.get(500,TimeUnit.MILLISECONDS);
+            Assert.fail("Rolled back a transaction whose commit was being written");
+        }catch(TimeoutException expected){
+            //the rollback is waiting on the commit
+        }
+
+        release.countDown();
+        Assert.assertEquals(1l,(long)commit.get(10,TimeUnit.SECONDS));
+        rollback.get(10,TimeUnit.SECONDS);
+        //the commit won, so there was nothing to roll back
+        verify(partition,never()).recordRollback(1l);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private Future<Long> commitInBackground(){
+        return executor.submit(new Callable<Long>(){
+            @Override
+            public Long call() throws Exception{
+                return store.commitTransaction(1l);
+            }
+        });
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.si.impl.data;
+
+import com.splicemachine.si.api.txn.lifecycle.TxnPartition;
+import com.splicemachine.si.impl.store.TestingTimestampSource;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@Category(ArchitectureIndependent.class)
+public class TxnGroupCommitterTest{
+
+    @Test
+    public void testUncontendedCommitIsWrittenAlone() throws Exception{
+        TxnPartition partition=mock(TxnPartition.class);
+        TxnGroupCommitStatus status=new TxnGroupCommitStatus();
+        TxnGroupCommitter committer=new TxnGroupCommitter(partition,new TestingTimestampSource(),16,status);
+
+        Assert.assertEquals(1l,committer.commit(100l));
+        Assert.assertEquals(2l,committer.commit(200l));
+
+        verify(partition).recordCommit(100l,1l);
+        verify(partition).recordCommit(200l,2l);
+        verify(partition,never()).recordCommits(any(long[].class),any(long[].class));
+        Assert.assertEquals(2l,status.getTotalCommits());
+        Assert.assertEquals(2l,status.getTotalCommitGroups());
+        Assert.assertEquals(2l,status.getGroupSizeHistogram()[0]);
+    }
+
+    @Test
+    public void testCommitsArrivingDuringAWriteAreGrouped() throws Exception{
+        final CountDownLatch writing=new CountDownLatch(1);
+        final CountDownLatch release=new CountDownLatch(1);
+        final List<long[]> groups=new ArrayList<>();
+        TxnPartition partition=mock(TxnPartition.class);
+        doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                writing.countDown();
+                release.await();
+                return null;
+            }
+        }).when(partition).recordCommit(eq(1l),anyLong());
+        doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                synchronized(groups){
+                    groups.add((long[])invocation.getArguments()[0]);
+                    groups.add((long[])invocation.getArguments()[1]);
+                }
+                return null;
+            }
+        }).when(partition).recordCommits(any(long[].class),any(long[].class));
+
+        TxnGroupCommitStatus status=new TxnGroupCommitStatus();
+        final TxnGroupCommitter committer=new TxnGroupCommitter(partition,new TestingTimestampSource(),16,status);
+        ExecutorService executor=Executors.newCachedThreadPool();
+        try{
+            Future<Long> leader=executor.submit(commitTask(committer,1l));
+            Assert.assertTrue("Leader never started writing",writing.await(10,TimeUnit.SECONDS));
+
+            List<Future<Long>> followers=new ArrayList<>();
+            for(long txnId=2;txnId<=5;txnId++){
+                followers.add(executor.submit(commitTask(committer,txnId)));
+            }
+            while(committer.queuedCommits()<4){
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            Set<Long> commitTimestamps=new HashSet<>();
+            commitTimestamps.add(leader.get(10,TimeUnit.SECONDS));
+            for(Future<Long> follower : followers){
+                commitTimestamps.add(follower.get(10,TimeUnit.SECONDS));
+            }
+            Assert.assertEquals("Commit timestamps were not unique",5,commitTimestamps.size());
+        }finally{
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals("Followers were not written as a single group",2,groups.size());
+        long[] txnIds=groups.get(0).clone();
+        long[] commitTs=groups.get(1);
+        Arrays.sort(txnIds);
+        Assert.assertArrayEquals(new long[]{2l,3l,4l,5l},txnIds);
+        for(int i=1;i<commitTs.length;i++){
+            Assert.assertEquals("Group timestamps were not allocated as a block",commitTs[0]+i,commitTs[i]);
+        }
+        Assert.assertEquals(5l,status.getTotalCommits());
+        Assert.assertEquals(2l,status.getTotalCommitGroups());
+        Assert.assertEquals(2.5d,status.getAverageGroupSize(),0d);
+        Assert.assertEquals(1l,status.getGroupSizeHistogram()[TxnGroupCommitStatus.bucket(4)]);
+    }
+
+    @Test
+    public void testFailedGroupIsRetriedIndividually() throws Exception{
+        TxnPartition partition=mock(TxnPartition.class);
+        doThrow(new IOException("group failed")).when(partition).recordCommits(any(long[].class),any(long[].class));
+        doThrow(new IOException("cannot write 2")).when(partition).recordCommit(eq(2l),anyLong());
+
+        TxnGroupCommitter committer=new TxnGroupCommitter(partition,new TestingTimestampSource(),16,new TxnGroupCommitStatus());
+        TxnGroupCommitter.PendingCommit[] group=new TxnGroupCommitter.PendingCommit[]{
+                new TxnGroupCommitter.PendingCommit(1l),
+                new TxnGroupCommitter.PendingCommit(2l),
+                new TxnGroupCommitter.PendingCommit(3l)
+        };
+        committer.write(group);
+
+        Assert.assertEquals(1l,group[0].get());
+        try{
+            group[1].get();
+            Assert.fail("Expected the commit of txn 2 to fail");
+        }catch(IOException expected){
+            Assert.assertEquals("cannot write 2",expected.getMessage());
+        }
+        Assert.assertEquals(3l,group[2].get());
+    }
+
+    @Test
+    public void testGroupIsCommittedIndividuallyWhenBlocksAreUnavailable() throws Exception{
+        TxnPartition partition=mock(TxnPartition.class);
+        TestingTimestampSource timestampSource=new TestingTimestampSource(){
+            @Override
+            public long nextTimestamps(int count){
+                throw new UnsupportedOperationException("no blocks");
+            }
+        };
+        TxnGroupCommitStatus status=new TxnGroupCommitStatus();
+        TxnGroupCommitter committer=new TxnGroupCommitter(partition,timestampSource,16,status);
+        TxnGroupCommitter.PendingCommit[] group=new TxnGroupCommitter.PendingCommit[]{
+                new TxnGroupCommitter.PendingCommit(1l),
+                new TxnGroupCommitter.PendingCommit(2l)
+        };
+        committer.write(group);
+
+        Assert.assertEquals(1l,group[0].get());
+        Assert.assertEquals(2l,group[1].get());
+        verify(partition).recordCommit(1l,1l);
+        verify(partition).recordCommit(2l,2l);
+        verify(partition,never()).recordCommits(any(long[].class),any(long[].class));
+        Assert.assertEquals(2l,status.getTotalCommitGroups());
+    }
+
+    @Test
+    public void testBucketsArePowersOfTwo() throws Exception{
+        Assert.assertEquals(0,TxnGroupCommitStatus.bucket(0));
+        Assert.assertEquals(0,TxnGroupCommitStatus.bucket(1));
+        Assert.assertEquals(1,TxnGroupCommitStatus.bucket(2));
+        Assert.assertEquals(2,TxnGroupCommitStatus.bucket(3));
+        Assert.assertEquals(2,TxnGroupCommitStatus.bucket(4));
+        Assert.assertEquals(3,TxnGroupCommitStatus.bucket(5));
+        Assert.assertEquals(31,TxnGroupCommitStatus.bucket(Long.MAX_VALUE));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Callable<Long> commitTask(final TxnGroupCommitter committer,final long txnId){
+        return new Callable<Long>(){
+            @Override
+            public Long call() throws Exception{
+                return committer.commit(txnId);
+            }
+        };
+    }
+}
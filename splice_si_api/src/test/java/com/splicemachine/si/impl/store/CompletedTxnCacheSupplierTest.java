@@ -26,6 +26,8 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.splicemachine.si.impl.TxnTestUtils.assertTxnsMatch;
@@ -160,4 +162,39 @@ public class CompletedTxnCacheSupplierTest{
         TxnView fromCache=store.getTransaction(txn.getTxnId());
         assertTxnsMatch("Transaction from store is not correct!",txn,fromCache);
     }
+
+    @Test
+    public void testBulkLookupOnlyFetchesUncachedTransactions() throws Exception{
+        TxnLifecycleManager tc=mock(TxnLifecycleManager.class);
+        Txn cached=new WritableTxn(1,1,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,tc,false,null);
+        cached.rollback();
+        Txn rolledBack=new WritableTxn(2,2,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,tc,false,null);
+        rolledBack.rollback();
+        Txn active=new WritableTxn(3,3,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,tc,false,null);
+
+        final List<long[]> bulkRequests=new ArrayList<>();
+        TxnStore backStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE){
+            @Override
+            public Txn[] getTransactions(long[] txnIds) throws IOException{
+                bulkRequests.add(txnIds);
+                return super.getTransactions(txnIds);
+            }
+        };
+        backStore.recordNewTransaction(cached);
+        backStore.recordNewTransaction(rolledBack);
+        backStore.recordNewTransaction(active);
+
+        TxnSupplier store=new CompletedTxnCacheSupplier(backStore,10,16);
+        store.getTransaction(cached.getTxnId());
+
+        TxnView[] txns=store.getTransactions(new long[]{1,2,3});
+        assertTxnsMatch("Incorrect cached transaction!",cached,txns[0]);
+        assertTxnsMatch("Incorrect rolled back transaction!",rolledBack,txns[1]);
+        assertTxnsMatch("Incorrect active transaction!",active,txns[2]);
+
+        Assert.assertEquals("Should have gone to the store once!",1,bulkRequests.size());
+        Assert.assertArrayEquals("Should only have fetched the uncached transactions!",new long[]{2,3},bulkRequests.get(0));
+        Assert.assertTrue("Rolled back transaction was not cached!",store.transactionCached(rolledBack.getTxnId()));
+        Assert.assertFalse("Active transaction was cached!",store.transactionCached(active.getTxnId()));
+    }
 }
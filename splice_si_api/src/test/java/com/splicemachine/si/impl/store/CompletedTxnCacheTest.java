@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class CompletedTxnCacheTest{
+
+    @Test
+    public void testGetReturnsCachedTransaction() throws Exception{
+        CompletedTxnCache cache=new CompletedTxnCache(16,4);
+        TxnView txn=new CommittedTxn(0x100,0x200);
+        cache.put(txn);
+
+        Assert.assertSame("Did not return the cached transaction!",txn,cache.get(0x100));
+        Assert.assertNull("Returned a transaction which was never cached!",cache.get(0x300));
+        Assert.assertEquals("Incorrect size!",1,cache.size());
+    }
+
+    @Test
+    public void testPutReplacesExistingEntry() throws Exception{
+        CompletedTxnCache cache=new CompletedTxnCache(16,4);
+        cache.put(new CommittedTxn(0x100,0x200));
+        TxnView replacement=new CommittedTxn(0x100,0x200);
+        cache.put(replacement);
+
+        Assert.assertSame("Did not replace the cached transaction!",replacement,cache.get(0x100));
+        Assert.assertEquals("Replacing should not change the size!",1,cache.size());
+        Assert.assertEquals("Replacing should not evict!",0l,cache.evictions());
+    }
+
+    @Test
+    public void testNeverGrowsPastCapacity() throws Exception{
+        CompletedTxnCache cache=new CompletedTxnCache(64,4);
+        int numTxns=10*cache.capacity();
+        for(int i=1;i<=numTxns;i++){
+            cache.put(new CommittedTxn(i*0x100l,i*0x100l+1));
+        }
+
+        Assert.assertTrue("Cache grew past its capacity!",cache.size()<=cache.capacity());
+        Assert.assertEquals("Every insert should have either filled a slot or evicted one!",
+                numTxns,cache.size()+cache.evictions());
+        for(int i=1;i<=numTxns;i++){
+            TxnView txn=cache.get(i*0x100l);
+            if(txn!=null)
+                Assert.assertEquals("Returned the wrong transaction!",i*0x100l,txn.getTxnId());
+        }
+    }
+
+    @Test
+    public void testEvictionPrefersUnreferencedEntries() throws Exception{
+        //a single bucket, so every transaction competes for the same slots
+        CompletedTxnCache cache=new CompletedTxnCache(CompletedTxnCache.BUCKET_SIZE,1);
+        for(int i=1;i<=CompletedTxnCache.BUCKET_SIZE;i++){
+            cache.put(new CommittedTxn(i,i+1));
+        }
+        Assert.assertEquals("Bucket should be full!",CompletedTxnCache.BUCKET_SIZE,cache.size());
+
+        //touch everything but the first entry, so it is the only eviction candidate
+        for(int i=2;i<=CompletedTxnCache.BUCKET_SIZE;i++){
+            Assert.assertNotNull(cache.get(i));
+        }
+        cache.put(new CommittedTxn(100,101));
+
+        Assert.assertNull("Evicted the wrong entry!",cache.get(1));
+        Assert.assertNotNull("Did not cache the new entry!",cache.get(100));
+        for(int i=2;i<=CompletedTxnCache.BUCKET_SIZE;i++){
+            Assert.assertNotNull("Evicted a referenced entry!",cache.get(i));
+        }
+        Assert.assertEquals("Incorrect eviction count!",1l,cache.evictions());
+    }
+}
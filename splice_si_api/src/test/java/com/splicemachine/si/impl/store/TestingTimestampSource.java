@@ -33,6 +33,15 @@ public class TestingTimestampSource implements TimestampSource{
         }
     }
 
+    @Override
+    public long nextTimestamps(int count) {
+        synchronized (this) {
+            long first = id + 1;
+            id = id + count;
+            return first;
+        }
+    }
+
     @Override
     public void rememberTimestamp(long timestamp) {
         memory = timestamp;
@@ -27,8 +27,36 @@ import javax.management.MXBean;
 @MXBean
 public interface TimestampClientStatistics{
 
+	/**
+	 * @return the number of timestamps successfully handed out to callers
+	 */
 	long getNumberTimestampRequests();
-	
+
+	/**
+	 * @return the average time (in milliseconds) a caller waited for a timestamp,
+	 * including any time spent queued behind an outstanding request
+	 */
  	double getAvgTimestampRequestDuration();
-	
+
+	/**
+	 * @return the number of responses received from the timestamp server. Each one
+	 * may satisfy several requests.
+	 */
+	long getNumberTimestampRoundTrips();
+
+	/**
+	 * @return the average number of requests satisfied by a single round trip
+	 */
+	double getAvgTimestampsPerRoundTrip();
+
+	/**
+	 * @return the average time (in milliseconds) between sending a request to the
+	 * timestamp server and receiving its response
+	 */
+	double getAvgRoundTripDuration();
+
+	/**
+	 * @return the most requests which will be coalesced into a single round trip
+	 */
+	int getMaxBatchSize();
 }
@@ -20,6 +20,16 @@ package com.splicemachine.timestamp.api;
  */
 public interface TimestampSource {
     long nextTimestamp();
+
+    /**
+     * Allocate {@code count} consecutive timestamps at once.
+     *
+     * @param count the number of timestamps to allocate. Must be positive.
+     * @return the first timestamp of the block; the caller owns {@code [first, first+count)}
+     * @throws UnsupportedOperationException if this source cannot currently hand out a block
+     * (for example, because the timestamp server predates them)
+     */
+    long nextTimestamps(int count);
     void rememberTimestamp(long timestamp);
     long retrieveTimestamp();
     void shutdown();
@@ -17,6 +17,9 @@ package com.splicemachine.timestamp.impl;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -52,6 +55,19 @@ import org.sparkproject.jboss.netty.handler.codec.frame.FixedLengthFrameDecoder;
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
+ * Concurrent requests are coalesced: while a request is outstanding, new callers
+ * join a pending batch, which is sent as a single message (asking for as many
+ * timestamps as there are callers in it) as soon as the outstanding response arrives,
+ * or as soon as it reaches the maximum batch size. The server answers each batch with the
+ * first of a consecutive range, which is handed out to the callers in the order they joined.
+ * Because a batch is only ever sent after every response its callers could have observed,
+ * a caller which begins after another caller has returned is always granted a larger timestamp.
+ * <p>
+ * Servers which predate batching only understand requests for a single timestamp, so every
+ * new connection first asks the server to switch to batched requests (see
+ * {@link TimestampRequestDecoder}). Until a server confirms the switch, each request is sent
+ * on its own in the original format, and blocks of more than one timestamp are not available.
+ * <p>
  * This class should generally not be constructed directly.
  *
  * @author Walt Koetke
@@ -68,18 +84,29 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
      */
     private static final int FIXED_MSG_RECEIVED_LENGTH = 10; // 2 byte client id + 8 byte timestamp
 
+    /**
+     * The most timestamps a single request can ask for (the count is sent as an unsigned short).
+     */
+    private static final int MAX_BATCH_SIZE = 0xFFFF;
+
     private enum State {
         DISCONNECTED, CONNECTING, CONNECTED, SHUTDOWN
     }
 
     /**
-     * A map representing all currently active callers to this TimestampClient
-     * waiting for their response.
+     * A map representing all currently outstanding requests to this TimestampClient,
+     * each carrying the callers waiting for their response.
      */
-    private ConcurrentMap<Short, Callback> clientCallbacks = null;
+    private ConcurrentMap<Short, BatchCallback> clientCallbacks = null;
 
     private final AtomicReference<State> state = new AtomicReference<>(State.DISCONNECTED);
 
+    /**
+     * The outcome of asking the server of the current connection for batched requests.
+     * Replaced (before the state moves to DISCONNECTED) whenever the connection is lost.
+     */
+    private volatile Negotiation negotiation = new Negotiation();
+
     private ClientBootstrap bootstrap;
     private volatile Channel channel;
     private NioClientSocketChannelFactory factory;
@@ -97,15 +124,39 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
     int timeoutMillis;
 
+    private final int maxBatchSize;
+
+    /**
+     * Guards {@link #pendingBatch} and {@link #batchesInFlight}.
+     */
+    private final Object batchLock = new Object();
+    /**
+     * Callers waiting for the outstanding request(s) to return before being sent.
+     */
+    private BatchCallback pendingBatch;
+    private int batchesInFlight;
+
     // Metrics to expose via JMX. See TimestampClientStatistics
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
-    private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private AtomicLong numTimestamps = new AtomicLong(0);
+    private AtomicLong totalRequestDuration = new AtomicLong(0); // nanoseconds
+    private AtomicLong numRoundTrips = new AtomicLong(0);
+    private AtomicLong totalRoundTripDuration = new AtomicLong(0); // nanoseconds
     private TimestampHostProvider timestampHostProvider;
 
 
     public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider) {
+        this(timeoutMillis,1,timestampHostProvider);
+    }
+
+    /**
+     * @param maxBatchSize the most requests to coalesce into a single round trip. A value of 1
+     *                     disables coalescing: each request is sent as soon as it is made.
+     */
+    public TimestampClient(int timeoutMillis,int maxBatchSize,TimestampHostProvider timestampHostProvider) {
         this.timeoutMillis = timeoutMillis;
+        this.maxBatchSize = Math.max(1,Math.min(maxBatchSize,MAX_BATCH_SIZE));
         this.timestampHostProvider = timestampHostProvider;
         clientCallbacks = new ConcurrentHashMap<>();
 
@@ -183,6 +234,7 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             SpliceLogUtils.info(LOG, "Attempting to connect to server (host %s, port %s)", timestampHostProvider.getHost(), getPort());
         }
 
+        final Negotiation n = negotiation;
         ChannelFuture futureConnect = bootstrap.connect(new InetSocketAddress(timestampHostProvider.getHost(), getPort()));
         final CountDownLatch latchConnect = new CountDownLatch(1);
         futureConnect.addListener(new ChannelFutureListener() {
@@ -200,65 +252,107 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
         CountDownLatches.uncheckedAwait(latchConnect);
         if(channel == null) {
-            throw new TimestampIOException("Unable to connect to TimestampServer");
+            TimestampIOException error = new TimestampIOException("Unable to connect to TimestampServer");
+            n.fail(error);
+            throw error;
         }
 
+        // Ask for batched requests before anything else is sent on this connection. A server which
+        // predates them answers both of these with a timestamp (which we throw away).
+        ChannelBuffer probe = ChannelBuffers.buffer(2 * TimestampServer.LEGACY_MSG_RECEIVED_LENGTH);
+        probe.writeShort(TimestampServer.PROTOCOL_CALLER_ID);
+        probe.writeShort(TimestampServer.PROTOCOL_CALLER_ID);
+        channel.write(probe).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (!future.isSuccess()) {
+                    n.fail(new TimestampIOException("Error negotiating the protocol with the timestamp server", future.getCause()));
+                }
+            }
+        });
+
         // Can only assume connecting (not connected) until channelConnected method is invoked
         state.set(State.CONNECTING);
     }
 
     public long getNextTimestamp() throws TimestampIOException {
+        return getNextTimestamps(1);
+    }
+
+    /**
+     * Allocate a block of consecutive timestamps in a single request.
+     *
+     * @param count the number of timestamps required, between 1 and {@value #MAX_BATCH_SIZE}
+     * @return the first timestamp of the block; the caller owns {@code [first, first+count)}
+     */
+    public long getNextTimestamps(int count) throws TimestampIOException {
+        if (count <= 0 || count > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Cannot request " + count + " timestamps at once");
+        }
 
         // Measure duration of full client request for JMX
-        long requestStartTime = System.currentTimeMillis();
+        long requestStartTime = System.nanoTime();
 
         connectIfNeeded();
 
-        short clientCallId = (short) clientCallCounter.getAndIncrement();
-        final ClientCallback callback = new ClientCallback(clientCallId);
-        SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
-
-        // Add this caller (id and callback) to the map of current clients.
-        // If an entry was already present for this caller id, that is a bug,
-        // so throw an exception.
-        if (clientCallbacks.putIfAbsent(clientCallId, callback) != null) {
-            doClientErrorThrow(LOG, "Found existing client callback with caller id %s, so unable to handle new call.", null, clientCallId);
+        boolean batched = awaitNegotiation();
+        if (count > 1 && !batched) {
+            throw new UnsupportedOperationException("The timestamp server does not support requests for " + count + " timestamps at once");
         }
-
+        // Without batched requests, every caller has to be sent on its own
+        int batchLimit = batched ? maxBatchSize : 1;
+
+        ClientCallback callback;
+        BatchCallback overflow = null;
+        BatchCallback toSend = null;
+        synchronized (batchLock) {
+            if (pendingBatch != null && pendingBatch.size() + count > MAX_BATCH_SIZE) {
+                // The block won't fit in a single message with the callers already waiting, so send them on ahead
+                overflow = pendingBatch;
+                pendingBatch = null;
+                batchesInFlight++;
+            }
+            if (pendingBatch == null) {
+                pendingBatch = new BatchCallback(nextCallerId());
+            }
+            callback = new ClientCallback(pendingBatch.callerId);
+            pendingBatch.add(callback, count);
+            // Send now if nothing is outstanding, otherwise wait to be sent with everyone who
+            // arrives before the outstanding response does (unless we've filled a batch already)
+            if (batchesInFlight == 0 || pendingBatch.size() >= batchLimit) {
+                toSend = pendingBatch;
+                pendingBatch = null;
+                batchesInFlight++;
+            }
+        }
+        SpliceLogUtils.debug(LOG, "Starting new client call with id %s", callback.getCallerId());
         try {
-            ChannelBuffer buffer = ChannelBuffers.buffer(2);
-            buffer.writeShort(clientCallId);
-            SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", callback);
-            ChannelFuture futureWrite = channel.write(buffer);
-            futureWrite.addListener(new ChannelFutureListener() {
-                @Override
-                public void operationComplete(ChannelFuture future) throws Exception {
-                    if (!future.isSuccess()) {
-                        doClientErrorThrow(LOG, "Error writing message from timestamp client to server", future.getCause());
-                    } else {
-                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client: %s", callback);
-                    }
-                }
-            });
-        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
-            clientCallbacks.remove(clientCallId);
-            callback.error(e);
-            doClientErrorThrow(LOG, "Exception writing message to timestamp server for client: %s", e, callback);
+            if (overflow != null) {
+                send(overflow);
+            }
+        } finally {
+            if (toSend != null) {
+                send(toSend);
+            }
         }
 
-        // If we get here, request was successfully sent without exception.
-        // However, we might not have received response yet, so we need to
+        // We might not have received response yet, so we need to
         // wait for that now.
 
         try {
             boolean success = callback.await(timeoutMillis);
             if (!success) {
+                abandon(callback.getCallerId());
                 doClientErrorThrow(LOG, "Client timed out after %s ms waiting for new timestamp: %s", null, timeoutMillis, callback);
             }
         } catch (InterruptedException e) {
             doClientErrorThrow(LOG, "Interrupted waiting for timestamp client: %s", e, callback);
         }
 
+        if (callback.getException() != null) {
+            doClientErrorThrow(LOG, "Unable to obtain timestamp for client: %s", callback.getException(), callback);
+        }
+
         // If we get here, it should mean the client received the response with the timestamp,
         // which we can fetch now from the callback and send it back to the caller.
 
@@ -271,7 +365,8 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
         // Since request was successful, update JMX metrics
         numRequests.incrementAndGet();
-        totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
+        numTimestamps.addAndGet(count);
+        totalRequestDuration.addAndGet(System.nanoTime() - requestStartTime);
 
         return timestamp;
     }
@@ -286,23 +381,143 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         ensureReadableBytes(buf, 8);
 
         long timestamp = buf.readLong();
-        assert (timestamp > 0);
         ensureReadableBytes(buf, 0);
 
+        if (clientCallerId == TimestampServer.PROTOCOL_CALLER_ID) {
+            negotiation.response(timestamp);
+            super.messageReceived(ctx, e);
+            return;
+        }
+        assert (timestamp > 0);
+
         SpliceLogUtils.debug(LOG, "Response from server: clientCallerId = %s, timestamp = %s", clientCallerId, timestamp);
-        Callback cb = clientCallbacks.remove(clientCallerId);
+        BatchCallback cb = clientCallbacks.remove(clientCallerId);
         if (cb == null) {
             doClientErrorThrow(LOG, "Client callback with id %s not found, so unable to deliver timestamp %s", null, clientCallerId, timestamp);
         }
+        numRoundTrips.incrementAndGet();
+        totalRoundTripDuration.addAndGet(System.nanoTime() - cb.sendTime);
 
-        // This releases the latch the original client thread is waiting for
-        // (to provide the synchronous behavior for that caller) and also
-        // provides the timestamp.
+        // This releases the latches the original client threads are waiting for
+        // (to provide the synchronous behavior for those callers) and also
+        // provides each with its timestamp.
         cb.complete(timestamp);
+        batchFinished();
 
         super.messageReceived(ctx, e);
     }
 
+    private void send(final BatchCallback batch) throws TimestampIOException {
+        // Add this batch (id and callback) to the map of outstanding requests.
+        // If an entry was already present for this caller id, that is a bug,
+        // so throw an exception.
+        if (clientCallbacks.putIfAbsent(batch.callerId, batch) != null) {
+            TimestampIOException error = new TimestampIOException("Found existing client callback with caller id " + batch.callerId + ", so unable to handle new call.");
+            batch.error(error);
+            batchFinished();
+            doClientErrorThrow(LOG, "Found existing client callback with caller id %s, so unable to handle new call.", null, batch.callerId);
+        }
+
+        try {
+            ChannelBuffer buffer;
+            if (negotiation.isBatched()) {
+                buffer = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+                buffer.writeShort(batch.callerId);
+                buffer.writeShort(batch.size());
+            } else if (batch.size() == 1) {
+                buffer = ChannelBuffers.buffer(TimestampServer.LEGACY_MSG_RECEIVED_LENGTH);
+                buffer.writeShort(batch.callerId);
+            } else {
+                // Only possible if the connection was replaced while these callers were queued
+                throw new TimestampIOException("The timestamp server does not support batched requests");
+            }
+            SpliceLogUtils.trace(LOG, "Writing request message to server for %s clients with id %s", batch.size(), batch.callerId);
+            batch.sendTime = System.nanoTime();
+            ChannelFuture futureWrite = channel.write(buffer);
+            futureWrite.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (!future.isSuccess()) {
+                        abandon(batch.callerId);
+                        batch.error(new TimestampIOException("Error writing message from timestamp client to server", future.getCause()));
+                        doClientErrorThrow(LOG, "Error writing message from timestamp client to server", future.getCause());
+                    } else {
+                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client id: %s", batch.callerId);
+                    }
+                }
+            });
+        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
+            abandon(batch.callerId);
+            batch.error(e);
+            doClientErrorThrow(LOG, "Exception writing message to timestamp server for client id: %s", e, batch.callerId);
+        }
+    }
+
+    /**
+     * Wait for the server of the current connection to say whether it takes batched requests.
+     *
+     * @return true if requests may carry more than one timestamp
+     */
+    private boolean awaitNegotiation() throws TimestampIOException {
+        Negotiation n = negotiation;
+        try {
+            if (!n.await(timeoutMillis)) {
+                doClientErrorThrow(LOG, "Client timed out after %s ms waiting to negotiate the protocol with the timestamp server", null, timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            doClientErrorThrow(LOG, "Interrupted waiting to negotiate the protocol with the timestamp server", e);
+        }
+        if (n.error != null) {
+            doClientErrorThrow(LOG, "Unable to negotiate the protocol with the timestamp server", n.error);
+        }
+        return n.isBatched();
+    }
+
+    private short nextCallerId() {
+        short callerId;
+        do {
+            callerId = (short) clientCallCounter.getAndIncrement();
+        } while (callerId == TimestampServer.PROTOCOL_CALLER_ID);
+        return callerId;
+    }
+
+    /**
+     * @return the number of timestamps queued behind the outstanding request(s)
+     */
+    int queuedRequests() {
+        synchronized (batchLock) {
+            return pendingBatch == null ? 0 : pendingBatch.size();
+        }
+    }
+
+    /**
+     * Give up on an outstanding request which will not (or may never) get a response, so that
+     * the callers queued behind it are not held up.
+     */
+    private void abandon(short callerId) throws TimestampIOException {
+        if (clientCallbacks.remove(callerId) != null) {
+            batchFinished();
+        }
+    }
+
+    /**
+     * Called once for every request which is no longer outstanding; sends whoever queued up behind it.
+     */
+    private void batchFinished() throws TimestampIOException {
+        BatchCallback toSend;
+        synchronized (batchLock) {
+            if (batchesInFlight > 0) batchesInFlight--; // may already have been reset by a disconnect
+            toSend = pendingBatch;
+            if (toSend != null) {
+                pendingBatch = null;
+                batchesInFlight++;
+            }
+        }
+        if (toSend != null) {
+            send(toSend);
+        }
+    }
+
     @Override
     public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
         SpliceLogUtils.info(LOG, "Successfully connected to server");
@@ -314,6 +529,9 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     @Override
     public void channelDisconnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
         LOG.info("TimestampClient was disconnected from the server");
+        Negotiation lost = negotiation;
+        negotiation = new Negotiation();
+        lost.fail(new TimestampIOException("TimestampClient was disconnected from the server"));
         boolean shouldContinue;
         do{
             State s = state.get();
@@ -321,9 +539,33 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             channel=null;
             shouldContinue = !state.compareAndSet(s,State.DISCONNECTED);
         }while(shouldContinue);
+        failOutstandingRequests();
         connectIfNeeded();
     }
 
+    /**
+     * No response will arrive for anything sent on a closed connection, so fail those callers
+     * (and anyone queued behind them) right away rather than leaving them to time out.
+     */
+    private void failOutstandingRequests() {
+        TimestampIOException error = new TimestampIOException("TimestampClient was disconnected from the server");
+        List<BatchCallback> failed = new ArrayList<>();
+        synchronized (batchLock) {
+            for (Short callerId : clientCallbacks.keySet()) {
+                BatchCallback batch = clientCallbacks.remove(callerId);
+                if (batch != null) failed.add(batch);
+            }
+            if (pendingBatch != null) {
+                failed.add(pendingBatch);
+                pendingBatch = null;
+            }
+            batchesInFlight = 0;
+        }
+        for (BatchCallback batch : failed) {
+            batch.error(error);
+        }
+    }
+
     @Override
     protected void doError(String message, Throwable t, Object... args) {
         SpliceLogUtils.error(LOG, message, t, args);
@@ -347,11 +589,35 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
     @Override
     public double getAvgTimestampRequestDuration() {
-        double a = (double) totalRequestDuration.get();
+        double a = (double) totalRequestDuration.get() / 1000000d;
         double b = (double) numRequests.get();
         return a / b;
     }
 
+    @Override
+    public long getNumberTimestampRoundTrips() {
+        return numRoundTrips.get();
+    }
+
+    @Override
+    public double getAvgTimestampsPerRoundTrip() {
+        double a = (double) numTimestamps.get();
+        double b = (double) numRoundTrips.get();
+        return a / b;
+    }
+
+    @Override
+    public double getAvgRoundTripDuration() {
+        double a = (double) totalRoundTripDuration.get() / 1000000d;
+        double b = (double) numRoundTrips.get();
+        return a / b;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if(state.get() != State.SHUTDOWN) {
@@ -364,4 +630,86 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         TimestampIOException t1 = t != null ? new TimestampIOException(message, t) : new TimestampIOException(message);
         SpliceLogUtils.logAndThrow(logger, String.format(message, args), t1);
     }
+
+    /**
+     * Whether the server of a connection takes batched requests. It does if it answers the
+     * protocol caller id with a (negative) protocol version; a server which predates them
+     * answers both halves of the probe with an ordinary timestamp instead.
+     */
+    private static class Negotiation {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile boolean batched;
+        private volatile Exception error;
+        private int legacyResponses; // guarded by this
+
+        synchronized void response(long timestamp) {
+            if (latch.getCount() == 0) return;
+            if (timestamp < 0) {
+                batched = -timestamp >= TimestampServer.BATCH_PROTOCOL_VERSION;
+                latch.countDown();
+            } else if (++legacyResponses == 2) {
+                latch.countDown();
+            }
+        }
+
+        void fail(Exception e) {
+            error = e;
+            latch.countDown();
+        }
+
+        boolean await(int timeoutMillis) throws InterruptedException {
+            return latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        boolean isBatched() {
+            return batched && latch.getCount() == 0;
+        }
+    }
+
+    /**
+     * The callers whose requests were coalesced into a single message to the server.
+     */
+    private static class BatchCallback implements Callback {
+        final short callerId;
+        private final List<ClientCallback> callbacks = new ArrayList<>(4);
+        private int[] offsets = new int[4];
+        private int size;
+        volatile long sendTime;
+
+        BatchCallback(short callerId) {
+            this.callerId = callerId;
+        }
+
+        void add(ClientCallback callback, int count) {
+            int pos = callbacks.size();
+            if (pos == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * pos);
+            }
+            offsets[pos] = size;
+            callbacks.add(callback);
+            size += count;
+        }
+
+        /**
+         * @return the number of timestamps this batch asks for
+         */
+        int size() {
+            return size;
+        }
+
+        @Override
+        public void error(Exception e) {
+            for (ClientCallback callback : callbacks) {
+                callback.error(e);
+            }
+        }
+
+        @Override
+        public void complete(long timestamp) {
+            // Callers are granted the consecutive timestamps in the order they joined the batch
+            for (int i = 0; i < callbacks.size(); i++) {
+                callbacks.get(i).complete(timestamp + offsets[i]);
+            }
+        }
+    }
 }
@@ -64,7 +64,8 @@ public class TimestampOracle implements TimestampOracleStatistics{
 		return to;
 	}
 	
-	private TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
+	// package-private for testing; everyone else shares the instance from getInstance()
+	TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
         this.timestampBlockManager=timestampBlockManager;
         this.blockSize = blockSize;
 		initialize();
@@ -88,19 +89,32 @@ public class TimestampOracle implements TimestampOracleStatistics{
     }
 
 	public long getNextTimestamp() throws TimestampIOException {
-		long nextTS = _timestampCounter.getAndIncrement();
+		return getNextTimestamps(1);
+	}
+
+	/**
+	 * Allocate {@code count} consecutive timestamps.
+	 *
+	 * @return the first timestamp of the range; the caller owns {@code [first, first+count)}
+	 */
+	public long getNextTimestamps(int count) throws TimestampIOException {
+		assert count>0: "Cannot allocate "+count+" timestamps";
+		long nextTS = _timestampCounter.getAndAdd(count);
+		long lastTS = nextTS+count-1;
 		long maxTS = _maxReservedTimestamp; // avoid the double volatile read
-		if (nextTS > maxTS) {
-			reserveNextBlock(maxTS);
+		if (lastTS > maxTS) {
+			reserveNextBlock(lastTS);
 		}
-		_numTimestampsCreated.incrementAndGet(); // JMX metric
+		_numTimestampsCreated.addAndGet(count); // JMX metric
 		return nextTS;
 	}
 
-    private void reserveNextBlock(long priorMaxReservedTimestamp) throws TimestampIOException {
+    private void reserveNextBlock(long requiredTimestamp) throws TimestampIOException {
         synchronized(this)  {
-            if (_maxReservedTimestamp > priorMaxReservedTimestamp) return; // some other thread got there first
+            if (_maxReservedTimestamp >= requiredTimestamp) return; // some other thread got there first
             long nextMax = _maxReservedTimestamp + blockSize;
+            while(nextMax<requiredTimestamp) //a single batch may span more than one block
+                nextMax+=blockSize;
             timestampBlockManager.reserveNextBlock(nextMax);
             _maxReservedTimestamp = nextMax;
             _numBlocksReserved.incrementAndGet(); // JMX metric
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.timestamp.impl;
+
+import org.sparkproject.jboss.netty.buffer.ChannelBuffer;
+import org.sparkproject.jboss.netty.buffer.ChannelBuffers;
+import org.sparkproject.jboss.netty.channel.Channel;
+import org.sparkproject.jboss.netty.channel.ChannelHandlerContext;
+import org.sparkproject.jboss.netty.handler.codec.frame.FrameDecoder;
+
+/**
+ * Splits the requests sent to the Timestamp Server into frames of
+ * {@link TimestampServer#FIXED_MSG_RECEIVED_LENGTH} bytes: a caller id followed by the
+ * number of timestamps requested.
+ * <p>
+ * Every connection starts out in the original protocol, where a request is just a 2 byte
+ * caller id asking for a single timestamp; those are framed with a count of 1. A client
+ * which wants to send batched requests sends {@link TimestampServer#PROTOCOL_CALLER_ID}
+ * twice in a row. Older clients never do that, because they never reuse a caller id which
+ * is still outstanding. The second one is framed with a count of 0 (which the handler
+ * answers with the protocol version), and from then on the connection carries full frames.
+ * <p>
+ * One instance is needed per connection.
+ */
+class TimestampRequestDecoder extends FrameDecoder {
+
+    private boolean batched;
+    private boolean lastWasProtocolId;
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+        if (batched) {
+            if (buffer.readableBytes() < TimestampServer.FIXED_MSG_RECEIVED_LENGTH) return null;
+            return buffer.readBytes(TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+        }
+        if (buffer.readableBytes() < TimestampServer.LEGACY_MSG_RECEIVED_LENGTH) return null;
+
+        short callerId = buffer.readShort();
+        ChannelBuffer frame = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+        frame.writeShort(callerId);
+        if (callerId == TimestampServer.PROTOCOL_CALLER_ID && lastWasProtocolId) {
+            batched = true;
+            frame.writeShort(0);
+        } else {
+            frame.writeShort(1);
+        }
+        lastWasProtocolId = callerId == TimestampServer.PROTOCOL_CALLER_ID;
+        return frame;
+    }
+}
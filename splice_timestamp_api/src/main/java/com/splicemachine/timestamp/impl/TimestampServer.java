@@ -31,9 +31,28 @@ public class TimestampServer {
     private static final Logger LOG = Logger.getLogger(TimestampServer.class);
 
     /**
-     * Fixed number of bytes in the message we expect to receive from the client.
+     * Fixed number of bytes in the message we expect to receive from a client which
+     * asks for a single timestamp per request (the original protocol).
      */
-    static final int FIXED_MSG_RECEIVED_LENGTH = 2; // 2 byte client id
+    static final int LEGACY_MSG_RECEIVED_LENGTH = 2; // 2 byte client id
+
+    /**
+     * Fixed number of bytes in the message we expect to receive from a client once
+     * it has negotiated batched requests (see {@link TimestampRequestDecoder}).
+     */
+    static final int FIXED_MSG_RECEIVED_LENGTH = 4; // 2 byte client id + 2 byte timestamp count
+
+    /**
+     * Caller id reserved for protocol negotiation; clients never use it for a request.
+     * A client which sends it twice in a row is asking to switch to batched requests,
+     * which the server confirms by answering with {@code -BATCH_PROTOCOL_VERSION}.
+     */
+    static final short PROTOCOL_CALLER_ID = 0;
+
+    /**
+     * The protocol version in which requests carry a timestamp count.
+     */
+    static final int BATCH_PROTOCOL_VERSION = 2;
 
     /**
      * Fixed number of bytes in the message we expect to send back to the client.
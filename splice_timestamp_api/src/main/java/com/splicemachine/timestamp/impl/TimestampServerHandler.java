@@ -60,10 +60,24 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
 
         final short callerId = buf.readShort();
+        ensureReadableBytes(buf, 2);
+
+        int count = buf.readUnsignedShort();
         ensureReadableBytes(buf, 0);
+        if (count == 0 && callerId == TimestampServer.PROTOCOL_CALLER_ID) {
+            // The client is asking whether we take batched requests (see TimestampRequestDecoder)
+            SpliceLogUtils.debug(LOG, "Client switched to batched timestamp requests");
+            respond(e, callerId, -TimestampServer.BATCH_PROTOCOL_VERSION);
+            super.messageReceived(ctx, e);
+            return;
+        }
+        if (count <= 0) {
+            throw new TimestampIOException("Invalid timestamp count " + count + " requested by caller id " + callerId);
+        }
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
+        SpliceLogUtils.trace(LOG, "Received request for %s timestamps from client. Caller id = %s", count, callerId);
+        // The response carries the first of count consecutive timestamps; the client hands them out in order
+        long nextTimestamp = oracle.getNextTimestamps(count);
         assert nextTimestamp > 0;
 
 
@@ -71,10 +85,16 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         // Respond to the client
         //
 
+        SpliceLogUtils.debug(LOG, "Responding to caller %s with timestamp %s", callerId, nextTimestamp);
+        respond(e, callerId, nextTimestamp);
+
+        super.messageReceived(ctx, e);
+    }
+
+    private void respond(MessageEvent e, final short callerId, long timestamp) {
         ChannelBuffer writeBuf = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_SENT_LENGTH);
         writeBuf.writeShort(callerId);
-        writeBuf.writeLong(nextTimestamp);
-        SpliceLogUtils.debug(LOG, "Responding to caller %s with timestamp %s", callerId, nextTimestamp);
+        writeBuf.writeLong(timestamp);
         ChannelFuture futureResponse = e.getChannel().write(writeBuf); // Could also use Channels.write
         futureResponse.addListener(new ChannelFutureListener() {
                                        @Override
@@ -86,8 +106,6 @@ public class TimestampServerHandler extends TimestampBaseHandler {
                                        }
                                    }
         );
-
-        super.messageReceived(ctx, e);
     }
 
     protected void doError(String message, Throwable t, Object... args) {
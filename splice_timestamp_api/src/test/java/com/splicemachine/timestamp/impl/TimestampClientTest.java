@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampHostProvider;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the client against a real Timestamp Server, and against a stand-in for a server
+ * which predates batched requests.
+ */
+public class TimestampClientTest{
+    private static final int TIMEOUT=10000;
+
+    private static GatedBlockManager blocks;
+    private static TimestampServer server;
+    private static int port;
+
+    @BeforeClass
+    public static void startServer() throws Exception{
+        blocks=new GatedBlockManager();
+        port=freePort();
+        // a block size of 1 means every request has to reserve, so a held reservation holds the request
+        server=new TimestampServer(port,blocks,1);
+        server.startServer();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception{
+        server.stopServer();
+    }
+
+    @Test
+    public void concurrentRequestsAreCoalesced() throws Exception{
+        final TimestampClient client=new TimestampClient(TIMEOUT,64,hostProvider(port));
+        ExecutorService executor=Executors.newCachedThreadPool();
+        try{
+            long before=client.getNextTimestamp();
+            long roundTrips=client.getNumberTimestampRoundTrips();
+
+            blocks.hold();
+            Future<Long> outstanding=executor.submit(nextTimestamp(client));
+            Assert.assertTrue("Request never reached the server",blocks.awaitHeld());
+
+            int queued=10;
+            List<Future<Long>> futures=new ArrayList<>(queued);
+            for(int i=0;i<queued;i++){
+                futures.add(executor.submit(nextTimestamp(client)));
+            }
+            while(client.queuedRequests()<queued){
+                Thread.sleep(1);
+            }
+            blocks.release();
+
+            long first=outstanding.get(TIMEOUT,TimeUnit.MILLISECONDS);
+            Assert.assertTrue(first>before);
+            List<Long> timestamps=new ArrayList<>(queued);
+            for(Future<Long> future : futures){
+                timestamps.add(future.get(TIMEOUT,TimeUnit.MILLISECONDS));
+            }
+            Collections.sort(timestamps);
+            for(int i=0;i<queued;i++){
+                Assert.assertEquals("Queued requests were not granted a consecutive range",first+1+i,(long)timestamps.get(i));
+            }
+            Assert.assertEquals("Queued requests were not sent together",roundTrips+2,client.getNumberTimestampRoundTrips());
+        }finally{
+            blocks.release();
+            executor.shutdownNow();
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void blockOfTimestampsIsConsecutive() throws Exception{
+        TimestampClient client=new TimestampClient(TIMEOUT,64,hostProvider(port));
+        try{
+            long first=client.getNextTimestamps(5);
+            Assert.assertEquals(first+5,client.getNextTimestamp());
+        }finally{
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void serverAnswersRequestsInTheOriginalFormat() throws Exception{
+        try(Socket socket=new Socket("localhost",port)){
+            DataOutputStream out=new DataOutputStream(socket.getOutputStream());
+            DataInputStream in=new DataInputStream(socket.getInputStream());
+            long last=0;
+            // a lone protocol caller id is an ordinary request as far as the server is concerned
+            for(short callerId : new short[]{7,TimestampServer.PROTOCOL_CALLER_ID,8}){
+                out.writeShort(callerId);
+                out.flush();
+                Assert.assertEquals(callerId,in.readShort());
+                long timestamp=in.readLong();
+                Assert.assertTrue("Timestamps did not increase",timestamp>last);
+                last=timestamp;
+            }
+        }
+    }
+
+    @Test
+    public void clientFallsBackToSingleRequestsForAnOlderServer() throws Exception{
+        LegacyServer legacy=new LegacyServer();
+        TimestampClient client=new TimestampClient(TIMEOUT,64,hostProvider(legacy.port));
+        try{
+            Assert.assertEquals(3l,client.getNextTimestamp());
+            Assert.assertEquals(4l,client.getNextTimestamp());
+            try{
+                client.getNextTimestamps(2);
+                Assert.fail("Expected blocks of timestamps to be unavailable");
+            }catch(UnsupportedOperationException expected){
+            }
+            // the probe, then each request on its own as a 2 byte caller id
+            Assert.assertEquals(Arrays.asList((short)0,(short)0,(short)100,(short)101),legacy.received());
+        }finally{
+            client.shutdown();
+            legacy.close();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int freePort() throws IOException{
+        try(ServerSocket socket=new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+
+    private static TimestampHostProvider hostProvider(final int port){
+        return new TimestampHostProvider(){
+            @Override
+            public String getHost() throws TimestampIOException{
+                return "localhost";
+            }
+
+            @Override
+            public int getPort(){
+                return port;
+            }
+        };
+    }
+
+    private static Callable<Long> nextTimestamp(final TimestampClient client){
+        return new Callable<Long>(){
+            @Override
+            public Long call() throws Exception{
+                return client.getNextTimestamp();
+            }
+        };
+    }
+
+    private static class GatedBlockManager implements TimestampBlockManager{
+        private volatile CountDownLatch held=new CountDownLatch(0);
+        private volatile CountDownLatch gate=new CountDownLatch(0);
+
+        void hold(){
+            held=new CountDownLatch(1);
+            gate=new CountDownLatch(1);
+        }
+
+        boolean awaitHeld() throws InterruptedException{
+            return held.await(TIMEOUT,TimeUnit.MILLISECONDS);
+        }
+
+        void release(){
+            gate.countDown();
+        }
+
+        @Override
+        public void reserveNextBlock(long currentMaxReserved) throws TimestampIOException{
+            held.countDown();
+            try{
+                gate.await();
+            }catch(InterruptedException e){
+                throw new TimestampIOException(e);
+            }
+        }
+
+        @Override
+        public long initialize() throws TimestampIOException{
+            return 0l;
+        }
+    }
+
+    /**
+     * Answers every 2 byte caller id with the next timestamp, as servers did before batched requests.
+     */
+    private static class LegacyServer implements Runnable{
+        private final ServerSocket serverSocket;
+        private final List<Short> received=new ArrayList<>();
+        final int port;
+
+        LegacyServer() throws IOException{
+            serverSocket=new ServerSocket(0);
+            port=serverSocket.getLocalPort();
+            Thread t=new Thread(this,"legacyTimestampServer");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        @Override
+        public void run(){
+            try(Socket socket=serverSocket.accept()){
+                DataInputStream in=new DataInputStream(socket.getInputStream());
+                DataOutputStream out=new DataOutputStream(socket.getOutputStream());
+                long timestamp=0;
+                while(true){
+                    short callerId=in.readShort();
+                    synchronized(received){
+                        received.add(callerId);
+                    }
+                    out.writeShort(callerId);
+                    out.writeLong(++timestamp);
+                    out.flush();
+                }
+            }catch(IOException ignored){
+                //closed
+            }
+        }
+
+        List<Short> received(){
+            synchronized(received){
+                return new ArrayList<>(received);
+            }
+        }
+
+        void close() throws IOException{
+            serverSocket.close();
+        }
+    }
+}
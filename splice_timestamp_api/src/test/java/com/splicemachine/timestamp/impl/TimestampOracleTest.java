@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TimestampOracleTest{
+
+    @Test
+    public void rangeSpanningSeveralBlocksIsReservedAtOnce() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(0l);
+        TimestampOracle oracle=new TimestampOracle(blocks,10);
+
+        Assert.assertEquals(1l,oracle.getNextTimestamps(25));
+        Assert.assertEquals("Expected a single reservation covering the whole range",1,blocks.reserved.size());
+        Assert.assertEquals(30l,(long)blocks.reserved.get(0));
+
+        // the rest of the last block is used before another is reserved
+        Assert.assertEquals(26l,oracle.getNextTimestamps(5));
+        Assert.assertEquals(1,blocks.reserved.size());
+
+        Assert.assertEquals(31l,oracle.getNextTimestamp());
+        Assert.assertEquals(2,blocks.reserved.size());
+        Assert.assertEquals(40l,(long)blocks.reserved.get(1));
+
+        Assert.assertEquals(2l,oracle.getNumberBlocksReserved());
+        Assert.assertEquals(31l,oracle.getNumberTimestampsCreated());
+    }
+
+    @Test
+    public void rangeEndingOnABlockBoundaryReservesNoMore() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(100l);
+        TimestampOracle oracle=new TimestampOracle(blocks,10);
+
+        Assert.assertEquals(101l,oracle.getNextTimestamps(20));
+        Assert.assertEquals(1,blocks.reserved.size());
+        Assert.assertEquals(120l,(long)blocks.reserved.get(0));
+    }
+
+    @Test
+    public void concurrentRangesNeverOverlap() throws Exception{
+        final RecordingBlockManager blocks=new RecordingBlockManager(0l);
+        final TimestampOracle oracle=new TimestampOracle(blocks,16);
+        int threads=8;
+        final int iterations=1000;
+        ExecutorService executor=Executors.newFixedThreadPool(threads);
+        List<Future<List<long[]>>> futures=new ArrayList<>(threads);
+        try{
+            for(int t=0;t<threads;t++){
+                final int seed=t;
+                futures.add(executor.submit(new Callable<List<long[]>>(){
+                    @Override
+                    public List<long[]> call() throws Exception{
+                        List<long[]> ranges=new ArrayList<>(iterations);
+                        for(int i=0;i<iterations;i++){
+                            int count=1+(i*7+seed)%40;
+                            ranges.add(new long[]{oracle.getNextTimestamps(count),count});
+                        }
+                        return ranges;
+                    }
+                }));
+            }
+            boolean[] seen=new boolean[threads*iterations*40+1];
+            long total=0;
+            for(Future<List<long[]>> future : futures){
+                for(long[] range : future.get(1,TimeUnit.MINUTES)){
+                    for(long ts=range[0];ts<range[0]+range[1];ts++){
+                        Assert.assertFalse("Timestamp "+ts+" was handed out twice",seen[(int)ts]);
+                        seen[(int)ts]=true;
+                        Assert.assertTrue("Timestamp "+ts+" was handed out before it was reserved",ts<=blocks.max());
+                    }
+                    total+=range[1];
+                }
+            }
+            Assert.assertEquals(total,oracle.getNumberTimestampsCreated());
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private static class RecordingBlockManager implements TimestampBlockManager{
+        private final long initialMax;
+        final List<Long> reserved=new ArrayList<>();
+
+        RecordingBlockManager(long initialMax){
+            this.initialMax=initialMax;
+        }
+
+        @Override
+        public synchronized void reserveNextBlock(long currentMaxReserved) throws TimestampIOException{
+            reserved.add(currentMaxReserved);
+        }
+
+        @Override
+        public long initialize() throws TimestampIOException{
+            return initialMax;
+        }
+
+        synchronized long max(){
+            return reserved.isEmpty()?initialMax:reserved.get(reserved.size()-1);
+        }
+    }
+}
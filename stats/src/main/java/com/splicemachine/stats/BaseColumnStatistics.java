@@ -64,6 +64,25 @@ public abstract class BaseColumnStatistics<T extends Comparable<T>> implements C
         return totalBytes;
     }
 
+    /**
+     * Write the format version of an encoding ahead of its base fields. Encodings which predate versioning
+     * begin directly with the (non-negative) column id, so the version is written negated, which
+     * {@link #formatVersion(int)} can tell apart from a column id.
+     */
+    protected static void writeVersion(int version,DataOutput output) throws IOException {
+        assert version>0: "Versions must be positive";
+        output.writeInt(-version);
+    }
+
+    /**
+     * @param header the first int of an encoding
+     * @return the format version of the encoding, or 0 if it predates versioning (in which case
+     * {@code header} is the column id)
+     */
+    protected static int formatVersion(int header) {
+        return header<0? -header: 0;
+    }
+
     protected static void write(ColumnStatistics<?> item,DataOutput output) throws IOException {
         assert item instanceof BaseColumnStatistics: "Cannot encode non-BaseColumnStatistics";
         BaseColumnStatistics bsc = (BaseColumnStatistics)item;
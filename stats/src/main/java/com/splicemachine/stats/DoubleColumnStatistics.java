@@ -24,6 +24,8 @@ import com.splicemachine.stats.estimate.UniformDoubleDistribution;
 import com.splicemachine.stats.frequency.DoubleFrequentElements;
 import com.splicemachine.stats.frequency.FrequencyCounters;
 import com.splicemachine.stats.frequency.FrequentElements;
+import com.splicemachine.stats.quantile.DoubleQuantileSketch;
+import com.splicemachine.stats.quantile.QuantileSketches;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -38,6 +40,7 @@ public class DoubleColumnStatistics extends BaseColumnStatistics<Double> {
     private DoubleFrequentElements frequentElements;
     private double min;
     private double max;
+    private DoubleQuantileSketch quantiles;
     private Distribution<Double> distribution;
 
     public DoubleColumnStatistics(int columnId,
@@ -49,11 +52,25 @@ public class DoubleColumnStatistics extends BaseColumnStatistics<Double> {
                                   long totalCount,
                                   long nullCount,
                                   long minCount) {
+        this(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount,null);
+    }
+
+    public DoubleColumnStatistics(int columnId,
+                                  DoubleCardinalityEstimator cardinalityEstimator,
+                                  DoubleFrequentElements frequentElements,
+                                  double min,
+                                  double max,
+                                  long totalBytes,
+                                  long totalCount,
+                                  long nullCount,
+                                  long minCount,
+                                  DoubleQuantileSketch quantiles) {
         super(columnId, totalBytes, totalCount, nullCount,minCount);
         this.cardinalityEstimator = cardinalityEstimator;
         this.frequentElements = frequentElements;
         this.min = min;
         this.max = max;
+        this.quantiles = quantiles;
         this.distribution = new UniformDoubleDistribution(this);
     }
 
@@ -65,6 +82,11 @@ public class DoubleColumnStatistics extends BaseColumnStatistics<Double> {
     public double min(){ return min; }
     public double max(){ return max; }
 
+    /**
+     * @return a sketch of the distribution of the column's values, or {@code null} if none was collected
+     */
+    public DoubleQuantileSketch quantiles(){ return quantiles; }
+
     @Override
     public Distribution<Double> getDistribution() {
         return distribution;
@@ -79,7 +101,8 @@ public class DoubleColumnStatistics extends BaseColumnStatistics<Double> {
                 totalBytes,
                 totalCount,
                 nullCount,
-                minCount);
+                minCount,
+                quantiles==null? null: quantiles.newCopy());
     }
 
     @Override
@@ -96,6 +119,17 @@ public class DoubleColumnStatistics extends BaseColumnStatistics<Double> {
             min = other.minValue();
         if(other.maxValue()>max)
             max = other.maxValue();
+        /*
+         * A statistic written before quantile sketches were collected (or by a collector which doesn't
+         * build one) has no sketch. Keep whichever sketch we have: it describes only part of the data, but
+         * rangeFraction() is a fraction of the sketched rows, which remains a better estimate of the shape of
+         * the data than the uniform distribution.
+         */
+        DoubleQuantileSketch otherQuantiles = other instanceof DoubleColumnStatistics? ((DoubleColumnStatistics)other).quantiles: null;
+        if(quantiles==null)
+            quantiles = otherQuantiles==null? null: otherQuantiles.newCopy();
+        else if(otherQuantiles!=null)
+            quantiles = quantiles.merge(otherQuantiles);
         totalBytes+=other.totalBytes();
         totalCount+=other.nullCount()+nonNullCount();
         nullCount+=other.nullCount();
@@ -108,19 +142,30 @@ public class DoubleColumnStatistics extends BaseColumnStatistics<Double> {
 
     static class EncDec implements Encoder<DoubleColumnStatistics> {
         public static final EncDec INSTANCE = new EncDec();
+        /*
+         * Version 1 added the quantile sketch. Unversioned encodings have no sketch, and decode
+         * without one.
+         */
+        private static final int VERSION = 1;
 
         @Override
         public void encode(DoubleColumnStatistics item,DataOutput encoder) throws IOException {
+            writeVersion(VERSION,encoder);
             BaseColumnStatistics.write(item,encoder);
             encoder.writeDouble(item.min);
             encoder.writeDouble(item.max);
             CardinalityEstimators.doubleEncoder().encode(item.cardinalityEstimator, encoder);
             FrequencyCounters.doubleEncoder().encode(item.frequentElements,encoder);
+            encoder.writeBoolean(item.quantiles!=null);
+            if(item.quantiles!=null)
+                QuantileSketches.doubleEncoder().encode(item.quantiles,encoder);
         }
 
         @Override
         public DoubleColumnStatistics decode(DataInput decoder) throws IOException {
-            int columnId = decoder.readInt();
+            int header = decoder.readInt();
+            int version = formatVersion(header);
+            int columnId = version==0? header: decoder.readInt();
             long totalBytes = decoder.readLong();
             long totalCount = decoder.readLong();
             long nullCount = decoder.readLong();
@@ -129,7 +174,8 @@ public class DoubleColumnStatistics extends BaseColumnStatistics<Double> {
             double max = decoder.readDouble();
             DoubleCardinalityEstimator cardinalityEstimator = CardinalityEstimators.doubleEncoder().decode(decoder);
             DoubleFrequentElements frequentElements = FrequencyCounters.doubleEncoder().decode(decoder);
-            return new DoubleColumnStatistics(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount);
+            DoubleQuantileSketch quantiles = version>=1 && decoder.readBoolean()? QuantileSketches.doubleEncoder().decode(decoder): null;
+            return new DoubleColumnStatistics(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount,quantiles);
         }
     }
 }
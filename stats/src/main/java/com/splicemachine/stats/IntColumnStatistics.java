@@ -23,6 +23,8 @@ import com.splicemachine.stats.estimate.Distribution;
 import com.splicemachine.stats.estimate.UniformIntDistribution;
 import com.splicemachine.stats.frequency.FrequencyCounters;
 import com.splicemachine.stats.frequency.FrequentElements;
+import com.splicemachine.stats.quantile.IntQuantileSketch;
+import com.splicemachine.stats.quantile.QuantileSketches;
 import com.splicemachine.stats.frequency.IntFrequentElements;
 
 import java.io.DataInput;
@@ -38,6 +40,7 @@ public class IntColumnStatistics extends BaseColumnStatistics<Integer>{
     private IntFrequentElements frequentElements;
     private int min;
     private int max;
+    private IntQuantileSketch quantiles;
 
     private transient Distribution<Integer> distribution;
 
@@ -51,11 +54,25 @@ public class IntColumnStatistics extends BaseColumnStatistics<Integer>{
                                long totalCount,
                                long nullCount,
                                long minCount) {
+        this(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount,null);
+    }
+
+    public IntColumnStatistics(int columnId,
+                               IntCardinalityEstimator cardinalityEstimator,
+                               IntFrequentElements frequentElements,
+                               int min,
+                               int max,
+                               long totalBytes,
+                               long totalCount,
+                               long nullCount,
+                               long minCount,
+                               IntQuantileSketch quantiles) {
         super(columnId, totalBytes, totalCount, nullCount,minCount);
         this.cardinalityEstimator = cardinalityEstimator;
         this.frequentElements = frequentElements;
         this.min = min;
         this.max = max;
+        this.quantiles = quantiles;
         this.distribution = new UniformIntDistribution(this);
     }
 
@@ -72,6 +89,11 @@ public class IntColumnStatistics extends BaseColumnStatistics<Integer>{
     public int min(){ return min; }
     public int max(){ return max; }
 
+    /**
+     * @return a sketch of the distribution of the column's values, or {@code null} if none was collected
+     */
+    public IntQuantileSketch quantiles(){ return quantiles; }
+
     @Override
     public ColumnStatistics<Integer> getClone() {
         return new IntColumnStatistics(columnId,cardinalityEstimator.newCopy(),
@@ -80,7 +102,8 @@ public class IntColumnStatistics extends BaseColumnStatistics<Integer>{
                 max,
                 totalBytes,
                 totalCount,
-                nullCount,minCount);
+                nullCount,minCount,
+                quantiles==null? null: quantiles.newCopy());
     }
 
     @Override
@@ -97,6 +120,17 @@ public class IntColumnStatistics extends BaseColumnStatistics<Integer>{
             min = other.minValue();
         if(other.maxValue()>max)
             max = other.maxValue();
+        /*
+         * A statistic written before quantile sketches were collected (or by a collector which doesn't
+         * build one) has no sketch. Keep whichever sketch we have: it describes only part of the data, but
+         * rangeFraction() is a fraction of the sketched rows, which remains a better estimate of the shape of
+         * the data than the uniform distribution.
+         */
+        IntQuantileSketch otherQuantiles = other instanceof IntColumnStatistics? ((IntColumnStatistics)other).quantiles: null;
+        if(quantiles==null)
+            quantiles = otherQuantiles==null? null: otherQuantiles.newCopy();
+        else if(otherQuantiles!=null)
+            quantiles = quantiles.merge(otherQuantiles);
         totalBytes+=other.totalBytes();
         totalCount+=other.nullCount()+other.nonNullCount();
         nullCount+=other.nullCount();
@@ -109,19 +143,30 @@ public class IntColumnStatistics extends BaseColumnStatistics<Integer>{
 
     static class EncDec implements Encoder<IntColumnStatistics> {
         public static final EncDec INSTANCE = new EncDec();
+        /*
+         * Version 1 added the quantile sketch. Unversioned encodings have no sketch, and decode
+         * without one.
+         */
+        private static final int VERSION = 1;
 
         @Override
         public void encode(IntColumnStatistics item,DataOutput encoder) throws IOException {
+            writeVersion(VERSION,encoder);
             BaseColumnStatistics.write(item, encoder);
             encoder.writeInt(item.min);
             encoder.writeInt(item.max);
             CardinalityEstimators.intEncoder().encode(item.cardinalityEstimator, encoder);
             FrequencyCounters.intEncoder().encode(item.frequentElements,encoder);
+            encoder.writeBoolean(item.quantiles!=null);
+            if(item.quantiles!=null)
+                QuantileSketches.intEncoder().encode(item.quantiles,encoder);
         }
 
         @Override
         public IntColumnStatistics decode(DataInput decoder) throws IOException {
-            int columnId = decoder.readInt();
+            int header = decoder.readInt();
+            int version = formatVersion(header);
+            int columnId = version==0? header: decoder.readInt();
             long totalBytes = decoder.readLong();
             long totalCount = decoder.readLong();
             long nullCount = decoder.readLong();
@@ -130,7 +175,8 @@ public class IntColumnStatistics extends BaseColumnStatistics<Integer>{
             int max = decoder.readInt();
             IntCardinalityEstimator cardinalityEstimator = CardinalityEstimators.intEncoder().decode(decoder);
             IntFrequentElements frequentElements = FrequencyCounters.intEncoder().decode(decoder);
-            return new IntColumnStatistics(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount);
+            IntQuantileSketch quantiles = version>=1 && decoder.readBoolean()? QuantileSketches.intEncoder().decode(decoder): null;
+            return new IntColumnStatistics(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount,quantiles);
         }
     }
 }
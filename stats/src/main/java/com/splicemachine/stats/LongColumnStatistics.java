@@ -24,6 +24,8 @@ import com.splicemachine.stats.estimate.LongDistribution;
 import com.splicemachine.stats.estimate.UniformLongDistribution;
 import com.splicemachine.stats.frequency.FrequencyCounters;
 import com.splicemachine.stats.frequency.FrequentElements;
+import com.splicemachine.stats.quantile.LongQuantileSketch;
+import com.splicemachine.stats.quantile.QuantileSketches;
 import com.splicemachine.stats.frequency.LongFrequentElements;
 
 import java.io.DataInput;
@@ -39,6 +41,7 @@ public class LongColumnStatistics extends BaseColumnStatistics<Long> {
     private LongFrequentElements frequentElements;
     private long min;
     private long max;
+    private LongQuantileSketch quantiles;
     private LongDistribution distribution;
 
     public LongColumnStatistics(int columnId,LongCardinalityEstimator cardinalityEstimator,
@@ -49,11 +52,24 @@ public class LongColumnStatistics extends BaseColumnStatistics<Long> {
                                 long totalCount,
                                 long nullCount,
                                 long minCount) {
+        this(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount,null);
+    }
+
+    public LongColumnStatistics(int columnId,LongCardinalityEstimator cardinalityEstimator,
+                                LongFrequentElements frequentElements,
+                                long min,
+                                long max,
+                                long totalBytes,
+                                long totalCount,
+                                long nullCount,
+                                long minCount,
+                                LongQuantileSketch quantiles) {
         super(columnId, totalBytes, totalCount, nullCount,minCount);
         this.cardinalityEstimator = cardinalityEstimator;
         this.frequentElements = frequentElements;
         this.min = min;
         this.max = max;
+        this.quantiles = quantiles;
         this.distribution = new UniformLongDistribution(this);
     }
 
@@ -65,6 +81,11 @@ public class LongColumnStatistics extends BaseColumnStatistics<Long> {
     public long min() { return min; }
     public long max() { return max; }
 
+    /**
+     * @return a sketch of the distribution of the column's values, or {@code null} if none was collected
+     */
+    public LongQuantileSketch quantiles() { return quantiles; }
+
     @Override
     public ColumnStatistics<Long> getClone() {
         return new LongColumnStatistics(columnId,cardinalityEstimator.newCopy(),
@@ -74,7 +95,8 @@ public class LongColumnStatistics extends BaseColumnStatistics<Long> {
                 totalBytes,
                 totalCount,
                 nullCount,
-                minCount);
+                minCount,
+                quantiles==null? null: quantiles.newCopy());
     }
 
     @Override
@@ -91,6 +113,17 @@ public class LongColumnStatistics extends BaseColumnStatistics<Long> {
             min = other.minValue();
         if(max<other.maxValue())
             max = other.maxValue();
+        /*
+         * A statistic written before quantile sketches were collected (or by a collector which doesn't
+         * build one) has no sketch. Keep whichever sketch we have: it describes only part of the data, but
+         * rangeFraction() is a fraction of the sketched rows, which remains a better estimate of the shape of
+         * the data than the uniform distribution.
+         */
+        LongQuantileSketch otherQuantiles = other instanceof LongColumnStatistics? ((LongColumnStatistics)other).quantiles: null;
+        if(quantiles==null)
+            quantiles = otherQuantiles==null? null: otherQuantiles.newCopy();
+        else if(otherQuantiles!=null)
+            quantiles = quantiles.merge(otherQuantiles);
         totalBytes+=other.totalBytes();
         totalCount+=other.nullCount()+other.nonNullCount();
         nullCount+=other.nullCount();
@@ -103,19 +136,30 @@ public class LongColumnStatistics extends BaseColumnStatistics<Long> {
 
     static class EncDec implements Encoder<LongColumnStatistics> {
         public static final EncDec INSTANCE = new EncDec();
+        /*
+         * Version 1 added the quantile sketch. Unversioned encodings have no sketch, and decode
+         * without one.
+         */
+        private static final int VERSION = 1;
 
         @Override
         public void encode(LongColumnStatistics item,DataOutput encoder) throws IOException {
+            writeVersion(VERSION,encoder);
             BaseColumnStatistics.write(item, encoder);
             encoder.writeLong(item.min);
             encoder.writeLong(item.max);
             CardinalityEstimators.longEncoder().encode(item.cardinalityEstimator, encoder);
             FrequencyCounters.longEncoder().encode(item.frequentElements,encoder);
+            encoder.writeBoolean(item.quantiles!=null);
+            if(item.quantiles!=null)
+                QuantileSketches.longEncoder().encode(item.quantiles,encoder);
         }
 
         @Override
         public LongColumnStatistics decode(DataInput decoder) throws IOException {
-            int columnId = decoder.readInt();
+            int header = decoder.readInt();
+            int version = formatVersion(header);
+            int columnId = version==0? header: decoder.readInt();
             long totalBytes = decoder.readLong();
             long totalCount = decoder.readLong();
             long nullCount = decoder.readLong();
@@ -124,7 +168,8 @@ public class LongColumnStatistics extends BaseColumnStatistics<Long> {
             long max = decoder.readLong();
             LongCardinalityEstimator cardinalityEstimator = CardinalityEstimators.longEncoder().decode(decoder);
             LongFrequentElements frequentElements = FrequencyCounters.longEncoder().decode(decoder);
-            return new LongColumnStatistics(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount);
+            LongQuantileSketch quantiles = version>=1 && decoder.readBoolean()? QuantileSketches.longEncoder().decode(decoder): null;
+            return new LongColumnStatistics(columnId,cardinalityEstimator,frequentElements,min,max,totalBytes,totalCount,nullCount,minCount,quantiles);
         }
     }
 
@@ -20,6 +20,7 @@ import com.splicemachine.stats.cardinality.CardinalityEstimators;
 import com.splicemachine.stats.estimate.DistributionFactory;
 import com.splicemachine.stats.frequency.FrequencyCounter;
 import com.splicemachine.stats.frequency.FrequencyCounters;
+import com.splicemachine.stats.quantile.QuantileSketches;
 import com.splicemachine.stats.order.*;
 
 /**
@@ -50,6 +51,7 @@ public class ColumnStatsCollectors {
         return new IntColumn(columnId,CardinalityEstimators.hyperLogLogInt(precision),
                 FrequencyCounters.intCounter(2*topK),
                 IntMinMaxCollector.newInstance(),
+                QuantileSketches.intSketch(),
                 topK);
     }
 
@@ -57,6 +59,7 @@ public class ColumnStatsCollectors {
         return new LongColumn(columnId,CardinalityEstimators.hyperLogLogLong(precision),
                 FrequencyCounters.longCounter(2 * topK),
                 LongMinMaxCollector.newInstance(),
+                QuantileSketches.longSketch(),
                 topK);
     }
 
@@ -71,6 +74,7 @@ public class ColumnStatsCollectors {
         return new DoubleColumn(columnId,CardinalityEstimators.hyperLogLogDouble(precision),
                 FrequencyCounters.doubleCounter(2 * topK),
                 DoubleMinMaxCollector.newInstance(),
+                QuantileSketches.doubleSketch(),
                 topK);
     }
 
@@ -19,6 +19,7 @@ import com.splicemachine.stats.DoubleColumnStatistics;
 import com.splicemachine.stats.cardinality.DoubleCardinalityEstimator;
 import com.splicemachine.stats.frequency.DoubleFrequencyCounter;
 import com.splicemachine.stats.order.DoubleMinMaxCollector;
+import com.splicemachine.stats.quantile.DoubleQuantileSketch;
 
 /**
  * @author Scott Fines
@@ -29,6 +30,7 @@ class DoubleColumn implements DoubleColumnStatsCollector {
     private final DoubleCardinalityEstimator cardinalityEstimator;
     private final DoubleFrequencyCounter frequencyCounter;
     private final DoubleMinMaxCollector minMaxCollector;
+    private final DoubleQuantileSketch quantiles;
 
     private long nullCount;
     private long totalBytes;
@@ -41,10 +43,12 @@ class DoubleColumn implements DoubleColumnStatsCollector {
                         DoubleCardinalityEstimator cardinalityEstimator,
                         DoubleFrequencyCounter frequencyCounter,
                         DoubleMinMaxCollector minMaxCollector,
+                        DoubleQuantileSketch quantiles,
                         int topK) {
         this.cardinalityEstimator = cardinalityEstimator;
         this.frequencyCounter = frequencyCounter;
         this.minMaxCollector = minMaxCollector;
+        this.quantiles = quantiles;
         this.topK = topK;
         this.columnId = columnId;
     }
@@ -59,7 +63,8 @@ class DoubleColumn implements DoubleColumnStatsCollector {
                 totalBytes,
                 count,
                 nullCount,
-                minMaxCollector.minCount());
+                minMaxCollector.minCount(),
+                quantiles);
     }
 
     @Override public void updateSize(int size) { totalBytes+=size; }
@@ -78,6 +83,7 @@ class DoubleColumn implements DoubleColumnStatsCollector {
         cardinalityEstimator.update(item,count);
         frequencyCounter.update(item,count);
         minMaxCollector.update(item,count);
+        quantiles.update(item,count);
         this.count+=count;
     }
 
@@ -19,6 +19,7 @@ import com.splicemachine.stats.IntColumnStatistics;
 import com.splicemachine.stats.cardinality.IntCardinalityEstimator;
 import com.splicemachine.stats.frequency.IntFrequencyCounter;
 import com.splicemachine.stats.order.IntMinMaxCollector;
+import com.splicemachine.stats.quantile.IntQuantileSketch;
 
 /**
  * A Statistics collector for an integer column.
@@ -31,6 +32,7 @@ class IntColumn implements IntColumnStatsCollector {
     private final IntCardinalityEstimator cardinalityEstimator;
     private final IntFrequencyCounter frequencyCounter;
     private final IntMinMaxCollector minMaxCollector;
+    private final IntQuantileSketch quantiles;
 
     private long nullCount;
     private long totalBytes;
@@ -43,10 +45,12 @@ class IntColumn implements IntColumnStatsCollector {
                      IntCardinalityEstimator cardinalityEstimator,
                      IntFrequencyCounter frequencyCounter,
                      IntMinMaxCollector minMaxCollector,
+                     IntQuantileSketch quantiles,
                      int topK) {
         this.cardinalityEstimator = cardinalityEstimator;
         this.frequencyCounter = frequencyCounter;
         this.minMaxCollector = minMaxCollector;
+        this.quantiles = quantiles;
         this.topK = topK;
         this.columnId = columnId;
     }
@@ -61,7 +65,8 @@ class IntColumn implements IntColumnStatsCollector {
                 totalBytes,
                 count,
                 nullCount,
-                minMaxCollector.minCount());
+                minMaxCollector.minCount(),
+                quantiles);
     }
 
     @Override public void updateSize(int size) { totalBytes+=size; }
@@ -80,6 +85,7 @@ class IntColumn implements IntColumnStatsCollector {
         cardinalityEstimator.update(item,count);
         frequencyCounter.update(item,count);
         minMaxCollector.update(item,count);
+        quantiles.update(item,count);
         this.count+=count;
     }
 
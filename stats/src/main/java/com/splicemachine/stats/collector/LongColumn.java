@@ -19,6 +19,7 @@ import com.splicemachine.stats.LongColumnStatistics;
 import com.splicemachine.stats.cardinality.LongCardinalityEstimator;
 import com.splicemachine.stats.frequency.LongFrequencyCounter;
 import com.splicemachine.stats.order.LongMinMaxCollector;
+import com.splicemachine.stats.quantile.LongQuantileSketch;
 
 /**
  * @author Scott Fines
@@ -29,6 +30,7 @@ class LongColumn implements LongColumnStatsCollector {
     private final LongCardinalityEstimator cardinalityEstimator;
     private final LongFrequencyCounter frequencyCounter;
     private final LongMinMaxCollector minMaxCollector;
+    private final LongQuantileSketch quantiles;
 
     private long nullCount;
     private long totalBytes;
@@ -41,10 +43,12 @@ class LongColumn implements LongColumnStatsCollector {
                       LongCardinalityEstimator cardinalityEstimator,
                       LongFrequencyCounter frequencyCounter,
                       LongMinMaxCollector minMaxCollector,
+                      LongQuantileSketch quantiles,
                       int topK) {
         this.cardinalityEstimator = cardinalityEstimator;
         this.frequencyCounter = frequencyCounter;
         this.minMaxCollector = minMaxCollector;
+        this.quantiles = quantiles;
         this.topK = topK;
         this.columnId = columnId;
     }
@@ -59,7 +63,8 @@ class LongColumn implements LongColumnStatsCollector {
                 totalBytes,
                 count,
                 nullCount,
-                minMaxCollector.minCount());
+                minMaxCollector.minCount(),
+                quantiles);
     }
 
     @Override public void updateSize(int size) { totalBytes+=size; }
@@ -78,6 +83,7 @@ class LongColumn implements LongColumnStatsCollector {
         cardinalityEstimator.update(item,count);
         frequencyCounter.update(item,count);
         minMaxCollector.update(item,count);
+        quantiles.update(item,count);
         this.count+=count;
     }
 
@@ -16,6 +16,7 @@
 package com.splicemachine.stats.estimate;
 
 import com.splicemachine.stats.DoubleColumnStatistics;
+import com.splicemachine.stats.quantile.DoubleQuantileSketch;
 import com.splicemachine.stats.frequency.DoubleFrequencyEstimate;
 import com.splicemachine.stats.frequency.DoubleFrequentElements;
 import com.splicemachine.utils.ComparableComparator;
@@ -179,6 +180,14 @@ public class UniformDoubleDistribution extends UniformDistribution<Double> imple
     /* ****************************************************************************************************************/
     /*private helper methods*/
     private long rangeSelectivity(double start, double stop, boolean includeStart, boolean includeStop,boolean isMin) {
+        DoubleQuantileSketch quantiles = ((DoubleColumnStatistics)columnStats).quantiles();
+        if(quantiles!=null && !quantiles.isEmpty()){
+            /*
+             * The sketch describes the whole distribution (frequent elements included), so when it is
+             * available it is used directly rather than interpolating between min and max.
+             */
+            return Math.round(quantiles.rangeFraction(start,stop,includeStart,includeStop)*columnStats.nonNullCount());
+        }
         double baseEstimate = a*(stop-start);
 
         DoubleFrequentElements ife = (DoubleFrequentElements)columnStats.topK();
@@ -16,6 +16,7 @@
 package com.splicemachine.stats.estimate;
 
 import com.splicemachine.stats.IntColumnStatistics;
+import com.splicemachine.stats.quantile.IntQuantileSketch;
 import com.splicemachine.stats.frequency.IntFrequencyEstimate;
 import com.splicemachine.stats.frequency.IntFrequentElements;
 import com.splicemachine.utils.ComparableComparator;
@@ -189,6 +190,14 @@ public class UniformIntDistribution extends UniformDistribution<Integer> impleme
     /* ****************************************************************************************************************/
     /*private helper methods*/
     private long rangeSelectivity(int start, int stop, boolean includeStart, boolean includeStop,boolean isMin) {
+        IntQuantileSketch quantiles = ((IntColumnStatistics)columnStats).quantiles();
+        if(quantiles!=null && !quantiles.isEmpty()){
+            /*
+             * The sketch describes the whole distribution (frequent elements included), so when it is
+             * available it is used directly rather than interpolating between min and max.
+             */
+            return Math.round(quantiles.rangeFraction(start,stop,includeStart,includeStop)*columnStats.nonNullCount());
+        }
         //upcast to double here to avoid potential overflow issues in the subtraction
         double d = (double)stop-start;
         double baseEstimate = a*d;
@@ -16,6 +16,7 @@
 package com.splicemachine.stats.estimate;
 
 import com.splicemachine.stats.LongColumnStatistics;
+import com.splicemachine.stats.quantile.LongQuantileSketch;
 import com.splicemachine.stats.frequency.LongFrequencyEstimate;
 import com.splicemachine.stats.frequency.LongFrequentElements;
 import com.splicemachine.utils.ComparableComparator;
@@ -165,6 +166,14 @@ public class UniformLongDistribution extends UniformDistribution<Long> implement
     /* ****************************************************************************************************************/
     /*private helper methods*/
     private long rangeSelectivity(long start, long stop, boolean includeStart, boolean includeStop, boolean isMin) {
+        LongQuantileSketch quantiles = ((LongColumnStatistics)columnStats).quantiles();
+        if(quantiles!=null && !quantiles.isEmpty()){
+            /*
+             * The sketch describes the whole distribution (frequent elements included), so when it is
+             * available it is used directly rather than interpolating between min and max.
+             */
+            return Math.round(quantiles.rangeFraction(start,stop,includeStart,includeStop)*columnStats.nonNullCount());
+        }
         /*
          * distance is always positive, and we've checked before to ensure that stop>start; unfortunately,
          * we could overflow with long subtraction here and still end up with a negative distance. We
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.stats.quantile;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A mergeable, bounded-memory quantile sketch over {@code double} values. Values are ordered as by {@link Double#compare(double, double)}.
+ */
+public class DoubleQuantileSketch extends QuantileSketch<DoubleQuantileSketch> {
+    private double[][] levels = new double[1][0];
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /*the items of the sorted view, built on demand*/
+    private double[] sortedItems;
+
+    public DoubleQuantileSketch(int k){
+        this(k,new Random());
+    }
+
+    public DoubleQuantileSketch(int k,Random random){
+        super(k,random);
+    }
+
+    public void update(double item){
+        update(item,1l);
+    }
+
+    /**
+     * Add {@code count} occurrences of {@code item} to the sketch.
+     */
+    public void update(double item,long count){
+        if(count<=0) return;
+        if(Double.compare(item,min)<0) min = item;
+        if(Double.compare(max,item)<0) max = item;
+        int level = 0;
+        for(long c=count;c!=0;c>>>=1,level++){
+            if((c & 1l)!=0){
+                int position = reserve(level);
+                levels[level][position] = item;
+            }
+        }
+        added(count);
+    }
+
+    /**
+     * @return the estimated number of items which are less than {@code value} (or less than or equal to, if
+     * {@code inclusive} is true).
+     */
+    public long rank(double value,boolean inclusive){
+        if(isEmpty()) return 0l;
+        int c = Double.compare(value,min);
+        if(c<0 || (!inclusive && c==0)) return 0l;
+        c = Double.compare(value,max);
+        if(c>0 || (inclusive && c==0)) return size();
+        int lo = 0;
+        int hi = sortedView();
+        //find the first position which is not counted
+        while(lo<hi){
+            int mid = (lo+hi)>>>1;
+            int compare = Double.compare(sortedItems[mid],value);
+            if(compare<0 || (inclusive && compare==0)) lo = mid+1;
+            else hi = mid;
+        }
+        return rankAt(lo);
+    }
+
+    /**
+     * @return the estimated fraction of items which lie in the range between {@code start} and {@code stop}.
+     */
+    public double rangeFraction(double start,double stop,boolean includeStart,boolean includeStop){
+        if(isEmpty()) return 0d;
+        return fractionBetween(rank(start,!includeStart),rank(stop,includeStop));
+    }
+
+    /**
+     * @param fraction a number in the range {@code [0,1]}
+     * @return an item whose estimated rank is {@code fraction*size()}
+     */
+    public double quantile(double fraction){
+        assert !isEmpty(): "Cannot compute the quantile of an empty sketch";
+        if(fraction<=0d) return min;
+        if(fraction>=1d) return max;
+        int position = quantilePosition(fraction);
+        return sortedItems[position];
+    }
+
+    /**
+     * @return the smallest item in the sketch, or {@code Double.POSITIVE_INFINITY} if the sketch is empty
+     */
+    public double min(){ return min; }
+
+    /**
+     * @return the largest item in the sketch, or {@code Double.NEGATIVE_INFINITY} if the sketch is empty
+     */
+    public double max(){ return max; }
+
+    @Override
+    protected DoubleQuantileSketch newSketch(int k,Random random){
+        return new DoubleQuantileSketch(k,random);
+    }
+
+    @Override
+    protected void ensureLevelStorage(int numLevels){
+        int oldLength = levels.length;
+        if(numLevels<=oldLength) return;
+        levels = Arrays.copyOf(levels,numLevels);
+        for(int h=oldLength;h<numLevels;h++){
+            levels[h] = new double[0];
+        }
+    }
+
+    @Override protected int levelCapacity(int level){ return levels[level].length; }
+
+    @Override
+    protected void resizeLevel(int level,int capacity){
+        levels[level] = Arrays.copyOf(levels[level],capacity);
+    }
+
+    @Override
+    protected void sortLevel(int level,int size){
+        Arrays.sort(levels[level],0,size);
+    }
+
+    @Override
+    protected int compareItems(int level,int position,int otherLevel,int otherPosition){
+        return Double.compare(levels[level][position],levels[otherLevel][otherPosition]);
+    }
+
+    @Override
+    protected void moveItem(int fromLevel,int fromPosition,int toLevel,int toPosition){
+        levels[toLevel][toPosition] = levels[fromLevel][fromPosition];
+    }
+
+    @Override
+    protected void copyItem(DoubleQuantileSketch source,int sourceLevel,int sourcePosition,int level,int position){
+        levels[level][position] = source.levels[sourceLevel][sourcePosition];
+    }
+
+    @Override
+    protected void mergeBounds(DoubleQuantileSketch other){
+        if(Double.compare(other.min,min)<0) min = other.min;
+        if(Double.compare(max,other.max)<0) max = other.max;
+    }
+
+    @Override
+    protected void buildView(int[] levels,int[] positions,int size){
+        double[] items = new double[size];
+        for(int i=0;i<size;i++){
+            items[i] = this.levels[levels[i]][positions[i]];
+        }
+        sortedItems = items;
+    }
+
+    /* ****************************************************************************************************************/
+    /*package-local methods*/
+    double item(int level,int position){ return levels[level][position]; }
+
+    void restore(int level,double item){
+        int position = reserve(level);
+        levels[level][position] = item;
+    }
+
+    void restoreBounds(double min,double max){
+        this.min = min;
+        this.max = max;
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.stats.quantile;
+
+import com.splicemachine.stats.Mergeable;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A mergeable, bounded-memory quantile sketch.
+ *
+ * This is an implementation of the KLL sketch (Karnin, Lang and Liberty, "<em>Optimal Quantile Approximation
+ * in Streams</em>"). Items are held in a stack of <em>compactors</em>, where an item held in level {@code h}
+ * stands in for {@code 2^h} items of the stream. When the sketch grows beyond its capacity, the lowest full
+ * level is sorted and every other item (starting from a random offset) is promoted to the next level up, while the
+ * rest are discarded. The capacity of a level decreases geometrically the further it is below the top level,
+ * so the sketch holds {@code O(k)} items regardless of how many items have been seen, and the rank error
+ * is roughly {@code O(1/k)} with high probability.
+ *
+ * Merging two sketches simply concatenates their levels and compacts, so sketches which are built
+ * independently (e.g. one per partition) can be combined in time proportional to the size of the sketches.
+ *
+ * This class holds the level bookkeeping and the compaction, merge and ranking logic, but not the items
+ * themselves: it refers to an item only by its level and its position within that level. Subclasses store
+ * the items of each level in an array of their own type (see {@link IntQuantileSketch}, {@link LongQuantileSketch},
+ * {@link DoubleQuantileSketch} and {@link BytesQuantileSketch}), so that numeric sketches are updated
+ * without boxing every value.
+ */
+public abstract class QuantileSketch<S extends QuantileSketch<S>> implements Mergeable<S> {
+    private final int k;
+    private final Random random;
+
+    private int[] sizes;
+    private int numLevels;
+    private int retained;
+    private int capacity;
+    private long count;
+
+    /*
+     * The cumulative weights of the lazily built sorted view of the sketch, discarded whenever the sketch
+     * changes. The items of the view are held by the subclass (see buildView()).
+     */
+    private long[] cumulativeWeights;
+
+    protected QuantileSketch(int k,Random random){
+        assert k>=QuantileSketches.MIN_K: "k must be at least "+ QuantileSketches.MIN_K;
+        this.k = k;
+        this.random = random;
+        this.sizes = new int[1];
+        this.numLevels = 1;
+        this.capacity = QuantileSketches.totalCapacity(k,1);
+    }
+
+    /**
+     * @return a new, empty sketch of the same type with the specified parameters
+     */
+    protected abstract S newSketch(int k,Random random);
+
+    /* ****************************************************************************************************************/
+    /*item storage, provided by subclasses*/
+
+    /**
+     * Ensure that the item storage has room for at least {@code numLevels} levels. Newly added levels may
+     * be empty arrays.
+     */
+    protected abstract void ensureLevelStorage(int numLevels);
+
+    /**
+     * @return the number of items which can be held in {@code level} without resizing it
+     */
+    protected abstract int levelCapacity(int level);
+
+    /**
+     * Resize the storage of {@code level} to hold {@code capacity} items, keeping the items already there.
+     */
+    protected abstract void resizeLevel(int level,int capacity);
+
+    /**
+     * Sort the first {@code size} items of {@code level}.
+     */
+    protected abstract void sortLevel(int level,int size);
+
+    protected abstract int compareItems(int level,int position,int otherLevel,int otherPosition);
+
+    /**
+     * Copy the item at ({@code fromLevel},{@code fromPosition}) to ({@code toLevel},{@code toPosition}).
+     */
+    protected abstract void moveItem(int fromLevel,int fromPosition,int toLevel,int toPosition);
+
+    /**
+     * Copy an item of {@code source} into ({@code level},{@code position}) of this sketch.
+     */
+    protected abstract void copyItem(S source,int sourceLevel,int sourcePosition,int level,int position);
+
+    /**
+     * Widen the min and max of this sketch to include those of {@code other}.
+     */
+    protected abstract void mergeBounds(S other);
+
+    /**
+     * Build the items of the sorted view of the sketch. Position {@code i} of the view holds the item at
+     * ({@code levels[i]},{@code positions[i]}), and the view holds {@code size} items. The view is
+     * only valid until the sketch next changes, and is rebuilt when {@link #sortedView()} is next called.
+     */
+    protected abstract void buildView(int[] levels,int[] positions,int size);
+
+    /**
+     * Release the items held in positions {@code [from,to)} of {@code level}, which are no longer part of the sketch.
+     * Only sketches over object types need to do anything here.
+     */
+    protected void releaseItems(int level,int from,int to){ }
+
+    /* ****************************************************************************************************************/
+    /*public operations*/
+
+    @Override
+    public S merge(S other){
+        QuantileSketch<S> o = other;
+        if(o==null || o.count==0) return self();
+        ensureLevels(o.numLevels);
+        for(int h=0;h<o.numLevels;h++){
+            for(int i=0;i<o.sizes[h];i++){
+                copyItem(other,h,i,h,reserve(h));
+            }
+        }
+        mergeBounds(other);
+        added(o.count);
+        return self();
+    }
+
+    public long size(){ return count; }
+    public boolean isEmpty(){ return count==0; }
+    public int getK(){ return k; }
+
+    /**
+     * @return the number of items physically retained by the sketch
+     */
+    public int retainedItems(){
+        return retained;
+    }
+
+    public S newCopy(){
+        S copy = newSketch(k,random);
+        QuantileSketch<S> c = copy;
+        c.ensureLevels(numLevels);
+        for(int h=0;h<numLevels;h++){
+            c.resizeLevel(h,levelCapacity(h));
+            for(int i=0;i<sizes[h];i++){
+                copy.copyItem(self(),h,i,h,c.reserve(h));
+            }
+        }
+        c.mergeBounds(self());
+        c.count = count;
+        return copy;
+    }
+
+    @Override
+    public String toString(){
+        return getClass().getSimpleName()+"{k="+k+", n="+count+", retained="+retainedItems()+", levels="+numLevels+"}";
+    }
+
+    /* ****************************************************************************************************************/
+    /*shared operations, used by the typed operations of subclasses*/
+
+    /**
+     * Reserve the next free position of {@code level}, growing the level if necessary. The caller
+     * must store an item at the returned position (after this method returns, since the level storage may
+     * have been replaced).
+     *
+     * To add {@code count} occurrences of an item, the item is stored once in every level corresponding to a set
+     * bit in {@code count} (which carries exactly the same weight), then {@link #added(long)} is called.
+     *
+     * @return the position in {@code level} to store the item at
+     */
+    protected final int reserve(int level){
+        ensureLevels(level+1);
+        int size = sizes[level];
+        int levelCapacity = levelCapacity(level);
+        if(size==levelCapacity){
+            resizeLevel(level,Math.max(2*levelCapacity,QuantileSketches.MIN_LEVEL_CAPACITY));
+        }
+        sizes[level] = size+1;
+        retained++;
+        return size;
+    }
+
+    /**
+     * Record that items with a total weight of {@code count} were stored, and compact the sketch if it has
+     * grown beyond its capacity.
+     */
+    protected final void added(long count){
+        this.count+=count;
+        cumulativeWeights = null;
+        compress();
+    }
+
+    /**
+     * Ensure that the sorted view of the sketch is built.
+     *
+     * @return the number of items in the sorted view
+     */
+    protected final int sortedView(){
+        buildSortedView();
+        return cumulativeWeights.length;
+    }
+
+    /**
+     * @return the estimated rank of the item at {@code position} in the sorted view, which is the total
+     * weight of the items before it
+     */
+    protected final long rankAt(int position){
+        return position==0? 0l : cumulativeWeights[position-1];
+    }
+
+    /**
+     * @param fraction a number in the (exclusive) range {@code (0,1)}
+     * @return the position in the sorted view of an item whose estimated rank is {@code fraction*size()}
+     */
+    protected final int quantilePosition(double fraction){
+        assert count>0: "Cannot compute the quantile of an empty sketch";
+        buildSortedView();
+        long target = (long)Math.ceil(fraction*count);
+        int lo = 0;
+        int hi = cumulativeWeights.length-1;
+        while(lo<hi){
+            int mid = (lo+hi)>>>1;
+            if(cumulativeWeights[mid]<target) lo = mid+1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return the estimated fraction of items with ranks in {@code [startRank,stopRank)}
+     */
+    protected final double fractionBetween(long startRank,long stopRank){
+        if(count==0) return 0d;
+        long c = stopRank-startRank;
+        if(c<=0) return 0d;
+        return ((double)c)/count;
+    }
+
+    /* ****************************************************************************************************************/
+    /*package-local methods*/
+    int numLevels(){ return numLevels; }
+    int levelSize(int level){ return sizes[level]; }
+
+    /**
+     * Set the size of a sketch whose items were restored (using {@link #reserve(int)}) from a serialized form.
+     */
+    void restored(long count){
+        this.count = count;
+        cumulativeWeights = null;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    @SuppressWarnings("unchecked")
+    private S self(){
+        return (S)this;
+    }
+
+    private void ensureLevels(int required){
+        if(required<=numLevels) return;
+        if(required>sizes.length){
+            sizes = Arrays.copyOf(sizes,required);
+        }
+        ensureLevelStorage(required);
+        numLevels = required;
+        capacity = QuantileSketches.totalCapacity(k,numLevels);
+    }
+
+    private void compress(){
+        while(retained>capacity){
+            int h = 0;
+            while(sizes[h]<QuantileSketches.levelCapacity(k,numLevels,h)) h++;
+            if(h==numLevels-1)
+                ensureLevels(numLevels+1);
+            compact(h);
+        }
+    }
+
+    private void compact(int level){
+        int size = sizes[level];
+        sortLevel(level,size);
+        /*
+         * With an odd number of items, one item (the smallest) is left behind in this level so
+         * that the promoted pairs are complete.
+         */
+        int start = size & 1;
+        int offset = random.nextBoolean()? 1: 0;
+        sizes[level] = start;
+        retained-=size-start;
+        for(int i=start+offset;i<size;i+=2){
+            moveItem(level,i,level+1,reserve(level+1));
+        }
+        releaseItems(level,start,size);
+    }
+
+    private void buildSortedView(){
+        if(cumulativeWeights!=null) return;
+        int total = retained;
+        int[] levels = new int[total];
+        int[] positions = new int[total];
+        long[] weights = new long[total];
+        int[] scratchLevels = new int[total];
+        int[] scratchPositions = new int[total];
+        long[] scratchWeights = new long[total];
+        int filled = 0;
+        for(int h=0;h<numLevels;h++){
+            int size = sizes[h];
+            if(size==0) continue;
+            sortLevel(h,size);
+            long weight = 1l<<h;
+            /*merge the sorted level into the already sorted prefix*/
+            int i = 0, j = 0, p = 0;
+            while(i<filled && j<size){
+                if(compareItems(levels[i],positions[i],h,j)<=0){
+                    scratchLevels[p] = levels[i];
+                    scratchPositions[p] = positions[i];
+                    scratchWeights[p++] = weights[i++];
+                }else{
+                    scratchLevels[p] = h;
+                    scratchPositions[p] = j++;
+                    scratchWeights[p++] = weight;
+                }
+            }
+            while(i<filled){
+                scratchLevels[p] = levels[i];
+                scratchPositions[p] = positions[i];
+                scratchWeights[p++] = weights[i++];
+            }
+            while(j<size){
+                scratchLevels[p] = h;
+                scratchPositions[p] = j++;
+                scratchWeights[p++] = weight;
+            }
+            int[] t = levels; levels = scratchLevels; scratchLevels = t;
+            t = positions; positions = scratchPositions; scratchPositions = t;
+            long[] w = weights; weights = scratchWeights; scratchWeights = w;
+            filled = p;
+        }
+        for(int i=1;i<total;i++){
+            weights[i]+=weights[i-1];
+        }
+        buildView(levels,positions,total);
+        this.cumulativeWeights = weights;
+    }
+}
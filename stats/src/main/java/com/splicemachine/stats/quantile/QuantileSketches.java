@@ -0,0 +1,260 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.stats.quantile;
+
+import com.splicemachine.encoding.Encoder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Factory and serialization methods for quantile sketches.
+ */
+public class QuantileSketches {
+    /*
+     * The default accuracy parameter. With k=200 a sketch retains roughly 600 items, and
+     * estimated ranks are typically within about 1% of the true rank.
+     */
+    public static final int DEFAULT_K = 200;
+    static final int MIN_K = 8;
+    static final int MIN_LEVEL_CAPACITY = 8;
+    /*the ratio of the capacity of a level to the capacity of the level above it*/
+    private static final double CAPACITY_DECAY = 2d/3d;
+
+    private QuantileSketches(){} //can't make me, I'm a utility class!
+
+    public static IntQuantileSketch intSketch(){ return intSketch(DEFAULT_K); }
+    public static IntQuantileSketch intSketch(int k){ return new IntQuantileSketch(k); }
+
+    public static LongQuantileSketch longSketch(){ return longSketch(DEFAULT_K); }
+    public static LongQuantileSketch longSketch(int k){ return new LongQuantileSketch(k); }
+
+    public static DoubleQuantileSketch doubleSketch(){ return doubleSketch(DEFAULT_K); }
+    public static DoubleQuantileSketch doubleSketch(int k){ return new DoubleQuantileSketch(k); }
+
+    public static BytesQuantileSketch bytesSketch(){ return bytesSketch(DEFAULT_K); }
+    public static BytesQuantileSketch bytesSketch(int k){ return new BytesQuantileSketch(k); }
+
+    public static Encoder<IntQuantileSketch> intEncoder(){ return IntEncoder.INSTANCE; }
+    public static Encoder<LongQuantileSketch> longEncoder(){ return LongEncoder.INSTANCE; }
+    public static Encoder<DoubleQuantileSketch> doubleEncoder(){ return DoubleEncoder.INSTANCE; }
+    public static Encoder<BytesQuantileSketch> bytesEncoder(){ return BytesEncoder.INSTANCE; }
+
+    /**
+     * @return the capacity of level {@code level} in a sketch with {@code numLevels} levels. The top
+     * level holds {@code k} items, and each level below holds 2/3 of the level above it.
+     */
+    static int levelCapacity(int k,int numLevels,int level){
+        int depth = numLevels-level-1;
+        return Math.max(MIN_LEVEL_CAPACITY,(int)Math.ceil(k*Math.pow(CAPACITY_DECAY,depth)));
+    }
+
+    static int totalCapacity(int k,int numLevels){
+        int total = 0;
+        for(int h=0;h<numLevels;h++){
+            total+=levelCapacity(k,numLevels,h);
+        }
+        return total;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+
+    /**
+     * Encodes a sketch as its accuracy parameter and size, followed (if the sketch is not empty) by its min, max
+     * and the items in each level.
+     */
+    private static abstract class SketchEncoder<S extends QuantileSketch<S>> implements Encoder<S>{
+
+        protected abstract S newSketch(int k);
+
+        protected abstract void writeBounds(S sketch,DataOutput output) throws IOException;
+
+        protected abstract void readBounds(S sketch,DataInput input) throws IOException;
+
+        protected abstract void writeItem(S sketch,int level,int position,DataOutput output) throws IOException;
+
+        /**
+         * Read an item and add it to {@code level} of {@code sketch}.
+         */
+        protected abstract void readItem(S sketch,int level,DataInput input) throws IOException;
+
+        @Override
+        public void encode(S item,DataOutput output) throws IOException{
+            output.writeInt(item.getK());
+            output.writeLong(item.size());
+            if(item.isEmpty()){
+                //an empty sketch has no min and max, and no items
+                return;
+            }
+            writeBounds(item,output);
+            output.writeInt(item.numLevels());
+            for(int h=0;h<item.numLevels();h++){
+                int size = item.levelSize(h);
+                output.writeInt(size);
+                for(int i=0;i<size;i++){
+                    writeItem(item,h,i,output);
+                }
+            }
+        }
+
+        @Override
+        public S decode(DataInput input) throws IOException{
+            S sketch = newSketch(input.readInt());
+            long count = input.readLong();
+            if(count==0) return sketch;
+            readBounds(sketch,input);
+            int numLevels = input.readInt();
+            for(int h=0;h<numLevels;h++){
+                int size = input.readInt();
+                for(int i=0;i<size;i++){
+                    readItem(sketch,h,input);
+                }
+            }
+            sketch.restored(count);
+            return sketch;
+        }
+    }
+
+    /**
+     * Writes int items as longs, so that int sketches have the same encoding as long sketches
+     * (int column statistics were once held in a long sketch).
+     */
+    private static class IntEncoder extends SketchEncoder<IntQuantileSketch>{
+        private static final IntEncoder INSTANCE = new IntEncoder();
+
+        @Override protected IntQuantileSketch newSketch(int k){ return new IntQuantileSketch(k); }
+
+        @Override
+        protected void writeBounds(IntQuantileSketch sketch,DataOutput output) throws IOException{
+            output.writeLong(sketch.min());
+            output.writeLong(sketch.max());
+        }
+
+        @Override
+        protected void readBounds(IntQuantileSketch sketch,DataInput input) throws IOException{
+            int min = (int)input.readLong();
+            sketch.restoreBounds(min,(int)input.readLong());
+        }
+
+        @Override
+        protected void writeItem(IntQuantileSketch sketch,int level,int position,DataOutput output) throws IOException{
+            output.writeLong(sketch.item(level,position));
+        }
+
+        @Override
+        protected void readItem(IntQuantileSketch sketch,int level,DataInput input) throws IOException{
+            sketch.restore(level,(int)input.readLong());
+        }
+    }
+
+    private static class LongEncoder extends SketchEncoder<LongQuantileSketch>{
+        private static final LongEncoder INSTANCE = new LongEncoder();
+
+        @Override protected LongQuantileSketch newSketch(int k){ return new LongQuantileSketch(k); }
+
+        @Override
+        protected void writeBounds(LongQuantileSketch sketch,DataOutput output) throws IOException{
+            output.writeLong(sketch.min());
+            output.writeLong(sketch.max());
+        }
+
+        @Override
+        protected void readBounds(LongQuantileSketch sketch,DataInput input) throws IOException{
+            long min = input.readLong();
+            sketch.restoreBounds(min,input.readLong());
+        }
+
+        @Override
+        protected void writeItem(LongQuantileSketch sketch,int level,int position,DataOutput output) throws IOException{
+            output.writeLong(sketch.item(level,position));
+        }
+
+        @Override
+        protected void readItem(LongQuantileSketch sketch,int level,DataInput input) throws IOException{
+            sketch.restore(level,input.readLong());
+        }
+    }
+
+    private static class DoubleEncoder extends SketchEncoder<DoubleQuantileSketch>{
+        private static final DoubleEncoder INSTANCE = new DoubleEncoder();
+
+        @Override protected DoubleQuantileSketch newSketch(int k){ return new DoubleQuantileSketch(k); }
+
+        @Override
+        protected void writeBounds(DoubleQuantileSketch sketch,DataOutput output) throws IOException{
+            output.writeDouble(sketch.min());
+            output.writeDouble(sketch.max());
+        }
+
+        @Override
+        protected void readBounds(DoubleQuantileSketch sketch,DataInput input) throws IOException{
+            double min = input.readDouble();
+            sketch.restoreBounds(min,input.readDouble());
+        }
+
+        @Override
+        protected void writeItem(DoubleQuantileSketch sketch,int level,int position,DataOutput output) throws IOException{
+            output.writeDouble(sketch.item(level,position));
+        }
+
+        @Override
+        protected void readItem(DoubleQuantileSketch sketch,int level,DataInput input) throws IOException{
+            sketch.restore(level,input.readDouble());
+        }
+    }
+
+    private static class BytesEncoder extends SketchEncoder<BytesQuantileSketch>{
+        private static final BytesEncoder INSTANCE = new BytesEncoder();
+
+        @Override protected BytesQuantileSketch newSketch(int k){ return new BytesQuantileSketch(k); }
+
+        @Override
+        protected void writeBounds(BytesQuantileSketch sketch,DataOutput output) throws IOException{
+            writeBytes(sketch.min(),output);
+            writeBytes(sketch.max(),output);
+        }
+
+        @Override
+        protected void readBounds(BytesQuantileSketch sketch,DataInput input) throws IOException{
+            byte[] min = readBytes(input);
+            sketch.restoreBounds(min,readBytes(input));
+        }
+
+        @Override
+        protected void writeItem(BytesQuantileSketch sketch,int level,int position,DataOutput output) throws IOException{
+            writeBytes(sketch.item(level,position),output);
+        }
+
+        @Override
+        protected void readItem(BytesQuantileSketch sketch,int level,DataInput input) throws IOException{
+            sketch.restore(level,readBytes(input));
+        }
+
+        private static void writeBytes(byte[] item,DataOutput output) throws IOException{
+            output.writeInt(item.length);
+            output.write(item);
+        }
+
+        private static byte[] readBytes(DataInput input) throws IOException{
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            return bytes;
+        }
+    }
+}
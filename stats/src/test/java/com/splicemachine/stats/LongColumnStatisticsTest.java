@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.stats;
+
+import com.splicemachine.encoding.Encoder;
+import com.splicemachine.stats.cardinality.CardinalityEstimators;
+import com.splicemachine.stats.cardinality.LongCardinalityEstimator;
+import com.splicemachine.stats.collector.ColumnStatsCollectors;
+import com.splicemachine.stats.collector.LongColumnStatsCollector;
+import com.splicemachine.stats.frequency.FrequencyCounters;
+import com.splicemachine.stats.frequency.LongFrequentElements;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Tests for encoding and decoding {@link LongColumnStatistics}, including encodings written before
+ * the quantile sketch was added.
+ */
+public class LongColumnStatisticsTest{
+
+    @Test
+    public void canEncodeAndDecodeWithSketch() throws Exception{
+        LongColumnStatistics stats=collect();
+        Assert.assertNotNull("Expected a sketch",stats.quantiles());
+
+        Encoder<LongColumnStatistics> encoder=LongColumnStatistics.encoder();
+        ByteArrayOutputStream baos=new ByteArrayOutputStream();
+        encoder.encode(stats,new DataOutputStream(baos));
+        LongColumnStatistics decoded=encoder.decode(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+
+        assertSameBase(stats,decoded);
+        Assert.assertNotNull("Lost the sketch",decoded.quantiles());
+        Assert.assertEquals(stats.quantiles().size(),decoded.quantiles().size());
+        Assert.assertEquals(stats.quantiles().rank(500l,true),decoded.quantiles().rank(500l,true));
+    }
+
+    @Test
+    public void decodesEncodingWithoutVersion() throws Exception{
+        LongColumnStatistics stats=collect();
+
+        //the encoding as written before the sketch (and the format version) were added
+        ByteArrayOutputStream baos=new ByteArrayOutputStream();
+        DataOutputStream dos=new DataOutputStream(baos);
+        BaseColumnStatistics.write(stats,dos);
+        dos.writeLong(stats.min());
+        dos.writeLong(stats.max());
+        CardinalityEstimators.longEncoder().encode((LongCardinalityEstimator)stats.getCardinalityEstimator(),dos);
+        FrequencyCounters.longEncoder().encode((LongFrequentElements)stats.topK(),dos);
+        dos.flush();
+
+        LongColumnStatistics decoded=LongColumnStatistics.encoder()
+                .decode(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        assertSameBase(stats,decoded);
+        Assert.assertNull("Old encodings have no sketch",decoded.quantiles());
+    }
+
+    @Test
+    public void mergeWithLegacyStatisticKeepsSketch() throws Exception{
+        LongColumnStatistics stats=collect();
+        long sketchSize=stats.quantiles().size();
+        double fraction=stats.quantiles().rangeFraction(0l,500l,true,false);
+
+        LongColumnStatistics legacy=withoutSketch(collect());
+        Assert.assertNull(legacy.quantiles());
+
+        stats.merge(legacy);
+        Assert.assertNotNull("Merging with a legacy statistic dropped the sketch",stats.quantiles());
+        Assert.assertEquals("Sketch should be unchanged",sketchSize,stats.quantiles().size());
+        Assert.assertEquals(fraction,stats.quantiles().rangeFraction(0l,500l,true,false),0d);
+
+        LongColumnStatistics other=collect();
+        legacy.merge(other);
+        Assert.assertNotNull("Merging into a legacy statistic dropped the sketch",legacy.quantiles());
+        Assert.assertEquals(sketchSize,legacy.quantiles().size());
+        Assert.assertNotSame("The merged sketch should be a copy",other.quantiles(),legacy.quantiles());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static LongColumnStatistics collect(){
+        LongColumnStatsCollector collector=ColumnStatsCollectors.longCollector(3,14,5);
+        for(long i=0;i<1000;i++){
+            collector.update(i);
+        }
+        collector.updateNull(10l);
+        return collector.build();
+    }
+
+    private static LongColumnStatistics withoutSketch(LongColumnStatistics stats){
+        return new LongColumnStatistics(stats.columnId(),
+                (LongCardinalityEstimator)stats.getCardinalityEstimator(),
+                (LongFrequentElements)stats.topK(),
+                stats.min(),
+                stats.max(),
+                stats.totalBytes(),
+                stats.nullCount()+stats.nonNullCount(),
+                stats.nullCount(),
+                stats.minCount());
+    }
+
+    private static void assertSameBase(LongColumnStatistics expected,LongColumnStatistics actual){
+        Assert.assertEquals("Incorrect column id",expected.columnId(),actual.columnId());
+        Assert.assertEquals("Incorrect nonNull count",expected.nonNullCount(),actual.nonNullCount());
+        Assert.assertEquals("Incorrect null count",expected.nullCount(),actual.nullCount());
+        Assert.assertEquals("Incorrect minCount!",expected.minCount(),actual.minCount());
+        Assert.assertEquals("Incorrect minValue!",expected.min(),actual.min());
+        Assert.assertEquals("Incorrect maxValue!",expected.max(),actual.max());
+        Assert.assertEquals("Incorrect cardinality!",expected.cardinality(),actual.cardinality());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.stats.quantile;
+
+import com.splicemachine.encoding.Encoder;
+import com.splicemachine.primitives.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+public class BytesQuantileSketchTest {
+
+    @Test
+    public void testStringRanks() throws Exception {
+        BytesQuantileSketch sketch = new BytesQuantileSketch(200,new Random(0));
+        int n = 200000;
+        for(int i=0;i<n;i++){
+            sketch.update(Bytes.toBytes(String.format("k%06d",i)));
+        }
+        Assert.assertTrue(sketch.retainedItems()<1000);
+        double fraction = sketch.rangeFraction(Bytes.toBytes("k050000"),Bytes.toBytes("k150000"),true,false);
+        Assert.assertEquals(0.5d,fraction,0.02d);
+        Assert.assertEquals(0d,sketch.rangeFraction(Bytes.toBytes("a"),Bytes.toBytes("b"),true,true),0d);
+        Assert.assertEquals(1d,sketch.rangeFraction(Bytes.toBytes("a"),Bytes.toBytes("z"),true,true),0d);
+    }
+
+    @Test
+    public void testMergeAndEncodeDecode() throws Exception {
+        BytesQuantileSketch left = new BytesQuantileSketch(200,new Random(0));
+        BytesQuantileSketch right = new BytesQuantileSketch(200,new Random(1));
+        for(int i=0;i<50000;i++){
+            left.update(Bytes.toBytes(String.format("a%05d",i)));
+            right.update(Bytes.toBytes(String.format("b%05d",i)));
+        }
+        BytesQuantileSketch merged = left.merge(right);
+        Assert.assertEquals(100000l,merged.size());
+        Assert.assertEquals(0.5d,merged.rangeFraction(Bytes.toBytes("a"),Bytes.toBytes("b"),true,false),0.02d);
+
+        Encoder<BytesQuantileSketch> encoder = QuantileSketches.bytesEncoder();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        encoder.encode(merged,new DataOutputStream(baos));
+        BytesQuantileSketch decoded = encoder.decode(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        Assert.assertEquals(merged.size(),decoded.size());
+        Assert.assertArrayEquals(merged.min(),decoded.min());
+        Assert.assertArrayEquals(merged.max(),decoded.max());
+        Assert.assertEquals(merged.rank(Bytes.toBytes("b"),false),decoded.rank(Bytes.toBytes("b"),false));
+    }
+
+    @Test
+    public void testEmptySketchEncodes() throws Exception {
+        Encoder<BytesQuantileSketch> encoder = QuantileSketches.bytesEncoder();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        encoder.encode(QuantileSketches.bytesSketch(),new DataOutputStream(baos));
+        BytesQuantileSketch decoded = encoder.decode(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        Assert.assertTrue(decoded.isEmpty());
+        Assert.assertEquals(0l,decoded.rank(Bytes.toBytes("a"),true));
+    }
+}
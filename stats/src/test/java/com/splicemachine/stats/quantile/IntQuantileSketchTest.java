@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.stats.quantile;
+
+import com.splicemachine.encoding.Encoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+public class IntQuantileSketchTest {
+
+    @Test
+    public void testMatchesLongSketch() throws Exception {
+        IntQuantileSketch sketch = new IntQuantileSketch(200,new Random(4));
+        LongQuantileSketch longSketch = new LongQuantileSketch(200,new Random(4));
+        Random data = new Random(5);
+        for(int i=0;i<200000;i++){
+            int value = data.nextInt();
+            sketch.update(value);
+            longSketch.update(value);
+        }
+        Assert.assertEquals(longSketch.size(),sketch.size());
+        Assert.assertEquals(longSketch.retainedItems(),sketch.retainedItems());
+        Assert.assertEquals(longSketch.min(),sketch.min());
+        Assert.assertEquals(longSketch.max(),sketch.max());
+        for(int v=Integer.MIN_VALUE/2;v<Integer.MAX_VALUE/2;v+=Integer.MAX_VALUE/50){
+            Assert.assertEquals(longSketch.rank(v,true),sketch.rank(v,true));
+        }
+        Assert.assertEquals(longSketch.quantile(0.5d),sketch.quantile(0.5d));
+    }
+
+    @Test
+    public void testDecodesLongEncoding() throws Exception {
+        //int column statistics used to hold a long sketch, so the int encoding must read what was written then
+        LongQuantileSketch sketch = new LongQuantileSketch(200,new Random(0));
+        for(int i=0;i<100000;i++){
+            sketch.update(i*7-350000);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        QuantileSketches.longEncoder().encode(sketch,new DataOutputStream(baos));
+        Encoder<IntQuantileSketch> encoder = QuantileSketches.intEncoder();
+        IntQuantileSketch decoded = encoder.decode(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        ByteArrayOutputStream reencoded = new ByteArrayOutputStream();
+        encoder.encode(decoded,new DataOutputStream(reencoded));
+        Assert.assertArrayEquals("Int encoding differs from the long encoding",baos.toByteArray(),reencoded.toByteArray());
+
+        Assert.assertEquals(sketch.size(),decoded.size());
+        Assert.assertEquals(sketch.min(),decoded.min());
+        Assert.assertEquals(sketch.max(),decoded.max());
+        Assert.assertEquals(sketch.retainedItems(),decoded.retainedItems());
+        for(int v=-350000;v<350000;v+=7000){
+            Assert.assertEquals(sketch.rank(v,true),decoded.rank(v,true));
+        }
+    }
+}
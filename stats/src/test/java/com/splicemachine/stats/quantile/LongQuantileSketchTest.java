@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.stats.quantile;
+
+import com.splicemachine.encoding.Encoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+public class LongQuantileSketchTest {
+    /*with k=200, ranks should be well within 2% of the true rank*/
+    private static final double RANK_ERROR = 0.02d;
+
+    @Test
+    public void testSmallStreamIsExact() throws Exception {
+        LongQuantileSketch sketch = new LongQuantileSketch(200,new Random(0));
+        for(long i=0;i<100;i++){
+            sketch.update(i);
+        }
+        Assert.assertEquals(100,sketch.retainedItems());
+        Assert.assertEquals(50,sketch.rank(50,false));
+        Assert.assertEquals(51,sketch.rank(50,true));
+        Assert.assertEquals(0,sketch.rank(-1,true));
+        Assert.assertEquals(100,sketch.rank(99,true));
+        Assert.assertEquals(0.1d,sketch.rangeFraction(10,19,true,true),0d);
+        Assert.assertEquals(0.08d,sketch.rangeFraction(10,19,false,false),0d);
+    }
+
+    @Test
+    public void testMemoryIsBounded() throws Exception {
+        LongQuantileSketch sketch = new LongQuantileSketch(200,new Random(0));
+        for(long i=0;i<1000000;i++){
+            sketch.update(i);
+        }
+        Assert.assertEquals(1000000,sketch.size());
+        Assert.assertTrue("Too many retained items: "+sketch.retainedItems(),sketch.retainedItems()<1000);
+    }
+
+    @Test
+    public void testRanksAreAccurate() throws Exception {
+        int n = 500000;
+        LongQuantileSketch sketch = new LongQuantileSketch(200,new Random(1));
+        Random data = new Random(2);
+        long[] values = new long[n];
+        for(int i=0;i<n;i++){
+            values[i] = data.nextInt(n);
+            sketch.update(values[i]);
+        }
+        assertRanks(sketch,values);
+    }
+
+    @Test
+    public void testMergedSketchIsAccurate() throws Exception {
+        int n = 300000;
+        long[] values = new long[n];
+        LongQuantileSketch[] partitions = new LongQuantileSketch[10];
+        for(int i=0;i<partitions.length;i++){
+            partitions[i] = new LongQuantileSketch(200,new Random(i));
+        }
+        Random data = new Random(3);
+        for(int i=0;i<n;i++){
+            //skewed, and with each partition holding a different part of the range
+            values[i] = (long)(Math.abs(data.nextGaussian())*10000)+(i%partitions.length)*1000;
+            partitions[i%partitions.length].update(values[i]);
+        }
+        LongQuantileSketch merged = partitions[0];
+        for(int i=1;i<partitions.length;i++){
+            merged = merged.merge(partitions[i]);
+        }
+        Assert.assertEquals(n,merged.size());
+        Assert.assertTrue(merged.retainedItems()<1000);
+        assertRanks(merged,values);
+    }
+
+    @Test
+    public void testWeightedUpdate() throws Exception {
+        LongQuantileSketch sketch = new LongQuantileSketch(200,new Random(0));
+        sketch.update(1l,1000000l);
+        sketch.update(2l,3000000l);
+        Assert.assertEquals(4000000l,sketch.size());
+        Assert.assertEquals(1000000l,sketch.rank(1l,true));
+        Assert.assertEquals(0.75d,sketch.rangeFraction(2l,2l,true,true),0d);
+        Assert.assertEquals(2l,sketch.quantile(0.5d));
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        LongQuantileSketch sketch = new LongQuantileSketch(200,new Random(0));
+        for(long i=0;i<100000;i++){
+            sketch.update(i*7);
+        }
+        Encoder<LongQuantileSketch> encoder = QuantileSketches.longEncoder();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        encoder.encode(sketch,new DataOutputStream(baos));
+        LongQuantileSketch decoded = encoder.decode(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+
+        Assert.assertEquals(sketch.size(),decoded.size());
+        Assert.assertEquals(sketch.min(),decoded.min());
+        Assert.assertEquals(sketch.max(),decoded.max());
+        Assert.assertEquals(sketch.retainedItems(),decoded.retainedItems());
+        for(long v=0;v<700000;v+=7000){
+            Assert.assertEquals(sketch.rank(v,true),decoded.rank(v,true));
+        }
+    }
+
+    private static void assertRanks(LongQuantileSketch sketch,long[] values){
+        long[] sorted = values.clone();
+        java.util.Arrays.sort(sorted);
+        int n = sorted.length;
+        for(int q=1;q<100;q++){
+            long v = sorted[n*q/100];
+            long trueRank = upperBound(sorted,v);
+            long estimate = sketch.rank(v,true);
+            Assert.assertEquals("Incorrect rank for "+v,trueRank,estimate,RANK_ERROR*n);
+        }
+    }
+
+    private static long upperBound(long[] sorted,long v){
+        int lo = 0, hi = sorted.length;
+        while(lo<hi){
+            int mid = (lo+hi)>>>1;
+            if(sorted[mid]<=v) lo = mid+1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which is cheap to increment from many threads at once.
+ * <p/>
+ * Each thread increments one of a fixed number of stripes, chosen by hashing its thread id, and
+ * {@link #get()} sums the stripes. Stripes are padded apart so that threads on different stripes
+ * don't contend for the same cache line. Reads are not atomic with respect to concurrent increments,
+ * which is fine for statistics, but not for anything which needs an exact count at a point in time.
+ */
+public class StripedCounter{
+    /*one stripe per 64-byte cache line*/
+    private static final int PADDING=8;
+
+    private final AtomicLongArray cells;
+    private final int stripeMask;
+
+    public StripedCounter(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedCounter(int concurrencyLevel){
+        int stripes=1;
+        while(stripes<concurrencyLevel)
+            stripes<<=1;
+        this.cells=new AtomicLongArray(stripes*PADDING);
+        this.stripeMask=stripes-1;
+    }
+
+    public void increment(){
+        add(1l);
+    }
+
+    public void add(long delta){
+        cells.getAndAdd(stripe()*PADDING,delta);
+    }
+
+    public long get(){
+        long sum=0l;
+        for(int i=0;i<cells.length();i+=PADDING){
+            sum+=cells.get(i);
+        }
+        return sum;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private int stripe(){
+        //thread ids are sequential, so mix the bits before masking
+        long h=Thread.currentThread().getId()*0x9e3779b97f4a7c15L;
+        return (int)(h>>>32)&stripeMask;
+    }
+}
@@ -18,6 +18,8 @@ package com.splicemachine.tools;
 import org.sparkproject.guava.base.Preconditions;
 import org.sparkproject.guava.cache.*;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
@@ -50,6 +52,11 @@ public class CachedResourcePool<E,K extends ResourcePool.Key> implements Resourc
         //no-op, rely on timeout to remove it
     }
 
+    @Override
+    public Collection<E> getResources() {
+        return Collections.unmodifiableCollection(cache.asMap().values());
+    }
+
     public static class Builder<E,K extends Key> {
         private CacheBuilder<K,E> cacheBuilder;
         private Generator<E,K> generator;
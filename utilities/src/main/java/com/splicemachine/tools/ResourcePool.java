@@ -15,6 +15,8 @@
 
 package com.splicemachine.tools;
 
+import java.util.Collection;
+
 /**
  * Represents a Poolable Resource.
  *
@@ -41,4 +43,9 @@ public interface ResourcePool<E,K extends ResourcePool.Key>{
 
     public void release(K key) throws Exception;
 
+    /**
+     * @return the resources currently held by the pool
+     */
+    public Collection<E> getResources();
+
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+
+package com.splicemachine.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public class StripedCounterTest{
+
+    @Test
+    public void countsAcrossThreads() throws Exception{
+        final StripedCounter counter=new StripedCounter(4);
+        final int threads=8;
+        final int increments=10000;
+        final CountDownLatch start=new CountDownLatch(1);
+        Thread[] workers=new Thread[threads];
+        for(int i=0;i<threads;i++){
+            workers[i]=new Thread(new Runnable(){
+                @Override
+                public void run(){
+                    try{
+                        start.await();
+                    }catch(InterruptedException e){
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for(int j=0;j<increments;j++){
+                        counter.increment();
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for(Thread worker:workers){
+            worker.join();
+        }
+
+        Assert.assertEquals("Lost increments!",(long)threads*increments,counter.get());
+    }
+
+    @Test
+    public void addsDeltas() throws Exception{
+        StripedCounter counter=new StripedCounter(1);
+        counter.add(5l);
+        counter.add(-2l);
+        counter.increment();
+
+        Assert.assertEquals("Incorrect count!",4l,counter.get());
+    }
+}